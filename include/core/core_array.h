@@ -43,10 +43,30 @@
 #include "ruts/cas_loop.h"
 #include "mpgc/gc.h"
 #include <atomic>
+#include <cstdint>
 
 namespace mds {
   namespace core {
 
+    /*
+     * How an array holds its elements.  Every layout keeps an MSV per
+     * element, so writes are always isolated, take part in conflict
+     * detection, and go away if the task is rerun or the context rolled
+     * back.
+     *
+     * - versioned creates each MSV on first touch.
+     * - read_mostly creates them all with the array, so a read is a
+     *   load of the slot and never has to allocate and install one.
+     * - write_once is read_mostly, and in addition a write to an
+     *   element that already has a value in the writer's view throws
+     *   write_once_ex.  The check reads the element, so two tasks that
+     *   each set it for the first time conflict, and the rerun of the
+     *   loser sees the winner's value.
+     */
+    enum class array_layout : std::uint8_t {
+      versioned, read_mostly, write_once
+    };
+
     class array_type_base : public managed_type<kind::ARRAY>
     {
       public:
@@ -107,20 +127,26 @@ namespace mds {
           return d;
         }
 
+        gc_ptr<const kind_type<K>> element_type() const {
+          return ele_type;
+        }
+
         bool compare_types(const gc_ptr<const array_type> &other) const {
           /*
            * array types are only the same if their elements are of the same type
            *  and they have the same bounds.
            */
           return other == this
-              || (other != nullptr && this->ele_type == other->ele_type);
+              || (other != nullptr && this->ele_type->same_type_as(other->ele_type));
         }
 
         gc_ptr<const kind_type<K>> element_type() const {
           return ele_type;
         }
 
-        managed_value<managed_array<K>> create_array(const size_type s) const;
+        managed_value<managed_array<K>>
+        create_array(const size_type s,
+                     array_layout layout = array_layout::versioned) const;
     };
 
 
@@ -144,7 +170,9 @@ namespace mds {
         ) :
         managed_composite{gc},
         elmt_kind{k}
-        {}
+        {
+          stats::count(stats::alloc::array);
+        }
 
         static const auto &descriptor() {
           static gc_descriptor d =
@@ -181,6 +209,7 @@ namespace mds {
 
         const gc_ptr<const array_type<K>> a_type;
         const size_type                   size;
+        const array_layout                layout;
       
       private:
         gc_ptr<rep_type>                  array_gc;
@@ -190,11 +219,13 @@ namespace mds {
           gc_token &gc,
           const gc_ptr<const array_type<K>> &at,
           const size_type s,
-          gc_ptr<rep_type> &a
+          gc_ptr<rep_type> &a,
+          array_layout l = array_layout::versioned
         ) : 
         managed_array_base{gc, K},
         a_type{at},
         size{s},
+        layout{l},
         array_gc{a}
         {}
 
@@ -205,13 +236,27 @@ namespace mds {
 	    .template WITH_SUPER(managed_array_base)
             .template WITH_FIELD(&managed_array::a_type)
 	    .template WITH_FIELD(&managed_array::size)
+	    .template WITH_FIELD(&managed_array::layout)
 	    .template WITH_FIELD(&managed_array::array_gc);
           return d;
         }
 
+        bool is_write_once() const {
+          return layout == array_layout::write_once;
+        }
+
       template <typename Fn>
       gc_ptr<typed_msv<K>> lookup(index_type i, Fn&& create_if_null) const;
 
+      /*
+       * Called once, before the array is visible to anyone else.
+       */
+      void preallocate() const {
+        for (index_type i = 0; i < size; i++) {
+          lookup(i, []{ return true; });
+        }
+      }
+
       kind_mv<K> free_read(index_type i, const gc_ptr<view> &v) const;
       kind_mv<K> frozen_read(index_type i, const gc_ptr<view> &v) const;
       bool has_value(index_type i, const gc_ptr<view> &v) const;
@@ -270,7 +315,7 @@ namespace mds {
 
     template <kind K> inline
     managed_value<managed_array<K>>
-    array_type<K>::create_array(const size_type s) const
+    array_type<K>::create_array(const size_type s, array_layout layout) const
     {
       using atomic_msv  = std::atomic<gc_ptr<typed_msv<K>>>;
       using rep_type    = gc_array<atomic_msv>;
@@ -278,7 +323,10 @@ namespace mds {
       // create underlying gc_array
       gc_ptr<rep_type> array_gc = make_gc_array<atomic_msv>(s);
 
-      gc_ptr<managed_array<K>> a = make_gc<managed_array<K>>(GC_THIS, s, array_gc);
+      gc_ptr<managed_array<K>> a = make_gc<managed_array<K>>(GC_THIS, s, array_gc, layout);
+      if (layout != array_layout::versioned) {
+        a->preallocate();
+      }
       gc_ptr<view> v = iso_context::shadowed(top_level_view);
       return managed_value<managed_array<K>>{a, v};
     }
@@ -355,7 +403,22 @@ namespace mds {
                              const gc_ptr<mod_condition<K>> &guard) const
     {
       gc_ptr<typed_msv<K>> val = lookup(i, []{ return true; });
+      msv_sites::note(val, msv_site_kind::array_slot, GC_THIS, i);
       gc_ptr<view> sv = iso_context::shadowed(v);
+      if (is_write_once()) {
+        /*
+         * Only a plain set makes sense here: anything that reads the
+         * old value would be a second write.  The frozen read is what
+         * makes a concurrent first write by another task a conflict.
+         */
+        if (op != modify_op::set || guard != nullptr) {
+          throw write_once_ex{};
+        }
+        val->frozen_read(sv);
+        if (val->has_value(sv)) {
+          throw write_once_ex{};
+        }
+      }
       return val->modify(sv, op, arg, returning, guard);
     }
 
@@ -34,6 +34,9 @@
 #ifndef CORE_CONFLICT_H_
 #define CORE_CONFLICT_H_
 
+#include <atomic>
+#include <string>
+#include <vector>
 #include "core/core_fwd.h"
 
 namespace mds {
@@ -45,18 +48,26 @@ namespace mds {
 
     class conflict : public gc_allocated {
       const gc_ptr<task> _redo_task;
+      /*
+       * The MSV whose publication caused the conflict.  Only filled in
+       * while conflicts are being traced, and not for conflicts that
+       * come from blocking modifications.
+       */
+      const gc_ptr<msv> _source;
       mutable bool _resolved = false;
     public:
 
       conflict(gc_token &gc,
-               const gc_ptr<task> &rt)
-        : gc_allocated{gc}, _redo_task{rt}
+               const gc_ptr<task> &rt,
+               const gc_ptr<msv> &source = nullptr)
+        : gc_allocated{gc}, _redo_task{rt}, _source{source}
       {}
 
       const static auto &descriptor() {
         static gc_descriptor d =
           GC_DESC(conflict)
           .WITH_FIELD(&conflict::_redo_task)
+          .WITH_FIELD(&conflict::_source)
           .WITH_FIELD(&conflict::_resolved)
           ;
 
@@ -81,8 +92,147 @@ namespace mds {
         return _redo_task;
       }
 
+      gc_ptr<msv> source() const {
+        return _source;
+      }
       
     };
+
+    /*
+     * Opt-in tracing of which MSVs cause failed publishes.  While it's
+     * on, an MSV that's published records itself (on a thread local)
+     * as the source of any conflicts that publishing hands out, and one
+     * in every sample_interval failed publishes adds the sites of its
+     * conflicts' sources to a per-process table of hot spots.
+     *
+     * When tracing is off, the only cost is a relaxed load when an MSV
+     * is published.  The table is in the process's own heap, counts
+     * what this process saw fail, and holds at most max_spots sites.
+     * Once it's full, a new site replaces the one with the lowest count
+     * and starts from that count plus one, so the busiest sites stay,
+     * though a late arrival's count may be high by as much as the count
+     * it took over.
+     *
+     * The sites come from msv_sites, so only MSVs written while tracing
+     * is on can be named.
+     */
+    namespace conflict_trace {
+      struct hot_spot {
+        msv_site_kind site;
+        std::u16string where;
+        std::uint64_t count;
+      };
+
+      static constexpr std::size_t max_spots = 4096;
+
+      void enable(std::uint32_t sample_interval);
+      void disable();
+      bool enabled();
+      void reset();
+
+      /*
+       * The number of failed publishes whose conflicts were recorded.
+       */
+      std::uint64_t n_sampled();
+
+      /*
+       * The n sites with the most conflicts, most first.
+       */
+      std::vector<hot_spot> top(std::size_t n);
+
+      /*
+       * Called on a failed publish.
+       */
+      void note_failure(const conflict_list &conflicts);
+
+      namespace detail {
+        extern std::atomic<bool> on;
+        gc_ptr<msv> &current_source();
+      }
+
+      /*
+       * Marks the MSV being published as the source of any conflicts
+       * added while this is in scope.
+       */
+      class source_scope {
+        bool _set;
+      public:
+        explicit source_scope(const gc_ptr<msv> &m)
+          : _set{detail::on.load(std::memory_order_relaxed)}
+        {
+          if (_set) {
+            detail::current_source() = m;
+          }
+        }
+        ~source_scope() {
+          if (_set) {
+            detail::current_source() = nullptr;
+          }
+        }
+        source_scope(const source_scope &) = delete;
+        source_scope &operator =(const source_scope &) = delete;
+      };
+
+      inline gc_ptr<msv> current_source() {
+        if (!detail::on.load(std::memory_order_relaxed)) {
+          return nullptr;
+        }
+        return detail::current_source();
+      }
+    }
+
+    /*
+     * What an MSV is a slot of: the record and field slot, the array
+     * and index, or the bound name.  Only the conflict tracer and change
+     * feeds need this, so rather than have every MSV carry it, it's
+     * kept in a per-process side table, and only while something has
+     * asked for it with retain().  Writes note their sites then, so an
+     * MSV has one once it's been written after the first retain().
+     *
+     * The table holds MSVs and owners weakly and is bounded.  When it's
+     * full, entries for collected MSVs go first, then ones that haven't
+     * been written or looked up since the last sweep.  When the last
+     * holder calls release(), it's emptied.
+     */
+    namespace msv_sites {
+      struct site {
+        msv_site_kind kind = msv_site_kind::unknown;
+        gc_ptr<const gc_allocated> owner;
+        std::size_t index = 0;
+      };
+
+      static constexpr std::size_t max_entries = std::size_t(1) << 18;
+
+      void retain();
+      void release();
+
+      namespace detail {
+        extern std::atomic<std::uint32_t> holders;
+        void record(const gc_ptr<msv> &m, msv_site_kind k,
+                    const gc_ptr<const gc_allocated> &owner, std::size_t index);
+      }
+
+      inline bool wanted() {
+        return detail::holders.load(std::memory_order_relaxed) > 0;
+      }
+
+      /*
+       * Called on each write to m.  A relaxed load when nobody wants
+       * sites.
+       */
+      inline void note(const gc_ptr<msv> &m, msv_site_kind k,
+                       const gc_ptr<const gc_allocated> &owner, std::size_t index = 0)
+      {
+        if (wanted()) {
+          detail::record(m, k, owner, index);
+        }
+      }
+
+      /*
+       * An unknown site if m hasn't been noted or its owner is gone.
+       */
+      site lookup(const gc_ptr<msv> &m);
+    }
     
 
 
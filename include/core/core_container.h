@@ -0,0 +1,182 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/*
+ * core_container.h
+ *
+ * What maps, sets and lists have in common, so that any of them can be
+ * bound in a namespace, stored in a record field or held in an array.
+ * Like arrays, whose element kinds all share kind::ARRAY, they all
+ * share kind::CONTAINER.  A container's shape and its key and element
+ * kinds say which class it actually is.
+ */
+
+#ifndef CORE_CONTAINER_H_
+#define CORE_CONTAINER_H_
+
+#include "core/core_fwd.h"
+#include "core/core_type.h"
+#include "ruts/uniform_key.h"
+#include "mpgc/gc.h"
+#include <cstdint>
+
+namespace mds {
+  namespace core {
+
+    /*
+     * The ordinals match the _SHAPE constants in ContainerTypeProxy.
+     */
+    enum class container_shape : std::uint8_t {
+      string_map, hash_set, list, ordered_map
+    };
+
+    /*
+     * Specialized for each container class C, giving the shape,
+     * key_kind and elt_kind that a managed_container has to have to
+     * be a C.  Containers without keys use their element kind as the
+     * key kind.
+     */
+    template <typename C> struct container_traits;
+
+    class managed_container : public managed_composite, public with_uniform_id
+    {
+    public:
+      const container_shape shape;
+      const kind key_kind;
+      const kind elt_kind;
+
+      managed_container(gc_token &gc, container_shape s, kind kk, kind ek)
+        : managed_composite{gc}, shape{s}, key_kind{kk}, elt_kind{ek}
+      {}
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(managed_container)
+          .WITH_SUPER(managed_composite)
+          .WITH_SUPER(with_uniform_id)
+          .WITH_FIELD(&managed_container::shape)
+          .WITH_FIELD(&managed_container::key_kind)
+          .WITH_FIELD(&managed_container::elt_kind);
+        return d;
+      }
+
+      template <typename C>
+      bool is_a() const {
+        using traits = container_traits<C>;
+        return shape == traits::shape
+          && key_kind == traits::key_kind
+          && elt_kind == traits::elt_kind;
+      }
+
+      /*
+       * Unlike the array downcasts, this is checked, since what comes
+       * out of a binding or a field may have been put there by another
+       * process.  Throws incompatible_type_ex if this isn't a C.
+       */
+      template <typename C>
+      gc_ptr<C> downcast() {
+        if (!is_a<C>()) {
+          throw incompatible_type_ex{};
+        }
+        return std::static_pointer_cast<C>(GC_THIS);
+      }
+
+      template <typename C>
+      gc_ptr<const C> downcast() const {
+        if (!is_a<C>()) {
+          throw incompatible_type_ex{};
+        }
+        return std::static_pointer_cast<const C>(GC_THIS);
+      }
+    };
+
+    /*
+     * Container types aren't interned, so two of them are the same
+     * type if they have the same shape and kinds and their element
+     * types (only recorded for records) are the same.
+     */
+    class container_type : public managed_type<kind::CONTAINER>
+    {
+    public:
+      const container_shape shape;
+      const kind key_kind;
+      const kind elt_kind;
+      const gc_ptr<const managed_type_base> elt_type;
+
+      container_type(gc_token &gc, container_shape s, kind kk, kind ek,
+                     const gc_ptr<const managed_type_base> &et)
+        : managed_type<kind::CONTAINER>{gc},
+          shape{s}, key_kind{kk}, elt_kind{ek}, elt_type{et}
+      {}
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(container_type)
+          .WITH_SUPER(managed_type<kind::CONTAINER>)
+          .WITH_FIELD(&container_type::shape)
+          .WITH_FIELD(&container_type::key_kind)
+          .WITH_FIELD(&container_type::elt_kind)
+          .WITH_FIELD(&container_type::elt_type);
+        return d;
+      }
+
+      static gc_ptr<container_type> of(container_shape s, kind kk, kind ek,
+                                       const gc_ptr<const managed_type_base> &et = nullptr)
+      {
+        return make_gc<container_type>(s, kk, ek, et);
+      }
+
+      bool compare_types(const gc_ptr<const container_type> &other) const {
+        if (other == this) {
+          return true;
+        }
+        if (other == nullptr
+            || shape != other->shape
+            || key_kind != other->key_kind
+            || elt_kind != other->elt_kind)
+          {
+            return false;
+          }
+        if (elt_type == nullptr || other->elt_type == nullptr) {
+          return elt_type == other->elt_type;
+        }
+        return elt_type->same_type_as(other->elt_type);
+      }
+
+      /*
+       * Whether c could be a value of this type.  Containers don't
+       * remember the record type of their elements, so only the shape
+       * and kinds are checked.
+       */
+      bool describes(const managed_container &c) const {
+        return c.shape == shape && c.key_kind == key_kind && c.elt_kind == elt_kind;
+      }
+    };
+
+  }
+}
+
+#endif /* CORE_CONTAINER_H_ */
@@ -108,9 +108,14 @@ namespace mds {
     class publication_attempt : public exportable, public with_uniform_id {
       class redo_graph;
       
+      using modified_vc_list = gc_threaded_list<gc_ptr<modified_value_chain>>;
+
       const gc_ptr<iso_context> _context;
       const conflict_list _conflicts;
       const timestamp_t _at_time;
+      const modified_vc_list _published;
+      const gc_ptr<iso_context> _before;
+      const gc_ptr<iso_context> _after;
       mutable std::atomic<gc_ptr<redo_graph>> _redo_graph{nullptr};
 
       gc_ptr<redo_graph> get_redo_graph() const;
@@ -119,8 +124,12 @@ namespace mds {
       publication_attempt(gc_token &gc,
                           const gc_ptr<iso_context> &c,
                           const conflict_list &conflicts,
-                          timestamp_t ts)
-        : exportable{gc}, _context{c}, _conflicts{conflicts}, _at_time{ts}
+                          timestamp_t ts,
+                          const modified_vc_list &published = modified_vc_list{},
+                          const gc_ptr<iso_context> &before = nullptr,
+                          const gc_ptr<iso_context> &after = nullptr)
+        : exportable{gc}, _context{c}, _conflicts{conflicts}, _at_time{ts},
+          _published{published}, _before{before}, _after{after}
       {}
       static const auto &descriptor() {
         static gc_descriptor d =
@@ -130,6 +139,9 @@ namespace mds {
 	  .WITH_FIELD(&publication_attempt::_context)
 	  .WITH_FIELD(&publication_attempt::_conflicts)
 	  .WITH_FIELD(&publication_attempt::_at_time)
+	  .WITH_FIELD(&publication_attempt::_published)
+	  .WITH_FIELD(&publication_attempt::_before)
+	  .WITH_FIELD(&publication_attempt::_after)
 	  .WITH_FIELD(&publication_attempt::_redo_graph)
           ;
         return d;
@@ -150,6 +162,26 @@ namespace mds {
         return _at_time;
       }
 
+      /*
+       * The MSVs a successful publish wrote, each once.  Only kept
+       * while msv_sites are wanted (i.e., while a change feed is open),
+       * so otherwise empty.
+       */
+      std::vector<gc_ptr<msv>> published_msvs() const;
+
+      /*
+       * Read-only snapshots of the parent as it was just before and
+       * just after this publish, whatever else was published into it
+       * around the same time.  Like published_msvs(), only made while
+       * msv_sites are wanted, so otherwise null.
+       */
+      gc_ptr<iso_context> before() const {
+        return _before;
+      }
+      gc_ptr<iso_context> after() const {
+        return _after;
+      }
+
       std::size_t n_to_redo() const;
 
       std::vector<gc_ptr<task>> redo_tasks_by_start_time() const;
@@ -195,6 +227,7 @@ namespace mds {
           virtual gc_ptr<const published_state> most_recent_published(const state_t *self) const = 0;
           
           virtual conflict_list conflicts(const state_t *self) const = 0;
+          virtual modified_vc_list modified(const state_t *self) const = 0;
           virtual gc_ptr<const state_t>
           add_conflict(const state_t *self, const gc_ptr<const conflict> &) const = 0;
           virtual gc_ptr<const state_t>
@@ -227,6 +260,13 @@ namespace mds {
           return call_virtual(this, &virtuals::conflicts);
         }
 
+        /*
+         * The value chains modified since the last publish.
+         */
+        modified_vc_list modified() const {
+          return call_virtual(this, &virtuals::modified);
+        }
+
         gc_ptr<const state_t>
         add_conflict(const gc_ptr<const conflict> &c) const {
           return call_virtual(this, &virtuals::add_conflict, c);
@@ -323,6 +363,9 @@ namespace mds {
           conflict_list conflicts(const state_t *self) const override {
             return self->call_non_virtual(&impl::conflicts_impl);
           }
+          modified_vc_list modified(const state_t *self) const override {
+            return self->call_non_virtual(&impl::modified_impl);
+          }
           gc_ptr<const state_t>
           add_conflict(const state_t *self,
                        const gc_ptr<const conflict> &c) const override
@@ -369,6 +412,9 @@ namespace mds {
         conflict_list conflicts_impl() const {
           return conflict_list{};
         }
+        modified_vc_list modified_impl() const {
+          return modified_vc_list{};
+        }
         gc_ptr<const state_t>
         add_conflict_impl(const gc_ptr<const conflict> &c) const; 
         gc_ptr<const state_t>
@@ -453,6 +499,11 @@ namespace mds {
       gc_atomic_stack<gc_ptr<in_process_inbound_publish>> _in_process;
       std::atomic<bool> _has_publishable_children;
       gc_atomic_stack<gc_ptr<task>> _unconditional_redo_tasks;
+      /*
+       * naming_write bits for the bindings written in this context (or
+       * published into it by its children).  See note_naming_write().
+       */
+      std::atomic<std::uint8_t> _naming_writes{0};
         
 
       class private_ctor {};
@@ -487,6 +538,7 @@ namespace mds {
           .WITH_FIELD(&iso_context::_in_process)
           .WITH_FIELD(&iso_context::_has_publishable_children)
           .WITH_FIELD(&iso_context::_unconditional_redo_tasks)
+          .WITH_FIELD(&iso_context::_naming_writes)
           ;
         return d;
       }
@@ -509,6 +561,21 @@ namespace mds {
             }
           }
 
+      iso_context(gc_token &gc,
+                  private_ctor, const gc_ptr<iso_context> &p,
+		  view_type vt, mod_type mt, timestamp_t ts)
+        : exportable(gc),
+          _parent{p},
+          _creation_task{compute_creation_task(p)},
+          _state{make_gc<published_state>(ts)},
+          _view_type{vt}, _mod_type{mt},
+          _shadows{nullptr}, _has_publishable_children{false}
+          {
+            if (is_publishable()) {
+              p->_has_publishable_children = true;
+            }
+          }
+
 
       iso_context(gc_token &gc, private_ctor, global_context_t)
         : exportable{gc},
@@ -531,6 +598,29 @@ namespace mds {
         return _parent;
       }
 
+      enum naming_write : std::uint8_t {
+        bound_name = 1,
+        rebound_namespace = 2
+      };
+
+      /*
+       * Called by name_space::bind().  The write is isolated, so nobody
+       * else can see it yet.  When this context successfully publishes,
+       * the bits are passed on to the parent and the heap-wide
+       * binding_epoch (and namespace_epoch, if a namespace was replaced)
+       * are bumped.  The bits are never cleared, so a context that once
+       * bound a name bumps the epochs on every later publish.  That only
+       * costs a spurious miss in anybody's lookup cache.
+       */
+      void note_naming_write(bool rebinds_namespace) {
+        std::uint8_t bits = rebinds_namespace
+          ? (bound_name | rebound_namespace)
+          : bound_name;
+        if ((_naming_writes.load(std::memory_order_relaxed) & bits) != bits) {
+          _naming_writes.fetch_or(bits);
+        }
+      }
+
       gc_ptr<task> creation_task() const {
         return _creation_task;
       }
@@ -665,6 +755,20 @@ namespace mds {
         return make_gc<iso_context>(private_ctor{}, this_as_gc_ptr(nc_this), vt, mt);
       }
 
+      /*
+       * A snapshot child that sees us as of ts rather than now.  Unlike
+       * new_child(), it doesn't take a timestamp of its own, so nothing
+       * keeps our values at ts around for it.  It's up to the caller to
+       * make sure that something does.
+       */
+      gc_ptr<iso_context> as_of(timestamp_t ts, view_type vt, mod_type mt) {
+        if (mt == mod_type::publishable && is_read_only()) {
+          throw read_only_context_ex{};
+        }
+        iso_context *nc_this = const_cast<iso_context*>(this);
+        return make_gc<iso_context>(private_ctor{}, this_as_gc_ptr(nc_this), vt, mt, ts);
+      }
+
       gc_ptr<publication_attempt> publish();
 
       void block_inbound_publication(const gc_ptr<blocking_mod> &bm);
@@ -778,14 +882,42 @@ namespace ruts {
 
 namespace mds {
   namespace core {
+    /*
+     * Each thread's cache of the shadows of views in contexts.  The
+     * most recent lookup is remembered in _recent, which handles the
+     * common case of repeated lookups of the same view in the same
+     * context.  Otherwise we look in the context's map.
+     *
+     * Both levels are bounded.  When a map is full, entries whose
+     * context or shadow has been collected are dropped, and if that
+     * isn't enough, we evict by second chance: an entry that hasn't
+     * been used since the last sweep goes, one that has gets its flag
+     * cleared.  Threads that run many short-lived contexts would
+     * otherwise accumulate an entry for each of them.
+     */
     class shadow_cache {
-      /*
-       * The keys of these maps should be weak as well.
-       */
+      struct shadow_entry {
+        external_weak_gc_ptr<view> shadow;
+        bool referenced = true;
+        bool is_dead() const {
+          return shadow.lock() == nullptr;
+        }
+      };
       using shadow_map = std::unordered_map<ruts::weak_key<external_weak_gc_ptr<view>>,
-                                            external_weak_gc_ptr<view>>;
+                                            shadow_entry>;
+      struct context_entry {
+        external_weak_gc_ptr<iso_context> context;
+        shadow_map shadows;
+        bool referenced = true;
+        bool is_dead() const {
+          return context.lock() == nullptr;
+        }
+      };
       using context_map = std::unordered_map<ruts::weak_key<external_weak_gc_ptr<iso_context>>,
-                                             shadow_map>;
+                                             context_entry>;
+
+      static constexpr std::size_t max_contexts = 64;
+      static constexpr std::size_t max_shadows = 256;
 
       struct recent : gc_allocated {
         weak_gc_ptr<iso_context> _last_context = nullptr;
@@ -807,6 +939,56 @@ namespace mds {
       const external_gc_ptr<recent> _recent = make_gc<recent>();
       shadow_map *_last_shadow_map = nullptr;
       context_map _context_map;
+
+      /*
+       * Shrinks the map to three quarters of its limit, so that we
+       * don't sweep on every insertion once it's full.
+       */
+      template <typename Map>
+      static void evict(Map &m, std::size_t limit) {
+        std::size_t target = limit - limit/4;
+        std::uint64_t n = 0;
+        for (auto p = m.begin(); p != m.end(); ) {
+          if (p->second.is_dead()) {
+            p = m.erase(p);
+            n++;
+          } else {
+            ++p;
+          }
+        }
+        for (int pass = 0; pass < 2 && m.size() > target; pass++) {
+          for (auto p = m.begin(); p != m.end() && m.size() > target; ) {
+            if (p->second.referenced) {
+              p->second.referenced = false;
+              ++p;
+            } else {
+              p = m.erase(p);
+              n++;
+            }
+          }
+        }
+        stats::count(stats::shadow_event::eviction, n);
+      }
+
+      shadow_map &shadows_for(const gc_ptr<iso_context> &c) {
+        auto p = _context_map.find(c);
+        if (p != _context_map.end()) {
+          p->second.referenced = true;
+          return p->second.shadows;
+        }
+        if (_context_map.size() >= max_contexts) {
+          evict(_context_map, max_contexts);
+        }
+        context_entry &e = _context_map[c];
+        e.context = c;
+        return e.shadows;
+      }
+
+      void note_context(const gc_ptr<iso_context> &c) {
+        _last_shadow_map = &shadows_for(c);
+        _recent->_last_context = c;
+      }
+
     public:
       gc_ptr<view> lookup(const gc_ptr<iso_context> &c,
                           const gc_ptr<view> &v);
@@ -825,8 +1007,7 @@ namespace mds {
       gc_ptr<iso_context> last_context = _recent->_last_context.lock();
       if (c != last_context) {
         // ext_c = c;
-        _last_shadow_map = &_context_map[c];
-        _recent->_last_context = c;
+        note_context(c);
         _recent->_last_view = nullptr;
       }
       gc_ptr<view> last_view = _recent->_last_view.lock();
@@ -834,30 +1015,48 @@ namespace mds {
       if (v == last_view) {
         last_shadow = _recent->_last_shadow.lock();
       }
-      if (last_shadow == nullptr) {
-        external_gc_ptr<view> esv = (*_last_shadow_map)[v].lock();
-        if (esv == nullptr) {
-          /*
-           * We have to be careful here, becase our call to
-           * find_shadow() may wind up calling shadow(), which will
-           * call us and may play with our cache values.  So we can't
-           * assume past this call that any of them are still valid
-           * and that none of the maps have changed.  If _last_context
-           * is still right, then _last_shadow_map will also be right,
-           * but it might have changed.  So we have to put the new
-           * value in explicitly.
-           */
-          esv = c->find_shadow(v);
-          if (c != _recent->_last_context.lock()) {
-            _last_shadow_map = &_context_map[c];
-            _recent->_last_context = c;
-          }
-          (*_last_shadow_map)[v] = esv;
+      if (last_shadow != nullptr) {
+        stats::count(stats::shadow_event::recent_hit);
+        return last_shadow;
+      }
+      external_gc_ptr<view> esv;
+      auto p = _last_shadow_map->find(v);
+      if (p != _last_shadow_map->end()) {
+        esv = p->second.shadow.lock();
+        p->second.referenced = true;
+      }
+      if (esv != nullptr) {
+        stats::count(stats::shadow_event::map_hit);
+      } else {
+        stats::count(stats::shadow_event::miss);
+        /*
+         * We have to be careful here, becase our call to
+         * find_shadow() may wind up calling shadow(), which will
+         * call us and may play with our cache values.  So we can't
+         * assume past this call that any of them are still valid
+         * and that none of the maps have changed.  If _last_context
+         * is still right, then _last_shadow_map will also be right,
+         * but it might have changed.  So we have to put the new
+         * value in explicitly.  (Eviction only happens when a
+         * context or view is added, so an entry we find again here is
+         * still good.)
+         */
+        esv = c->find_shadow(v);
+        if (c != _recent->_last_context.lock()) {
+          note_context(c);
+        }
+        if (_last_shadow_map->size() >= max_shadows
+            && _last_shadow_map->find(v) == _last_shadow_map->end())
+        {
+          evict(*_last_shadow_map, max_shadows);
         }
-        last_shadow = esv;
-        _recent->_last_shadow = esv;
-        _recent->_last_view = v;
+        shadow_entry &e = (*_last_shadow_map)[v];
+        e.shadow = esv;
+        e.referenced = true;
       }
+      last_shadow = esv;
+      _recent->_last_shadow = esv;
+      _recent->_last_view = v;
       return last_shadow;
     }
 
@@ -46,6 +46,7 @@
 #include "mpgc/gc.h"
 #include "mpgc/gc_cuckoo_map.h"
 #include "mpgc/gc_stack.h"
+#include "core/core_stats.h"
 
 namespace mds {
   namespace core {
@@ -66,6 +67,7 @@ namespace mds {
       BINDING,
       ARRAY,
       NAMESPACE,
+      CONTAINER,
       n_kinds
     };
     constexpr std::size_t n_kinds = static_cast<std::size_t>(kind::n_kinds);
@@ -107,6 +109,7 @@ namespace mds {
 
     class snapshot;
     template <kind K> class record_field;
+    template <kind K> class field_index;
     class managed_type_base;
     template <kind K> class managed_type;
     class record_type;
@@ -130,7 +133,9 @@ namespace mds {
 
     class managed_record;
     class managed_container;
+    class container_type;
     class managed_map;
+    class managed_ordered_map;
     class managed_collection;
     class managed_list;
     class managed_set;
@@ -169,6 +174,7 @@ namespace mds {
 
     static constexpr std::size_t n_string_table_segments = 2;
     static constexpr std::size_t initial_string_table_capacity = 10000;
+    static constexpr std::size_t n_string_table_shards = 16;
     using string_table_t = interned_string_table<n_string_table_segments>;
     template <> struct is_exportable<interned_string> : std::true_type {};
 
@@ -180,6 +186,15 @@ namespace mds {
     class modified_value_chain;
     class modification;
     class blocking_mod;
+
+    /*
+     * What an MSV is a slot of.  Only used to describe conflicts and
+     * changes (see msv_sites in core_conflict.h).  The ordinals match
+     * com.hpl.mds.ConflictHotSpots.Site.
+     */
+    enum class msv_site_kind : std::uint8_t {
+      unknown, record_field, array_slot, binding
+    };
     
 
     class name_space;
@@ -194,6 +209,13 @@ namespace mds {
                                                                 gc_ptr<const record_type>>,
                                               5>;
 
+    class managed_queue;
+    static constexpr std::size_t initial_queue_table_capacity = 100;
+    using queue_table_t = gc_cuckoo_map<gc_ptr<interned_string>, gc_ptr<managed_queue>,
+                                        cuckoo_map_traits<gc_ptr<interned_string>,
+                                                          gc_ptr<managed_queue>>,
+                                        5>;
+
 
 
     template <typename T, typename Enable = void>
@@ -316,6 +338,8 @@ namespace std {
       return os << "BINDING";
     case kind::ARRAY:
       return os << "ARRAY";
+    case kind::CONTAINER:
+      return os << "CONTAINER";
     default:
       return os << "kind[" << static_cast<int>(k) << "]";
     }
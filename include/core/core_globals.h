@@ -253,8 +253,17 @@ namespace mds
     extern external_gc_ptr<iso_context> global_context;
     extern external_gc_ptr<string_table_t> string_table;
     extern external_gc_ptr<record_type_table_t> record_type_table;
+    extern external_gc_ptr<queue_table_t> queue_table;
     extern external_gc_ptr<name_space> global_namespace;
     extern std::size_t *next_task_number;
+    /*
+     * Heap-wide counters bumped when a context that bound names (or
+     * rebound a namespace to something else) publishes.  See
+     * iso_context::note_naming_write().  Their addresses are stable for
+     * the life of the heap, so they can be polled directly.
+     */
+    extern std::atomic<std::uint64_t> *namespace_epoch;
+    extern std::atomic<std::uint64_t> *binding_epoch;
 
     inline timestamp_t current_value_timestamp() {
       const gc_ptr<timestamp_record> cts = *_current_timestamp;
@@ -0,0 +1,294 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/*
+ * core_index.h
+ *
+ * Secondary indexes on record fields.  An index maps each value the
+ * field has to the set of records that have it, and is kept up to date
+ * by record_field<K>::modify() in the same view as the write, so a
+ * context sees its own changes in the index and publishes them along
+ * with the field values.  The buckets are managed_hash_sets, so
+ * records moving in and out of a bucket conflict per record, as with
+ * any other set.
+ *
+ * An ordered index also keeps the values it has seen in a skip list
+ * (see core_ordered_map.h) so they can be scanned by range.  Values
+ * are only ever added to the skip list: a value whose bucket has
+ * emptied is still visited by a scan, but contributes no records.
+ * Ordered indexes are available on numeric, boolean and string fields.
+ */
+
+#ifndef CORE_INDEX_H_
+#define CORE_INDEX_H_
+
+#include "core/core_fwd.h"
+#include "core/core_msv.h"
+#include "core/core_context.h"
+#include "core/core_set.h"
+#include "core/core_ordered_map.h"
+#include "mpgc/gc.h"
+#include <cmath>
+#include <cstdint>
+#include <cstring>
+#include <limits>
+#include <type_traits>
+
+namespace mds {
+  namespace core {
+
+    enum class index_kind : std::uint8_t {
+      hash, ordered
+    };
+
+    namespace index_detail {
+      /*
+       * How a field value is keyed in an ordered index's skip list.
+       * Integral values are widened to LONG.  Floating point values are
+       * mapped to a LONG whose signed order is their numeric order
+       * (with -0.0 just below 0.0 and NaN above everything).  Strings
+       * are their own keys.  Records have no order.
+       */
+      template <kind K, typename Enable = void>
+      struct ordered_key {
+        static constexpr bool supported = false;
+        static constexpr kind key_kind = kind::LONG;
+        static kind_mv<kind::LONG> of(const kind_mv<K> &) {
+          return 0;
+        }
+        static kind_mv<K> back(const kind_mv<kind::LONG> &) {
+          return kind_mv<K>{};
+        }
+      };
+
+      template <kind K>
+      struct ordered_key<K, std::enable_if_t<std::is_integral<kind_mv<K>>::value>> {
+        static constexpr bool supported = true;
+        static constexpr kind key_kind = kind::LONG;
+        static kind_mv<kind::LONG> of(const kind_mv<K> &v) {
+          return static_cast<kind_mv<kind::LONG>>(v);
+        }
+        static kind_mv<K> back(const kind_mv<kind::LONG> &k) {
+          return static_cast<kind_mv<K>>(k);
+        }
+      };
+
+      template <kind K>
+      struct ordered_key<K, std::enable_if_t<std::is_floating_point<kind_mv<K>>::value>> {
+        using bits_t = std::conditional_t<sizeof(kind_mv<K>) == 4, std::int32_t, std::int64_t>;
+        static constexpr bool supported = true;
+        static constexpr kind key_kind = kind::LONG;
+        static constexpr bits_t magnitude = std::numeric_limits<bits_t>::max();
+
+        static kind_mv<kind::LONG> of(const kind_mv<K> &v) {
+          kind_mv<K> f = std::isnan(v) ? std::numeric_limits<kind_mv<K>>::quiet_NaN() : v;
+          bits_t b;
+          std::memcpy(&b, &f, sizeof(b));
+          return b < 0 ? (b ^ magnitude) : b;
+        }
+        static kind_mv<K> back(const kind_mv<kind::LONG> &k) {
+          bits_t b = static_cast<bits_t>(k);
+          if (b < 0) {
+            b ^= magnitude;
+          }
+          kind_mv<K> f;
+          std::memcpy(&f, &b, sizeof(f));
+          return f;
+        }
+      };
+
+      template <>
+      struct ordered_key<kind::STRING> {
+        static constexpr bool supported = true;
+        static constexpr kind key_kind = kind::STRING;
+        static kind_mv<kind::STRING> of(const kind_mv<kind::STRING> &v) {
+          return v;
+        }
+        static kind_mv<kind::STRING> back(const kind_mv<kind::STRING> &k) {
+          return k;
+        }
+      };
+
+      /*
+       * Null strings and records aren't indexed.
+       */
+      template <typename T>
+      inline bool indexable(const T &) {
+        return true;
+      }
+
+      template <typename T>
+      inline bool indexable(const gc_ptr<T> &p) {
+        return p != nullptr;
+      }
+    }
+
+    template <kind K>
+    class field_index : public gc_allocated
+    {
+    public:
+      using val_type = kind_mv<K>;
+      using rec_type = kind_mv<kind::RECORD>;
+      using bucket_type = managed_hash_set<kind::RECORD>;
+      using bound = skip_list::bound;
+      using okey = index_detail::ordered_key<K>;
+      using okey_type = kind_mv<okey::key_kind>;
+
+      const index_kind which;
+    private:
+      using key_type = typename set_key<K>::type;
+      using map_t = small_gc_cuckoo_map<key_type, gc_ptr<bucket_type>>;
+      using keys_t = managed_skip_list_map<okey::key_kind, kind::BOOL>;
+
+      const gc_ptr<map_t> _buckets;
+      /*
+       * Null unless the index is ordered.
+       */
+      const gc_ptr<keys_t> _keys;
+
+      gc_ptr<bucket_type> bucket(const val_type &v) const {
+        return _buckets->get(set_key<K>::of(v));
+      }
+
+      gc_ptr<bucket_type> bucket_for_write(const val_type &v) {
+        key_type k = set_key<K>::of(v);
+        gc_ptr<bucket_type> b = _buckets->get(k);
+        if (b != nullptr) {
+          return b;
+        }
+        b = make_gc<bucket_type>(std::size_t{0});
+        auto rr = _buckets->put_new(k, b);
+        if (rr.had_value) {
+          return _buckets->get(k);
+        }
+        return b;
+      }
+
+    public:
+      field_index(gc_token &gc, index_kind w)
+        : gc_allocated{gc},
+          which{w},
+          _buckets{make_gc<map_t>(std::size_t{16})},
+          _keys{w == index_kind::ordered ? make_gc<keys_t>() : nullptr}
+      {}
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(field_index)
+          .template WITH_FIELD(&field_index::which)
+          .template WITH_FIELD(&field_index::_buckets)
+          .template WITH_FIELD(&field_index::_keys);
+        return d;
+      }
+
+      /*
+       * Can this index answer the queries an index of kind w can?
+       */
+      bool serves(index_kind w) const {
+        return w == which || which == index_kind::ordered;
+      }
+
+      /*
+       * Called by record_field<K>::modify() after the field's value in
+       * sv went from old (if had is true) to now.  sv must already be
+       * shadowed.
+       */
+      void move(const rec_type &r, bool had, const val_type &old, const val_type &now,
+                const gc_ptr<view> &sv)
+      {
+        if (had && set_key<K>::of(old) == set_key<K>::of(now)) {
+          return;
+        }
+        if (had && index_detail::indexable(old)) {
+          gc_ptr<bucket_type> b = bucket(old);
+          if (b != nullptr) {
+            b->remove(r, sv);
+          }
+        }
+        if (index_detail::indexable(now)) {
+          bucket_for_write(now)->add(r, sv);
+          /*
+           * The bucket may have been created by a context that was
+           * later rolled back, so the key is registered every time.
+           * Once it's there, this is only a read.
+           */
+          if (_keys != nullptr) {
+            _keys->put_if_absent(okey::of(now), sv, true);
+          }
+        }
+      }
+
+      /*
+       * Calls fn(record) for up to max records whose field is v, as
+       * managed_hash_set::for_each() does.  Returns false once there
+       * are no more.
+       */
+      template <typename Fn>
+      bool for_each(const val_type &v, const gc_ptr<view> &view,
+                    const rec_type *after, std::size_t max, Fn &&fn) const
+      {
+        gc_ptr<bucket_type> b = bucket(v);
+        if (b == nullptr) {
+          return false;
+        }
+        return b->for_each(view, after, max, std::forward<Fn>(fn));
+      }
+
+      std::size_t count(const val_type &v, const gc_ptr<view> &view) const {
+        gc_ptr<bucket_type> b = bucket(v);
+        return b == nullptr ? 0 : b->size(view);
+      }
+
+      /*
+       * For ordered indexes, calls fn(value) for up to max values in
+       * the range, in ascending (or, if descending is true, descending)
+       * order.  Returns false once there are no more.  To resume, pass
+       * the last value seen as an exclusive bound.
+       */
+      template <typename Fn>
+      bool for_values(const gc_ptr<view> &view, bool descending,
+                      bound lo_b, const val_type &lo,
+                      bound hi_b, const val_type &hi,
+                      std::size_t max, Fn &&fn) const
+      {
+        if (_keys == nullptr) {
+          throw incompatible_type_ex{};
+        }
+        okey_type lk = lo_b == bound::none ? okey_type{} : okey::of(lo);
+        okey_type hk = hi_b == bound::none ? okey_type{} : okey::of(hi);
+        auto deliver = [&](const okey_type &k, bool) {
+          fn(okey::back(k));
+        };
+        return descending
+          ? _keys->for_range_descending(view, lo_b, lk, hi_b, hk, max, deliver)
+          : _keys->for_range(view, lo_b, lk, hi_b, hk, max, deliver);
+      }
+    };
+
+  }
+}
+
+#endif /* CORE_INDEX_H_ */
@@ -71,6 +71,9 @@ namespace mds {
     template <> struct kind_traits<kind::NAMESPACE> : kind_traits_base<kind::NAMESPACE, name_space> {
       //      using type_t = array_type_base;
     };
+    template <> struct kind_traits<kind::CONTAINER> : kind_traits_base<kind::CONTAINER, managed_container> {
+      using type_t = container_type;
+    };
 
 
     /*
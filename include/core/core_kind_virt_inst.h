@@ -37,6 +37,7 @@
 #include "core/core_kind.h"
 #include "core/core_record.h"
 #include "core/core_array.h"
+#include "core/core_container.h"
 #include "core/core_naming.h"
 
 namespace mds {
@@ -59,6 +60,7 @@ namespace mds {
       t.template bind<T<kind::BINDING>>();
       t.template bind<T<kind::ARRAY>>();
       t.template bind<T<kind::NAMESPACE>>();
+      t.template bind<T<kind::CONTAINER>>();
     }
 
   }
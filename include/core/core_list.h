@@ -0,0 +1,614 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/*
+ * core_list.h
+ *
+ * Growable lists of managed values.  The slots live in segments that
+ * double in size (segment s holds 64 << s of them), so a slot never
+ * moves once created, indexing is a couple of shifts, and growing the
+ * list never copies anything.  Each slot is its own MSV, so writes to
+ * different indices never conflict.
+ *
+ * There are three layouts, fixed when the list is created:
+ *
+ *  - array: the elements are at [0, tail).  Only tail is a conflict
+ *    point for appends, and random reads don't depend on the front of
+ *    the list at all.
+ *
+ *  - deque: the elements are at [head, tail), where head may be
+ *    negative (negative indices live in a second set of segments).
+ *    Adding and removing at either end is O(1), and inserting or
+ *    removing in the middle shifts whichever side is shorter.
+ *
+ *  - bag: every append gets a fresh slot, reserved without going
+ *    through any MSV, and a per-slot MSV says whether it holds an
+ *    element.  Since an append reads nothing shared, appends from
+ *    different contexts never conflict; they are simply all there
+ *    after publication, in slot order.  The price is that positional
+ *    access and size() have to walk the slots.
+ */
+
+#ifndef CORE_LIST_H_
+#define CORE_LIST_H_
+
+#include "core/core_fwd.h"
+#include "core/core_container.h"
+#include "core/core_msv.h"
+#include "core/core_typed_msv.h"
+#include "core/core_context.h"
+#include "ruts/cas_loop.h"
+#include "mpgc/gc.h"
+#include <atomic>
+#include <cstdint>
+#include <utility>
+
+namespace mds {
+  namespace core {
+
+    template <kind EK> class managed_chunked_list;
+
+    enum class list_layout : std::uint8_t {
+      array, deque, bag
+    };
+
+    namespace list_detail {
+      constexpr std::size_t base_bits = 6;
+      constexpr std::size_t base_size = std::size_t{1} << base_bits;
+      constexpr std::size_t n_segments = 48;
+
+      /*
+       * Segment s starts at slot (2^s - 1) * base_size.
+       */
+      inline std::pair<std::size_t, std::size_t> locate(std::uint64_t i) {
+        std::uint64_t q = (i >> base_bits) + 1;
+        std::size_t s = 63 - __builtin_clzll(q);
+        std::uint64_t start = ((std::uint64_t{1} << s) - 1) << base_bits;
+        return std::make_pair(s, static_cast<std::size_t>(i - start));
+      }
+
+      template <kind K>
+      class spine : public gc_allocated {
+        using slot = std::atomic<gc_ptr<typed_msv<K>>>;
+        using segment = gc_array<slot>;
+        using segments_t = gc_array<std::atomic<gc_ptr<segment>>>;
+        const gc_ptr<segments_t> _segments;
+      public:
+        explicit spine(gc_token &gc)
+          : gc_allocated{gc},
+            _segments{make_gc_array<std::atomic<gc_ptr<segment>>>(n_segments)}
+        {}
+
+        static const auto &descriptor() {
+          static gc_descriptor d =
+            GC_DESC(spine)
+            .template WITH_FIELD(&spine::_segments);
+          return d;
+        }
+
+        /*
+         * The segment and the MSV are only created if create is true;
+         * otherwise a slot that has never been touched gives nullptr.
+         */
+        gc_ptr<typed_msv<K>> lookup(std::uint64_t i, bool create) {
+          auto loc = locate(i);
+          std::atomic<gc_ptr<segment>> &sa = _segments->at(loc.first);
+          gc_ptr<segment> seg = sa.load();
+          if (seg == nullptr) {
+            if (!create) {
+              return nullptr;
+            }
+            gc_ptr<segment> ns = make_gc_array<slot>(base_size << loc.first);
+            auto rr = ruts::try_change_value(sa, nullptr, ns);
+            seg = rr.resulting_value();
+          }
+          slot &a = seg->at(loc.second);
+          gc_ptr<typed_msv<K>> m = a.load();
+          if (m == nullptr && create) {
+            auto rr = ruts::try_change_value(a, nullptr, make_gc<typed_msv<K>>());
+            m = rr.resulting_value();
+          }
+          return m;
+        }
+      };
+    }
+
+    template <kind EK>
+    struct container_traits<managed_chunked_list<EK>> {
+      static constexpr container_shape shape = container_shape::list;
+      static constexpr kind key_kind = EK;
+      static constexpr kind elt_kind = EK;
+    };
+
+    /*
+     * The layout isn't part of the container type: lists of the same
+     * kind are interchangeable whatever their layout.
+     */
+    class managed_list : public managed_container
+    {
+    public:
+      const list_layout layout;
+
+      managed_list(gc_token &gc, kind ek, list_layout l)
+        : managed_container{gc, container_shape::list, ek, ek}, layout{l}
+      {
+        stats::count(stats::alloc::collection);
+      }
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(managed_list)
+          .WITH_SUPER(managed_container)
+          .WITH_FIELD(&managed_list::layout);
+        return d;
+      }
+
+      template <kind K>
+      gc_ptr<managed_chunked_list<K>> downcast() {
+        return managed_container::downcast<managed_chunked_list<K>>();
+      }
+    };
+
+    template <kind EK>
+    class managed_chunked_list : public managed_list
+    {
+    public:
+      using elt_type = kind_mv<EK>;
+      using index_type = kind_mv<kind::LONG>;
+      using maybe_elt = std::pair<bool, elt_type>;
+    private:
+      using index_msv = typed_msv<kind::LONG>;
+
+      const gc_ptr<list_detail::spine<EK>> _back;
+      /* Slots -1, -2, ...; deque layout only */
+      const gc_ptr<list_detail::spine<EK>> _front;
+      /* Whether each slot holds an element; bag layout only */
+      const gc_ptr<list_detail::spine<kind::BOOL>> _present;
+      /* Always 0 except in the deque layout */
+      const gc_ptr<index_msv> _head;
+      /* Unused in the bag layout */
+      const gc_ptr<index_msv> _tail;
+      /* Bag layout: the number of slots handed out */
+      std::atomic<std::uint64_t> _reserved{0};
+
+      bool is_bag() const {
+        return layout == list_layout::bag;
+      }
+
+      bool is_deque() const {
+        return layout == list_layout::deque;
+      }
+
+      gc_ptr<typed_msv<EK>> slot(index_type i, bool create) {
+        if (i >= 0) {
+          return _back->lookup(static_cast<std::uint64_t>(i), create);
+        }
+        return _front->lookup(static_cast<std::uint64_t>(-1-i), create);
+      }
+
+      elt_type read_slot(index_type i, const gc_ptr<view> &sv) {
+        gc_ptr<typed_msv<EK>> m = slot(i, sv->need_msv_on_initial_read());
+        return m == nullptr ? elt_type{} : m->frozen_read(sv);
+      }
+
+      void write_slot(index_type i, const gc_ptr<view> &sv, const elt_type &val) {
+        slot(i, true)->write(sv, val);
+      }
+
+      bool present_in(std::uint64_t i, const gc_ptr<view> &sv) {
+        gc_ptr<typed_msv<kind::BOOL>> p = _present->lookup(i, sv->need_msv_on_initial_read());
+        return p != nullptr && p->frozen_read(sv);
+      }
+
+      index_type head_in(const gc_ptr<view> &sv) {
+        return is_deque() ? _head->frozen_read(sv) : 0;
+      }
+
+      index_type tail_in(const gc_ptr<view> &sv) {
+        return _tail->frozen_read(sv);
+      }
+
+      /*
+       * Bag layout: the slot holding the element at position pos, or
+       * -1 if there are pos or fewer elements.
+       */
+      index_type bag_slot_of(index_type pos, const gc_ptr<view> &sv) {
+        if (pos < 0) {
+          return -1;
+        }
+        std::uint64_t limit = _reserved;
+        for (std::uint64_t i = 0; i < limit; i++) {
+          if (present_in(i, sv) && pos-- == 0) {
+            return static_cast<index_type>(i);
+          }
+        }
+        return -1;
+      }
+
+      /*
+       * Bag layout: the first or last occupied slot, or -1.
+       */
+      index_type bag_end_slot(bool first, const gc_ptr<view> &sv) {
+        std::uint64_t limit = _reserved;
+        if (first) {
+          for (std::uint64_t i = 0; i < limit; i++) {
+            if (present_in(i, sv)) {
+              return static_cast<index_type>(i);
+            }
+          }
+        } else {
+          for (std::uint64_t i = limit; i > 0; i--) {
+            if (present_in(i-1, sv)) {
+              return static_cast<index_type>(i-1);
+            }
+          }
+        }
+        return -1;
+      }
+
+      elt_type bag_take(index_type s, const gc_ptr<view> &sv) {
+        elt_type old = read_slot(s, sv);
+        _present->lookup(static_cast<std::uint64_t>(s), true)->write(sv, false);
+        write_slot(s, sv, elt_type{});
+        return old;
+      }
+
+      void bag_add(const elt_type &val, const gc_ptr<view> &sv) {
+        std::uint64_t s = _reserved.fetch_add(1);
+        write_slot(static_cast<index_type>(s), sv, val);
+        _present->lookup(s, true)->write(sv, true);
+      }
+
+      /*
+       * Moves the slots in [from, to) by delta (which is 1 or -1),
+       * starting at the end that's being moved into.
+       */
+      void shift(index_type from, index_type to, index_type delta, const gc_ptr<view> &sv) {
+        if (delta > 0) {
+          for (index_type i = to; i > from; i--) {
+            write_slot(i-1+delta, sv, read_slot(i-1, sv));
+          }
+        } else {
+          for (index_type i = from; i < to; i++) {
+            write_slot(i+delta, sv, read_slot(i, sv));
+          }
+        }
+      }
+
+      void add_last_in(const elt_type &val, const gc_ptr<view> &sv) {
+        if (is_bag()) {
+          bag_add(val, sv);
+          return;
+        }
+        index_type t = tail_in(sv);
+        write_slot(t, sv, val);
+        _tail->write(sv, t+1);
+      }
+
+      maybe_elt remove_end_in(bool first, const gc_ptr<view> &sv) {
+        if (is_bag()) {
+          index_type s = bag_end_slot(first, sv);
+          if (s < 0) {
+            return maybe_elt{false, elt_type{}};
+          }
+          return maybe_elt{true, bag_take(s, sv)};
+        }
+        index_type h = head_in(sv);
+        index_type t = tail_in(sv);
+        if (h == t) {
+          return maybe_elt{false, elt_type{}};
+        }
+        if (!first) {
+          elt_type old = read_slot(t-1, sv);
+          write_slot(t-1, sv, elt_type{});
+          _tail->write(sv, t-1);
+          return maybe_elt{true, old};
+        }
+        elt_type old = read_slot(h, sv);
+        if (is_deque()) {
+          write_slot(h, sv, elt_type{});
+          _head->write(sv, h+1);
+        } else {
+          shift(h+1, t, -1, sv);
+          write_slot(t-1, sv, elt_type{});
+          _tail->write(sv, t-1);
+        }
+        return maybe_elt{true, old};
+      }
+
+    public:
+      managed_chunked_list(gc_token &gc, list_layout l)
+        : managed_list{gc, EK, l},
+          _back{make_gc<list_detail::spine<EK>>()},
+          _front{l == list_layout::deque ? make_gc<list_detail::spine<EK>>() : nullptr},
+          _present{l == list_layout::bag ? make_gc<list_detail::spine<kind::BOOL>>() : nullptr},
+          _head{make_gc<index_msv>()},
+          _tail{make_gc<index_msv>()}
+      {}
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(managed_chunked_list)
+          .template WITH_SUPER(managed_list)
+          .template WITH_FIELD(&managed_chunked_list::_back)
+          .template WITH_FIELD(&managed_chunked_list::_front)
+          .template WITH_FIELD(&managed_chunked_list::_present)
+          .template WITH_FIELD(&managed_chunked_list::_head)
+          .template WITH_FIELD(&managed_chunked_list::_tail)
+          .template WITH_FIELD(&managed_chunked_list::_reserved);
+        return d;
+      }
+
+      static managed_value<managed_chunked_list> create(list_layout l) {
+        gc_ptr<managed_chunked_list> lst = make_gc<managed_chunked_list>(l);
+        gc_ptr<view> v = iso_context::shadowed(top_level_view);
+        return managed_value<managed_chunked_list>{lst, v};
+      }
+
+      /*
+       * O(1) except in the bag layout.
+       */
+      std::size_t size(const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        if (!is_bag()) {
+          return static_cast<std::size_t>(tail_in(sv) - head_in(sv));
+        }
+        std::size_t n = 0;
+        std::uint64_t limit = _reserved;
+        for (std::uint64_t i = 0; i < limit; i++) {
+          if (present_in(i, sv)) {
+            n++;
+          }
+        }
+        return n;
+      }
+
+      maybe_elt get(index_type pos, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        if (is_bag()) {
+          index_type s = bag_slot_of(pos, sv);
+          return s < 0 ? maybe_elt{false, elt_type{}} : maybe_elt{true, read_slot(s, sv)};
+        }
+        index_type h = head_in(sv);
+        if (pos < 0 || pos >= tail_in(sv) - h) {
+          return maybe_elt{false, elt_type{}};
+        }
+        return maybe_elt{true, read_slot(h+pos, sv)};
+      }
+
+      /*
+       * Returns the old value, or false if pos is out of range.
+       */
+      maybe_elt set(index_type pos, const elt_type &val, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        index_type s;
+        if (is_bag()) {
+          s = bag_slot_of(pos, sv);
+          if (s < 0) {
+            return maybe_elt{false, elt_type{}};
+          }
+        } else {
+          index_type h = head_in(sv);
+          if (pos < 0 || pos >= tail_in(sv) - h) {
+            return maybe_elt{false, elt_type{}};
+          }
+          s = h+pos;
+        }
+        elt_type old = read_slot(s, sv);
+        write_slot(s, sv, val);
+        return maybe_elt{true, old};
+      }
+
+      void add_last(const elt_type &val, const gc_ptr<view> &v) {
+        add_last_in(val, iso_context::shadowed(v));
+      }
+
+      /*
+       * A bag has no front, so this just adds the element.
+       */
+      void add_first(const elt_type &val, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        if (is_bag()) {
+          bag_add(val, sv);
+        } else if (is_deque()) {
+          index_type h = _head->frozen_read(sv);
+          write_slot(h-1, sv, val);
+          _head->write(sv, h-1);
+        } else {
+          index_type t = tail_in(sv);
+          shift(0, t, 1, sv);
+          write_slot(0, sv, val);
+          _tail->write(sv, t+1);
+        }
+      }
+
+      /*
+       * Returns false if pos is out of range.  As with add_first(), a
+       * bag ignores the position.
+       */
+      bool insert(index_type pos, const elt_type &val, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        if (is_bag()) {
+          if (pos < 0) {
+            return false;
+          }
+          bag_add(val, sv);
+          return true;
+        }
+        index_type h = head_in(sv);
+        index_type t = tail_in(sv);
+        index_type n = t-h;
+        if (pos < 0 || pos > n) {
+          return false;
+        }
+        if (is_deque() && pos < n/2) {
+          shift(h, h+pos, -1, sv);
+          write_slot(h+pos-1, sv, val);
+          _head->write(sv, h-1);
+        } else {
+          shift(h+pos, t, 1, sv);
+          write_slot(h+pos, sv, val);
+          _tail->write(sv, t+1);
+        }
+        return true;
+      }
+
+      maybe_elt remove_at(index_type pos, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        if (is_bag()) {
+          index_type s = bag_slot_of(pos, sv);
+          return s < 0 ? maybe_elt{false, elt_type{}} : maybe_elt{true, bag_take(s, sv)};
+        }
+        index_type h = head_in(sv);
+        index_type t = tail_in(sv);
+        index_type n = t-h;
+        if (pos < 0 || pos >= n) {
+          return maybe_elt{false, elt_type{}};
+        }
+        elt_type old = read_slot(h+pos, sv);
+        if (is_deque() && pos < n/2) {
+          shift(h, h+pos, 1, sv);
+          write_slot(h, sv, elt_type{});
+          _head->write(sv, h+1);
+        } else {
+          shift(h+pos+1, t, -1, sv);
+          write_slot(t-1, sv, elt_type{});
+          _tail->write(sv, t-1);
+        }
+        return maybe_elt{true, old};
+      }
+
+      maybe_elt remove_first(const gc_ptr<view> &v) {
+        return remove_end_in(true, iso_context::shadowed(v));
+      }
+
+      maybe_elt remove_last(const gc_ptr<view> &v) {
+        return remove_end_in(false, iso_context::shadowed(v));
+      }
+
+      maybe_elt peek_end(bool first, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        if (is_bag()) {
+          index_type s = bag_end_slot(first, sv);
+          return s < 0 ? maybe_elt{false, elt_type{}} : maybe_elt{true, read_slot(s, sv)};
+        }
+        index_type h = head_in(sv);
+        index_type t = tail_in(sv);
+        if (h == t) {
+          return maybe_elt{false, elt_type{}};
+        }
+        return maybe_elt{true, read_slot(first ? h : t-1, sv)};
+      }
+
+      /*
+       * Appends all of the elements in one go, resolving the view and
+       * (except for bags) reading tail only once.
+       */
+      template <typename Iter, typename Conv>
+      void add_all(Iter from, Iter to, Conv &&conv, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        if (is_bag()) {
+          for (; from != to; ++from) {
+            bag_add(conv(*from), sv);
+          }
+          return;
+        }
+        index_type t = tail_in(sv);
+        index_type t0 = t;
+        for (; from != to; ++from) {
+          write_slot(t++, sv, conv(*from));
+        }
+        if (t != t0) {
+          _tail->write(sv, t);
+        }
+      }
+
+      void clear(const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        if (is_bag()) {
+          std::uint64_t limit = _reserved;
+          for (std::uint64_t i = 0; i < limit; i++) {
+            if (present_in(i, sv)) {
+              bag_take(static_cast<index_type>(i), sv);
+            }
+          }
+          return;
+        }
+        index_type h = head_in(sv);
+        index_type t = tail_in(sv);
+        for (index_type i = h; i < t; i++) {
+          write_slot(i, sv, elt_type{});
+        }
+        if (is_deque() && h != 0) {
+          _head->write(sv, 0);
+        }
+        if (t != 0) {
+          _tail->write(sv, 0);
+        }
+      }
+
+      /*
+       * Calls fn(elt) for up to max elements in order, starting at the
+       * opaque position *cursor (0 to start at the beginning), and
+       * leaves *cursor where the next call should pick up.  For bags
+       * the position is a slot number, so a walk isn't thrown off by
+       * removals behind it.  Returns false once there are no more
+       * elements to visit.
+       */
+      template <typename Fn>
+      bool for_each(const gc_ptr<view> &v, index_type *cursor,
+                    std::size_t max, Fn &&fn)
+      {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        std::size_t n = 0;
+        if (is_bag()) {
+          std::uint64_t limit = _reserved;
+          std::uint64_t i = static_cast<std::uint64_t>(*cursor);
+          for (; i < limit && n < max; i++) {
+            if (present_in(i, sv)) {
+              fn(read_slot(static_cast<index_type>(i), sv));
+              n++;
+            }
+          }
+          *cursor = static_cast<index_type>(i);
+          return i < limit;
+        }
+        index_type h = head_in(sv);
+        index_type t = tail_in(sv);
+        index_type i = h + *cursor;
+        for (; i < t && n < max; i++) {
+          fn(read_slot(i, sv));
+          n++;
+        }
+        *cursor = i - h;
+        return i < t;
+      }
+    };
+
+  }
+}
+
+#endif /* CORE_LIST_H_ */
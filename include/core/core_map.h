@@ -0,0 +1,491 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/*
+ * core_map.h
+ *
+ * Maps from strings to managed values.  Each key gets its own pair of
+ * MSVs (one saying whether the key is present, one holding the value),
+ * so conflicts are detected key by key rather than for the map as a
+ * whole: two contexts that touch disjoint keys never conflict.  The only
+ * shared structures are the key table, which is added to with CAS and
+ * never removed from, and the chain that walks go through.  A key joins
+ * the chain the first time it's written, so lookups of missing keys
+ * don't slow down walks, and walks in the top-level view sweep out keys
+ * that have been removed once nothing can still see them.
+ */
+
+#ifndef CORE_MAP_H_
+#define CORE_MAP_H_
+
+#include "core/core_fwd.h"
+#include "core/core_container.h"
+#include "core/core_msv.h"
+#include "core/core_typed_msv.h"
+#include "core/core_context.h"
+#include "core/core_strings.h"
+#include "ruts/cas_loop.h"
+#include "mpgc/gc.h"
+#include <atomic>
+
+namespace mds {
+  namespace core {
+
+    template <kind VK> class managed_string_map;
+
+    template <kind VK>
+    struct container_traits<managed_string_map<VK>> {
+      static constexpr container_shape shape = container_shape::string_map;
+      static constexpr kind key_kind = kind::STRING;
+      static constexpr kind elt_kind = VK;
+    };
+
+    class managed_map : public managed_container
+    {
+    public:
+      managed_map(gc_token &gc, kind vk)
+        : managed_container{gc, container_shape::string_map, kind::STRING, vk}
+      {
+        stats::count(stats::alloc::collection);
+      }
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(managed_map)
+          .WITH_SUPER(managed_container);
+        return d;
+      }
+
+      template <kind K>
+      gc_ptr<managed_string_map<K>> downcast() {
+        return managed_container::downcast<managed_string_map<K>>();
+      }
+    };
+
+    template <kind VK>
+    class managed_string_map : public managed_map
+    {
+    public:
+      using key_type = gc_ptr<interned_string>;
+      using val_type = kind_mv<VK>;
+    private:
+      struct node;
+
+      struct entry : gc_allocated {
+        const key_type _key;
+        const gc_ptr<typed_msv<kind::BOOL>> _present;
+        const gc_ptr<typed_msv<VK>> _val;
+        /*
+         * The entry's place in the chain, or null if it's never been
+         * written.  An entry that's swept out and then written again
+         * gets a new node.
+         */
+        std::atomic<gc_ptr<node>> _node{nullptr};
+
+        entry(gc_token &gc, const key_type &k)
+          : gc_allocated{gc},
+            _key{k},
+            _present{make_gc<typed_msv<kind::BOOL>>()},
+            _val{make_gc<typed_msv<VK>>()}
+        {}
+
+        static const auto &descriptor() {
+          static gc_descriptor d =
+            GC_DESC(entry)
+            .WITH_FIELD(&entry::_key)
+            .WITH_FIELD(&entry::_present)
+            .WITH_FIELD(&entry::_val)
+            .WITH_FIELD(&entry::_node);
+          return d;
+        }
+      };
+
+      /*
+       * A link in the chain, newest first.  Only a sweep changes the
+       * _next of a node already in the chain, and it never changes the
+       * _next of the node it takes out, so a walk sitting on a node
+       * that's been swept out still finds its way back.
+       */
+      struct node : gc_allocated {
+        const gc_ptr<entry> _entry;
+        std::atomic<gc_ptr<node>> _next{nullptr};
+        std::atomic<bool> _unlinked{false};
+
+        node(gc_token &gc, const gc_ptr<entry> &e)
+          : gc_allocated{gc}, _entry{e}
+        {}
+
+        static const auto &descriptor() {
+          static gc_descriptor d =
+            GC_DESC(node)
+            .WITH_FIELD(&node::_entry)
+            .WITH_FIELD(&node::_next)
+            .WITH_FIELD(&node::_unlinked);
+          return d;
+        }
+
+        /*
+         * Walks skip nodes that have been swept out or replaced.
+         */
+        bool current() {
+          return !_unlinked && _entry->_node.load() == GC_THIS;
+        }
+      };
+
+      using map_t = small_gc_cuckoo_map<key_type, gc_ptr<entry>>;
+      gc_ptr<map_t> _map;
+      std::atomic<gc_ptr<node>> _entries{nullptr};
+      std::atomic<bool> _sweeping{false};
+
+      void push(const gc_ptr<node> &n) {
+        while (true) {
+          gc_ptr<node> head = _entries;
+          n->_next = head;
+          if (ruts::try_change_value(_entries, head, n)) {
+            return;
+          }
+        }
+      }
+
+      /*
+       * Called after every write to the entry, so that it's in the
+       * chain.  The write comes first: a sweep marks the node and then
+       * looks at _present, so either it sees the write or we see the
+       * mark and put the entry back.
+       */
+      void ensure_linked(const gc_ptr<entry> &e) {
+        gc_ptr<node> n = e->_node;
+        if (n != nullptr && !n->_unlinked) {
+          return;
+        }
+        gc_ptr<node> nn = make_gc<node>(e);
+        if (ruts::try_change_value(e->_node, n, nn)) {
+          push(nn);
+        }
+      }
+
+      /*
+       * Takes n out of the chain.  Fails only if n is at the head and
+       * something's been pushed in front of it, in which case it stays
+       * (skipped) until the next sweep.
+       */
+      bool splice(const gc_ptr<node> &prev, const gc_ptr<node> &n) {
+        gc_ptr<node> next = n->_next;
+        if (prev == nullptr) {
+          return ruts::try_change_value(_entries, n, next);
+        }
+        prev->_next = next;
+        return true;
+      }
+
+      /*
+       * True if n's key is absent and nothing can see it otherwise:
+       * no view but the top-level one has touched it and no live
+       * snapshot predates its removal.
+       */
+      bool retire(const gc_ptr<node> &n) {
+        const gc_ptr<typed_msv<kind::BOOL>> &p = n->_entry->_present;
+        if (!p->settled_at(false)) {
+          return false;
+        }
+        n->_unlinked = true;
+        if (p->settled_at(false)) {
+          return true;
+        }
+        /*
+         * It was written after we looked, and the writer may not have
+         * seen the mark.
+         */
+        n->_unlinked = false;
+        return false;
+      }
+
+      /*
+       * Calls fn on every entry in the chain.  A walk in the top-level
+       * view also sweeps, unless another one already is.
+       */
+      template <typename Fn>
+      void walk(const gc_ptr<view> &sv, Fn &&fn) {
+        bool sweeping = sv == top_level_view && !_sweeping.exchange(true);
+        gc_ptr<node> prev = nullptr;
+        for (gc_ptr<node> n = _entries; n != nullptr; n = n->_next) {
+          bool dead = !n->current();
+          if (sweeping && (dead || retire(n))) {
+            if (!splice(prev, n)) {
+              prev = n;
+            }
+            continue;
+          }
+          if (!dead) {
+            fn(n->_entry);
+          }
+          prev = n;
+        }
+        if (sweeping) {
+          _sweeping = false;
+        }
+      }
+
+      template <typename Fn>
+      gc_ptr<entry> lookup(const key_type &k, Fn &&create_if_null) {
+        gc_ptr<entry> e = _map->get(k);
+        if (e != nullptr || !std::forward<Fn>(create_if_null)()) {
+          return e;
+        }
+        e = make_gc<entry>(k);
+        auto rr = _map->put_new(k, e);
+        if (rr.had_value) {
+          /*
+           * Someone else got there first.
+           */
+          return _map->get(k);
+        }
+        return e;
+      }
+
+      /*
+       * A read of a missing key still has to create the entry when the
+       * view needs to be able to detect a later insertion as a conflict,
+       * but it stays out of the chain until it's written.
+       */
+      gc_ptr<entry> lookup_for_read(const key_type &k, const gc_ptr<view> &sv) {
+        return lookup(k, [&]{ return sv->need_msv_on_initial_read(); });
+      }
+
+      gc_ptr<entry> lookup_for_write(const key_type &k) {
+        return lookup(k, []{ return true; });
+      }
+
+    public:
+      managed_string_map(gc_token &gc, std::size_t expected_size)
+        : managed_map{gc, VK},
+          _map{make_gc<map_t>(expected_size < 10 ? 10 : expected_size)}
+      {}
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(managed_string_map)
+          .template WITH_SUPER(managed_map)
+          .template WITH_FIELD(&managed_string_map::_map)
+          .template WITH_FIELD(&managed_string_map::_entries)
+          .template WITH_FIELD(&managed_string_map::_sweeping);
+        return d;
+      }
+
+      static managed_value<managed_string_map> create(std::size_t expected_size) {
+        gc_ptr<managed_string_map> m = make_gc<managed_string_map>(expected_size);
+        gc_ptr<view> v = iso_context::shadowed(top_level_view);
+        return managed_value<managed_string_map>{m, v};
+      }
+
+      bool contains(const key_type &k, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        gc_ptr<entry> e = lookup_for_read(k, sv);
+        return e != nullptr && e->_present->frozen_read(sv);
+      }
+
+      /*
+       * Returns the default value (null for strings and records) if the
+       * key isn't present.
+       */
+      val_type get(const key_type &k, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        gc_ptr<entry> e = lookup_for_read(k, sv);
+        if (e == nullptr || !e->_present->frozen_read(sv)) {
+          return val_type{};
+        }
+        return e->_val->frozen_read(sv);
+      }
+
+      /*
+       * Like get(), but returns dflt if the key isn't present.
+       */
+      val_type get_or(const key_type &k, const gc_ptr<view> &v, const val_type &dflt) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        gc_ptr<entry> e = lookup_for_read(k, sv);
+        if (e == nullptr || !e->_present->frozen_read(sv)) {
+          return dflt;
+        }
+        return e->_val->frozen_read(sv);
+      }
+
+      /*
+       * Returns true if the key was present, in which case prior (if
+       * not null) gets its old value.
+       */
+      bool put(const key_type &k, const gc_ptr<view> &v, const val_type &val,
+               val_type *prior = nullptr)
+      {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        gc_ptr<entry> e = lookup_for_write(k);
+        bool was_present = e->_present->frozen_read(sv);
+        if (was_present && prior != nullptr) {
+          *prior = e->_val->frozen_read(sv);
+        }
+        e->_val->write(sv, val);
+        if (!was_present) {
+          e->_present->write(sv, true);
+        }
+        ensure_linked(e);
+        return was_present;
+      }
+
+      /*
+       * Returns true if the value was added.  If not, current (if not
+       * null) gets the value that was already there.
+       */
+      bool put_if_absent(const key_type &k, const gc_ptr<view> &v, const val_type &val,
+                         val_type *current = nullptr)
+      {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        gc_ptr<entry> e = lookup_for_write(k);
+        if (e->_present->frozen_read(sv)) {
+          if (current != nullptr) {
+            *current = e->_val->frozen_read(sv);
+          }
+          return false;
+        }
+        e->_val->write(sv, val);
+        e->_present->write(sv, true);
+        ensure_linked(e);
+        return true;
+      }
+
+      /*
+       * Returns true if the key was present, in which case prior (if
+       * not null) gets its old value.
+       */
+      bool remove(const key_type &k, const gc_ptr<view> &v, val_type *prior = nullptr) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        gc_ptr<entry> e = lookup_for_read(k, sv);
+        if (e == nullptr || !e->_present->frozen_read(sv)) {
+          return false;
+        }
+        if (prior != nullptr) {
+          *prior = e->_val->frozen_read(sv);
+        }
+        e->_present->write(sv, false);
+        e->_val->write(sv, val_type{});
+        return true;
+      }
+
+      /*
+       * Applies op to the value under the key, adding the key (with the
+       * default value as the starting point) if it isn't there.  Only
+       * the key's own MSVs are touched, so concurrent updates to other
+       * keys don't conflict.
+       */
+      val_type modify(const key_type &k, const gc_ptr<view> &v,
+                      modify_op op, const val_type &arg,
+                      ret_mode returning = ret_mode::resulting_val)
+      {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        gc_ptr<entry> e = lookup_for_write(k);
+        if (!e->_present->frozen_read(sv)) {
+          e->_present->write(sv, true);
+        }
+        val_type result = e->_val->modify(sv, op, arg, returning);
+        ensure_linked(e);
+        return result;
+      }
+
+      /*
+       * Applies op to every value present in the view.  This touches
+       * each key's value MSV, so it conflicts with any concurrent
+       * update, but not with insertions of new keys.
+       */
+      void modify_all(const gc_ptr<view> &v, modify_op op, const val_type &arg) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        walk(sv, [&](const gc_ptr<entry> &e) {
+            if (e->_present->frozen_read(sv)) {
+              e->_val->modify(sv, op, arg, ret_mode::resulting_val);
+            }
+          });
+      }
+
+      /*
+       * Calls fn(key, value) for up to max keys present in the view.
+       * Keys are visited newest first.  If after is not null, the walk
+       * starts with the key added just before it (which, if after has
+       * been swept out and added back since, is the one that was newest
+       * then).  Returns false once there are no more keys to visit.
+       */
+      template <typename Fn>
+      bool for_each(const gc_ptr<view> &v, const key_type &after,
+                    std::size_t max, Fn &&fn)
+      {
+        gc_ptr<node> nd;
+        if (after == nullptr) {
+          nd = _entries;
+        } else {
+          gc_ptr<entry> prev = _map->get(after);
+          gc_ptr<node> pn = prev == nullptr ? nullptr : prev->_node.load();
+          nd = pn == nullptr ? nullptr : pn->_next.load();
+        }
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        std::size_t n = 0;
+        for (; nd != nullptr && n < max; nd = nd->_next) {
+          gc_ptr<entry> e = nd->_entry;
+          if (nd->current() && e->_present->frozen_read(sv)) {
+            fn(e->_key, e->_val->frozen_read(sv));
+            n++;
+          }
+        }
+        return nd != nullptr;
+      }
+
+      /*
+       * Walks the chain, so this is linear in the number of keys that
+       * have been written and not yet swept out.  There's deliberately
+       * no shared counter, since every insertion would then conflict
+       * with every other.
+       */
+      std::size_t size(const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        std::size_t n = 0;
+        walk(sv, [&](const gc_ptr<entry> &e) {
+            if (e->_present->frozen_read(sv)) {
+              n++;
+            }
+          });
+        return n;
+      }
+
+      void clear(const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        walk(sv, [&](const gc_ptr<entry> &e) {
+            if (e->_present->frozen_read(sv)) {
+              e->_present->write(sv, false);
+              e->_val->write(sv, val_type{});
+            }
+          });
+      }
+    };
+
+  }
+}
+
+#endif /* CORE_MAP_H_ */
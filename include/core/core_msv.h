@@ -34,6 +34,8 @@
 #ifndef CORE_MSV_H_
 #define CORE_MSV_H_
 
+#include <array>
+#include <chrono>
 #include "ruts/packed_word.h"
 #include "core/core_task.h"
 #include "core/core_context.h"
@@ -59,6 +61,7 @@ namespace mds {
     struct computation_ex : modification_ex {};
     struct div_by_zero_ex : computation_ex {};
     struct guard_failure_ex : modification_ex {};
+    struct write_once_ex : modification_ex {};
     struct unknown_modification_ex : modification_ex {
       std::size_t status_code;
       unknown_modification_ex(std::size_t c) : status_code{c} {}
@@ -86,6 +89,7 @@ namespace mds {
           write_task{t}
       {
         assert(marks_publish == (t == nullptr));
+        stats::count(stats::alloc::value);
       }
       const static auto &descriptor() {
         static gc_descriptor d =
@@ -193,7 +197,9 @@ namespace mds {
       
       value_chain(gc_token &gc, const gc_ptr<view> &v, discriminator_type d)
         : base{gc, d}, _view{v}
-      {}
+      {
+        stats::count(stats::alloc::value_chain);
+      }
       const static auto &descriptor() {
         static gc_descriptor d =
           GC_DESC(value_chain)
@@ -496,8 +502,63 @@ namespace mds {
       
     }; // pending_rollup
 
+    /*
+     * Rollups are normally processed by whoever next touches the MSV,
+     * so a record that's written in a burst and then left alone keeps
+     * its pending rollups (and the values they'd let go) until it's
+     * read.  While compaction is enabled, an MSV that gets a pending
+     * rollup is queued unless it's already waiting in the queue, and
+     * run() processes queued MSVs until its time budget is spent.
+     * Something has to call run(): the Java API does it from a daemon
+     * thread (com.hpl.mds.RollupCompactor).
+     *
+     * The queue is split into shards, each with its own lock, and a
+     * thread always adds to the same shard, so publishing threads
+     * don't contend with each other.  The shards are bounded and hold
+     * the MSVs weakly.  MSVs that don't fit are simply left to be
+     * processed lazily (and queued by their next rollup).
+     */
+    namespace rollup_compaction {
+      enum class stat : std::size_t {
+        queued,
+        dropped,
+        compacted,
+        rollups_before,
+        rollups_after,
+        max_before,
+        runs,
+        n_counters
+      };
+      using totals_type = std::array<std::uint64_t, static_cast<std::size_t>(stat::n_counters)>;
+
+      namespace detail {
+        extern std::atomic<bool> on;
+        void enqueue(const gc_ptr<msv> &m);
+      }
+
+      void enable();
+      /*
+       * Also drops anything still queued.
+       */
+      void disable();
+      bool enabled();
+      std::size_t queue_length();
+
+      /*
+       * Returns the number of MSVs processed.
+       */
+      std::size_t run(std::chrono::nanoseconds budget);
+      totals_type totals();
+
+      inline void note_pending(const gc_ptr<msv> &m);
+    }
+
     class msv : public gc_allocated {
       std::atomic<gc_ptr<pending_rollup>> _rollups;
+      /*
+       * Set while the MSV is in the rollup_compaction queue.
+       */
+      std::atomic<bool> _queued{false};
 
       void process_rollups(const gc_ptr<pending_rollup> &head);
     public:
@@ -506,12 +567,14 @@ namespace mds {
       explicit msv(gc_token &gc)
 	: gc_allocated{gc}, _rollups{nullptr}
       {
+        stats::count(stats::alloc::msv);
       }
 
       const static auto &descriptor() {
         static gc_descriptor d =
           GC_DESC(msv)
-          .WITH_FIELD(&msv::_rollups);
+          .WITH_FIELD(&msv::_rollups)
+          .WITH_FIELD(&msv::_queued);
 
         return d;
       }
@@ -523,6 +586,22 @@ namespace mds {
         }
       }
 
+      /*
+       * The number of rollups that haven't been processed yet.
+       */
+      std::size_t n_pending_rollups() const {
+        std::size_t n = 0;
+        for (gc_ptr<pending_rollup> pr = _rollups; pr != nullptr; pr = pr->next()) {
+          if (!pr->processed()) {
+            n++;
+          }
+          if (pr->following_processed()) {
+            break;
+          }
+        }
+        return n;
+      }
+
       void add_rollup(const gc_ptr<value_chain> &vc,
                       const gc_ptr<iso_context> &ctxt,
                       const gc_ptr<const iso_context::published_state> &state)
@@ -532,12 +611,36 @@ namespace mds {
             ru->set_next(head);
             return ru;
           });
+        rollup_compaction::note_pending(GC_THIS);
+      }
+
+      /*
+       * True for the caller that gets to add the MSV to the
+       * rollup_compaction queue.  The plain load keeps the common case
+       * (already queued) from writing the flag's cache line.
+       */
+      bool mark_queued() {
+        return !_queued.load(std::memory_order_relaxed) && !_queued.exchange(true);
+      }
+
+      /*
+       * Called when the MSV leaves the queue, before it's processed,
+       * so that a rollup added meanwhile queues it again.
+       */
+      void clear_queued() {
+        _queued = false;
       }
 
       template <kind K>
       gc_ptr<typed_msv<K>> downcast();
     }; // msv
 
+    inline void rollup_compaction::note_pending(const gc_ptr<msv> &m) {
+      if (detail::on.load(std::memory_order_relaxed) && m->mark_queued()) {
+        detail::enqueue(m);
+      }
+    }
+
     class modification : public gc_allocated_with_virtuals<modification, kind> {
       using base = gc_allocated_with_virtuals<modification, kind>;
     public:
@@ -40,7 +40,9 @@
 #include "ruts/ms_forward.h"
 #include "mpgc/gc_cuckoo_map.h"
 #include <tuple>
+#include <algorithm>
 #include <sstream>
+#include <vector>
 
 
 namespace mds {
@@ -54,6 +56,9 @@ namespace mds {
        * Throws incompatible_type_ex if wrong kind
        */
       template <kind K> kind_mv<K> value() const;
+      kind value_kind() const {
+        return _discrim;
+      }
     protected:
       bound_val(gc_token &gc, kind k) : base{gc, k} {}
     public:
@@ -152,6 +157,13 @@ namespace mds {
         bool is_namespace() const {
           return _state == state::NAMESPACE;
         }
+        /*
+         * Only meaningful if the name is bound to something other than
+         * a namespace.
+         */
+        kind value_kind() const {
+          return _val->value_kind();
+        }
         template <kind K>
         kind_mv<K>
         value() const {
@@ -195,16 +207,27 @@ namespace mds {
         struct bound_name : gc_allocated {
           std::atomic<gc_ptr<name_space>>_sub_namespace{nullptr};
           gc_ptr<msv_t> _vals;
+          const gc_ptr<interned_string> _name;
+          /*
+           * The next older bound_name in the namespace.  Names are never
+           * removed from a namespace (unbinding just changes the binding),
+           * so this chain, together with the namespace's head, lists every
+           * name that has ever been looked up there.
+           */
+          gc_ptr<bound_name> _next;
 
           bound_name(gc_token &gc, const gc_ptr<name_space> &ns, const gc_ptr<interned_string> &name)
             : gc_allocated{gc},
-              _vals(make_gc<msv_t>())
+              _vals(make_gc<msv_t>()),
+              _name{name}
           {}
           static const auto &descriptor() {
             static gc_descriptor d =
               GC_DESC(bound_name)
               .WITH_FIELD(&bound_name::_sub_namespace)
-              .WITH_FIELD(&bound_name::_vals);
+              .WITH_FIELD(&bound_name::_vals)
+              .WITH_FIELD(&bound_name::_name)
+              .WITH_FIELD(&bound_name::_next);
             return d;
           }
           gc_ptr<name_space> sub_namespace() {
@@ -219,6 +242,30 @@ namespace mds {
         }; // bound_name
         using map_t = small_gc_cuckoo_map<gc_ptr<interned_string> , gc_ptr<bound_name>>;
         gc_ptr<map_t> _map;
+        /*
+         * The most recently added bound_name.
+         */
+        std::atomic<gc_ptr<bound_name>> _names{nullptr};
+
+        void link(const gc_ptr<bound_name> &bn) {
+          while (true) {
+            gc_ptr<bound_name> head = _names;
+            bn->_next = head;
+            if (ruts::try_change_value(_names, head, bn)) {
+              return;
+            }
+          }
+        }
+
+        static bool has_prefix(const gc_ptr<interned_string> &name,
+                               const gc_ptr<interned_string> &prefix)
+        {
+          if (prefix == nullptr) {
+            return true;
+          }
+          return name->size() >= prefix->size()
+            && std::equal(prefix->begin(), prefix->end(), name->begin());
+        }
 
         constexpr static std::size_t initial_map_size() {
           return 10;
@@ -247,7 +294,10 @@ namespace mds {
             return res;
           }
           bn = make_gc<bound_name>(GC_THIS, name);
-          _map->put_new(name, bn);
+          auto rr = _map->put_new(name, bn);
+          if (!rr.had_value) {
+            link(bn);
+          }
           return lookup(name, v);
         }
 
@@ -260,9 +310,29 @@ namespace mds {
             GC_DESC(name_space)
             .WITH_SUPER(managed_composite)
             .WITH_SUPER(with_uniform_id)
-            .WITH_FIELD(&name_space::_map);
+            .WITH_FIELD(&name_space::_map)
+            .WITH_FIELD(&name_space::_names);
           return d;
         }
+
+        /*
+         * Counts of binds done by this process, whether or not they have
+         * been published.  Together with the heap-wide namespace_epoch
+         * and binding_epoch, which only move when bindings are
+         * published, these let something that caches the result of a
+         * name lookup tell whether it might now come out differently
+         * in any context it can see.  They live in process memory, so
+         * binding in one process doesn't touch a line others poll.
+         */
+        struct local_bind_counts {
+          std::atomic<std::uint64_t> namespace_rebinds{0};
+          std::atomic<std::uint64_t> binds{0};
+        };
+
+        static local_bind_counts &local_binds() {
+          static local_bind_counts counts;
+          return counts;
+        }
         /*
          * Throws incompatible_type_ex if the proffered type isn't a
          * superclass of the actual one
@@ -299,7 +369,15 @@ namespace mds {
             return false;
           }
           binding new_b = binding::bound_to<K>(val);
+          msv_sites::note(bn->_vals, msv_site_kind::binding, bn->_name);
           bn->_vals->write(sb, new_b);
+          bool rebinds_namespace = old_b.is_namespace();
+          sb->context->note_naming_write(rebinds_namespace);
+          local_bind_counts &counts = local_binds();
+          counts.binds.fetch_add(1, std::memory_order_release);
+          if (rebinds_namespace) {
+            counts.namespace_rebinds.fetch_add(1, std::memory_order_release);
+          }
           return true;
         }
         bool is_bound(const gc_ptr<interned_string> &name,
@@ -338,11 +416,76 @@ namespace mds {
             return nullptr;
           } else {
             //          std::cout << "Creating " << ruts::to_utf8(name->as_string()) << std::endl;
+            msv_sites::note(bn->_vals, msv_site_kind::binding, bn->_name);
             bn->_vals->write(sb, binding::for_namespace());
           }
           return managed_value<name_space>{bn->sub_namespace(), sb};
         }
 
+        /*
+         * Calls fn(name, binding) for up to max names bound in the view
+         * and starting with prefix (if it's not null).  Names are visited
+         * newest first.  If after is not null, the walk starts with the
+         * name added just before it.  Returns false once there are no more
+         * names to visit.
+         *
+         * Names added while the walk is going on aren't seen, so calling
+         * this repeatedly with a snapshot view, passing in the last name
+         * seen each time, visits a consistent set of bindings.
+         */
+        template <typename Fn>
+        bool for_each_binding(const gc_ptr<view> &v,
+                              const gc_ptr<interned_string> &after,
+                              const gc_ptr<interned_string> &prefix,
+                              std::size_t max,
+                              Fn &&fn)
+        {
+          gc_ptr<bound_name> bn;
+          if (after == nullptr) {
+            bn = _names;
+          } else {
+            gc_ptr<bound_name> prev = _map->get(after);
+            bn = prev == nullptr ? nullptr : prev->_next;
+          }
+          gc_ptr<view> sb = iso_context::shadowed(v);
+          std::size_t n = 0;
+          for (; bn != nullptr && n < max; bn = bn->_next) {
+            if (!has_prefix(bn->_name, prefix)) {
+              continue;
+            }
+            binding b = bn->_vals->frozen_read(sb);
+            if (b.is_bound()) {
+              fn(bn->_name, b);
+              n++;
+            }
+          }
+          return bn != nullptr;
+        }
+
+        /*
+         * Calls fn(binding) for every value (other than a namespace)
+         * bound in this namespace or in any namespace below it, as seen
+         * in the view.  Namespaces are visited with an explicit agenda,
+         * so a deep tree doesn't use up the stack.
+         */
+        template <typename Fn>
+        void for_each_value_below(const gc_ptr<view> &v, Fn &&fn) {
+          gc_ptr<view> sb = iso_context::shadowed(v);
+          std::vector<gc_ptr<name_space>> agenda;
+          agenda.push_back(GC_THIS);
+          while (!agenda.empty()) {
+            gc_ptr<name_space> ns = agenda.back();
+            agenda.pop_back();
+            for (gc_ptr<bound_name> bn = ns->_names; bn != nullptr; bn = bn->_next) {
+              binding b = bn->_vals->frozen_read(sb);
+              if (b.is_namespace()) {
+                agenda.push_back(bn->sub_namespace());
+              } else if (b.is_bound()) {
+                fn(b);
+              }
+            }
+          }
+        }
 
       };
     }
@@ -0,0 +1,612 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/*
+ * core_ordered_map.h
+ *
+ * Ordered maps from longs or strings to managed values, kept as an
+ * insert-only lock-free skip list.  As in core_map.h, each key gets its
+ * own presence and value MSVs, and nodes are never unlinked (removing a
+ * key just clears its presence), so the list itself needs no
+ * isolation.
+ *
+ * To detect conflicts by key range, each node also carries a "gap" MSV
+ * standing for the keys between it and its successor.  A scan reads the
+ * gaps it walks across, and adding a key that isn't already in the list
+ * writes the gap of the node it is inserted after.  So an insertion only
+ * conflicts with readers whose range it falls into: appending at the
+ * tail touches only the last node's gap, which readers of older ranges
+ * never read.
+ */
+
+#ifndef CORE_ORDERED_MAP_H_
+#define CORE_ORDERED_MAP_H_
+
+#include "core/core_fwd.h"
+#include "core/core_container.h"
+#include "core/core_msv.h"
+#include "core/core_typed_msv.h"
+#include "core/core_context.h"
+#include "core/core_strings.h"
+#include "ruts/cas_loop.h"
+#include "mpgc/gc.h"
+#include <algorithm>
+#include <array>
+#include <atomic>
+#include <chrono>
+#include <functional>
+#include <limits>
+#include <thread>
+
+namespace mds {
+  namespace core {
+
+    template <kind KK, kind VK> class managed_skip_list_map;
+
+    namespace skip_list {
+      constexpr std::size_t max_height = 32;
+
+      template <kind KK> struct key_order;
+
+      template <>
+      struct key_order<kind::LONG> {
+        static bool less(const kind_mv<kind::LONG> &a, const kind_mv<kind::LONG> &b) {
+          return a < b;
+        }
+      };
+
+      /*
+       * Strings are ordered by UTF-16 code unit, as String.compareTo()
+       * does.
+       */
+      template <>
+      struct key_order<kind::STRING> {
+        static bool less(const kind_mv<kind::STRING> &a, const kind_mv<kind::STRING> &b) {
+          if (a == b) {
+            return false;
+          }
+          return std::lexicographical_compare(a->cbegin(), a->cend(),
+                                              b->cbegin(), b->cend());
+        }
+      };
+
+      /*
+       * Geometric with p = 1/2, from a per-thread xorshift generator.
+       */
+      inline std::size_t random_height() {
+        static thread_local std::uint64_t state =
+          (std::hash<std::thread::id>{}(std::this_thread::get_id())
+           ^ static_cast<std::uint64_t>(std::chrono::steady_clock::now().time_since_epoch().count()))
+          | 1;
+        state ^= state << 13;
+        state ^= state >> 7;
+        state ^= state << 17;
+        std::size_t h = 1 + __builtin_ctzll(state | (std::uint64_t{1} << (max_height-1)));
+        return h;
+      }
+
+      /*
+       * How a scan treats one end of its range.
+       */
+      enum class bound : std::uint8_t {
+        none, inclusive, exclusive
+      };
+    }
+
+    template <kind KK, kind VK>
+    struct container_traits<managed_skip_list_map<KK, VK>> {
+      static constexpr container_shape shape = container_shape::ordered_map;
+      static constexpr kind key_kind = KK;
+      static constexpr kind elt_kind = VK;
+    };
+
+    class managed_ordered_map : public managed_container
+    {
+    public:
+      managed_ordered_map(gc_token &gc, kind kk, kind vk)
+        : managed_container{gc, container_shape::ordered_map, kk, vk}
+      {
+        stats::count(stats::alloc::collection);
+      }
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(managed_ordered_map)
+          .WITH_SUPER(managed_container);
+        return d;
+      }
+
+      template <kind KK, kind VK>
+      gc_ptr<managed_skip_list_map<KK, VK>> downcast() {
+        return managed_container::downcast<managed_skip_list_map<KK, VK>>();
+      }
+    };
+
+    template <kind KK, kind VK>
+    class managed_skip_list_map : public managed_ordered_map
+    {
+    public:
+      using key_type = kind_mv<KK>;
+      using val_type = kind_mv<VK>;
+      using bound = skip_list::bound;
+    private:
+      using order = skip_list::key_order<KK>;
+      static constexpr std::size_t max_height = skip_list::max_height;
+
+      struct node : gc_allocated {
+        using links = gc_array<std::atomic<gc_ptr<node>>>;
+        const key_type _key;
+        const gc_ptr<typed_msv<kind::BOOL>> _present;
+        const gc_ptr<typed_msv<VK>> _val;
+        /*
+         * Written (the value is irrelevant) whenever a key is added
+         * between this node and its successor.
+         */
+        const gc_ptr<typed_msv<kind::BOOL>> _gap;
+        const gc_ptr<links> _next;
+
+        node(gc_token &gc, const key_type &k, std::size_t height)
+          : gc_allocated{gc},
+            _key{k},
+            _present{make_gc<typed_msv<kind::BOOL>>()},
+            _val{make_gc<typed_msv<VK>>()},
+            _gap{make_gc<typed_msv<kind::BOOL>>()},
+            _next{make_gc_array<std::atomic<gc_ptr<node>>>(height)}
+        {}
+
+        static const auto &descriptor() {
+          static gc_descriptor d =
+            GC_DESC(node)
+            .WITH_FIELD(&node::_key)
+            .WITH_FIELD(&node::_present)
+            .WITH_FIELD(&node::_val)
+            .WITH_FIELD(&node::_gap)
+            .WITH_FIELD(&node::_next);
+          return d;
+        }
+
+        std::size_t height() const {
+          return _next->size();
+        }
+
+        std::atomic<gc_ptr<node>> &link(std::size_t level) {
+          return _next->at(level);
+        }
+
+        gc_ptr<node> next(std::size_t level) {
+          return link(level).load();
+        }
+
+        bool present(const gc_ptr<view> &sv) {
+          return _present->frozen_read(sv);
+        }
+
+        void read_gap(const gc_ptr<view> &sv) {
+          _gap->frozen_read(sv);
+        }
+      };
+
+      using path = std::array<gc_ptr<node>, max_height>;
+
+      /*
+       * The head's key is never looked at.
+       */
+      const gc_ptr<node> _head;
+
+      /*
+       * Fills in, for each level, the last node before k and the first
+       * node at or after it, and returns the node with key k if there
+       * is one.
+       */
+      gc_ptr<node> find(const key_type &k, path &preds, path &succs) {
+        gc_ptr<node> pred = _head;
+        for (std::size_t level = max_height; level-- > 0;) {
+          gc_ptr<node> cur = pred->next(level);
+          while (cur != nullptr && order::less(cur->_key, k)) {
+            pred = cur;
+            cur = pred->next(level);
+          }
+          preds[level] = pred;
+          succs[level] = cur;
+        }
+        gc_ptr<node> s = succs[0];
+        return (s != nullptr && !order::less(k, s->_key)) ? s : nullptr;
+      }
+
+      /*
+       * The last node before k, or the head.
+       */
+      gc_ptr<node> predecessor(const key_type &k) {
+        path preds, succs;
+        find(k, preds, succs);
+        return preds[0];
+      }
+
+      gc_ptr<node> last_node() {
+        gc_ptr<node> pred = _head;
+        for (std::size_t level = max_height; level-- > 0;) {
+          for (gc_ptr<node> cur = pred->next(level); cur != nullptr; cur = pred->next(level)) {
+            pred = cur;
+          }
+        }
+        return pred;
+      }
+
+      /*
+       * Returns the node for k, adding it if necessary.  If this call
+       * added it, the gap it was added into is written under sv.
+       */
+      gc_ptr<node> find_or_insert(const key_type &k, const gc_ptr<view> &sv) {
+        path preds, succs;
+        while (true) {
+          gc_ptr<node> found = find(k, preds, succs);
+          if (found != nullptr) {
+            return found;
+          }
+          std::size_t height = skip_list::random_height();
+          gc_ptr<node> n = make_gc<node>(k, height);
+          for (std::size_t level = 0; level < height; level++) {
+            n->link(level) = succs[level];
+          }
+          if (!ruts::try_change_value(preds[0]->link(0), succs[0], n)) {
+            continue;
+          }
+          gc_ptr<node> gap_owner = preds[0];
+          for (std::size_t level = 1; level < height; level++) {
+            while (!ruts::try_change_value(preds[level]->link(level), succs[level], n)) {
+              find(k, preds, succs);
+              n->link(level) = succs[level];
+            }
+          }
+          gap_owner->_gap->write(sv, true);
+          return n;
+        }
+      }
+
+      template <typename Fn>
+      static void deliver(const gc_ptr<node> &n, const gc_ptr<view> &sv, Fn &&fn) {
+        std::forward<Fn>(fn)(n->_key, n->_val->frozen_read(sv));
+      }
+
+      /*
+       * Is k beyond the given upper (or, if below is true, lower) bound?
+       */
+      static bool past(const key_type &k, bool below, bound b, const key_type &limit) {
+        switch (b) {
+        case bound::none:
+          return false;
+        case bound::inclusive:
+          return below ? order::less(k, limit) : order::less(limit, k);
+        default:
+          return below ? !order::less(limit, k) : !order::less(k, limit);
+        }
+      }
+
+    public:
+      explicit managed_skip_list_map(gc_token &gc)
+        : managed_ordered_map{gc, KK, VK},
+          _head{make_gc<node>(key_type{}, max_height)}
+      {}
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(managed_skip_list_map)
+          .template WITH_SUPER(managed_ordered_map)
+          .template WITH_FIELD(&managed_skip_list_map::_head);
+        return d;
+      }
+
+      static managed_value<managed_skip_list_map> create() {
+        gc_ptr<managed_skip_list_map> m = make_gc<managed_skip_list_map>();
+        gc_ptr<view> v = iso_context::shadowed(top_level_view);
+        return managed_value<managed_skip_list_map>{m, v};
+      }
+
+      /*
+       * Reading a missing key reads the gap it would go into, so a
+       * later insertion of it is seen as a conflict.
+       */
+      bool contains(const key_type &k, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        path preds, succs;
+        gc_ptr<node> n = find(k, preds, succs);
+        if (n == nullptr) {
+          preds[0]->read_gap(sv);
+          return false;
+        }
+        return n->present(sv);
+      }
+
+      /*
+       * Returns true if the key is present, in which case val gets its
+       * value.
+       */
+      bool get(const key_type &k, const gc_ptr<view> &v, val_type &val) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        path preds, succs;
+        gc_ptr<node> n = find(k, preds, succs);
+        if (n == nullptr) {
+          preds[0]->read_gap(sv);
+          return false;
+        }
+        if (!n->present(sv)) {
+          return false;
+        }
+        val = n->_val->frozen_read(sv);
+        return true;
+      }
+
+      /*
+       * Returns true if the key was present, in which case prior (if
+       * not null) gets its old value.
+       */
+      bool put(const key_type &k, const gc_ptr<view> &v, const val_type &val,
+               val_type *prior = nullptr)
+      {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        gc_ptr<node> n = find_or_insert(k, sv);
+        bool was_present = n->present(sv);
+        if (was_present && prior != nullptr) {
+          *prior = n->_val->frozen_read(sv);
+        }
+        n->_val->write(sv, val);
+        if (!was_present) {
+          n->_present->write(sv, true);
+        }
+        return was_present;
+      }
+
+      /*
+       * Returns true if the value was added.  If not, current (if not
+       * null) gets the value that was already there.
+       */
+      bool put_if_absent(const key_type &k, const gc_ptr<view> &v, const val_type &val,
+                         val_type *current = nullptr)
+      {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        gc_ptr<node> n = find_or_insert(k, sv);
+        if (n->present(sv)) {
+          if (current != nullptr) {
+            *current = n->_val->frozen_read(sv);
+          }
+          return false;
+        }
+        n->_val->write(sv, val);
+        n->_present->write(sv, true);
+        return true;
+      }
+
+      /*
+       * Returns true if the key was present, in which case prior (if
+       * not null) gets its old value.
+       */
+      bool remove(const key_type &k, const gc_ptr<view> &v, val_type *prior = nullptr) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        path preds, succs;
+        gc_ptr<node> n = find(k, preds, succs);
+        if (n == nullptr) {
+          preds[0]->read_gap(sv);
+          return false;
+        }
+        if (!n->present(sv)) {
+          return false;
+        }
+        if (prior != nullptr) {
+          *prior = n->_val->frozen_read(sv);
+        }
+        n->_present->write(sv, false);
+        n->_val->write(sv, val_type{});
+        return true;
+      }
+
+      /*
+       * Calls fn(key, value) for the first present key at or after k
+       * (strictly after, if inclusive is false) and returns true, or
+       * returns false if there isn't one.  The gaps between k and the
+       * result are read.
+       */
+      template <typename Fn>
+      bool ceiling(const key_type &k, bool inclusive, const gc_ptr<view> &v, Fn &&fn) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        path preds, succs;
+        find(k, preds, succs);
+        preds[0]->read_gap(sv);
+        for (gc_ptr<node> n = succs[0]; n != nullptr; n = n->next(0)) {
+          if ((inclusive || order::less(k, n->_key)) && n->present(sv)) {
+            deliver(n, sv, std::forward<Fn>(fn));
+            return true;
+          }
+          n->read_gap(sv);
+        }
+        return false;
+      }
+
+      /*
+       * Like ceiling(), but for the last present key at or before k.
+       * The list is only linked forward, so each step back is a fresh
+       * search.
+       */
+      template <typename Fn>
+      bool floor(const key_type &k, bool inclusive, const gc_ptr<view> &v, Fn &&fn) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        path preds, succs;
+        gc_ptr<node> n = find(k, preds, succs);
+        if (inclusive && n != nullptr && n->present(sv)) {
+          deliver(n, sv, std::forward<Fn>(fn));
+          return true;
+        }
+        for (n = preds[0]; n != _head; n = predecessor(n->_key)) {
+          n->read_gap(sv);
+          if (n->present(sv)) {
+            deliver(n, sv, std::forward<Fn>(fn));
+            return true;
+          }
+        }
+        _head->read_gap(sv);
+        return false;
+      }
+
+      template <typename Fn>
+      bool first(const gc_ptr<view> &v, Fn &&fn) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        _head->read_gap(sv);
+        for (gc_ptr<node> n = _head->next(0); n != nullptr; n = n->next(0)) {
+          if (n->present(sv)) {
+            deliver(n, sv, std::forward<Fn>(fn));
+            return true;
+          }
+          n->read_gap(sv);
+        }
+        return false;
+      }
+
+      template <typename Fn>
+      bool last(const gc_ptr<view> &v, Fn &&fn) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        for (gc_ptr<node> n = last_node(); n != _head; n = predecessor(n->_key)) {
+          n->read_gap(sv);
+          if (n->present(sv)) {
+            deliver(n, sv, std::forward<Fn>(fn));
+            return true;
+          }
+        }
+        _head->read_gap(sv);
+        return false;
+      }
+
+      /*
+       * Calls fn(key, value) for up to max present keys in the range,
+       * in ascending order.  Returns false once there are no more keys
+       * in the range.  To resume, pass the last key seen as an
+       * exclusive lower bound.
+       */
+      template <typename Fn>
+      bool for_range(const gc_ptr<view> &v,
+                     bound lo_b, const key_type &lo,
+                     bound hi_b, const key_type &hi,
+                     std::size_t max, Fn &&fn)
+      {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        gc_ptr<node> n;
+        if (lo_b == bound::none) {
+          _head->read_gap(sv);
+          n = _head->next(0);
+        } else {
+          path preds, succs;
+          find(lo, preds, succs);
+          preds[0]->read_gap(sv);
+          n = succs[0];
+        }
+        std::size_t count = 0;
+        for (; n != nullptr; n = n->next(0)) {
+          if (past(n->_key, false, hi_b, hi)) {
+            return false;
+          }
+          if (count == max) {
+            return true;
+          }
+          if (!past(n->_key, true, lo_b, lo) && n->present(sv)) {
+            deliver(n, sv, fn);
+            count++;
+          }
+          n->read_gap(sv);
+        }
+        return false;
+      }
+
+      /*
+       * Like for_range(), but in descending order.  Each step back is a
+       * fresh search, so this is O(log n) per key visited.  To resume,
+       * pass the last key seen as an exclusive upper bound.
+       */
+      template <typename Fn>
+      bool for_range_descending(const gc_ptr<view> &v,
+                                bound lo_b, const key_type &lo,
+                                bound hi_b, const key_type &hi,
+                                std::size_t max, Fn &&fn)
+      {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        gc_ptr<node> n;
+        if (hi_b == bound::none) {
+          n = last_node();
+        } else {
+          path preds, succs;
+          gc_ptr<node> found = find(hi, preds, succs);
+          n = (found != nullptr && hi_b == bound::inclusive) ? found : preds[0];
+        }
+        std::size_t count = 0;
+        for (; n != _head; n = predecessor(n->_key)) {
+          if (past(n->_key, true, lo_b, lo)) {
+            return false;
+          }
+          if (count == max) {
+            return true;
+          }
+          n->read_gap(sv);
+          if (n->present(sv)) {
+            deliver(n, sv, fn);
+            count++;
+          }
+        }
+        _head->read_gap(sv);
+        return false;
+      }
+
+      std::size_t count(const gc_ptr<view> &v,
+                        bound lo_b, const key_type &lo,
+                        bound hi_b, const key_type &hi)
+      {
+        std::size_t n = 0;
+        for_range(v, lo_b, lo, hi_b, hi, std::numeric_limits<std::size_t>::max(),
+                  [&](const key_type &, const val_type &) { n++; });
+        return n;
+      }
+
+      /*
+       * Like size() in core_map.h, this walks the keys rather than
+       * keeping a shared counter.
+       */
+      std::size_t size(const gc_ptr<view> &v) {
+        return count(v, bound::none, key_type{}, bound::none, key_type{});
+      }
+
+      void clear(const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        _head->read_gap(sv);
+        for (gc_ptr<node> n = _head->next(0); n != nullptr; n = n->next(0)) {
+          if (n->present(sv)) {
+            n->_present->write(sv, false);
+            n->_val->write(sv, val_type{});
+          }
+          n->read_gap(sv);
+        }
+      }
+    };
+
+  }
+}
+
+#endif /* CORE_ORDERED_MAP_H_ */
@@ -0,0 +1,271 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/*
+ * core_queue.h
+ *
+ * Unbounded multi-producer/multi-consumer queues of managed values,
+ * for handing work from one thread (or process) to another.
+ *
+ * Unlike every other managed structure, a queue is not isolated: an
+ * element is visible to every context as soon as it's enqueued, and
+ * dequeuing it takes it away from everyone, whether or not the
+ * enqueuing or dequeuing context ever publishes.  Nothing about a queue
+ * goes through an MSV, so using one never causes a conflict.  (The
+ * elements themselves are ordinary managed values: a dequeued record is
+ * still read and written in the dequeuer's context.)
+ *
+ * The implementation is the Michael & Scott lock-free linked queue.
+ * Since nodes are garbage collected, a node can't be reused while
+ * anyone still holds a pointer to it, so there's no ABA problem to
+ * guard against.
+ */
+
+#ifndef CORE_QUEUE_H_
+#define CORE_QUEUE_H_
+
+#include "core/core_fwd.h"
+#include "core/core_kind.h"
+#include "core/core_globals.h"
+#include "ruts/cas_loop.h"
+#include "mpgc/gc.h"
+#include <atomic>
+#include <cstdint>
+#include <utility>
+
+namespace mds {
+  namespace core {
+
+    template <kind EK> class managed_mpmc_queue;
+
+    class managed_queue : public managed_composite, public with_uniform_id
+    {
+    public:
+      const kind elt_kind;
+
+      managed_queue(gc_token &gc, kind ek)
+        : managed_composite{gc}, elt_kind{ek}
+      {
+        stats::count(stats::alloc::collection);
+      }
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(managed_queue)
+          .WITH_SUPER(managed_composite)
+          .WITH_SUPER(with_uniform_id)
+          .WITH_FIELD(&managed_queue::elt_kind);
+        return d;
+      }
+
+      template <kind K>
+      gc_ptr<managed_mpmc_queue<K>> downcast() {
+        assert(elt_kind == K);
+        return std::static_pointer_cast<managed_mpmc_queue<K>>(GC_THIS);
+      }
+    };
+
+    template <kind EK>
+    class managed_mpmc_queue : public managed_queue
+    {
+    public:
+      using elt_type = kind_mv<EK>;
+      using maybe_elt = std::pair<bool, elt_type>;
+    private:
+      struct node : gc_allocated {
+        /*
+         * Once dequeued, a node becomes the new sentinel, so its value
+         * stays reachable until the next dequeue.
+         */
+        const elt_type _val;
+        std::atomic<gc_ptr<node>> _next{nullptr};
+        /*
+         * One more than the node it's linked after, so the number of
+         * elements is the last node's _seq less the sentinel's.  It's
+         * set before the node is linked and never changes after.
+         */
+        std::uint64_t _seq = 0;
+
+        node(gc_token &gc, const elt_type &v)
+          : gc_allocated{gc}, _val{v}
+        {}
+
+        static const auto &descriptor() {
+          static gc_descriptor d =
+            GC_DESC(node)
+            .WITH_FIELD(&node::_val)
+            .WITH_FIELD(&node::_next)
+            .WITH_FIELD(&node::_seq);
+          return d;
+        }
+      };
+
+      /* Always a sentinel; the first element is in _head->_next. */
+      std::atomic<gc_ptr<node>> _head;
+      /* The last node, or (briefly) the one before it. */
+      std::atomic<gc_ptr<node>> _tail;
+
+    public:
+      explicit managed_mpmc_queue(gc_token &gc)
+        : managed_queue{gc, EK}
+      {
+        gc_ptr<node> s = make_gc<node>(elt_type{});
+        _head = s;
+        _tail = s;
+      }
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(managed_mpmc_queue)
+          .template WITH_SUPER(managed_queue)
+          .template WITH_FIELD(&managed_mpmc_queue::_head)
+          .template WITH_FIELD(&managed_mpmc_queue::_tail);
+        return d;
+      }
+
+      static gc_ptr<managed_mpmc_queue> create() {
+        return make_gc<managed_mpmc_queue>();
+      }
+
+      /*
+       * The queue with the given name, which is created if there isn't
+       * one yet.  Throws incompatible_type_ex if the queue with that
+       * name holds a different kind of element.
+       */
+      static gc_ptr<managed_mpmc_queue> named(const gc_ptr<interned_string> &name) {
+        gc_ptr<managed_queue> q = queue_table->get(name);
+        if (q == nullptr) {
+          auto r = queue_table->put_new(name, create());
+          q = r.had_value ? r.old_value : queue_table->get(name);
+        }
+        if (q->elt_kind != EK) {
+          throw incompatible_type_ex{};
+        }
+        return q->downcast<EK>();
+      }
+
+      void enqueue(const elt_type &val) {
+        gc_ptr<node> n = make_gc<node>(val);
+        while (true) {
+          gc_ptr<node> t = _tail;
+          gc_ptr<node> next = t->_next;
+          if (next != nullptr) {
+            /* Someone else's enqueue is half done.  Help it along. */
+            ruts::try_change_value(_tail, t, next);
+          } else {
+            n->_seq = t->_seq + 1;
+            if (ruts::try_change_value(t->_next, nullptr, n)) {
+              ruts::try_change_value(_tail, t, n);
+              return;
+            }
+          }
+        }
+      }
+
+      maybe_elt dequeue() {
+        while (true) {
+          gc_ptr<node> h = _head;
+          gc_ptr<node> next = h->_next;
+          if (next == nullptr) {
+            return maybe_elt{false, elt_type{}};
+          }
+          gc_ptr<node> t = _tail;
+          if (h == t) {
+            /* The tail lags behind a completed link. */
+            ruts::try_change_value(_tail, t, next);
+          } else if (ruts::try_change_value(_head, h, next)) {
+            return maybe_elt{true, next->_val};
+          }
+        }
+      }
+
+      maybe_elt peek() {
+        gc_ptr<node> next = gc_ptr<node>{_head}->_next;
+        if (next == nullptr) {
+          return maybe_elt{false, elt_type{}};
+        }
+        return maybe_elt{true, next->_val};
+      }
+
+      /*
+       * Only exact when nothing is being enqueued or dequeued.  The
+       * head is read first, so the tail can't be behind it.
+       */
+      std::size_t size() const {
+        gc_ptr<node> h = _head;
+        gc_ptr<node> t = _tail;
+        gc_ptr<node> next = t->_next;
+        if (next != nullptr) {
+          /* The tail lags behind a completed link. */
+          t = next;
+        }
+        return t->_seq > h->_seq ? static_cast<std::size_t>(t->_seq - h->_seq) : 0;
+      }
+
+      bool empty() {
+        return gc_ptr<node>{_head}->_next.load() == nullptr;
+      }
+
+      /*
+       * Dequeues up to max elements, calling fn on each.  Returns the
+       * number dequeued.
+       */
+      template <typename Fn>
+      std::size_t drain(std::size_t max, Fn &&fn) {
+        std::size_t n = 0;
+        while (n < max) {
+          maybe_elt r = dequeue();
+          if (!r.first) {
+            break;
+          }
+          std::forward<Fn>(fn)(r.second);
+          n++;
+        }
+        return n;
+      }
+
+      /*
+       * Calls fn on up to max of the elements, oldest first, starting
+       * with the skip'th.  Elements dequeued while this is running may
+       * or may not be seen.  Returns false once there are no more.
+       */
+      template <typename Fn>
+      bool for_each(std::size_t skip, std::size_t max, Fn &&fn) {
+        gc_ptr<node> n = gc_ptr<node>{_head}->_next;
+        for (; n != nullptr && skip > 0; n = n->_next) {
+          skip--;
+        }
+        for (std::size_t i = 0; n != nullptr && i < max; i++, n = n->_next) {
+          std::forward<Fn>(fn)(n->_val);
+        }
+        return n != nullptr;
+      }
+    };
+
+  }
+}
+
+#endif /* CORE_QUEUE_H_ */
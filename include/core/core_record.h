@@ -39,6 +39,7 @@
 #include "core/core_msv.h"
 #include "core/core_globals.h"
 #include "core/core_strings.h"
+#include "core/core_index.h"
 #include "ruts/uniform_key.h"
 #include "ruts/cas_loop.h"
 #include "mpgc/gc_vector.h"
@@ -125,6 +126,11 @@ namespace mds {
     struct record_field : record_field_base
     {
       const gc_ptr<const kind_type<K>> f_type;
+      /*
+       * The secondary index on this field, if one has been declared
+       * (see core_index.h).
+       */
+      mutable std::atomic<gc_ptr<field_index<K>>> _index;
 
       record_field(gc_token &gc,
                    const gc_ptr<interned_string> &name,
@@ -133,19 +139,34 @@ namespace mds {
                    const gc_ptr<const kind_type<K>> &ft)
     :
       record_field_base{gc, K, name, num, rt, ft},
-      f_type{ft}
+      f_type{ft},
+      _index{nullptr}
       {}
 
       static const auto &descriptor() {
         static gc_descriptor d =
 	  GC_DESC(record_field)
 	  .template WITH_SUPER(record_field_base)
-	  .template WITH_FIELD(&record_field::f_type);
+	  .template WITH_FIELD(&record_field::f_type)
+	  .template WITH_FIELD(&record_field::_index);
         return d;
       }
 
       void check_compatible(const gc_ptr<const managed_record> &r) const;
 
+      gc_ptr<field_index<K>> index() const {
+        return _index;
+      }
+      /*
+       * Returns the index on this field, declaring one of the given
+       * kind if there isn't one yet.  An existing ordered index serves
+       * for a hash one, but asking for an ordered index on a field that
+       * already has a hash index (or on a record-valued field) throws
+       * incompatible_type_ex.  Records written before the index was
+       * declared aren't in it.
+       */
+      gc_ptr<field_index<K>> ensure_index(index_kind which) const;
+
       kind_mv<K> free_read(const gc_ptr<const managed_record> &r,
                            const gc_ptr<view> &v) const;
       kind_mv<K> frozen_read(const gc_ptr<const managed_record> &r,
@@ -458,7 +479,9 @@ namespace mds {
     inline
     managed_record::managed_record(gc_token &gc, const gc_ptr<const record_type> &rt)
     : managed_composite(gc), r_type{rt}, fields(make_gc_array<atomic_msv>(rt->n_fields()))
-    {}
+    {
+      stats::count(stats::alloc::record);
+    }
 
 
     inline
@@ -590,9 +613,59 @@ namespace mds {
     {
       check_compatible(r);
       gc_ptr<typed_msv<K>> val = r->field<K>(num, GC_THIS, []{ return true; });
+      msv_sites::note(val, msv_site_kind::record_field, r, num);
       gc_ptr<view> sv = iso_context::shadowed(v);
-      return val->modify(sv, op, arg, returning, guard);
+      gc_ptr<field_index<K>> ix = _index;
+      if (ix == nullptr) {
+        return val->modify(sv, op, arg, returning, guard);
+      }
+      /*
+       * The index is updated in the same view as the write, so it's
+       * published (or rolled back) with it.  This makes every write to
+       * an indexed field read the prior value as well.
+       */
+      bool had = val->has_value(sv);
+      kind_mv<K> old = had ? val->frozen_read(sv) : kind_mv<K>{};
+      kind_mv<K> rv = val->modify(sv, op, arg, returning, guard);
+      kind_mv<K> now = val->frozen_read(sv);
+      ix->move(std::const_pointer_cast<managed_record>(r), had, old, now, sv);
+      return rv;
+    }
 
+    template <kind K>
+    inline
+    gc_ptr<field_index<K>>
+    record_field<K>::ensure_index(index_kind which) const
+    {
+      using okey = typename field_index<K>::okey;
+      if (which == index_kind::ordered && !okey::supported) {
+        throw incompatible_type_ex{};
+      }
+      /*
+       * If this field belongs to a record type that turned out to be a
+       * duplicate of one already in the table, the index has to live on
+       * that type's field, since that's the one other processes see.
+       */
+      gc_ptr<const record_type> fwd = r_type->ensure_created();
+      if (fwd != nullptr) {
+        gc_ptr<record_field<K>> canon =
+          std::static_pointer_cast<record_field<K>>(fwd->lookup_field(name));
+        if (canon != nullptr && canon != GC_THIS) {
+          gc_ptr<field_index<K>> ix = canon->ensure_index(which);
+          _index = ix;
+          return ix;
+        }
+      }
+      gc_ptr<field_index<K>> ix = _index;
+      if (ix == nullptr) {
+        gc_ptr<field_index<K>> new_ix = make_gc<field_index<K>>(which);
+        auto rr = ruts::try_change_value(_index, nullptr, new_ix);
+        ix = rr ? new_ix : rr.prior_value;
+      }
+      if (!ix->serves(which)) {
+        throw incompatible_type_ex{};
+      }
+      return ix;
     }
 
 
@@ -0,0 +1,177 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+
+/*
+ * core_scan.h
+ *
+ * A walk over the records reachable from a namespace subtree, done
+ * entirely in the core so that following a reference doesn't cost a
+ * round trip through the API (or through JNI).  Values bound in the
+ * namespaces are the roots; from there the walk follows record-valued
+ * fields, array-valued fields and the elements of arrays of records or
+ * arrays.  Other composites (strings, collections) aren't followed.
+ *
+ * All reads are frozen reads in the prevailing context, so running the
+ * walk in a read-only snapshot sees a single consistent graph.
+ */
+
+#ifndef CORE_SCAN_H_
+#define CORE_SCAN_H_
+
+#include "core/core_fwd.h"
+#include "core/core_naming.h"
+#include "core/core_record.h"
+#include "core/core_array.h"
+#include <unordered_set>
+#include <vector>
+
+namespace mds {
+  namespace core {
+
+    class graph_scan {
+      using record_val = kind_mv<kind::RECORD>;
+      using array_val = kind_mv<kind::ARRAY>;
+
+      /*
+       * If not null, only records of this type (or a subtype) are
+       * reported, although all records are followed.
+       */
+      const gc_ptr<const record_type> _type;
+      /*
+       * The agendas are explicit stacks, so a long chain of records
+       * doesn't use up the native stack.
+       */
+      std::vector<record_val> _records;
+      std::vector<array_val> _arrays;
+      std::unordered_set<gc_ptr<managed_record>> _seen_records;
+      std::unordered_set<gc_ptr<managed_array_base>> _seen_arrays;
+
+      void add(const record_val &r) {
+        if (r.value != nullptr && _seen_records.insert(r.value).second) {
+          _records.push_back(r);
+        }
+      }
+
+      void add(const array_val &a) {
+        if (a.value != nullptr && _seen_arrays.insert(a.value).second) {
+          _arrays.push_back(a);
+        }
+      }
+
+      void expand(const record_val &r) {
+        for (const gc_ptr<record_field_base> &f : r.value->r_type->fields()) {
+          switch (f->type_kind) {
+          case kind::RECORD:
+            add(std::static_pointer_cast<record_field<kind::RECORD>>(f)
+                ->frozen_read(r.value, r.in_view));
+            break;
+          case kind::ARRAY:
+            add(std::static_pointer_cast<record_field<kind::ARRAY>>(f)
+                ->frozen_read(r.value, r.in_view));
+            break;
+          default:
+            break;
+          }
+        }
+      }
+
+      template <kind K>
+      void expand_elements(const array_val &a) {
+        gc_ptr<managed_array<K>> ma = a.value->template downcast<K>();
+        for (typename managed_array<K>::size_type i = 0; i < ma->size; i++) {
+          add(ma->frozen_read(i, a.in_view));
+        }
+      }
+
+      void expand(const array_val &a) {
+        switch (a.value->elmt_kind) {
+        case kind::RECORD:
+          expand_elements<kind::RECORD>(a);
+          break;
+        case kind::ARRAY:
+          expand_elements<kind::ARRAY>(a);
+          break;
+        default:
+          break;
+        }
+      }
+
+    public:
+      explicit graph_scan(const gc_ptr<const record_type> &type = nullptr)
+        : _type{type}
+      {}
+
+      /*
+       * Adds the values bound in ns and the namespaces below it as
+       * roots.
+       */
+      void add_roots(const gc_ptr<name_space> &ns, const gc_ptr<view> &v) {
+        ns->for_each_value_below(v, [this](const binding &b) {
+            switch (b.value_kind()) {
+            case kind::RECORD:
+              add(b.value<kind::RECORD>());
+              break;
+            case kind::ARRAY:
+              add(b.value<kind::ARRAY>());
+              break;
+            default:
+              break;
+            }
+          });
+      }
+
+      /*
+       * Calls fn(record) once for each matching record reachable from
+       * the roots.  If fn returns false, the walk stops and run()
+       * returns false.  Records are visited depth first, but nothing
+       * else about the order is promised.
+       */
+      template <typename Fn>
+      bool run(Fn &&fn) {
+        while (!_records.empty() || !_arrays.empty()) {
+          if (!_arrays.empty()) {
+            array_val a = _arrays.back();
+            _arrays.pop_back();
+            expand(a);
+            continue;
+          }
+          record_val r = _records.back();
+          _records.pop_back();
+          if (_type == nullptr || _type->is_super_of(r.value->r_type)) {
+            if (!fn(r)) {
+              return false;
+            }
+          }
+          expand(r);
+        }
+        return true;
+      }
+    };
+  }
+}
+
+#endif /* CORE_SCAN_H_ */
@@ -0,0 +1,393 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/*
+ * core_set.h
+ *
+ * Hash sets of managed values.  As with maps (see core_map.h), each
+ * element gets its own MSV saying whether it is present, so conflicts
+ * are detected element by element: two contexts that add or remove
+ * different elements never conflict.  The element table and the chain
+ * of entries are only ever added to, with CAS.
+ */
+
+#ifndef CORE_SET_H_
+#define CORE_SET_H_
+
+#include "core/core_fwd.h"
+#include "core/core_container.h"
+#include "core/core_msv.h"
+#include "core/core_typed_msv.h"
+#include "core/core_context.h"
+#include "ruts/cas_loop.h"
+#include "mpgc/gc.h"
+#include <atomic>
+#include <cmath>
+#include <cstdint>
+#include <cstring>
+#include <limits>
+#include <type_traits>
+
+namespace mds {
+  namespace core {
+
+    template <kind EK> class managed_hash_set;
+
+    namespace set_key_detail {
+      template <typename T>
+      inline std::enable_if_t<std::is_integral<T>::value, std::uint64_t>
+      bits(T v) {
+        return static_cast<std::uint64_t>(v);
+      }
+
+      /*
+       * As with Java's Float.equals() and Double.equals(), all NaNs are
+       * the same element, but 0.0 and -0.0 are different ones.
+       */
+      inline std::uint64_t bits(float v) {
+        if (std::isnan(v)) {
+          v = std::numeric_limits<float>::quiet_NaN();
+        }
+        std::uint32_t b;
+        std::memcpy(&b, &v, sizeof(b));
+        return b;
+      }
+
+      inline std::uint64_t bits(double v) {
+        if (std::isnan(v)) {
+          v = std::numeric_limits<double>::quiet_NaN();
+        }
+        std::uint64_t b;
+        std::memcpy(&b, &v, sizeof(b));
+        return b;
+      }
+    }
+
+    /*
+     * What an element is looked up by.  Primitives are keyed by their
+     * bit pattern, widened to 64 bits.  Strings and records are keyed
+     * by identity, which is enough since strings are interned and a
+     * record is only equal to itself.
+     */
+    template <kind EK, typename Enable = void>
+    struct set_key {
+      using type = kind_mv<EK>;
+      static type of(const kind_mv<EK> &v) {
+        return v;
+      }
+    };
+
+    template <kind EK>
+    struct set_key<EK, std::enable_if_t<std::is_arithmetic<kind_mv<EK>>::value>> {
+      using type = std::uint64_t;
+      static type of(const kind_mv<EK> &v) {
+        return set_key_detail::bits(v);
+      }
+    };
+
+    template <kind EK>
+    struct container_traits<managed_hash_set<EK>> {
+      static constexpr container_shape shape = container_shape::hash_set;
+      static constexpr kind key_kind = EK;
+      static constexpr kind elt_kind = EK;
+    };
+
+    class managed_set : public managed_container
+    {
+    public:
+      managed_set(gc_token &gc, kind ek)
+        : managed_container{gc, container_shape::hash_set, ek, ek}
+      {
+        stats::count(stats::alloc::collection);
+      }
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(managed_set)
+          .WITH_SUPER(managed_container);
+        return d;
+      }
+
+      template <kind K>
+      gc_ptr<managed_hash_set<K>> downcast() {
+        return managed_container::downcast<managed_hash_set<K>>();
+      }
+    };
+
+    template <kind EK>
+    class managed_hash_set : public managed_set
+    {
+    public:
+      using elt_type = kind_mv<EK>;
+      using key_type = typename set_key<EK>::type;
+    private:
+      struct entry : gc_allocated {
+        const elt_type _elt;
+        const gc_ptr<typed_msv<kind::BOOL>> _present;
+        /*
+         * The next older entry.  Entries are never removed (removing an
+         * element just clears _present), so this chain lists every
+         * element that has ever been in the set.
+         */
+        gc_ptr<entry> _next;
+
+        entry(gc_token &gc, const elt_type &e)
+          : gc_allocated{gc},
+            _elt{e},
+            _present{make_gc<typed_msv<kind::BOOL>>()}
+        {}
+
+        static const auto &descriptor() {
+          static gc_descriptor d =
+            GC_DESC(entry)
+            .WITH_FIELD(&entry::_elt)
+            .WITH_FIELD(&entry::_present)
+            .WITH_FIELD(&entry::_next);
+          return d;
+        }
+      };
+      using map_t = small_gc_cuckoo_map<key_type, gc_ptr<entry>>;
+      gc_ptr<map_t> _map;
+      std::atomic<gc_ptr<entry>> _entries{nullptr};
+
+      void link(const gc_ptr<entry> &e) {
+        while (true) {
+          gc_ptr<entry> head = _entries;
+          e->_next = head;
+          if (ruts::try_change_value(_entries, head, e)) {
+            return;
+          }
+        }
+      }
+
+      template <typename Fn>
+      gc_ptr<entry> lookup(const elt_type &elt, Fn &&create_if_null) {
+        key_type k = set_key<EK>::of(elt);
+        gc_ptr<entry> e = _map->get(k);
+        if (e != nullptr || !std::forward<Fn>(create_if_null)()) {
+          return e;
+        }
+        e = make_gc<entry>(elt);
+        auto rr = _map->put_new(k, e);
+        if (rr.had_value) {
+          return _map->get(k);
+        }
+        link(e);
+        return e;
+      }
+
+      /*
+       * As with maps, a failed membership test still has to create the
+       * entry when the view needs to detect a later add as a conflict.
+       */
+      gc_ptr<entry> lookup_for_read(const elt_type &elt, const gc_ptr<view> &sv) {
+        return lookup(elt, [&]{ return sv->need_msv_on_initial_read(); });
+      }
+
+      gc_ptr<entry> lookup_for_write(const elt_type &elt) {
+        return lookup(elt, []{ return true; });
+      }
+
+      bool contains_in(const elt_type &elt, const gc_ptr<view> &sv) {
+        gc_ptr<entry> e = lookup_for_read(elt, sv);
+        return e != nullptr && e->_present->frozen_read(sv);
+      }
+
+      bool add_in(const elt_type &elt, const gc_ptr<view> &sv) {
+        gc_ptr<entry> e = lookup_for_write(elt);
+        if (e->_present->frozen_read(sv)) {
+          return false;
+        }
+        e->_present->write(sv, true);
+        return true;
+      }
+
+      bool remove_in(const elt_type &elt, const gc_ptr<view> &sv) {
+        gc_ptr<entry> e = lookup_for_read(elt, sv);
+        if (e == nullptr || !e->_present->frozen_read(sv)) {
+          return false;
+        }
+        e->_present->write(sv, false);
+        return true;
+      }
+
+    public:
+      managed_hash_set(gc_token &gc, std::size_t expected_size)
+        : managed_set{gc, EK},
+          _map{make_gc<map_t>(expected_size < 10 ? 10 : expected_size)}
+      {}
+
+      static const auto &descriptor() {
+        static gc_descriptor d =
+          GC_DESC(managed_hash_set)
+          .template WITH_SUPER(managed_set)
+          .template WITH_FIELD(&managed_hash_set::_map)
+          .template WITH_FIELD(&managed_hash_set::_entries);
+        return d;
+      }
+
+      static managed_value<managed_hash_set> create(std::size_t expected_size) {
+        gc_ptr<managed_hash_set> s = make_gc<managed_hash_set>(expected_size);
+        gc_ptr<view> v = iso_context::shadowed(top_level_view);
+        return managed_value<managed_hash_set>{s, v};
+      }
+
+      static key_type key_of(const elt_type &elt) {
+        return set_key<EK>::of(elt);
+      }
+
+      bool contains(const elt_type &elt, const gc_ptr<view> &v) {
+        return contains_in(elt, iso_context::shadowed(v));
+      }
+
+      /*
+       * Returns true if the element was added.
+       */
+      bool add(const elt_type &elt, const gc_ptr<view> &v) {
+        return add_in(elt, iso_context::shadowed(v));
+      }
+
+      /*
+       * Returns true if the element was present.
+       */
+      bool remove(const elt_type &elt, const gc_ptr<view> &v) {
+        return remove_in(elt, iso_context::shadowed(v));
+      }
+
+      /*
+       * The bulk operations resolve the view once for the whole batch.
+       * Each element is still its own conflict point.
+       */
+      template <typename Iter, typename Conv>
+      bool contains_all(Iter from, Iter to, Conv &&conv, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        for (; from != to; ++from) {
+          if (!contains_in(conv(*from), sv)) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      /*
+       * Returns the number of elements that weren't already there.
+       */
+      template <typename Iter, typename Conv>
+      std::size_t add_all(Iter from, Iter to, Conv &&conv, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        std::size_t n = 0;
+        for (; from != to; ++from) {
+          if (add_in(conv(*from), sv)) {
+            n++;
+          }
+        }
+        return n;
+      }
+
+      /*
+       * Returns the number of elements that were there.
+       */
+      template <typename Iter, typename Conv>
+      std::size_t remove_all(Iter from, Iter to, Conv &&conv, const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        std::size_t n = 0;
+        for (; from != to; ++from) {
+          if (remove_in(conv(*from), sv)) {
+            n++;
+          }
+        }
+        return n;
+      }
+
+      /*
+       * Removes every present element for which pred(elt) is true and
+       * returns how many there were.
+       */
+      template <typename Pred>
+      std::size_t remove_if(const gc_ptr<view> &v, Pred &&pred) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        std::size_t n = 0;
+        for (gc_ptr<entry> e = _entries; e != nullptr; e = e->_next) {
+          if (e->_present->frozen_read(sv) && pred(e->_elt)) {
+            e->_present->write(sv, false);
+            n++;
+          }
+        }
+        return n;
+      }
+
+      /*
+       * Calls fn(elt) for up to max elements present in the view,
+       * newest first.  If after is not null, the walk starts with the
+       * element added just before *after.  Returns false once there
+       * are no more elements to visit.
+       */
+      template <typename Fn>
+      bool for_each(const gc_ptr<view> &v, const elt_type *after,
+                    std::size_t max, Fn &&fn)
+      {
+        gc_ptr<entry> e;
+        if (after == nullptr) {
+          e = _entries;
+        } else {
+          gc_ptr<entry> prev = _map->get(key_of(*after));
+          e = prev == nullptr ? nullptr : prev->_next;
+        }
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        std::size_t n = 0;
+        for (; e != nullptr && n < max; e = e->_next) {
+          if (e->_present->frozen_read(sv)) {
+            fn(e->_elt);
+            n++;
+          }
+        }
+        return e != nullptr;
+      }
+
+      /*
+       * Linear in the number of elements ever added; see the comment on
+       * managed_string_map::size().
+       */
+      std::size_t size(const gc_ptr<view> &v) {
+        gc_ptr<view> sv = iso_context::shadowed(v);
+        std::size_t n = 0;
+        for (gc_ptr<entry> e = _entries; e != nullptr; e = e->_next) {
+          if (e->_present->frozen_read(sv)) {
+            n++;
+          }
+        }
+        return n;
+      }
+
+      void clear(const gc_ptr<view> &v) {
+        remove_if(v, [](const elt_type &) { return true; });
+      }
+    };
+
+  }
+}
+
+#endif /* CORE_SET_H_ */
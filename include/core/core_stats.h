@@ -0,0 +1,187 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+
+/*
+ * core_stats.h
+ *
+ * Per-process performance counters.  Each thread bumps its own block of
+ * counters with relaxed loads and stores, so counting costs about as
+ * much as incrementing a local.  Reading sums every thread's block, so
+ * it's only meant to be done on demand.
+ *
+ * A thread's block is linked onto a global list the first time it
+ * counts anything and is never freed, so the totals include threads
+ * that have since exited.  The blocks are in the process's own heap
+ * rather than the managed heap: these count what this process did, not
+ * what happened to the heap.
+ */
+
+#ifndef CORE_STATS_H_
+#define CORE_STATS_H_
+
+#include <array>
+#include <atomic>
+#include <cstddef>
+#include <cstdint>
+
+namespace mds {
+  namespace core {
+    namespace stats {
+
+      /*
+       * E is an enum class whose last enumerator is n_counters.
+       */
+      template <typename E>
+      class per_thread_counters {
+      public:
+        static constexpr std::size_t size = static_cast<std::size_t>(E::n_counters);
+        using totals_type = std::array<std::uint64_t, size>;
+      private:
+        struct block {
+          std::array<std::atomic<std::uint64_t>, size> vals;
+          block *next = nullptr;
+          block() {
+            for (auto &v : vals) {
+              v.store(0, std::memory_order_relaxed);
+            }
+          }
+        };
+
+        static std::atomic<block *> &head() {
+          static std::atomic<block *> h{nullptr};
+          return h;
+        }
+
+        static block &mine() {
+          static thread_local block *b = nullptr;
+          if (b == nullptr) {
+            b = new block;
+            block *h = head().load();
+            do {
+              b->next = h;
+            } while (!head().compare_exchange_weak(h, b));
+          }
+          return *b;
+        }
+
+      public:
+        /*
+         * Only this thread writes its block, so there's no need for
+         * an atomic add.  The atomic type just keeps readers from
+         * seeing a torn value.
+         */
+        static void add(E e, std::uint64_t n = 1) {
+          std::atomic<std::uint64_t> &v = mine().vals[static_cast<std::size_t>(e)];
+          v.store(v.load(std::memory_order_relaxed)+n, std::memory_order_relaxed);
+        }
+
+        static std::uint64_t total(E e) {
+          std::uint64_t sum = 0;
+          for (block *b = head().load(); b != nullptr; b = b->next) {
+            sum += b->vals[static_cast<std::size_t>(e)].load(std::memory_order_relaxed);
+          }
+          return sum;
+        }
+
+        static totals_type totals() {
+          totals_type sums{};
+          for (block *b = head().load(); b != nullptr; b = b->next) {
+            for (std::size_t i=0; i<size; i++) {
+              sums[i] += b->vals[i].load(std::memory_order_relaxed);
+            }
+          }
+          return sums;
+        }
+      };
+
+      enum class event : std::size_t {
+        publish_attempt,
+        publish_success,
+        publish_failure,
+        redo_task,
+        rollup,
+        n_counters
+      };
+
+      using core_counters = per_thread_counters<event>;
+
+      inline void count(event e, std::uint64_t n = 1) {
+        core_counters::add(e, n);
+      }
+
+      inline std::uint64_t total(event e) {
+        return core_counters::total(e);
+      }
+
+      /*
+       * Each thread's shadow_cache (core_context.h).  Lookups are
+       * satisfied by the most recent entry, by the context's map, or
+       * by finding the shadow.  Evictions count entries dropped from
+       * either level of the cache.
+       */
+      enum class shadow_event : std::size_t {
+        recent_hit,
+        map_hit,
+        miss,
+        eviction,
+        n_counters
+      };
+
+      using shadow_counters = per_thread_counters<shadow_event>;
+
+      inline void count(shadow_event e, std::uint64_t n = 1) {
+        shadow_counters::add(e, n);
+      }
+
+      /*
+       * Managed-heap objects created by this process, by what they're
+       * for.  These are counted in constructors, so they don't say
+       * what's still live.  The ordinals match
+       * com.hpl.mds.MemStats.Category.
+       */
+      enum class alloc : std::size_t {
+        record,
+        array,
+        collection,
+        string,
+        msv,
+        value_chain,
+        value,
+        n_counters
+      };
+
+      using alloc_counters = per_thread_counters<alloc>;
+
+      inline void count(alloc a) {
+        alloc_counters::add(a);
+      }
+
+    }
+  }
+}
+
+#endif /* CORE_STATS_H_ */
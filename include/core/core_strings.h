@@ -35,6 +35,10 @@
 #define CORE_STRINGS_H_
 
 #include <iterator>
+#include <atomic>
+#include <algorithm>
+#include <limits>
+#include <memory>
 #include "core/core_globals.h"
 #include "mpgc/gc_cuckoo_map.h"
 #include "ruts/uniform_key.h"
@@ -69,7 +73,9 @@ namespace mds {
       template <typename Iter>
       interned_string(gc_token &gc, const uniform_key &k,const Iter &from, const Iter &to)
       : gc_allocated{gc}, ruts::with_uniform_id{k}, _value{make_gc_array<char_type>(from, to)}
-      {}
+      {
+        stats::count(stats::alloc::string);
+      }
       static const auto &descriptor() {
         static gc_descriptor d =
 	  GC_DESC(interned_string)
@@ -138,6 +144,45 @@ namespace mds {
 
     };
 
+    /*
+     * A point-in-time view of the string table's counters.  The sizes describe
+     * the shared table, but lookups, hits and races are counted only for
+     * interning done by this process.  The counters are updated without
+     * synchronization with respect to one another, so the numbers may be very
+     * slightly inconsistent while other threads are interning.
+     */
+    struct string_table_stats {
+      std::size_t n_shards;
+      std::size_t n_strings;
+      std::size_t capacity;
+      std::size_t lookups;
+      std::size_t hits;
+      std::size_t insert_races;
+      std::size_t min_shard_size;
+      std::size_t max_shard_size;
+
+      double load() const {
+        return capacity == 0 ? 0.0 : double(n_strings)/capacity;
+      }
+      double hit_ratio() const {
+        return lookups == 0 ? 0.0 : double(hits)/lookups;
+      }
+      /*
+       * The ratio of the fullest shard to the mean shard.  1.0 means the keys
+       * are perfectly spread.
+       */
+      double shard_skew() const {
+        return n_strings == 0 ? 1.0 : double(max_shard_size)*n_shards/n_strings;
+      }
+    };
+
+    /*
+     * The table is split into a number of independent shards, each of which is
+     * a (lock-free) cuckoo map.  The shard is chosen from the second hash of
+     * the string's uniform key, which is independent of the bits the cuckoo map
+     * uses to pick its buckets, so shards stay evenly loaded and concurrent
+     * interning of different strings rarely touches the same map.
+     */
     template <std::size_t Segments=10>
     class interned_string_table : public gc_allocated {
     public:
@@ -164,23 +209,81 @@ namespace mds {
       using map_type = gc_cuckoo_map<key_type, value_type,
                                      cuckoo_map_traits<key_type, value_type>,
                                      Segments>;
-      const gc_ptr<map_type> _map;
+
+      struct shard : gc_allocated {
+        const gc_ptr<map_type> map;
+        std::atomic<std::size_t> n_entries{0};
+
+        shard(gc_token &gc, std::size_t cap)
+          : gc_allocated{gc}, map{make_gc<map_type>(cap)}
+        {}
+
+        static const auto &descriptor() {
+          static gc_descriptor d =
+            GC_DESC(shard)
+            .template WITH_FIELD(&shard::map)
+            .template WITH_FIELD(&shard::n_entries);
+          return d;
+        }
+      };
+
+      using shard_array = gc_array<gc_ptr<shard>>;
+
+      /*
+       * Statistics.  These live in ordinary process memory rather than in the
+       * shared heap, one cache line per shard, so that interning threads in
+       * different processes (or on different shards) never contend on them.
+       * They are only ever incremented, and only with relaxed ordering.
+       */
+      struct alignas(64) shard_counters {
+        std::atomic<std::size_t> lookups{0};
+        std::atomic<std::size_t> hits{0};
+        std::atomic<std::size_t> insert_races{0};
+      };
+
+      const std::size_t _capacity;
+      const gc_ptr<shard_array> _shards;
+
       constexpr static const char_type *ncp_() {
         return nullptr;
       }
 //      constexpr static char_type *ncp = nullptr;
       const value_type _empty_string = make_gc<interned_string>(compute_key(ncp_(), ncp_()), ncp_(), ncp_());
 
+      static gc_ptr<shard_array> make_shards(std::size_t n, std::size_t cap) {
+        gc_ptr<shard_array> a = make_gc_array<gc_ptr<shard>>(n);
+        /*
+         * Round up, so that the total capacity is at least what was asked for.
+         */
+        std::size_t per_shard = (cap+n-1)/n;
+        for (std::size_t i=0; i<n; i++) {
+          a->at(i) = make_gc<shard>(per_shard);
+        }
+        return a;
+      }
+
+      std::size_t shard_index(const uniform_key &key) const {
+        return key.hash2() % _shards->size();
+      }
+
+      shard_counters &counters_for(std::size_t i) const {
+        static std::unique_ptr<shard_counters[]> counters{new shard_counters[n_shards()]};
+        return counters[i];
+      }
+
     public:
-      interned_string_table(gc_token &gc, std::size_t default_cap)
+      interned_string_table(gc_token &gc, std::size_t default_cap,
+                            std::size_t n_shards = 1)
     : gc_allocated{gc},
-      _map{make_gc<map_type>(default_cap)}
+      _capacity{default_cap},
+      _shards{make_shards(n_shards == 0 ? 1 : n_shards, default_cap)}
     {}
 
     static const auto &descriptor() {
       static gc_descriptor d =
 	GC_DESC(interned_string_table)
-	.template WITH_FIELD(&interned_string_table::_map)
+	.template WITH_FIELD(&interned_string_table::_capacity)
+	.template WITH_FIELD(&interned_string_table::_shards)
 	.template WITH_FIELD(&interned_string_table::_empty_string);
       return d;
     }
@@ -189,6 +292,33 @@ namespace mds {
       return _empty_string;
     }
 
+    std::size_t n_shards() const {
+      return _shards->size();
+    }
+
+    string_table_stats stats() const {
+      string_table_stats s;
+      s.n_shards = n_shards();
+      s.capacity = _capacity;
+      s.lookups = 0;
+      s.hits = 0;
+      s.insert_races = 0;
+      s.n_strings = 0;
+      s.min_shard_size = std::numeric_limits<std::size_t>::max();
+      s.max_shard_size = 0;
+      for (std::size_t i=0; i<_shards->size(); i++) {
+        std::size_t n = _shards->at(i)->n_entries.load(std::memory_order_relaxed);
+        s.n_strings += n;
+        s.min_shard_size = std::min(s.min_shard_size, n);
+        s.max_shard_size = std::max(s.max_shard_size, n);
+        const shard_counters &c = counters_for(i);
+        s.lookups += c.lookups.load(std::memory_order_relaxed);
+        s.hits += c.hits.load(std::memory_order_relaxed);
+        s.insert_races += c.insert_races.load(std::memory_order_relaxed);
+      }
+      return s;
+    }
+
     template <typename Iter>
     value_type intern(const Iter &from, const Iter &to) {
       using namespace mds;
@@ -199,21 +329,55 @@ namespace mds {
        * Whatever the iterator, we want to treat it as if it's pointing to a char16_t;
        */
       uniform_key key = compute_key(from, to);
-      gc_ptr<interned_string> s = _map->get(key);
+      std::size_t i = shard_index(key);
+      shard &sh = *_shards->at(i);
+      shard_counters &c = counters_for(i);
+      c.lookups.fetch_add(1, std::memory_order_relaxed);
+      gc_ptr<interned_string> s = sh.map->get(key);
       if (s != nullptr) {
+        c.hits.fetch_add(1, std::memory_order_relaxed);
         return s;
       }
       s = make_gc<interned_string>(key, from, to);
-      auto rr = _map->put_new(key, s);
+      auto rr = sh.map->put_new(key, s);
       // if
       if (rr.had_value) {
         // Somebody else put it in while we were constructing it
+        c.insert_races.fetch_add(1, std::memory_order_relaxed);
         return rr.old_value;
       } else {
+        sh.n_entries.fetch_add(1, std::memory_order_relaxed);
         return s;
       }
     }
 
+    /*
+     * Like intern(), but never adds to the table: returns null if the
+     * string has never been interned.  A string that isn't in the
+     * table can't be a key in any map or set, so reads use this to
+     * avoid leaving every missed key behind in persistent memory.
+     */
+    template <typename Iter>
+    value_type find(const Iter &from, const Iter &to) {
+      using namespace mds;
+      if (from == to) {
+        return _empty_string;
+      }
+      uniform_key key = compute_key(from, to);
+      std::size_t i = shard_index(key);
+      shard_counters &c = counters_for(i);
+      c.lookups.fetch_add(1, std::memory_order_relaxed);
+      gc_ptr<interned_string> s = _shards->at(i)->map->get(key);
+      if (s != nullptr) {
+        c.hits.fetch_add(1, std::memory_order_relaxed);
+      }
+      return s;
+    }
+
+    value_type find(const char16_t *chars, std::size_t len) {
+      return chars == nullptr ? _empty_string : find(chars, chars+len);
+    }
+
     value_type intern(const char *chars, std::size_t len) {
       return chars == nullptr ? _empty_string : intern(chars, chars+len);
     }
@@ -292,6 +456,14 @@ namespace mds {
       return string_table->intern(s.begin(), s.end());
     }
 
+    inline gc_ptr<interned_string> find_interned(const char16_t *chars, std::size_t len) {
+      return string_table->find(chars, len);
+    }
+
+    inline string_table_stats intern_stats() {
+      return string_table->stats();
+    }
+
       template <typename C, typename T>
       std::basic_ostream<C, T> &
       operator <<(std::basic_ostream<C, T> &os, const gc_ptr<interned_string> &s) {
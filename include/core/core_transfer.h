@@ -0,0 +1,118 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+
+/*
+ * core_transfer.h
+ *
+ * Streaming export and import of everything reachable from a namespace
+ * subtree: the bindings, the records and arrays they lead to, the
+ * strings in them and the record types needed to recreate them.
+ *
+ * The stream is a magic number and a format version followed by
+ * tagged entries, with integers as LEB128 varints (zigzagged if
+ * signed) and floats as little-endian IEEE bits:
+ *
+ *   types   n, n x (name, super+1), n x fields
+ *           (the record types first reached by what follows, supertypes
+ *           before subtypes; fields are name, kind, and the record type
+ *           or element kind they need)
+ *   bind    path length, path names, kind, value
+ *   record  id, one value per field of its type
+ *   array   id, start, count, count values
+ *   end
+ *
+ * Records and arrays are values by id.  The first mention of one
+ * carries what's needed to create it (its type, or its element kind
+ * and size), so the importer can create it there and fill it in when
+ * its body comes along.  Large arrays are written a chunk at a time.
+ *
+ * Both directions run in bounded buffers.  What grows with the size of
+ * the graph is the table mapping records and arrays to ids.
+ *
+ * Supported values are the primitives, strings, records and arrays of
+ * those.  Fields of other kinds (collections, arrays of arrays) aren't
+ * exported, and such values bound in a namespace are skipped.  On
+ * import, a record type that already exists is used as is: values for
+ * fields it doesn't have are dropped, and a field of a different kind
+ * is an incompatible_type_ex.
+ */
+
+#ifndef CORE_TRANSFER_H_
+#define CORE_TRANSFER_H_
+
+#include "core/core_fwd.h"
+#include <cstdint>
+#include <functional>
+#include <string>
+
+namespace mds {
+  namespace core {
+
+    /*
+     * Thrown by import when the stream isn't one that export wrote (or
+     * was cut short).
+     */
+    struct transfer_format_ex {
+      std::string desc;
+    };
+
+    namespace transfer {
+      constexpr std::uint32_t format_version = 1;
+
+      /*
+       * Export hands each buffer-full to the sink.  Import asks the
+       * source to fill its buffer and treats 0 as the end.
+       */
+      using sink = std::function<void (const std::uint8_t *, std::size_t)>;
+      using source = std::function<std::size_t (std::uint8_t *, std::size_t)>;
+
+      struct counts {
+        std::size_t bindings = 0;
+        std::size_t records = 0;
+        std::size_t arrays = 0;
+        std::size_t types = 0;
+      };
+
+      /*
+       * Reads are frozen reads in the prevailing context, so this
+       * should be run in a read-only snapshot.
+       */
+      counts export_namespace(const gc_ptr<name_space> &ns, const gc_ptr<view> &v,
+                              const sink &out, std::size_t buffer_size);
+
+      /*
+       * Paths in the stream are taken relative to ns, creating
+       * namespaces as needed.  Writes go to the prevailing context, so
+       * this should be run in a context that's published afterwards.
+       */
+      counts import_namespace(const gc_ptr<name_space> &ns, const gc_ptr<view> &v,
+                              const source &in, std::size_t buffer_size);
+    }
+  }
+}
+
+#endif /* CORE_TRANSFER_H_ */
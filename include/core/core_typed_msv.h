@@ -446,6 +446,35 @@ namespace mds {
 
       bool has_value(const gc_ptr<view> &v,
                      timestamp_t as_of = most_recent);
+      /*
+       * True if no view but the top-level one has a value chain here,
+       * there are no rollups waiting, and the top-level value is val
+       * with no live snapshot old enough to see an earlier one.
+       * Containers use this to tell when an entry can be dropped from
+       * their walks.
+       */
+      bool settled_at(const val_type &val) {
+        process_rollups();
+        if (n_pending_rollups() != 0) {
+          return false;
+        }
+        /*
+         * The array first, since it's cleared after a map replaces it.
+         */
+        vc_array_ptr_t a = _vc_array.contents();
+        if (a[replaced_by_map] || (a != nullptr && !a->at(0).expired())
+            || _vc_map.load() != nullptr)
+        {
+          return false;
+        }
+        gc_ptr<value_chain> tlvc = _top_level_vc;
+        gc_ptr<value> vn = tlvc == nullptr ? nullptr : tlvc->value_at(most_recent);
+        if (vn == nullptr) {
+          return val == val_type{};
+        }
+        return !vn->marks_publish() && vn->val == val
+          && !snapshot_between(vn->timestamp(), 0);
+      }
       val_type free_read(const gc_ptr<view> &v,
                          timestamp_t as_of = most_recent);
       val_type frozen_read(const gc_ptr<view> &v);
@@ -117,6 +117,27 @@ namespace mds {
      core::ensure_process_registered();
    }
 
+   /*
+    * Counts of what the core has done in this process.  See
+    * core_stats.h.
+    */
+   using core_event = core::stats::event;
+   using core::stats::core_counters;
+   using core::stats::shadow_counters;
+
+   /*
+    * Opt-in tracing of the MSVs behind failed publishes.  See
+    * core_conflict.h.
+    */
+   namespace conflict_trace = core::conflict_trace;
+   namespace msv_sites = core::msv_sites;
+   using core::msv_site_kind;
+
+   /*
+    * Background processing of pending rollups.  See core_msv.h.
+    */
+   namespace rollup_compaction = core::rollup_compaction;
+
    namespace mem_stats {
      inline std::size_t bytes_in_heap() {
        mpgc::initialize();
@@ -142,7 +163,40 @@ namespace mds {
        mpgc::initialize();
        return mpgc::control_block().mem_stats.n_objects();
      }
-     
+
+     /*
+      * The heap-wide figures read together.  They're read again if a
+      * GC cycle ended while we were reading, so they all describe the
+      * same cycle.  (bytes_in_use moves with every allocation, so it's
+      * as of the start.)
+      */
+     struct snapshot {
+       std::size_t bytes_in_heap;
+       std::size_t bytes_in_use;
+       std::size_t gc_cycle_number;
+       std::size_t n_processes;
+       std::size_t n_objects;
+
+       snapshot() {
+         mpgc::initialize();
+         auto &ms = mpgc::control_block().mem_stats;
+         bytes_in_use = ms.bytes_in_use();
+         std::size_t cycle;
+         do {
+           cycle = ms.cycle_number();
+           bytes_in_heap = ms.bytes_in_heap();
+           n_processes = ms.n_processes();
+           n_objects = ms.n_objects();
+         } while (ms.cycle_number() != cycle);
+         gc_cycle_number = cycle;
+       }
+     };
+
+     /*
+      * Objects created by this process, by category.  See core_stats.h.
+      */
+     using alloc = core::stats::alloc;
+     using core::stats::alloc_counters;
    }
 
 
@@ -232,6 +286,16 @@ namespace mds {
    template <kind K> using array_type_handle = array_type_handle_cp<K, false>;
    template <kind K> using const_array_type_handle = array_type_handle_cp<K, true>;
    template <kind K> using array_size_type = typename mds::core::array_type<K>::size_type;
+   using array_layout = core::array_layout;
+
+   template <bool ConstP> class managed_container_handle_cp;
+   using managed_container_handle = managed_container_handle_cp<false>;
+   using const_managed_container_handle = managed_container_handle_cp<true>;
+
+   template <bool ConstP> class container_type_handle_cp;
+   using container_type_handle = container_type_handle_cp<false>;
+   using const_container_type_handle = container_type_handle_cp<true>;
+   using container_shape = core::container_shape;
 
    template <bool ConstP> class namespace_handle_cp;
    using namespace_handle = namespace_handle_cp<false>;
@@ -267,6 +331,10 @@ namespace mds {
    struct type_handle_traits<kind::RECORD, ConstP> {
      using type = record_type_handle_cp<ConstP>;
    };
+   template <bool ConstP>
+   struct type_handle_traits<kind::CONTAINER, ConstP> {
+     using type = container_type_handle_cp<ConstP>;
+   };
 
    template <kind K> using type_handle_for = typename type_handle_traits<K,false>::type;
    template <kind K> using const_type_handle_for = typename type_handle_traits<K,true>::type;
@@ -483,6 +551,15 @@ namespace mds {
        return _view;
      }
 
+     /*
+      * True if a read of a missing key or element has to leave an
+      * entry behind so that a later insertion can be seen as a
+      * conflict.
+      */
+     bool tracks_missing_reads() const {
+       return core::iso_context::shadowed(_view)->need_msv_on_initial_read();
+     }
+
      template <typename X = T, typename = std::enable_if_t<std::is_base_of<X, T>::value>>
      auto to_core_val() const {
        return core::managed_value<X>(pointer(), view());
@@ -835,6 +912,14 @@ namespace mds {
      return interned_string_handle{core::intern(chars)};
    }
 
+   /*
+    * Returns a null handle if the string has never been interned.
+    */
+   inline interned_string_handle find_interned(const char16_t *chars, std::size_t len) {
+     ensure_process_registered();
+     return interned_string_handle{core::find_interned(chars, len)};
+   }
+
    inline interned_string_handle intern(const wchar_t *chars, std::size_t len) {
      ensure_process_registered();
      return interned_string_handle{core::intern(chars, len)};
@@ -852,6 +937,13 @@ namespace mds {
      return interned_string_handle{core::intern(s.begin(), s.end())};
    }
 
+   using core::string_table_stats;
+
+   inline string_table_stats intern_stats() {
+     ensure_process_registered();
+     return core::intern_stats();
+   }
+
    inline
    const interned_string_handle &empty_string_() {
      static interned_string_handle s = intern("");
@@ -1157,6 +1249,26 @@ namespace mds {
        return pointer()->prepare_for_redo();
      }
 
+     /*
+      * Calls fn(record, slot) once for each record field written by
+      * this (successful) publish.  The slot is the field's position in
+      * the record's type.  Only known while msv_sites are wanted.
+      */
+     template <typename Fn>
+     void for_each_published_field(Fn &&fn) const;
+
+     /*
+      * Read-only snapshots of the target just before and just after
+      * this (successful) publish.  Null unless msv_sites are wanted.
+      */
+     iso_context_handle before_publish() const {
+       return pointer()->before();
+     }
+
+     iso_context_handle after_publish() const {
+       return pointer()->after();
+     }
+
    };
 
    template <bool CP>
@@ -1227,6 +1339,22 @@ namespace mds {
    template<>
    struct mv_wrapper<kind::RECORD> : public use_handle<managed_record_handle> {};
 
+   template <bool CP>
+   template <typename Fn>
+   inline void
+   publication_attempt_handle_cp<CP>::for_each_published_field(Fn &&fn) const
+   {
+     for (const core::gc_ptr<core::msv> &m : pointer()->published_msvs()) {
+       core::msv_sites::site site = core::msv_sites::lookup(m);
+       if (site.kind == core::msv_site_kind::record_field) {
+         auto r = std::static_pointer_cast<const core::managed_record>(site.owner);
+         core::vd_value<core::managed_record> rv{std::const_pointer_cast<core::managed_record>(r),
+                                                 core::top_level_view};
+         fn(managed_record_handle{rv}, site.index);
+       }
+     }
+   }
+
    template <kind K, bool ConstP>
    struct record_field_handle_cp
    : public view_independent_handle<htarget_<ConstP,const kind_field<K>>>
@@ -1350,6 +1478,77 @@ namespace mds {
 
      const_record_type_handle rec_type() const;
      const_type_handle_for<K> field_type() const;
+
+     /*
+      * Secondary indexes (see core_index.h).  Lookups are done in the
+      * prevailing context, and throw incompatible_type_ex if the field
+      * isn't indexed (or, for ranges, isn't indexed in order).
+      */
+     using index_kind = core::index_kind;
+     using bound = core::skip_list::bound;
+
+     void ensure_index(index_kind which) const {
+       pointer()->ensure_index(which);
+     }
+
+     bool is_indexed(index_kind which = index_kind::hash) const {
+       auto ix = pointer()->index();
+       return ix != nullptr && ix->serves(which);
+     }
+
+     /*
+      * Calls fn(record) for up to max records whose value for this
+      * field is val, starting after *after (or at the newest if after
+      * is null).  Returns false once there are no more.
+      */
+     template <typename Fn>
+     bool for_each_with(const api_type<K> &val, const managed_record_handle *after,
+                        std::size_t max, Fn &&fn) const
+     {
+       auto ix = checked_index(index_kind::hash);
+       core::kind_mv<kind::RECORD> a{};
+       if (after != nullptr) {
+         a = to_core_val<kind::RECORD>(*after);
+       }
+       return ix->for_each(to_core_val<K>(val), core::top_level_view,
+                           after == nullptr ? nullptr : &a, max,
+                           [&](const core::kind_mv<kind::RECORD> &r) {
+                             fn(managed_record_handle{r});
+                           });
+     }
+
+     std::size_t count_with(const api_type<K> &val) const {
+       return checked_index(index_kind::hash)->count(to_core_val<K>(val), core::top_level_view);
+     }
+
+     /*
+      * Calls fn(value) for up to max distinct values in the range that
+      * some record has (or has had) for this field.  To resume, pass
+      * the last value seen as an exclusive bound.
+      */
+     template <typename Fn>
+     bool for_values(bool descending,
+                     bound lo_b, const api_type<K> &lo,
+                     bound hi_b, const api_type<K> &hi,
+                     std::size_t max, Fn &&fn) const
+     {
+       auto ix = checked_index(index_kind::ordered);
+       core::kind_mv<K> clo = lo_b == bound::none ? core::kind_mv<K>{} : to_core_val<K>(lo);
+       core::kind_mv<K> chi = hi_b == bound::none ? core::kind_mv<K>{} : to_core_val<K>(hi);
+       return ix->for_values(core::top_level_view, descending, lo_b, clo, hi_b, chi, max,
+                             [&](const core::kind_mv<K> &v) {
+                               fn(api_type<K>{v});
+                             });
+     }
+
+   private:
+     core::gc_ptr<core::field_index<K>> checked_index(index_kind which) const {
+       auto ix = pointer()->index();
+       if (ix == nullptr || !ix->serves(which)) {
+         throw core::incompatible_type_ex{};
+       }
+       return ix;
+     }
    };
 
    template <bool ConstP>
@@ -1504,6 +1703,10 @@ namespace mds {
        return pointer()->size;
      }
 
+     bool is_write_once() const {
+       return pointer()->is_write_once();
+     }
+
      managed_array_base_handle_cp<ConstP> as_base() {
        return managed_array_base_handle_cp<ConstP>(pointer(), view());
      }
@@ -1513,192 +1716,874 @@ namespace mds {
    template <>
    struct mv_wrapper<kind::ARRAY> : public use_handle<managed_array_base_handle> {};
 
-   template <kind K, bool ConstP, typename LeafT, typename Enable>
-   struct managed_type_handle_cp: public view_independent_handle<htarget_<ConstP, LeafT>>
+   /*
+    * A handle on a map, set or list whose exact class isn't known
+    * statically, as read from a binding, a record field or an array.
+    * as<H>() gets the typed handle, throwing incompatible_type_ex if
+    * the container isn't an H.
+    */
+   template <bool ConstP>
+   struct managed_container_handle_cp
+   : public view_relative_handle<htarget_<ConstP,core::managed_container>>
    {
-     using base = view_independent_handle<htarget_<ConstP, LeafT>>;
+     using base = view_relative_handle<htarget_<ConstP,core::managed_container>>;
      using typename base::value_type;
-     using non_const_type = managed_type_handle_cp<K, false, LeafT, Enable>;
+     using non_const_type = managed_container_handle_cp<false>;
 
-     //     template <bool CP> using when_less_const = typename constness<ConstP>::when_less_const;
-     template <bool CP> using when_less_const = std::enable_if_t<(CP <= ConstP)>;
+     template <bool CP> using when_less_const = typename constness<CP>::when_less_const;
 
      using base::base;
      using base::is_null;
      using base::pointer;
+     using base::view;
 
-     managed_type_handle_cp() = default;
+     managed_container_handle_cp() = default;
 
      template <bool CP, typename = when_less_const<CP> >
-     managed_type_handle_cp(const managed_type_handle_cp<K,CP,LeafT,Enable> &rhs)
+     managed_container_handle_cp(const managed_container_handle_cp<CP> &rhs)
      : base{rhs}
      {}
 
      template <bool CP, typename = when_less_const<CP> >
-     managed_type_handle_cp(managed_type_handle_cp<K,CP,LeafT,Enable> &&rhs)
+     managed_container_handle_cp(managed_container_handle_cp<CP> &&rhs)
      : base{std::move(rhs)}
      {}
 
      template <bool CP, typename = when_less_const<CP> >
-     managed_type_handle_cp &
-     operator =(const managed_type_handle_cp<K,CP,LeafT,Enable> &rhs) {
+     managed_container_handle_cp &
+     operator =(const managed_container_handle_cp<CP> &rhs) {
        base::operator =(rhs);
        return *this;
      }
 
      template <bool CP, typename = when_less_const<CP> >
-     managed_type_handle_cp &
-     operator =(managed_type_handle_cp<K,CP,LeafT,Enable> &&rhs) {
+     managed_container_handle_cp &
+     operator =(managed_container_handle_cp<CP> &&rhs) {
        base::operator =(std::move(rhs));
        return *this;
      }
 
-#if 0
-     std::remove_const_t<value_type> *nc_value() const {
-       value_type *cval = value;
-       return const_cast<std::remove_const_t<value_type> *>(cval);
+     container_shape shape() const {
+       return pointer()->shape;
+     }
+     kind key_kind() const {
+       return pointer()->key_kind;
+     }
+     kind elt_kind() const {
+       return pointer()->elt_kind;
+     }
+     uniform_key uuid() const {
+       return pointer()->uuid();
+     }
+
+     template <typename H>
+     H as() const {
+       if (is_null()) {
+         return H{};
+       }
+       return H{pointer()->template downcast<typename H::value_type>(), view()};
      }
-#endif
-     /*
-      * Throws incompatible_type_ex if the field exists but is of the wrong type
-      *
-      * Throws unmodifiable_record_type_ex if the field doesn't exist, create_if_absent
-      * is true, and the record type is fully created.
-      */
-     // TODO: Add const_record_type_handle variant
-     record_field_handle<K> field_in(const record_type_handle &rtype,
-                                     const interned_string_handle &name,
-                                     bool create_if_absent = true) const;
    };
 
+   template <>
+   struct mv_wrapper<kind::CONTAINER> : public use_handle<managed_container_handle> {};
 
-   template <bool ConstP>
-   struct array_type_base_handle_cp : managed_type_handle_cp<kind::ARRAY, ConstP, core::array_type_base>
+   /*
+    * A handle on a map from strings to values of kind VK.  Conflicts
+    * are detected per key (see core_map.h).
+    */
+   template <kind VK>
+   struct string_map_handle
+     : public view_relative_handle<core::managed_string_map<VK>>
    {
-     using base = managed_type_handle_cp<kind::ARRAY, ConstP, core::array_type_base>;
+     using base = view_relative_handle<core::managed_string_map<VK>>;
      using typename base::value_type;
-     using non_const_type = array_type_base_handle_cp<false>;
-
-     template <bool CP> using when_less_const = typename constness<CP>::when_less_const;
+     using non_const_type = string_map_handle;
 
      using base::base;
      using base::is_null;
      using base::pointer;
+     using base::view;
 
-     array_type_base_handle_cp() = default;
-
-     template <bool CP, typename = when_less_const<CP> >
-     array_type_base_handle_cp(const array_type_base_handle_cp<CP> &rhs)
-     : base{rhs}
-     {}
-
-     template <bool CP, typename = when_less_const<CP> >
-     array_type_base_handle_cp(array_type_base_handle_cp<CP> &&rhs)
-     : base{std::move(rhs)}
-     {}
+     string_map_handle() = default;
 
-     template <bool CP, typename = when_less_const<CP> >
-     array_type_base_handle_cp &
-     operator =(const array_type_base_handle_cp<CP> &rhs) {
-       base::operator =(rhs);
+     string_map_handle ignore_const() const {
        return *this;
      }
 
-     template <bool CP, typename = when_less_const<CP> >
-     array_type_base_handle_cp &
-     operator =(array_type_base_handle_cp<CP> &&rhs) {
-       base::operator =(std::move(rhs));
-       return *this;
+     static string_map_handle create(std::size_t expected_size = 0) {
+       ensure_process_registered();
+       return core::managed_string_map<VK>::create(expected_size);
      }
 
-     template <bool CP>
-     bool is_same_as(const array_type_base_handle_cp<CP> &rhs) const {
-       if (pointer() == rhs.pointer()) {
-         return true;
-       } else if (!is_null()) {
-         return pointer()->compare_types(rhs.pointer());
-       } else {
-         return false;
-       }
-     }
-     template <bool CP>
-     bool operator !=(const array_type_base_handle_cp<CP> &rhs) const {
-       return !operator==(rhs);
+     uniform_key uuid() const {
+       return pointer()->uuid();
      }
-   };
 
+     template <bool C1>
+     bool contains(const interned_string_handle_cp<C1> &key) const {
+       return pointer()->contains(key.pointer(), view());
+     }
 
-   template <kind K, bool ConstP>
-   struct array_type_handle_cp : managed_type_handle_cp<kind::ARRAY, ConstP, core::array_type<K>>
-   {
-     // su - TODO
-     //   1. Add type logic
-     //       managed_type<K> element_type()
-     using base = managed_type_handle_cp<kind::ARRAY, ConstP, core::array_type<K>>;
-     using typename base::value_type;
-     using non_const_type = array_type_handle_cp<K, false>;
+     template <bool C1>
+     api_type<VK> get(const interned_string_handle_cp<C1> &key) const {
+       return pointer()->get(key.pointer(), view());
+     }
 
-     template <bool CP> using when_less_const = typename constness<CP>::when_less_const;
+     template <bool C1>
+     api_type<VK> get_or(const interned_string_handle_cp<C1> &key,
+                         const api_type<VK> &dflt) const
+     {
+       return pointer()->get_or(key.pointer(), view(), to_core_val<VK>(dflt));
+     }
 
-     using base::base;
-     using base::is_null;
-     using base::pointer;
+     /*
+      * Returns the prior value, or the default value (null for
+      * strings and records) if the key wasn't there.
+      */
+     template <bool C1>
+     api_type<VK> put(const interned_string_handle_cp<C1> &key,
+                      const api_type<VK> &val) const
+     {
+       core::kind_mv<VK> prior{};
+       pointer()->put(key.pointer(), view(), to_core_val<VK>(val), &prior);
+       return prior;
+     }
 
-     array_type_handle_cp() = default;
+     /*
+      * Returns the value already there, or the default value if val
+      * was added.
+      */
+     template <bool C1>
+     api_type<VK> put_if_absent(const interned_string_handle_cp<C1> &key,
+                                const api_type<VK> &val) const
+     {
+       core::kind_mv<VK> current{};
+       pointer()->put_if_absent(key.pointer(), view(), to_core_val<VK>(val), &current);
+       return current;
+     }
 
-     template <bool CP, typename = when_less_const<CP> >
-     array_type_handle_cp(const array_type_handle_cp<K,CP> &rhs)
-     : base{rhs}
-     {}
+     template <bool C1>
+     api_type<VK> remove(const interned_string_handle_cp<C1> &key) const {
+       core::kind_mv<VK> prior{};
+       pointer()->remove(key.pointer(), view(), &prior);
+       return prior;
+     }
 
-     template <bool CP, typename = when_less_const<CP> >
-     array_type_handle_cp(array_type_handle_cp<K,CP> &&rhs)
-     : base{std::move(rhs)}
-     {}
+     /*
+      * The *_or variants return dflt rather than the default value
+      * when the key wasn't there, so callers with primitive values can
+      * tell the difference without a second lookup.
+      */
+     template <bool C1>
+     api_type<VK> put_or(const interned_string_handle_cp<C1> &key,
+                         const api_type<VK> &val,
+                         const api_type<VK> &dflt) const
+     {
+       core::kind_mv<VK> prior{};
+       bool was_present = pointer()->put(key.pointer(), view(), to_core_val<VK>(val), &prior);
+       return was_present ? api_type<VK>{prior} : dflt;
+     }
 
-     template <bool CP, typename = when_less_const<CP> >
-     array_type_handle_cp &
-     operator =(const array_type_handle_cp<K,CP> &rhs) {
-       base::operator =(rhs);
-       return *this;
+     template <bool C1>
+     api_type<VK> put_if_absent_or(const interned_string_handle_cp<C1> &key,
+                                   const api_type<VK> &val,
+                                   const api_type<VK> &dflt) const
+     {
+       core::kind_mv<VK> current{};
+       bool added = pointer()->put_if_absent(key.pointer(), view(), to_core_val<VK>(val), &current);
+       return added ? dflt : api_type<VK>{current};
      }
 
-     template <bool CP, typename = when_less_const<CP> >
-     array_type_handle_cp &
-     operator =(array_type_handle_cp<K,CP> &&rhs) {
-       base::operator =(std::move(rhs));
-       return *this;
+     template <bool C1>
+     api_type<VK> remove_or(const interned_string_handle_cp<C1> &key,
+                            const api_type<VK> &dflt) const
+     {
+       core::kind_mv<VK> prior{};
+       bool was_present = pointer()->remove(key.pointer(), view(), &prior);
+       return was_present ? api_type<VK>{prior} : dflt;
      }
 
-     const_managed_type_handle<K> element_type() const {
-       return pointer()->element_type();
+     template <bool C1>
+     api_type<VK> modify(const interned_string_handle_cp<C1> &key,
+                         modify_op op,
+                         const api_type<VK> &arg,
+                         ret_mode returning = ret_mode::resulting_val) const
+     {
+       return pointer()->modify(key.pointer(), view(), op, to_core_val<VK>(arg), returning);
      }
 
-     managed_array_handle<K>
-     create_array(array_size_type<K> s) const {
-       return pointer()->create_array(s);
+     std::size_t size() const {
+       return pointer()->size(view());
      }
 
-     template <bool CP>
-     bool is_same_as(const array_type_handle_cp<K, CP> &rhs) const {
-       if (pointer() == rhs.pointer()) {
-         return true;
-       } else if (!is_null()) {
-         return pointer()->compare_types(rhs.pointer());
-       } else {
-         return false;
-       }
+     void clear() const {
+       pointer()->clear(view());
      }
-     
-     template <bool CP>
-     bool operator !=(const array_type_handle_cp<K, CP> &rhs) const {
-       return !operator==(rhs);
+
+     void modify_all(modify_op op, const api_type<VK> &arg) const {
+       pointer()->modify_all(view(), op, to_core_val<VK>(arg));
      }
 
+     /*
+      * Calls fn(key, value) for up to max keys, starting after the
+      * given one (or at the newest if it's null).  Returns false once
+      * there are no more.
+      */
+     template <bool C1, typename Fn>
+     bool for_each(const interned_string_handle_cp<C1> &after,
+                   std::size_t max,
+                   Fn &&fn) const
+     {
+       return pointer()->for_each(view(), after.pointer(), max,
+                                  [&](const core::gc_ptr<core::interned_string> &k,
+                                      const core::kind_mv<VK> &v) {
+                                    fn(interned_string_handle{k}, api_type<VK>{v});
+                                  });
+     }
    };
 
+   /*
+    * A handle on an ordered map from keys of kind KK (LONG or STRING)
+    * to values of kind VK.  Conflicts are detected per key and per key
+    * range (see core_ordered_map.h).
+    */
+   template <kind KK, kind VK>
+   struct ordered_map_handle
+     : public view_relative_handle<core::managed_skip_list_map<KK, VK>>
+   {
+     using base = view_relative_handle<core::managed_skip_list_map<KK, VK>>;
+     using typename base::value_type;
+     using non_const_type = ordered_map_handle;
+     using bound = core::skip_list::bound;
+
+     using base::base;
+     using base::is_null;
+     using base::pointer;
+     using base::view;
+
+   private:
+     template <typename Fn>
+     static auto wrap(Fn &fn) {
+       return [&fn](const core::kind_mv<KK> &k, const core::kind_mv<VK> &v) {
+         fn(api_type<KK>{k}, api_type<VK>{v});
+       };
+     }
+
+   public:
+     ordered_map_handle() = default;
+
+     ordered_map_handle ignore_const() const {
+       return *this;
+     }
+
+     static ordered_map_handle create() {
+       ensure_process_registered();
+       return core::managed_skip_list_map<KK, VK>::create();
+     }
+
+     uniform_key uuid() const {
+       return pointer()->uuid();
+     }
+
+     bool contains(const api_type<KK> &key) const {
+       return pointer()->contains(to_core_val<KK>(key), view());
+     }
+
+     /*
+      * The bool is false if the key wasn't there.
+      */
+     std::pair<bool, api_type<VK>> get(const api_type<KK> &key) const {
+       core::kind_mv<VK> val{};
+       bool found = pointer()->get(to_core_val<KK>(key), view(), val);
+       return std::make_pair(found, api_type<VK>{val});
+     }
+
+     /*
+      * The bool says whether the key was there, in which case the value
+      * is the one it replaced.
+      */
+     std::pair<bool, api_type<VK>> put(const api_type<KK> &key, const api_type<VK> &val) const {
+       core::kind_mv<VK> prior{};
+       bool was_present = pointer()->put(to_core_val<KK>(key), view(), to_core_val<VK>(val), &prior);
+       return std::make_pair(was_present, api_type<VK>{prior});
+     }
+
+     /*
+      * The bool says whether the key was already there, in which case
+      * the value is the one that's there.
+      */
+     std::pair<bool, api_type<VK>> put_if_absent(const api_type<KK> &key, const api_type<VK> &val) const {
+       core::kind_mv<VK> current{};
+       bool added = pointer()->put_if_absent(to_core_val<KK>(key), view(), to_core_val<VK>(val), &current);
+       return std::make_pair(!added, api_type<VK>{current});
+     }
+
+     std::pair<bool, api_type<VK>> remove(const api_type<KK> &key) const {
+       core::kind_mv<VK> prior{};
+       bool was_present = pointer()->remove(to_core_val<KK>(key), view(), &prior);
+       return std::make_pair(was_present, api_type<VK>{prior});
+     }
+
+     /*
+      * The navigation functions call fn(key, value) on the entry found,
+      * if any, and say whether there was one.
+      */
+     template <typename Fn>
+     bool ceiling(const api_type<KK> &key, bool inclusive, Fn &&fn) const {
+       return pointer()->ceiling(to_core_val<KK>(key), inclusive, view(), wrap(fn));
+     }
+
+     template <typename Fn>
+     bool floor(const api_type<KK> &key, bool inclusive, Fn &&fn) const {
+       return pointer()->floor(to_core_val<KK>(key), inclusive, view(), wrap(fn));
+     }
+
+     template <typename Fn>
+     bool first(Fn &&fn) const {
+       return pointer()->first(view(), wrap(fn));
+     }
+
+     template <typename Fn>
+     bool last(Fn &&fn) const {
+       return pointer()->last(view(), wrap(fn));
+     }
+
+     /*
+      * Calls fn(key, value) for up to max keys in the range, in
+      * ascending or descending order.  Returns false once there are no
+      * more.
+      */
+     template <typename Fn>
+     bool for_range(bool descending,
+                    bound lo_b, const api_type<KK> &lo,
+                    bound hi_b, const api_type<KK> &hi,
+                    std::size_t max, Fn &&fn) const
+     {
+       core::kind_mv<KK> clo = lo_b == bound::none ? core::kind_mv<KK>{} : to_core_val<KK>(lo);
+       core::kind_mv<KK> chi = hi_b == bound::none ? core::kind_mv<KK>{} : to_core_val<KK>(hi);
+       if (descending) {
+         return pointer()->for_range_descending(view(), lo_b, clo, hi_b, chi, max, wrap(fn));
+       }
+       return pointer()->for_range(view(), lo_b, clo, hi_b, chi, max, wrap(fn));
+     }
+
+     std::size_t count(bound lo_b, const api_type<KK> &lo,
+                       bound hi_b, const api_type<KK> &hi) const
+     {
+       core::kind_mv<KK> clo = lo_b == bound::none ? core::kind_mv<KK>{} : to_core_val<KK>(lo);
+       core::kind_mv<KK> chi = hi_b == bound::none ? core::kind_mv<KK>{} : to_core_val<KK>(hi);
+       return pointer()->count(view(), lo_b, clo, hi_b, chi);
+     }
+
+     std::size_t size() const {
+       return pointer()->size(view());
+     }
+
+     void clear() const {
+       pointer()->clear(view());
+     }
+   };
+
+   /*
+    * A handle on a hash set of values of kind EK.  Conflicts are
+    * detected per element (see core_set.h).
+    */
+   template <kind EK>
+   struct set_handle
+     : public view_relative_handle<core::managed_hash_set<EK>>
+   {
+     using base = view_relative_handle<core::managed_hash_set<EK>>;
+     using typename base::value_type;
+     using non_const_type = set_handle;
+
+     using base::base;
+     using base::is_null;
+     using base::pointer;
+     using base::view;
+
+     set_handle() = default;
+
+     set_handle ignore_const() const {
+       return *this;
+     }
+
+     static set_handle create(std::size_t expected_size = 0) {
+       ensure_process_registered();
+       return core::managed_hash_set<EK>::create(expected_size);
+     }
+
+     uniform_key uuid() const {
+       return pointer()->uuid();
+     }
+
+     bool contains(const api_type<EK> &elt) const {
+       return pointer()->contains(to_core_val<EK>(elt), view());
+     }
+
+     bool add(const api_type<EK> &elt) const {
+       return pointer()->add(to_core_val<EK>(elt), view());
+     }
+
+     bool remove(const api_type<EK> &elt) const {
+       return pointer()->remove(to_core_val<EK>(elt), view());
+     }
+
+     /*
+      * The bulk operations take a range of anything that conv turns
+      * into an api_type<EK>, so callers can pass native arrays (or
+      * arrays of handle indices) straight through.
+      */
+     template <typename Iter, typename Conv>
+     bool contains_all(Iter from, Iter to, Conv &&conv) const {
+       return pointer()->contains_all(from, to,
+                                      [&](const auto &x) { return to_core_val<EK>(conv(x)); },
+                                      view());
+     }
+
+     template <typename Iter, typename Conv>
+     std::size_t add_all(Iter from, Iter to, Conv &&conv) const {
+       return pointer()->add_all(from, to,
+                                 [&](const auto &x) { return to_core_val<EK>(conv(x)); },
+                                 view());
+     }
+
+     template <typename Iter, typename Conv>
+     std::size_t remove_all(Iter from, Iter to, Conv &&conv) const {
+       return pointer()->remove_all(from, to,
+                                    [&](const auto &x) { return to_core_val<EK>(conv(x)); },
+                                    view());
+     }
+
+     template <typename Pred>
+     std::size_t remove_if(Pred &&pred) const {
+       return pointer()->remove_if(view(),
+                                   [&](const core::kind_mv<EK> &e) {
+                                     return pred(api_type<EK>{e});
+                                   });
+     }
+
+     std::size_t size() const {
+       return pointer()->size(view());
+     }
+
+     void clear() const {
+       pointer()->clear(view());
+     }
+
+     /*
+      * Calls fn(elt) for up to max elements, starting after *after (or
+      * at the newest if after is null).  Returns false once there are
+      * no more.
+      */
+     template <typename Fn>
+     bool for_each(const api_type<EK> *after, std::size_t max, Fn &&fn) const {
+       core::kind_mv<EK> a{};
+       if (after != nullptr) {
+         a = to_core_val<EK>(*after);
+       }
+       return pointer()->for_each(view(), after == nullptr ? nullptr : &a, max,
+                                  [&](const core::kind_mv<EK> &e) {
+                                    fn(api_type<EK>{e});
+                                  });
+     }
+   };
+
+   using list_layout = core::list_layout;
+
+   /*
+    * A handle on a list of values of kind EK.  Which operations are
+    * cheap, and which conflict with which, depends on the layout
+    * chosen at creation (see core_list.h).  The operations that may
+    * find nothing return a pair whose first element says whether they
+    * did.
+    */
+   template <kind EK>
+   struct list_handle
+     : public view_relative_handle<core::managed_chunked_list<EK>>
+   {
+     using base = view_relative_handle<core::managed_chunked_list<EK>>;
+     using typename base::value_type;
+     using non_const_type = list_handle;
+     using index_type = core::kind_mv<kind::LONG>;
+     using maybe_elt = std::pair<bool, api_type<EK>>;
+
+     using base::base;
+     using base::is_null;
+     using base::pointer;
+     using base::view;
+
+   private:
+     static maybe_elt from_core(const typename core::managed_chunked_list<EK>::maybe_elt &r) {
+       return maybe_elt{r.first, api_type<EK>{r.second}};
+     }
+
+   public:
+     list_handle() = default;
+
+     list_handle ignore_const() const {
+       return *this;
+     }
+
+     static list_handle create(list_layout layout = list_layout::array) {
+       ensure_process_registered();
+       return core::managed_chunked_list<EK>::create(layout);
+     }
+
+     uniform_key uuid() const {
+       return pointer()->uuid();
+     }
+
+     list_layout layout() const {
+       return pointer()->layout;
+     }
+
+     std::size_t size() const {
+       return pointer()->size(view());
+     }
+
+     maybe_elt get(index_type pos) const {
+       return from_core(pointer()->get(pos, view()));
+     }
+
+     maybe_elt set(index_type pos, const api_type<EK> &val) const {
+       return from_core(pointer()->set(pos, to_core_val<EK>(val), view()));
+     }
+
+     void add_first(const api_type<EK> &val) const {
+       pointer()->add_first(to_core_val<EK>(val), view());
+     }
+
+     void add_last(const api_type<EK> &val) const {
+       pointer()->add_last(to_core_val<EK>(val), view());
+     }
+
+     bool insert(index_type pos, const api_type<EK> &val) const {
+       return pointer()->insert(pos, to_core_val<EK>(val), view());
+     }
+
+     maybe_elt remove_at(index_type pos) const {
+       return from_core(pointer()->remove_at(pos, view()));
+     }
+
+     maybe_elt remove_first() const {
+       return from_core(pointer()->remove_first(view()));
+     }
+
+     maybe_elt remove_last() const {
+       return from_core(pointer()->remove_last(view()));
+     }
+
+     maybe_elt peek_first() const {
+       return from_core(pointer()->peek_end(true, view()));
+     }
+
+     maybe_elt peek_last() const {
+       return from_core(pointer()->peek_end(false, view()));
+     }
+
+     template <typename Iter, typename Conv>
+     void add_all(Iter from, Iter to, Conv &&conv) const {
+       pointer()->add_all(from, to,
+                          [&](const auto &x) { return to_core_val<EK>(conv(x)); },
+                          view());
+     }
+
+     void clear() const {
+       pointer()->clear(view());
+     }
+
+     /*
+      * Calls fn(elt) for up to max elements, starting at *cursor (an
+      * opaque position, 0 for the start), and updates *cursor.
+      * Returns false once there are no more.
+      */
+     template <typename Fn>
+     bool for_each(index_type *cursor, std::size_t max, Fn &&fn) const {
+       return pointer()->for_each(view(), cursor, max,
+                                  [&](const core::kind_mv<EK> &e) {
+                                    fn(api_type<EK>{e});
+                                  });
+     }
+   };
+
+   /*
+    * A handle on an unbounded MPMC queue of values of kind EK.  Queues
+    * aren't isolated (see core_queue.h), so this handle doesn't carry
+    * a view.
+    */
+   template <kind EK>
+   struct queue_handle
+     : public view_independent_handle<core::managed_mpmc_queue<EK>>
+   {
+     using base = view_independent_handle<core::managed_mpmc_queue<EK>>;
+     using typename base::value_type;
+     using non_const_type = queue_handle;
+     using maybe_elt = std::pair<bool, api_type<EK>>;
+
+     using base::base;
+     using base::is_null;
+     using base::pointer;
+
+   private:
+     static maybe_elt from_core(const typename core::managed_mpmc_queue<EK>::maybe_elt &r) {
+       return maybe_elt{r.first, api_type<EK>{r.second}};
+     }
+
+   public:
+     queue_handle() = default;
+
+     queue_handle ignore_const() const {
+       return *this;
+     }
+
+     static queue_handle create() {
+       ensure_process_registered();
+       return core::managed_mpmc_queue<EK>::create();
+     }
+
+     /*
+      * Queues are shared by name, like record types, rather than
+      * through namespaces.
+      */
+     static queue_handle named(const interned_string_handle &name) {
+       ensure_process_registered();
+       return core::managed_mpmc_queue<EK>::named(name.pointer());
+     }
+
+     uniform_key uuid() const {
+       return pointer()->uuid();
+     }
+
+     void enqueue(const api_type<EK> &val) const {
+       pointer()->enqueue(to_core_val<EK>(val));
+     }
+
+     template <typename Iter, typename Conv>
+     void enqueue_all(Iter from, Iter to, Conv &&conv) const {
+       for (; from != to; ++from) {
+         pointer()->enqueue(to_core_val<EK>(conv(*from)));
+       }
+     }
+
+     maybe_elt dequeue() const {
+       return from_core(pointer()->dequeue());
+     }
+
+     maybe_elt peek() const {
+       return from_core(pointer()->peek());
+     }
+
+     std::size_t size() const {
+       return pointer()->size();
+     }
+
+     bool empty() const {
+       return pointer()->empty();
+     }
+
+     template <typename Fn>
+     std::size_t drain(std::size_t max, Fn &&fn) const {
+       return pointer()->drain(max, [&](const core::kind_mv<EK> &e) {
+           fn(api_type<EK>{e});
+         });
+     }
+
+     template <typename Fn>
+     bool for_each(std::size_t skip, std::size_t max, Fn &&fn) const {
+       return pointer()->for_each(skip, max, [&](const core::kind_mv<EK> &e) {
+           fn(api_type<EK>{e});
+         });
+     }
+   };
+
+   template <kind K, bool ConstP, typename LeafT, typename Enable>
+   struct managed_type_handle_cp: public view_independent_handle<htarget_<ConstP, LeafT>>
+   {
+     using base = view_independent_handle<htarget_<ConstP, LeafT>>;
+     using typename base::value_type;
+     using non_const_type = managed_type_handle_cp<K, false, LeafT, Enable>;
+
+     //     template <bool CP> using when_less_const = typename constness<ConstP>::when_less_const;
+     template <bool CP> using when_less_const = std::enable_if_t<(CP <= ConstP)>;
+
+     using base::base;
+     using base::is_null;
+     using base::pointer;
+
+     managed_type_handle_cp() = default;
+
+     template <bool CP, typename = when_less_const<CP> >
+     managed_type_handle_cp(const managed_type_handle_cp<K,CP,LeafT,Enable> &rhs)
+     : base{rhs}
+     {}
+
+     template <bool CP, typename = when_less_const<CP> >
+     managed_type_handle_cp(managed_type_handle_cp<K,CP,LeafT,Enable> &&rhs)
+     : base{std::move(rhs)}
+     {}
+
+     template <bool CP, typename = when_less_const<CP> >
+     managed_type_handle_cp &
+     operator =(const managed_type_handle_cp<K,CP,LeafT,Enable> &rhs) {
+       base::operator =(rhs);
+       return *this;
+     }
+
+     template <bool CP, typename = when_less_const<CP> >
+     managed_type_handle_cp &
+     operator =(managed_type_handle_cp<K,CP,LeafT,Enable> &&rhs) {
+       base::operator =(std::move(rhs));
+       return *this;
+     }
+
+#if 0
+     std::remove_const_t<value_type> *nc_value() const {
+       value_type *cval = value;
+       return const_cast<std::remove_const_t<value_type> *>(cval);
+     }
+#endif
+     /*
+      * Throws incompatible_type_ex if the field exists but is of the wrong type
+      *
+      * Throws unmodifiable_record_type_ex if the field doesn't exist, create_if_absent
+      * is true, and the record type is fully created.
+      */
+     // TODO: Add const_record_type_handle variant
+     record_field_handle<K> field_in(const record_type_handle &rtype,
+                                     const interned_string_handle &name,
+                                     bool create_if_absent = true) const;
+   };
+
+
+   template <bool ConstP>
+   struct array_type_base_handle_cp : managed_type_handle_cp<kind::ARRAY, ConstP, core::array_type_base>
+   {
+     using base = managed_type_handle_cp<kind::ARRAY, ConstP, core::array_type_base>;
+     using typename base::value_type;
+     using non_const_type = array_type_base_handle_cp<false>;
+
+     template <bool CP> using when_less_const = typename constness<CP>::when_less_const;
+
+     using base::base;
+     using base::is_null;
+     using base::pointer;
+
+     array_type_base_handle_cp() = default;
+
+     template <bool CP, typename = when_less_const<CP> >
+     array_type_base_handle_cp(const array_type_base_handle_cp<CP> &rhs)
+     : base{rhs}
+     {}
+
+     template <bool CP, typename = when_less_const<CP> >
+     array_type_base_handle_cp(array_type_base_handle_cp<CP> &&rhs)
+     : base{std::move(rhs)}
+     {}
+
+     template <bool CP, typename = when_less_const<CP> >
+     array_type_base_handle_cp &
+     operator =(const array_type_base_handle_cp<CP> &rhs) {
+       base::operator =(rhs);
+       return *this;
+     }
+
+     template <bool CP, typename = when_less_const<CP> >
+     array_type_base_handle_cp &
+     operator =(array_type_base_handle_cp<CP> &&rhs) {
+       base::operator =(std::move(rhs));
+       return *this;
+     }
+
+     template <bool CP>
+     bool is_same_as(const array_type_base_handle_cp<CP> &rhs) const {
+       if (pointer() == rhs.pointer()) {
+         return true;
+       } else if (!is_null()) {
+         return pointer()->compare_types(rhs.pointer());
+       } else {
+         return false;
+       }
+     }
+     template <bool CP>
+     bool operator !=(const array_type_base_handle_cp<CP> &rhs) const {
+       return !operator==(rhs);
+     }
+   };
+
+
+   template <kind K, bool ConstP>
+   struct array_type_handle_cp : managed_type_handle_cp<kind::ARRAY, ConstP, core::array_type<K>>
+   {
+     // su - TODO
+     //   1. Add type logic
+     //       managed_type<K> element_type()
+     using base = managed_type_handle_cp<kind::ARRAY, ConstP, core::array_type<K>>;
+     using typename base::value_type;
+     using non_const_type = array_type_handle_cp<K, false>;
+
+     template <bool CP> using when_less_const = typename constness<CP>::when_less_const;
+
+     using base::base;
+     using base::is_null;
+     using base::pointer;
+
+     array_type_handle_cp() = default;
+
+     template <bool CP, typename = when_less_const<CP> >
+     array_type_handle_cp(const array_type_handle_cp<K,CP> &rhs)
+     : base{rhs}
+     {}
+
+     template <bool CP, typename = when_less_const<CP> >
+     array_type_handle_cp(array_type_handle_cp<K,CP> &&rhs)
+     : base{std::move(rhs)}
+     {}
+
+     template <bool CP, typename = when_less_const<CP> >
+     array_type_handle_cp &
+     operator =(const array_type_handle_cp<K,CP> &rhs) {
+       base::operator =(rhs);
+       return *this;
+     }
+
+     template <bool CP, typename = when_less_const<CP> >
+     array_type_handle_cp &
+     operator =(array_type_handle_cp<K,CP> &&rhs) {
+       base::operator =(std::move(rhs));
+       return *this;
+     }
+
+     const_managed_type_handle<K> element_type() const {
+       return pointer()->element_type();
+     }
+
+     managed_array_handle<K>
+     create_array(array_size_type<K> s,
+                  array_layout layout = array_layout::versioned) const {
+       return pointer()->create_array(s, layout);
+     }
+
+     template <bool CP>
+     bool is_same_as(const array_type_handle_cp<K, CP> &rhs) const {
+       if (pointer() == rhs.pointer()) {
+         return true;
+       } else if (!is_null()) {
+         return pointer()->compare_types(rhs.pointer());
+       } else {
+         return false;
+       }
+     }
+     
+     template <bool CP>
+     bool operator !=(const array_type_handle_cp<K, CP> &rhs) const {
+       return !operator==(rhs);
+     }
+
+   };
+
+
 
-
 //   template <typename FT> struct mv_wrapper<core::managed_type<FT>> : public use_handle<managed_type_handle<FT>> {};
 
 #define _PRIM_TYPE_(K,name) \
@@ -1817,6 +2702,26 @@ namespace mds {
        return core::record_type::find(name.pointer());
      }
 
+     std::size_t n_fields() const {
+       return is_null() ? 0 : pointer()->n_fields();
+     }
+
+     /*
+      * Calls fn(name, kind, slot, field_type, field) for each field, in
+      * slot order.  The field can be downcast to a kind_field<K> for the
+      * kind passed in to make a record_field_handle<K>.
+      */
+     template <typename Fn>
+     void for_each_field(Fn &&fn) const {
+       if (is_null()) {
+         return;
+       }
+       for (const auto &f : pointer()->fields()) {
+         fn(interned_string_handle{f->name}, f->type_kind, f->num, f->f_type_base,
+            core::gc_ptr<const core::record_field_base>{f});
+       }
+     }
+
      template <bool CP>
      bool is_same_as(const record_type_handle_cp<CP> &rhs) const {
        if (pointer() == rhs.pointer()) {
@@ -1875,6 +2780,91 @@ namespace mds {
      return pointer()->f_type;
    }
 
+   template <bool ConstP>
+   struct container_type_handle_cp : managed_type_handle_cp<kind::CONTAINER, ConstP, core::container_type>
+   {
+     using base = managed_type_handle_cp<kind::CONTAINER, ConstP, core::container_type>;
+     using typename base::value_type;
+     using non_const_type = container_type_handle_cp<false>;
+
+     template <bool CP> using when_less_const = typename constness<CP>::when_less_const;
+
+     using base::base;
+     using base::is_null;
+     using base::pointer;
+
+     container_type_handle_cp() = default;
+
+     template <bool CP, typename = when_less_const<CP> >
+     container_type_handle_cp(const container_type_handle_cp<CP> &rhs)
+     : base{rhs}
+     {}
+
+     template <bool CP, typename = when_less_const<CP> >
+     container_type_handle_cp(container_type_handle_cp<CP> &&rhs)
+     : base{std::move(rhs)}
+     {}
+
+     template <bool CP, typename = when_less_const<CP> >
+     container_type_handle_cp &
+     operator =(const container_type_handle_cp<CP> &rhs) {
+       base::operator =(rhs);
+       return *this;
+     }
+
+     template <bool CP, typename = when_less_const<CP> >
+     container_type_handle_cp &
+     operator =(container_type_handle_cp<CP> &&rhs) {
+       base::operator =(std::move(rhs));
+       return *this;
+     }
+
+     /*
+      * elt_type is only needed (and only compared) when the elements
+      * are records.
+      */
+     static container_type_handle of(container_shape s, kind kk, kind ek,
+                                     const const_record_type_handle &elt_type = const_record_type_handle{})
+     {
+       ensure_process_registered();
+       core::gc_ptr<const core::record_type> et = elt_type.pointer();
+       return core::container_type::of(s, kk, ek, et);
+     }
+
+     container_shape shape() const {
+       return pointer()->shape;
+     }
+     kind key_kind() const {
+       return pointer()->key_kind;
+     }
+     kind elt_kind() const {
+       return pointer()->elt_kind;
+     }
+     const_record_type_handle elt_type() const {
+       return std::static_pointer_cast<const core::record_type>(pointer()->elt_type);
+     }
+
+     template <bool CP>
+     bool describes(const managed_container_handle_cp<CP> &c) const {
+       return !c.is_null() && pointer()->describes(*c.pointer());
+     }
+
+     template <bool CP>
+     bool is_same_as(const container_type_handle_cp<CP> &rhs) const {
+       if (pointer() == rhs.pointer()) {
+         return true;
+       } else if (!is_null()) {
+         return pointer()->compare_types(rhs.pointer());
+       } else {
+         return false;
+       }
+     }
+
+     array_type_handle<kind::CONTAINER> in_array() const {
+       return pointer()->in_array();
+     }
+   };
+
    //   template <> struct mv_wrapper<core::record_type> : public use_handle<record_type_handle> {};
    //
    template <bool ConstP>
@@ -1975,6 +2965,21 @@ namespace mds {
        return mah;
      }
 
+     /*
+      * Throws incompatible_type_ex if the name is bound to a container
+      * of some other shape or kinds.
+      */
+     template <bool C1, bool C2>
+     managed_container_handle lookup(const interned_string_handle_cp<C1> &name,
+                                     const container_type_handle_cp<C2> &ct) const
+     {
+       managed_container_handle mch = _lookup<kind::CONTAINER>(name, view());
+       if (!mch.is_null() && !ct.describes(mch)) {
+         throw incompatible_type_ex{};
+       }
+       return mch;
+     }
+
      /*
       * Replaces binding of "name" with "val".  Returns false if name
       * bound to namespace and replace_namespace is false, true
@@ -2056,6 +3061,100 @@ namespace mds {
      static namespace_handle global() {
        return namespace_handle{core::global_namespace, prevailing_view()};
      }
+
+     /*
+      * Returns a handle on the same namespace as seen from a new
+      * read-only snapshot of this handle's context, so that a listing
+      * done through it isn't disturbed by concurrent publication.
+      */
+     namespace_handle snapshot() const {
+       using namespace core;
+       gc_ptr<core::view> v = view();
+       gc_ptr<iso_context> snap = v->context->new_child(view_type::snapshot,
+                                                         mod_type::read_only);
+       return namespace_handle{pointer(), snap->shadow(v)};
+     }
+
+     /*
+      * Calls fn(name, is_namespace) for up to max bound names starting
+      * with prefix (which may be null), beginning after the name "after"
+      * (or at the start, if that's null).  Returns false when there's
+      * nothing left to visit.
+      */
+     template <typename Fn, bool C1, bool C2>
+     bool for_each_binding(const interned_string_handle_cp<C1> &after,
+                           const interned_string_handle_cp<C2> &prefix,
+                           std::size_t max,
+                           Fn &&fn) const
+     {
+       return pointer()->for_each_binding(view(), after.pointer(), prefix.pointer(), max,
+                                          [&](const core::gc_ptr<core::interned_string> &name,
+                                              const core::binding &b) {
+                                            fn(interned_string_handle{name}, b.is_namespace());
+                                          });
+     }
+
+     /*
+      * Calls fn(record) for every record of type rt (or a subtype)
+      * that can be reached from a value bound in this namespace or
+      * below it, following record and array references.  Each record
+      * is visited once.  If fn returns false, the walk stops and this
+      * returns false.  See core_scan.h.
+      */
+     template <typename Fn, bool C1>
+     bool for_each_reachable(const record_type_handle_cp<C1> &rt, Fn &&fn) const
+     {
+       core::graph_scan scan{rt.pointer()};
+       scan.add_roots(pointer(), view());
+       return scan.run([&](const core::kind_mv<kind::RECORD> &r) {
+           return fn(managed_record_handle{r});
+         });
+     }
+
+     /*
+      * Streams everything reachable from this namespace to out, or
+      * binds what's in a stream from in below it.  See
+      * core_transfer.h.
+      */
+     core::transfer::counts export_to(const core::transfer::sink &out,
+                                      std::size_t buffer_size) const
+     {
+       return core::transfer::export_namespace(pointer(), view(), out, buffer_size);
+     }
+
+     core::transfer::counts import_from(const core::transfer::source &in,
+                                        std::size_t buffer_size) const
+     {
+       return core::transfer::import_namespace(pointer(), view(), in, buffer_size);
+     }
+
+     /*
+      * Counters that anything caching the result of walking a path or
+      * looking up a name can poll to tell whether its answer may be
+      * stale.  The epochs are heap-wide and move when a context that
+      * rebound a namespace (or bound any name) publishes.  The local
+      * counts move on every such bind done by this process, published
+      * or not.  None of them ever goes backwards, and their addresses
+      * are stable, so they can be read directly.
+      */
+     enum class naming_counter : int {
+       namespace_epoch, binding_epoch, local_namespace_rebinds, local_binds
+     };
+
+     static const std::atomic<std::uint64_t> &counter(naming_counter which) {
+       ensure_process_registered();
+       switch (which) {
+       case naming_counter::namespace_epoch:
+         return *core::namespace_epoch;
+       case naming_counter::binding_epoch:
+         return *core::binding_epoch;
+       case naming_counter::local_namespace_rebinds:
+         return core::name_space::local_binds().namespace_rebinds;
+       case naming_counter::local_binds:
+       default:
+         return core::name_space::local_binds().binds;
+       }
+     }
      /*
       * Throws illegal_path_ex if one of the segments on the path is not a namespace.
       * If one of the segments is unbound, returns a null namespace_handle.
@@ -2116,6 +3215,57 @@ namespace mds {
      return pointer()->field_in(rtype.pointer(), name.pointer(), create_if_absent);
    }
 
+   /*
+    * Totals across every handle store in the process.  Every count is
+    * kept per thread and summed when asked for, so adding and freeing
+    * handles doesn't bounce a shared cache line between threads.  A
+    * total read while other threads are busy may be slightly stale.
+    */
+   struct handle_store_stats {
+     enum class event : std::size_t { added, reused, freed, lock_wait, n_counters };
+     using counters = core::stats::per_thread_counters<event>;
+
+     static void note_added(bool from_free_list) {
+       counters::add(event::added);
+       if (from_free_list) {
+         counters::add(event::reused);
+       }
+     }
+     static void note_freed() {
+       counters::add(event::freed);
+     }
+     /*
+      * Handles stored and not yet freed.
+      */
+     static std::int64_t n_live() {
+       counters::totals_type t = counters::totals();
+       return std::int64_t(t[std::size_t(event::added)])
+         - std::int64_t(t[std::size_t(event::freed)]);
+     }
+     /*
+      * Slots on the stores' free lists.
+      */
+     static std::int64_t n_free() {
+       counters::totals_type t = counters::totals();
+       return std::int64_t(t[std::size_t(event::freed)])
+         - std::int64_t(t[std::size_t(event::reused)]);
+     }
+     static std::uint64_t lock_waits() {
+       return counters::total(event::lock_wait);
+     }
+     /*
+      * Only a lock that can't be had straight away counts as a wait.
+      */
+     static std::unique_lock<std::mutex> lock(std::mutex &m) {
+       std::unique_lock<std::mutex> l{m, std::try_to_lock};
+       if (!l.owns_lock()) {
+         counters::add(event::lock_wait);
+         l.lock();
+       }
+       return l;
+     }
+   };
+
    /*
     * This is a convenience class to allow stashing handles someplace
     * so that you can refer to them by an index, suitable for storing
@@ -2146,7 +3296,8 @@ namespace mds {
        if (handle == T{}) {
          return 0;
        }
-       std::lock_guard<std::mutex> lock{_mutex};
+       auto lock = handle_store_stats::lock(_mutex);
+       handle_store_stats::note_added(!_free_list.empty());
        if (_free_list.empty()) {
          _handles.push_back(handle);
          index_type i = _handles.size();
@@ -2161,9 +3312,10 @@ namespace mds {
 
      void _free(index_type i) {
        if (i != 0) {
-         std::lock_guard<std::mutex> lock{_mutex};
+         auto lock = handle_store_stats::lock(_mutex);
          _free_list.push(i);
          _handles[i-1] = T{};
+         handle_store_stats::note_freed();
        }
      }
 
@@ -2171,7 +3323,7 @@ namespace mds {
        if (i == 0) {
          return T{};
        }
-       std::lock_guard<std::mutex> lock{_mutex};
+       auto lock = handle_store_stats::lock(_mutex);
        return _handles[i-1];
      }
    public:
@@ -2251,11 +3403,12 @@ namespace mds {
        if (handle == T{}) {
          return return_type{false, 0};
        }
-       std::lock_guard<std::mutex> lock{_mutex};
+       auto lock = handle_store_stats::lock(_mutex);
        index_type &i = _known[handle];
        bool is_new = i==0;
        if (is_new) {
          // This one was not in the map.
+         handle_store_stats::note_added(!_free_list.empty());
          if (_free_list.empty()) {
            _handles.push_back(handle);
            i = _handles.size();
@@ -2273,12 +3426,13 @@ namespace mds {
 
      bool _free(index_type i) {
        if (i != 0) {
-         std::lock_guard<std::mutex> lock{_mutex};
+         auto lock = handle_store_stats::lock(_mutex);
          counted_handle &h = _handles[i-1];
          if (--h.count == 0) {
            _free_list.push(i);
            _known.erase(h.handle);
            h.handle = T{};
+           handle_store_stats::note_freed();
            return true;
          } else {
            return false;
@@ -2291,13 +3445,13 @@ namespace mds {
        if (i == 0) {
          return T{};
        }
-       std::lock_guard<std::mutex> lock{_mutex};
+       auto lock = handle_store_stats::lock(_mutex);
        return _handles[i-1].handle;
      }
 
      void _add_ref(index_type i) {
        if (i != 0) {
-	 std::lock_guard<std::mutex> lock{_mutex};
+	 auto lock = handle_store_stats::lock(_mutex);
 	 _handles[i-1].count++;
        }
      }
@@ -2371,6 +3525,44 @@ namespace ruts {
  struct hash2<mds::api::managed_array_handle_cp<K,CP>>
    : intrinsic_hash2<mds::api::managed_array_handle_cp<K,CP>> {};
 
+ template <bool CP>
+ struct hash1<mds::api::managed_container_handle_cp<CP>>
+   : intrinsic_hash1<mds::api::managed_container_handle_cp<CP>> {};
+ template <bool CP>
+ struct hash2<mds::api::managed_container_handle_cp<CP>>
+   : intrinsic_hash2<mds::api::managed_container_handle_cp<CP>> {};
+
+ template <mds::api::kind K>
+ struct hash1<mds::api::string_map_handle<K>>
+   : intrinsic_hash1<mds::api::string_map_handle<K>> {};
+ template <mds::api::kind K>
+ struct hash2<mds::api::string_map_handle<K>>
+   : intrinsic_hash2<mds::api::string_map_handle<K>> {};
+ template <mds::api::kind KK, mds::api::kind VK>
+ struct hash1<mds::api::ordered_map_handle<KK,VK>>
+   : intrinsic_hash1<mds::api::ordered_map_handle<KK,VK>> {};
+ template <mds::api::kind KK, mds::api::kind VK>
+ struct hash2<mds::api::ordered_map_handle<KK,VK>>
+   : intrinsic_hash2<mds::api::ordered_map_handle<KK,VK>> {};
+ template <mds::api::kind K>
+ struct hash1<mds::api::set_handle<K>>
+   : intrinsic_hash1<mds::api::set_handle<K>> {};
+ template <mds::api::kind K>
+ struct hash2<mds::api::set_handle<K>>
+   : intrinsic_hash2<mds::api::set_handle<K>> {};
+ template <mds::api::kind K>
+ struct hash1<mds::api::list_handle<K>>
+   : intrinsic_hash1<mds::api::list_handle<K>> {};
+ template <mds::api::kind K>
+ struct hash2<mds::api::list_handle<K>>
+   : intrinsic_hash2<mds::api::list_handle<K>> {};
+ template <mds::api::kind K>
+ struct hash1<mds::api::queue_handle<K>>
+   : intrinsic_hash1<mds::api::queue_handle<K>> {};
+ template <mds::api::kind K>
+ struct hash2<mds::api::queue_handle<K>>
+   : intrinsic_hash2<mds::api::queue_handle<K>> {};
+
  template <mds::api::kind K, bool CP>
  struct hash1<mds::api::record_field_handle_cp<K,CP>>
    : intrinsic_hash1<mds::api::record_field_handle_cp<K,CP>> {};
@@ -2406,6 +3598,13 @@ namespace ruts {
  struct hash2<mds::api::array_type_handle_cp<K,CP>>
    : intrinsic_hash2<mds::api::array_type_handle_cp<K,CP>> {};
 
+ template <bool CP>
+ struct hash1<mds::api::container_type_handle_cp<CP>>
+   : intrinsic_hash1<mds::api::container_type_handle_cp<CP>> {};
+ template <bool CP>
+ struct hash2<mds::api::container_type_handle_cp<CP>>
+   : intrinsic_hash2<mds::api::container_type_handle_cp<CP>> {};
+
  template <bool CP>
  struct hash1<mds::api::namespace_handle_cp<CP>>
    : intrinsic_hash1<mds::api::namespace_handle_cp<CP>> {};
@@ -2440,6 +3639,24 @@ namespace std {
   template <mds::api::kind K, bool CP>
   struct hash<mds::api::managed_array_handle_cp<K,CP>> : ruts::delegate_hash<mds::api::managed_array_handle_cp<K,CP>> {};
 
+  template <bool CP>
+  struct hash<mds::api::managed_container_handle_cp<CP>> : ruts::delegate_hash<mds::api::managed_container_handle_cp<CP>> {};
+
+  template <mds::api::kind K>
+  struct hash<mds::api::string_map_handle<K>> : ruts::delegate_hash<mds::api::string_map_handle<K>> {};
+
+  template <mds::api::kind KK, mds::api::kind VK>
+  struct hash<mds::api::ordered_map_handle<KK,VK>> : ruts::delegate_hash<mds::api::ordered_map_handle<KK,VK>> {};
+
+  template <mds::api::kind K>
+  struct hash<mds::api::set_handle<K>> : ruts::delegate_hash<mds::api::set_handle<K>> {};
+
+  template <mds::api::kind K>
+  struct hash<mds::api::list_handle<K>> : ruts::delegate_hash<mds::api::list_handle<K>> {};
+
+  template <mds::api::kind K>
+  struct hash<mds::api::queue_handle<K>> : ruts::delegate_hash<mds::api::queue_handle<K>> {};
+
   template <mds::api::kind K, bool CP, typename L>
   struct hash<mds::api::managed_type_handle_cp<K,CP,L>> : ruts::delegate_hash<mds::api::managed_type_handle_cp<K,CP,L>> {};
 
@@ -2452,6 +3669,9 @@ namespace std {
   template <mds::api::kind K, bool CP>
   struct hash<mds::api::array_type_handle_cp<K,CP>> : ruts::delegate_hash<mds::api::array_type_handle_cp<K,CP>> {};
 
+  template <bool CP>
+  struct hash<mds::api::container_type_handle_cp<CP>> : ruts::delegate_hash<mds::api::container_type_handle_cp<CP>> {};
+
   template <bool CP>
   struct hash<mds::api::namespace_handle_cp<CP>> : ruts::delegate_hash<mds::api::namespace_handle_cp<CP>> {};
 
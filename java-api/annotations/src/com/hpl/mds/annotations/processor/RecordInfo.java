@@ -209,6 +209,12 @@ public class RecordInfo {
 
       private boolean isFinal;
 
+        /**
+         * The kind of index declared on this field (see IndexKind), or
+         * null if it isn't indexed
+         */
+        private String indexKind;
+
         // visibilities
         private Visibility fieldVisibility;
         private Visibility getterVisibility;
@@ -232,6 +238,14 @@ public class RecordInfo {
         this.varInfo = varInfo;
       }
 
+        public void setIndexKind(String indexKind) {
+            this.indexKind = indexKind;
+        }
+
+        public String getIndexKind() {
+            return indexKind;
+        }
+
         public void setFieldVisibility(Visibility fieldVisibility) {
             this.fieldVisibility = fieldVisibility;
         }
@@ -89,6 +89,12 @@ public class FieldRenderer extends Renderer {
 
   private int nextFinalFieldIndex = 0;
 
+  /**
+   * Schema descriptor for the fields that can be created in bulk when the
+   * record type is declared (see RecordType.declareWithSchema)
+   */
+  private final StringBuilder schema = new StringBuilder();
+
     /**
      * 
      * @param dataTypeRenderer
@@ -177,8 +183,60 @@ public class FieldRenderer extends Renderer {
     recordTemplate.add("protectedFields", getList(protectedFields));
     recordTemplate.add("publicFields", getList(publicFields));
     recordTemplate.add("finalFields", getList(finalFields));
+    if (schema.length() > 0) {
+      recordTemplate.add("schema", "\"" + schema + "\"");
+    }
   }
 
+    /**
+     * Adds a field to the schema descriptor, if its type is one the
+     * runtime can create in bulk
+     * 
+     * @param fieldInfo
+     *            information of the field
+     * @param prefix
+     *            "[" for arrays, otherwise empty
+     * @param dataType
+     *            the data type of the field or of its elements
+     */
+    private void addToSchema(FieldInfo fieldInfo, String prefix, DataType dataType) {
+        String code = schemaCode(dataType);
+        String mdsName = fieldInfo.getMdsName();
+        if (code == null || mdsName.indexOf(';') >= 0 || mdsName.indexOf('"') >= 0 || mdsName.indexOf('\\') >= 0) {
+            return;
+        }
+        schema.append(prefix).append(code).append(':').append(mdsName).append(';');
+    }
+
+    /**
+     * @param dataType
+     *            data type of a field or array element
+     * @return the schema descriptor code of the data type, or null if the
+     *         field has to be created on its own
+     */
+    private static String schemaCode(DataType dataType) {
+        switch (dataType) {
+        case BOOLEAN:
+            return "Z";
+        case BYTE:
+            return "B";
+        case SHORT:
+            return "S";
+        case INT:
+            return "I";
+        case LONG:
+            return "J";
+        case FLOAT:
+            return "F";
+        case DOUBLE:
+            return "D";
+        case STRING:
+            return "T";
+        default:
+            return null;
+        }
+    }
+
 
     /**
      * Renders all field members generated for a managed record type field
@@ -270,6 +328,7 @@ public class FieldRenderer extends Renderer {
                              t.add("type", dataType.getFieldType().getCanonicalName());
                              t.add("typeParams", typeParams);
                              t.add("name", varInfo.getName());
+                             t.add("indexKind", fieldInfo.getIndexKind());
                              t.add("creationMethod", dataType.getCreateFieldMethod());
                              t.add("methodArgs",
                                    new String[] { getMDSName(fieldInfo),
@@ -500,6 +559,7 @@ public class FieldRenderer extends Renderer {
         DataType paramType = fieldInfo.getVarInfo().getTypeParams().get(0).getType();
         Properties dataTypeProps = dataTypeRenderer.getArrayProperties(paramType);
         if (dataTypeProps != null) {
+            addToSchema(fieldInfo, "[", paramType);
             renderFieldArray(fieldInfo, dataTypeProps);
         } else {
             renderFieldCollection(fieldInfo, TypeProp.ARRAY_GENERIC);
@@ -555,6 +615,7 @@ public class FieldRenderer extends Renderer {
                               t.add("type", type);
                               t.add("typeParams", new String[] { recordSimpleName });
                               t.add("name", fieldInfo.getVarInfo().getName());
+                              t.add("indexKind", fieldInfo.getIndexKind());
                               t.add("creationMethod", creationMethod);
                               t.add("methodArgs", new String[] { getMDSName(fieldInfo) });
                              }));
@@ -631,6 +692,7 @@ public class FieldRenderer extends Renderer {
                                t.add("type", dataType.getFieldType().getCanonicalName());
                                t.add("typeParams", typeParams);
                                t.add("name", fieldInfo.getVarInfo().getName());
+                               t.add("indexKind", fieldInfo.getIndexKind());
                                t.add("creationMethod", dataType.getCreateFieldMethod());
                                t.add("methodArgs", getFieldCollectionMethodArgs(fieldInfo, argTypes));
                              }));
@@ -662,6 +724,7 @@ public class FieldRenderer extends Renderer {
      */
     private void renderFieldPrimitive(FieldInfo fieldInfo, Properties dataType) {
         String canonicalName = dataType.getFieldType().getCanonicalName();
+        addToSchema(fieldInfo, "", fieldInfo.getVarInfo().getType());
         renderFieldPrimitiveDef(fieldInfo, canonicalName, dataType.getCreateFieldMethod());
         renderFieldMembers(fieldInfo, canonicalName, Arrays.asList(recordSimpleName));
         boolean preferPrim = !dataType.managedIsCheaper();
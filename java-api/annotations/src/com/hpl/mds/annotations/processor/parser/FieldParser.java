@@ -39,6 +39,7 @@ import javax.tools.Diagnostic.Kind;
 
 import com.hpl.mds.annotations.Emitted;
 import com.hpl.mds.annotations.Final;
+import com.hpl.mds.annotations.Indexed;
 import com.hpl.mds.annotations.Private;
 import com.hpl.mds.annotations.processor.RecordInfo;
 import com.hpl.mds.annotations.processor.RecordInfo.ConstantInfo;
@@ -116,6 +117,10 @@ public class FieldParser {
           String getterNameFormat = getFieldGetterNameFormat(method, varInfo.getType(), schemaContext);
           boolean isFinal = (method.getAnnotation(Final.class) != null);
           FieldInfo fieldInfo = new FieldInfo(varInfo, mdsName, getterNameFormat, isFinal);
+          Indexed indexed = method.getAnnotation(Indexed.class);
+          if (indexed != null) {
+            fieldInfo.setIndexKind(indexed.ordered() ? "ORDERED" : "HASH");
+          }
           parseFieldVisibility(fieldInfo, method, schemaContext);
           recordInfo.addField(fieldInfo);
         } catch (ProcessingException e) {
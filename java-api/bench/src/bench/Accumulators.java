@@ -0,0 +1,75 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hpl.mds.Accumulator;
+
+/*
+ * Accumulator updates from the top-level task.  Every add() locks the
+ * accumulator, so the shared variant shows what that costs under
+ * contention.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Accumulators {
+
+  @State(Scope.Benchmark)
+  public static class Shared {
+    final Accumulator.ForLong accum = new Accumulator.ForLong();
+  }
+
+  @State(Scope.Thread)
+  public static class Private {
+    final Accumulator.ForLong accum = new Accumulator.ForLong();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void add(Private p) {
+    p.accum.add();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long addAndGet(Private p) {
+    p.accum.add();
+    return p.accum.get();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void addShared(Shared s) {
+    s.accum.add();
+  }
+}
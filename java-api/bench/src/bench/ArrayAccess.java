@@ -0,0 +1,97 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.hpl.mds.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ArrayAccess {
+  @Param({ "1024" })
+  int size;
+
+  ManagedIntArray ints;
+  ManagedLongArray longs;
+  ManagedDoubleArray doubles;
+  ManagedStringArray strings;
+  int i;
+
+  @Setup
+  public void setup() {
+    ints = ManagedInt.TYPE.createArray(size);
+    longs = ManagedLong.TYPE.createArray(size);
+    doubles = ManagedDouble.TYPE.createArray(size);
+    strings = ManagedString.TYPE.createArray(size);
+    ManagedString s = ManagedString.valueOf("element");
+    for (int j = 0; j < size; j++) {
+      ints.set(j, j);
+      longs.set(j, j);
+      doubles.set(j, j);
+      strings.set(j, s);
+    }
+  }
+
+  private int next() {
+    i = (i+1) % size;
+    return i;
+  }
+
+  @Benchmark public int getInt() { return ints.getInt(next()); }
+  @Benchmark public long getLong() { return longs.getLong(next()); }
+  @Benchmark public double getDouble() { return doubles.getDouble(next()); }
+  @Benchmark public ManagedString getString() { return strings.get(next()); }
+
+  @Benchmark public void setInt() { int j = next(); ints.set(j, j); }
+  @Benchmark public void setLong() { int j = next(); longs.set(j, j); }
+  @Benchmark public void setDouble() { int j = next(); doubles.set(j, j); }
+
+  /*
+   * Whole-array walks, reported per array rather than per element.
+   */
+  @Benchmark
+  public void iterateInts(Blackhole bh) {
+    for (Integer v : ints.intElements()) {
+      bh.consume(v);
+    }
+  }
+
+  @Benchmark
+  public void iterateStrings(Blackhole bh) {
+    for (ManagedString v : strings) {
+      bh.consume(v);
+    }
+  }
+}
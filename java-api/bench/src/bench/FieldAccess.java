@@ -0,0 +1,80 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/*
+ * Getting and setting a record field of each kind from the top-level
+ * context, so each call is a single native read or write.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldAccess {
+  Sample rec;
+  Sample other;
+  int n;
+
+  @Setup
+  public void setup() {
+    rec = Sample.create.record();
+    other = Sample.create.record();
+    rec.setStr("a string value");
+    rec.setNext(other);
+  }
+
+  @Benchmark public boolean getBoolean() { return rec.isFlag(); }
+  @Benchmark public byte getByte() { return rec.getB(); }
+  @Benchmark public short getShort() { return rec.getS(); }
+  @Benchmark public int getInt() { return rec.getI(); }
+  @Benchmark public long getLong() { return rec.getL(); }
+  @Benchmark public float getFloat() { return rec.getF(); }
+  @Benchmark public double getDouble() { return rec.getD(); }
+  @Benchmark public String getString() { return rec.getStr(); }
+  @Benchmark public Sample getRecord() { return rec.getNext(); }
+
+  @Benchmark public void setBoolean() { rec.setFlag((++n & 1) == 0); }
+  @Benchmark public void setByte() { rec.setB((byte)++n); }
+  @Benchmark public void setShort() { rec.setS((short)++n); }
+  @Benchmark public void setInt() { rec.setI(++n); }
+  @Benchmark public void setLong() { rec.setL(++n); }
+  @Benchmark public void setFloat() { rec.setF(++n); }
+  @Benchmark public void setDouble() { rec.setD(++n); }
+  @Benchmark public void setRecord() { rec.setNext((++n & 1) == 0 ? other : rec); }
+
+  /*
+   * Alternating between two strings keeps this to interned values, so
+   * it measures the field write rather than string creation.
+   */
+  @Benchmark public void setString() { rec.setStr((++n & 1) == 0 ? "even" : "odd"); }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hpl.mds.IsolationContext;
+
+/*
+ * The cost of an isolated block that makes one write.  With one thread
+ * it's the fixed cost of creating and publishing a child context.  With
+ * several, the private variant has no conflicts and shows how that
+ * scales; the shared one has every thread writing the same field, so
+ * the difference is the cost of conflicts and redoing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Isolation {
+
+  @State(Scope.Benchmark)
+  public static class Shared {
+    Sample rec;
+
+    @Setup
+    public void setup() {
+      rec = Sample.create.record();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Private {
+    Sample rec;
+
+    @Setup
+    public void setup() {
+      rec = Sample.create.record();
+    }
+  }
+
+  private static Integer increment(Sample rec) {
+    int v = rec.getI()+1;
+    rec.setI(v);
+    return v;
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Integer uncontended(Private p) {
+    return IsolationContext.isolated(() -> increment(p.rec));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Integer disjoint(Private p) {
+    return IsolationContext.isolated(() -> increment(p.rec));
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Integer contended(Shared s) {
+    return IsolationContext.isolated(() -> increment(s.rec));
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hpl.mds.impl.ManagedStringProxy;
+
+/*
+ * ManagedStringProxy.valueOf() for a string that's already in the
+ * managed heap, for one that isn't, for a managed string (which should
+ * be free), and for a batch through valueOfAll().
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StringInterning {
+  @Param({ "16", "256" })
+  int length;
+
+  String existing;
+  ManagedStringProxy managed;
+  String[] batch;
+  String prefix;
+  long n;
+
+  @Setup
+  public void setup() {
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < length) {
+      sb.append('x');
+    }
+    existing = sb.toString();
+    prefix = existing.substring(0, Math.max(0, length-16));
+    managed = ManagedStringProxy.valueOf(existing);
+    batch = new String[64];
+    for (int i = 0; i < batch.length; i++) {
+      batch[i] = existing + i;
+    }
+    ManagedStringProxy.valueOfAll(batch);
+  }
+
+  @Benchmark
+  public ManagedStringProxy existing() {
+    return ManagedStringProxy.valueOf(existing);
+  }
+
+  @Benchmark
+  public ManagedStringProxy fresh() {
+    return ManagedStringProxy.valueOf(prefix + Long.toHexString(n++));
+  }
+
+  @Benchmark
+  public ManagedStringProxy alreadyManaged() {
+    return ManagedStringProxy.valueOf(managed);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(64)
+  public ManagedStringProxy[] existingBatch() {
+    return ManagedStringProxy.valueOfAll(batch);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+import org.openjdk.jmh.annotations.*;
+
+/*
+ * Proxy.Table.fromIndex() at each tier: a hit in the thread-local
+ * cache, a miss there that's found in the global map, and a miss in
+ * both that creates a proxy.  Table and fromIndex() are package
+ * private, which is why this lives here rather than with the other
+ * benchmarks.  The proxies are stand-ins with no native side, so this
+ * measures the table alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProxyTableBench {
+
+  static final class Stand extends Proxy {
+    Stand(long index, Table<Stand> table) {
+      super(index, table);
+    }
+    @Override
+    void releaseHandleIndex(long index) {
+    }
+  }
+
+  /* The sizes of WithTinyCache through WithHugeCache */
+  @Param({ "4", "8", "16", "20" })
+  int cacheBits;
+
+  Proxy.Table<Stand> table;
+  LongFunction<Stand> creator;
+  Stand local;
+  Stand a;
+  Stand b;
+  long next;
+  boolean flip;
+
+  @Setup
+  public void setup() {
+    table = new Proxy.Table<>(index -> {}, cacheBits);
+    creator = index -> new Stand(index, table);
+    long size = 1L << cacheBits;
+    local = new Stand(1, table);
+    /*
+     * a and b share a thread-local slot, so alternating between them
+     * always falls through to the global map.
+     */
+    a = new Stand(2, table);
+    b = new Stand(2+size, table);
+    next = 1L << 40;
+  }
+
+  @Benchmark
+  public Stand localHit() {
+    return table.fromIndex(1, creator);
+  }
+
+  @Benchmark
+  public Stand globalHit() {
+    flip = !flip;
+    return table.fromIndex(flip ? a.handleIndex_ : b.handleIndex_, creator);
+  }
+
+  /*
+   * Each index is new, and is dropped from the global map afterwards
+   * so that it doesn't grow without bound.
+   */
+  @Benchmark
+  public Stand create() {
+    long index = next++;
+    Stand s = table.fromIndex(index, creator);
+    table.globalMap.remove(index);
+    return s;
+  }
+}
@@ -89,10 +89,16 @@ public class Generator {
     generateTypeSpecific("FooArrayProxy", Types.maskedTypes);
     generateTypeSpecific("FooFieldChange", Types.maskedTypes);
     generateTypeSpecific("ManagedFooSet", Types.maskedTypes);
+    generateTypeSpecific("FooSetType", Types.maskedTypes);
+    generateTypeSpecific("FooSetProxy", Types.primTypes);
     generateTypeSpecific("ManagedFooArray", Types.maskedTypes);
     generateTypeSpecific("ManagedFooList", Types.maskedTypes);
+    generateTypeSpecific("FooListType", Types.maskedTypes);
+    generateTypeSpecific("FooListProxy", Types.primTypes);
     generateTypeSpecific("ManagedMapToFoo", Types.maskedTypes);
     generateTypeSpecific("ManagedStringToFooMap", Types.maskedTypes);
+    generateTypeSpecific("StringToFooMapType", Types.numericTypes());
+    generateTypeSpecific("StringToFooMapProxy", Types.numericTypes());
     generateTypeSpecific("FooModifier", Types.primTypes);
     generateTypeSpecific("FooIndexedModifier", Types.primTypes);
     generateTypeSpecific("FooKeyedModifier", Types.primTypes);
@@ -116,6 +122,9 @@ public class Generator {
     generateTypeSpecific("JNI_FooArrayType", Types.maskedTypes);
     generateTypeSpecific("JNI_FooFieldProxy", Types.maskedTypes);
     generateTypeSpecific("JNI_ManagedFooType", Types.maskedTypes);
+    generateTypeSpecific("JNI_StringToFooMapProxy", Types.numericTypes());
+    generateTypeSpecific("JNI_FooSetProxy", Types.primTypes);
+    generateTypeSpecific("JNI_FooListProxy", Types.maskedTypes);
     generate("IsolationContext");
     generate("MDS");
     generate("PubResultProxy");
@@ -27,6 +27,7 @@
 package com.hpl.mds.generator;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 
 public class Types {
@@ -79,6 +80,10 @@ public class Types {
   static void registerPrim(PrimType type) {
     primTypes.add(type);
   }
+
+  public static List<PrimType> numericTypes() {
+    return primTypes.stream().filter(PrimType::isNumeric).collect(Collectors.toList());
+  }
   
 //  public List<PrimType> getPrimTypes() {
 //    return primTypes;
@@ -39,6 +39,10 @@ using namespace mds::api;
 using namespace mds::jni;
 using namespace mds::jni::field_proxy;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::field;
+}
+
 extern "C"
 {
 
@@ -48,7 +52,7 @@ extern "C"
   Java_com_hpl_mds_impl_ArrayFieldProxy_release (JNIEnv *jEnv, jclass,
 						 jlong handleIndex)
   {
-    exception_handler(jEnv, release<kind::ARRAY>, handleIndex);
+    exception_handler<jni_family>(jEnv, release<kind::ARRAY>, handleIndex);
   }
 
   JNIEXPORT
@@ -57,7 +61,7 @@ extern "C"
   Java_com_hpl_mds_impl_ArrayFieldProxy_getNameHandle (JNIEnv *jEnv, jclass,
 						       jlong hIndex)
   {
-    return exception_handler_wr(jEnv, get_name_handle<kind::ARRAY>, hIndex);
+    return exception_handler_wr<jni_family>(jEnv, get_name_handle<kind::ARRAY>, hIndex);
   }
 
   JNIEXPORT
@@ -66,7 +70,7 @@ extern "C"
   Java_com_hpl_mds_impl_ArrayFieldProxy_getRecTypeHandle (JNIEnv *jEnv, jclass,
 							  jlong hIndex)
   {
-    return exception_handler_wr(jEnv, get_rec_type_handle<kind::ARRAY>, hIndex);
+    return exception_handler_wr<jni_family>(jEnv, get_rec_type_handle<kind::ARRAY>, hIndex);
   }
 
 }
@@ -0,0 +1,137 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.ConflictHotSpots
+ */
+
+#include <jni.h>
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_ConflictHotSpots__1enable (JNIEnv *jEnv, jclass, jint sampleInterval)
+  {
+    exception_handler (jEnv, [=]
+      {
+	conflict_trace::enable(std::uint32_t(sampleInterval));
+      });
+  }
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_ConflictHotSpots__1disable (JNIEnv *jEnv, jclass)
+  {
+    exception_handler (jEnv, [=]
+      {
+	conflict_trace::disable();
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_ConflictHotSpots__1isEnabled (JNIEnv *jEnv, jclass)
+  {
+    return exception_handler_wr (jEnv, [=]
+      {
+	return jboolean(conflict_trace::enabled());
+      });
+  }
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_ConflictHotSpots__1reset (JNIEnv *jEnv, jclass)
+  {
+    exception_handler (jEnv, [=]
+      {
+	conflict_trace::reset();
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_ConflictHotSpots__1nSampled (JNIEnv *jEnv, jclass)
+  {
+    return exception_handler_wr (jEnv, [=]
+      {
+	return jlong(conflict_trace::n_sampled());
+      });
+  }
+
+  /*
+   * Returns {int[] sites, String[] where, long[] counts}, most
+   * conflicts first.
+   */
+  JNIEXPORT
+  jobjectArray
+  JNICALL
+  Java_com_hpl_mds_ConflictHotSpots__1top (JNIEnv *jEnv, jclass, jint n)
+  {
+    return exception_handler_wr (jEnv, [=]
+      {
+	std::vector<conflict_trace::hot_spot> spots = conflict_trace::top(std::size_t(n));
+	jsize len = jsize(spots.size());
+	jintArray sites = jEnv->NewIntArray(len);
+	jlongArray counts = jEnv->NewLongArray(len);
+	jclass stringClass = jEnv->FindClass("java/lang/String");
+	jobjectArray where = jEnv->NewObjectArray(len, stringClass, nullptr);
+	jclass objectClass = jEnv->FindClass("java/lang/Object");
+	jobjectArray res = jEnv->NewObjectArray(3, objectClass, nullptr);
+	if (res == nullptr || sites == nullptr || counts == nullptr || where == nullptr) {
+	  return jobjectArray(nullptr);
+	}
+	for (jsize i=0; i<len; i++) {
+	  const conflict_trace::hot_spot &hs = spots[i];
+	  jint site = jint(hs.site);
+	  jlong count = jlong(hs.count);
+	  jEnv->SetIntArrayRegion(sites, i, 1, &site);
+	  jEnv->SetLongArrayRegion(counts, i, 1, &count);
+	  std::basic_string<jchar> s{hs.where.begin(), hs.where.end()};
+	  jstring js = jEnv->NewString(s.c_str(), s.length());
+	  jEnv->SetObjectArrayElement(where, i, js);
+	  jEnv->DeleteLocalRef(js);
+	}
+	jEnv->SetObjectArrayElement(res, 0, sites);
+	jEnv->SetObjectArrayElement(res, 1, where);
+	jEnv->SetObjectArrayElement(res, 2, counts);
+	return res;
+      });
+  }
+
+}
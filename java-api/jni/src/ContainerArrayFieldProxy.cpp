@@ -0,0 +1,220 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.ContainerArrayFieldProxy
+ */
+
+#include <jni.h>
+#include "mds_core_api.h"                              // MDS Core API
+#include "mds-debug.h"                            // #define dout cout
+#include "mds_jni.h"                              // MDS Java API JNI common fns
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::field;
+
+  template <typename V>
+  managed_array_handle<kind::CONTAINER>
+  downcast_array(const V &v)
+  {
+    if (v == nullptr)
+      {
+        return managed_array_handle<kind::CONTAINER>{};
+      }
+    return managed_array_handle<kind::CONTAINER>{v.pointer()->template downcast<kind::CONTAINER>(),
+                                                 v.view()};
+  }
+}
+
+extern "C"
+{
+
+  /*
+   * Returns 0 if the field doesn't exist and create is false.
+   */
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayFieldProxy_fieldIn (
+      JNIEnv *jEnv, jclass, jlong recTypeHIndex, jlong nameHIndex,
+      jlong valTypeHIndex, jboolean create)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_type_handle> rec_type
+	  { recTypeHIndex};
+	indexed<interned_string_handle> name
+	  { nameHIndex};
+	indexed<array_type_handle<kind::CONTAINER>> val_type
+	  { valTypeHIndex};
+	indexed<record_field_handle<kind::ARRAY>> h
+	  { val_type->field_in(*rec_type, *name, create)};
+	return h.return_index();
+      });
+  }
+
+  /*
+   * The container type of the field's elements, used when a field
+   * loaded from the schema needs a Java type.
+   */
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayFieldProxy_eltTypeHandle (JNIEnv *jEnv,
+								jclass,
+								jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::ARRAY>> h
+	  { hIndex};
+	auto tp = h->field_type();
+	auto tpdc = tp.pointer()->downcast<kind::CONTAINER>();
+	indexed<const_container_type_handle> type
+	  { const_container_type_handle{tpdc->element_type()}};
+	return type.return_index();
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayFieldProxy_getValueHandle (JNIEnv *jEnv,
+								 jclass,
+								 jlong hIndex,
+								 jlong recHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::ARRAY>> h
+	  { hIndex};
+	indexed<managed_record_handle> rec
+	  { recHIndex};
+	indexed<managed_array_handle<kind::CONTAINER>> val
+	  { downcast_array(h->frozen_read(*rec))};
+	return val.return_index();
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayFieldProxy_peekValueHandle (JNIEnv *jEnv,
+								  jclass,
+								  jlong hIndex,
+								  jlong recHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::ARRAY>> h
+	  { hIndex};
+	indexed<managed_record_handle> rec
+	  { recHIndex};
+	indexed<managed_array_handle<kind::CONTAINER>> val
+	  { downcast_array(h->free_read(*rec))};
+	return val.return_index();
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayFieldProxy_setValueHandle (JNIEnv *jEnv,
+								 jclass,
+								 jlong hIndex,
+								 jlong recHIndex,
+								 jlong valArg)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::ARRAY>> h
+	  { hIndex};
+	indexed<managed_record_handle> rec
+	  { recHIndex};
+	indexed<managed_array_handle<kind::CONTAINER>> val
+	  { valArg};
+	indexed<managed_array_handle<kind::CONTAINER>> old
+	  { downcast_array(h->write(*rec, *val))};
+	return old.return_index();
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayFieldProxy_getAndSetValueHandle (JNIEnv *jEnv,
+								       jclass,
+								       jlong hIndex,
+								       jlong recHIndex,
+								       jlong valArg)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::ARRAY>> h
+	  { hIndex};
+	indexed<managed_record_handle> rec
+	  { recHIndex};
+	indexed<managed_array_handle<kind::CONTAINER>> val
+	  { valArg};
+	indexed<managed_array_handle<kind::CONTAINER>> old
+	  { downcast_array(h->write(*rec, *val, ret_mode::prior_val))};
+	return old.return_index();
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayFieldProxy_initFinal (JNIEnv *jEnv,
+							    jclass,
+							    jlong hIndex,
+							    jlong recHIndex,
+							    jlong valArg)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::ARRAY>> h
+	  { hIndex};
+	indexed<managed_record_handle> rec
+	  { recHIndex};
+	indexed<managed_array_handle<kind::CONTAINER>> val
+	  { valArg};
+	return h->write_initial(*rec, *val);
+      });
+  }
+
+}
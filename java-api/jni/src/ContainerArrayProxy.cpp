@@ -0,0 +1,203 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.ContainerArrayProxy
+ *
+ * Elements go in and out through the handle store for the element
+ * container type, so its handle is passed down with them.
+ */
+
+#include <jni.h>
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+#include "array_proxy.h"
+#include "container_proxy.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+using namespace mds::jni::array_proxy;
+using namespace mds::jni::container_proxy;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::array;
+}
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayProxy_release (JNIEnv *jEnv, jclass,
+						     jlong handleIndex)
+  {
+    exception_handler<jni_family> (jEnv, release<kind::CONTAINER>, handleIndex);
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayProxy_isIdentical (JNIEnv *jEnv, jclass,
+							 jlong aHIndex, jlong bHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, is_same_as<kind::CONTAINER>, aHIndex,
+				 bHIndex);
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayProxy_isSameObject (JNIEnv *jEnv, jclass,
+							  jlong aHIndex, jlong bHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, is_same_object<kind::CONTAINER>, aHIndex,
+				 bHIndex);
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayProxy_isSameViewOfSameObject (JNIEnv *jEnv, jclass,
+								    jlong aHIndex, jlong bHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, is_same_view_same_object<kind::CONTAINER>,
+				 aHIndex, bHIndex);
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayProxy_getHandle (JNIEnv *jEnv, jclass,
+						       jlong handleIndex,
+						       jlong eltTypeHIndex,
+						       jlong index)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<managed_array_handle<kind::CONTAINER>> a
+	  { handleIndex};
+	indexed<container_type_handle> et
+	  { eltTypeHIndex};
+	managed_container_handle val = a->frozen_read (index);
+	return with_handle_type(*et, [&](auto tag)
+	  {
+	    using H = typename decltype(tag)::type;
+	    return to_java<H>(val);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayProxy_peekHandle (JNIEnv *jEnv, jclass,
+							jlong handleIndex,
+							jlong eltTypeHIndex,
+							jlong index)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<managed_array_handle<kind::CONTAINER>> a
+	  { handleIndex};
+	indexed<container_type_handle> et
+	  { eltTypeHIndex};
+	managed_container_handle val = a->free_read (index);
+	return with_handle_type(*et, [&](auto tag)
+	  {
+	    using H = typename decltype(tag)::type;
+	    return to_java<H>(val);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayProxy_setHandle (JNIEnv *jEnv, jclass,
+						       jlong handleIndex,
+						       jlong eltTypeHIndex,
+						       jlong index, jlong valArg)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<managed_array_handle<kind::CONTAINER>> a
+	  { handleIndex};
+	indexed<container_type_handle> et
+	  { eltTypeHIndex};
+	return with_handle_type(*et, [&](auto tag)
+	  {
+	    using H = typename decltype(tag)::type;
+	    managed_container_handle old = a->write (index, from_java<H>(valArg));
+	    return to_java<H>(old);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayProxy_getAndSetHandle (JNIEnv *jEnv, jclass,
+							     jlong handleIndex,
+							     jlong eltTypeHIndex,
+							     jlong index, jlong valArg)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<managed_array_handle<kind::CONTAINER>> a
+	  { handleIndex};
+	indexed<container_type_handle> et
+	  { eltTypeHIndex};
+	return with_handle_type(*et, [&](auto tag)
+	  {
+	    using H = typename decltype(tag)::type;
+	    managed_container_handle old = a->write (index, from_java<H>(valArg),
+						     ret_mode::prior_val);
+	    return to_java<H>(old);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayProxy_size (JNIEnv *jEnv, jclass,
+						  jlong handleIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, size<kind::CONTAINER>, handleIndex);
+  }
+
+}
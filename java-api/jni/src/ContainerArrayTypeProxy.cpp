@@ -0,0 +1,129 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.ContainerArrayTypeProxy
+ */
+
+#include "mds-debug.h"
+#include <jni.h>
+#include "mds_core_api.h"                            // MDS Core API
+#include "mds_jni.h"
+#include "array_type.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+using namespace mds::jni::array_type;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::array;
+}
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayTypeProxy_release (JNIEnv *jEnv, jclass,
+							 jlong handleIndex)
+  {
+    exception_handler<jni_family> (jEnv, [=]
+      {
+	indexed<array_type_handle<kind::CONTAINER>> self
+	  { handleIndex};
+	self.release();
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayTypeProxy_bindHandle (JNIEnv *jEnv, jclass,
+							    jlong nsHIndex,
+							    jlong nameHIndex,
+							    jlong valHandle)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, bind_handle<kind::CONTAINER>,
+				 nsHIndex, nameHIndex, valHandle);
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayTypeProxy_lookupHandle (JNIEnv *jEnv, jclass,
+							      jlong hIndex,
+							      jlong nsHIndex,
+							      jlong nameHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<array_type_handle<kind::CONTAINER>> self
+	  { hIndex};
+	indexed<namespace_handle> ns
+	  { nsHIndex};
+	indexed<interned_string_handle> name
+	  { nameHIndex};
+	indexed<managed_array_handle<kind::CONTAINER>> val
+	  { ns->lookup (*name, *self)};
+	return val.return_index ();
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayTypeProxy_isSameAs (JNIEnv *jEnv, jclass,
+							  jlong aHIndex,
+							  jlong bHIndex)
+  {
+    return exception_handler_wr<jni_family> (jEnv, is_same_as<kind::CONTAINER>, aHIndex,
+				 bHIndex);
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerArrayTypeProxy_createArray (JNIEnv *jEnv, jclass,
+							     jlong hIndex,
+							     jlong size,
+							     jint layout)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<array_type_handle<kind::CONTAINER>> self
+	  { hIndex};
+	indexed<managed_array_handle<kind::CONTAINER>> arr (
+	    self->create_array (size, layout_from_java (layout)));
+	return arr.return_index ();
+      });
+  }
+
+}
@@ -0,0 +1,262 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.ContainerFieldProxy
+ *
+ * Values go in and out through the handle store for the field's
+ * container type, so the type's handle is passed down with them.
+ */
+
+#include <jni.h>
+#include "mds_core_api.h"                              // MDS Core API
+#include "mds-debug.h"                            // #define dout cout
+#include "mds_jni.h"                              // MDS Java API JNI common fns
+#include "field_proxy.h"
+#include "container_proxy.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+using namespace mds::jni::field_proxy;
+using namespace mds::jni::container_proxy;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::field;
+}
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerFieldProxy_release (JNIEnv *jEnv, jclass,
+						     jlong handleIndex)
+  {
+    exception_handler<jni_family> (jEnv, release<kind::CONTAINER>, handleIndex);
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerFieldProxy_getNameHandle (JNIEnv *jEnv, jclass,
+							   jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, get_name_handle<kind::CONTAINER>, hIndex);
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerFieldProxy_getRecTypeHandle (JNIEnv *jEnv, jclass,
+							      jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, get_rec_type_handle<kind::CONTAINER>,
+				 hIndex);
+  }
+
+  /*
+   * Returns 0 if the field doesn't exist and create is false.  Throws
+   * IncompatibleTypeException if it exists with some other type.
+   */
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerFieldProxy_fieldIn (JNIEnv *jEnv, jclass,
+						     jlong recTypeHIndex,
+						     jlong nameHIndex,
+						     jlong typeHIndex,
+						     jboolean create)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_type_handle> rec_type
+	  { recTypeHIndex};
+	indexed<interned_string_handle> name
+	  { nameHIndex};
+	indexed<container_type_handle> type
+	  { typeHIndex};
+	indexed<record_field_handle<kind::CONTAINER>> h
+	  { type->field_in(*rec_type, *name, create)};
+	return h.return_index();
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerFieldProxy_typeHandle (JNIEnv *jEnv, jclass,
+							jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::CONTAINER>> h
+	  { hIndex};
+	indexed<const_container_type_handle> type
+	  { h->field_type()};
+	return type.return_index();
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerFieldProxy_getValueHandle (JNIEnv *jEnv, jclass,
+							    jlong hIndex,
+							    jlong typeHIndex,
+							    jlong recHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::CONTAINER>> h
+	  { hIndex};
+	indexed<container_type_handle> type
+	  { typeHIndex};
+	indexed<managed_record_handle> rec
+	  { recHIndex};
+	managed_container_handle val = h->frozen_read(*rec);
+	return with_handle_type(*type, [&](auto tag)
+	  {
+	    using H = typename decltype(tag)::type;
+	    return to_java<H>(val);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerFieldProxy_peekValueHandle (JNIEnv *jEnv, jclass,
+							     jlong hIndex,
+							     jlong typeHIndex,
+							     jlong recHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::CONTAINER>> h
+	  { hIndex};
+	indexed<container_type_handle> type
+	  { typeHIndex};
+	indexed<managed_record_handle> rec
+	  { recHIndex};
+	managed_container_handle val = h->free_read(*rec);
+	return with_handle_type(*type, [&](auto tag)
+	  {
+	    using H = typename decltype(tag)::type;
+	    return to_java<H>(val);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerFieldProxy_setValueHandle (JNIEnv *jEnv, jclass,
+							    jlong hIndex,
+							    jlong typeHIndex,
+							    jlong recHIndex,
+							    jlong valArg)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::CONTAINER>> h
+	  { hIndex};
+	indexed<container_type_handle> type
+	  { typeHIndex};
+	indexed<managed_record_handle> rec
+	  { recHIndex};
+	return with_handle_type(*type, [&](auto tag)
+	  {
+	    using H = typename decltype(tag)::type;
+	    managed_container_handle old = h->write(*rec, from_java<H>(valArg));
+	    return to_java<H>(old);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerFieldProxy_getAndSetValueHandle (JNIEnv *jEnv, jclass,
+								  jlong hIndex,
+								  jlong typeHIndex,
+								  jlong recHIndex,
+								  jlong valArg)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::CONTAINER>> h
+	  { hIndex};
+	indexed<container_type_handle> type
+	  { typeHIndex};
+	indexed<managed_record_handle> rec
+	  { recHIndex};
+	return with_handle_type(*type, [&](auto tag)
+	  {
+	    using H = typename decltype(tag)::type;
+	    managed_container_handle old = h->write(*rec, from_java<H>(valArg),
+						    ret_mode::prior_val);
+	    return to_java<H>(old);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerFieldProxy_initFinal (JNIEnv *jEnv, jclass,
+						       jlong hIndex,
+						       jlong typeHIndex,
+						       jlong recHIndex,
+						       jlong valArg)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_field_handle<kind::CONTAINER>> h
+	  { hIndex};
+	indexed<container_type_handle> type
+	  { typeHIndex};
+	indexed<managed_record_handle> rec
+	  { recHIndex};
+	return with_handle_type(*type, [&](auto tag)
+	  {
+	    using H = typename decltype(tag)::type;
+	    return h->write_initial(*rec, from_java<H>(valArg));
+	  });
+      });
+  }
+
+}
@@ -0,0 +1,230 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.ContainerTypeProxy
+ */
+
+#include <jni.h>
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+#include "container_proxy.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+using namespace mds::jni::container_proxy;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::collection;
+}
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerTypeProxy_release (JNIEnv *jEnv, jclass,
+						    jlong handleIndex)
+  {
+    exception_handler<jni_family> (jEnv, [=]
+      {
+	indexed<container_type_handle> self
+	  { handleIndex};
+	self.release();
+      });
+  }
+
+  /*
+   * eltTypeHIndex is the element record type's handle, or 0 if the
+   * elements aren't records.
+   */
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerTypeProxy_forShape (JNIEnv *jEnv, jclass,
+						     jint shape,
+						     jint keyKind,
+						     jint eltKind,
+						     jlong eltTypeHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_type_handle> et
+	  { eltTypeHIndex};
+	indexed<container_type_handle> h
+	  { container_type_handle::of(static_cast<container_shape>(shape),
+				      static_cast<kind>(keyKind),
+				      static_cast<kind>(eltKind),
+				      *et)};
+	return h.return_index();
+      });
+  }
+
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerTypeProxy_shape (JNIEnv *jEnv, jclass,
+						  jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<container_type_handle> self
+	  { hIndex};
+	return static_cast<jint>(self->shape());
+      });
+  }
+
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerTypeProxy_keyKind (JNIEnv *jEnv, jclass,
+						    jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<container_type_handle> self
+	  { hIndex};
+	return static_cast<jint>(self->key_kind());
+      });
+  }
+
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerTypeProxy_eltKind (JNIEnv *jEnv, jclass,
+						    jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<container_type_handle> self
+	  { hIndex};
+	return static_cast<jint>(self->elt_kind());
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerTypeProxy_eltTypeHandle (JNIEnv *jEnv, jclass,
+							  jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<container_type_handle> self
+	  { hIndex};
+	indexed<const_record_type_handle> et
+	  { self->elt_type()};
+	return et.return_index();
+      });
+  }
+
+  /*
+   * Returns the handle (in the store for typeHIndex's typed handle) of
+   * the container bound to the name.  Throws IncompatibleTypeException
+   * if it's bound to something else.
+   */
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerTypeProxy_lookupHandle (JNIEnv *jEnv, jclass,
+							 jlong typeHIndex,
+							 jlong nsHIndex,
+							 jlong nameHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<container_type_handle> type
+	  { typeHIndex};
+	indexed<namespace_handle> ns
+	  { nsHIndex};
+	indexed<interned_string_handle> name
+	  { nameHIndex};
+	managed_container_handle val = ns->lookup(*name, *type);
+	return with_handle_type(*type, [&](auto tag)
+	  {
+	    using H = typename decltype(tag)::type;
+	    return to_java<H>(val);
+	  });
+      });
+  }
+
+  /*
+   * Returns false if the name is bound to a sub-namespace.
+   */
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerTypeProxy_bindHandle (JNIEnv *jEnv, jclass,
+						       jlong typeHIndex,
+						       jlong nsHIndex,
+						       jlong nameHIndex,
+						       jlong valHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<container_type_handle> type
+	  { typeHIndex};
+	indexed<namespace_handle> ns
+	  { nsHIndex};
+	indexed<interned_string_handle> name
+	  { nameHIndex};
+	managed_container_handle val = with_handle_type(*type, [&](auto tag)
+	  {
+	    using H = typename decltype(tag)::type;
+	    return from_java<H>(valHIndex);
+	  });
+	return ns->bind<kind::CONTAINER>(*name, val);
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_ContainerTypeProxy_arrayTypeHandle (JNIEnv *jEnv, jclass,
+							    jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<container_type_handle> self
+	  { hIndex};
+	indexed<array_type_handle<kind::CONTAINER>> at
+	  { self->in_array()};
+	return at.return_index();
+      });
+  }
+
+}
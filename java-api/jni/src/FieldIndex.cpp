@@ -0,0 +1,211 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.FieldIndex
+ *
+ * The field's kind is passed down with each call, since the handle
+ * store holding the field's handle depends on it.  Field values cross
+ * the boundary as jlongs (see jlong_carrier.h).
+ */
+
+#include <jni.h>
+#include <vector>
+#include <type_traits>
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+#include "jlong_carrier.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+using namespace mds::jni::carrier;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::record;
+}
+
+namespace
+{
+  inline core::index_kind
+  index_kind_from_java(jboolean ordered)
+  {
+    return ordered ? core::index_kind::ordered : core::index_kind::hash;
+  }
+
+  /*
+   * The ordinals of OrderedMapProxy.Bound.
+   */
+  inline core::skip_list::bound
+  bound_from_java(jint ordinal)
+  {
+    switch (ordinal) {
+    case 1:
+      return core::skip_list::bound::inclusive;
+    case 2:
+      return core::skip_list::bound::exclusive;
+    default:
+      return core::skip_list::bound::none;
+    }
+  }
+}
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_FieldIndex_declare (JNIEnv *jEnv, jclass,
+					    jint fieldKind,
+					    jlong fieldIndex,
+					    jboolean ordered)
+  {
+    ensure_thread_initialized(jEnv);
+    exception_handler<jni_family> (jEnv, [=]
+      {
+	with_carried_kind(fieldKind, [=](auto kc)
+	  {
+	    constexpr kind K = decltype(kc)::value;
+	    indexed<record_field_handle<K>> f
+	      { fieldIndex };
+	    f->ensure_index(index_kind_from_java(ordered));
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_FieldIndex_isIndexed (JNIEnv *jEnv, jclass,
+					      jint fieldKind,
+					      jlong fieldIndex,
+					      jboolean ordered)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_carried_kind(fieldKind, [=](auto kc)
+	  {
+	    constexpr kind K = decltype(kc)::value;
+	    indexed<record_field_handle<K>> f
+	      { fieldIndex };
+	    return static_cast<jboolean>(f->is_indexed(index_kind_from_java(ordered)));
+	  });
+      });
+  }
+
+  /*
+   * Fills recs with handles for up to recs.length records whose value
+   * for the field is val, starting after the one whose handle is
+   * afterIndex (or at the newest if it's 0).  Returns the number filled
+   * in, or -(n+1) if there are no more after these.
+   */
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_FieldIndex_recordsChunk (JNIEnv *jEnv, jclass,
+						 jint fieldKind,
+						 jlong fieldIndex,
+						 jlong val,
+						 jlong afterIndex,
+						 jlongArray recs)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_carried_kind(fieldKind, [=](auto kc)
+	  {
+	    constexpr kind K = decltype(kc)::value;
+	    indexed<record_field_handle<K>> f
+	      { fieldIndex };
+	    indexed<managed_record_handle> after_h
+	      { afterIndex };
+	    managed_record_handle after = *after_h;
+	    jsize max = jEnv->GetArrayLength(recs);
+	    std::vector<jlong> buf;
+	    buf.reserve(max);
+	    bool more = f->for_each_with(bits<K>::in(val),
+					 afterIndex == 0 ? nullptr : &after, max,
+					 [&](const managed_record_handle &r)
+	      {
+		indexed<managed_record_handle> ri
+		  { r };
+		buf.push_back(ri.return_index());
+	      });
+	    jsize n = static_cast<jsize>(buf.size());
+	    jEnv->SetLongArrayRegion(recs, 0, n, buf.data());
+	    return static_cast<jint>(more ? n : -(n+1));
+	  });
+      });
+  }
+
+  /*
+   * Fills vals with up to vals.length distinct values in the range, as
+   * OrderedMapProxy.rangeChunk() does with keys.
+   */
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_FieldIndex_valuesChunk (JNIEnv *jEnv, jclass,
+						jint fieldKind,
+						jlong fieldIndex,
+						jboolean descending,
+						jint loBound,
+						jlong lo,
+						jint hiBound,
+						jlong hi,
+						jlongArray vals)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_carried_kind(fieldKind, [=](auto kc)
+	  {
+	    constexpr kind K = decltype(kc)::value;
+	    indexed<record_field_handle<K>> f
+	      { fieldIndex };
+	    auto lo_b = bound_from_java(loBound);
+	    auto hi_b = bound_from_java(hiBound);
+	    api_type<K> lo_v = lo_b == core::skip_list::bound::none ? api_type<K>{} : bits<K>::in(lo);
+	    api_type<K> hi_v = hi_b == core::skip_list::bound::none ? api_type<K>{} : bits<K>::in(hi);
+	    jsize max = jEnv->GetArrayLength(vals);
+	    std::vector<jlong> buf;
+	    buf.reserve(max);
+	    bool more = f->for_values(descending, lo_b, lo_v, hi_b, hi_v, max,
+				      [&](const api_type<K> &v)
+	      {
+		buf.push_back(bits<K>::out(v));
+	      });
+	    jsize n = static_cast<jsize>(buf.size());
+	    jEnv->SetLongArrayRegion(vals, 0, n, buf.data());
+	    return static_cast<jint>(more ? n : -(n+1));
+	  });
+      });
+  }
+
+}
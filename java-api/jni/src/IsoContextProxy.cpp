@@ -38,6 +38,10 @@ using namespace mds;
 using namespace mds::api;
 using namespace mds::jni;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::isolation;
+}
+
 
 
 extern "C" {
@@ -50,7 +54,7 @@ JNICALL Java_com_hpl_mds_impl_IsoContextProxy_release
   (JNIEnv *jEnv, jclass,
    jlong handleIndex)
 {
-  exception_handler(jEnv, [=]{
+  exception_handler<jni_family>(jEnv, [=]{
 	indexed<iso_context_handle> self { handleIndex };
 	self.release();
   });
@@ -70,7 +74,7 @@ JNICALL Java_com_hpl_mds_impl_IsoContextProxy_parentHandle
    jlong handleIndex)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
 	indexed<iso_context_handle> self { handleIndex };
 	indexed<iso_context_handle> parent { self->parent() };
     return parent.return_index();});
@@ -83,7 +87,7 @@ JNICALL Java_com_hpl_mds_impl_IsoContextProxy_topLevelTaskHandle
    jlong handleIndex)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
 	indexed<iso_context_handle> self { handleIndex };
 	indexed<task_handle> top_level_task { self->top_level_task() };
     return top_level_task.return_index();});
@@ -104,7 +108,7 @@ Java_com_hpl_mds_impl_IsoContextProxy_newChild
    jint modType)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
 	indexed<iso_context_handle> self {handleIndex};
 	view_type vt = static_cast<view_type>(viewType);
 	mod_type mt = static_cast<mod_type>(modType);
@@ -129,7 +133,7 @@ Java_com_hpl_mds_impl_IsoContextProxy_globalHandle
   (JNIEnv *jEnv, jclass)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [](){
+  return exception_handler_wr<jni_family>(jEnv, [](){
 	static indexed<iso_context_handle> gh { iso_context_handle::global() };
 //	std::cout << "Global is " << *gh << " (handle: " << gh.peek_index() << ")" << std::endl;
 	return gh.return_index();
@@ -148,7 +152,7 @@ Java_com_hpl_mds_impl_IsoContextProxy_processHandle
   (JNIEnv *jEnv, jclass)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [](){
+  return exception_handler_wr<jni_family>(jEnv, [](){
 	static indexed<iso_context_handle> ph { iso_context_handle::for_process() };
 	return ph.return_index();
   });
@@ -167,7 +171,7 @@ Java_com_hpl_mds_impl_IsoContextProxy_isPublishable
    jlong handleIndex)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
 	indexed<iso_context_handle> self { handleIndex };
 	return self->is_publishable();
   });
@@ -185,7 +189,7 @@ Java_com_hpl_mds_impl_IsoContextProxy_isSnapshot
   (JNIEnv *jEnv, jclass, jlong handleIndex)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
 	indexed<iso_context_handle> self { handleIndex };
 	return self->is_snapshot();
   });
@@ -205,7 +209,7 @@ Java_com_hpl_mds_impl_IsoContextProxy_isReadOnly
    jlong handleIndex)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
 	indexed<iso_context_handle> self { handleIndex };
 	return self->is_read_only();
   });
@@ -225,7 +229,7 @@ Java_com_hpl_mds_impl_IsoContextProxy_publish
   (JNIEnv *jEnv, jclass,
    jlong handleIndex)
 {
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
       indexed<iso_context_handle> self { handleIndex };
       indexed<publication_attempt_handle> pr{self->publish()};
       return pr.return_index();
@@ -239,7 +243,7 @@ Java_com_hpl_mds_impl_IsoContextProxy_push
   (JNIEnv *jEnv, jclass,
    jlong handleIndex)
 {
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
       indexed<iso_context_handle> self { handleIndex };
       //      std::cout << "Pushing into context " << self << std::endl;
       indexed<task_handle> t{self->push_prevailing()};
@@ -255,11 +259,28 @@ Java_com_hpl_mds_impl_IsoContextProxy_hasConflicts
   (JNIEnv *jEnv, jclass,
    jlong handleIndex)
 {
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
       indexed<iso_context_handle> self { handleIndex };
       return self->has_conflicts();
     });
 }
   
+JNIEXPORT
+void
+JNICALL
+Java_com_hpl_mds_impl_IsoContextProxy_trackFieldSites
+  (JNIEnv *jEnv, jclass,
+   jboolean on)
+{
+  ensure_thread_initialized(jEnv);
+  exception_handler<jni_family>(jEnv, [=]{
+      if (on) {
+        msv_sites::retain();
+      } else {
+        msv_sites::release();
+      }
+    });
+}
+
 }
 
@@ -39,6 +39,10 @@ using namespace mds;
 using namespace mds::api;
 using namespace mds::jni;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::record;
+}
+
 extern "C"
 {
 
@@ -49,7 +53,7 @@ extern "C"
 						    jlong handleIndex)
   {
     // std::cerr << "Releasing record " << handleIndex << std::endl;
-    exception_handler (jEnv, [=]
+    exception_handler<jni_family> (jEnv, [=]
       {
 	indexed<managed_record_handle> self
 	  { handleIndex};
@@ -65,7 +69,7 @@ extern "C"
 							    jlong handleIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<managed_record_handle> self
 	  { handleIndex};
@@ -93,7 +97,7 @@ extern "C"
 							 jlong recTypeHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_type_handle> rt
 	  { recTypeHIndex};
@@ -111,7 +115,7 @@ extern "C"
   Java_com_hpl_mds_impl_ManagedRecordProxy_getUUID (JNIEnv *jEnv, jobject,
 						    jlong recHIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<managed_record_handle> r
 	  { recHIndex};
@@ -126,7 +130,7 @@ extern "C"
 						     jlong aHIndex,
 						     jlong bHIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<managed_record_handle> a
 	  { aHIndex};
@@ -142,7 +146,7 @@ extern "C"
   Java_com_hpl_mds_impl_ManagedRecordProxy_isSameObject (JNIEnv *jEnv, jclass,
                                                        jlong aHIndex, jlong bHIndex)
   {
-    return exception_handler_wr (jEnv, [=] {
+    return exception_handler_wr<jni_family> (jEnv, [=] {
         indexed<managed_record_handle> a { aHIndex };
         indexed<managed_record_handle> b { bHIndex };
         return a->object() == b->object();
@@ -155,7 +159,7 @@ extern "C"
                                                                    jlong aHIndex, jlong bHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=] {
+    return exception_handler_wr<jni_family> (jEnv, [=] {
         indexed<managed_record_handle> a { aHIndex };
         indexed<managed_record_handle> b { bHIndex };
         return a->same_in_prevailing_context(*b);
@@ -168,7 +172,7 @@ extern "C"
   Java_com_hpl_mds_impl_ManagedRecordProxy_freeHandle (JNIEnv *jEnv, jobject,
 						       jlong recHIndex)
   {
-    exception_handler (jEnv, [=]
+    exception_handler<jni_family> (jEnv, [=]
       {
 	indexed<managed_record_handle> r
 	  { recHIndex};
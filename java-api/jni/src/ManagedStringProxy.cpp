@@ -30,6 +30,7 @@
 
 #include "mds-debug.h"
 #include <string>
+#include <vector>
 #include <jni.h>
 #include "mds_core_api.h"                                // MDS Core API
 #include "mds_jni.h"
@@ -37,6 +38,10 @@
 using namespace mds::api;
 using namespace mds::jni;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::string;
+}
+
 extern "C"
 {
 
@@ -46,7 +51,7 @@ extern "C"
   Java_com_hpl_mds_impl_ManagedStringProxy_release (JNIEnv *jEnv, jclass,
 						    jlong handleIndex)
   {
-    exception_handler (jEnv, [=]
+    exception_handler<jni_family> (jEnv, [=]
       {
 	indexed<interned_string_handle> self
 	  { handleIndex};
@@ -65,7 +70,7 @@ extern "C"
 						       jlong aHIndex,
 						       jlong bHIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<interned_string_handle> a
 	  { aHIndex};
@@ -83,7 +88,7 @@ extern "C"
 						      jlong aHIndex,
 						      jlong bHIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	if (aHIndex == bHIndex)
 	  {
@@ -137,7 +142,7 @@ extern "C"
       {
 	return 0;
       }
-    return exception_handler_wr (
+    return exception_handler_wr<jni_family> (
 	jEnv, [&]
 	  {
 	    using namespace std;
@@ -167,6 +172,90 @@ extern "C"
   });
   }
 
+  /*
+   * Class:     com_hpl_mds_impl_ManagedStringProxy
+   * Method:    internAll
+   * Signature: ([Ljava/lang/String;)[J
+   *
+   * Interns a batch of strings in a single trip across JNI.  Rather
+   * than holding a critical region per string (which would keep us
+   * from creating handles while we held it), each string is copied
+   * into a per-thread buffer that is reused across the batch.
+   * Null elements map to a zero handle.
+   */
+  JNIEXPORT
+  jlongArray
+  JNICALL
+  Java_com_hpl_mds_impl_ManagedStringProxy_internAll (JNIEnv *jEnv, jclass,
+						      jobjectArray strings)
+  {
+    if (strings == nullptr)
+      {
+	return nullptr;
+      }
+    return exception_handler_wr<jni_family> (
+	jEnv, [&]
+	  {
+	    static_assert(sizeof(jchar)==sizeof(char16_t), "jchar and char16_t different sizes");
+	    static thread_local std::basic_string<jchar> buffer;
+
+	    jsize n = jEnv->GetArrayLength(strings);
+	    std::vector<jlong> indices(n, 0);
+	    for (jsize i=0; i<n; i++)
+	      {
+		jstring s = static_cast<jstring>(jEnv->GetObjectArrayElement(strings, i));
+		if (s == nullptr)
+		  {
+		    continue;
+		  }
+		jsize len = jEnv->GetStringLength(s);
+		buffer.resize(len);
+		jEnv->GetStringRegion(s, 0, len, &buffer[0]);
+		jEnv->DeleteLocalRef(s);
+		const char16_t *wcs = reinterpret_cast<const char16_t *>(buffer.data());
+		indexed<interned_string_handle> msp
+		  { intern(wcs, len)};
+		indices[i] = msp.return_index();
+	      }
+	    jlongArray array = jEnv->NewLongArray(n);
+	    if (array != nullptr)
+	      {
+		jEnv->SetLongArrayRegion(array, 0, n, indices.data());
+	      }
+	    return array;
+	  });
+  }
+
+  /*
+   * Class:     com_hpl_mds_impl_ManagedStringProxy
+   * Method:    internStats
+   * Signature: ()[J
+   *
+   * The order of the elements must match the indices used by
+   * com.hpl.mds.StringTableStats.
+   */
+  JNIEXPORT
+  jlongArray
+  JNICALL
+  Java_com_hpl_mds_impl_ManagedStringProxy_internStats (JNIEnv *jEnv, jclass)
+  {
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	string_table_stats s = intern_stats();
+	jlong vals[] =
+	  { jlong(s.n_shards), jlong(s.n_strings), jlong(s.capacity),
+	    jlong(s.lookups), jlong(s.hits), jlong(s.insert_races),
+	    jlong(s.min_shard_size), jlong(s.max_shard_size) };
+	constexpr jsize n = sizeof(vals)/sizeof(vals[0]);
+	jlongArray array = jEnv->NewLongArray(n);
+	if (array != nullptr)
+	  {
+	    jEnv->SetLongArrayRegion(array, 0, n, vals);
+	  }
+	return array;
+      });
+  }
+
   /*
    * Class:     com_hpl_mds_impl_ManagedStringProxy
    * Method:    toString
@@ -183,7 +272,7 @@ extern "C"
       {
 	return nullptr;
       }
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<interned_string_handle> is
 	  { h};
@@ -204,7 +293,7 @@ extern "C"
   Java_com_hpl_mds_impl_ManagedStringProxy_length (JNIEnv *jEnv, jclass,
 						   jlong h)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<interned_string_handle> is
 	  { h};
@@ -219,7 +308,7 @@ extern "C"
   Java_com_hpl_mds_impl_ManagedStringProxy_charAt (JNIEnv *jEnv, jclass,
 						   jlong h, jint index)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<interned_string_handle> is
 	  { h};
@@ -0,0 +1,304 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.MapFromStringProxy
+ *
+ * The value kind is passed down with each call, since the handle store
+ * holding the map's handle depends on it.
+ */
+
+#include <jni.h>
+#include <vector>
+#include <type_traits>
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::collection;
+}
+
+namespace
+{
+  /*
+   * Calls fn with a std::integral_constant for the value kind.  Only
+   * the handle-valued kinds are supported here.
+   */
+  template <typename Fn>
+  auto
+  with_val_kind(jint k, Fn &&fn)
+  {
+    switch (static_cast<kind>(k)) {
+    case kind::RECORD:
+      return fn(std::integral_constant<kind, kind::RECORD>{});
+    case kind::STRING:
+      return fn(std::integral_constant<kind, kind::STRING>{});
+    default:
+      throw incompatible_type_ex{};
+    }
+  }
+}
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_MapFromStringProxy_release (JNIEnv *jEnv, jclass,
+						    jint valKind,
+						    jlong handleIndex)
+  {
+    exception_handler<jni_family> (jEnv, [=]
+      {
+	with_val_kind(valKind, [=](auto vk)
+	  {
+	    constexpr kind VK = decltype(vk)::value;
+	    indexed<string_map_handle<VK>> self
+	      { handleIndex};
+	    self.release();
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_MapFromStringProxy_create (JNIEnv *jEnv, jclass,
+						   jint valKind,
+						   jlong expectedSize)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_val_kind(valKind, [=](auto vk)
+	  {
+	    constexpr kind VK = decltype(vk)::value;
+	    indexed<string_map_handle<VK>> h
+	      { string_map_handle<VK>::create(expectedSize)};
+	    return h.return_index();
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_MapFromStringProxy_getHandle (JNIEnv *jEnv, jclass,
+						      jint valKind,
+						      jlong hIndex,
+						      jlong keyIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_val_kind(valKind, [=](auto vk)
+	  {
+	    constexpr kind VK = decltype(vk)::value;
+	    indexed<string_map_handle<VK>> h
+	      { hIndex};
+	    indexed<interned_string_handle> key
+	      { keyIndex};
+	    indexed<api_type<VK>> val
+	      { h->get(*key)};
+	    return val.return_index();
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_MapFromStringProxy_putHandle (JNIEnv *jEnv, jclass,
+						      jint valKind,
+						      jlong hIndex,
+						      jlong keyIndex,
+						      jlong valIndex,
+						      jboolean onlyIfAbsent)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_val_kind(valKind, [=](auto vk)
+	  {
+	    constexpr kind VK = decltype(vk)::value;
+	    indexed<string_map_handle<VK>> h
+	      { hIndex};
+	    indexed<interned_string_handle> key
+	      { keyIndex};
+	    indexed<api_type<VK>> val
+	      { valIndex};
+	    indexed<api_type<VK>> prior
+	      { onlyIfAbsent ? h->put_if_absent(*key, *val) : h->put(*key, *val)};
+	    return prior.return_index();
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_MapFromStringProxy_removeHandle (JNIEnv *jEnv, jclass,
+							 jint valKind,
+							 jlong hIndex,
+							 jlong keyIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_val_kind(valKind, [=](auto vk)
+	  {
+	    constexpr kind VK = decltype(vk)::value;
+	    indexed<string_map_handle<VK>> h
+	      { hIndex};
+	    indexed<interned_string_handle> key
+	      { keyIndex};
+	    indexed<api_type<VK>> prior
+	      { h->remove(*key)};
+	    return prior.return_index();
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_MapFromStringProxy_containsKey (JNIEnv *jEnv, jclass,
+							jint valKind,
+							jlong hIndex,
+							jlong keyIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_val_kind(valKind, [=](auto vk)
+	  {
+	    constexpr kind VK = decltype(vk)::value;
+	    indexed<string_map_handle<VK>> h
+	      { hIndex};
+	    indexed<interned_string_handle> key
+	      { keyIndex};
+	    return static_cast<jboolean>(h->contains(*key));
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_MapFromStringProxy_size (JNIEnv *jEnv, jclass,
+						 jint valKind,
+						 jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_val_kind(valKind, [=](auto vk)
+	  {
+	    constexpr kind VK = decltype(vk)::value;
+	    indexed<string_map_handle<VK>> h
+	      { hIndex};
+	    return static_cast<jlong>(h->size());
+	  });
+      });
+  }
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_MapFromStringProxy_clear (JNIEnv *jEnv, jclass,
+						  jint valKind,
+						  jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    exception_handler<jni_family> (jEnv, [=]
+      {
+	with_val_kind(valKind, [=](auto vk)
+	  {
+	    constexpr kind VK = decltype(vk)::value;
+	    indexed<string_map_handle<VK>> h
+	      { hIndex};
+	    h->clear();
+	  });
+      });
+  }
+
+  /*
+   * Fills keys and vals with handles for up to keys.length entries,
+   * starting after the key whose handle is afterIndex (or at the newest
+   * if it's 0).  Returns the number filled in, or -(n+1) if there are
+   * no more after these.
+   */
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_MapFromStringProxy_listChunk (JNIEnv *jEnv, jclass,
+						      jint valKind,
+						      jlong hIndex,
+						      jlong afterIndex,
+						      jlongArray keys,
+						      jlongArray vals)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_val_kind(valKind, [=](auto vk)
+	  {
+	    constexpr kind VK = decltype(vk)::value;
+	    indexed<string_map_handle<VK>> h
+	      { hIndex};
+	    indexed<interned_string_handle> after
+	      { afterIndex};
+	    jsize max = jEnv->GetArrayLength(keys);
+	    std::vector<jlong> key_indices;
+	    std::vector<jlong> val_indices;
+	    key_indices.reserve(max);
+	    val_indices.reserve(max);
+	    bool more = h->for_each(*after, max,
+				    [&](const interned_string_handle &k,
+					const api_type<VK> &v)
+	      {
+		indexed<interned_string_handle> ki
+		  { k};
+		indexed<api_type<VK>> vi
+		  { v};
+		key_indices.push_back(ki.return_index());
+		val_indices.push_back(vi.return_index());
+	      });
+	    jsize n = key_indices.size();
+	    jEnv->SetLongArrayRegion(keys, 0, n, key_indices.data());
+	    jEnv->SetLongArrayRegion(vals, 0, n, val_indices.data());
+	    return static_cast<jint>(more ? n : -(n+1));
+	  });
+      });
+  }
+
+}
@@ -25,7 +25,7 @@
  */
 
 /* C++ code implementing native methods of Java class:
- *   com.hpl.mds.impl.IntFieldProxy
+ *   com.hpl.mds.MemStats
  */
 
 #include <jni.h>
@@ -36,60 +36,51 @@ using namespace mds;
 using namespace mds::api;
 using namespace mds::jni;
 
+namespace {
+  template <typename T, std::size_t N>
+  jlongArray to_java(JNIEnv *jEnv, const std::array<T, N> &vals) {
+    jlong jvals[N];
+    for (std::size_t i=0; i<N; i++) {
+      jvals[i] = jlong(vals[i]);
+    }
+    jlongArray array = jEnv->NewLongArray(N);
+    if (array != nullptr) {
+      jEnv->SetLongArrayRegion(array, 0, N, jvals);
+    }
+    return array;
+  }
+}
+
 extern "C"
 {
 
+  /*
+   * In the order com.hpl.mds.MemStats reads them.
+   */
   JNIEXPORT
-  jlong
+  jlongArray
   JNICALL
-  Java_com_hpl_mds_MemStats__1bytesInHeap (JNIEnv *jEnv, jclass)
+  Java_com_hpl_mds_MemStats__1snapshot (JNIEnv *jEnv, jclass)
   {
     return exception_handler_wr (jEnv, [=]
       {
-	return mem_stats::bytes_in_heap();
-      });
-  }
-  JNIEXPORT
-  jlong
-  JNICALL
-  Java_com_hpl_mds_MemStats__1bytesInUse (JNIEnv *jEnv, jclass)
-  {
-    return exception_handler_wr (jEnv, [=]
-      {
-	return mem_stats::bytes_in_use();
-      });
-  }
-  JNIEXPORT
-  jlong
-  JNICALL
-  Java_com_hpl_mds_MemStats__1gcCycleNumber (JNIEnv *jEnv, jclass)
-  {
-    return exception_handler_wr (jEnv, [=]
-      {
-	return mem_stats::gc_cycle_number();
-      });
-  }
-  JNIEXPORT
-  jlong
-  JNICALL
-  Java_com_hpl_mds_MemStats__1nProcesses (JNIEnv *jEnv, jclass)
-  {
-    return exception_handler_wr (jEnv, [=]
-      {
-	return mem_stats::n_processes();
+	mem_stats::snapshot ss;
+	std::array<std::size_t, 5> vals =
+	  {{ ss.bytes_in_heap, ss.bytes_in_use, ss.gc_cycle_number,
+	     ss.n_processes, ss.n_objects }};
+	return to_java(jEnv, vals);
       });
   }
 
   JNIEXPORT
-  jlong
+  jlongArray
   JNICALL
-  Java_com_hpl_mds_MemStats__1nObjects (JNIEnv *jEnv, jclass)
+  Java_com_hpl_mds_MemStats__1allocations (JNIEnv *jEnv, jclass)
   {
     return exception_handler_wr (jEnv, [=]
       {
-	return mem_stats::n_objects();
+	return to_java(jEnv, mem_stats::alloc_counters::totals());
       });
   }
 
 }
-
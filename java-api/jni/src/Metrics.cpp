@@ -0,0 +1,107 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.Metrics
+ *
+ * Each method returns its counters as an array, in the order that
+ * com.hpl.mds.Metrics reads them.
+ */
+
+#include <jni.h>
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+
+namespace {
+  template <typename T, std::size_t N>
+  jlongArray to_java(JNIEnv *jEnv, const std::array<T, N> &vals) {
+    jlong jvals[N];
+    for (std::size_t i=0; i<N; i++) {
+      jvals[i] = jlong(vals[i]);
+    }
+    jlongArray array = jEnv->NewLongArray(N);
+    if (array != nullptr) {
+      jEnv->SetLongArrayRegion(array, 0, N, jvals);
+    }
+    return array;
+  }
+}
+
+extern "C"
+{
+
+  JNIEXPORT
+  jlongArray
+  JNICALL
+  Java_com_hpl_mds_Metrics__1jniEntries (JNIEnv *jEnv, jclass)
+  {
+    return exception_handler_wr (jEnv, [=]
+      {
+	return to_java(jEnv, stats::entry_counters::totals());
+      });
+  }
+
+  JNIEXPORT
+  jlongArray
+  JNICALL
+  Java_com_hpl_mds_Metrics__1coreCounts (JNIEnv *jEnv, jclass)
+  {
+    return exception_handler_wr (jEnv, [=]
+      {
+	return to_java(jEnv, core_counters::totals());
+      });
+  }
+
+  JNIEXPORT
+  jlongArray
+  JNICALL
+  Java_com_hpl_mds_Metrics__1handleStoreStats (JNIEnv *jEnv, jclass)
+  {
+    return exception_handler_wr (jEnv, [=]
+      {
+	std::array<std::int64_t, 3> vals =
+	  {{ handle_store_stats::n_live(), handle_store_stats::n_free(),
+	     std::int64_t(handle_store_stats::lock_waits()) }};
+	return to_java(jEnv, vals);
+      });
+  }
+
+  JNIEXPORT
+  jlongArray
+  JNICALL
+  Java_com_hpl_mds_Metrics__1shadowCacheCounts (JNIEnv *jEnv, jclass)
+  {
+    return exception_handler_wr (jEnv, [=]
+      {
+	return to_java(jEnv, shadow_counters::totals());
+      });
+  }
+
+}
@@ -25,6 +25,8 @@
  */
 
 #include <jni.h>
+#include <algorithm>
+#include <vector>
 #include "mds-debug.h"
 #include "mds_core_api.h"                           // MDS Core API
 #include "mds_jni.h"
@@ -33,6 +35,31 @@ using namespace mds;
 using namespace mds::api;
 using namespace mds::jni;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::naming;
+
+  /*
+   * Thrown out of a transfer callback when the Java side has thrown.
+   * The exception handler ignores it, leaving the Java exception
+   * pending.
+   */
+  struct java_exception_pending {};
+
+  jlongArray
+  transfer_counts(JNIEnv *jEnv, const core::transfer::counts &c)
+  {
+    jlong vals[] =
+      { jlong(c.bindings), jlong(c.records), jlong(c.arrays), jlong(c.types) };
+    constexpr jsize n = sizeof(vals)/sizeof(vals[0]);
+    jlongArray array = jEnv->NewLongArray(n);
+    if (array != nullptr)
+      {
+	jEnv->SetLongArrayRegion(array, 0, n, vals);
+      }
+    return array;
+  }
+}
+
 extern "C"
 {
 
@@ -42,7 +69,7 @@ extern "C"
   Java_com_hpl_mds_impl_NamespaceProxy_release (JNIEnv *jEnv, jclass,
 						jlong handleIndex)
   {
-    exception_handler (jEnv, [=]
+    exception_handler<jni_family> (jEnv, [=]
       {
 	indexed<namespace_handle> self
 	  { handleIndex};
@@ -56,7 +83,7 @@ extern "C"
   Java_com_hpl_mds_impl_NamespaceProxy_rootHandle (JNIEnv *jEnv, jobject)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	static indexed<namespace_handle> h
 	  { namespace_handle::global()};
@@ -73,7 +100,7 @@ extern "C"
 						    jboolean create_if_missing)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<namespace_handle> h
 	  { hIndex};
@@ -93,7 +120,7 @@ extern "C"
                                                 jlong nameHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<namespace_handle> h
 	  { hIndex};
@@ -103,4 +130,230 @@ extern "C"
       });
   }
 
+  /*
+   * Returns a direct buffer over one of the naming counters (see
+   * namespace_handle::counter()), so that Java can tell whether its
+   * cache of lookups is still good without a JNI call per lookup.
+   */
+  JNIEXPORT
+  jobject
+  JNICALL
+  Java_com_hpl_mds_impl_NamespaceProxy_namingCounterBuffer (JNIEnv *jEnv, jclass,
+							    jint which)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	using naming_counter = namespace_handle::naming_counter;
+	const std::atomic<std::uint64_t> &counter
+	  = namespace_handle::counter(static_cast<naming_counter>(which));
+	static_assert(sizeof(counter) == sizeof(jlong), "counter not the size of a jlong");
+	void *addr = const_cast<std::atomic<std::uint64_t> *>(&counter);
+	return jEnv->NewDirectByteBuffer(addr, sizeof(counter));
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_NamespaceProxy_snapshotHandle (JNIEnv *jEnv, jclass,
+						       jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<namespace_handle> h
+	  { hIndex};
+	indexed<namespace_handle> snap
+	  { h->snapshot()};
+	return snap.return_index();
+      });
+  }
+
+  /*
+   * Fills names (and isNamespace) with the handles of up to
+   * names.length bound names, starting after the name whose handle is
+   * afterIndex (or at the start if that's 0) and restricted to those
+   * starting with the prefix (if prefixIndex isn't 0).  Returns the
+   * number filled in, or -(n+1) if there are no more names after these.
+   */
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_NamespaceProxy_listChunk (JNIEnv *jEnv, jclass,
+						  jlong hIndex,
+						  jlong afterIndex,
+						  jlong prefixIndex,
+						  jlongArray names,
+						  jbooleanArray isNamespace)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<namespace_handle> h
+	  { hIndex};
+	indexed<interned_string_handle> after
+	  { afterIndex};
+	indexed<interned_string_handle> prefix
+	  { prefixIndex};
+	jsize max = jEnv->GetArrayLength(names);
+	std::vector<jlong> name_indices;
+	std::vector<jboolean> ns_flags;
+	name_indices.reserve(max);
+	ns_flags.reserve(max);
+	bool more = h->for_each_binding(*after, *prefix, max,
+					[&](const interned_string_handle &name, bool is_ns)
+	  {
+	    indexed<interned_string_handle> n
+	      { name};
+	    name_indices.push_back(n.return_index());
+	    ns_flags.push_back(is_ns ? JNI_TRUE : JNI_FALSE);
+	  });
+	jsize n = name_indices.size();
+	jEnv->SetLongArrayRegion(names, 0, n, name_indices.data());
+	jEnv->SetBooleanArrayRegion(isNamespace, 0, n, ns_flags.data());
+	return more ? n : -(n+1);
+      });
+  }
+
+  /*
+   * Walks the records of type rtIndex reachable from the namespace (see
+   * namespace_handle::for_each_reachable()), filling batch with their
+   * handles.  Each time it fills up, and once at the end if it's not
+   * empty, sink.deliver(n) is called with the number filled in, and the
+   * walk stops if that returns false.  The walk is done in the
+   * prevailing context, so the caller runs it in a snapshot.
+   */
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_NamespaceProxy_scan (JNIEnv *jEnv, jclass,
+					     jlong hIndex,
+					     jlong rtIndex,
+					     jlongArray batch,
+					     jobject sink)
+  {
+    ensure_thread_initialized(jEnv);
+    exception_handler<jni_family> (jEnv, [=]
+      {
+	static jclass c = find_class(jEnv, "com/hpl/mds/impl/NamespaceScan");
+	if (c == nullptr) {
+	  return; // exception thrown
+	}
+	static jmethodID deliver = find_method(jEnv, c, "deliver", "(I)Z");
+	if (deliver == nullptr) {
+	  return; // exception thrown
+	}
+	indexed<namespace_handle> h
+	  { hIndex};
+	indexed<record_type_handle> rt
+	  { rtIndex};
+	jsize max = jEnv->GetArrayLength(batch);
+	std::vector<jlong> buf;
+	buf.reserve(max);
+	auto flush = [&]() {
+	  jsize n = static_cast<jsize>(buf.size());
+	  jEnv->SetLongArrayRegion(batch, 0, n, buf.data());
+	  buf.clear();
+	  jboolean go_on = jEnv->CallBooleanMethod(sink, deliver, n);
+	  return go_on == JNI_TRUE && !jEnv->ExceptionCheck();
+	};
+	bool finished = h->for_each_reachable(*rt, [&](const managed_record_handle &r)
+	  {
+	    indexed<managed_record_handle> ri
+	      { r };
+	    buf.push_back(ri.return_index());
+	    return static_cast<jsize>(buf.size()) < max || flush();
+	  });
+	if (finished && !buf.empty()) {
+	  flush();
+	}
+      });
+  }
+
+
+  /*
+   * Writes everything reachable from the namespace (see
+   * core_transfer.h) through buf, calling sink.write(n) each time the
+   * first n bytes of it are ready.  The caller runs this in a
+   * snapshot.  Returns the numbers of bindings, records, arrays and
+   * record types written.
+   */
+  JNIEXPORT
+  jlongArray
+  JNICALL
+  Java_com_hpl_mds_impl_NamespaceProxy_exportTo (JNIEnv *jEnv, jclass,
+						 jlong hIndex,
+						 jbyteArray buf,
+						 jobject sink)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	static jclass c = find_class(jEnv, "com/hpl/mds/impl/NamespaceTransfer");
+	if (c == nullptr) {
+	  return jlongArray(nullptr); // exception thrown
+	}
+	static jmethodID write = find_method(jEnv, c, "write", "(I)V");
+	if (write == nullptr) {
+	  return jlongArray(nullptr); // exception thrown
+	}
+	indexed<namespace_handle> h
+	  { hIndex};
+	jsize max = jEnv->GetArrayLength(buf);
+	auto out = [=](const std::uint8_t *bytes, std::size_t n) {
+	  jEnv->SetByteArrayRegion(buf, 0, jsize(n), reinterpret_cast<const jbyte *>(bytes));
+	  jEnv->CallVoidMethod(sink, write, jint(n));
+	  if (jEnv->ExceptionCheck()) {
+	    throw java_exception_pending{};
+	  }
+	};
+	return transfer_counts(jEnv, h->export_to(out, std::size_t(max)));
+      });
+  }
+
+  /*
+   * Binds what's in an exported stream below the namespace, reading it
+   * through buf.  sink.read() fills buf and returns the number of bytes
+   * in it, or -1 at the end.  Writes go to the prevailing context,
+   * which the caller publishes.  Returns the numbers of bindings,
+   * records, arrays and record types read.
+   */
+  JNIEXPORT
+  jlongArray
+  JNICALL
+  Java_com_hpl_mds_impl_NamespaceProxy_importFrom (JNIEnv *jEnv, jclass,
+						   jlong hIndex,
+						   jbyteArray buf,
+						   jobject sink)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	static jclass c = find_class(jEnv, "com/hpl/mds/impl/NamespaceTransfer");
+	if (c == nullptr) {
+	  return jlongArray(nullptr); // exception thrown
+	}
+	static jmethodID read = find_method(jEnv, c, "read", "()I");
+	if (read == nullptr) {
+	  return jlongArray(nullptr); // exception thrown
+	}
+	indexed<namespace_handle> h
+	  { hIndex};
+	auto in = [=](std::uint8_t *bytes, std::size_t max) -> std::size_t {
+	  jint n = jEnv->CallIntMethod(sink, read);
+	  if (jEnv->ExceptionCheck()) {
+	    throw java_exception_pending{};
+	  }
+	  if (n <= 0) {
+	    return 0;
+	  }
+	  std::size_t len = std::min(std::size_t(n), max);
+	  jEnv->GetByteArrayRegion(buf, 0, jsize(len), reinterpret_cast<jbyte *>(bytes));
+	  return len;
+	};
+	return transfer_counts(jEnv, h->import_from(in, std::size_t(jEnv->GetArrayLength(buf))));
+      });
+  }
+
 }
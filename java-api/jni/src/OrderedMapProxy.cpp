@@ -0,0 +1,428 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.OrderedMapProxy
+ *
+ * The key and value kinds are passed down with each call, since the
+ * handle store holding the map's handle depends on them.  Keys and
+ * values cross the boundary as jlongs (see jlong_carrier.h).
+ */
+
+#include <jni.h>
+#include <vector>
+#include <type_traits>
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+#include "jlong_carrier.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+using namespace mds::jni::carrier;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::collection;
+}
+
+namespace
+{
+  /*
+   * Calls fn with std::integral_constants for the key and value kinds.
+   * Only long and string keys are supported.
+   */
+  template <typename Fn>
+  auto
+  with_kinds(jint kk, jint vk, Fn &&fn)
+  {
+    switch (static_cast<kind>(kk)) {
+    case kind::LONG:
+      return with_carried_kind(vk, [&](auto vc)
+        {
+          return fn(std::integral_constant<kind, kind::LONG>{}, vc);
+        });
+    case kind::STRING:
+      return with_carried_kind(vk, [&](auto vc)
+        {
+          return fn(std::integral_constant<kind, kind::STRING>{}, vc);
+        });
+    default:
+      throw incompatible_type_ex{};
+    }
+  }
+
+  /*
+   * The ordinals of OrderedMapProxy.Bound.
+   */
+  inline core::skip_list::bound
+  bound_from_java(jint ordinal)
+  {
+    switch (ordinal) {
+    case 1:
+      return core::skip_list::bound::inclusive;
+    case 2:
+      return core::skip_list::bound::exclusive;
+    default:
+      return core::skip_list::bound::none;
+    }
+  }
+
+  /*
+   * The ordinals of OrderedMapProxy.Relation.
+   */
+  enum class relation : jint {
+    first, last, lower, floor, ceiling, higher
+  };
+
+  template <kind VK>
+  jboolean
+  deliver(JNIEnv *jEnv, jlongArray out,
+	  const std::pair<bool, api_type<VK>> &r)
+  {
+    if (!r.first) {
+      return false;
+    }
+    jlong v = bits<VK>::out(r.second);
+    jEnv->SetLongArrayRegion(out, 0, 1, &v);
+    return true;
+  }
+}
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_OrderedMapProxy_release (JNIEnv *jEnv, jclass,
+						 jint keyKind,
+						 jint valKind,
+						 jlong handleIndex)
+  {
+    exception_handler<jni_family> (jEnv, [=]
+      {
+	with_kinds(keyKind, valKind, [=](auto kc, auto vc)
+	  {
+	    constexpr kind KK = decltype(kc)::value;
+	    constexpr kind VK = decltype(vc)::value;
+	    indexed<ordered_map_handle<KK, VK>> self
+	      { handleIndex};
+	    self.release();
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_OrderedMapProxy_create (JNIEnv *jEnv, jclass,
+						jint keyKind,
+						jint valKind)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_kinds(keyKind, valKind, [=](auto kc, auto vc)
+	  {
+	    constexpr kind KK = decltype(kc)::value;
+	    constexpr kind VK = decltype(vc)::value;
+	    indexed<ordered_map_handle<KK, VK>> h
+	      { ordered_map_handle<KK, VK>::create()};
+	    return h.return_index();
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_OrderedMapProxy_containsKey (JNIEnv *jEnv, jclass,
+						     jint keyKind,
+						     jint valKind,
+						     jlong hIndex,
+						     jlong key)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_kinds(keyKind, valKind, [=](auto kc, auto vc)
+	  {
+	    constexpr kind KK = decltype(kc)::value;
+	    constexpr kind VK = decltype(vc)::value;
+	    indexed<ordered_map_handle<KK, VK>> h
+	      { hIndex};
+	    return static_cast<jboolean>(h->contains(bits<KK>::in(key)));
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_OrderedMapProxy_get (JNIEnv *jEnv, jclass,
+					     jint keyKind,
+					     jint valKind,
+					     jlong hIndex,
+					     jlong key,
+					     jlongArray out)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_kinds(keyKind, valKind, [=](auto kc, auto vc)
+	  {
+	    constexpr kind KK = decltype(kc)::value;
+	    constexpr kind VK = decltype(vc)::value;
+	    indexed<ordered_map_handle<KK, VK>> h
+	      { hIndex};
+	    return deliver<VK>(jEnv, out, h->get(bits<KK>::in(key)));
+	  });
+      });
+  }
+
+  /*
+   * Returns whether the key was already there, in which case out[0]
+   * gets the value it had (or, for onlyIfAbsent, still has).
+   */
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_OrderedMapProxy_put (JNIEnv *jEnv, jclass,
+					     jint keyKind,
+					     jint valKind,
+					     jlong hIndex,
+					     jlong key,
+					     jlong val,
+					     jboolean onlyIfAbsent,
+					     jlongArray out)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_kinds(keyKind, valKind, [=](auto kc, auto vc)
+	  {
+	    constexpr kind KK = decltype(kc)::value;
+	    constexpr kind VK = decltype(vc)::value;
+	    indexed<ordered_map_handle<KK, VK>> h
+	      { hIndex};
+	    api_type<KK> k = bits<KK>::in(key);
+	    api_type<VK> v = bits<VK>::in(val);
+	    auto r = onlyIfAbsent ? h->put_if_absent(k, v) : h->put(k, v);
+	    return deliver<VK>(jEnv, out, r);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_OrderedMapProxy_remove (JNIEnv *jEnv, jclass,
+						jint keyKind,
+						jint valKind,
+						jlong hIndex,
+						jlong key,
+						jlongArray out)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_kinds(keyKind, valKind, [=](auto kc, auto vc)
+	  {
+	    constexpr kind KK = decltype(kc)::value;
+	    constexpr kind VK = decltype(vc)::value;
+	    indexed<ordered_map_handle<KK, VK>> h
+	      { hIndex};
+	    return deliver<VK>(jEnv, out, h->remove(bits<KK>::in(key)));
+	  });
+      });
+  }
+
+  /*
+   * Finds the entry in the given relation to key (which is ignored for
+   * first and last).  If there is one, entry[0] gets its key and
+   * entry[1] its value.
+   */
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_OrderedMapProxy_relative (JNIEnv *jEnv, jclass,
+						  jint keyKind,
+						  jint valKind,
+						  jlong hIndex,
+						  jint rel,
+						  jlong key,
+						  jlongArray entry)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_kinds(keyKind, valKind, [=](auto kc, auto vc)
+	  {
+	    constexpr kind KK = decltype(kc)::value;
+	    constexpr kind VK = decltype(vc)::value;
+	    indexed<ordered_map_handle<KK, VK>> h
+	      { hIndex};
+	    jlong found[2];
+	    auto fn = [&](const api_type<KK> &k, const api_type<VK> &v)
+	      {
+		found[0] = bits<KK>::out(k);
+		found[1] = bits<VK>::out(v);
+	      };
+	    bool r;
+	    switch (static_cast<relation>(rel)) {
+	    case relation::first:
+	      r = h->first(fn);
+	      break;
+	    case relation::last:
+	      r = h->last(fn);
+	      break;
+	    case relation::lower:
+	      r = h->floor(bits<KK>::in(key), false, fn);
+	      break;
+	    case relation::floor:
+	      r = h->floor(bits<KK>::in(key), true, fn);
+	      break;
+	    case relation::ceiling:
+	      r = h->ceiling(bits<KK>::in(key), true, fn);
+	      break;
+	    default:
+	      r = h->ceiling(bits<KK>::in(key), false, fn);
+	      break;
+	    }
+	    if (r) {
+	      jEnv->SetLongArrayRegion(entry, 0, 2, found);
+	    }
+	    return static_cast<jboolean>(r);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_OrderedMapProxy_count (JNIEnv *jEnv, jclass,
+					       jint keyKind,
+					       jint valKind,
+					       jlong hIndex,
+					       jint loBound,
+					       jlong lo,
+					       jint hiBound,
+					       jlong hi)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_kinds(keyKind, valKind, [=](auto kc, auto vc)
+	  {
+	    constexpr kind KK = decltype(kc)::value;
+	    constexpr kind VK = decltype(vc)::value;
+	    indexed<ordered_map_handle<KK, VK>> h
+	      { hIndex};
+	    auto lo_b = bound_from_java(loBound);
+	    auto hi_b = bound_from_java(hiBound);
+	    api_type<KK> lo_k = lo_b == core::skip_list::bound::none ? api_type<KK>{} : bits<KK>::in(lo);
+	    api_type<KK> hi_k = hi_b == core::skip_list::bound::none ? api_type<KK>{} : bits<KK>::in(hi);
+	    return static_cast<jlong>(h->count(lo_b, lo_k, hi_b, hi_k));
+	  });
+      });
+  }
+
+  /*
+   * Copies up to keys.length entries in the range into keys and vals.
+   * Returns the number copied, or -(n+1) if the range has no more
+   * entries after those.
+   */
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_OrderedMapProxy_rangeChunk (JNIEnv *jEnv, jclass,
+						    jint keyKind,
+						    jint valKind,
+						    jlong hIndex,
+						    jboolean descending,
+						    jint loBound,
+						    jlong lo,
+						    jint hiBound,
+						    jlong hi,
+						    jlongArray keys,
+						    jlongArray vals)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_kinds(keyKind, valKind, [=](auto kc, auto vc)
+	  {
+	    constexpr kind KK = decltype(kc)::value;
+	    constexpr kind VK = decltype(vc)::value;
+	    indexed<ordered_map_handle<KK, VK>> h
+	      { hIndex};
+	    auto lo_b = bound_from_java(loBound);
+	    auto hi_b = bound_from_java(hiBound);
+	    api_type<KK> lo_k = lo_b == core::skip_list::bound::none ? api_type<KK>{} : bits<KK>::in(lo);
+	    api_type<KK> hi_k = hi_b == core::skip_list::bound::none ? api_type<KK>{} : bits<KK>::in(hi);
+	    jsize max = jEnv->GetArrayLength(keys);
+	    std::vector<jlong> kbuf;
+	    std::vector<jlong> vbuf;
+	    kbuf.reserve(max);
+	    vbuf.reserve(max);
+	    bool more = h->for_range(descending, lo_b, lo_k, hi_b, hi_k, max,
+				     [&](const api_type<KK> &k, const api_type<VK> &v)
+	      {
+		kbuf.push_back(bits<KK>::out(k));
+		vbuf.push_back(bits<VK>::out(v));
+	      });
+	    jsize n = static_cast<jsize>(kbuf.size());
+	    jEnv->SetLongArrayRegion(keys, 0, n, kbuf.data());
+	    jEnv->SetLongArrayRegion(vals, 0, n, vbuf.data());
+	    return static_cast<jint>(more ? n : -(n+1));
+	  });
+      });
+  }
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_OrderedMapProxy_clear (JNIEnv *jEnv, jclass,
+					       jint keyKind,
+					       jint valKind,
+					       jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    exception_handler<jni_family> (jEnv, [=]
+      {
+	with_kinds(keyKind, valKind, [=](auto kc, auto vc)
+	  {
+	    constexpr kind KK = decltype(kc)::value;
+	    constexpr kind VK = decltype(vc)::value;
+	    indexed<ordered_map_handle<KK, VK>> h
+	      { hIndex};
+	    h->clear();
+	  });
+      });
+  }
+
+}
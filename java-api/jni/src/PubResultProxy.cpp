@@ -26,6 +26,7 @@
 
 
 #include "mds-debug.h"
+#include <vector>
 #include <jni.h>
 #include "mds_core_api.h"                           // MDS Core API
 #include "mds_jni.h"
@@ -34,6 +35,10 @@ using namespace mds;
 using namespace mds::api;
 using namespace mds::jni;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::isolation;
+}
+
 
 
 extern "C" {
@@ -45,7 +50,7 @@ JNICALL Java_com_hpl_mds_impl_PubResultProxy_release
   (JNIEnv *jEnv, jclass,
    jlong handleIndex)
 {
-  exception_handler(jEnv, [=]{
+  exception_handler<jni_family>(jEnv, [=]{
       indexed<publication_attempt_handle> self { handleIndex };
       self.release();
     });
@@ -58,7 +63,7 @@ Java_com_hpl_mds_impl_PubResultProxy_succeeded
   (JNIEnv *jEnv, jclass,
    jlong handleIndex)
 {
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
       indexed<publication_attempt_handle> self { handleIndex };
       return self->succeeded();
     });
@@ -70,7 +75,7 @@ JNICALL Java_com_hpl_mds_impl_PubResultProxy_sourceContextIndex
   (JNIEnv *jEnv, jclass,
    jlong handleIndex)
 {
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
       indexed<publication_attempt_handle> self { handleIndex };
       indexed<iso_context_handle> ctxt { self->source_context() };
       return ctxt.return_index();
@@ -84,7 +89,7 @@ Java_com_hpl_mds_impl_PubResultProxy_nToRedo
   (JNIEnv *jEnv, jclass,
    jlong handleIndex)
 {
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
       indexed<publication_attempt_handle> self { handleIndex };
       return self->n_to_redo();
     });
@@ -117,7 +122,7 @@ Java_com_hpl_mds_impl_PubResultProxy_redoTasksByStartTime
     return NULL; // exception thrown;
   }
   */
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
       indexed<publication_attempt_handle> self { handleIndex };
       std::vector<task_handle> tasks { self->redo_tasks_by_start_time() };
       int n = tasks.size();
@@ -147,11 +152,74 @@ Java_com_hpl_mds_impl_PubResultProxy_prepareForRedo
   (JNIEnv *jEnv, jclass,
    jlong handleIndex)
 {
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
       indexed<publication_attempt_handle> self { handleIndex };
       return self->prepare_for_redo();
     });
 }
+
+/*
+ * Describes the record fields written by a successful publish, four
+ * longs apiece: a handle to the record, the slot of the field in the
+ * record's type, and the two halves of the record's uuid (so the Java
+ * side can coalesce changes to the same field without going back to
+ * native code).  Empty unless a change feed was open at the time.
+ */
+JNIEXPORT
+jlongArray
+JNICALL
+Java_com_hpl_mds_impl_PubResultProxy_publishedFields
+  (JNIEnv *jEnv, jclass,
+   jlong handleIndex)
+{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
+      indexed<publication_attempt_handle> self { handleIndex };
+      std::vector<jlong> descs;
+      self->for_each_published_field([&](const managed_record_handle &r, std::size_t slot) {
+          uniform_key k = r.uuid();
+          indexed<managed_record_handle> ri { r };
+          descs.push_back(ri.return_index());
+          descs.push_back(jlong(slot));
+          descs.push_back(jlong(k.high));
+          descs.push_back(jlong(k.low));
+        });
+      jsize n = jsize(descs.size());
+      jlongArray array = jEnv->NewLongArray(n);
+      if (array != nullptr)
+        {
+          jEnv->SetLongArrayRegion(array, 0, n, descs.data());
+        }
+      return array;
+    });
+}
+
+JNIEXPORT
+jlong
+JNICALL
+Java_com_hpl_mds_impl_PubResultProxy_beforeIndex
+  (JNIEnv *jEnv, jclass,
+   jlong handleIndex)
+{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
+      indexed<publication_attempt_handle> self { handleIndex };
+      indexed<iso_context_handle> ctxt { self->before_publish() };
+      return ctxt.return_index();
+    });
+}
+
+JNIEXPORT
+jlong
+JNICALL
+Java_com_hpl_mds_impl_PubResultProxy_afterIndex
+  (JNIEnv *jEnv, jclass,
+   jlong handleIndex)
+{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
+      indexed<publication_attempt_handle> self { handleIndex };
+      indexed<iso_context_handle> ctxt { self->after_publish() };
+      return ctxt.return_index();
+    });
+}
   
 }
 
@@ -0,0 +1,331 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.QueueProxy
+ *
+ * The element kind is passed down with each call, since the handle
+ * store holding the queue's handle depends on it.  Every element
+ * crosses the boundary as a jlong (see jlong_carrier.h).
+ */
+
+#include <jni.h>
+#include <vector>
+#include <type_traits>
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+#include "jlong_carrier.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+using namespace mds::jni::carrier;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::collection;
+}
+
+namespace
+{
+  template <kind K>
+  jboolean
+  deliver(JNIEnv *jEnv, jlongArray out,
+	  const typename queue_handle<K>::maybe_elt &r)
+  {
+    if (!r.first) {
+      return false;
+    }
+    jlong v = bits<K>::out(r.second);
+    jEnv->SetLongArrayRegion(out, 0, 1, &v);
+    return true;
+  }
+}
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_QueueProxy_release (JNIEnv *jEnv, jclass,
+					    jint eltKind,
+					    jlong handleIndex)
+  {
+    exception_handler<jni_family> (jEnv, [=]
+      {
+	with_carried_kind(eltKind, [=](auto ek)
+	  {
+	    constexpr kind EK = decltype(ek)::value;
+	    indexed<queue_handle<EK>> self
+	      { handleIndex};
+	    self.release();
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_QueueProxy_create (JNIEnv *jEnv, jclass,
+					   jint eltKind)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_carried_kind(eltKind, [=](auto ek)
+	  {
+	    constexpr kind EK = decltype(ek)::value;
+	    indexed<queue_handle<EK>> h
+	      { queue_handle<EK>::create()};
+	    return h.return_index();
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_QueueProxy_named (JNIEnv *jEnv, jclass,
+					  jint eltKind,
+					  jlong nameIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_carried_kind(eltKind, [=](auto ek)
+	  {
+	    constexpr kind EK = decltype(ek)::value;
+	    indexed<interned_string_handle> name
+	      { nameIndex};
+	    indexed<queue_handle<EK>> h
+	      { queue_handle<EK>::named(*name)};
+	    return h.return_index();
+	  });
+      });
+  }
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_QueueProxy_enqueue (JNIEnv *jEnv, jclass,
+					    jint eltKind,
+					    jlong hIndex,
+					    jlong val)
+  {
+    ensure_thread_initialized(jEnv);
+    exception_handler<jni_family> (jEnv, [=]
+      {
+	with_carried_kind(eltKind, [=](auto ek)
+	  {
+	    constexpr kind EK = decltype(ek)::value;
+	    indexed<queue_handle<EK>> h
+	      { hIndex};
+	    h->enqueue(bits<EK>::in(val));
+	  });
+      });
+  }
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_QueueProxy_enqueueAll (JNIEnv *jEnv, jclass,
+					       jint eltKind,
+					       jlong hIndex,
+					       jlongArray vals)
+  {
+    ensure_thread_initialized(jEnv);
+    exception_handler<jni_family> (jEnv, [=]
+      {
+	with_carried_kind(eltKind, [=](auto ek)
+	  {
+	    constexpr kind EK = decltype(ek)::value;
+	    indexed<queue_handle<EK>> h
+	      { hIndex};
+	    jsize n = jEnv->GetArrayLength(vals);
+	    std::vector<jlong> buf(n);
+	    jEnv->GetLongArrayRegion(vals, 0, n, buf.data());
+	    h->enqueue_all(buf.begin(), buf.end(), [](jlong b)
+	      {
+		return bits<EK>::in(b);
+	      });
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_QueueProxy_dequeue (JNIEnv *jEnv, jclass,
+					    jint eltKind,
+					    jlong hIndex,
+					    jlongArray out)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_carried_kind(eltKind, [=](auto ek)
+	  {
+	    constexpr kind EK = decltype(ek)::value;
+	    indexed<queue_handle<EK>> h
+	      { hIndex};
+	    return deliver<EK>(jEnv, out, h->dequeue());
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_QueueProxy_peek (JNIEnv *jEnv, jclass,
+					 jint eltKind,
+					 jlong hIndex,
+					 jlongArray out)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_carried_kind(eltKind, [=](auto ek)
+	  {
+	    constexpr kind EK = decltype(ek)::value;
+	    indexed<queue_handle<EK>> h
+	      { hIndex};
+	    return deliver<EK>(jEnv, out, h->peek());
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_QueueProxy_size (JNIEnv *jEnv, jclass,
+					 jint eltKind,
+					 jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_carried_kind(eltKind, [=](auto ek)
+	  {
+	    constexpr kind EK = decltype(ek)::value;
+	    indexed<queue_handle<EK>> h
+	      { hIndex};
+	    return static_cast<jlong>(h->size());
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_QueueProxy_isEmpty (JNIEnv *jEnv, jclass,
+					    jint eltKind,
+					    jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_carried_kind(eltKind, [=](auto ek)
+	  {
+	    constexpr kind EK = decltype(ek)::value;
+	    indexed<queue_handle<EK>> h
+	      { hIndex};
+	    return static_cast<jboolean>(h->empty());
+	  });
+      });
+  }
+
+  /*
+   * Dequeues up to out.length elements in one call and returns how many
+   * were taken.
+   */
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_QueueProxy_drain (JNIEnv *jEnv, jclass,
+					  jint eltKind,
+					  jlong hIndex,
+					  jlongArray out)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_carried_kind(eltKind, [=](auto ek)
+	  {
+	    constexpr kind EK = decltype(ek)::value;
+	    indexed<queue_handle<EK>> h
+	      { hIndex};
+	    jsize max = jEnv->GetArrayLength(out);
+	    std::vector<jlong> buf;
+	    buf.reserve(max);
+	    h->drain(max, [&](const api_type<EK> &v)
+	      {
+		buf.push_back(bits<EK>::out(v));
+	      });
+	    jsize n = static_cast<jsize>(buf.size());
+	    jEnv->SetLongArrayRegion(out, 0, n, buf.data());
+	    return static_cast<jint>(n);
+	  });
+      });
+  }
+
+  /*
+   * Copies up to out.length elements, starting skip elements from the
+   * head, without removing them.  Returns the number copied, or -(n+1)
+   * if no elements remain after those.
+   */
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_QueueProxy_listChunk (JNIEnv *jEnv, jclass,
+					      jint eltKind,
+					      jlong hIndex,
+					      jlong skip,
+					      jlongArray out)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_carried_kind(eltKind, [=](auto ek)
+	  {
+	    constexpr kind EK = decltype(ek)::value;
+	    indexed<queue_handle<EK>> h
+	      { hIndex};
+	    jsize max = jEnv->GetArrayLength(out);
+	    std::vector<jlong> buf;
+	    buf.reserve(max);
+	    bool more = h->for_each(skip, max, [&](const api_type<EK> &v)
+	      {
+		buf.push_back(bits<EK>::out(v));
+	      });
+	    jsize n = static_cast<jsize>(buf.size());
+	    jEnv->SetLongArrayRegion(out, 0, n, buf.data());
+	    return static_cast<jint>(more ? n : -(n+1));
+	  });
+      });
+  }
+
+}
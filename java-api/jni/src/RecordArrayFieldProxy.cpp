@@ -37,6 +37,10 @@ using namespace mds;
 using namespace mds::api;
 using namespace mds::jni;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::field;
+}
+
 extern "C"
 {
 
@@ -48,7 +52,7 @@ extern "C"
       jlong valTypeHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_type_handle> rec_type
 	  { recTypeHIndex};
@@ -70,7 +74,7 @@ extern "C"
 							     jlong hIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (
+    return exception_handler_wr<jni_family> (
 	jEnv, [=]
 	  {
 	    // TODO: move downcast into handler
@@ -93,7 +97,7 @@ extern "C"
 							      jlong recHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (
+    return exception_handler_wr<jni_family> (
 	jEnv, [=]
 	  {
 	    indexed<record_field_handle<kind::ARRAY>> h
@@ -124,7 +128,7 @@ extern "C"
                                                                jlong recHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (
+    return exception_handler_wr<jni_family> (
 	jEnv, [=]
 	  {
 	    indexed<record_field_handle<kind::ARRAY>> h
@@ -156,7 +160,7 @@ extern "C"
 							      jlong valArg)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (
+    return exception_handler_wr<jni_family> (
 	jEnv,
 	[=]
 	  {
@@ -189,7 +193,7 @@ extern "C"
                                                          jlong valArg)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (
+    return exception_handler_wr<jni_family> (
 	jEnv,
 	[=]
 	  {
@@ -213,7 +217,7 @@ extern "C"
                                                                     jlong valArg)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (
+    return exception_handler_wr<jni_family> (
 	jEnv,
 	[=]
 	  {
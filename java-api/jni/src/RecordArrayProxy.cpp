@@ -35,6 +35,10 @@ using namespace mds::api;
 using namespace mds::jni;
 using namespace mds::jni::array_proxy;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::array;
+}
+
 extern "C"
 {
   JNIEXPORT
@@ -53,7 +57,7 @@ extern "C"
   Java_com_hpl_mds_impl_RecordArrayProxy_release (JNIEnv *jEnv, jclass,
 						  jlong handleIndex)
   {
-    exception_handler (jEnv, release<kind::RECORD>, handleIndex);
+    exception_handler<jni_family> (jEnv, release<kind::RECORD>, handleIndex);
   }
   JNIEXPORT
   jboolean
@@ -62,7 +66,7 @@ extern "C"
                                                       jlong aHIndex, jlong bHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, is_same_as<kind::RECORD>, aHIndex,
+    return exception_handler_wr<jni_family> (jEnv, is_same_as<kind::RECORD>, aHIndex,
 				 bHIndex);
   }
   JNIEXPORT
@@ -72,7 +76,7 @@ extern "C"
                                                        jlong aHIndex, jlong bHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, is_same_object<kind::RECORD>, aHIndex,
+    return exception_handler_wr<jni_family> (jEnv, is_same_object<kind::RECORD>, aHIndex,
 				 bHIndex);
   }
   JNIEXPORT
@@ -82,7 +86,7 @@ extern "C"
                                                                  jlong aHIndex, jlong bHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, is_same_view_same_object<kind::RECORD>,
+    return exception_handler_wr<jni_family> (jEnv, is_same_view_same_object<kind::RECORD>,
                                  aHIndex, bHIndex);
   }
   JNIEXPORT
@@ -93,7 +97,7 @@ extern "C"
 						      jlong arrayTypeHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<array_type_handle<kind::RECORD>> type
 	  { arrayTypeHIndex};
@@ -110,7 +114,7 @@ extern "C"
                                                     jlong index)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<managed_array_handle<kind::RECORD>> a
 	  { handleIndex};
@@ -128,7 +132,7 @@ extern "C"
 						     jlong index)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<managed_array_handle<kind::RECORD>> a
 	  { handleIndex};
@@ -146,7 +150,7 @@ extern "C"
                                                     jlong index, jlong valArg)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<managed_array_handle<kind::RECORD>> a
 	  { handleIndex};
@@ -169,7 +173,7 @@ extern "C"
                                                           jlong index, jlong valArg)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<managed_array_handle<kind::RECORD>> a
 	  { handleIndex};
@@ -191,7 +195,7 @@ extern "C"
 					       jlong handleIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, size<kind::RECORD>, handleIndex);
+    return exception_handler_wr<jni_family> (jEnv, size<kind::RECORD>, handleIndex);
   }
 }
 
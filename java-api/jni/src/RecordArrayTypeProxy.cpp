@@ -39,6 +39,10 @@ using namespace mds::api;
 using namespace mds::jni;
 using namespace mds::jni::array_type;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::array;
+}
+
 extern "C"
 {
 
@@ -48,7 +52,7 @@ extern "C"
   Java_com_hpl_mds_impl_RecordArrayTypeProxy_release (JNIEnv *jEnv, jclass,
 						      jlong handleIndex)
   {
-    exception_handler (jEnv, [=]
+    exception_handler<jni_family> (jEnv, [=]
       {
 	indexed<array_type_handle<kind::RECORD>> self
 	  { handleIndex};
@@ -64,7 +68,7 @@ extern "C"
 							 jlong nameHIndex,
 							 jlong valHandle)
   {
-    return exception_handler_wr (jEnv, bind_handle<kind::RECORD>, 
+    return exception_handler_wr<jni_family> (jEnv, bind_handle<kind::RECORD>, 
 				 nsHIndex, nameHIndex, valHandle);
   }
 
@@ -77,7 +81,7 @@ extern "C"
 							   jlong nsHIndex,
 							   jlong nameHIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<array_type_handle<kind::RECORD>> self
 	  { hIndex};
@@ -99,7 +103,7 @@ extern "C"
 						       jlong aHIndex,
 						       jlong bHIndex)
   {
-    return exception_handler_wr (jEnv, is_same_as<kind::RECORD>, aHIndex,
+    return exception_handler_wr<jni_family> (jEnv, is_same_as<kind::RECORD>, aHIndex,
 				 bHIndex);
   }
 
@@ -108,15 +112,16 @@ extern "C"
   JNICALL
   Java_com_hpl_mds_impl_RecordArrayTypeProxy_createArray (JNIEnv *jEnv, jobject,
 							  jlong hIndex,
-							  jlong size)
+							  jlong size,
+							  jint layout)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<array_type_handle<kind::RECORD>> self
 	  { hIndex};
 	indexed<managed_array_handle<kind::RECORD>> arr (
-	    self->create_array (size));
+	    self->create_array (size, layout_from_java (layout)));
 	return arr.return_index ();
       });
   }
@@ -128,7 +133,7 @@ extern "C"
 								jobject,
 								jlong hIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<array_type_handle<kind::RECORD>> self
 	  { hIndex};
@@ -144,7 +149,7 @@ extern "C"
 							    jobject,
 							    jlong recTypeHIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_type_handle> rt (recTypeHIndex);
 	auto atype = rt->pointer ()->in_array ();
@@ -39,6 +39,10 @@ using namespace mds::api;
 using namespace mds::jni;
 using namespace mds::jni::field_proxy;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::field;
+}
+
 extern "C"
 {
 
@@ -48,7 +52,7 @@ extern "C"
   Java_com_hpl_mds_impl_RecordFieldProxy_release (JNIEnv *jEnv, jclass,
 						  jlong handleIndex)
   {
-    exception_handler (jEnv, release<kind::RECORD>, handleIndex);
+    exception_handler<jni_family> (jEnv, release<kind::RECORD>, handleIndex);
   }
 
   JNIEXPORT
@@ -58,7 +62,7 @@ extern "C"
 							jlong hIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, get_name_handle<kind::RECORD>, hIndex);
+    return exception_handler_wr<jni_family> (jEnv, get_name_handle<kind::RECORD>, hIndex);
   }
 
   JNIEXPORT
@@ -68,7 +72,7 @@ extern "C"
 							   jlong hIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, get_rec_type_handle<kind::RECORD>,
+    return exception_handler_wr<jni_family> (jEnv, get_rec_type_handle<kind::RECORD>,
 				 hIndex);
   }
 
@@ -81,7 +85,7 @@ extern "C"
 							jlong valTypeHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_type_handle> rec_type
 	  { recTypeHIndex};
@@ -102,7 +106,7 @@ extern "C"
 							jlong hIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_field_handle<kind::RECORD>> h
 	  { hIndex};
@@ -124,7 +128,7 @@ extern "C"
 							 jlong recHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	/*
 	 * Not handling caching or defaults yet
@@ -147,7 +151,7 @@ extern "C"
                                                           jlong recHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	/*
 	 * Not handling caching or defaults yet
@@ -171,7 +175,7 @@ extern "C"
 							 jlong valArg)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_field_handle<kind::RECORD>> h
 	  { hIndex};
@@ -194,7 +198,7 @@ extern "C"
 							 jlong valArg)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_field_handle<kind::RECORD>> h
 	  { hIndex};
@@ -215,7 +219,7 @@ extern "C"
                                                                jlong valArg)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_field_handle<kind::RECORD>> h
 	  { hIndex};
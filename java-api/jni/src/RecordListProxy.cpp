@@ -0,0 +1,240 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.RecordListProxy
+ */
+
+#include <jni.h>
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+#include "list_proxy.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+using namespace mds::jni::list_proxy;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::collection;
+}
+
+extern "C" {
+
+JNIEXPORT
+void
+JNICALL Java_com_hpl_mds_impl_RecordListProxy_release
+  (JNIEnv *jEnv, jclass,
+   jlong handleIndex)
+{
+  exception_handler<jni_family>(jEnv, release<kind::RECORD>, handleIndex);
+}
+
+JNIEXPORT
+jlong
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_createList
+  (JNIEnv *jEnv, jclass,
+   jint layout)
+{
+  ensure_thread_initialized(jEnv);
+  return exception_handler_wr<jni_family>(jEnv, create<kind::RECORD>, layout);
+}
+
+JNIEXPORT
+jint
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_layout
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex)
+{
+  ensure_thread_initialized(jEnv);
+  return exception_handler_wr<jni_family>(jEnv, layout<kind::RECORD>, hIndex);
+}
+
+JNIEXPORT
+jlong
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_size
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex)
+{
+  ensure_thread_initialized(jEnv);
+  return exception_handler_wr<jni_family>(jEnv, size<kind::RECORD>, hIndex);
+}
+
+JNIEXPORT
+void
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_clear
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex)
+{
+  ensure_thread_initialized(jEnv);
+  exception_handler<jni_family>(jEnv, clear<kind::RECORD>, hIndex);
+}
+
+JNIEXPORT
+jboolean
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_getElt
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex,
+   jlong pos,
+   jni_array_t<kind::RECORD> out)
+{
+  ensure_thread_initialized(jEnv);
+  return exception_handler_wr<jni_family>(jEnv, [=] {
+      return get<kind::RECORD>(jEnv, hIndex, pos, out);
+    });
+}
+
+JNIEXPORT
+jboolean
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_setElt
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex,
+   jlong pos,
+   jlong val,
+   jni_array_t<kind::RECORD> out)
+{
+  ensure_thread_initialized(jEnv);
+  return exception_handler_wr<jni_family>(jEnv, [=] {
+      return set<kind::RECORD>(jEnv, hIndex, pos, val, out);
+    });
+}
+
+JNIEXPORT
+void
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_addEnd
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex,
+   jboolean first,
+   jlong val)
+{
+  ensure_thread_initialized(jEnv);
+  exception_handler<jni_family>(jEnv, [=] {
+      add_end<kind::RECORD>(hIndex, first, val);
+    });
+}
+
+JNIEXPORT
+jboolean
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_insertElt
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex,
+   jlong pos,
+   jlong val)
+{
+  ensure_thread_initialized(jEnv);
+  return exception_handler_wr<jni_family>(jEnv, [=] {
+      return insert<kind::RECORD>(hIndex, pos, val);
+    });
+}
+
+JNIEXPORT
+jboolean
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_removeElt
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex,
+   jlong pos,
+   jni_array_t<kind::RECORD> out)
+{
+  ensure_thread_initialized(jEnv);
+  return exception_handler_wr<jni_family>(jEnv, [=] {
+      return remove_at<kind::RECORD>(jEnv, hIndex, pos, out);
+    });
+}
+
+JNIEXPORT
+jboolean
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_removeEnd
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex,
+   jboolean first,
+   jni_array_t<kind::RECORD> out)
+{
+  ensure_thread_initialized(jEnv);
+  return exception_handler_wr<jni_family>(jEnv, [=] {
+      return remove_end<kind::RECORD>(jEnv, hIndex, first, out);
+    });
+}
+
+JNIEXPORT
+jboolean
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_peekEnd
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex,
+   jboolean first,
+   jni_array_t<kind::RECORD> out)
+{
+  ensure_thread_initialized(jEnv);
+  return exception_handler_wr<jni_family>(jEnv, [=] {
+      return peek_end<kind::RECORD>(jEnv, hIndex, first, out);
+    });
+}
+
+JNIEXPORT
+void
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_addAllElts
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex,
+   jni_array_t<kind::RECORD> vals)
+{
+  ensure_thread_initialized(jEnv);
+  exception_handler<jni_family>(jEnv, [=] {
+      add_all<kind::RECORD>(jEnv, hIndex, vals);
+    });
+}
+
+/*
+ * See list_proxy::list_chunk().
+ */
+JNIEXPORT
+jint
+JNICALL
+Java_com_hpl_mds_impl_RecordListProxy_listChunk
+  (JNIEnv *jEnv, jclass,
+   jlong hIndex,
+   jlongArray cursor,
+   jni_array_t<kind::RECORD> out)
+{
+  ensure_thread_initialized(jEnv);
+  return exception_handler_wr<jni_family>(jEnv, [=] {
+      return list_chunk<kind::RECORD>(jEnv, hIndex, cursor, out);
+    });
+}
+
+}
+
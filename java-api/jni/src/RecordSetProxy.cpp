@@ -0,0 +1,164 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.RecordSetProxy
+ */
+
+#include <jni.h>
+#include <vector>
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+#include "set_proxy.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+using namespace mds::jni::set_proxy;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::collection;
+}
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_RecordSetProxy_release (JNIEnv *jEnv, jclass,
+						jlong handleIndex)
+  {
+    exception_handler<jni_family> (jEnv, release<kind::RECORD>, handleIndex);
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_RecordSetProxy_createSet (JNIEnv *jEnv, jclass,
+						  jlong expectedSize)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, create<kind::RECORD>, expectedSize);
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_RecordSetProxy_hasElt (JNIEnv *jEnv, jclass,
+                                               jlong hIndex,
+                                               jlong eltIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<managed_record_handle> elt
+	  { eltIndex };
+	return contains<kind::RECORD> (hIndex, *elt);
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_RecordSetProxy_addElt (JNIEnv *jEnv, jclass,
+                                               jlong hIndex,
+                                               jlong eltIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<managed_record_handle> elt
+	  { eltIndex };
+	return add<kind::RECORD> (hIndex, *elt);
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_RecordSetProxy_removeElt (JNIEnv *jEnv, jclass,
+                                                  jlong hIndex,
+                                                  jlong eltIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<managed_record_handle> elt
+	  { eltIndex };
+	return remove<kind::RECORD> (hIndex, *elt);
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_RecordSetProxy_size (JNIEnv *jEnv, jclass,
+					     jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, size<kind::RECORD>, hIndex);
+  }
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_RecordSetProxy_clear (JNIEnv *jEnv, jclass,
+					      jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    exception_handler<jni_family> (jEnv, clear<kind::RECORD>, hIndex);
+  }
+
+  /*
+   * Fills elts with handles for up to elts.length elements, starting
+   * after the one whose handle is afterIndex (or at the newest if it's
+   * 0).  Returns the number filled in, or -(n+1) if there are no more
+   * after these.
+   */
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_RecordSetProxy_listChunk (JNIEnv *jEnv, jclass,
+						  jlong hIndex,
+						  jlong afterIndex,
+						  jlongArray elts)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	std::vector<jlong> chunk;
+	bool more = list_handle_chunk<kind::RECORD> (hIndex, afterIndex,
+						     jEnv->GetArrayLength (elts),
+						     chunk);
+	jsize n = chunk.size ();
+	jEnv->SetLongArrayRegion (elts, 0, n, chunk.data ());
+	return static_cast<jint> (more ? n : -(n+1));
+      });
+  }
+
+}
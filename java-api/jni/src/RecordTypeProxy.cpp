@@ -30,13 +30,107 @@
 
 #include "mds-debug.h"
 #include <jni.h>
+#include <cassert>
+#include <vector>
 #include "mds_core_api.h"                            // MDS Core API
 #include "mds_jni.h"
+#include "field_proxy.h"
 
 using namespace mds;
 using namespace mds::api;
 using namespace mds::jni;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::record;
+}
+
+namespace
+{
+  template <kind K>
+  jlong
+  batch_field_in(const record_type_handle &rt, const interned_string_handle &name)
+  {
+    indexed<record_field_handle<K>> h
+      { managed_handle_by_kind<K>().field_in(rt, name, true)};
+    return h.return_index();
+  }
+
+  template <kind K>
+  jlong
+  batch_array_field_in(const record_type_handle &rt, const interned_string_handle &name)
+  {
+    indexed<record_field_handle<kind::ARRAY>> h
+      { managed_array_handle_by_kind<K>().field_in(rt, name, true)};
+    return h.return_index();
+  }
+
+  template <kind K>
+  jlong
+  field_handle(const core::gc_ptr<const core::record_field_base> &f)
+  {
+    indexed<record_field_handle<K>> h
+      { record_field_handle<K>{std::static_pointer_cast<const core::record_field<K>>(f)}};
+    return h.return_index();
+  }
+
+  /*
+   * A handle on an existing field, for the kinds the Java API has
+   * field proxies for, or 0.
+   */
+  jlong
+  field_handle(const core::gc_ptr<const core::record_field_base> &f)
+  {
+    switch (f->type_kind) {
+    case kind::BOOL: return field_handle<kind::BOOL>(f);
+    case kind::BYTE: return field_handle<kind::BYTE>(f);
+    case kind::SHORT: return field_handle<kind::SHORT>(f);
+    case kind::INT: return field_handle<kind::INT>(f);
+    case kind::LONG: return field_handle<kind::LONG>(f);
+    case kind::FLOAT: return field_handle<kind::FLOAT>(f);
+    case kind::DOUBLE: return field_handle<kind::DOUBLE>(f);
+    case kind::STRING: return field_handle<kind::STRING>(f);
+    case kind::RECORD: return field_handle<kind::RECORD>(f);
+    case kind::ARRAY: return field_handle<kind::ARRAY>(f);
+    case kind::CONTAINER: return field_handle<kind::CONTAINER>(f);
+    default: return 0;
+    }
+  }
+
+  /*
+   * Only the kinds the Java API has field proxies for.  Anything else
+   * is left for the per-field path and reported as 0.
+   */
+  jlong
+  batch_field_in(const record_type_handle &rt, const interned_string_handle &name,
+                 kind k, kind elt_kind)
+  {
+    switch (k) {
+    case kind::BOOL: return batch_field_in<kind::BOOL>(rt, name);
+    case kind::BYTE: return batch_field_in<kind::BYTE>(rt, name);
+    case kind::SHORT: return batch_field_in<kind::SHORT>(rt, name);
+    case kind::INT: return batch_field_in<kind::INT>(rt, name);
+    case kind::LONG: return batch_field_in<kind::LONG>(rt, name);
+    case kind::FLOAT: return batch_field_in<kind::FLOAT>(rt, name);
+    case kind::DOUBLE: return batch_field_in<kind::DOUBLE>(rt, name);
+    case kind::STRING: return batch_field_in<kind::STRING>(rt, name);
+    case kind::ARRAY:
+      switch (elt_kind) {
+      case kind::BOOL: return batch_array_field_in<kind::BOOL>(rt, name);
+      case kind::BYTE: return batch_array_field_in<kind::BYTE>(rt, name);
+      case kind::SHORT: return batch_array_field_in<kind::SHORT>(rt, name);
+      case kind::INT: return batch_array_field_in<kind::INT>(rt, name);
+      case kind::LONG: return batch_array_field_in<kind::LONG>(rt, name);
+      case kind::FLOAT: return batch_array_field_in<kind::FLOAT>(rt, name);
+      case kind::DOUBLE: return batch_array_field_in<kind::DOUBLE>(rt, name);
+      case kind::STRING: return batch_array_field_in<kind::STRING>(rt, name);
+      default: return 0;
+      }
+    default:
+      return 0;
+    }
+  }
+}
+
 extern "C"
 {
 
@@ -46,7 +140,7 @@ extern "C"
   Java_com_hpl_mds_impl_RecordTypeProxy_release (JNIEnv *jEnv, jclass,
 						 jlong handleIndex)
   {
-    exception_handler (jEnv, [=]
+    exception_handler<jni_family> (jEnv, [=]
       {
 	indexed<record_type_handle> self
 	  { handleIndex};
@@ -60,7 +154,7 @@ extern "C"
   Java_com_hpl_mds_impl_RecordTypeProxy_declareType__J (JNIEnv *jEnv, jobject,
 							jlong nameHIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<interned_string_handle> name
 	  { nameHIndex};
@@ -84,7 +178,7 @@ extern "C"
 							 jlong nameHIndex,
 							 jlong superHIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<interned_string_handle> name
 	  { nameHIndex};
@@ -113,7 +207,7 @@ extern "C"
 						    jlong valHandle)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_type_handle> rt
 	  { hIndex};
@@ -133,7 +227,7 @@ extern "C"
   Java_com_hpl_mds_impl_RecordTypeProxy_isSameAs (JNIEnv *jEnv, jobject,
 						  jlong aHIndex, jlong bHIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_type_handle> a
 	  { aHIndex};
@@ -149,7 +243,7 @@ extern "C"
   Java_com_hpl_mds_impl_RecordTypeProxy_ensureCreated (JNIEnv *jEnv, jobject,
 						       jlong hIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_type_handle> rt
 	  { hIndex};
@@ -168,7 +262,7 @@ extern "C"
 						      jlong nameHIndex)
   {
     ensure_thread_initialized(jEnv);
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_type_handle> self
 	  { hIndex};
@@ -189,7 +283,7 @@ extern "C"
   Java_com_hpl_mds_impl_RecordTypeProxy_nameHandle (JNIEnv *jEnv, jclass,
 						    jlong handleIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_type_handle> self
 	  { handleIndex};
@@ -205,7 +299,7 @@ extern "C"
   Java_com_hpl_mds_impl_RecordTypeProxy_superHandle (JNIEnv *jEnv, jclass,
 						     jlong handleIndex)
   {
-    return exception_handler_wr (jEnv, [=]
+    return exception_handler_wr<jni_family> (jEnv, [=]
       {
 	indexed<record_type_handle> self
 	  { handleIndex};
@@ -215,4 +309,177 @@ extern "C"
       });
   }
 
+  /*
+   * Returns the handle of the created record type with the given
+   * name, or 0 if there isn't one.
+   */
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_RecordTypeProxy_findType (JNIEnv *jEnv, jclass,
+						  jlong nameHIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<interned_string_handle> name
+	  { nameHIndex};
+	indexed<const_record_type_handle> rt
+	  { record_type_handle::find(*name)};
+	return rt.return_index();
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_RecordTypeProxy_isCreated (JNIEnv *jEnv, jclass,
+						   jlong hIndex)
+  {
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<record_type_handle> self
+	  { hIndex};
+	return self->is_created();
+      });
+  }
+
+  /*
+   * Describes all of the fields of a record type in one call.  Each
+   * field takes FIELD_DESC_SIZE longs (see RecordTypeProxy.java):
+   *   name handle, kind, slot, element kind (for arrays, otherwise -1),
+   *   record type handle (for record fields and record arrays, otherwise 0),
+   *   field handle (0 for kinds Java has no field proxy for)
+   */
+  JNIEXPORT
+  jlongArray
+  JNICALL
+  Java_com_hpl_mds_impl_RecordTypeProxy_fieldDescriptors (JNIEnv *jEnv, jclass,
+							  jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	using namespace mds::core;
+	constexpr std::size_t desc_size = 6;
+	indexed<record_type_handle> self
+	  { hIndex};
+	std::vector<jlong> descs;
+	descs.reserve(self->n_fields()*desc_size);
+	self->for_each_field([&](const interned_string_handle &name, kind k, std::size_t slot,
+				 const gc_ptr<const managed_type_base> &ftype,
+				 const gc_ptr<const record_field_base> &field)
+	  {
+	    jlong elt_kind = -1;
+	    gc_ptr<const record_type> rt;
+	    if (k == kind::RECORD) {
+	      rt = std::static_pointer_cast<const record_type>(ftype);
+	    } else if (k == kind::ARRAY) {
+	      auto at = std::static_pointer_cast<const array_type_base>(ftype);
+	      elt_kind = static_cast<jlong>(at->elmt_kind);
+	      if (at->elmt_kind == kind::RECORD) {
+		rt = at->downcast<kind::RECORD>()->element_type();
+	      }
+	    }
+	    indexed<interned_string_handle> n
+	      { name};
+	    indexed<const_record_type_handle> rth
+	      { const_record_type_handle{rt}};
+	    descs.push_back(n.return_index());
+	    descs.push_back(static_cast<jlong>(k));
+	    descs.push_back(static_cast<jlong>(slot));
+	    descs.push_back(elt_kind);
+	    descs.push_back(rth.return_index());
+	    descs.push_back(field_handle(field));
+	  });
+	jsize n = descs.size();
+	jlongArray array = jEnv->NewLongArray(n);
+	if (array != nullptr)
+	  {
+	    jEnv->SetLongArrayRegion(array, 0, n, descs.data());
+	  }
+	return array;
+      });
+  }
+
+  /*
+   * Declares a batch of record types and all of the fields listed in
+   * their schemas in a single call.  Each type's supertype is either
+   * superHandles[t] (0 for none) or, if superIndices[t] isn't negative,
+   * the type that many places into the batch, which must come earlier.
+   * fieldCounts[t] says how many of the entries in fieldNames,
+   * fieldKinds and eltKinds belong to type t.  fieldKinds and eltKinds
+   * hold ordinals of the core's kind enum (eltKinds only matters for
+   * arrays).  The result holds, for each type in turn, the type's
+   * handle followed by one handle per field, 0 for any field whose kind
+   * isn't handled here.
+   */
+  JNIEXPORT
+  jlongArray
+  JNICALL
+  Java_com_hpl_mds_impl_RecordTypeProxy_declareAllWithFields (JNIEnv *jEnv, jclass,
+							      jlongArray typeNames,
+							      jlongArray superHandles,
+							      jintArray superIndices,
+							      jintArray fieldCounts,
+							      jlongArray fieldNames,
+							      jintArray fieldKinds,
+							      jintArray eltKinds)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	jsize n_types = jEnv->GetArrayLength(typeNames);
+	std::vector<jlong> type_names(n_types);
+	std::vector<jlong> supers(n_types);
+	std::vector<jint> super_indices(n_types);
+	std::vector<jint> counts(n_types);
+	jEnv->GetLongArrayRegion(typeNames, 0, n_types, type_names.data());
+	jEnv->GetLongArrayRegion(superHandles, 0, n_types, supers.data());
+	jEnv->GetIntArrayRegion(superIndices, 0, n_types, super_indices.data());
+	jEnv->GetIntArrayRegion(fieldCounts, 0, n_types, counts.data());
+	jsize n_fields = jEnv->GetArrayLength(fieldNames);
+	std::vector<jlong> names(n_fields);
+	std::vector<jint> kinds(n_fields);
+	std::vector<jint> elt_kinds(n_fields);
+	jEnv->GetLongArrayRegion(fieldNames, 0, n_fields, names.data());
+	jEnv->GetIntArrayRegion(fieldKinds, 0, n_fields, kinds.data());
+	jEnv->GetIntArrayRegion(eltKinds, 0, n_fields, elt_kinds.data());
+
+	std::vector<record_type_handle> declared;
+	declared.reserve(n_types);
+	std::vector<jlong> handles;
+	handles.reserve(n_types+n_fields);
+	jsize f = 0;
+	for (jsize t = 0; t < n_types; t++) {
+	  indexed<interned_string_handle> name
+	    { type_names[t]};
+	  record_type_handle rt;
+	  if (super_indices[t] >= 0) {
+	    assert(super_indices[t] < t);
+	    rt = record_type_handle::declare(*name, declared[super_indices[t]]);
+	  } else if (supers[t] != 0) {
+	    rt = record_type_handle::declare(*name, *indexed<record_type_handle>{supers[t]});
+	  } else {
+	    rt = record_type_handle::declare(*name);
+	  }
+	  declared.push_back(rt);
+	  handles.push_back(indexed<record_type_handle>{rt}.return_index());
+	  for (jint i = 0; i < counts[t]; i++, f++) {
+	    indexed<interned_string_handle> fname
+	      { names[f]};
+	    handles.push_back(batch_field_in(rt, *fname,
+					     static_cast<kind>(kinds[f]),
+					     static_cast<kind>(elt_kinds[f])));
+	  }
+	}
+	jlongArray array = jEnv->NewLongArray(handles.size());
+	if (array != nullptr)
+	  {
+	    jEnv->SetLongArrayRegion(array, 0, handles.size(), handles.data());
+	  }
+	return array;
+      });
+  }
+
 }
@@ -0,0 +1,111 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.RollupCompactor
+ */
+
+#include <jni.h>
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_RollupCompactor__1enable (JNIEnv *jEnv, jclass)
+  {
+    exception_handler (jEnv, [=]
+      {
+	rollup_compaction::enable();
+      });
+  }
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_RollupCompactor__1disable (JNIEnv *jEnv, jclass)
+  {
+    exception_handler (jEnv, [=]
+      {
+	rollup_compaction::disable();
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_RollupCompactor__1run (JNIEnv *jEnv, jclass, jlong budgetNanos)
+  {
+    return exception_handler_wr (jEnv, [=]
+      {
+	ensure_thread_initialized(jEnv);
+	return jlong(rollup_compaction::run(std::chrono::nanoseconds(budgetNanos)));
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_RollupCompactor__1queueLength (JNIEnv *jEnv, jclass)
+  {
+    return exception_handler_wr (jEnv, [=]
+      {
+	return jlong(rollup_compaction::queue_length());
+      });
+  }
+
+  /*
+   * In the order of mds::core::rollup_compaction::stat.
+   */
+  JNIEXPORT
+  jlongArray
+  JNICALL
+  Java_com_hpl_mds_RollupCompactor__1totals (JNIEnv *jEnv, jclass)
+  {
+    return exception_handler_wr (jEnv, [=]
+      {
+	constexpr std::size_t n = std::tuple_size<rollup_compaction::totals_type>::value;
+	rollup_compaction::totals_type t = rollup_compaction::totals();
+	jlong vals[n];
+	for (std::size_t i=0; i<n; i++) {
+	  vals[i] = jlong(t[i]);
+	}
+	jlongArray array = jEnv->NewLongArray(n);
+	if (array != nullptr) {
+	  jEnv->SetLongArrayRegion(array, 0, n, vals);
+	}
+	return array;
+      });
+  }
+
+}
@@ -0,0 +1,212 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/* C++ code implementing native methods of Java class:
+ *   com.hpl.mds.impl.StringSetProxy
+ */
+
+#include <jni.h>
+#include <vector>
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+#include "set_proxy.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+using namespace mds::jni::set_proxy;
+
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::collection;
+}
+
+extern "C"
+{
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_StringSetProxy_release (JNIEnv *jEnv, jclass,
+						jlong handleIndex)
+  {
+    exception_handler<jni_family> (jEnv, release<kind::STRING>, handleIndex);
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_StringSetProxy_createSet (JNIEnv *jEnv, jclass,
+						  jlong expectedSize)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, create<kind::STRING>, expectedSize);
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_StringSetProxy_hasElt (JNIEnv *jEnv, jclass,
+					       jlong hIndex,
+					       jlong eltIndex,
+					       jstring elt)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<set_handle<kind::STRING>> h
+	  { hIndex };
+	return with_existing_key (jEnv, *h, eltIndex, elt,
+				  [=](const interned_string_handle &s)
+	  {
+	    return contains<kind::STRING> (hIndex, s);
+	  },
+				  []
+	  {
+	    return api_type<kind::BOOL> (false);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_StringSetProxy_addElt (JNIEnv *jEnv, jclass,
+					       jlong hIndex,
+					       jlong eltIndex,
+					       jstring elt)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return with_key (jEnv, eltIndex, elt, [=](const interned_string_handle &s)
+	  {
+	    return add<kind::STRING> (hIndex, s);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_StringSetProxy_removeElt (JNIEnv *jEnv, jclass,
+						  jlong hIndex,
+						  jlong eltIndex,
+						  jstring elt)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	indexed<set_handle<kind::STRING>> h
+	  { hIndex };
+	return with_existing_key (jEnv, *h, eltIndex, elt,
+				  [=](const interned_string_handle &s)
+	  {
+	    return remove<kind::STRING> (hIndex, s);
+	  },
+				  []
+	  {
+	    return api_type<kind::BOOL> (false);
+	  });
+      });
+  }
+
+  JNIEXPORT
+  jlong
+  JNICALL
+  Java_com_hpl_mds_impl_StringSetProxy_size (JNIEnv *jEnv, jclass,
+					     jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, size<kind::STRING>, hIndex);
+  }
+
+  JNIEXPORT
+  void
+  JNICALL
+  Java_com_hpl_mds_impl_StringSetProxy_clear (JNIEnv *jEnv, jclass,
+					      jlong hIndex)
+  {
+    ensure_thread_initialized(jEnv);
+    exception_handler<jni_family> (jEnv, clear<kind::STRING>, hIndex);
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_StringSetProxy_containsAllElts (JNIEnv *jEnv, jclass,
+							jlong hIndex,
+							jobjectArray elts)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return contains_all_strings (jEnv, hIndex, elts);
+      });
+  }
+
+  JNIEXPORT
+  jboolean
+  JNICALL
+  Java_com_hpl_mds_impl_StringSetProxy_addAllElts (JNIEnv *jEnv, jclass,
+						   jlong hIndex,
+						   jobjectArray elts)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	return add_all<kind::STRING> (hIndex, interned_strings (jEnv, elts));
+      });
+  }
+
+  /*
+   * Fills elts with handles for up to elts.length elements, starting
+   * after the one whose handle is afterIndex (or at the newest if it's
+   * 0).  Returns the number filled in, or -(n+1) if there are no more
+   * after these.
+   */
+  JNIEXPORT
+  jint
+  JNICALL
+  Java_com_hpl_mds_impl_StringSetProxy_listChunk (JNIEnv *jEnv, jclass,
+						  jlong hIndex,
+						  jlong afterIndex,
+						  jlongArray elts)
+  {
+    ensure_thread_initialized(jEnv);
+    return exception_handler_wr<jni_family> (jEnv, [=]
+      {
+	std::vector<jlong> chunk;
+	bool more = list_handle_chunk<kind::STRING> (hIndex, afterIndex,
+						     jEnv->GetArrayLength (elts),
+						     chunk);
+	jsize n = chunk.size ();
+	jEnv->SetLongArrayRegion (elts, 0, n, chunk.data ());
+	return static_cast<jint> (more ? n : -(n+1));
+      });
+  }
+
+}
@@ -38,6 +38,10 @@ using namespace mds;
 using namespace mds::api;
 using namespace mds::jni;
 
+namespace {
+  constexpr auto jni_family = mds::jni::stats::family::isolation;
+}
+
 
 
 extern "C" {
@@ -50,7 +54,7 @@ JNICALL Java_com_hpl_mds_impl_TaskProxy_release
   (JNIEnv *jEnv, jclass,
    jlong handleIndex)
 {
-  exception_handler(jEnv, [=]{
+  exception_handler<jni_family>(jEnv, [=]{
       //      std::cout << "Releasing task " << handleIndex << std::endl;
       indexed<task_handle> self { handleIndex };
       self.release();
@@ -63,7 +67,7 @@ JNICALL
 Java_com_hpl_mds_impl_TaskProxy_defaultTaskHandle
   (JNIEnv *jEnv, jclass)
 {
-  return exception_handler_wr(jEnv, [](){
+  return exception_handler_wr<jni_family>(jEnv, [](){
       static indexed<task_handle> h { task_handle::default_task() };
       //      std::cout << "Default task is " << h << std::endl;
       return h.return_index();
@@ -77,7 +81,7 @@ Java_com_hpl_mds_impl_TaskProxy_pushNewHandle
   (JNIEnv *jEnv, jclass)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [](){
+  return exception_handler_wr<jni_family>(jEnv, [](){
       indexed<task_handle> h { task_handle::push_new() };
       //      std::cout << "Pushing to new task " << h << std::endl;
       return h.return_index();
@@ -91,7 +95,7 @@ Java_com_hpl_mds_impl_TaskProxy_popHandle
   (JNIEnv *jEnv, jclass)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [](){
+  return exception_handler_wr<jni_family>(jEnv, [](){
       indexed<task_handle> h { task_handle::pop() };
       //      std::cout << "Popping to task " << h << std::endl;
       return h.return_index();
@@ -106,7 +110,7 @@ JNICALL Java_com_hpl_mds_impl_TaskProxy_push
    jlong handleIndex)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
       indexed<task_handle> self { handleIndex };
       // std::cout << "Pushing to existing task " << self << std::endl;
       indexed<task_handle> t { self->push() };
@@ -121,7 +125,7 @@ JNICALL Java_com_hpl_mds_impl_TaskProxy_getContext
    jlong handleIndex)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
       //      std::cout << "Looking for context of task " << handleIndex << std::endl;
       indexed<task_handle> self { handleIndex };
       indexed<iso_context_handle> c { self->get_context() };
@@ -136,7 +140,7 @@ JNICALL Java_com_hpl_mds_impl_TaskProxy_getParent
    jlong handleIndex)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler_wr(jEnv, [=]{
+  return exception_handler_wr<jni_family>(jEnv, [=]{
       indexed<task_handle> self { handleIndex };
       indexed<task_handle> p { self->get_parent() };
       return p.return_index();
@@ -151,7 +155,7 @@ JNICALL Java_com_hpl_mds_impl_TaskProxy_addDependent
    jlong otherTask)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler(jEnv, [=]{
+  return exception_handler<jni_family>(jEnv, [=]{
       indexed<task_handle> self { handleIndex };
       indexed<task_handle> other { otherTask };
       self->add_dependent(*other);
@@ -165,7 +169,7 @@ JNICALL Java_com_hpl_mds_impl_TaskProxy_alwaysRedo
    jlong handleIndex)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler(jEnv, [=]{
+  return exception_handler<jni_family>(jEnv, [=]{
       //      std::cout << "Looking for context of task " << handleIndex << std::endl;
       indexed<task_handle> self { handleIndex };
       self->always_redo();
@@ -179,7 +183,7 @@ JNICALL Java_com_hpl_mds_impl_TaskProxy_cannotRedo
    jlong handleIndex)
 {
   ensure_thread_initialized(jEnv);
-  return exception_handler(jEnv, [=]{
+  return exception_handler<jni_family>(jEnv, [=]{
       //      std::cout << "Looking for context of task " << handleIndex << std::endl;
       indexed<task_handle> self { handleIndex };
       self->cannot_redo();
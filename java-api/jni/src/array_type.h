@@ -78,12 +78,29 @@ namespace mds
 	  return a->is_same_as (*b);
 	}
 
+      /*
+       * The ordinals of ArrayProxy.Layout.
+       */
+      inline array_layout
+      layout_from_java (jint ordinal)
+      {
+	switch (ordinal)
+	  {
+	  case 1:
+	    return array_layout::read_mostly;
+	  case 2:
+	    return array_layout::write_once;
+	  default:
+	    return array_layout::versioned;
+	  }
+      }
+
       template<kind KIND>
 	inline api_type<kind::LONG>
-	create_array (api_type<kind::LONG> size)
+	create_array (api_type<kind::LONG> size, jint layout)
 	{
 	  indexed<managed_array_handle<KIND>> arr
-	    { managed_array_handle_by_kind<KIND> ().create_array (size) };
+	    { managed_array_handle_by_kind<KIND> ().create_array (size, layout_from_java (layout)) };
 	  return arr.return_index ();
 	}
 
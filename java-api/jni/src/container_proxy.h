@@ -0,0 +1,216 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+#ifndef CONTAINER_PROXY_H_
+#define CONTAINER_PROXY_H_
+
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+#include "jlong_carrier.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+
+namespace mds
+{
+  namespace jni
+  {
+    namespace container_proxy
+    {
+      /*
+       * Java holds each container in the handle store for its typed
+       * handle (string_map_handle<kind::INT>, say), so whenever a
+       * container goes in or out of a binding, a field or an array, the
+       * caller passes down the container type's handle as well, and
+       * with_handle_type() works out which store to use.
+       */
+      template<typename H>
+	struct handle_tag
+	{
+	  using type = H;
+	};
+
+      template<typename Fn>
+	inline auto
+	with_string_map_type (kind ek, Fn &&fn)
+	{
+	  switch (ek)
+	    {
+	    case kind::BYTE:
+	      return fn (handle_tag<string_map_handle<kind::BYTE>> { });
+	    case kind::SHORT:
+	      return fn (handle_tag<string_map_handle<kind::SHORT>> { });
+	    case kind::INT:
+	      return fn (handle_tag<string_map_handle<kind::INT>> { });
+	    case kind::LONG:
+	      return fn (handle_tag<string_map_handle<kind::LONG>> { });
+	    case kind::FLOAT:
+	      return fn (handle_tag<string_map_handle<kind::FLOAT>> { });
+	    case kind::DOUBLE:
+	      return fn (handle_tag<string_map_handle<kind::DOUBLE>> { });
+	    case kind::STRING:
+	      return fn (handle_tag<string_map_handle<kind::STRING>> { });
+	    case kind::RECORD:
+	      return fn (handle_tag<string_map_handle<kind::RECORD>> { });
+	    default:
+	      throw incompatible_type_ex { };
+	    }
+	}
+
+      template<typename Fn>
+	inline auto
+	with_set_type (kind ek, Fn &&fn)
+	{
+	  switch (ek)
+	    {
+	    case kind::BOOL:
+	      return fn (handle_tag<set_handle<kind::BOOL>> { });
+	    case kind::BYTE:
+	      return fn (handle_tag<set_handle<kind::BYTE>> { });
+	    case kind::SHORT:
+	      return fn (handle_tag<set_handle<kind::SHORT>> { });
+	    case kind::INT:
+	      return fn (handle_tag<set_handle<kind::INT>> { });
+	    case kind::LONG:
+	      return fn (handle_tag<set_handle<kind::LONG>> { });
+	    case kind::FLOAT:
+	      return fn (handle_tag<set_handle<kind::FLOAT>> { });
+	    case kind::DOUBLE:
+	      return fn (handle_tag<set_handle<kind::DOUBLE>> { });
+	    case kind::STRING:
+	      return fn (handle_tag<set_handle<kind::STRING>> { });
+	    case kind::RECORD:
+	      return fn (handle_tag<set_handle<kind::RECORD>> { });
+	    default:
+	      throw incompatible_type_ex { };
+	    }
+	}
+
+      template<typename Fn>
+	inline auto
+	with_list_type (kind ek, Fn &&fn)
+	{
+	  switch (ek)
+	    {
+	    case kind::BOOL:
+	      return fn (handle_tag<list_handle<kind::BOOL>> { });
+	    case kind::BYTE:
+	      return fn (handle_tag<list_handle<kind::BYTE>> { });
+	    case kind::SHORT:
+	      return fn (handle_tag<list_handle<kind::SHORT>> { });
+	    case kind::INT:
+	      return fn (handle_tag<list_handle<kind::INT>> { });
+	    case kind::LONG:
+	      return fn (handle_tag<list_handle<kind::LONG>> { });
+	    case kind::FLOAT:
+	      return fn (handle_tag<list_handle<kind::FLOAT>> { });
+	    case kind::DOUBLE:
+	      return fn (handle_tag<list_handle<kind::DOUBLE>> { });
+	    case kind::STRING:
+	      return fn (handle_tag<list_handle<kind::STRING>> { });
+	    case kind::RECORD:
+	      return fn (handle_tag<list_handle<kind::RECORD>> { });
+	    default:
+	      throw incompatible_type_ex { };
+	    }
+	}
+
+      /*
+       * As with OrderedMapProxy, only long and string keys.
+       */
+      template<typename Fn>
+	inline auto
+	with_ordered_map_type (kind kk, kind vk, Fn &&fn)
+	{
+	  switch (kk)
+	    {
+	    case kind::LONG:
+	      return carrier::with_carried_kind (static_cast<jint> (vk), [&](auto vc)
+		{
+		  constexpr kind VK = decltype(vc)::value;
+		  return fn (handle_tag<ordered_map_handle<kind::LONG, VK>> { });
+		});
+	    case kind::STRING:
+	      return carrier::with_carried_kind (static_cast<jint> (vk), [&](auto vc)
+		{
+		  constexpr kind VK = decltype(vc)::value;
+		  return fn (handle_tag<ordered_map_handle<kind::STRING, VK>> { });
+		});
+	    default:
+	      throw incompatible_type_ex { };
+	    }
+	}
+
+      /*
+       * Calls fn with a handle_tag for the typed handle that holds
+       * containers of type ct.  Throws incompatible_type_ex for
+       * shapes and kinds the Java API has no proxy for.
+       */
+      template<bool CP, typename Fn>
+	inline auto
+	with_handle_type (const container_type_handle_cp<CP> &ct, Fn &&fn)
+	{
+	  switch (ct.shape ())
+	    {
+	    case container_shape::string_map:
+	      return with_string_map_type (ct.elt_kind (), std::forward<Fn> (fn));
+	    case container_shape::hash_set:
+	      return with_set_type (ct.elt_kind (), std::forward<Fn> (fn));
+	    case container_shape::list:
+	      return with_list_type (ct.elt_kind (), std::forward<Fn> (fn));
+	    case container_shape::ordered_map:
+	      return with_ordered_map_type (ct.key_kind (), ct.elt_kind (), std::forward<Fn> (fn));
+	    default:
+	      throw incompatible_type_ex { };
+	    }
+	}
+
+      template<typename H>
+	inline managed_container_handle
+	from_java (api_type<kind::LONG> hIndex)
+	{
+	  indexed<H> h
+	    { hIndex };
+	  return managed_container_handle
+	    { *h };
+	}
+
+      template<typename H>
+	inline api_type<kind::LONG>
+	to_java (const managed_container_handle &c)
+	{
+	  indexed<H> h
+	    { c.template as<H> () };
+	  return h.return_index ();
+	}
+
+    }
+  }
+}
+
+#endif /* CONTAINER_PROXY_H_ */
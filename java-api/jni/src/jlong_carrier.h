@@ -0,0 +1,146 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/*
+ * Carrying managed values across JNI as jlongs: integral values as
+ * themselves, floating point values as their raw bits, and strings and
+ * records as handle indices (0 for null).  This lets a single native
+ * signature serve every element kind, with the kind passed alongside.
+ */
+
+#ifndef JLONG_CARRIER_H_
+#define JLONG_CARRIER_H_
+
+#include <jni.h>
+#include <cstdint>
+#include <cstring>
+#include <type_traits>
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+#include "list_proxy.h"
+
+namespace mds
+{
+  namespace jni
+  {
+    namespace carrier
+    {
+      /*
+       * Calls fn with a std::integral_constant for the element kind.
+       */
+      template <typename Fn>
+      auto
+      with_carried_kind(jint k, Fn &&fn)
+      {
+        switch (static_cast<kind>(k)) {
+        case kind::BOOL:
+          return fn(std::integral_constant<kind, kind::BOOL>{});
+        case kind::BYTE:
+          return fn(std::integral_constant<kind, kind::BYTE>{});
+        case kind::SHORT:
+          return fn(std::integral_constant<kind, kind::SHORT>{});
+        case kind::INT:
+          return fn(std::integral_constant<kind, kind::INT>{});
+        case kind::LONG:
+          return fn(std::integral_constant<kind, kind::LONG>{});
+        case kind::FLOAT:
+          return fn(std::integral_constant<kind, kind::FLOAT>{});
+        case kind::DOUBLE:
+          return fn(std::integral_constant<kind, kind::DOUBLE>{});
+        case kind::STRING:
+          return fn(std::integral_constant<kind, kind::STRING>{});
+        case kind::RECORD:
+          return fn(std::integral_constant<kind, kind::RECORD>{});
+        default:
+          throw incompatible_type_ex{};
+        }
+      }
+
+      template <kind K>
+      struct bits
+      {
+        static api_type<K> in(jlong b) {
+          return static_cast<api_type<K>>(b);
+        }
+        static jlong out(const api_type<K> &v) {
+          return static_cast<jlong>(v);
+        }
+      };
+
+      template <>
+      struct bits<kind::BOOL>
+      {
+        static api_type<kind::BOOL> in(jlong b) {
+          return b != 0;
+        }
+        static jlong out(const api_type<kind::BOOL> &v) {
+          return v ? 1 : 0;
+        }
+      };
+
+      template <>
+      struct bits<kind::FLOAT>
+      {
+        static api_type<kind::FLOAT> in(jlong b) {
+          std::int32_t raw = static_cast<std::int32_t>(b);
+          float f;
+          std::memcpy(&f, &raw, sizeof f);
+          return f;
+        }
+        static jlong out(const api_type<kind::FLOAT> &v) {
+          float f = v;
+          std::int32_t raw;
+          std::memcpy(&raw, &f, sizeof raw);
+          return raw;
+        }
+      };
+
+      template <>
+      struct bits<kind::DOUBLE>
+      {
+        static api_type<kind::DOUBLE> in(jlong b) {
+          double d;
+          std::memcpy(&d, &b, sizeof d);
+          return d;
+        }
+        static jlong out(const api_type<kind::DOUBLE> &v) {
+          double d = v;
+          jlong raw;
+          std::memcpy(&raw, &d, sizeof raw);
+          return raw;
+        }
+      };
+
+      template <>
+      struct bits<kind::STRING> : list_proxy::jni_val<kind::STRING> {};
+
+      template <>
+      struct bits<kind::RECORD> : list_proxy::jni_val<kind::RECORD> {};
+    }
+  }
+}
+
+#endif /* JLONG_CARRIER_H_ */
@@ -0,0 +1,386 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+#ifndef LIST_PROXY_H_
+#define LIST_PROXY_H_
+
+#include <vector>
+
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+
+namespace mds
+{
+  namespace jni
+  {
+    namespace list_proxy
+    {
+      /*
+       * How an element crosses the JNI boundary: primitives as
+       * themselves, strings and records as handle indices (0 for a
+       * null element).
+       */
+      template<kind KIND>
+	struct jni_prim;
+
+#define LIST_PROXY_PRIM(K, JT)						\
+      template<>							\
+	struct jni_prim<K>						\
+	{								\
+	  using type = JT;						\
+	  using array_type = JT##Array;					\
+	};
+
+      LIST_PROXY_PRIM(kind::BOOL, jboolean)
+      LIST_PROXY_PRIM(kind::BYTE, jbyte)
+      LIST_PROXY_PRIM(kind::SHORT, jshort)
+      LIST_PROXY_PRIM(kind::INT, jint)
+      LIST_PROXY_PRIM(kind::LONG, jlong)
+      LIST_PROXY_PRIM(kind::FLOAT, jfloat)
+      LIST_PROXY_PRIM(kind::DOUBLE, jdouble)
+
+#undef LIST_PROXY_PRIM
+
+      template<kind KIND>
+	struct jni_val
+	{
+	  using type = typename jni_prim<KIND>::type;
+	  using array_type = typename jni_prim<KIND>::array_type;
+
+	  static api_type<KIND>
+	  in (type v)
+	  {
+	    return static_cast<api_type<KIND>> (v);
+	  }
+
+	  static type
+	  out (const api_type<KIND> &v)
+	  {
+	    return static_cast<type> (v);
+	  }
+	};
+
+      template<typename H>
+	struct jni_handle_val
+	{
+	  using type = jlong;
+	  using array_type = jlongArray;
+
+	  static H
+	  in (jlong index)
+	  {
+	    if (index == 0)
+	      {
+		return H
+		  { };
+	      }
+	    indexed<H> h
+	      { index };
+	    return *h;
+	  }
+
+	  static jlong
+	  out (const H &v)
+	  {
+	    if (v.is_null ())
+	      {
+		return 0;
+	      }
+	    indexed<H> h
+	      { v };
+	    return h.return_index ();
+	  }
+	};
+
+      template<>
+	struct jni_val<kind::STRING> : jni_handle_val<interned_string_handle>
+	{
+	};
+
+      template<>
+	struct jni_val<kind::RECORD> : jni_handle_val<managed_record_handle>
+	{
+	};
+
+      template<kind KIND>
+	using jni_t = typename jni_val<KIND>::type;
+
+      template<kind KIND>
+	using jni_array_t = typename jni_val<KIND>::array_type;
+
+#define LIST_PROXY_REGION(JT, Name)					\
+      inline void							\
+      get_region (JNIEnv *jEnv, JT##Array a, jsize n, JT *buf)		\
+      {									\
+	jEnv->Get##Name##ArrayRegion (a, 0, n, buf);			\
+      }									\
+      inline void							\
+      set_region (JNIEnv *jEnv, JT##Array a, jsize n, const JT *buf)	\
+      {									\
+	jEnv->Set##Name##ArrayRegion (a, 0, n, buf);			\
+      }
+
+      LIST_PROXY_REGION(jboolean, Boolean)
+      LIST_PROXY_REGION(jbyte, Byte)
+      LIST_PROXY_REGION(jshort, Short)
+      LIST_PROXY_REGION(jint, Int)
+      LIST_PROXY_REGION(jlong, Long)
+      LIST_PROXY_REGION(jfloat, Float)
+      LIST_PROXY_REGION(jdouble, Double)
+
+#undef LIST_PROXY_REGION
+
+      /*
+       * The ordinals of ListProxy.Layout.
+       */
+      inline list_layout
+      layout_from_java (jint ordinal)
+      {
+	switch (ordinal)
+	  {
+	  case 1:
+	    return list_layout::deque;
+	  case 2:
+	    return list_layout::bag;
+	  default:
+	    return list_layout::array;
+	  }
+      }
+
+      inline jint
+      layout_to_java (list_layout layout)
+      {
+	switch (layout)
+	  {
+	  case list_layout::deque:
+	    return 1;
+	  case list_layout::bag:
+	    return 2;
+	  default:
+	    return 0;
+	  }
+      }
+
+      /*
+       * Copies a found element into out[0] and says whether there was
+       * one.
+       */
+      template<kind KIND>
+	inline jboolean
+	deliver (JNIEnv *jEnv, jni_array_t<KIND> out,
+		 const typename list_handle<KIND>::maybe_elt &r)
+	{
+	  if (!r.first)
+	    {
+	      return false;
+	    }
+	  jni_t<KIND> v = jni_val<KIND>::out (r.second);
+	  set_region (jEnv, out, 1, &v);
+	  return true;
+	}
+
+      template<kind KIND>
+	inline void
+	release (api_type<kind::LONG> handleIndex)
+	{
+	  indexed<list_handle<KIND>> self
+	    { handleIndex };
+	  self.release ();
+	}
+
+      template<kind KIND>
+	inline api_type<kind::LONG>
+	create (jint layout)
+	{
+	  indexed<list_handle<KIND>> h
+	    { list_handle<KIND>::create (layout_from_java (layout)) };
+	  return h.return_index ();
+	}
+
+      /*
+       * Lists that come out of bindings, fields and arrays weren't
+       * created by this Java process, so their layout has to be asked
+       * for.
+       */
+      template<kind KIND>
+	inline jint
+	layout (api_type<kind::LONG> hIndex)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  return layout_to_java (h->layout ());
+	}
+
+      template<kind KIND>
+	inline api_type<kind::LONG>
+	size (api_type<kind::LONG> hIndex)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  return h->size ();
+	}
+
+      template<kind KIND>
+	inline void
+	clear (api_type<kind::LONG> hIndex)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  h->clear ();
+	}
+
+      template<kind KIND>
+	inline jboolean
+	get (JNIEnv *jEnv, api_type<kind::LONG> hIndex, jlong pos,
+	     jni_array_t<KIND> out)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  return deliver<KIND> (jEnv, out, h->get (pos));
+	}
+
+      template<kind KIND>
+	inline jboolean
+	set (JNIEnv *jEnv, api_type<kind::LONG> hIndex, jlong pos,
+	     jni_t<KIND> val, jni_array_t<KIND> out)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  return deliver<KIND> (jEnv, out, h->set (pos, jni_val<KIND>::in (val)));
+	}
+
+      template<kind KIND>
+	inline void
+	add_end (api_type<kind::LONG> hIndex, jboolean first, jni_t<KIND> val)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  if (first)
+	    {
+	      h->add_first (jni_val<KIND>::in (val));
+	    }
+	  else
+	    {
+	      h->add_last (jni_val<KIND>::in (val));
+	    }
+	}
+
+      template<kind KIND>
+	inline jboolean
+	insert (api_type<kind::LONG> hIndex, jlong pos, jni_t<KIND> val)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  return h->insert (pos, jni_val<KIND>::in (val));
+	}
+
+      template<kind KIND>
+	inline jboolean
+	remove_at (JNIEnv *jEnv, api_type<kind::LONG> hIndex, jlong pos,
+		   jni_array_t<KIND> out)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  return deliver<KIND> (jEnv, out, h->remove_at (pos));
+	}
+
+      template<kind KIND>
+	inline jboolean
+	remove_end (JNIEnv *jEnv, api_type<kind::LONG> hIndex, jboolean first,
+		    jni_array_t<KIND> out)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  return deliver<KIND> (jEnv, out,
+				first ? h->remove_first () : h->remove_last ());
+	}
+
+      template<kind KIND>
+	inline jboolean
+	peek_end (JNIEnv *jEnv, api_type<kind::LONG> hIndex, jboolean first,
+		  jni_array_t<KIND> out)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  return deliver<KIND> (jEnv, out,
+				first ? h->peek_first () : h->peek_last ());
+	}
+
+      /*
+       * Appends the whole Java array in one native call.
+       */
+      template<kind KIND>
+	inline void
+	add_all (JNIEnv *jEnv, api_type<kind::LONG> hIndex,
+		 jni_array_t<KIND> vals)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  jsize n = jEnv->GetArrayLength (vals);
+	  std::vector<jni_t<KIND>> elts (n);
+	  get_region (jEnv, vals, n, elts.data ());
+	  h->add_all (elts.begin (), elts.end (), [](jni_t<KIND> x)
+	    {
+	      return jni_val<KIND>::in (x);
+	    });
+	}
+
+      /*
+       * Fills out with up to out.length elements, starting at the
+       * position in cursor[0], which is updated.  Returns the number
+       * filled in, or -(n+1) if there are no more after these.
+       */
+      template<kind KIND>
+	inline jint
+	list_chunk (JNIEnv *jEnv, api_type<kind::LONG> hIndex,
+		    jlongArray cursor, jni_array_t<KIND> out)
+	{
+	  indexed<list_handle<KIND>> h
+	    { hIndex };
+	  jlong pos;
+	  get_region (jEnv, cursor, 1, &pos);
+	  std::size_t max = jEnv->GetArrayLength (out);
+	  std::vector<jni_t<KIND>> chunk;
+	  chunk.reserve (max);
+	  bool more = h->for_each (&pos, max, [&](const api_type<KIND> &e)
+	    {
+	      chunk.push_back (jni_val<KIND>::out (e));
+	    });
+	  jsize n = chunk.size ();
+	  set_region (jEnv, out, n, chunk.data ());
+	  set_region (jEnv, cursor, 1, &pos);
+	  return static_cast<jint> (more ? n : -(n+1));
+	}
+    }
+  }
+}
+
+#endif /* LIST_PROXY_H_ */
@@ -196,6 +196,14 @@ mds::jni::exception_converter(JNIEnv *jEnv){
     {
       throwUnknownEx (jEnv, "Core base task not set");
     }
+  catch (core::write_once_ex &)
+    {
+      throwWriteOnceEx (jEnv);
+    }
+  catch (core::transfer_format_ex &e)
+    {
+      throwUnknownEx (jEnv, "Malformed MDS export stream: " + e.desc);
+    }
   catch (...)
     {
       // throwUnknownEx (jEnv);
@@ -244,6 +252,14 @@ mds::jni::throwUnimplementedEx(JNIEnv *env) {
   jex.raise(env);
 }
 
+void
+mds::jni::throwWriteOnceEx(JNIEnv *env) {
+  static java_ex jex(env,"java/lang/IllegalStateException",
+                     "(Ljava/lang/String;)V");
+  jstring msg = env->NewStringUTF("Element of a write-once array already written");
+  jex.raise(env, msg);
+}
+
 void
 mds::jni::throwUnknownEx(JNIEnv *env) {
   static java_ex jex(env,"com/hpl/mds/InternalException");
@@ -72,6 +72,7 @@ namespace mds {
     void throwReadOnlyContextEx(JNIEnv *jEnv);
     void throwUnpublishableContextEx(JNIEnv *jEnv);
     void throwUnimplementedEx(JNIEnv *jEnv);
+    void throwWriteOnceEx(JNIEnv *jEnv);
     void throwUnknownEx(JNIEnv *jEnv);
     void throwUnknownEx(JNIEnv *jEnv, const std::string &desc);
     void stubNotImplemented(JNIEnv *jEnv);
@@ -87,11 +88,31 @@ namespace mds {
       }
     }
 
-    template<typename Callable, typename ... Args>
+    namespace stats {
+      /*
+       * The groups of native methods whose calls are counted.  Each
+       * source file passes its family to exception_handler() and
+       * exception_handler_wr().  The ordinals match
+       * com.hpl.mds.Metrics.Family.
+       */
+      enum class family : std::size_t {
+        record, field, array, collection, string, naming, isolation, type, other,
+        n_counters
+      };
+
+      using entry_counters = core::stats::per_thread_counters<family>;
+
+      inline void count_entry(family f) {
+        entry_counters::add(f);
+      }
+    }
+
+    template<stats::family F = stats::family::other, typename Callable, typename ... Args>
       inline auto
       exception_handler_wr (JNIEnv *jEnv, Callable&& func, Args&&... args)
       -> typename std::result_of<Callable(Args...)>::type
       {
+        stats::count_entry(F);
         try
       	  {
       	    return func (std::forward<Args>(args)...);
@@ -103,10 +124,11 @@ namespace mds {
       	return typename std::result_of<Callable(Args...)>::type{};
       }
 
-    template<typename Callable, typename ... Args>
+    template<stats::family F = stats::family::other, typename Callable, typename ... Args>
       void
       exception_handler (JNIEnv *jEnv, Callable&& func, Args&&... args)
       {
+	stats::count_entry(F);
 	try
 	  {
 	    func (std::forward<Args>(args)...);
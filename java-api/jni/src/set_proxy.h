@@ -0,0 +1,292 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+
+#include <algorithm>
+#include <vector>
+
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+#include "string_map_proxy.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+
+namespace mds
+{
+  namespace jni
+  {
+    namespace set_proxy
+    {
+      /*
+       * String elements come in the same way as string map keys: either
+       * as the handle of a managed string or as a Java string.
+       */
+      using string_map_proxy::with_key;
+      using string_map_proxy::with_existing_key;
+
+      template<kind KIND>
+	inline void
+	release (api_type<kind::LONG> handleIndex)
+	{
+	  indexed<set_handle<KIND>> self
+	    { handleIndex };
+	  self.release ();
+	}
+
+      template<kind KIND>
+	inline api_type<kind::LONG>
+	create (api_type<kind::LONG> expectedSize)
+	{
+	  indexed<set_handle<KIND>> h
+	    { set_handle<KIND>::create (expectedSize) };
+	  return h.return_index ();
+	}
+
+      template<kind KIND>
+	inline api_type<kind::BOOL>
+	contains (api_type<kind::LONG> hIndex, const api_type<KIND> &elt)
+	{
+	  indexed<set_handle<KIND>> h
+	    { hIndex };
+	  return h->contains (elt);
+	}
+
+      template<kind KIND>
+	inline api_type<kind::BOOL>
+	add (api_type<kind::LONG> hIndex, const api_type<KIND> &elt)
+	{
+	  indexed<set_handle<KIND>> h
+	    { hIndex };
+	  return h->add (elt);
+	}
+
+      template<kind KIND>
+	inline api_type<kind::BOOL>
+	remove (api_type<kind::LONG> hIndex, const api_type<KIND> &elt)
+	{
+	  indexed<set_handle<KIND>> h
+	    { hIndex };
+	  return h->remove (elt);
+	}
+
+      template<kind KIND>
+	inline api_type<kind::LONG>
+	size (api_type<kind::LONG> hIndex)
+	{
+	  indexed<set_handle<KIND>> h
+	    { hIndex };
+	  return h->size ();
+	}
+
+      template<kind KIND>
+	inline void
+	clear (api_type<kind::LONG> hIndex)
+	{
+	  indexed<set_handle<KIND>> h
+	    { hIndex };
+	  h->clear ();
+	}
+
+      /*
+       * The bulk operations work on a copy of a Java array (or on
+       * handles already pulled out of one), so that a whole batch of
+       * membership tests or insertions is a single JNI transition.
+       */
+      template<kind KIND, typename T>
+	inline api_type<kind::BOOL>
+	contains_all (api_type<kind::LONG> hIndex, const std::vector<T> &elts)
+	{
+	  indexed<set_handle<KIND>> h
+	    { hIndex };
+	  return h->contains_all (elts.begin (), elts.end (), [](const T &x)
+	    {
+	      return api_type<KIND> (x);
+	    });
+	}
+
+      template<kind KIND, typename T>
+	inline api_type<kind::BOOL>
+	add_all (api_type<kind::LONG> hIndex, const std::vector<T> &elts)
+	{
+	  indexed<set_handle<KIND>> h
+	    { hIndex };
+	  return h->add_all (elts.begin (), elts.end (), [](const T &x)
+	    {
+	      return api_type<KIND> (x);
+	    }) > 0;
+	}
+
+      template<kind KIND, typename T>
+	inline api_type<kind::BOOL>
+	remove_all (api_type<kind::LONG> hIndex, const std::vector<T> &elts)
+	{
+	  indexed<set_handle<KIND>> h
+	    { hIndex };
+	  return h->remove_all (elts.begin (), elts.end (), [](const T &x)
+	    {
+	      return api_type<KIND> (x);
+	    }) > 0;
+	}
+
+      /*
+       * Only for primitive elements.  The elements to keep are sorted
+       * by their set keys, so that each membership test is a binary
+       * search rather than a scan of the array.
+       */
+      template<kind KIND, typename T>
+	inline api_type<kind::BOOL>
+	retain_all (api_type<kind::LONG> hIndex, const std::vector<T> &elts)
+	{
+	  using set_type = core::managed_hash_set<KIND>;
+	  indexed<set_handle<KIND>> h
+	    { hIndex };
+	  std::vector<typename set_type::key_type> keep;
+	  keep.reserve (elts.size ());
+	  for (const T &x : elts)
+	    {
+	      keep.push_back (set_type::key_of (to_core_val<KIND> (api_type<KIND> (x))));
+	    }
+	  std::sort (keep.begin (), keep.end ());
+	  return h->remove_if ([&](const api_type<KIND> &e)
+	    {
+	      auto k = set_type::key_of (to_core_val<KIND> (e));
+	      return !std::binary_search (keep.begin (), keep.end (), k);
+	    }) > 0;
+	}
+
+      /*
+       * Interns each string in a Java String[].  Null elements are
+       * skipped, since a managed set can't hold them.
+       */
+      inline std::vector<interned_string_handle>
+      interned_strings (JNIEnv *jEnv, jobjectArray strings)
+      {
+	jsize n = jEnv->GetArrayLength (strings);
+	std::vector<interned_string_handle> handles;
+	handles.reserve (n);
+	for (jsize i = 0; i < n; i++)
+	  {
+	    jstring s = static_cast<jstring> (jEnv->GetObjectArrayElement (strings, i));
+	    if (s != nullptr)
+	      {
+		handles.push_back (with_key (jEnv, 0, s, [](const interned_string_handle &k)
+		  {
+		    return k;
+		  }));
+		jEnv->DeleteLocalRef (s);
+	      }
+	  }
+	return handles;
+      }
+
+      /*
+       * containsAll() for a String[].  As with single membership tests,
+       * a string that has never been interned can't be in the set, so
+       * unless the set's view has to record the miss we answer false
+       * without interning anything.
+       */
+      inline api_type<kind::BOOL>
+      contains_all_strings (JNIEnv *jEnv, api_type<kind::LONG> hIndex,
+			    jobjectArray strings)
+      {
+	indexed<set_handle<kind::STRING>> h
+	  { hIndex };
+	if (h->tracks_missing_reads ())
+	  {
+	    return contains_all<kind::STRING> (hIndex, interned_strings (jEnv, strings));
+	  }
+	jsize n = jEnv->GetArrayLength (strings);
+	std::vector<interned_string_handle> handles;
+	handles.reserve (n);
+	for (jsize i = 0; i < n; i++)
+	  {
+	    jstring s = static_cast<jstring> (jEnv->GetObjectArrayElement (strings, i));
+	    if (s != nullptr)
+	      {
+		std::size_t len = jEnv->GetStringLength (s);
+		const jchar *chars = jEnv->GetStringCritical (s, nullptr);
+		interned_string_handle k =
+		  find_interned (reinterpret_cast<const char16_t *> (chars), len);
+		jEnv->ReleaseStringCritical (s, chars);
+		jEnv->DeleteLocalRef (s);
+		if (k.is_null ())
+		  {
+		    return false;
+		  }
+		handles.push_back (k);
+	      }
+	  }
+	return contains_all<kind::STRING> (hIndex, handles);
+      }
+
+      /*
+       * Collects up to max elements following after (or from the
+       * newest if it's null).  Returns false if there are no more.
+       */
+      template<kind KIND, typename T>
+	inline bool
+	list_chunk (api_type<kind::LONG> hIndex, const api_type<KIND> *after,
+		    std::size_t max, std::vector<T> &elts)
+	{
+	  indexed<set_handle<KIND>> h
+	    { hIndex };
+	  elts.reserve (max);
+	  return h->for_each (after, max, [&](const api_type<KIND> &e)
+	    {
+	      elts.push_back (e);
+	    });
+	}
+
+      /*
+       * The same, for elements that go back to Java as handle indices.
+       */
+      template<kind KIND>
+	inline bool
+	list_handle_chunk (api_type<kind::LONG> hIndex, api_type<kind::LONG> afterIndex,
+			   std::size_t max, std::vector<jlong> &elts)
+	{
+	  indexed<set_handle<KIND>> h
+	    { hIndex };
+	  indexed<api_type<KIND>> after_h
+	    { afterIndex };
+	  api_type<KIND> after = *after_h;
+	  elts.reserve (max);
+	  return h->for_each (afterIndex == 0 ? nullptr : &after, max,
+			      [&](const api_type<KIND> &e)
+	    {
+	      indexed<api_type<KIND>> ei
+		{ e };
+	      elts.push_back (ei.return_index ());
+	    });
+	}
+    }
+  }
+}
+
+#endif /* SET_PROXY_H_ */
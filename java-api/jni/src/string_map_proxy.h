@@ -0,0 +1,295 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+#ifndef STRING_MAP_PROXY_H_
+#define STRING_MAP_PROXY_H_
+
+#include <vector>
+
+#include "mds-debug.h"
+#include "mds_core_api.h"                           // MDS Core API
+#include "mds_jni.h"
+
+using namespace mds;
+using namespace mds::api;
+using namespace mds::jni;
+
+namespace mds
+{
+  namespace jni
+  {
+    namespace string_map_proxy
+    {
+      /*
+       * Keys come in either as the handle of a managed string or, to
+       * avoid allocating a proxy on the Java side, as a Java string
+       * (in which case keyIndex is ignored).
+       */
+      template<typename Fn>
+	inline auto
+	with_key (JNIEnv *jEnv, api_type<kind::LONG> keyIndex, jstring key, Fn &&fn)
+	{
+	  if (key == nullptr)
+	    {
+	      indexed<interned_string_handle> k
+		{ keyIndex };
+	      return std::forward<Fn>(fn) (*k);
+	    }
+	  std::size_t len = jEnv->GetStringLength (key);
+	  const jchar *chars = jEnv->GetStringCritical (key, nullptr);
+	  const char16_t *wcs = reinterpret_cast<const char16_t *> (chars);
+	  interned_string_handle k = intern (wcs, len);
+	  jEnv->ReleaseStringCritical (key, chars);
+	  return std::forward<Fn>(fn) (k);
+	}
+
+      /*
+       * For reads.  A Java string that has never been interned can't
+       * be a key, so we hand back onMissing() rather than adding it to
+       * the string table (and, via the lookup, an entry to the map)
+       * for every miss.  The exception is a view that has to see a
+       * later insertion of the key as a conflict: there the entry is
+       * the thing that records the read, so we intern as before.
+       */
+      template<typename H, typename Fn, typename Missing>
+	inline auto
+	with_existing_key (JNIEnv *jEnv, const H &h,
+			   api_type<kind::LONG> keyIndex, jstring key,
+			   Fn &&fn, Missing &&onMissing)
+	{
+	  if (key == nullptr || h.tracks_missing_reads ())
+	    {
+	      return with_key (jEnv, keyIndex, key, std::forward<Fn>(fn));
+	    }
+	  std::size_t len = jEnv->GetStringLength (key);
+	  const jchar *chars = jEnv->GetStringCritical (key, nullptr);
+	  const char16_t *wcs = reinterpret_cast<const char16_t *> (chars);
+	  interned_string_handle k = find_interned (wcs, len);
+	  jEnv->ReleaseStringCritical (key, chars);
+	  if (k.is_null ())
+	    {
+	      return std::forward<Missing>(onMissing) ();
+	    }
+	  return std::forward<Fn>(fn) (k);
+	}
+
+      template<kind KIND>
+	inline void
+	release (api_type<kind::LONG> handleIndex)
+	{
+	  indexed<string_map_handle<KIND>> self
+	    { handleIndex };
+	  self.release ();
+	}
+
+      template<kind KIND>
+	inline api_type<kind::LONG>
+	create (api_type<kind::LONG> expectedSize)
+	{
+	  indexed<string_map_handle<KIND>> h
+	    { string_map_handle<KIND>::create (expectedSize) };
+	  return h.return_index ();
+	}
+
+      template<kind KIND>
+	inline api_type<KIND>
+	get_or (JNIEnv *jEnv, api_type<kind::LONG> hIndex,
+		api_type<kind::LONG> keyIndex, jstring key,
+		api_type<KIND> dflt)
+	{
+	  indexed<string_map_handle<KIND>> h
+	    { hIndex };
+	  return with_existing_key (jEnv, *h, keyIndex, key,
+				    [&](const interned_string_handle &k)
+	    {
+	      return h->get_or (k, dflt);
+	    },
+				    [&]
+	    {
+	      return dflt;
+	    });
+	}
+
+      template<kind KIND>
+	inline api_type<kind::BOOL>
+	contains (JNIEnv *jEnv, api_type<kind::LONG> hIndex,
+		  api_type<kind::LONG> keyIndex, jstring key)
+	{
+	  indexed<string_map_handle<KIND>> h
+	    { hIndex };
+	  return with_existing_key (jEnv, *h, keyIndex, key,
+				    [&](const interned_string_handle &k)
+	    {
+	      return h->contains (k);
+	    },
+				    [&]
+	    {
+	      return false;
+	    });
+	}
+
+      template<kind KIND>
+	inline api_type<KIND>
+	put_or (JNIEnv *jEnv, api_type<kind::LONG> hIndex,
+		api_type<kind::LONG> keyIndex, jstring key,
+		api_type<KIND> val, api_type<KIND> dflt)
+	{
+	  indexed<string_map_handle<KIND>> h
+	    { hIndex };
+	  return with_key (jEnv, keyIndex, key, [&](const interned_string_handle &k)
+	    {
+	      return h->put_or (k, val, dflt);
+	    });
+	}
+
+      template<kind KIND>
+	inline api_type<KIND>
+	put_if_absent_or (JNIEnv *jEnv, api_type<kind::LONG> hIndex,
+			  api_type<kind::LONG> keyIndex, jstring key,
+			  api_type<KIND> val, api_type<KIND> dflt)
+	{
+	  indexed<string_map_handle<KIND>> h
+	    { hIndex };
+	  return with_key (jEnv, keyIndex, key, [&](const interned_string_handle &k)
+	    {
+	      return h->put_if_absent_or (k, val, dflt);
+	    });
+	}
+
+      template<kind KIND>
+	inline api_type<KIND>
+	remove_or (JNIEnv *jEnv, api_type<kind::LONG> hIndex,
+		   api_type<kind::LONG> keyIndex, jstring key,
+		   api_type<KIND> dflt)
+	{
+	  indexed<string_map_handle<KIND>> h
+	    { hIndex };
+	  return with_existing_key (jEnv, *h, keyIndex, key,
+				    [&](const interned_string_handle &k)
+	    {
+	      return h->remove_or (k, dflt);
+	    },
+				    [&]
+	    {
+	      return dflt;
+	    });
+	}
+
+      inline modify_op
+      modify_op_for (ARITH_OP op)
+      {
+	switch (op)
+	  {
+	  case ARITH_OP::add:
+	    return modify_op::add;
+	  case ARITH_OP::sub:
+	    return modify_op::sub;
+	  case ARITH_OP::mul:
+	    return modify_op::mul;
+	  case ARITH_OP::div:
+	    return modify_op::div;
+	  }
+	return modify_op::add;
+      }
+
+      /*
+       * Missing keys are added, starting from zero, so addTo() on a
+       * fresh key just stores the delta.
+       */
+      template<kind KIND, ARITH_OP OP>
+	inline api_type<KIND>
+	modify_value (JNIEnv *jEnv, api_type<kind::LONG> hIndex,
+		      api_type<kind::LONG> keyIndex, jstring key,
+		      api_type<KIND> amt,
+		      ret_mode returning = ret_mode::resulting_val)
+	{
+	  indexed<string_map_handle<KIND>> h
+	    { hIndex };
+	  return with_key (jEnv, keyIndex, key, [&](const interned_string_handle &k)
+	    {
+	      return h->modify (k, modify_op_for (OP), amt, returning);
+	    });
+	}
+
+      template<kind KIND, ARITH_OP OP>
+	inline void
+	modify_all (api_type<kind::LONG> hIndex, api_type<KIND> amt)
+	{
+	  indexed<string_map_handle<KIND>> h
+	    { hIndex };
+	  h->modify_all (modify_op_for (OP), amt);
+	}
+
+      template<kind KIND>
+	inline api_type<kind::LONG>
+	size (api_type<kind::LONG> hIndex)
+	{
+	  indexed<string_map_handle<KIND>> h
+	    { hIndex };
+	  return h->size ();
+	}
+
+      template<kind KIND>
+	inline void
+	clear (api_type<kind::LONG> hIndex)
+	{
+	  indexed<string_map_handle<KIND>> h
+	    { hIndex };
+	  h->clear ();
+	}
+
+      /*
+       * Collects up to max entries after the key whose handle is
+       * afterIndex (or from the newest if it's 0).  Returns false if
+       * there are no more.
+       */
+      template<kind KIND>
+	inline bool
+	list_chunk (api_type<kind::LONG> hIndex, api_type<kind::LONG> afterIndex,
+		    std::size_t max, std::vector<jlong> &keys,
+		    std::vector<api_type<KIND>> &vals)
+	{
+	  indexed<string_map_handle<KIND>> h
+	    { hIndex };
+	  indexed<interned_string_handle> after
+	    { afterIndex };
+	  keys.reserve (max);
+	  vals.reserve (max);
+	  return h->for_each (*after, max,
+			      [&](const interned_string_handle &k,
+				  const api_type<KIND> &v)
+	    {
+	      indexed<interned_string_handle> ki
+		{ k };
+	      keys.push_back (ki.return_index ());
+	      vals.push_back (v);
+	    });
+	}
+    }
+  }
+}
+
+#endif /* STRING_MAP_PROXY_H_ */
@@ -0,0 +1,171 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Opt-in tracing of what failed publishes conflicted on.  While it's
+ * enabled, one in every {@code sampleInterval} failed publishes in this
+ * process has the sites of its conflicts added to a table: the record
+ * type and field, the array and index, or the bound name whose
+ * publication by another context forced the redo.  {@link #top(int)}
+ * reads the busiest rows.
+ *
+ * <p>Conflicts on a record field are counted against the field, not the
+ * record, so every instance of a type shares a row.  Conflicts that come
+ * from blocking modifications rather than publication are reported with
+ * a site of {@link Site#UNKNOWN}, as are slots that haven't been written
+ * since tracing was enabled.  The table keeps the busiest few thousand
+ * sites.
+ *
+ * <p>When tracing is disabled, publication pays for a single flag check.
+ */
+public class ConflictHotSpots {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private static native void _enable(int sampleInterval);
+  private static native void _disable();
+  private static native boolean _isEnabled();
+  private static native void _reset();
+  private static native long _nSampled();
+  private static native Object[] _top(int n);
+
+  /**
+   * What a hot spot is a slot of.  The ordinals match
+   * mds::core::msv_site_kind.
+   */
+  public enum Site {
+    UNKNOWN, RECORD_FIELD, ARRAY_SLOT, BINDING
+  }
+
+  public static final class HotSpot {
+    private final Site site;
+    private final String where;
+    private final long conflicts;
+
+    HotSpot(Site site, String where, long conflicts) {
+      this.site = site;
+      this.where = where;
+      this.conflicts = conflicts;
+    }
+
+    public Site site() {
+      return site;
+    }
+
+    /**
+     * "Type.field" for a record field, "array@id[index]" for an array
+     * slot and the name itself for a binding.
+     */
+    public String where() {
+      return where;
+    }
+
+    public long conflicts() {
+      return conflicts;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%,d\t%s\t%s", conflicts, site, where);
+    }
+  }
+
+  private ConflictHotSpots() {}
+
+  /**
+   * Starts tracing, recording one in every sampleInterval failed
+   * publishes.  An interval of 1 records them all.
+   */
+  public static void enable(int sampleInterval) {
+    if (sampleInterval < 1) {
+      throw new IllegalArgumentException("Sample interval must be positive: "+sampleInterval);
+    }
+    _enable(sampleInterval);
+  }
+
+  public static void enable() {
+    enable(1);
+  }
+
+  /**
+   * Stops tracing.  What's already been recorded is kept.
+   */
+  public static void disable() {
+    _disable();
+  }
+
+  public static boolean isEnabled() {
+    return _isEnabled();
+  }
+
+  public static void reset() {
+    _reset();
+  }
+
+  /**
+   * The number of failed publishes that have been recorded.
+   */
+  public static long sampledFailures() {
+    return _nSampled();
+  }
+
+  /**
+   * The n sites with the most recorded conflicts, most first.
+   */
+  public static List<HotSpot> top(int n) {
+    Object[] res = _top(n);
+    if (res == null) {
+      return Collections.emptyList();
+    }
+    int[] sites = (int[])res[0];
+    String[] where = (String[])res[1];
+    long[] counts = (long[])res[2];
+    Site[] kinds = Site.values();
+    List<HotSpot> spots = new ArrayList<>(where.length);
+    for (int i = 0; i < where.length; i++) {
+      spots.add(new HotSpot(kinds[sites[i]], where[i], counts[i]));
+    }
+    return spots;
+  }
+
+  /**
+   * The top n as a tab-separated table, for logging.
+   */
+  public static String report(int n) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("# %,d failed publishes sampled%n", sampledFailures()));
+    for (HotSpot hs : top(n)) {
+      sb.append(hs).append(String.format("%n"));
+    }
+    return sb.toString();
+  }
+}
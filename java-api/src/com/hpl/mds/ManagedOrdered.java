@@ -26,14 +26,14 @@
 
 package com.hpl.mds;
 
-import com.hpl.mds.impl.Stub;
+import com.hpl.mds.impl.UsageImpl;
 import com.hpl.mds.usage.Operation;
 import com.hpl.mds.usage.UsageBase;
 import com.hpl.mds.usage.UsagePlan;
 import com.hpl.mds.usage.UsageScope;
 
 public interface ManagedOrdered<M extends ManagedObject> extends ManagedComposite, Iterable<M> {
-  public static final Operation<ForManagedOrdered> ITERATE = Stub.notImplemented();
+  public static final Operation<ForManagedOrdered> ITERATE = new Operation<>("ITERATE");
   
   public static interface Type<M extends ManagedObject, C extends ManagedOrdered<M>> extends ManagedType<C> {
     public ManagedType<M> eltType();
@@ -49,8 +49,7 @@ public interface ManagedOrdered<M extends ManagedObject> extends ManagedComposit
   public interface Usage extends UsageOps<ForManagedOrdered, Usage> {}
   
   static Usage usage() {
-    // TODO
-    return Stub.notImplemented();
+    return UsageImpl.create(Usage.class);
   }
     ManagedOrdered.Type<M,? extends ManagedOrdered<M>> type();
 
@@ -0,0 +1,107 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds;
+
+import java.util.Iterator;
+import java.util.NavigableMap;
+
+import com.hpl.mds.impl.OrderedMapTypeProxy;
+
+/**
+ * A map whose keys (currently {@link ManagedLong}s or
+ * {@link ManagedString}s) are kept in order, so that it supports range
+ * queries such as {@link #subMap}, {@link #ceilingEntry} and
+ * {@link #floorEntry}.  Strings are ordered as by
+ * {@link String#compareTo}.  As an {@link ManagedOrdered}, the map
+ * iterates over its values in key order.
+ *
+ * <p>
+ * Conflicts are detected per key and per key range: a task that scans
+ * a range conflicts only with tasks that add or remove keys in that
+ * range, so, for example, appending entries with increasing keys
+ * doesn't conflict with readers of earlier ranges.  Iteration fetches
+ * entries in chunks.  Null keys and values are not permitted.
+ */
+public interface ManagedOrderedMap<K extends ManagedObject, V extends ManagedObject>
+  extends ManagedOrdered<V>, NavigableMap<K,V>
+{
+  public static interface Type<K extends ManagedObject, V extends ManagedObject>
+    extends ManagedOrdered.Type<V, ManagedOrderedMap<K,V>>
+  {
+    public ManagedType<K> keyType();
+    public ManagedType<V> valueType();
+
+    @Override
+    public default ManagedType<V> eltType() {
+      return valueType();
+    }
+
+    public ManagedOrderedMap<K,V> create();
+  }
+
+  /**
+   * @throws IncompatibleTypeException
+   *           if keyType is neither {@link ManagedLong#TYPE} nor
+   *           {@link ManagedString#TYPE}
+   */
+  static <K extends ManagedObject, V extends ManagedObject>
+  Type<K,V> type(ManagedType<K> keyType, ManagedType<V> valType) {
+    return OrderedMapTypeProxy.forTypes(keyType, valType);
+  }
+
+  static <K extends ManagedObject, V extends ManagedObject>
+  ManagedOrderedMap<K,V> create(ManagedType<K> keyType, ManagedType<V> valType) {
+    return type(keyType, valType).create();
+  }
+
+  @Override
+  Type<K,V> type();
+
+  default ManagedType<K> keyType() {
+    return type().keyType();
+  }
+
+  default ManagedType<V> valueType() {
+    return type().valueType();
+  }
+
+  @Override
+  default int size() {
+    long s = longSize();
+    return s > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)s;
+  }
+
+  @Override
+  default boolean isEmpty() {
+    return firstEntry() == null;
+  }
+
+  @Override
+  default Iterator<V> iterator() {
+    return values().iterator();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds;
+
+import java.util.concurrent.BlockingQueue;
+
+import com.hpl.mds.impl.QueueProxy;
+
+/**
+ * A persistent, unbounded multi-producer/multi-consumer queue for
+ * handing work between threads and processes.
+ *
+ * <p>
+ * Unlike a {@link ManagedList} created for use as a
+ * {@link ManagedList#QUEUE}, a {@code ManagedQueue} is not isolated:
+ * enqueues and dequeues take effect immediately, are visible to all
+ * contexts, are not undone when a task is rerun, and never cause
+ * conflicts.  This is what allows several processes to take work from
+ * the same queue without serializing on it.  Elements themselves are
+ * ordinary managed values, so a record taken from the queue is read
+ * and modified under the usual isolation rules.
+ *
+ * <p>
+ * Queues are not bound in namespaces.  Instead, {@link #named} returns
+ * the queue with the given name, creating it if necessary, and all
+ * processes that ask for the same name get the same queue.  Null
+ * elements are not permitted.  Since the queue is shared between
+ * processes, blocking operations wait by polling with backoff rather
+ * than by being notified.
+ */
+public interface ManagedQueue<T extends ManagedObject> extends BlockingQueue<T> {
+
+  public ManagedType<T> eltType();
+
+  public long longSize();
+
+  /**
+   * Creates a new, anonymous queue.
+   */
+  static <T extends ManagedObject> ManagedQueue<T> create(ManagedType<T> eltType) {
+    return QueueProxy.create(eltType);
+  }
+
+  /**
+   * Returns the queue with the given name, creating it if no such queue
+   * exists.
+   *
+   * @throws IncompatibleTypeException
+   *           if the queue exists with a different element type
+   */
+  static <T extends ManagedObject> ManagedQueue<T> named(CharSequence name, ManagedType<T> eltType) {
+    return QueueProxy.named(name, eltType);
+  }
+}
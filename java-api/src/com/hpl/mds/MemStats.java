@@ -29,32 +29,74 @@ package com.hpl.mds;
 import com.hpl.erk.Memory;
 import com.hpl.erk.text.English;
 
+/**
+ * A snapshot of the managed heap.  The heap-wide figures are read in a
+ * single native call and describe the same GC cycle.  The allocation
+ * counts are of objects this process has created since it started, by
+ * {@link Category}; they say where the allocation is going, not what's
+ * still live.  {@link MemStatsSampler} turns a series of snapshots into
+ * rates.
+ */
 public class MemStats {
   
   private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
   
-  private static native long _bytesInHeap();
-  private static native long _bytesInUse();
-  private static native long _gcCycleNumber();
-  private static native long _nProcesses();
-  private static native long _nObjects();
-
-  private long _bytesInHeap;
-  private long _bytesInUse;
-  private long _gcCycleNumber;
-  private long _nProcesses;
-  private long _nObjects;
+  private static native long[] _snapshot();
+  private static native long[] _allocations();
+
+  /**
+   * What allocated objects are for.  The ordinals match
+   * mds::core::stats::alloc.
+   */
+  public enum Category {
+    RECORD, ARRAY, COLLECTION, STRING,
+    /** The per-slot holders that version chains hang off */
+    MSV,
+    /** One per slot per context that has touched it */
+    VALUE_CHAIN,
+    /** One per write (or publish) of a slot */
+    VALUE;
+
+    /**
+     * Whether objects of this category are bookkeeping for isolation
+     * rather than user data.
+     */
+    public boolean isVersioningOverhead() {
+      return this == MSV || this == VALUE_CHAIN || this == VALUE;
+    }
+  }
+
+  /* Indices into the snapshot, matching MemStats.cpp */
+  private static final int BYTES_IN_HEAP = 0;
+  private static final int BYTES_IN_USE = 1;
+  private static final int GC_CYCLE_NUMBER = 2;
+  private static final int N_PROCESSES = 3;
+  private static final int N_OBJECTS = 4;
+
+  private final long _takenAt;
+  private final long _bytesInHeap;
+  private final long _bytesInUse;
+  private final long _gcCycleNumber;
+  private final long _nProcesses;
+  private final long _nObjects;
+  private final long[] _allocations;
 
   public MemStats() {
-    _gcCycleNumber = -1;
-    long n;
-    _bytesInUse = _bytesInUse();
-    while ((n = _gcCycleNumber()) != _gcCycleNumber) {
-      _gcCycleNumber = n;
-      _bytesInHeap = _bytesInHeap();
-      _nProcesses = _nProcesses();
-      _nObjects = _nObjects();
-    }
+    long[] ss = _snapshot();
+    _allocations = _allocations();
+    _takenAt = System.nanoTime();
+    _bytesInHeap = ss[BYTES_IN_HEAP];
+    _bytesInUse = ss[BYTES_IN_USE];
+    _gcCycleNumber = ss[GC_CYCLE_NUMBER];
+    _nProcesses = ss[N_PROCESSES];
+    _nObjects = ss[N_OBJECTS];
+  }
+
+  /**
+   * When the snapshot was taken, as {@link System#nanoTime()}.
+   */
+  public long takenAt() {
+    return _takenAt;
   }
 
   public long bytesInHeap() {
@@ -94,15 +136,50 @@ public class MemStats {
   }
 
   public long gcCycleNumber() {
-    return _gcCycleNumber();
+    return _gcCycleNumber;
   }
 
   public long nProcesses() {
-    return _nProcesses();
+    return _nProcesses;
   }
 
   public long nObjects() {
-    return _nObjects();
+    return _nObjects;
+  }
+
+  /**
+   * Objects of the category this process has created.
+   */
+  public long allocated(Category category) {
+    int i = category.ordinal();
+    return i < _allocations.length ? _allocations[i] : 0;
+  }
+
+  public long allocated() {
+    long sum = 0;
+    for (long n : _allocations) {
+      sum += n;
+    }
+    return sum;
+  }
+
+  /**
+   * The fraction of the objects this process has created that are
+   * versioning overhead (MSVs, value chains and values) rather than
+   * records, arrays, collections and strings.
+   */
+  public double versioningOverhead() {
+    long total = allocated();
+    if (total == 0) {
+      return 0;
+    }
+    long overhead = 0;
+    for (Category c : Category.values()) {
+      if (c.isVersioningOverhead()) {
+        overhead += allocated(c);
+      }
+    }
+    return (double)overhead/total;
   }
 
   public String toString() {
@@ -0,0 +1,235 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.hpl.erk.Memory;
+
+/**
+ * Takes {@link MemStats} snapshots on a background thread and keeps the
+ * most recent intervals between them, each of which gives allocation
+ * and reclamation rates.
+ *
+ * <p>Allocation is counted per process and the heap figures are for the
+ * whole heap, so the reclamation rate (objects allocated less the growth
+ * in live objects) is only an estimate, and only meaningful when this is
+ * the only process allocating.
+ */
+public class MemStatsSampler {
+
+  /**
+   * The change between two snapshots.
+   */
+  public static final class Interval {
+    private final MemStats from;
+    private final MemStats to;
+    private final double seconds;
+
+    Interval(MemStats from, MemStats to) {
+      this.from = from;
+      this.to = to;
+      this.seconds = Math.max(to.takenAt()-from.takenAt(), 1)/1e9;
+    }
+
+    public MemStats from() {
+      return from;
+    }
+
+    public MemStats to() {
+      return to;
+    }
+
+    public double seconds() {
+      return seconds;
+    }
+
+    public long gcCycles() {
+      return to.gcCycleNumber()-from.gcCycleNumber();
+    }
+
+    /**
+     * Bytes per second.  Negative when a GC freed more than was
+     * allocated.
+     */
+    public double heapGrowthRate() {
+      return (to.bytesInUse()-from.bytesInUse())/seconds;
+    }
+
+    public long allocated(MemStats.Category category) {
+      return to.allocated(category)-from.allocated(category);
+    }
+
+    public long allocated() {
+      return to.allocated()-from.allocated();
+    }
+
+    /**
+     * Objects per second.
+     */
+    public double allocationRate(MemStats.Category category) {
+      return allocated(category)/seconds;
+    }
+
+    public double allocationRate() {
+      return allocated()/seconds;
+    }
+
+    /**
+     * Estimated objects reclaimed per second.
+     */
+    public double reclamationRate() {
+      long reclaimed = allocated()-(to.nObjects()-from.nObjects());
+      return Math.max(reclaimed, 0)/seconds;
+    }
+
+    /**
+     * The fraction of this interval's allocation that was versioning
+     * overhead.
+     */
+    public double versioningOverhead() {
+      long total = allocated();
+      if (total == 0) {
+        return 0;
+      }
+      long overhead = 0;
+      for (MemStats.Category c : MemStats.Category.values()) {
+        if (c.isVersioningOverhead()) {
+          overhead += allocated(c);
+        }
+      }
+      return (double)overhead/total;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Interval[%.2fs: %,d GCs, heap %s/s, %,.0f allocs/s, %,.0f reclaimed/s, %.1f%% overhead]",
+                           seconds, gcCycles(),
+                           Memory.readable((long)heapGrowthRate(), 2, "B"),
+                           allocationRate(), reclamationRate(),
+                           100*versioningOverhead());
+    }
+  }
+
+  private final int capacity;
+  private final Deque<Interval> intervals;
+  private MemStats last;
+  private ScheduledExecutorService executor;
+  private ScheduledFuture<?> task;
+
+  /**
+   * Keeps the last capacity intervals.
+   */
+  public MemStatsSampler(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: "+capacity);
+    }
+    this.capacity = capacity;
+    this.intervals = new ArrayDeque<>(capacity);
+  }
+
+  public MemStatsSampler() {
+    this(60);
+  }
+
+  public synchronized MemStatsSampler start(long period, TimeUnit unit) {
+    if (task != null) {
+      throw new IllegalStateException("Already sampling");
+    }
+    if (executor == null) {
+      executor = Executors.newSingleThreadScheduledExecutor(r -> {
+          Thread t = new Thread(r, "MDS memory stats sampler");
+          t.setDaemon(true);
+          return t;
+        });
+    }
+    task = executor.scheduleAtFixedRate(this::sample, 0, period, unit);
+    return this;
+  }
+
+  public synchronized void stop() {
+    if (task != null) {
+      task.cancel(false);
+      task = null;
+    }
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Takes a snapshot now.  Called on the sampler's thread once started,
+   * but can be called directly to sample at specific points.
+   *
+   * @return the interval since the previous snapshot, or null if this
+   * is the first
+   */
+  public Interval sample() {
+    MemStats now = new MemStats();
+    synchronized (this) {
+      Interval interval = null;
+      if (last != null) {
+        interval = new Interval(last, now);
+        if (intervals.size() == capacity) {
+          intervals.removeFirst();
+        }
+        intervals.addLast(interval);
+      }
+      last = now;
+      return interval;
+    }
+  }
+
+  /**
+   * The retained intervals, oldest first.
+   */
+  public synchronized List<Interval> intervals() {
+    return new ArrayList<>(intervals);
+  }
+
+  public synchronized Interval latest() {
+    return intervals.peekLast();
+  }
+
+  /**
+   * The span of all retained intervals as one.
+   */
+  public synchronized Interval overall() {
+    if (intervals.isEmpty()) {
+      return null;
+    }
+    return new Interval(intervals.peekFirst().from(), intervals.peekLast().to());
+  }
+}
@@ -0,0 +1,333 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * A snapshot of the native layer's performance counters.  Unlike {@link
+ * MemStats}, which reports on the heap as a whole, these count what this
+ * process has done since it started: native calls by family, the handle
+ * stores that back proxies, publication and redo, and rollups.  The
+ * string table figures come from {@link StringTableStats} and are, like
+ * it, global to the heap.
+ *
+ * <p>The counters are kept per thread and only summed when a snapshot
+ * is taken, so counting is cheap and taking a snapshot isn't free.
+ * {@link #since(Metrics)} gives the counts between two snapshots.  The
+ * same numbers can be read over JMX once {@link #registerMBean()} has
+ * been called.
+ */
+public class Metrics {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private static native long[] _jniEntries();
+  private static native long[] _coreCounts();
+  private static native long[] _handleStoreStats();
+  private static native long[] _shadowCacheCounts();
+
+  /**
+   * The groups of native methods whose calls are counted.  The ordinals
+   * match mds::jni::stats::family.
+   */
+  public enum Family {
+    RECORD, FIELD, ARRAY, COLLECTION, STRING, NAMING, ISOLATION, TYPE, OTHER
+  }
+
+  /* Indices into the core counts, matching mds::core::stats::event */
+  private static final int PUBLISH_ATTEMPTS = 0;
+  private static final int PUBLISH_SUCCESSES = 1;
+  private static final int PUBLISH_FAILURES = 2;
+  private static final int REDO_TASKS = 3;
+  private static final int ROLLUPS = 4;
+
+  /* Indices into the handle store figures */
+  private static final int LIVE_HANDLES = 0;
+  private static final int FREE_HANDLES = 1;
+  private static final int HANDLE_LOCK_WAITS = 2;
+
+  /* Indices into the shadow cache counts, matching mds::core::stats::shadow_event */
+  private static final int SHADOW_RECENT_HITS = 0;
+  private static final int SHADOW_MAP_HITS = 1;
+  private static final int SHADOW_MISSES = 2;
+  private static final int SHADOW_EVICTIONS = 3;
+
+  private final long[] _jniEntries;
+  private final long[] _core;
+  private final long[] _handles;
+  private final long[] _shadows;
+  private final StringTableStats _strings;
+
+  public Metrics() {
+    this(_jniEntries(), _coreCounts(), _handleStoreStats(), _shadowCacheCounts(),
+         new StringTableStats());
+  }
+
+  private Metrics(long[] jniEntries, long[] core, long[] handles, long[] shadows,
+                  StringTableStats strings) {
+    _jniEntries = jniEntries;
+    _core = core;
+    _handles = handles;
+    _shadows = shadows;
+    _strings = strings;
+  }
+
+  /**
+   * The counts between before and this snapshot.  The handle store and
+   * string table sizes aren't counts, so they're as of this snapshot.
+   */
+  public Metrics since(Metrics before) {
+    long[] handles = _handles.clone();
+    handles[HANDLE_LOCK_WAITS] -= before._handles[HANDLE_LOCK_WAITS];
+    return new Metrics(minus(_jniEntries, before._jniEntries),
+                       minus(_core, before._core),
+                       handles, minus(_shadows, before._shadows), _strings);
+  }
+
+  private static long[] minus(long[] a, long[] b) {
+    long[] d = Arrays.copyOf(a, a.length);
+    for (int i = 0; i < d.length && i < b.length; i++) {
+      d[i] -= b[i];
+    }
+    return d;
+  }
+
+  public long jniEntries(Family family) {
+    int i = family.ordinal();
+    return i < _jniEntries.length ? _jniEntries[i] : 0;
+  }
+
+  public long jniEntries() {
+    return Arrays.stream(_jniEntries).sum();
+  }
+
+  public Map<Family, Long> jniEntriesByFamily() {
+    Map<Family, Long> m = new EnumMap<>(Family.class);
+    for (Family f : Family.values()) {
+      m.put(f, jniEntries(f));
+    }
+    return m;
+  }
+
+  public long publishAttempts() {
+    return _core[PUBLISH_ATTEMPTS];
+  }
+
+  public long publishSuccesses() {
+    return _core[PUBLISH_SUCCESSES];
+  }
+
+  /**
+   * Attempts that ran into conflicts.  Attempts on contexts that can't
+   * be published throw before they're counted as either.
+   */
+  public long publishFailures() {
+    return _core[PUBLISH_FAILURES];
+  }
+
+  /**
+   * The number of tasks scheduled to be redone after failed
+   * publications.
+   */
+  public long redoTasks() {
+    return _core[REDO_TASKS];
+  }
+
+  public long rollups() {
+    return _core[ROLLUPS];
+  }
+
+  /**
+   * The number of handles held for proxies, across all handle stores.
+   */
+  public long liveHandles() {
+    return _handles[LIVE_HANDLES];
+  }
+
+  /**
+   * The number of free slots waiting to be reused, across all handle
+   * stores.
+   */
+  public long freeHandles() {
+    return _handles[FREE_HANDLES];
+  }
+
+  /**
+   * The number of times a thread had to wait for a handle store's lock.
+   */
+  public long handleLockWaits() {
+    return _handles[HANDLE_LOCK_WAITS];
+  }
+
+  /**
+   * Lookups of a view's shadow in a context that were answered by the
+   * thread's most recent lookup.
+   */
+  public long shadowRecentHits() {
+    return _shadows[SHADOW_RECENT_HITS];
+  }
+
+  /**
+   * Lookups answered by the thread's cache for the context.
+   */
+  public long shadowMapHits() {
+    return _shadows[SHADOW_MAP_HITS];
+  }
+
+  /**
+   * Lookups that had to find the shadow.
+   */
+  public long shadowMisses() {
+    return _shadows[SHADOW_MISSES];
+  }
+
+  /**
+   * Entries dropped from the shadow caches, either because they had
+   * been collected or to keep the caches within their bounds.
+   */
+  public long shadowEvictions() {
+    return _shadows[SHADOW_EVICTIONS];
+  }
+
+  /**
+   * The fraction of shadow lookups that didn't have to find the
+   * shadow, or 1 if there haven't been any.
+   */
+  public double shadowHitRate() {
+    long hits = shadowRecentHits()+shadowMapHits();
+    long total = hits+shadowMisses();
+    return total == 0 ? 1 : (double)hits/total;
+  }
+
+  public StringTableStats strings() {
+    return _strings;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Metrics[%,d native calls, %,d/%,d publications succeeded, %,d redone tasks, "
+                         + "%,d rollups, %,d handles (%,d free, %,d lock waits), %,d strings (load %.2f)]",
+                         jniEntries(), publishSuccesses(), publishAttempts(), redoTasks(),
+                         rollups(), liveHandles(), freeHandles(), handleLockWaits(),
+                         _strings.nStrings(), _strings.load());
+  }
+
+  public static final String MBEAN_NAME = "com.hpl.mds:type=Metrics";
+
+  /**
+   * Registers a {@link MetricsMXBean} with the platform MBean server,
+   * under {@link #MBEAN_NAME}.  Each attribute read takes a new
+   * snapshot.  Registering more than once is harmless.
+   */
+  public static void registerMBean() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.registerMBean(new StandardMBean(new Live(), MetricsMXBean.class, true),
+                           new ObjectName(MBEAN_NAME));
+    } catch (InstanceAlreadyExistsException e) {
+      // Already there
+    } catch (JMException e) {
+      throw new IllegalStateException("Couldn't register " + MBEAN_NAME, e);
+    }
+  }
+
+  private static final class Live implements MetricsMXBean {
+    @Override
+    public Map<String, Long> getJniEntries() {
+      Map<String, Long> m = new LinkedHashMap<>();
+      new Metrics().jniEntriesByFamily().forEach((f, n) -> m.put(f.name(), n));
+      return m;
+    }
+    @Override
+    public long getJniEntriesTotal() {
+      return new Metrics().jniEntries();
+    }
+    @Override
+    public long getPublishAttempts() {
+      return new Metrics().publishAttempts();
+    }
+    @Override
+    public long getPublishSuccesses() {
+      return new Metrics().publishSuccesses();
+    }
+    @Override
+    public long getPublishFailures() {
+      return new Metrics().publishFailures();
+    }
+    @Override
+    public long getRedoTasks() {
+      return new Metrics().redoTasks();
+    }
+    @Override
+    public long getRollups() {
+      return new Metrics().rollups();
+    }
+    @Override
+    public long getLiveHandles() {
+      return new Metrics().liveHandles();
+    }
+    @Override
+    public long getFreeHandles() {
+      return new Metrics().freeHandles();
+    }
+    @Override
+    public long getHandleLockWaits() {
+      return new Metrics().handleLockWaits();
+    }
+    @Override
+    public double getShadowCacheHitRate() {
+      return new Metrics().shadowHitRate();
+    }
+    @Override
+    public long getShadowCacheMisses() {
+      return new Metrics().shadowMisses();
+    }
+    @Override
+    public long getShadowCacheEvictions() {
+      return new Metrics().shadowEvictions();
+    }
+    @Override
+    public long getInternedStrings() {
+      return new StringTableStats().nStrings();
+    }
+    @Override
+    public double getStringTableLoad() {
+      return new StringTableStats().load();
+    }
+  }
+}
@@ -28,4 +28,11 @@ package com.hpl.mds;
 
 public class NoSuchRecordTypeException extends RuntimeException {
 
+  public NoSuchRecordTypeException() {
+  }
+
+  public NoSuchRecordTypeException(CharSequence name) {
+    super(String.format("No record type named '%s'", name));
+  }
+
 }
@@ -0,0 +1,199 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes pending rollups in the background.  Normally the rollups a
+ * publish leaves on a slot are only processed when the slot is next
+ * touched, so data written in a burst and then left alone holds onto
+ * its superseded values, and its next reader pays for the cleanup.
+ * While the compactor is running, a slot that gets a pending rollup is
+ * queued unless it's already waiting, and a daemon thread works
+ * through the queue.
+ *
+ * <p>The thread wakes once a period and works for at most
+ * {@code cpuFraction} of it, so {@code start(100, 0.05)} spends no more
+ * than 5ms in every 100ms.  {@link Stats} says how many pending rollups
+ * the slots had when they were visited and how many were left.
+ */
+public class RollupCompactor {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private static native void _enable();
+  private static native void _disable();
+  private static native long _run(long budgetNanos);
+  private static native long _queueLength();
+  private static native long[] _totals();
+
+  /* Indices into the totals, matching mds::core::rollup_compaction::stat */
+  private static final int QUEUED = 0;
+  private static final int DROPPED = 1;
+  private static final int COMPACTED = 2;
+  private static final int ROLLUPS_BEFORE = 3;
+  private static final int ROLLUPS_AFTER = 4;
+  private static final int MAX_BEFORE = 5;
+  private static final int RUNS = 6;
+
+  private static ScheduledExecutorService executor = null;
+
+  private RollupCompactor() {}
+
+  /**
+   * Starts compacting, waking every periodMillis and working for at
+   * most cpuFraction of each period.
+   */
+  public static synchronized void start(long periodMillis, double cpuFraction) {
+    if (periodMillis <= 0) {
+      throw new IllegalArgumentException("Period must be positive: "+periodMillis);
+    }
+    if (!(cpuFraction > 0 && cpuFraction <= 1)) {
+      throw new IllegalArgumentException("CPU fraction must be in (0,1]: "+cpuFraction);
+    }
+    if (executor != null) {
+      throw new IllegalStateException("Already running");
+    }
+    long budget = (long)(TimeUnit.MILLISECONDS.toNanos(periodMillis)*cpuFraction);
+    _enable();
+    executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "MDS rollup compactor");
+        t.setDaemon(true);
+        return t;
+      });
+    executor.scheduleAtFixedRate(() -> _run(budget), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public static void start() {
+    start(100, 0.05);
+  }
+
+  /**
+   * Stops compacting and drops anything still queued.  Pending rollups
+   * are still processed when their slots are next touched.
+   */
+  public static synchronized void stop() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+    _disable();
+  }
+
+  public static synchronized boolean isRunning() {
+    return executor != null;
+  }
+
+  /**
+   * Works through the queue on this thread for at most budgetNanos.
+   * Only useful while the compactor is enabled, since otherwise nothing
+   * is queued.
+   *
+   * @return the number of slots processed
+   */
+  public static long runOnce(long budgetNanos) {
+    return _run(budgetNanos);
+  }
+
+  public static long queueLength() {
+    return _queueLength();
+  }
+
+  /**
+   * Counts since the process started.
+   */
+  public static final class Stats {
+    private final long[] totals;
+
+    Stats(long[] totals) {
+      this.totals = totals;
+    }
+
+    /**
+     * Slots queued for compaction.
+     */
+    public long queued() {
+      return totals[QUEUED];
+    }
+
+    /**
+     * Slots not queued because the queue was full.
+     */
+    public long dropped() {
+      return totals[DROPPED];
+    }
+
+    /**
+     * Slots visited by the compactor.
+     */
+    public long compacted() {
+      return totals[COMPACTED];
+    }
+
+    public long runs() {
+      return totals[RUNS];
+    }
+
+    /**
+     * The longest list of pending rollups seen on a slot.
+     */
+    public long maxChainBefore() {
+      return totals[MAX_BEFORE];
+    }
+
+    /**
+     * The average number of pending rollups on a slot when the
+     * compactor got to it.
+     */
+    public double averageChainBefore() {
+      return compacted() == 0 ? 0 : (double)totals[ROLLUPS_BEFORE]/compacted();
+    }
+
+    /**
+     * The average number left afterward, which is nonzero when they're
+     * waiting on publishes that haven't resolved.
+     */
+    public double averageChainAfter() {
+      return compacted() == 0 ? 0 : (double)totals[ROLLUPS_AFTER]/compacted();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("RollupCompactor.Stats[%,d runs, %,d compacted of %,d queued (%,d dropped), "
+                           + "chains %.2f -> %.2f (max %,d)]",
+                           runs(), compacted(), queued(), dropped(),
+                           averageChainBefore(), averageChainAfter(), maxChainBefore());
+    }
+  }
+
+  public static Stats stats() {
+    return new Stats(_totals());
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds;
+
+import com.hpl.mds.impl.ManagedStringProxy;
+
+/**
+ * A snapshot of the counters kept by the shared string intern table.  The
+ * sizes describe the table in the heap, but lookups, hits and races count
+ * only interning done by this process.
+ */
+public class StringTableStats {
+
+  private final long _nShards;
+  private final long _nStrings;
+  private final long _capacity;
+  private final long _lookups;
+  private final long _hits;
+  private final long _insertRaces;
+  private final long _minShardSize;
+  private final long _maxShardSize;
+
+  public StringTableStats() {
+    long[] s = ManagedStringProxy.stringTableStats();
+    _nShards = s[0];
+    _nStrings = s[1];
+    _capacity = s[2];
+    _lookups = s[3];
+    _hits = s[4];
+    _insertRaces = s[5];
+    _minShardSize = s[6];
+    _maxShardSize = s[7];
+  }
+
+  public long nShards() {
+    return _nShards;
+  }
+
+  public long nStrings() {
+    return _nStrings;
+  }
+
+  public long capacity() {
+    return _capacity;
+  }
+
+  public double load() {
+    return _capacity == 0 ? 0 : (double)_nStrings/_capacity;
+  }
+
+  public long lookups() {
+    return _lookups;
+  }
+
+  public long hits() {
+    return _hits;
+  }
+
+  public double hitRatio() {
+    return _lookups == 0 ? 0 : (double)_hits/_lookups;
+  }
+
+  /**
+   * The number of times two threads tried to add the same string at once
+   * and one of them had to throw its copy away.
+   */
+  public long insertRaces() {
+    return _insertRaces;
+  }
+
+  public long minShardSize() {
+    return _minShardSize;
+  }
+
+  public long maxShardSize() {
+    return _maxShardSize;
+  }
+
+  /**
+   * The ratio of the fullest shard to the average shard.  1.0 means the
+   * strings are spread perfectly.
+   */
+  public double shardSkew() {
+    return _nStrings == 0 ? 1 : (double)_maxShardSize*_nShards/_nStrings;
+  }
+
+  public String toString() {
+    return String.format("StringTableStats[%,d strings in %,d shards, load %.2f, hit ratio %.2f, skew %.2f, %,d races]",
+                         nStrings(), nShards(), load(), hitRatio(),
+                         shardSkew(), insertRaces());
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.callbacks;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.hpl.mds.IsolationContext;
+import com.hpl.mds.impl.ChangeFeedImpl;
+
+/**
+ * A stream of the record fields changed by publishes into a context.
+ * Each time a child of the context publishes successfully, the fields
+ * it wrote become one batch of {@link FieldChange}s, one per field of
+ * each record, with an old value and a new one.  Batches go through a
+ * bounded ring buffer and are handed to the subscribers on the feed's
+ * own thread, in publish order (although two publishes that finish at
+ * the same time may come in either order).
+ *
+ * <p>The old and new values are the field's values in the context just
+ * before and just after the publish, even when other publishes come in
+ * at the same time.
+ *
+ * <p>When the buffer is full, the {@link Backpressure} given when the
+ * feed was opened decides what happens.  Changes to the same field in
+ * batches that are merged are coalesced into one, with the oldest old
+ * value and the newest new one.
+ *
+ * <p>A field is reported once it has been written after the feed was
+ * opened, so a publish by a task that was already running may not
+ * report writes it made before then.
+ *
+ * <p>While a context has no open feeds, the only cost to a publish is
+ * a check of an empty map.
+ */
+public interface ChangeFeed extends AutoCloseable {
+
+  enum Backpressure {
+    /**
+     * The publishing thread waits for room.  (A subscriber that
+     * publishes into the context is never made to wait; its batches
+     * are coalesced instead.)
+     */
+    BLOCK,
+    /**
+     * The new batch is merged into the newest one still waiting.
+     */
+    COALESCE,
+    /**
+     * The oldest waiting batch is dropped.
+     */
+    DROP_OLDEST,
+    /**
+     * The new batch is dropped.
+     */
+    DROP_NEWEST
+  }
+
+  int DEFAULT_CAPACITY = Integer.getInteger("com.hpl.mds.changeFeedCapacity", 1024);
+
+  static ChangeFeed on(IsolationContext context, int capacity, Backpressure backpressure) {
+    return ChangeFeedImpl.open(context, capacity, backpressure);
+  }
+
+  static ChangeFeed on(IsolationContext context) {
+    return on(context, DEFAULT_CAPACITY, Backpressure.COALESCE);
+  }
+
+  IsolationContext context();
+
+  /**
+   * Adds a subscriber, which gets every batch delivered from now on.
+   * Subscribers are called one after the other on the feed's thread,
+   * so a slow one holds up the others.
+   */
+  ChangeHandlerRemovalHook subscribe(Consumer<? super List<FieldChange<?, ?>>> subscriber);
+
+  /**
+   * The number of successful publishes seen.
+   */
+  long published();
+
+  /**
+   * The number of batches dropped (under DROP_OLDEST or DROP_NEWEST).
+   */
+  long dropped();
+
+  /**
+   * The number of batches merged into another one (under COALESCE, or
+   * BLOCK for a subscriber's own publishes).  Their changes are still
+   * delivered.
+   */
+  long coalesced();
+
+  /**
+   * The number of batches waiting to be delivered.
+   */
+  int pending();
+
+  /**
+   * Stops watching the context.  Batches already waiting are still
+   * delivered.
+   */
+  @Override
+  void close();
+}
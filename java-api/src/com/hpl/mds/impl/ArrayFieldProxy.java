@@ -79,6 +79,10 @@ public abstract class ArrayFieldProxy<RT extends ManagedRecord, ET extends Manag
      CreateFieldProxyFunction<RT, ET> cfp) 
   {
       final RecordTypeProxy<RT> rtp = RecordTypeProxy.downcast(recType);
+      RecordTypeProxy.FieldSeed seed = rtp.takeSchemaField(name);
+      if (seed != null) {
+        return cfp.createProxy(seed.handle, rtp, seed.name);
+      }
       final ManagedStringProxy msn = ManagedStringProxy.valueOf(name);
       long handle = cfh.createHandle(rtp.handleIndex(), msn.handleIndex());
       ArrayFieldProxy<RT,ET> rfp = cfp.createProxy(handle, rtp, msn);
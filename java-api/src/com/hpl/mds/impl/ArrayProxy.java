@@ -33,7 +33,60 @@ import com.hpl.mds.*;
 
 public abstract class ArrayProxy<ET extends ManagedObject> extends Proxy implements ManagedArray<ET> {
 	protected long size = -1;
+
+  /*
+   * The native representation, chosen when the array is created.  The
+   * ordinals match core::array_layout.  All of them are versioned:
+   * READ_MOSTLY only allocates every element's MSV up front, and
+   * WRITE_ONCE, which has to be asked for explicitly, adds a check on
+   * writes.
+   */
+  public enum Layout {
+    VERSIONED, READ_MOSTLY, WRITE_ONCE;
+
+    static Layout forHints(Object hints) {
+      UsageImpl usage = UsageImpl.of(hints);
+      if (usage == null) {
+        return VERSIONED;
+      }
+      if (usage.uses(ManagedArray.WRITE_ONCE)) {
+        return WRITE_ONCE;
+      }
+      if (!usage.expects(ManagedArray.SET)) {
+        return READ_MOSTLY;
+      }
+      return VERSIONED;
+    }
+  }
+
+  /*
+   * Arrays don't grow, so the size has to come from the hints: the
+   * capacity they ask for, or failing that the maximum size.
+   */
+  static long sizeForHints(Object hints) {
+    long n = UsageImpl.capacityHint(hints, -1);
+    if (n < 0) {
+      UsageImpl usage = UsageImpl.of(hints);
+      n = usage == null ? -1 : usage.maxSize();
+    }
+    if (n < 0) {
+      throw new IllegalArgumentException("Array usage hints must give an expected or maximum size");
+    }
+    return n;
+  }
   
+  /*
+   * Profiling hooks.  Iteration goes through get(), so it's counted as
+   * reads.
+   */
+  void noteGet() {
+    UsageProfiler.note(this, ManagedArray.GET);
+  }
+
+  void noteSet() {
+    UsageProfiler.note(this, ManagedArray.SET);
+  }
+
   protected ArrayProxy(long handle, long size) {
     super(handle, null);
     this.size = size;
@@ -0,0 +1,157 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.Comparator;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+import com.hpl.mds.*;
+
+/*
+ * How values of a given managed type are carried across the JNI
+ * boundary as longs: integral values as themselves, floating point
+ * values as their raw bits, and strings and records as handle indices.
+ * The kind is the native kind ordinal, which is passed along so the
+ * native side can pick the right instantiation.  See jlong_carrier.h.
+ */
+final class Carrier<T extends ManagedObject> {
+  static final int BOOL_KIND = 0;
+  static final int BYTE_KIND = 1;
+  static final int SHORT_KIND = 3;
+  static final int INT_KIND = 5;
+  static final int LONG_KIND = 7;
+  static final int FLOAT_KIND = 9;
+  static final int DOUBLE_KIND = 10;
+  static final int STRING_KIND = 11;
+  static final int RECORD_KIND = 12;
+
+  final int kind;
+  final ManagedType<T> type;
+  final ToLongFunction<? super T> toBits;
+  final LongFunction<? extends T> fromBits;
+  /*
+   * The ordering the native side uses for keys, or null if values of
+   * this type can't be keys in an ordered map.
+   */
+  final Comparator<? super T> order;
+
+  private Carrier(int kind, ManagedType<T> type,
+                  ToLongFunction<? super T> toBits,
+                  LongFunction<? extends T> fromBits,
+                  Comparator<? super T> order) {
+    this.kind = kind;
+    this.type = type;
+    this.toBits = toBits;
+    this.fromBits = fromBits;
+    this.order = order;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T extends ManagedObject> Carrier<T> forType(ManagedType<T> type) {
+    Carrier<?> c;
+    if (type == ManagedBoolean.TYPE) {
+      c = new Carrier<>(BOOL_KIND, ManagedBoolean.TYPE,
+                        v -> v.asBoolean() ? 1 : 0,
+                        b -> ManagedBoolean.valueOf(b != 0),
+                        null);
+    } else if (type == ManagedByte.TYPE) {
+      c = new Carrier<>(BYTE_KIND, ManagedByte.TYPE,
+                        v -> v.asByte(),
+                        b -> ManagedByte.valueOf((byte)b),
+                        null);
+    } else if (type == ManagedShort.TYPE) {
+      c = new Carrier<>(SHORT_KIND, ManagedShort.TYPE,
+                        v -> v.asShort(),
+                        b -> ManagedShort.valueOf((short)b),
+                        null);
+    } else if (type == ManagedInt.TYPE) {
+      c = new Carrier<>(INT_KIND, ManagedInt.TYPE,
+                        v -> v.asInt(),
+                        b -> ManagedInt.valueOf((int)b),
+                        null);
+    } else if (type == ManagedLong.TYPE) {
+      c = new Carrier<>(LONG_KIND, ManagedLong.TYPE,
+                        v -> v.asLong(),
+                        ManagedLong::valueOf,
+                        (a, b) -> Long.compare(a.asLong(), b.asLong()));
+    } else if (type == ManagedFloat.TYPE) {
+      c = new Carrier<>(FLOAT_KIND, ManagedFloat.TYPE,
+                        v -> Float.floatToRawIntBits(v.asFloat()),
+                        b -> ManagedFloat.valueOf(Float.intBitsToFloat((int)b)),
+                        null);
+    } else if (type == ManagedDouble.TYPE) {
+      c = new Carrier<>(DOUBLE_KIND, ManagedDouble.TYPE,
+                        v -> Double.doubleToRawLongBits(v.asDouble()),
+                        b -> ManagedDouble.valueOf(Double.longBitsToDouble(b)),
+                        null);
+    } else if (type == ManagedString.TYPE) {
+      c = new Carrier<>(STRING_KIND, ManagedString.TYPE,
+                        ManagedStringProxy::handleOf,
+                        ManagedStringProxy::fromHandle,
+                        (a, b) -> a.compareTo(b));
+    } else if (type instanceof RecordTypeProxy) {
+      c = forRecords((RecordTypeProxy<?>)type);
+    } else {
+      throw new IncompatibleTypeException();
+    }
+    return (Carrier<T>)c;
+  }
+
+  private static <R extends ManagedRecord> Carrier<R> forRecords(RecordTypeProxy<R> rt) {
+    return new Carrier<>(RECORD_KIND, rt,
+                         ManagedRecordProxy::handleOf,
+                         h -> ManagedRecordProxy.fromHandle(h, rt),
+                         null);
+  }
+
+  /*
+   * Whether o can be passed to toBits.
+   */
+  boolean accepts(Object o) {
+    switch (kind) {
+    case BOOL_KIND:
+      return o instanceof ManagedBoolean;
+    case BYTE_KIND:
+      return o instanceof ManagedByte;
+    case SHORT_KIND:
+      return o instanceof ManagedShort;
+    case INT_KIND:
+      return o instanceof ManagedInt;
+    case LONG_KIND:
+      return o instanceof ManagedLong;
+    case FLOAT_KIND:
+      return o instanceof ManagedFloat;
+    case DOUBLE_KIND:
+      return o instanceof ManagedDouble;
+    case STRING_KIND:
+      return o instanceof ManagedString;
+    default:
+      return o instanceof ManagedRecord;
+    }
+  }
+}
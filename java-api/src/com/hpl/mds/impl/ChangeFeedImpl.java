@@ -0,0 +1,473 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+import com.hpl.mds.Field;
+import com.hpl.mds.IsolationContext;
+import com.hpl.mds.ManagedObject;
+import com.hpl.mds.ManagedRecord;
+import com.hpl.mds.callbacks.ChangeFeed;
+import com.hpl.mds.callbacks.ChangeHandlerRemovalHook;
+import com.hpl.mds.callbacks.FieldChange;
+
+/**
+ * The change feed for one context.  IsoContextProxy.tryPublish() calls
+ * published() after each successful publish; if the context published
+ * into has open feeds, that gets the record fields the publish wrote
+ * and read-only snapshots of the target just before and just after it
+ * (which the core only makes while a feed is open), and the batch goes
+ * into the ring of every feed on the target.  A failed publish costs
+ * nothing.  Values are only read when a batch is delivered, in the
+ * snapshots, so the publishing thread does no more than list the
+ * fields.
+ *
+ * The snapshots take the timestamps on either side of the publish's
+ * own, so a publish by someone else that slips in around it isn't seen
+ * as ours, and the old values include writes made directly in the
+ * target.  Two publishes that finish together may be delivered in
+ * either order.
+ */
+public class ChangeFeedImpl implements ChangeFeed {
+  private static final Logger log = Logger.getLogger(ChangeFeedImpl.class);
+
+  private static final ConcurrentMap<IsoContextProxy, Target> targets = new ConcurrentHashMap<>();
+  private static final AtomicInteger nOpened = new AtomicInteger();
+
+  /* Longs per field in PubResultProxy.publishedFields() */
+  private static final int DESC_SIZE = 4;
+  private static final int D_RECORD = 0;
+  private static final int D_SLOT = 1;
+  private static final int D_UUID_HIGH = 2;
+  private static final int D_UUID_LOW = 3;
+
+  /*
+   * A field of a record, by the record's uuid so that changes to it in
+   * different publishes can be matched up.
+   */
+  private static final class Key {
+    final long high;
+    final long low;
+    final int slot;
+
+    Key(long high, long low, int slot) {
+      this.high = high;
+      this.low = low;
+      this.slot = slot;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key k = (Key)o;
+      return high == k.high && low == k.low && slot == k.slot;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(high)*31*31 + Long.hashCode(low)*31 + slot;
+    }
+  }
+
+  private static final class Entry {
+    final ManagedRecordProxy record;
+    final int slot;
+    final IsolationContext before;
+    final IsolationContext after;
+
+    Entry(ManagedRecordProxy record, int slot, IsolationContext before, IsolationContext after) {
+      this.record = record;
+      this.slot = slot;
+      this.before = before;
+      this.after = after;
+    }
+  }
+
+  /*
+   * What a publish changed, in publish order.
+   */
+  private static final class Batch {
+    final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>();
+
+    /*
+     * Folds a later batch into this one.  A field changed in both keeps
+     * this one's "before".
+     */
+    void absorb(Batch later) {
+      for (Map.Entry<Key, Entry> me : later.entries.entrySet()) {
+        Entry e = me.getValue();
+        Entry mine = entries.get(me.getKey());
+        entries.put(me.getKey(),
+                    mine == null ? e : new Entry(e.record, e.slot, mine.before, e.after));
+      }
+    }
+  }
+
+  /*
+   * A context with open feeds.
+   */
+  private static final class Target {
+    final IsoContextProxy context;
+    final List<ChangeFeedImpl> feeds = new CopyOnWriteArrayList<>();
+
+    Target(IsoContextProxy context) {
+      this.context = context;
+    }
+
+    void published(long[] descs, IsolationContext before, IsolationContext after) {
+      Batch batch = new Batch();
+      for (int i = 0; i < descs.length/DESC_SIZE; i++) {
+        int base = i*DESC_SIZE;
+        ManagedRecordProxy record = ManagedRecordProxy.fromHandle(descs[base+D_RECORD], null);
+        Key k = new Key(descs[base+D_UUID_HIGH], descs[base+D_UUID_LOW], (int)descs[base+D_SLOT]);
+        batch.entries.put(k, new Entry(record, k.slot, before, after));
+      }
+      for (ChangeFeedImpl f : feeds) {
+        f.offer(batch);
+      }
+    }
+  }
+
+  /**
+   * Called once a publish by ctxt has succeeded.  Does nothing unless
+   * the parent of ctxt has open feeds and the publish wrote record
+   * fields.
+   */
+  static void published(IsoContextProxy ctxt, PubResultProxy res) {
+    if (targets.isEmpty()) {
+      return;
+    }
+    IsoContextProxy parent = ctxt.parent();
+    if (parent == null) {
+      return;
+    }
+    Target target = targets.get(parent);
+    if (target == null || target.feeds.isEmpty()) {
+      return;
+    }
+    long h = res.getHandle();
+    long[] descs = PubResultProxy.publishedFields(h);
+    if (descs == null || descs.length == 0) {
+      return;
+    }
+    IsoContextProxy before = IsoContextProxy.fromHandle(PubResultProxy.beforeIndex(h));
+    IsoContextProxy after = IsoContextProxy.fromHandle(PubResultProxy.afterIndex(h));
+    if (before == null || after == null) {
+      /*
+       * The feed was opened while this publish was in progress.
+       */
+      return;
+    }
+    target.published(descs, before, after);
+  }
+
+  private final IsoContextProxy context;
+  private final Backpressure backpressure;
+  private final List<Consumer<? super List<FieldChange<?, ?>>>> subscribers = new CopyOnWriteArrayList<>();
+  private final Map<RecordTypeProxy<?>, Field<?, ?>[]> fieldsBySlot = new ConcurrentHashMap<>();
+
+  private final Batch[] ring;
+  private int head = 0;
+  private int count = 0;
+  private boolean closed = false;
+  private long published = 0;
+  private long dropped = 0;
+  private long coalesced = 0;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final Thread thread;
+
+  private ChangeFeedImpl(IsoContextProxy context, int capacity, Backpressure backpressure) {
+    this.context = context;
+    this.backpressure = backpressure;
+    this.ring = new Batch[capacity];
+    thread = new Thread(this::deliverAll, "MDS change feed "+nOpened.incrementAndGet());
+    thread.setDaemon(true);
+  }
+
+  public static ChangeFeed open(IsolationContext context, int capacity, Backpressure backpressure) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: "+capacity);
+    }
+    IsoContextProxy ctxt = (IsoContextProxy)context;
+    ChangeFeedImpl feed = new ChangeFeedImpl(ctxt, capacity, backpressure);
+    IsoContextProxy.trackFieldSites(true);
+    targets.computeIfAbsent(ctxt, Target::new).feeds.add(feed);
+    feed.thread.start();
+    return feed;
+  }
+
+  @Override
+  public IsolationContext context() {
+    return context;
+  }
+
+  @Override
+  public ChangeHandlerRemovalHook subscribe(Consumer<? super List<FieldChange<?, ?>>> subscriber) {
+    subscribers.add(subscriber);
+    return () -> subscribers.remove(subscriber);
+  }
+
+  @Override
+  public long published() {
+    lock.lock();
+    try {
+      return published;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public long dropped() {
+    lock.lock();
+    try {
+      return dropped;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public long coalesced() {
+    lock.lock();
+    try {
+      return coalesced;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int pending() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    targets.computeIfPresent(context, (k, t) -> {
+        t.feeds.remove(this);
+        return t.feeds.isEmpty() ? null : t;
+      });
+    boolean wasOpen;
+    lock.lock();
+    try {
+      wasOpen = !closed;
+      closed = true;
+      notEmpty.signalAll();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    if (wasOpen) {
+      IsoContextProxy.trackFieldSites(false);
+    }
+  }
+
+  private void offer(Batch batch) {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      published++;
+      if (count == ring.length) {
+        Backpressure bp = backpressure;
+        if (bp == Backpressure.BLOCK && Thread.currentThread() == thread) {
+          bp = Backpressure.COALESCE;
+        }
+        switch (bp) {
+        case BLOCK:
+          while (count == ring.length && !closed) {
+            notFull.awaitUninterruptibly();
+          }
+          if (closed) {
+            return;
+          }
+          break;
+        case COALESCE:
+          /*
+           * A fresh batch, rather than the one in the ring, since the
+           * one we were given also goes to the context's other feeds.
+           */
+          int newest = (head+count-1) % ring.length;
+          Batch merged = new Batch();
+          merged.absorb(ring[newest]);
+          merged.absorb(batch);
+          ring[newest] = merged;
+          coalesced++;
+          return;
+        case DROP_OLDEST:
+          ring[head] = null;
+          head = (head+1) % ring.length;
+          count--;
+          dropped++;
+          break;
+        case DROP_NEWEST:
+          dropped++;
+          return;
+        }
+      }
+      ring[(head+count) % ring.length] = batch;
+      count++;
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Batch take() {
+    lock.lock();
+    try {
+      while (count == 0) {
+        if (closed) {
+          return null;
+        }
+        notEmpty.awaitUninterruptibly();
+      }
+      Batch b = ring[head];
+      ring[head] = null;
+      head = (head+1) % ring.length;
+      count--;
+      notFull.signal();
+      return b;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void deliverAll() {
+    Batch b;
+    while ((b = take()) != null) {
+      List<FieldChange<?, ?>> changes;
+      try {
+        changes = changes(b);
+      } catch (RuntimeException ex) {
+        log.error("Couldn't read a change batch", ex);
+        continue;
+      }
+      for (Consumer<? super List<FieldChange<?, ?>>> s : subscribers) {
+        try {
+          s.accept(changes);
+        } catch (RuntimeException ex) {
+          log.error("Change feed subscriber threw", ex);
+        }
+      }
+    }
+  }
+
+  private Field<?, ?> fieldAt(ManagedRecordProxy record, int slot) {
+    RecordTypeProxy<?> rt = RecordTypeProxy.downcast(record.type());
+    Field<?, ?>[] bySlot = fieldsBySlot.computeIfAbsent(rt, t -> {
+        Field<?, ?>[] fs = t.fields();
+        int[] slots = t.fieldSlots();
+        int max = -1;
+        for (int s : slots) {
+          max = Math.max(max, s);
+        }
+        Field<?, ?>[] res = new Field<?, ?>[max+1];
+        for (int i = 0; i < fs.length; i++) {
+          res[slots[i]] = fs[i];
+        }
+        return res;
+      });
+    return slot < bySlot.length ? bySlot[slot] : null;
+  }
+
+  /*
+   * The old and new values are read with one use() of each snapshot
+   * involved, rather than one per field.
+   */
+  private List<FieldChange<?, ?>> changes(Batch b) {
+    List<Entry> entries = new ArrayList<>();
+    List<Field<?, ?>> fields = new ArrayList<>();
+    for (Entry e : b.entries.values()) {
+      Field<?, ?> f = fieldAt(e.record, e.slot);
+      if (f != null) {
+        entries.add(e);
+        fields.add(f);
+      }
+    }
+    int n = entries.size();
+    ManagedObject[] oldValues = new ManagedObject[n];
+    ManagedObject[] newValues = new ManagedObject[n];
+    Map<IsolationContext, List<Integer>> reads = new IdentityHashMap<>();
+    for (int i = 0; i < n; i++) {
+      reads.computeIfAbsent(entries.get(i).before, k -> new ArrayList<>()).add(i);
+      reads.computeIfAbsent(entries.get(i).after, k -> new ArrayList<>()).add(~i);
+    }
+    for (Map.Entry<IsolationContext, List<Integer>> me : reads.entrySet()) {
+      try (IsolationContext.Use use = me.getKey().use()) {
+        for (int i : me.getValue()) {
+          if (i >= 0) {
+            oldValues[i] = peek(fields.get(i), entries.get(i).record);
+          } else {
+            newValues[~i] = peek(fields.get(~i), entries.get(~i).record);
+          }
+        }
+      }
+    }
+    List<FieldChange<?, ?>> changes = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      changes.add(change(entries.get(i).record, fields.get(i), oldValues[i], newValues[i]));
+    }
+    return changes;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ManagedObject peek(Field<?, ?> field, ManagedRecord record) {
+    return ((Field<ManagedRecord, ManagedObject>)field).peek(record);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static FieldChange<?, ?> change(ManagedRecord record, Field<?, ?> field,
+                                          ManagedObject oldValue, ManagedObject newValue) {
+    return new FieldChangeImpl<>(record, (Field<ManagedRecord, ManagedObject>)field, oldValue, newValue);
+  }
+}
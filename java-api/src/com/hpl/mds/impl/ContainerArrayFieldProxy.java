@@ -0,0 +1,119 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+
+package com.hpl.mds.impl;
+
+import com.hpl.mds.*;
+
+public class ContainerArrayFieldProxy<RT extends ManagedRecord, C extends ManagedObject> extends ArrayFieldProxy<RT, C> {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private final ContainerArrayTypeProxy<C> valueType_;
+
+  private ContainerArrayFieldProxy(long handleIndex, RecordTypeProxy<RT> recType, ManagedStringProxy name,
+                                   ContainerArrayTypeProxy<C> valType) {
+    super(handleIndex, recType, name);
+    this.valueType_ = valType;
+  }
+
+  /**
+   * @return 0 if the field doesn't exist and create is false
+   */
+  private static native long fieldIn(long rtHandle, long nameHandle, long valTypeHandle, boolean create);
+  private static native long eltTypeHandle(long handle);
+  private static native long getValueHandle(long handle, long recordHandle);
+  private static native long peekValueHandle(long handle, long recordHandle);
+  private static native long setValueHandle(long handle, long recHandle, long valHandle);
+  private static native boolean initFinal(long handle, long recHandle, long valHandle);
+  private static native long getAndSetValueHandle(long handle, long recHandle, long valHandle);
+
+  @Override
+  public ContainerArrayTypeProxy<C> valueType() {
+    return valueType_;
+  }
+
+  /*
+   * The Java type of the elements of an existing field, given its handle.
+   */
+  static ManagedType<?> eltTypeOf(long fieldHandle) {
+    return ContainerTypeProxy.javaTypeFor(eltTypeHandle(fieldHandle));
+  }
+
+  static <RT extends ManagedRecord, C extends ManagedObject> ContainerArrayFieldProxy<RT,C>
+  in(RecordType<RT> recType, CharSequence name, ContainerArrayTypeProxy<C> valType, boolean create)
+  {
+    final RecordTypeProxy<RT> rtp = RecordTypeProxy.downcast(recType);
+    RecordTypeProxy.FieldSeed seed = rtp.takeSchemaField(name);
+    if (seed != null) {
+      return new ContainerArrayFieldProxy<>(seed.handle, rtp, seed.name, valType);
+    }
+    final ManagedStringProxy msn = ManagedStringProxy.valueOf(name);
+    long handle = fieldIn(rtp.handleIndex(), msn.handleIndex(), valType.handleIndex(), create);
+    return handle == 0 ? null : new ContainerArrayFieldProxy<>(handle, rtp, msn, valType);
+  }
+
+  @Override
+  public ManagedArray<C> get(RT record) {
+    long val = getValueHandle(handleIndex_, ManagedRecordProxy.handleOf(record));
+    return ContainerArrayProxy.fromHandle(val, valueType_);
+  }
+
+  @Override
+  public ManagedArray<C> peek(RT record) {
+    long val = peekValueHandle(handleIndex_, ManagedRecordProxy.handleOf(record));
+    return ContainerArrayProxy.fromHandle(val, valueType_);
+  }
+
+  @Override
+  public ManagedArray<C> set(RT rec, ManagedArray<C> val) {
+    long old = setValueHandle(handleIndex_,
+                              ManagedRecordProxy.handleOf(rec),
+                              ContainerArrayProxy.handleOf(val));
+    return ContainerArrayProxy.fromHandle(old, valueType_);
+  }
+
+  @Override
+  public void initFinal(RT rec, ManagedArray<C> val) {
+    if (!initFinal(handleIndex_,
+                   ManagedRecordProxy.handleOf(rec),
+                   ContainerArrayProxy.handleOf(val)))
+      {
+        throw new FinalFieldModifiedException(recordType().name().asString(),
+                                              name().asString());
+      }
+  }
+
+  @Override
+  public ManagedArray<C> getAndSet(RT rec, ManagedArray<C> val) {
+    long old = getAndSetValueHandle(handleIndex_,
+                                    ManagedRecordProxy.handleOf(rec),
+                                    ContainerArrayProxy.handleOf(val));
+    return ContainerArrayProxy.fromHandle(old, valueType_);
+  }
+
+}
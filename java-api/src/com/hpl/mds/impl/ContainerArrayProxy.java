@@ -0,0 +1,181 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import com.hpl.mds.*;
+import com.hpl.mds.usage.UsagePlan;
+import com.hpl.mds.usage.UsageScope;
+
+/*
+ * The elements go in and out through the handle store for the element
+ * container type, so its handle is passed down with them.
+ */
+public class ContainerArrayProxy<C extends ManagedObject> extends ArrayProxy<C> {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private final ContainerArrayTypeProxy<C> type;
+  private final ContainerTypeProxy<C> eltType;
+
+  private static native void release(long handle);
+  private static native boolean isIdentical(long aHandle, long bHandle);
+  private static native boolean isSameObject(long aHandle, long bHandle);
+  private static native boolean isSameViewOfSameObject(long aHandle, long bHandle);
+
+  private static native long getHandle(long handle, long eltTypeHandle, long index);
+  private static native long peekHandle(long handle, long eltTypeHandle, long index);
+  private static native long setHandle(long handle, long eltTypeHandle, long index, long val);
+  private static native long getAndSetHandle(long handle, long eltTypeHandle, long index, long val);
+  private static native long size(long handle);
+
+  @Override
+  void releaseHandleIndex(long index) {
+    release(index);
+  }
+
+  private ContainerArrayProxy(long handle, long size, ContainerArrayTypeProxy<C> type) {
+    super(handle, size);
+    this.type = type;
+    this.eltType = type.containerType();
+  }
+
+  @Override
+  public ManagedArray.Type<C> type() {
+    return type;
+  }
+
+  @Override
+  public ManagedType<C> eltType() {
+    return eltType.javaType;
+  }
+
+  @Override
+  public long longSize() {
+    if (size == -1) {
+      size = size(handleIndex());
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isIdentical(ManagedComposite other) {
+    if (other == this) {
+      return true;
+    } else if (!(other instanceof ContainerArrayProxy)) {
+      return false;
+    }
+    return isIdentical(handleIndex(), ((ContainerArrayProxy<?>)other).handleIndex());
+  }
+
+  @Override
+  public boolean isSameObject(ManagedComposite other) {
+    if (other == this) {
+      return true;
+    } else if (!(other instanceof ContainerArrayProxy)) {
+      return false;
+    }
+    return isSameObject(handleIndex(), ((ContainerArrayProxy<?>)other).handleIndex());
+  }
+
+  @Override
+  public boolean isSameViewOfSameObject(ManagedComposite other) {
+    if (other == this) {
+      return true;
+    } else if (!(other instanceof ContainerArrayProxy)) {
+      return false;
+    }
+    return isSameViewOfSameObject(handleIndex(), ((ContainerArrayProxy<?>)other).handleIndex());
+  }
+
+  @Override
+  public C get(long index) {
+    noteGet();
+    return eltType.fromHandle.apply(getHandle(handleIndex(), eltType.handleIndex(), index));
+  }
+  @Override
+  public C peek(long index) {
+    noteGet();
+    return eltType.fromHandle.apply(peekHandle(handleIndex(), eltType.handleIndex(), index));
+  }
+  @Override
+  public C set(long index, C val) {
+    noteSet();
+    long old = setHandle(handleIndex(), eltType.handleIndex(), index,
+                         eltType.handleOf.applyAsLong(val));
+    return eltType.fromHandle.apply(old);
+  }
+  @Override
+  public C getAndSet(long index, C val) {
+    noteSet();
+    long old = getAndSetHandle(handleIndex(), eltType.handleIndex(), index,
+                               eltType.handleOf.applyAsLong(val));
+    return eltType.fromHandle.apply(old);
+  }
+
+  @Override
+  public ContainerArrayProxy<C> bindName(Prior prior, Namespace ns, CharSequence name) {
+    type.bindIn(ns, name, this, prior);
+    return this;
+  }
+
+  static <C extends ManagedObject>
+    ContainerArrayProxy<C> fromHandle(long handle, long size, ContainerArrayTypeProxy<C> type) {
+    return handle == 0 ? null : new ContainerArrayProxy<>(handle, size, type);
+  }
+
+  static <C extends ManagedObject>
+    ContainerArrayProxy<C> fromHandle(long handle, ContainerArrayTypeProxy<C> type) {
+    return fromHandle(handle, -1, type);
+  }
+
+  static long handleOf(ManagedArray<?> arr) {
+    ContainerArrayProxy<?> p = (ContainerArrayProxy<?>)arr;
+    return p == null ? 0 : p.handleIndex();
+  }
+
+  /*
+   * The layout is the only thing the hints decide, and it's fixed when
+   * the array is created.
+   */
+  @Override
+  public ManagedArray<C> using(ManagedArray.Usage hint) {
+    return this;
+  }
+  @Override
+  public ManagedArray<C> inherentUsage(ManagedArray.Usage hint) {
+    return this;
+  }
+  @Override
+  public ManagedArray<C> usageDuring(UsageScope scope, ManagedArray.Usage hint) {
+    return this;
+  }
+  @Override
+  public UsagePlan usagePlan(ManagedArray.Usage hint) {
+    return UsageImpl.NO_PLAN;
+  }
+
+}
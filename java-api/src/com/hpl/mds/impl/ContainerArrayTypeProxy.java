@@ -0,0 +1,198 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import com.hpl.mds.*;
+
+public class ContainerArrayTypeProxy<C extends ManagedObject> extends Proxy implements ManagedTypeImpl<ManagedArray<C>>, ManagedArray.Type<C>
+{
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+  /**
+   * @throws IncompatibleTypeException when the name is bound to something other than this type
+   */
+  private static native long lookupHandle(long h, long namespaceHandle, long nameHandle);
+  /**
+   * @returns false if the name is bound to a sub-namespace in the current context.
+   */
+  private static native boolean bindHandle(long namespaceHandle, long nameHandle, long valHandle);
+  private static native boolean isSameAs(long aHandle, long bHandle);
+  private static native long createArray(long h, long size, int layout);
+  private static native void release(long index);
+
+  private final ContainerTypeProxy<C> eltType;
+
+  private ContainerArrayTypeProxy(long handle, ContainerTypeProxy<C> eltType) {
+    super(handle, null);
+    this.eltType = eltType;
+  }
+
+  @Override
+  void releaseHandleIndex(long index) {
+    release(index);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (!(o instanceof ContainerArrayTypeProxy)) {
+      return false;
+    }
+    return isSameAs(handleIndex_, ((ContainerArrayTypeProxy<?>)o).handleIndex_);
+  }
+
+  @Override
+  public int hashCode() {
+    return eltType.javaType.hashCode();
+  }
+
+  @Override
+  public ManagedType<C> eltType() {
+    return eltType.javaType;
+  }
+
+  ContainerTypeProxy<C> containerType() {
+    return eltType;
+  }
+
+  @Override
+  public <RT extends ManagedRecord>
+    ContainerArrayFieldProxy<RT,C> fieldIn(RecordType<RT> recType, CharSequence name) {
+    return ContainerArrayFieldProxy.in(recType, name, this, true);
+  }
+
+  @Override
+  public <RT extends ManagedRecord>
+    ContainerArrayFieldProxy<RT,C> findFieldIn(RecordType<RT> recType, CharSequence name) {
+    return ContainerArrayFieldProxy.in(recType, name, this, false);
+  }
+
+  @Override
+  public ManagedArray<C> construct(Object... ctorParams) {
+    throw new UnsupportedOperationException("Arrays are created with create()");
+  }
+
+  @Override
+  public ManagedArray<C> create() {
+    throw new UnsupportedOperationException("Arrays need a size");
+  }
+
+  @Override
+  public ManagedArray<C> create(long size) {
+    return create(size, ArrayProxy.Layout.VERSIONED);
+  }
+
+  private ContainerArrayProxy<C> create(long size, ArrayProxy.Layout layout) {
+    long aHndl = createArray(handleIndex_, size, layout.ordinal());
+    return ContainerArrayProxy.fromHandle(aHndl, size, this);
+  }
+
+  private ContainerArrayProxy<C> createFor(Object hints) {
+    return create(ArrayProxy.sizeForHints(hints), ArrayProxy.Layout.forHints(hints));
+  }
+
+  @Override
+  public ManagedArray<C> create(C[] arr) {
+    ManagedArray<C> a = create(arr.length);
+    for (int i=0; i<arr.length; i++) {
+      a.set(i, arr[i]);
+    }
+    return a;
+  }
+
+  @Override
+  public ContainerArrayProxy<C> create(ManagedArray.Usage hints) {
+    return createFor(hints);
+  }
+  @Override
+  public ContainerArrayProxy<C> create(ManagedOrdered.Usage hints) {
+    return createFor(hints);
+  }
+
+  /*
+   * The core has no arrays of arrays, and containers of arrays aren't
+   * yet a container type.
+   */
+  @Override
+  public ManagedArray.Type<ManagedArray<C>> inArray() {
+    throw new UnsupportedOperationException("Arrays of arrays are not supported");
+  }
+
+  @Override
+  public ManagedList.Type<ManagedArray<C>> inList() {
+    throw new UnsupportedOperationException("Lists of arrays are not supported");
+  }
+
+  @Override
+  public ManagedSet.Type<ManagedArray<C>> inSet() {
+    throw new UnsupportedOperationException("Sets of arrays are not supported");
+  }
+
+  @Override
+  public <K extends ManagedObject> ManagedMap.Type<K, ManagedArray<C>> inMapFrom(ManagedType<K> keyType) {
+    throw new UnsupportedOperationException("Maps to arrays are not supported");
+  }
+
+  @Override
+  public ManagedMapFromString.Type<ManagedArray<C>> inMapFromString() {
+    return inMapFrom(ManagedString.TYPE);
+  }
+
+  /**
+   * @return null if the name is unbound in this context
+   * @throws IncompatibleTypeException when the name is bound to something other than this type
+   */
+  @Override
+  public ManagedArray<C> lookupName(Namespace ns, CharSequence name) {
+    NamespaceProxy nsp = (NamespaceProxy)ns;
+    ManagedStringProxy msp = ManagedStringProxy.valueOf(name);
+
+    long ah = lookupHandle(handleIndex_, nsp.handleIndex(), msp.handleIndex());
+    return ContainerArrayProxy.fromHandle(ah, this);
+  }
+
+  @Override
+  public ManagedArray<C> bindIn(Namespace ns, CharSequence name, ManagedArray<C> val, Prior prior) {
+    /*
+     * TODO: Prior is unused
+     */
+    NamespaceProxy nsp = (NamespaceProxy)ns;
+    ManagedStringProxy msp = ManagedStringProxy.valueOf(name);
+
+    boolean worked = bindHandle(nsp.handleIndex(), msp.handleIndex(), ContainerArrayProxy.handleOf(val));
+    if (!worked) {
+      throw new BoundToNamespaceException(ns, name);
+    }
+    return val;
+  }
+
+  static <C extends ManagedObject>
+  ContainerArrayTypeProxy<C> fromHandle(long handle, ContainerTypeProxy<C> eltType) {
+    return new ContainerArrayTypeProxy<>(handle, eltType);
+  }
+
+}
@@ -0,0 +1,153 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+
+package com.hpl.mds.impl;
+
+import com.hpl.mds.*;
+
+/*
+ * A field holding a container.  The values go in and out through the
+ * handle store for the container type, so its handle is passed down
+ * with them.
+ */
+public abstract class ContainerFieldProxy<RT extends ManagedRecord, C extends ManagedObject> extends FieldProxy<RT, C> {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  protected final ContainerTypeProxy<C> type_;
+
+  protected ContainerFieldProxy(long handleIndex, RecordTypeProxy<RT> recType, ManagedStringProxy name,
+                                ContainerTypeProxy<C> type) {
+    super(handleIndex, recType, name);
+    this.type_ = type;
+  }
+
+  private static native void release(long handle);
+  private static native long getNameHandle(long handle);
+  private static native long getRecTypeHandle(long handle);
+
+  /**
+   * @return 0 if the field doesn't exist and create is false
+   * @throws IncompatibleTypeException when the field exists with some other type
+   */
+  private static native long fieldIn(long rtHandle, long nameHandle, long typeHandle, boolean create);
+  private static native long typeHandle(long handle);
+  private static native long getValueHandle(long handle, long typeHandle, long recordHandle);
+  private static native long peekValueHandle(long handle, long typeHandle, long recordHandle);
+  private static native long setValueHandle(long handle, long typeHandle, long recHandle, long valHandle);
+  private static native long getAndSetValueHandle(long handle, long typeHandle, long recHandle, long valHandle);
+  private static native boolean initFinal(long handle, long typeHandle, long recHandle, long valHandle);
+
+  @Override
+  void releaseHandleIndex(long index) {
+    release(index);
+  }
+
+  @Override
+  public ManagedStringProxy name() {
+    if (name_ == null) {
+      name_ = ManagedStringProxy.fromHandle(getNameHandle(handleIndex_));
+    }
+    return name_;
+  }
+
+  @Override
+  public RecordType<RT> recordType() {
+    if (recordType_ == null) {
+      recordType_ = RecordTypeProxy.<RT>fromHandle(getRecTypeHandle(handleIndex_));
+    }
+    return recordType_;
+  }
+
+  /*
+   * The Java type of an existing field, given its handle.
+   */
+  static ManagedType<?> typeOf(long fieldHandle) {
+    return ContainerTypeProxy.javaTypeFor(typeHandle(fieldHandle));
+  }
+
+  static interface CreateFieldProxyFunction<RT extends ManagedRecord, F> {
+    F createProxy(long handle, RecordTypeProxy<RT> recType, ManagedStringProxy name);
+  }
+
+  /**
+   * @return null if the field doesn't exist and create is false
+   */
+  static <RT extends ManagedRecord, F> F
+  in(RecordType<RT> recType, CharSequence name, ContainerTypeProxy<?> type, boolean create,
+     CreateFieldProxyFunction<RT, F> cfp)
+  {
+    final RecordTypeProxy<RT> rtp = RecordTypeProxy.downcast(recType);
+    RecordTypeProxy.FieldSeed seed = rtp.takeSchemaField(name);
+    if (seed != null) {
+      return cfp.createProxy(seed.handle, rtp, seed.name);
+    }
+    final ManagedStringProxy msn = ManagedStringProxy.valueOf(name);
+    long handle = fieldIn(rtp.handleIndex(), msn.handleIndex(), type.handleIndex(), create);
+    return handle == 0 ? null : cfp.createProxy(handle, rtp, msn);
+  }
+
+  @Override
+  public C get(RT record) {
+    long val = getValueHandle(handleIndex_, type_.handleIndex(), ManagedRecordProxy.handleOf(record));
+    return type_.fromHandle.apply(val);
+  }
+
+  @Override
+  public C peek(RT record) {
+    long val = peekValueHandle(handleIndex_, type_.handleIndex(), ManagedRecordProxy.handleOf(record));
+    return type_.fromHandle.apply(val);
+  }
+
+  @Override
+  public C set(RT rec, C val) {
+    long old = setValueHandle(handleIndex_, type_.handleIndex(),
+                              ManagedRecordProxy.handleOf(rec),
+                              type_.handleOf.applyAsLong(val));
+    return type_.fromHandle.apply(old);
+  }
+
+  @Override
+  public C getAndSet(RT rec, C val) {
+    long old = getAndSetValueHandle(handleIndex_, type_.handleIndex(),
+                                    ManagedRecordProxy.handleOf(rec),
+                                    type_.handleOf.applyAsLong(val));
+    return type_.fromHandle.apply(old);
+  }
+
+  @Override
+  public void initFinal(RT rec, C val) {
+    if (!initFinal(handleIndex_, type_.handleIndex(),
+                   ManagedRecordProxy.handleOf(rec),
+                   type_.handleOf.applyAsLong(val)))
+      {
+        throw new FinalFieldModifiedException(recordType().name().asString(),
+                                              name().asString());
+      }
+  }
+
+}
@@ -0,0 +1,292 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+import com.hpl.mds.*;
+
+/*
+ * The native type of a container, which is what lets a container be
+ * bound in a namespace, stored in a record field or held in an array.
+ * Java keeps each container's handle in the store for its typed handle
+ * on the native side, so this type's handle goes down with every
+ * container passed in or out, and the container's Java type supplies
+ * the conversions to and from handles.
+ */
+public class ContainerTypeProxy<C extends ManagedObject> extends Proxy {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  /*
+   * Ordinals of core::container_shape.
+   */
+  static final int STRING_MAP_SHAPE = 0;
+  static final int HASH_SET_SHAPE = 1;
+  static final int LIST_SHAPE = 2;
+  static final int ORDERED_MAP_SHAPE = 3;
+
+  private static native void release(long h);
+  private static native long forShape(int shape, int keyKind, int eltKind, long eltTypeHandle);
+  private static native int shape(long h);
+  private static native int keyKind(long h);
+  private static native int eltKind(long h);
+  private static native long eltTypeHandle(long h);
+  /**
+   * @return 0 if the name is unbound in this context
+   * @throws IncompatibleTypeException when the name is bound to something other than this type
+   */
+  private static native long lookupHandle(long typeHandle, long namespaceHandle, long nameHandle);
+  /**
+   * @return false if the name is bound to a sub-namespace in the current context.
+   */
+  private static native boolean bindHandle(long typeHandle, long namespaceHandle, long nameHandle,
+                                           long valHandle);
+  private static native long arrayTypeHandle(long h);
+
+  final ManagedType<C> javaType;
+  final ToLongFunction<? super C> handleOf;
+  final LongFunction<? extends C> fromHandle;
+  private ContainerArrayTypeProxy<C> arrayType_ = null;
+
+  @Override
+  void releaseHandleIndex(long index) {
+    release(index);
+  }
+
+  private ContainerTypeProxy(long handle, ManagedType<C> javaType,
+                             ToLongFunction<? super C> handleOf,
+                             LongFunction<? extends C> fromHandle) {
+    super(handle, null);
+    this.javaType = javaType;
+    this.handleOf = handleOf;
+    this.fromHandle = fromHandle;
+  }
+
+  /*
+   * handleOf has to take null to 0 and fromHandle 0 to null.
+   */
+  static <C extends ManagedObject>
+  ContainerTypeProxy<C> stringMap(ManagedType<?> valType, ManagedType<C> javaType,
+                                  ToLongFunction<? super C> handleOf,
+                                  LongFunction<? extends C> fromHandle) {
+    return of(STRING_MAP_SHAPE, Carrier.STRING_KIND, valType, javaType, handleOf, fromHandle);
+  }
+
+  static <C extends ManagedObject>
+  ContainerTypeProxy<C> hashSet(ManagedType<?> eltType, ManagedType<C> javaType,
+                                ToLongFunction<? super C> handleOf,
+                                LongFunction<? extends C> fromHandle) {
+    int eltKind = Carrier.forType(eltType).kind;
+    return of(HASH_SET_SHAPE, eltKind, eltType, javaType, handleOf, fromHandle);
+  }
+
+  static <C extends ManagedObject>
+  ContainerTypeProxy<C> list(ManagedType<?> eltType, ManagedType<C> javaType,
+                             ToLongFunction<? super C> handleOf,
+                             LongFunction<? extends C> fromHandle) {
+    int eltKind = Carrier.forType(eltType).kind;
+    return of(LIST_SHAPE, eltKind, eltType, javaType, handleOf, fromHandle);
+  }
+
+  static <C extends ManagedObject>
+  ContainerTypeProxy<C> orderedMap(ManagedType<?> keyType, ManagedType<?> valType, ManagedType<C> javaType,
+                                   ToLongFunction<? super C> handleOf,
+                                   LongFunction<? extends C> fromHandle) {
+    int keyKind = Carrier.forType(keyType).kind;
+    return of(ORDERED_MAP_SHAPE, keyKind, valType, javaType, handleOf, fromHandle);
+  }
+
+  private static <C extends ManagedObject>
+  ContainerTypeProxy<C> of(int shape, int keyKind, ManagedType<?> eltType, ManagedType<C> javaType,
+                           ToLongFunction<? super C> handleOf,
+                           LongFunction<? extends C> fromHandle) {
+    int eltKind = Carrier.forType(eltType).kind;
+    long eth = eltType instanceof RecordTypeProxy ? ((RecordTypeProxy<?>)eltType).handleIndex() : 0;
+    long h = forShape(shape, keyKind, eltKind, eth);
+    return new ContainerTypeProxy<>(h, javaType, handleOf, fromHandle);
+  }
+
+  /*
+   * The Java type for a container type handle that came back from the
+   * native side (the type of a field loaded from a record type's
+   * schema, say).  The handle is released.
+   */
+  static ManagedType<?> javaTypeFor(long h) {
+    try {
+      int shape = shape(h);
+      switch (shape) {
+      case STRING_MAP_SHAPE:
+        return stringMapTypeFor(eltKind(h), h);
+      case HASH_SET_SHAPE:
+        return setTypeFor(eltKind(h), h);
+      case LIST_SHAPE:
+        return listTypeFor(eltKind(h), h);
+      case ORDERED_MAP_SHAPE:
+        return OrderedMapTypeProxy.forTypes(valueTypeFor(keyKind(h), h), valueTypeFor(eltKind(h), h));
+      default:
+        throw new UnsupportedOperationException(String.format("No Java type for container shape %d",
+                                                              shape));
+      }
+    } finally {
+      release(h);
+    }
+  }
+
+  private static ManagedType<?> stringMapTypeFor(int valKind, long h) {
+    switch (valKind) {
+    case Carrier.BYTE_KIND:
+      return StringToByteMapType.INSTANCE;
+    case Carrier.SHORT_KIND:
+      return StringToShortMapType.INSTANCE;
+    case Carrier.INT_KIND:
+      return StringToIntMapType.INSTANCE;
+    case Carrier.LONG_KIND:
+      return StringToLongMapType.INSTANCE;
+    case Carrier.FLOAT_KIND:
+      return StringToFloatMapType.INSTANCE;
+    case Carrier.DOUBLE_KIND:
+      return StringToDoubleMapType.INSTANCE;
+    case Carrier.RECORD_KIND:
+      return RecordTypeProxy.fromHandle(eltTypeHandle(h)).inMapFromString();
+    default:
+      throw new UnsupportedOperationException(String.format("No Java type for string maps of kind %d",
+                                                            valKind));
+    }
+  }
+
+  private static ManagedType<?> setTypeFor(int eltKind, long h) {
+    switch (eltKind) {
+    case Carrier.BOOL_KIND:
+      return BooleanSetType.INSTANCE;
+    case Carrier.BYTE_KIND:
+      return ByteSetType.INSTANCE;
+    case Carrier.SHORT_KIND:
+      return ShortSetType.INSTANCE;
+    case Carrier.INT_KIND:
+      return IntSetType.INSTANCE;
+    case Carrier.LONG_KIND:
+      return LongSetType.INSTANCE;
+    case Carrier.FLOAT_KIND:
+      return FloatSetType.INSTANCE;
+    case Carrier.DOUBLE_KIND:
+      return DoubleSetType.INSTANCE;
+    case Carrier.STRING_KIND:
+      return StringSetType.INSTANCE;
+    case Carrier.RECORD_KIND:
+      return RecordTypeProxy.fromHandle(eltTypeHandle(h)).inSet();
+    default:
+      throw new UnsupportedOperationException(String.format("No Java type for sets of kind %d",
+                                                            eltKind));
+    }
+  }
+
+  private static ManagedType<?> listTypeFor(int eltKind, long h) {
+    switch (eltKind) {
+    case Carrier.BOOL_KIND:
+      return BooleanListType.INSTANCE;
+    case Carrier.BYTE_KIND:
+      return ByteListType.INSTANCE;
+    case Carrier.SHORT_KIND:
+      return ShortListType.INSTANCE;
+    case Carrier.INT_KIND:
+      return IntListType.INSTANCE;
+    case Carrier.LONG_KIND:
+      return LongListType.INSTANCE;
+    case Carrier.FLOAT_KIND:
+      return FloatListType.INSTANCE;
+    case Carrier.DOUBLE_KIND:
+      return DoubleListType.INSTANCE;
+    case Carrier.STRING_KIND:
+      return StringListType.INSTANCE;
+    case Carrier.RECORD_KIND:
+      return RecordTypeProxy.fromHandle(eltTypeHandle(h)).inList();
+    default:
+      throw new UnsupportedOperationException(String.format("No Java type for lists of kind %d",
+                                                            eltKind));
+    }
+  }
+
+  /*
+   * Ordered maps are generic in both their keys and values, so all
+   * they need is the types of the individual kinds.
+   */
+  private static ManagedType<?> valueTypeFor(int kind, long h) {
+    switch (kind) {
+    case Carrier.BOOL_KIND:
+      return ManagedBoolean.TYPE;
+    case Carrier.BYTE_KIND:
+      return ManagedByte.TYPE;
+    case Carrier.SHORT_KIND:
+      return ManagedShort.TYPE;
+    case Carrier.INT_KIND:
+      return ManagedInt.TYPE;
+    case Carrier.LONG_KIND:
+      return ManagedLong.TYPE;
+    case Carrier.FLOAT_KIND:
+      return ManagedFloat.TYPE;
+    case Carrier.DOUBLE_KIND:
+      return ManagedDouble.TYPE;
+    case Carrier.STRING_KIND:
+      return ManagedString.TYPE;
+    case Carrier.RECORD_KIND:
+      return RecordTypeProxy.fromHandle(eltTypeHandle(h));
+    default:
+      throw new UnsupportedOperationException(String.format("No Java type for kind %d", kind));
+    }
+  }
+
+  C lookupName(Namespace ns, CharSequence name) {
+    NamespaceProxy nsp = (NamespaceProxy)ns;
+    ManagedStringProxy msp = ManagedStringProxy.valueOf(name);
+    long h = lookupHandle(handleIndex_, nsp.handleIndex(), msp.handleIndex());
+    return fromHandle.apply(h);
+  }
+
+  /*
+   * TODO: Prior is unused, as it is for arrays.
+   */
+  <T extends C> T bindIn(Namespace ns, CharSequence name, T val, Prior prior) {
+    NamespaceProxy nsp = (NamespaceProxy)ns;
+    ManagedStringProxy msp = ManagedStringProxy.valueOf(name);
+    boolean worked = bindHandle(handleIndex_, nsp.handleIndex(), msp.handleIndex(),
+                                handleOf.applyAsLong(val));
+    if (!worked) {
+      throw new BoundToNamespaceException(ns, name);
+    }
+    return val;
+  }
+
+  ContainerArrayTypeProxy<C> inArray() {
+    if (arrayType_ == null) {
+      arrayType_ = ContainerArrayTypeProxy.fromHandle(arrayTypeHandle(handleIndex_), this);
+    }
+    return arrayType_;
+  }
+
+}
@@ -0,0 +1,166 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.AbstractCollection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/*
+ * Deque in terms of addFirst/addLast, pollFirst/pollLast and
+ * peekFirst/peekLast.  As with java.util.ArrayDeque, null elements
+ * aren't allowed, since null is what the poll and peek methods use to
+ * say that the deque is empty.
+ */
+public abstract class DequeAdapter<T> extends AbstractCollection<T> implements Deque<T> {
+
+  @Override
+  public abstract void addFirst(T e);
+
+  @Override
+  public abstract void addLast(T e);
+
+  @Override
+  public abstract T pollFirst();
+
+  @Override
+  public abstract T pollLast();
+
+  @Override
+  public abstract T peekFirst();
+
+  @Override
+  public abstract T peekLast();
+
+  @Override
+  public boolean offerFirst(T e) {
+    addFirst(e);
+    return true;
+  }
+
+  @Override
+  public boolean offerLast(T e) {
+    addLast(e);
+    return true;
+  }
+
+  private static <T> T present(T e) {
+    if (e == null) {
+      throw new NoSuchElementException();
+    }
+    return e;
+  }
+
+  @Override
+  public T removeFirst() {
+    return present(pollFirst());
+  }
+
+  @Override
+  public T removeLast() {
+    return present(pollLast());
+  }
+
+  @Override
+  public T getFirst() {
+    return present(peekFirst());
+  }
+
+  @Override
+  public T getLast() {
+    return present(peekLast());
+  }
+
+  private static boolean removeFrom(Iterator<?> it, Object o) {
+    while (it.hasNext()) {
+      if (Objects.equals(o, it.next())) {
+        it.remove();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean removeFirstOccurrence(Object o) {
+    return removeFrom(iterator(), o);
+  }
+
+  @Override
+  public boolean removeLastOccurrence(Object o) {
+    return removeFrom(descendingIterator(), o);
+  }
+
+  @Override
+  public boolean add(T e) {
+    addLast(e);
+    return true;
+  }
+
+  @Override
+  public boolean offer(T e) {
+    return offerLast(e);
+  }
+
+  @Override
+  public T remove() {
+    return removeFirst();
+  }
+
+  @Override
+  public T poll() {
+    return pollFirst();
+  }
+
+  @Override
+  public T element() {
+    return getFirst();
+  }
+
+  @Override
+  public T peek() {
+    return peekFirst();
+  }
+
+  @Override
+  public void push(T e) {
+    addFirst(e);
+  }
+
+  @Override
+  public T pop() {
+    return removeFirst();
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    return removeFirstOccurrence(o);
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import com.hpl.mds.Field;
+import com.hpl.mds.ManagedObject;
+import com.hpl.mds.ManagedRecord;
+import com.hpl.mds.callbacks.FieldChange;
+
+/*
+ * The values are read by ChangeFeedImpl when the batch is delivered.
+ */
+class FieldChangeImpl<R extends ManagedRecord, FT extends ManagedObject> implements FieldChange<R, FT> {
+  private final R record;
+  private final Field<? super R, ? extends FT> field;
+  private final FT oldValue;
+  private final FT newValue;
+
+  FieldChangeImpl(R record, Field<? super R, ? extends FT> field, FT oldValue, FT newValue) {
+    this.record = record;
+    this.field = field;
+    this.oldValue = oldValue;
+    this.newValue = newValue;
+  }
+
+  @Override
+  public R at() {
+    return record;
+  }
+
+  @Override
+  public Field<? super R, ? extends FT> field() {
+    return field;
+  }
+
+  @Override
+  public FT oldValue() {
+    return oldValue;
+  }
+
+  @Override
+  public FT newValue() {
+    return newValue;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("FieldChange[%s.%s: %s -> %s]", record, field.name(), oldValue, newValue);
+  }
+}
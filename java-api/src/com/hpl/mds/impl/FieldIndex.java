@@ -0,0 +1,149 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+package com.hpl.mds.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.hpl.mds.*;
+
+/*
+ * Secondary indexes on fields.  The native index lives on the field
+ * itself and is maintained by the core on every write to it, so all
+ * that's needed here is declaring it and reading it.  Field values
+ * cross the JNI boundary as longs (see Carrier), with the field's kind
+ * passed on each call.
+ */
+final class FieldIndex {
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private static final int CHUNK_SIZE = 256;
+
+  private static native void declare(int fieldKind, long fieldHandle, boolean ordered);
+  private static native boolean isIndexed(int fieldKind, long fieldHandle, boolean ordered);
+  private static native int recordsChunk(int fieldKind, long fieldHandle, long val,
+                                         long afterHandle, long[] recs);
+  private static native int valuesChunk(int fieldKind, long fieldHandle, boolean descending,
+                                        int loBound, long lo, int hiBound, long hi,
+                                        long[] vals);
+
+  private FieldIndex() {}
+
+  static void declare(FieldProxy<?,?> field, IndexKind kind) {
+    declare(field.carrier().kind, field.handleIndex(), kind == IndexKind.ORDERED);
+  }
+
+  static boolean isIndexed(FieldProxy<?,?> field, IndexKind kind) {
+    return isIndexed(field.carrier().kind, field.handleIndex(), kind == IndexKind.ORDERED);
+  }
+
+  private static void checkIndexed(FieldProxy<?,?> field, IndexKind kind) {
+    if (!isIndexed(field, kind)) {
+      throw new IllegalStateException(String.format("Field '%s' has no %s index",
+                                                    field.name(), kind));
+    }
+  }
+
+  /*
+   * The records of type rt (or a subtype) whose value for the field is
+   * value.
+   */
+  static <R extends ManagedRecord, FT extends ManagedObject>
+  Set<R> find(FieldProxy<? super R, FT> field, RecordTypeProxy<R> rt, FT value) {
+    checkIndexed(field, IndexKind.HASH);
+    Set<R> found = new LinkedHashSet<>();
+    if (value != null) {
+      Carrier<FT> c = field.carrier();
+      addRecords(field, c.toBits.applyAsLong(value), rt, found);
+    }
+    return Collections.unmodifiableSet(found);
+  }
+
+  static <R extends ManagedRecord, FT extends ManagedObject>
+  Set<R> find(FieldProxy<? super R, FT> field, RecordTypeProxy<R> rt,
+              FT from, boolean fromInclusive, FT to, boolean toInclusive) {
+    checkIndexed(field, IndexKind.ORDERED);
+    Carrier<FT> c = field.carrier();
+    int kind = c.kind;
+    long h = field.handleIndex();
+    OrderedMapProxy.Bound hiB = to == null ? OrderedMapProxy.Bound.NONE
+      : toInclusive ? OrderedMapProxy.Bound.INCLUSIVE : OrderedMapProxy.Bound.EXCLUSIVE;
+    long hi = to == null ? 0 : c.toBits.applyAsLong(to);
+    OrderedMapProxy.Bound loB = from == null ? OrderedMapProxy.Bound.NONE
+      : fromInclusive ? OrderedMapProxy.Bound.INCLUSIVE : OrderedMapProxy.Bound.EXCLUSIVE;
+    FT lo = from;
+    Set<R> found = new LinkedHashSet<>();
+    long[] bits = new long[CHUNK_SIZE];
+    boolean more = true;
+    while (more) {
+      int r = valuesChunk(kind, h, false,
+                          loB.ordinal(), lo == null ? 0 : c.toBits.applyAsLong(lo),
+                          hiB.ordinal(), hi, bits);
+      if (r < 0) {
+        more = false;
+        r = -(r+1);
+      }
+      /*
+       * String values come back as fresh handles, so they're turned
+       * into proxies before anything else happens.
+       */
+      for (int i = 0; i < r; i++) {
+        FT v = c.fromBits.apply(bits[i]);
+        addRecords(field, c.toBits.applyAsLong(v), rt, found);
+        lo = v;
+      }
+      loB = OrderedMapProxy.Bound.EXCLUSIVE;
+    }
+    return Collections.unmodifiableSet(found);
+  }
+
+  private static <R extends ManagedRecord>
+  void addRecords(FieldProxy<? super R, ?> field, long valBits,
+                  RecordTypeProxy<R> rt, Set<R> into) {
+    int kind = field.carrier().kind;
+    long h = field.handleIndex();
+    long[] handles = new long[CHUNK_SIZE];
+    ManagedRecordProxy last = null;
+    boolean more = true;
+    while (more) {
+      int r = recordsChunk(kind, h, valBits, last == null ? 0 : last.handleIndex(), handles);
+      if (r < 0) {
+        more = false;
+        r = -(r+1);
+      }
+      for (int i = 0; i < r; i++) {
+        ManagedRecordProxy rec = (ManagedRecordProxy)ManagedRecordProxy.fromHandle(handles[i], rt);
+        last = rec;
+        if (rt.isSuperOf(rec.type)) {
+          @SuppressWarnings("unchecked")
+          R typed = (R)rec;
+          into.add(typed);
+        }
+      }
+    }
+  }
+}
@@ -38,6 +38,7 @@ public abstract class FieldProxy<RT extends ManagedRecord, FT extends ManagedObj
   
   protected ManagedStringProxy name_;
   protected RecordTypeProxy<RT> recordType_;
+  private Carrier<FT> carrier_;
   
 	protected FieldProxy(long handleIndex, RecordTypeProxy<RT> recType, ManagedStringProxy name) {
           super(handleIndex, null);
@@ -52,6 +53,28 @@ public abstract class FieldProxy<RT extends ManagedRecord, FT extends ManagedObj
 
 	
 
+  /*
+   * How values of this field are passed to the index natives.  Array
+   * fields have none, so they can't be indexed.
+   */
+  Carrier<FT> carrier() {
+    if (carrier_ == null) {
+      carrier_ = Carrier.forType(valueType());
+    }
+    return carrier_;
+  }
+
+  @Override
+  public Field<RT,FT> index(IndexKind kind) {
+    FieldIndex.declare(this, kind);
+    return this;
+  }
+
+  @Override
+  public boolean isIndexed(IndexKind kind) {
+    return FieldIndex.isIndexed(this, kind);
+  }
+
   @Override
   public final boolean change(RT rec, FT expected, FT val) {
     return Stub.notImplemented();
@@ -0,0 +1,138 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.function.LongSupplier;
+
+import org.apache.log4j.Logger;
+
+/*
+ * Flight Recorder events for isolation and the managed heap.  jdk.jfr
+ * isn't in every runtime, so the events themselves live in JfrEvents,
+ * which is only touched once we've checked that it can be loaded.
+ * Without it, each factory here hands back an event that does
+ * nothing.
+ *
+ * The context and task ids are the handle indices, which are what the
+ * proxies' toString() methods print.
+ */
+public final class FlightEvents {
+
+  private static final Logger log = Logger.getLogger(FlightEvents.class);
+
+  private FlightEvents() {}
+
+  /*
+   * A call to IsolationContext.callIsolated(), including any reruns.
+   */
+  interface IsolatedCall {
+    void attempt();
+    void finish(boolean succeeded);
+  }
+
+  /*
+   * One attempt to publish a child context to its parent.  redoTasks
+   * is only asked for if the attempt failed and is being recorded.
+   */
+  interface Publish {
+    void finish(long contextId, int attempt, boolean succeeded, LongSupplier redoTasks);
+  }
+
+  /*
+   * Redoing the conflicting tasks after a failed publish.
+   */
+  interface Conflict {
+    void finish(LongSupplier contextId, int redoTasks, boolean resolved);
+  }
+
+  interface TaskRerun {
+    void finish(long taskId, LongSupplier contextId);
+  }
+
+  private enum Off implements IsolatedCall, Publish, Conflict, TaskRerun {
+    INSTANCE;
+
+    @Override
+    public void attempt() {}
+
+    @Override
+    public void finish(boolean succeeded) {}
+
+    @Override
+    public void finish(long contextId, int attempt, boolean succeeded, LongSupplier redoTasks) {}
+
+    @Override
+    public void finish(LongSupplier contextId, int redoTasks, boolean resolved) {}
+
+    @Override
+    public void finish(long taskId, LongSupplier contextId) {}
+  }
+
+  private static final boolean available = probe();
+
+  private static boolean probe() {
+    try {
+      Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      log.debug("jdk.jfr isn't available; not recording Flight Recorder events");
+      return false;
+    }
+  }
+
+  static IsolatedCall isolatedCall(long contextId) {
+    return available ? JfrEvents.isolatedCall(contextId) : Off.INSTANCE;
+  }
+
+  static Publish publish() {
+    return available ? JfrEvents.publish() : Off.INSTANCE;
+  }
+
+  static Conflict conflict() {
+    return available ? JfrEvents.conflict() : Off.INSTANCE;
+  }
+
+  static TaskRerun taskRerun() {
+    return available ? JfrEvents.taskRerun() : Off.INSTANCE;
+  }
+
+  /*
+   * Called when IsoContextProxy is loaded.  If JFR is there but can't
+   * be used in this VM, the isolation events still work (they're just
+   * never recorded), so we only log the failure.
+   */
+  static void registerHeapPoller() {
+    if (!available) {
+      return;
+    }
+    try {
+      JfrEvents.registerHeapPoller();
+    } catch (RuntimeException | LinkageError e) {
+      log.debug("Not recording managed heap events", e);
+    }
+  }
+}
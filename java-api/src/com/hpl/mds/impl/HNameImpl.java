@@ -88,6 +88,11 @@ public abstract class HNameImpl implements HName {
     protected AbsoluteHNI appendTo(AbsoluteHNI prefix) {
       return this;
     }
+
+    /**
+     * The key under which the namespace this names is cached.
+     */
+    protected abstract String cacheKey();
     
     class DirUseImpl implements DirUse {
       final AbsoluteHNI prior;
@@ -138,6 +143,11 @@ public abstract class HNameImpl implements HName {
       return this;
     }
 
+    @Override
+    protected String cacheKey() {
+      return "";
+    }
+
     @Override
     public Namespace asNamespace() {
       return Namespace.root();
@@ -147,7 +157,7 @@ public abstract class HNameImpl implements HName {
   static class NonRoot extends AbsoluteHNI {
     private final AbsoluteHNI parent;
     private final ManagedStringProxy name;
-    private Namespace namespace;
+    private String cacheKey;
 
     private NonRoot(AbsoluteHNI parent, ManagedStringProxy name) {
       super(parent.depth+1);
@@ -170,12 +180,25 @@ public abstract class HNameImpl implements HName {
       return parent;
     }
 
+    @Override
+    protected String cacheKey() {
+      if (cacheKey == null) {
+        cacheKey = parent.cacheKey()+DEFAULT_SEPARATOR+name.asString();
+      }
+      return cacheKey;
+    }
+
     @Override
     public Namespace asNamespace() {
-      if (namespace == null) {
-    	  namespace = parent.asNamespace().childNamespace(name);
+      NamingCache cache = NamingCache.current();
+      long stamp = NamingCache.namespaceStamp();
+      String key = cacheKey();
+      Namespace ns = cache.namespace(key, stamp);
+      if (ns == null) {
+        ns = parent.asNamespace().childNamespace(name);
+        cache.putNamespace(key, stamp, ns);
       }
-      return namespace;
+      return ns;
     }
 
   }
@@ -62,6 +62,7 @@ public class IsoContextProxy extends Proxy implements IsolationContext {
   private TaskProxy creationTask_ = null;
   private List<Consumer<? super IsoContextProxy>> successfulPublishHooks_ = null;
   private List<Consumer<? super IsoContextProxy>> failedPublishHooks_ = null;
+  private volatile NamingCache namingCache_ = null;
   
   /*
    * We increment this on successful publish.  It is used by
@@ -81,6 +82,10 @@ public class IsoContextProxy extends Proxy implements IsolationContext {
 	
   static final IsoContextProxy global_ = fromHandle(globalHandle());
   static IsoContextProxy forProcess_ = null;
+
+  static {
+    FlightEvents.registerHeapPoller();
+  }
 	
   private IsoContextProxy(long h) {
     super(h, proxyTable);
@@ -90,6 +95,20 @@ public class IsoContextProxy extends Proxy implements IsolationContext {
     return handleIndex_;
   }
 
+  NamingCache namingCache() {
+    NamingCache c = namingCache_;
+    if (c == null) {
+      synchronized (this) {
+        c = namingCache_;
+        if (c == null) {
+          c = new NamingCache();
+          namingCache_ = c;
+        }
+      }
+    }
+    return c;
+  }
+
   private static native void release(long h);
   private static native long parentHandle(long h);
   private static native long topLevelTaskHandle(long h);
@@ -102,6 +121,12 @@ public class IsoContextProxy extends Proxy implements IsolationContext {
   private static native boolean isReadOnly(long h);
   private static native boolean hasConflicts(long h);
   private static native long publish(long h);
+  /*
+   * Record fields only know which record and slot they are while
+   * something wants to know (see msv_sites in core_conflict.h).  Each
+   * open feed holds that on.
+   */
+  static native void trackFieldSites(boolean on);
   /*
    * Returns the task handle that's already been established.
    */
@@ -186,14 +211,22 @@ public class IsoContextProxy extends Proxy implements IsolationContext {
   }
 
   public PubResultProxy tryPublish() {
+    return tryPublish(1);
+  }
+
+  private PubResultProxy tryPublish(int attempt) {
     // System.out.format("Calling tryPublish() on %s%n", this);
+    FlightEvents.Publish event = FlightEvents.publish();
     long h = publish(handleIndex_);
     PubResultProxy res = PubResultProxy.fromHandle(h);
-    if (res.succeeded()) {
+    boolean succeeded = res.succeeded();
+    if (succeeded) {
       // System.out.format("tryPublish() succeeded%n");
       successfulPublishCount.incrementAndGet();
       giveUp();
+      ChangeFeedImpl.published(this, res);
     }
+    event.finish(handleIndex_, attempt, succeeded, res::nToRedo);
     return res;
   }
 
@@ -201,7 +234,8 @@ public class IsoContextProxy extends Proxy implements IsolationContext {
                                 Collection<Supplier<Predicate<PubResult>>> resolveControlSup)
   {
     // System.out.format("Trying Java publish%n");
-    PubResultProxy pRes = tryPublish();
+    int attempt = 1;
+    PubResultProxy pRes = tryPublish(attempt);
     if (!pRes.succeeded()) {
       List<Predicate<PubResult>> resolveControl = resolveControlSup.stream()
         .map(Supplier::get)
@@ -216,7 +250,7 @@ public class IsoContextProxy extends Proxy implements IsolationContext {
         }
         // System.out.format("Resolution succeeded%n");
         // System.out.format("Calling tryPublish() again%n");
-        pRes = tryPublish();
+        pRes = tryPublish(++attempt);
       }
     }
     if (pRes.succeeded()) {
@@ -299,9 +333,12 @@ public class IsoContextProxy extends Proxy implements IsolationContext {
       .map(Supplier::get).collect(Collectors.toList());
     Collection<Supplier<Predicate<PubResult>>> resolveControls = control.forResolve();
 
+    FlightEvents.IsolatedCall event = FlightEvents.isolatedCall(handleIndex_);
+
     PubResult pr;
     boolean cont = true;
     while (cont) {
+      event.attempt();
       IsoContextProxy child = createNested(vt, mt);
       reports.forEach(r -> r.beforeRun(child));
       
@@ -313,6 +350,7 @@ public class IsoContextProxy extends Proxy implements IsolationContext {
       if (pr.succeeded()) {
         // System.out.format("Publish succeeded%n");
         reports.forEach(PublishReport::noteSuccess);
+        event.finish(true);
         return val;
       }
       // System.out.format("Publish failed%n");
@@ -321,6 +359,7 @@ public class IsoContextProxy extends Proxy implements IsolationContext {
     }
     // System.out.format("Giving up on isolated block.%n");
     reports.forEach(PublishReport::noteFailure);
+    event.finish(false);
     throw new FailedTransactionException();
   }
 
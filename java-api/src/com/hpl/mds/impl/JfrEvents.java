@@ -0,0 +1,243 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+import com.hpl.mds.MemStats;
+
+/*
+ * The Flight Recorder events themselves.  This is the only class that
+ * refers to jdk.jfr, and it's only loaded through FlightEvents once
+ * that's known to be there.
+ *
+ * The isolation events are begun when they're created and ended and
+ * committed by finish(), which JFR turns into no-ops when they aren't
+ * enabled in a recording, and anything that needs a native call to
+ * fill in is guarded by shouldCommit().  The heap event is periodic,
+ * so MemStats is only polled while a recording asks for it.
+ */
+final class JfrEvents {
+
+  private JfrEvents() {}
+
+  @Name("com.hpl.mds.IsolatedCall")
+  @Label("Isolated Call")
+  @Description("A call to IsolationContext.callIsolated(), including any reruns")
+  @Category({"Managed Data Structures", "Isolation"})
+  static final class IsolatedCallEvent extends Event implements FlightEvents.IsolatedCall {
+    @Label("Context Id")
+    long contextId;
+
+    @Label("Attempts")
+    @Description("Times the function was run in a fresh child context")
+    int attempts;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    @Override
+    public void attempt() {
+      attempts++;
+    }
+
+    @Override
+    public void finish(boolean succeeded) {
+      this.succeeded = succeeded;
+      commit();
+    }
+  }
+
+  @Name("com.hpl.mds.Publish")
+  @Label("Publish")
+  @Description("One attempt to publish a child context to its parent")
+  @Category({"Managed Data Structures", "Isolation"})
+  static final class PublishEvent extends Event implements FlightEvents.Publish {
+    @Label("Context Id")
+    long contextId;
+
+    @Label("Attempt")
+    @Description("1 for the first try, incremented after each resolution")
+    int attempt;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    @Label("Redo Tasks")
+    @Description("Tasks that have to be redone before the next attempt")
+    long redoTasks;
+
+    @Override
+    public void finish(long contextId, int attempt, boolean succeeded, LongSupplier redoTasks) {
+      end();
+      if (shouldCommit()) {
+        this.contextId = contextId;
+        this.attempt = attempt;
+        this.succeeded = succeeded;
+        this.redoTasks = succeeded ? 0 : redoTasks.getAsLong();
+        commit();
+      }
+    }
+  }
+
+  @Name("com.hpl.mds.Conflict")
+  @Label("Conflict Resolution")
+  @Description("Redoing the conflicting tasks after a failed publish")
+  @Category({"Managed Data Structures", "Isolation"})
+  static final class ConflictEvent extends Event implements FlightEvents.Conflict {
+    @Label("Context Id")
+    long contextId;
+
+    @Label("Redo Tasks")
+    int redoTasks;
+
+    @Label("Resolved")
+    @Description("False if some task could not be redone")
+    boolean resolved;
+
+    @Override
+    public void finish(LongSupplier contextId, int redoTasks, boolean resolved) {
+      end();
+      if (shouldCommit()) {
+        this.contextId = contextId.getAsLong();
+        this.redoTasks = redoTasks;
+        this.resolved = resolved;
+        commit();
+      }
+    }
+  }
+
+  @Name("com.hpl.mds.TaskRerun")
+  @Label("Task Rerun")
+  @Category({"Managed Data Structures", "Isolation"})
+  static final class TaskRerunEvent extends Event implements FlightEvents.TaskRerun {
+    @Label("Task Id")
+    long taskId;
+
+    @Label("Context Id")
+    long contextId;
+
+    @Override
+    public void finish(long taskId, LongSupplier contextId) {
+      end();
+      if (shouldCommit()) {
+        this.taskId = taskId;
+        this.contextId = contextId.getAsLong();
+        commit();
+      }
+    }
+  }
+
+  @Name("com.hpl.mds.ManagedHeap")
+  @Label("Managed Heap")
+  @Description("The state of the managed heap, noting any GC cycles since the last event")
+  @Category({"Managed Data Structures", "Memory"})
+  @StackTrace(false)
+  @Period("1 s")
+  static final class ManagedHeapEvent extends Event {
+    @Label("GC Cycle")
+    long gcCycle;
+
+    @Label("GC Cycles Since Last")
+    long gcCycles;
+
+    @Label("Bytes In Heap")
+    long bytesInHeap;
+
+    @Label("Bytes In Use")
+    long bytesInUse;
+
+    @Label("Objects")
+    long objects;
+
+    @Label("Processes")
+    long processes;
+  }
+
+  private static final AtomicLong lastGcCycle = new AtomicLong(-1);
+  private static volatile boolean registered = false;
+
+  static synchronized void registerHeapPoller() {
+    if (registered) {
+      return;
+    }
+    registered = true;
+    FlightRecorder.addPeriodicEvent(ManagedHeapEvent.class, JfrEvents::pollHeap);
+  }
+
+  static IsolatedCallEvent isolatedCall(long contextId) {
+    IsolatedCallEvent event = new IsolatedCallEvent();
+    event.begin();
+    event.contextId = contextId;
+    return event;
+  }
+
+  static PublishEvent publish() {
+    PublishEvent event = new PublishEvent();
+    event.begin();
+    return event;
+  }
+
+  static ConflictEvent conflict() {
+    ConflictEvent event = new ConflictEvent();
+    event.begin();
+    return event;
+  }
+
+  static TaskRerunEvent taskRerun() {
+    TaskRerunEvent event = new TaskRerunEvent();
+    event.begin();
+    return event;
+  }
+
+  private static void pollHeap() {
+    ManagedHeapEvent event = new ManagedHeapEvent();
+    if (!event.shouldCommit()) {
+      return;
+    }
+    MemStats stats = new MemStats();
+    long cycle = stats.gcCycleNumber();
+    long last = lastGcCycle.getAndSet(cycle);
+    event.gcCycle = cycle;
+    event.gcCycles = last < 0 ? 0 : cycle-last;
+    event.bytesInHeap = stats.bytesInHeap();
+    event.bytesInUse = stats.bytesInUse();
+    event.objects = stats.nObjects();
+    event.processes = stats.nProcesses();
+    event.commit();
+  }
+}
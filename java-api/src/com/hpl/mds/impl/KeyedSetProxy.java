@@ -0,0 +1,253 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+package com.hpl.mds.impl;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.hpl.mds.*;
+import com.hpl.mds.keyed.Keyed;
+import com.hpl.mds.keyed.ManagedKeyedSet;
+import com.hpl.mds.usage.UsagePlan;
+import com.hpl.mds.usage.UsageScope;
+
+/*
+ * A keyed set is its index: a string-keyed managed map from each key
+ * to the value filed under it.  Since the map keeps a separate managed
+ * value per key, adding, finding, and removing by key are O(1) and
+ * conflict only with tasks that touch the same key, and there is no
+ * separate element store for the index to fall out of step with.
+ *
+ * Only string keys are supported for now, since those are the only
+ * keys we have a native map for.
+ */
+public class KeyedSetProxy<EK extends ManagedObject, V extends ManagedObject> 
+  extends AbstractSet<Keyed<EK, V>> implements ManagedKeyedSet<EK, V> 
+{
+  private final KeyedSetTypeProxy<EK, V> type;
+  private final ManagedMapFromString<V> index;
+
+  KeyedSetProxy(KeyedSetTypeProxy<EK, V> type, ManagedMapFromString<V> index) {
+    this.type = type;
+    this.index = index;
+  }
+
+  static <EK extends ManagedObject, V extends ManagedObject>
+  ManagedMapFromString<V> createIndex(KeyedTypeProxy<EK, V> eltType, long expectedSize) {
+    if (eltType.keyType() != ManagedString.TYPE) {
+      throw new UnsupportedOperationException("Keyed sets currently require string keys, not "
+                                              + eltType.keyType());
+    }
+    ManagedMapFromString.Type<V> mt = eltType.valueType().inMapFromString();
+    ManagedMapFromString<V> index = null;
+    if (mt instanceof MapFromStringTypeProxy) {
+      index = ((MapFromStringTypeProxy<V>)mt).create(expectedSize);
+    } else if (mt != null) {
+      index = mt.create();
+    }
+    if (index == null) {
+      throw new UnsupportedOperationException("No string-keyed map of "
+                                              + eltType.valueType() + " to index by");
+    }
+    return index;
+  }
+
+  ManagedMapFromString<V> index() {
+    return index;
+  }
+
+  private static CharSequence keyString(Object key) {
+    return key instanceof CharSequence ? (CharSequence)key : null;
+  }
+
+  private Keyed<EK, V> keyed(ManagedString key, V val) {
+    @SuppressWarnings("unchecked")
+    EK k = (EK)key;
+    return new KeyedValue<>(k, val);
+  }
+
+  @Override
+  public KeyedSetTypeProxy<EK, V> type() {
+    return type;
+  }
+
+  @Override
+  public ManagedType<Keyed<EK, V>> eltType() {
+    return type.eltType();
+  }
+
+  @Override
+  public V get(EK key) {
+    return index.get(key);
+  }
+
+  @Override
+  public boolean containsKey(EK key) {
+    return index.containsKey(key);
+  }
+
+  @Override
+  public V removeKey(EK key) {
+    return index.remove(key);
+  }
+
+  @Override
+  public boolean addKeyed(V val, EK eqKey) {
+    CharSequence k = keyString(eqKey);
+    if (k == null) {
+      throw new IllegalArgumentException("Keyed set keys must be strings");
+    }
+    return index.putIfAbsent(k, val) == null;
+  }
+
+  @Override
+  public boolean addKeyed(V val, Function<? super V, ? extends EK> keyFn) {
+    return addKeyed(val, keyFn.apply(val));
+  }
+
+  @Override
+  public boolean add(Keyed<EK, V> elt) {
+    return addKeyed(elt.value(), elt.key());
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof Keyed && index.containsKey(((Keyed<?, ?>)o).key());
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    return o instanceof Keyed && index.remove(((Keyed<?, ?>)o).key()) != null;
+  }
+
+  @Override
+  public Iterator<Keyed<EK, V>> iterator() {
+    Iterator<Map.Entry<ManagedString, V>> it = index.entrySet().iterator();
+    return new Iterator<Keyed<EK, V>>() {
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+      @Override
+      public Keyed<EK, V> next() {
+        Map.Entry<ManagedString, V> e = it.next();
+        return keyed(e.getKey(), e.getValue());
+      }
+      @Override
+      public void remove() {
+        it.remove();
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    return index.size();
+  }
+
+  @Override
+  public long longSize() {
+    return index.longSize();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return index.isEmpty();
+  }
+
+  @Override
+  public void clear() {
+    index.clear();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (!(o instanceof ManagedComposite)) {
+      return false;
+    }
+    return isSameViewOfSameObject((ManagedComposite)o);
+  }
+
+  @Override
+  public int hashCode() {
+    return index.hashCode();
+  }
+
+  @Override
+  public boolean isIdentical(ManagedComposite other) {
+    return isSameViewOfSameObject(other);
+  }
+
+  @Override
+  public boolean isSameObject(ManagedComposite other) {
+    return isSameViewOfSameObject(other);
+  }
+
+  @Override
+  public boolean isSameViewOfSameObject(ManagedComposite other) {
+    if (other == this) {
+      return true;
+    } else if (!(other instanceof KeyedSetProxy)) {
+      return false;
+    }
+    return index.isSameViewOfSameObject(((KeyedSetProxy<?, ?>)other).index);
+  }
+
+  @Override
+  public ManagedKeyedSet<EK, V> bindName(Prior prior, Namespace ns, CharSequence name) {
+    type.bindIn(ns, name, this, prior);
+    return this;
+  }
+
+  /*
+   * The index's capacity is the only thing the hints decide, and it's
+   * fixed when the keyed set is created.
+   */
+  @Override
+  public ManagedKeyedSet<EK, V> using(ManagedSet.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedKeyedSet<EK, V> inherentUsage(ManagedSet.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedKeyedSet<EK, V> usageDuring(UsageScope scope, ManagedSet.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public UsagePlan usagePlan(ManagedSet.Usage hint) {
+    return UsageImpl.NO_PLAN;
+  }
+
+}
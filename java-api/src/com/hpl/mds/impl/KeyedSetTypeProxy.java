@@ -0,0 +1,178 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+package com.hpl.mds.impl;
+
+import com.hpl.mds.*;
+import com.hpl.mds.keyed.Keyed;
+import com.hpl.mds.keyed.ManagedKeyedSet;
+
+public class KeyedSetTypeProxy<EK extends ManagedObject, V extends ManagedObject> 
+  implements ManagedKeyedSet.Type<EK, V>
+{
+  private static final long DEFAULT_EXPECTED_SIZE = 10;
+
+  final KeyedTypeProxy<EK, V> eltType;
+  private volatile ContainerTypeProxy<ManagedSet<Keyed<EK, V>>> containerType_ = null;
+
+  KeyedSetTypeProxy(KeyedTypeProxy<EK, V> eltType) {
+    this.eltType = eltType;
+  }
+
+  @Override
+  public KeyedTypeProxy<EK, V> eltType() {
+    return eltType;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof KeyedSetTypeProxy
+      && eltType.equals(((KeyedSetTypeProxy<?, ?>)other).eltType);
+  }
+
+  @Override
+  public int hashCode() {
+    return eltType.hashCode() ^ KeyedSetTypeProxy.class.hashCode();
+  }
+
+  /*
+   * Natively, a keyed set is just its index map, so that's what gets
+   * bound, stored in fields, and put in arrays.  We wrap the map back up
+   * on the way out.
+   */
+  ContainerTypeProxy<ManagedSet<Keyed<EK, V>>> containerType() {
+    if (containerType_ == null) {
+      ManagedMapFromString.Type<V> mt = eltType.valueType().inMapFromString();
+      if (!(mt instanceof ContainerTypeImpl)) {
+        throw new UnsupportedOperationException("No string-keyed map of "
+                                                + eltType.valueType() + " to index by");
+      }
+      @SuppressWarnings("unchecked")
+      ContainerTypeProxy<ManagedMap<ManagedString, V>> indexType
+        = ((ContainerTypeImpl<ManagedMap<ManagedString, V>>)mt).containerType();
+      containerType_ = ContainerTypeProxy.stringMap(eltType.valueType(), this,
+                                                    ks -> ks == null ? 0 : indexType.handleOf.applyAsLong(indexOf(ks)),
+                                                    h -> wrap(indexType.fromHandle.apply(h)));
+    }
+    return containerType_;
+  }
+
+  private static <V extends ManagedObject> ManagedMapFromString<V> indexOf(ManagedSet<?> set) {
+    if (!(set instanceof KeyedSetProxy)) {
+      throw new IllegalArgumentException("Not a keyed set: " + set);
+    }
+    @SuppressWarnings("unchecked")
+    KeyedSetProxy<?, V> ks = (KeyedSetProxy<?, V>)set;
+    return ks.index();
+  }
+
+  private KeyedSetProxy<EK, V> wrap(ManagedMap<ManagedString, V> index) {
+    return index == null ? null : new KeyedSetProxy<>(this, (ManagedMapFromString<V>)index);
+  }
+
+  @Override
+  public ManagedKeyedSet<EK, V> construct(Object... ctorParams) {
+    throw new UnsupportedOperationException("Keyed sets are created with create()");
+  }
+
+  @Override
+  public ManagedKeyedSet<EK, V> create() {
+    return create(DEFAULT_EXPECTED_SIZE);
+  }
+
+  public ManagedKeyedSet<EK, V> create(long expectedSize) {
+    return new KeyedSetProxy<>(this, KeyedSetProxy.createIndex(eltType, expectedSize));
+  }
+
+  @Override
+  public ManagedKeyedSet<EK, V> create(ManagedKeyedSet.Usage hints) {
+    return create(UsageImpl.capacityHint(hints, DEFAULT_EXPECTED_SIZE));
+  }
+
+  @Override
+  public ManagedKeyedSet<EK, V> create(ManagedSet.Usage hints) {
+    return create(UsageImpl.capacityHint(hints, DEFAULT_EXPECTED_SIZE));
+  }
+
+  @Override
+  public ManagedKeyedSet<EK, V> create(ManagedCollection.Usage hints) {
+    return create(UsageImpl.capacityHint(hints, DEFAULT_EXPECTED_SIZE));
+  }
+
+  @Override
+  public ManagedKeyedSet<EK, V> create(ManagedContainer.Usage hints) {
+    return create(UsageImpl.capacityHint(hints, DEFAULT_EXPECTED_SIZE));
+  }
+
+  @Override
+  public ManagedSet<Keyed<EK, V>> lookupName(Namespace ns, CharSequence name) {
+    return containerType().lookupName(ns, name);
+  }
+
+  @Override
+  public ManagedSet<Keyed<EK, V>> bindIn(Namespace ns, CharSequence name, 
+                                         ManagedSet<Keyed<EK, V>> val, Prior prior) {
+    return containerType().bindIn(ns, name, val, prior);
+  }
+
+  @Override
+  public <RT extends ManagedRecord> SetField<RT, Keyed<EK, V>> fieldIn(RecordType<RT> recType, CharSequence name) {
+    return SetFieldProxy.in(recType, name, this, containerType(), true);
+  }
+
+  @Override
+  public <RT extends ManagedRecord> SetField<RT, Keyed<EK, V>> findFieldIn(RecordType<RT> recType, CharSequence name) {
+    return SetFieldProxy.in(recType, name, this, containerType(), false);
+  }
+
+  @Override
+  public ManagedArray.Type<ManagedSet<Keyed<EK, V>>> inArray() {
+    return containerType().inArray();
+  }
+
+  /*
+   * Containers can't yet hold containers.
+   */
+  @Override
+  public ManagedList.Type<ManagedSet<Keyed<EK, V>>> inList() {
+    throw new UnsupportedOperationException("Lists of keyed sets are not supported");
+  }
+
+  @Override
+  public ManagedSet.Type<ManagedSet<Keyed<EK, V>>> inSet() {
+    throw new UnsupportedOperationException("Sets of keyed sets are not supported");
+  }
+
+  @Override
+  public <K extends ManagedObject> ManagedMap.Type<K, ManagedSet<Keyed<EK, V>>> inMapFrom(ManagedType<K> keyType) {
+    throw new UnsupportedOperationException("Maps to keyed sets are not supported");
+  }
+
+  @Override
+  public ManagedMapFromString.Type<ManagedSet<Keyed<EK, V>>> inMapFromString() {
+    throw new UnsupportedOperationException("Maps to keyed sets are not supported");
+  }
+
+}
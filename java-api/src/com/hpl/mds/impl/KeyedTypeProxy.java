@@ -0,0 +1,137 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+package com.hpl.mds.impl;
+
+import com.hpl.mds.*;
+import com.hpl.mds.keyed.Keyed;
+import com.hpl.mds.keyed.ManagedKeyedSet;
+
+/*
+ * Keyed values aren't stored on their own, so there is no native type
+ * behind this.  It exists to get to the set type, which is where they
+ * get bound, put in fields, and so on.
+ */
+public class KeyedTypeProxy<EK extends ManagedObject, V extends ManagedObject> implements Keyed.Type<EK, V> {
+
+  private final ManagedType<EK> keyType;
+  private final ManagedType<V> valueType;
+  private volatile KeyedSetTypeProxy<EK, V> setType_ = null;
+
+  private KeyedTypeProxy(ManagedType<EK> keyType, ManagedType<V> valueType) {
+    this.keyType = keyType;
+    this.valueType = valueType;
+  }
+
+  public static <EK extends ManagedObject, V extends ManagedObject>
+  KeyedTypeProxy<EK, V> forTypes(ManagedType<EK> keyType, ManagedType<V> valueType) {
+    return new KeyedTypeProxy<>(keyType, valueType);
+  }
+
+  @Override
+  public ManagedType<EK> keyType() {
+    return keyType;
+  }
+
+  @Override
+  public ManagedType<V> valueType() {
+    return valueType;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof KeyedTypeProxy)) {
+      return false;
+    }
+    KeyedTypeProxy<?, ?> kt = (KeyedTypeProxy<?, ?>)other;
+    return keyType.equals(kt.keyType) && valueType.equals(kt.valueType);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31*keyType.hashCode() + valueType.hashCode();
+  }
+
+  @Override
+  public ManagedKeyedSet.Type<EK, V> inSet() {
+    if (setType_ == null) {
+      setType_ = new KeyedSetTypeProxy<>(this);
+    }
+    return setType_;
+  }
+
+  @Override
+  public Keyed<EK, V> construct(Object... ctorParams) {
+    if (ctorParams.length != 2) {
+      throw new IllegalArgumentException("Keyed values are constructed from a key and a value");
+    }
+    @SuppressWarnings("unchecked")
+    EK key = (EK)ctorParams[0];
+    @SuppressWarnings("unchecked")
+    V val = (V)ctorParams[1];
+    return new KeyedValue<>(key, val);
+  }
+
+  @Override
+  public Keyed<EK, V> lookupName(Namespace ns, CharSequence name) {
+    throw new UnsupportedOperationException("Keyed values can't be bound by themselves; bind the keyed set");
+  }
+
+  @Override
+  public Keyed<EK, V> bindIn(Namespace ns, CharSequence name, Keyed<EK, V> val, Prior prior) {
+    throw new UnsupportedOperationException("Keyed values can't be bound by themselves; bind the keyed set");
+  }
+
+  @Override
+  public <RT extends ManagedRecord> Field<RT, Keyed<EK, V>> fieldIn(RecordType<RT> recType, CharSequence name) {
+    throw new UnsupportedOperationException("Keyed values are only stored in keyed sets");
+  }
+
+  @Override
+  public <RT extends ManagedRecord> Field<RT, Keyed<EK, V>> findFieldIn(RecordType<RT> recType, CharSequence name) {
+    throw new UnsupportedOperationException("Keyed values are only stored in keyed sets");
+  }
+
+  @Override
+  public ManagedArray.Type<Keyed<EK, V>> inArray() {
+    throw new UnsupportedOperationException("Keyed values are only stored in keyed sets");
+  }
+
+  @Override
+  public ManagedList.Type<Keyed<EK, V>> inList() {
+    throw new UnsupportedOperationException("Keyed values are only stored in keyed sets");
+  }
+
+  @Override
+  public <K extends ManagedObject> ManagedMap.Type<K, Keyed<EK, V>> inMapFrom(ManagedType<K> keyType) {
+    throw new UnsupportedOperationException("Keyed values are only stored in keyed sets");
+  }
+
+  @Override
+  public ManagedMapFromString.Type<Keyed<EK, V>> inMapFromString() {
+    throw new UnsupportedOperationException("Keyed values are only stored in keyed sets");
+  }
+
+}
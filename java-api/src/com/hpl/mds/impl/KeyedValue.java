@@ -0,0 +1,97 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+package com.hpl.mds.impl;
+
+import java.util.Objects;
+
+import com.hpl.mds.ManagedObject;
+import com.hpl.mds.Namespace;
+import com.hpl.mds.Prior;
+import com.hpl.mds.keyed.Keyed;
+
+/*
+ * A value paired with the key it is filed under in a keyed set.  This
+ * is just a Java-side pair: what is stored is the key and the value,
+ * and two of these are equal when their keys are.
+ */
+public class KeyedValue<EK extends ManagedObject, V extends ManagedObject> implements Keyed<EK, V> {
+
+  private final EK key;
+  private final V value;
+
+  public KeyedValue(EK key, V value) {
+    this.key = Objects.requireNonNull(key);
+    this.value = value;
+  }
+
+  @Override
+  public EK key() {
+    return key;
+  }
+
+  @Override
+  public V value() {
+    return value;
+  }
+
+  @Override
+  public Keyed.Type<EK, V> type() {
+    @SuppressWarnings("unchecked")
+    Keyed.Type<EK, V> t = (Keyed.Type<EK, V>)KeyedTypeProxy.forTypes(key.type(), value.type());
+    return t;
+  }
+
+  @Override
+  public boolean isSameAs(ManagedObject other) {
+    return equals(other);
+  }
+
+  @Override
+  public ManagedObject bindName(Prior prior, Namespace ns, CharSequence name) {
+    throw new UnsupportedOperationException("Keyed values can't be bound by themselves; bind the keyed set");
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    } else if (!(obj instanceof Keyed)) {
+      return false;
+    }
+    return key.equals(((Keyed<?,?>)obj).key());
+  }
+
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return key + "=" + value;
+  }
+
+}
@@ -0,0 +1,190 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.Iterator;
+import java.util.Objects;
+
+import com.hpl.mds.*;
+import com.hpl.mds.usage.UsagePlan;
+import com.hpl.mds.usage.UsageScope;
+
+/*
+ * A managed list seen as a deque.  It has no state of its own, so two
+ * views are equal when they're views of the same list.
+ */
+public class ListDequeView<E extends ManagedObject> extends DequeAdapter<E> implements ManagedList.DequeView<E> {
+
+  protected final ListProxy<E> list;
+
+  protected ListDequeView(ListProxy<E> list) {
+    this.list = list;
+  }
+
+  @Override
+  public ManagedList<E> asManagedList() {
+    return list;
+  }
+
+  @Override
+  public ManagedList.Type<E> type() {
+    return list.type();
+  }
+
+  @Override
+  public ManagedType<E> eltType() {
+    return list.eltType();
+  }
+
+  @Override
+  public void addFirst(E e) {
+    Objects.requireNonNull(e);
+    list.addEnd(true, e);
+  }
+
+  @Override
+  public void addLast(E e) {
+    Objects.requireNonNull(e);
+    list.addEnd(false, e);
+  }
+
+  @Override
+  public E pollFirst() {
+    return list.removeEnd(true);
+  }
+
+  @Override
+  public E pollLast() {
+    return list.removeEnd(false);
+  }
+
+  @Override
+  public E peekFirst() {
+    return list.peekEnd(true);
+  }
+
+  @Override
+  public E peekLast() {
+    return list.peekEnd(false);
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    return list.iterator();
+  }
+
+  @Override
+  public Iterator<E> descendingIterator() {
+    return list.descendingIterator();
+  }
+
+  @Override
+  public long longSize() {
+    return list.longSize();
+  }
+
+  @Override
+  public int size() {
+    return list.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return list.isEmpty();
+  }
+
+  @Override
+  public void clear() {
+    list.clear();
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return list.contains(o);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof ListDequeView && list.equals(((ListDequeView<?>)o).list);
+  }
+
+  @Override
+  public int hashCode() {
+    return ~list.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return list.toString();
+  }
+
+  @Override
+  public boolean isIdentical(ManagedComposite other) {
+    return equals(other);
+  }
+
+  @Override
+  public boolean isSameObject(ManagedComposite other) {
+    return equals(other);
+  }
+
+  @Override
+  public boolean isSameViewOfSameObject(ManagedComposite other) {
+    return equals(other);
+  }
+
+  @Override
+  public ManagedObject bindName(Prior prior, Namespace ns, CharSequence name) {
+    list.bindName(prior, ns, name);
+    return this;
+  }
+
+  /*
+   * The layout is the only thing the hints decide, and it's fixed when
+   * the list is created.
+   */
+  @Override
+  public ManagedCollection<E> using(ManagedCollection.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedCollection<E> inherentUsage(ManagedCollection.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedCollection<E> usageDuring(UsageScope scope, ManagedCollection.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public UsagePlan usagePlan(ManagedCollection.Usage hint) {
+    return UsageImpl.NO_PLAN;
+  }
+
+}
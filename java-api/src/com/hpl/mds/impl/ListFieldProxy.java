@@ -0,0 +1,186 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+import com.hpl.mds.*;
+
+/*
+ * As with MapFieldProxy, a record whose field hasn't been set reads as
+ * having an empty list, and the first add through the field creates one.
+ */
+public class ListFieldProxy<RT extends ManagedRecord, E extends ManagedObject>
+  extends ContainerFieldProxy<RT, ManagedList<E>> implements ListField<RT,E> {
+
+  private final ManagedList.Type<E> valueType_;
+
+  private ListFieldProxy(long handleIndex, RecordTypeProxy<RT> recType, ManagedStringProxy name,
+                         ManagedList.Type<E> valType, ContainerTypeProxy<ManagedList<E>> type) {
+    super(handleIndex, recType, name, type);
+    this.valueType_ = valType;
+  }
+
+  static <RT extends ManagedRecord, E extends ManagedObject> ListFieldProxy<RT,E>
+  in(RecordType<RT> recType, CharSequence name, ManagedList.Type<E> valType,
+     ContainerTypeProxy<ManagedList<E>> type, boolean create)
+  {
+    return ContainerFieldProxy.<RT, ListFieldProxy<RT,E>>in(recType, name, type, create,
+                                                            (h, rtp, np) -> new ListFieldProxy<>(h, rtp, np, valType, type));
+  }
+
+  @Override
+  public ManagedList.Type<E> valueType() {
+    return valueType_;
+  }
+
+  private ManagedList<E> listFor(RT record) {
+    ManagedList<E> l = get(record);
+    if (l == null) {
+      l = valueType_.create();
+      set(record, l);
+    }
+    return l;
+  }
+
+  private List<E> elts(RT record) {
+    ManagedList<E> l = get(record);
+    return l == null ? Collections.emptyList() : l;
+  }
+
+  /*
+   * Positional changes to an unset field are out of bounds, so there's
+   * no point in creating a list for them.
+   */
+  private ManagedList<E> existing(RT record, int index) {
+    ManagedList<E> l = get(record);
+    if (l == null) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+    }
+    return l;
+  }
+
+  @Override
+  public int size(RT record) {
+    return elts(record).size();
+  }
+
+  @Override
+  public long longSize(RT record) {
+    ManagedList<E> l = get(record);
+    return l == null ? 0 : l.longSize();
+  }
+
+  @Override
+  public boolean contains(RT record, E o) {
+    return elts(record).contains(o);
+  }
+
+  @Override
+  public Iterable<E> elements(RT record) {
+    return elts(record);
+  }
+
+  @Override
+  public Iterator<E> iterator(RT record) {
+    return elts(record).iterator();
+  }
+
+  @Override
+  public boolean add(RT record, E e) {
+    return listFor(record).add(e);
+  }
+
+  @Override
+  public boolean remove(RT record, E o) {
+    ManagedList<E> l = get(record);
+    return l != null && l.remove(o);
+  }
+
+  @Override
+  public boolean addAll(RT record, int index, Collection<? extends E> c) {
+    return listFor(record).addAll(index, c);
+  }
+
+  @Override
+  public void clear(RT record) {
+    ManagedList<E> l = get(record);
+    if (l != null) {
+      l.clear();
+    }
+  }
+
+  @Override
+  public E get(RT record, int index) {
+    return elts(record).get(index);
+  }
+
+  @Override
+  public E set(RT record, int index, E element) {
+    return existing(record, index).set(index, element);
+  }
+
+  @Override
+  public void add(RT record, int index, E element) {
+    listFor(record).add(index, element);
+  }
+
+  @Override
+  public E remove(RT record, int index) {
+    return existing(record, index).remove(index);
+  }
+
+  @Override
+  public int indexOf(RT record, E o) {
+    return elts(record).indexOf(o);
+  }
+
+  @Override
+  public int lastIndexOf(RT record, E o) {
+    return elts(record).lastIndexOf(o);
+  }
+
+  @Override
+  public ListIterator<E> listIterator(RT record) {
+    return elts(record).listIterator();
+  }
+
+  @Override
+  public ListIterator<E> listIterator(RT record, int index) {
+    return elts(record).listIterator(index);
+  }
+
+  @Override
+  public List<E> subList(RT record, int fromIndex, int toIndex) {
+    return elts(record).subList(fromIndex, toIndex);
+  }
+
+}
@@ -0,0 +1,332 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+
+import com.hpl.mds.*;
+
+/*
+ * The parts of a managed list that can be written in terms of
+ * positional access, the operations at the ends, and a (chunked)
+ * iterator.  As with SetProxy, equality is identity of the underlying
+ * list (in the same view), not equality of contents.
+ */
+public abstract class ListProxy<E extends ManagedObject> extends Proxy implements ManagedList<E> {
+
+  protected static final int CHUNK_SIZE = 256;
+
+  /*
+   * The native representation, chosen when the list is created.  The
+   * ordinals match core::list_layout.
+   */
+  public enum Layout {
+    ARRAY, DEQUE, BAG;
+
+    static Layout forHints(Object hints) {
+      UsageImpl usage = UsageImpl.of(hints);
+      if (usage == null) {
+        return ARRAY;
+      } else if (usage.uses(ManagedList.BAG)) {
+        return BAG;
+      } else if (usage.uses(ManagedList.DEQUE)
+                 || usage.uses(ManagedList.QUEUE)
+                 || usage.uses(ManagedList.LINKED_LIST)
+                 || usage.optimizesFor(ManagedList.ADD_FIRST)
+                 || usage.optimizesFor(ManagedList.DELETE_FIRST)) {
+        return DEQUE;
+      }
+      return ARRAY;
+    }
+  }
+
+  protected final Layout layout_;
+
+  protected ListProxy(long handle, Layout layout) {
+    super(handle, null);
+    this.layout_ = layout;
+  }
+
+  public Layout layout() {
+    return layout_;
+  }
+
+  static long handleOf(ManagedList<?> list) {
+    ListProxy<?> p = (ListProxy<?>)list;
+    return p == null ? 0 : p.handleIndex();
+  }
+
+  abstract void addEnd(boolean first, E e);
+
+  /**
+   * @return null if the list is empty
+   */
+  abstract E removeEnd(boolean first);
+
+  /**
+   * @return null if the list is empty
+   */
+  abstract E peekEnd(boolean first);
+
+  /*
+   * Profiling hooks.  Which end a positional add or remove is at is
+   * only worked out for sampled calls, since it costs a size() call,
+   * so they have to be made before the list changes.
+   */
+  void noteEnd(boolean add, boolean first) {
+    if (add) {
+      UsageProfiler.note(this, first ? ManagedList.ADD_FIRST : ManagedList.ADD_LAST);
+    } else {
+      UsageProfiler.note(this, first ? ManagedList.DELETE_FIRST : ManagedList.DELETE_LAST);
+    }
+  }
+
+  void noteAt(boolean add, long index) {
+    if (!UsageProfiler.sample()) {
+      return;
+    }
+    long last = add ? longSize() : longSize()-1;
+    if (index == 0) {
+      UsageProfiler.record(this, add ? ManagedList.ADD_FIRST : ManagedList.DELETE_FIRST);
+    } else if (index == last) {
+      UsageProfiler.record(this, add ? ManagedList.ADD_LAST : ManagedList.DELETE_LAST);
+    } else {
+      UsageProfiler.record(this, add ? ManagedList.ADD_MIDDLE : ManagedList.DELETE_MIDDLE);
+    }
+  }
+
+  void noteRead() {
+    UsageProfiler.note(this, ManagedList.RANDOM_READ);
+  }
+
+  void noteWrite() {
+    UsageProfiler.note(this, ManagedList.RANDOM_WRITE);
+  }
+
+  void noteIterate() {
+    UsageProfiler.note(this, ManagedCollection.ITERATE);
+  }
+
+  static void checkFound(boolean found, long index) {
+    if (!found) {
+      throw new IndexOutOfBoundsException("Index: "+index);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (!(o instanceof ManagedComposite)) {
+      return false;
+    }
+    return isSameViewOfSameObject((ManagedComposite)o);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(handleIndex_);
+  }
+
+  @Override
+  public boolean isIdentical(ManagedComposite other) {
+    return isSameViewOfSameObject(other);
+  }
+
+  @Override
+  public boolean isSameObject(ManagedComposite other) {
+    return isSameViewOfSameObject(other);
+  }
+
+  /*
+   * As with sets, each element kind has its own handle table.
+   */
+  @Override
+  public boolean isSameViewOfSameObject(ManagedComposite other) {
+    if (other == this) {
+      return true;
+    } else if (other == null || other.getClass() != getClass()) {
+      return false;
+    }
+    return handleIndex_ == ((ListProxy<?>)other).handleIndex_;
+  }
+
+  @Override
+  public int size() {
+    long s = longSize();
+    return s > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)s;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return longSize() == 0;
+  }
+
+  @Override
+  public boolean add(E e) {
+    addEnd(false, e);
+    return true;
+  }
+
+  /*
+   * Reuse AbstractList's list iterators, sublists and array copying,
+   * which only need positional access.  Searching goes through
+   * iterator() instead, which fetches a chunk at a time.
+   */
+  private List<E> asList() {
+    return new AbstractList<E>() {
+      @Override
+      public E get(int index) {
+        return ListProxy.this.get(index);
+      }
+      @Override
+      public E set(int index, E e) {
+        return ListProxy.this.set(index, e);
+      }
+      @Override
+      public void add(int index, E e) {
+        ListProxy.this.add(index, e);
+      }
+      @Override
+      public E remove(int index) {
+        return ListProxy.this.remove(index);
+      }
+      @Override
+      public Iterator<E> iterator() {
+        return ListProxy.this.iterator();
+      }
+      @Override
+      public int size() {
+        return ListProxy.this.size();
+      }
+    };
+  }
+
+  @Override
+  public boolean addAll(int index, Collection<? extends E> c) {
+    return asList().addAll(index, c);
+  }
+
+  @Override
+  public int indexOf(Object o) {
+    int i = 0;
+    for (E e : this) {
+      if (Objects.equals(o, e)) {
+        return i;
+      }
+      i++;
+    }
+    return -1;
+  }
+
+  @Override
+  public int lastIndexOf(Object o) {
+    int i = 0;
+    int found = -1;
+    for (E e : this) {
+      if (Objects.equals(o, e)) {
+        found = i;
+      }
+      i++;
+    }
+    return found;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return indexOf(o) >= 0;
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    int i = indexOf(o);
+    if (i < 0) {
+      return false;
+    }
+    remove(i);
+    return true;
+  }
+
+  @Override
+  public ListIterator<E> listIterator() {
+    return asList().listIterator();
+  }
+
+  @Override
+  public ListIterator<E> listIterator(int index) {
+    return asList().listIterator(index);
+  }
+
+  @Override
+  public List<E> subList(int fromIndex, int toIndex) {
+    return asList().subList(fromIndex, toIndex);
+  }
+
+  Iterator<E> descendingIterator() {
+    ListIterator<E> it = listIterator(size());
+    return new Iterator<E>() {
+      @Override
+      public boolean hasNext() {
+        return it.hasPrevious();
+      }
+      @Override
+      public E next() {
+        return it.previous();
+      }
+      @Override
+      public void remove() {
+        it.remove();
+      }
+    };
+  }
+
+  @Override
+  public Object[] toArray() {
+    return asList().toArray();
+  }
+
+  @Override
+  public <T> T[] toArray(T[] a) {
+    return asList().toArray(a);
+  }
+
+  @Override
+  public String toString() {
+    return asList().toString();
+  }
+
+  @Override
+  public ManagedList.DequeView<E> asDeque() {
+    return new ListDequeView<>(this);
+  }
+
+}
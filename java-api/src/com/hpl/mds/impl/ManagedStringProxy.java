@@ -46,6 +46,8 @@ public class ManagedStringProxy extends Proxy implements ManagedString {
   private static native int length(long hi);
   private static native char charAt(long hi, int pos);
   private static native int compareTo(long hiA, long hiB);
+  private static native long[] internAll(String[] ss);
+  private static native long[] internStats();
   
 
 
@@ -109,6 +111,16 @@ public class ManagedStringProxy extends Proxy implements ManagedString {
     return toString(handleIndex_);
   }
 
+  /*
+   * We already have the Java string in hand when we intern, so there's no
+   * reason to go back across JNI to get it again.
+   */
+  synchronized private void seedCache(String s) {
+    if (cachedString_ == null) {
+      cachedString_ = s;
+    }
+  }
+
   @Override
   synchronized public void clearCache() {
     cachedString_ = null;
@@ -134,7 +146,48 @@ public class ManagedStringProxy extends Proxy implements ManagedString {
     if (val instanceof ManagedStringProxy) {
       return (ManagedStringProxy)val;
     }
-    return fromHandle(intern(val.toString()));
+    String s = val.toString();
+    ManagedStringProxy msp = fromHandle(intern(s));
+    msp.seedCache(s);
+    return msp;
+  }
+
+  /**
+   * Interns all of the given strings with a single native call.  Elements
+   * that are already managed strings are passed through, and null elements
+   * map to null.
+   */
+  public static ManagedStringProxy[] valueOfAll(CharSequence... vals) {
+    int n = vals.length;
+    ManagedStringProxy[] result = new ManagedStringProxy[n];
+    String[] toIntern = new String[n];
+    boolean any = false;
+    for (int i = 0; i < n; i++) {
+      CharSequence val = vals[i];
+      if (val instanceof ManagedStringProxy) {
+        result[i] = (ManagedStringProxy)val;
+      } else if (val != null) {
+        toIntern[i] = val.toString();
+        any = true;
+      }
+    }
+    if (any) {
+      long[] handles = internAll(toIntern);
+      for (int i = 0; i < n; i++) {
+        if (handles[i] != 0) {
+          result[i] = fromHandle(handles[i]);
+          result[i].seedCache(toIntern[i]);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * The raw counters behind {@link StringTableStats}.
+   */
+  public static long[] stringTableStats() {
+    return internStats();
   }
   @Override
   public ManagedStringType type() {
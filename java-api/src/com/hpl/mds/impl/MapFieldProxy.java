@@ -0,0 +1,153 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+
+package com.hpl.mds.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.hpl.mds.*;
+
+/*
+ * The per-record map operations go through the map in the field.  A
+ * record whose field hasn't been set reads as having an empty map, and
+ * the first change through the field creates one.
+ */
+public class MapFieldProxy<RT extends ManagedRecord, K extends ManagedObject, V extends ManagedObject>
+  extends ContainerFieldProxy<RT, ManagedMap<K,V>> implements MapField<RT,K,V> {
+
+  private final ManagedMap.Type<K,V> valueType_;
+
+  private MapFieldProxy(long handleIndex, RecordTypeProxy<RT> recType, ManagedStringProxy name,
+                        ManagedMap.Type<K,V> valType, ContainerTypeProxy<ManagedMap<K,V>> type) {
+    super(handleIndex, recType, name, type);
+    this.valueType_ = valType;
+  }
+
+  static <RT extends ManagedRecord, K extends ManagedObject, V extends ManagedObject> MapFieldProxy<RT,K,V>
+  in(RecordType<RT> recType, CharSequence name, ManagedMap.Type<K,V> valType,
+     ContainerTypeProxy<ManagedMap<K,V>> type, boolean create)
+  {
+    return ContainerFieldProxy.<RT, MapFieldProxy<RT,K,V>>in(recType, name, type, create,
+                                                             (h, rtp, np) -> new MapFieldProxy<>(h, rtp, np, valType, type));
+  }
+
+  @Override
+  public ManagedMap.Type<K,V> valueType() {
+    return valueType_;
+  }
+
+  private ManagedMap<K,V> mapFor(RT record) {
+    ManagedMap<K,V> m = get(record);
+    if (m == null) {
+      m = valueType_.create();
+      set(record, m);
+    }
+    return m;
+  }
+
+  @Override
+  public int size(RT record) {
+    ManagedMap<K,V> m = get(record);
+    return m == null ? 0 : m.size();
+  }
+
+  @Override
+  public long longSize(RT record) {
+    ManagedMap<K,V> m = get(record);
+    return m == null ? 0 : m.longSize();
+  }
+
+  @Override
+  public boolean isEmpty(RT record) {
+    ManagedMap<K,V> m = get(record);
+    return m == null || m.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(RT record, K key) {
+    ManagedMap<K,V> m = get(record);
+    return m != null && m.containsKey(key);
+  }
+
+  @Override
+  public boolean containsValue(RT record, V value) {
+    ManagedMap<K,V> m = get(record);
+    return m != null && m.containsValue(value);
+  }
+
+  @Override
+  public V get(RT record, K key) {
+    ManagedMap<K,V> m = get(record);
+    return m == null ? null : m.get(key);
+  }
+
+  @Override
+  public V put(RT record, K key, V value) {
+    return mapFor(record).put(key, value);
+  }
+
+  @Override
+  public V remove(RT record, K key) {
+    ManagedMap<K,V> m = get(record);
+    return m == null ? null : m.remove(key);
+  }
+
+  @Override
+  public void putAll(RT record, Map<? extends K, ? extends V> map) {
+    mapFor(record).putAll(map);
+  }
+
+  @Override
+  public void clear(RT record) {
+    ManagedMap<K,V> m = get(record);
+    if (m != null) {
+      m.clear();
+    }
+  }
+
+  @Override
+  public Set<K> keySet(RT record) {
+    ManagedMap<K,V> m = get(record);
+    return m == null ? Collections.emptySet() : m.keySet();
+  }
+
+  @Override
+  public Collection<V> values(RT record) {
+    ManagedMap<K,V> m = get(record);
+    return m == null ? Collections.emptyList() : m.values();
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet(RT record) {
+    ManagedMap<K,V> m = get(record);
+    return m == null ? Collections.emptySet() : m.entrySet();
+  }
+
+}
@@ -0,0 +1,255 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.hpl.mds.*;
+import com.hpl.mds.usage.UsagePlan;
+import com.hpl.mds.usage.UsageScope;
+
+/*
+ * Each key in the native map has its own presence and value MSVs, so
+ * tasks that touch disjoint keys don't conflict with one another.  In
+ * particular, size() walks the entries rather than reading a shared
+ * counter.
+ */
+public class MapFromStringProxy<V extends ManagedObject> extends StringKeyedMapProxy<V> {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private static native void release(int valKind, long handle);
+  private static native long create(int valKind, long expectedSize);
+  private static native long getHandle(int valKind, long handle, long keyHandle);
+  private static native long putHandle(int valKind, long handle, long keyHandle, long valHandle,
+                                       boolean onlyIfAbsent);
+  private static native long removeHandle(int valKind, long handle, long keyHandle);
+  private static native boolean containsKey(int valKind, long handle, long keyHandle);
+  private static native long size(int valKind, long handle);
+  private static native void clear(int valKind, long handle);
+  private static native int listChunk(int valKind, long handle, long afterKeyHandle,
+                                      long[] keys, long[] vals);
+
+  private final MapFromStringTypeProxy<V> type;
+  
+  @Override
+  void releaseHandleIndex(long index) {
+    release(type.valKind, index);
+  }
+
+  private MapFromStringProxy(long handle, MapFromStringTypeProxy<V> type) {
+    super(handle);
+    this.type = type;
+  }
+
+  static <V extends ManagedObject>
+  MapFromStringProxy<V> create(MapFromStringTypeProxy<V> type, long expectedSize) {
+    long h = create(type.valKind, expectedSize);
+    return new MapFromStringProxy<>(h, type);
+  }
+
+  static <V extends ManagedObject>
+  MapFromStringProxy<V> fromHandle(long handle, MapFromStringTypeProxy<V> type) {
+    return handle == 0 ? null : new MapFromStringProxy<>(handle, type);
+  }
+
+  static long handleOf(ManagedMap<?,?> map) {
+    MapFromStringProxy<?> p = (MapFromStringProxy<?>)map;
+    return p == null ? 0 : p.handleIndex();
+  }
+
+  private static long keyHandle(Object key) {
+    if (key instanceof CharSequence) {
+      return ManagedStringProxy.handleOf((CharSequence)key);
+    }
+    return 0;
+  }
+
+  private long valHandle(V val) {
+    return val == null ? 0 : type.handleOf.applyAsLong(val);
+  }
+
+  private V fromHandle(long h) {
+    return h == 0 ? null : type.fromHandle.apply(h);
+  }
+
+  @Override
+  public MapFromStringTypeProxy<V> type() {
+    return type;
+  }
+
+  @Override
+  public ManagedType<V> valueType() {
+    return type.valueType();
+  }
+
+  @Override
+  public long longSize() {
+    return size(type.valKind, handleIndex_);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    long kh = keyHandle(key);
+    return kh != 0 && containsKey(type.valKind, handleIndex_, kh);
+  }
+
+  @Override
+  public V get(Object key) {
+    long kh = keyHandle(key);
+    V v = kh == 0 ? null : fromHandle(getHandle(type.valKind, handleIndex_, kh));
+    noteLookup(v != null);
+    return v;
+  }
+
+  @Override
+  public V put(CharSequence k, V v) {
+    noteUpdate(k);
+    long prior = putHandle(type.valKind, handleIndex_, keyHandle(k), valHandle(v), false);
+    return fromHandle(prior);
+  }
+
+  @Override
+  public V putIfAbsent(CharSequence k, V v) {
+    noteUpdate(k);
+    long current = putHandle(type.valKind, handleIndex_, keyHandle(k), valHandle(v), true);
+    return fromHandle(current);
+  }
+
+  @Override
+  public V remove(Object key) {
+    noteDelete();
+    long kh = keyHandle(key);
+    return kh == 0 ? null : fromHandle(removeHandle(type.valKind, handleIndex_, kh));
+  }
+
+  @Override
+  public void clear() {
+    clear(type.valKind, handleIndex_);
+  }
+
+  /*
+   * Walks the entries CHUNK_SIZE at a time.  Proxies for a whole chunk
+   * are made as soon as it arrives, so the last key keeps its handle
+   * alive to continue the walk from.
+   */
+  private class EntryIterator implements Iterator<Map.Entry<ManagedString, V>> {
+    private final long[] keyHandles = new long[CHUNK_SIZE];
+    private final long[] valHandles = new long[CHUNK_SIZE];
+    private final ManagedStringProxy[] keys = new ManagedStringProxy[CHUNK_SIZE];
+    private final List<V> vals = new ArrayList<>(CHUNK_SIZE);
+    private int n = 0;
+    private int pos = 0;
+    private boolean exhausted = false;
+    private ManagedString last = null;
+
+    private void fill() {
+      while (pos == n && !exhausted) {
+        long after = n == 0 ? 0 : keys[n-1].handleIndex();
+        int r = listChunk(type.valKind, handleIndex_, after, keyHandles, valHandles);
+        if (r < 0) {
+          exhausted = true;
+          r = -(r+1);
+        }
+        vals.clear();
+        for (int i = 0; i < r; i++) {
+          keys[i] = ManagedStringProxy.fromHandle(keyHandles[i]);
+          vals.add(fromHandle(valHandles[i]));
+        }
+        n = r;
+        pos = 0;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      fill();
+      return pos < n;
+    }
+
+    @Override
+    public Map.Entry<ManagedString, V> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ManagedString k = keys[pos];
+      V v = vals.get(pos);
+      pos++;
+      last = k;
+      return entry(k, v);
+    }
+
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException();
+      }
+      MapFromStringProxy.this.remove(last);
+      last = null;
+    }
+  }
+
+  @Override
+  protected Iterator<Map.Entry<ManagedString, V>> entryIterator() {
+    return new EntryIterator();
+  }
+
+  @Override
+  public MapFromStringProxy<V> bindName(Prior prior, Namespace ns, CharSequence name) {
+    type.bindIn(ns, name, this, prior);
+    return this;
+  }
+
+  /*
+   * The capacity is the only thing the hints decide, and it's fixed
+   * when the map is created.
+   */
+  @Override
+  public ManagedMapFromString<V> using(ManagedMapFromString.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedMapFromString<V> inherentUsage(ManagedMapFromString.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedMapFromString<V> usageDuring(UsageScope scope, ManagedMapFromString.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public UsagePlan usagePlan(ManagedMapFromString.Usage hint) {
+    return UsageImpl.NO_PLAN;
+  }
+
+}
@@ -0,0 +1,163 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+import com.hpl.mds.*;
+
+/*
+ * Carries the value kind and the handle converters for the map's
+ * values, and (made on first use) the native container type that lets
+ * maps be bound in namespaces, stored in fields and held in arrays.
+ */
+public class MapFromStringTypeProxy<V extends ManagedObject> 
+  implements ManagedMapFromString.Type<V>, ContainerTypeImpl<ManagedMap<ManagedString, V>>
+{
+  static final int RECORD_KIND = 12;
+  static final int STRING_KIND = 11;
+  
+  private static final long DEFAULT_EXPECTED_SIZE = 10;
+  
+  final int valKind;
+  final ManagedType<V> valType;
+  final ToLongFunction<? super V> handleOf;
+  final LongFunction<? extends V> fromHandle;
+  private ContainerTypeProxy<ManagedMap<ManagedString, V>> containerType_ = null;
+  
+  private MapFromStringTypeProxy(int valKind, ManagedType<V> valType,
+                                 ToLongFunction<? super V> handleOf,
+                                 LongFunction<? extends V> fromHandle) {
+    this.valKind = valKind;
+    this.valType = valType;
+    this.handleOf = handleOf;
+    this.fromHandle = fromHandle;
+  }
+  
+  static <R extends ManagedRecord>
+  MapFromStringTypeProxy<R> forType(RecordTypeProxy<R> rt) {
+    return new MapFromStringTypeProxy<>(RECORD_KIND, rt, 
+                                        ManagedRecordProxy::handleOf,
+                                        h -> ManagedRecordProxy.fromHandle(h, rt));
+  }
+
+  @Override
+  public ManagedType<V> valueType() {
+    return valType;
+  }
+
+  @Override
+  public ContainerTypeProxy<ManagedMap<ManagedString, V>> containerType() {
+    if (containerType_ == null) {
+      containerType_ = ContainerTypeProxy.stringMap(valType, this, MapFromStringProxy::handleOf,
+                                                    h -> MapFromStringProxy.fromHandle(h, this));
+    }
+    return containerType_;
+  }
+
+  @Override
+  public ManagedMapFromString<V> construct(Object... ctorParams) {
+    throw new UnsupportedOperationException("Maps are created with create()");
+  }
+
+  @Override
+  public ManagedMapFromString<V> create() {
+    return create(DEFAULT_EXPECTED_SIZE);
+  }
+  
+  public ManagedMapFromString<V> create(long expectedSize) {
+    return MapFromStringProxy.create(this, expectedSize);
+  }
+
+  @Override
+  public ManagedMapFromString<V> create(ManagedMapFromString.Usage hints) {
+    return create(UsageImpl.capacityHint(hints, DEFAULT_EXPECTED_SIZE));
+  }
+
+  @Override
+  public ManagedMapFromString<V> create(ManagedMap.Usage hints) {
+    return create(UsageImpl.capacityHint(hints, DEFAULT_EXPECTED_SIZE));
+  }
+
+  @Override
+  public ManagedMapFromString<V> create(ManagedContainer.Usage hints) {
+    return create(UsageImpl.capacityHint(hints, DEFAULT_EXPECTED_SIZE));
+  }
+
+  @Override
+  public ManagedMapFromString<V> lookupName(Namespace ns, CharSequence name) {
+    return (ManagedMapFromString<V>)containerType().lookupName(ns, name);
+  }
+
+  @Override
+  public ManagedMap<ManagedString, V> bindIn(Namespace ns, CharSequence name, 
+                                             ManagedMap<ManagedString, V> val, Prior prior) {
+    return containerType().bindIn(ns, name, val, prior);
+  }
+
+  @Override
+  public <RT extends ManagedRecord> MapField<RT, ManagedString, V> fieldIn(RecordType<RT> recType, 
+                                                                            CharSequence name) {
+    return MapFieldProxy.in(recType, name, this, containerType(), true);
+  }
+
+  @Override
+  public <RT extends ManagedRecord> MapField<RT, ManagedString, V> findFieldIn(RecordType<RT> recType, 
+                                                                                CharSequence name) {
+    return MapFieldProxy.in(recType, name, this, containerType(), false);
+  }
+
+  @Override
+  public ManagedArray.Type<ManagedMap<ManagedString, V>> inArray() {
+    return containerType().inArray();
+  }
+
+  /*
+   * Containers can't yet hold containers.
+   */
+  @Override
+  public ManagedList.Type<ManagedMap<ManagedString, V>> inList() {
+    throw new UnsupportedOperationException("Lists of maps are not supported");
+  }
+
+  @Override
+  public ManagedSet.Type<ManagedMap<ManagedString, V>> inSet() {
+    throw new UnsupportedOperationException("Sets of maps are not supported");
+  }
+
+  @Override
+  public <K extends ManagedObject> ManagedMap.Type<K, ManagedMap<ManagedString, V>> inMapFrom(ManagedType<K> keyType) {
+    throw new UnsupportedOperationException("Maps to maps are not supported");
+  }
+
+  @Override
+  public ManagedMapFromString.Type<ManagedMap<ManagedString, V>> inMapFromString() {
+    throw new UnsupportedOperationException("Maps to maps are not supported");
+  }
+
+}
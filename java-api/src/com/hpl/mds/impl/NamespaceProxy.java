@@ -26,6 +26,17 @@
 
 package com.hpl.mds.impl;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import com.hpl.erk.files.StreamCompressor;
+import com.hpl.erk.files.StreamDecompressor;
 import com.hpl.mds.*;
 
 public class NamespaceProxy extends Proxy implements Namespace {
@@ -38,6 +49,13 @@ public class NamespaceProxy extends Proxy implements Namespace {
   private static native long rootHandle();
   private static native long childHandle(long h, long nameHandle, boolean createIfMissing);
   private static native boolean isBound(long h,long nameHandle);
+  static native ByteBuffer namingCounterBuffer(int which);
+  private static native long snapshotHandle(long h);
+  static native int listChunk(long h, long afterNameHandle, long prefixHandle,
+                              long[] names, boolean[] isNamespace);
+  static native void scan(long h, long recordTypeHandle, long[] batch, NamespaceScan<?> sink);
+  static native long[] exportTo(long h, byte[] buffer, NamespaceTransfer sink) throws IOException;
+  static native long[] importFrom(long h, byte[] buffer, NamespaceTransfer sink) throws IOException;
   
   private final HNameImpl path;
   
@@ -72,6 +90,70 @@ public class NamespaceProxy extends Proxy implements Namespace {
     }
   }
   
+  @Override
+  public Spliterator<Binding> spliterator(CharSequence prefix) {
+    NamespaceProxy snapshot = new NamespaceProxy(snapshotHandle(handleIndex_), path);
+    return new NamespaceSpliterator(snapshot, prefix == null ? null : ManagedStringProxy.valueOf(prefix));
+  }
+
+  @Override
+  public <R extends ManagedRecord> void scan(RecordType<R> type, Consumer<? super R> consumer,
+                                             int parallelism) {
+    new NamespaceScan<>(this, RecordTypeProxy.downcast(type), consumer, parallelism).run();
+  }
+
+  @Override
+  public void exportTo(Path file) throws IOException {
+    try (OutputStream out = StreamCompressor.compressTo(file.toFile())) {
+      NamespaceTransfer.exportTo(this, out);
+    }
+  }
+
+  @Override
+  public void exportTo(Path file, StreamCompressor compressor) throws IOException {
+    try (OutputStream out = compressor.compress(Files.newOutputStream(file))) {
+      NamespaceTransfer.exportTo(this, out);
+    }
+  }
+
+  @Override
+  public void importFrom(Path file) throws IOException {
+    try (InputStream in = StreamDecompressor.decompress(file.toFile())) {
+      NamespaceTransfer.importFrom(this, in);
+    }
+  }
+
+  @Override
+  public void importFrom(Path file, StreamDecompressor decompressor) throws IOException {
+    try (InputStream in = decompressor.decompress(Files.newInputStream(file))) {
+      NamespaceTransfer.importFrom(this, in);
+    }
+  }
+
+  /**
+   * Lookups of bound objects are answered from the current context's
+   * NamingCache when nothing has been bound since they were last done.
+   */
+  @Override
+  public <T extends ManagedObject> T lookup(CharSequence name, ManagedType<T> type) {
+    if (!(path instanceof HNameImpl.AbsoluteHNI)) {
+      return type.lookupName(this, name);
+    }
+    NamingCache cache = NamingCache.current();
+    long stamp = NamingCache.bindingStamp();
+    NamingCache.LookupKey key
+      = new NamingCache.LookupKey(((HNameImpl.AbsoluteHNI)path).cacheKey()+HName.DEFAULT_SEPARATOR+name, type);
+    @SuppressWarnings("unchecked")
+    T val = (T)cache.lookup(key, stamp);
+    if (val == null) {
+      val = type.lookupName(this, name);
+      if (val != null) {
+        cache.putLookup(key, stamp, val);
+      }
+    }
+    return val;
+  }
+
   @Override
   public HNameImpl getPath() {
     return path;
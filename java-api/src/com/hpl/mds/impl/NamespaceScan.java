@@ -0,0 +1,140 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import com.hpl.mds.IsolationContext;
+import com.hpl.mds.ManagedRecord;
+
+/**
+ * One call to Namespace.scan().  The graph is walked by a single native
+ * call on the calling thread, which hands back record handles a batch
+ * at a time through deliver().  Each batch becomes a task in a private
+ * ForkJoinPool, split in halves down to SEQUENTIAL_SIZE, so consumers
+ * run in parallel with the walk and with each other.  The walk and the
+ * consumers all run in the same read-only snapshot.
+ */
+class NamespaceScan<R extends ManagedRecord> {
+  private static final int BATCH_SIZE = Integer.getInteger("com.hpl.mds.scanBatchSize", 256);
+  private static final int SEQUENTIAL_SIZE = 16;
+
+  private final NamespaceProxy ns;
+  private final RecordTypeProxy<R> type;
+  private final Consumer<? super R> consumer;
+  private final ForkJoinPool pool;
+  private final IsolationContext snapshot;
+  private final long[] batch = new long[BATCH_SIZE];
+  private final List<ForkJoinTask<?>> submitted = new ArrayList<>();
+  private volatile Throwable failure = null;
+
+  NamespaceScan(NamespaceProxy ns, RecordTypeProxy<R> type,
+                Consumer<? super R> consumer, int parallelism) {
+    this.ns = ns;
+    this.type = type;
+    this.consumer = consumer;
+    this.pool = new ForkJoinPool(parallelism);
+    this.snapshot = IsolationContext.current().createReadOnlySnapshot();
+  }
+
+  void run() {
+    try {
+      snapshot.run(() -> NamespaceProxy.scan(ns.handleIndex(), type.handleIndex(), batch, this));
+      for (ForkJoinTask<?> t : submitted) {
+        t.join();
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /*
+   * Called from the native walk with the number of handles in batch.
+   * Returning false stops the walk.
+   */
+  private boolean deliver(int n) {
+    long[] handles = Arrays.copyOf(batch, n);
+    if (failure != null) {
+      adopt(handles, 0, n);
+      return false;
+    }
+    submitted.add(pool.submit(new Batch(handles, 0, n)));
+    return true;
+  }
+
+  /*
+   * Making the proxies is what takes ownership of the handles, so it's
+   * done even once a consumer has failed.
+   */
+  private List<R> adopt(long[] handles, int from, int to) {
+    List<R> records = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      records.add(ManagedRecordProxy.fromHandle(handles[i], type));
+    }
+    return records;
+  }
+
+  private class Batch extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final long[] handles;
+    private final int from;
+    private final int to;
+
+    Batch(long[] handles, int from, int to) {
+      this.handles = handles;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > SEQUENTIAL_SIZE) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new Batch(handles, from, mid), new Batch(handles, mid, to));
+        return;
+      }
+      List<R> records = adopt(handles, from, to);
+      if (failure != null) {
+        return;
+      }
+      try (IsolationContext.Use use = snapshot.use()) {
+        for (R r : records) {
+          consumer.accept(r);
+        }
+      } catch (RuntimeException | Error e) {
+        failure = e;
+        throw e;
+      }
+    }
+  }
+}
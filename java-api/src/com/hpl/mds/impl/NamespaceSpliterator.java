@@ -0,0 +1,192 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import com.hpl.mds.ManagedObject;
+import com.hpl.mds.ManagedString;
+import com.hpl.mds.ManagedType;
+import com.hpl.mds.Namespace;
+
+/**
+ * Walks the bindings of a snapshot of a namespace, pulling them across JNI a
+ * chunk at a time.  The native side resumes each chunk from the last name
+ * returned, so the walk needs no native state beyond the snapshot handle.
+ * Splitting hands off the next chunk, which makes parallel streams work
+ * without having to know the size of the namespace up front.
+ */
+class NamespaceSpliterator implements Spliterator<Namespace.Binding> {
+  private static final int CHUNK_SIZE = Integer.getInteger("com.hpl.mds.namespaceChunkSize", 256);
+  private static final int CHARACTERISTICS = DISTINCT | NONNULL | IMMUTABLE;
+
+  private final NamespaceProxy snapshot;
+  /*
+   * We hold onto the prefix so that its handle stays good while we're
+   * walking.
+   */
+  private final ManagedStringProxy prefix;
+  private final long prefixHandle;
+  private ManagedStringProxy lastName = null;
+  private boolean exhausted = false;
+
+  private Namespace.Binding[] buffer = new Namespace.Binding[0];
+  private int pos = 0;
+
+  NamespaceSpliterator(NamespaceProxy snapshot, ManagedStringProxy prefix) {
+    this.snapshot = snapshot;
+    this.prefix = prefix;
+    this.prefixHandle = prefix == null ? 0 : prefix.handleIndex();
+  }
+
+  static class BindingImpl implements Namespace.Binding {
+    private final NamespaceProxy ns;
+    private final ManagedStringProxy name;
+    private final boolean isNamespace;
+
+    BindingImpl(NamespaceProxy ns, ManagedStringProxy name, boolean isNamespace) {
+      this.ns = ns;
+      this.name = name;
+      this.isNamespace = isNamespace;
+    }
+
+    @Override
+    public ManagedString getName() {
+      return name;
+    }
+
+    @Override
+    public boolean isNamespace() {
+      return isNamespace;
+    }
+
+    @Override
+    public Namespace asNamespace() {
+      return ns.childNamespace(name);
+    }
+
+    @Override
+    public <T extends ManagedObject> T lookup(ManagedType<T> type) {
+      return ns.lookup(name, type);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s%s", name, isNamespace ? "/" : "");
+    }
+  }
+
+  /**
+   * Fetches the next chunk from the heap.  Returns null when there's nothing
+   * left.
+   */
+  private Namespace.Binding[] fetch() {
+    while (!exhausted) {
+      long[] names = new long[CHUNK_SIZE];
+      boolean[] isNamespace = new boolean[CHUNK_SIZE];
+      int n = NamespaceProxy.listChunk(snapshot.handleIndex(),
+                                        lastName == null ? 0 : lastName.handleIndex(),
+                                        prefixHandle, names, isNamespace);
+      if (n < 0) {
+        n = -(n+1);
+        exhausted = true;
+      }
+      if (n > 0) {
+        Namespace.Binding[] chunk = new Namespace.Binding[n];
+        ManagedStringProxy name = null;
+        for (int i = 0; i < n; i++) {
+          name = ManagedStringProxy.fromHandle(names[i]);
+          chunk[i] = new BindingImpl(snapshot, name, isNamespace[i]);
+        }
+        // Holding the proxy keeps the handle we resume from valid.
+        lastName = name;
+        return chunk;
+      }
+    }
+    return null;
+  }
+
+  private boolean fill() {
+    if (pos < buffer.length) {
+      return true;
+    }
+    Namespace.Binding[] chunk = fetch();
+    if (chunk == null) {
+      return false;
+    }
+    buffer = chunk;
+    pos = 0;
+    return true;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Namespace.Binding> action) {
+    if (!fill()) {
+      return false;
+    }
+    action.accept(buffer[pos++]);
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super Namespace.Binding> action) {
+    while (fill()) {
+      while (pos < buffer.length) {
+        action.accept(buffer[pos++]);
+      }
+    }
+  }
+
+  @Override
+  public Spliterator<Namespace.Binding> trySplit() {
+    Namespace.Binding[] chunk;
+    if (pos < buffer.length) {
+      chunk = Arrays.copyOfRange(buffer, pos, buffer.length);
+      pos = buffer.length;
+    } else {
+      chunk = fetch();
+      if (chunk == null) {
+        return null;
+      }
+    }
+    return Spliterators.spliterator(chunk, CHARACTERISTICS);
+  }
+
+  @Override
+  public long estimateSize() {
+    return exhausted ? buffer.length-pos : Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return CHARACTERISTICS;
+  }
+
+}
@@ -0,0 +1,104 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.hpl.mds.FailedTransactionException;
+import com.hpl.mds.IsolationContext;
+
+/**
+ * One call to Namespace.exportTo() or importFrom().  The stream is
+ * written and read by a single native call, which passes the bytes
+ * through one fixed-size buffer, calling write() each time it has
+ * filled it and read() each time it wants it refilled, so neither
+ * direction holds more than that in Java.  The format is described in
+ * core_transfer.h.
+ */
+class NamespaceTransfer {
+  private static final int BUFFER_SIZE = Integer.getInteger("com.hpl.mds.transferBufferSize", 1<<16);
+
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private final OutputStream out;
+  private final InputStream in;
+
+  private NamespaceTransfer(OutputStream out, InputStream in) {
+    this.out = out;
+    this.in = in;
+  }
+
+  /**
+   * Exports from a read-only snapshot made now, so the stream is
+   * consistent however the namespace changes while it's being written.
+   */
+  static void exportTo(NamespaceProxy ns, OutputStream out) throws IOException {
+    NamespaceTransfer t = new NamespaceTransfer(out, null);
+    try (IsolationContext.Use use = IsolationContext.current().createReadOnlySnapshot().use()) {
+      NamespaceProxy.exportTo(ns.handleIndex(), t.buffer, t);
+    }
+    out.flush();
+  }
+
+  /**
+   * Imports in a child of the current context, which is published once
+   * at the end, so nobody sees a partial import.
+   *
+   * @throws FailedTransactionException if the publish fails
+   */
+  static void importFrom(NamespaceProxy ns, InputStream in) throws IOException {
+    NamespaceTransfer t = new NamespaceTransfer(null, in);
+    IsolationContext ctxt = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = ctxt.use()) {
+      NamespaceProxy.importFrom(ns.handleIndex(), t.buffer, t);
+    }
+    if (!ctxt.publish().succeeded()) {
+      throw new FailedTransactionException("Import into "+ns.getPath()+" failed to publish");
+    }
+  }
+
+  /*
+   * Called from the native side.
+   */
+  void write(int n) throws IOException {
+    out.write(buffer, 0, n);
+  }
+
+  int read() throws IOException {
+    int n = 0;
+    while (n < buffer.length) {
+      int got = in.read(buffer, n, buffer.length-n);
+      if (got < 0) {
+        break;
+      }
+      n += got;
+    }
+    return n == 0 ? -1 : n;
+  }
+
+}
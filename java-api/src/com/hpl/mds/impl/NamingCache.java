@@ -0,0 +1,166 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hpl.mds.ManagedObject;
+import com.hpl.mds.ManagedType;
+import com.hpl.mds.Namespace;
+
+/**
+ * A cache, one per isolation context, of the namespaces that absolute paths
+ * resolve to and of the objects that names are bound to.  What a path means
+ * depends on the context it's resolved in (and a namespace's handle is tied
+ * to a view), so each context has its own, hung off its IsoContextProxy.
+ * <p>
+ * Each entry is stamped with the naming counters (see
+ * namespace_handle::counter()) read before it was resolved.  The counters
+ * live in native memory and are read through direct buffers, so checking an
+ * entry takes no native call.  The heap-wide epochs only move when a context
+ * that bound names publishes, and the local counts when this process binds,
+ * so an entry stays good until something that might change its answer
+ * becomes visible.  Namespace entries only care about namespaces being
+ * replaced, which is rare.  Lookup entries are dropped by any bind.
+ */
+final class NamingCache {
+  private static final int MAX_ENTRIES = Integer.getInteger("com.hpl.mds.namingCacheSize", 1 << 16);
+
+  private static final ByteBuffer namespaceEpoch = counter(0);
+  private static final ByteBuffer bindingEpoch = counter(1);
+  private static final ByteBuffer localNamespaceRebinds = counter(2);
+  private static final ByteBuffer localBinds = counter(3);
+
+  private final ConcurrentHashMap<String, Entry<Namespace>> namespaces = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<LookupKey, Entry<ManagedObject>> bindings = new ConcurrentHashMap<>();
+
+  private static ByteBuffer counter(int which) {
+    return NamespaceProxy.namingCounterBuffer(which).order(ByteOrder.nativeOrder());
+  }
+
+  static final class Entry<T> {
+    final long stamp;
+    final T value;
+
+    Entry(long stamp, T value) {
+      this.stamp = stamp;
+      this.value = value;
+    }
+  }
+
+  static final class LookupKey {
+    final String path;
+    final ManagedType<?> type;
+
+    LookupKey(String path, ManagedType<?> type) {
+      this.path = path;
+      this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof LookupKey)) {
+        return false;
+      }
+      LookupKey other = (LookupKey)obj;
+      return path.equals(other.path) && type == other.type;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, System.identityHashCode(type));
+    }
+  }
+
+  NamingCache() {}
+
+  static NamingCache current() {
+    return IsoContextProxy.current().namingCache();
+  }
+
+  /*
+   * The counters never go backwards, so their sum moves whenever either
+   * does.
+   */
+  static long namespaceStamp() {
+    return namespaceEpoch.getLong(0)+localNamespaceRebinds.getLong(0);
+  }
+
+  static long bindingStamp() {
+    return bindingEpoch.getLong(0)+localBinds.getLong(0);
+  }
+
+  private static <K,T> T get(ConcurrentHashMap<K, Entry<T>> map, K key, long stamp) {
+    Entry<T> e = map.get(key);
+    return e != null && e.stamp == stamp ? e.value : null;
+  }
+
+  /*
+   * The stamp must have been read before the value was resolved, so that a
+   * bind that races with the resolution leaves a stale entry behind rather
+   * than a wrong one.
+   */
+  private static <K,T> void put(ConcurrentHashMap<K, Entry<T>> map, K key, long stamp, T value) {
+    if (map.size() >= MAX_ENTRIES) {
+      /*
+       * Services tend to use a few thousand distinct names, so if we get
+       * here it's most likely a scan over generated names.  Start over
+       * rather than paying for LRU bookkeeping on every hit.
+       */
+      map.clear();
+    }
+    map.put(key, new Entry<>(stamp, value));
+  }
+
+  Namespace namespace(String path, long stamp) {
+    return get(namespaces, path, stamp);
+  }
+
+  void putNamespace(String path, long stamp, Namespace ns) {
+    put(namespaces, path, stamp, ns);
+  }
+
+  ManagedObject lookup(LookupKey key, long stamp) {
+    return get(bindings, key, stamp);
+  }
+
+  void putLookup(LookupKey key, long stamp, ManagedObject val) {
+    put(bindings, key, stamp, val);
+  }
+
+  void clear() {
+    namespaces.clear();
+    bindings.clear();
+  }
+
+  int size() {
+    return namespaces.size()+bindings.size();
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import com.hpl.mds.*;
+
+/*
+ * There's no OrderedMapField interface, so this is just a field holding
+ * an ordered map, which reads as null until it's set.
+ */
+public class OrderedMapFieldProxy<RT extends ManagedRecord, K extends ManagedObject, V extends ManagedObject>
+  extends ContainerFieldProxy<RT, ManagedOrderedMap<K,V>> {
+
+  private final ManagedOrderedMap.Type<K,V> valueType_;
+
+  private OrderedMapFieldProxy(long handleIndex, RecordTypeProxy<RT> recType, ManagedStringProxy name,
+                               ManagedOrderedMap.Type<K,V> valType,
+                               ContainerTypeProxy<ManagedOrderedMap<K,V>> type) {
+    super(handleIndex, recType, name, type);
+    this.valueType_ = valType;
+  }
+
+  static <RT extends ManagedRecord, K extends ManagedObject, V extends ManagedObject> OrderedMapFieldProxy<RT,K,V>
+  in(RecordType<RT> recType, CharSequence name, ManagedOrderedMap.Type<K,V> valType,
+     ContainerTypeProxy<ManagedOrderedMap<K,V>> type, boolean create)
+  {
+    return ContainerFieldProxy.<RT, OrderedMapFieldProxy<RT,K,V>>in(recType, name, type, create,
+                                                                    (h, rtp, np) -> new OrderedMapFieldProxy<>(h, rtp, np, valType, type));
+  }
+
+  @Override
+  public ManagedOrderedMap.Type<K,V> valueType() {
+    return valueType_;
+  }
+
+}
@@ -0,0 +1,1069 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import com.hpl.mds.*;
+import com.hpl.mds.usage.UsagePlan;
+import com.hpl.mds.usage.UsageScope;
+
+/*
+ * The native map is a skip list in which each key has its own presence
+ * and value MSVs and each gap between keys has an MSV of its own, so
+ * conflicts are detected by key and by key range.  Keys and values
+ * cross the JNI boundary as longs (see Carrier), with both kinds passed
+ * on each call.
+ *
+ * All of the NavigableMap operations are implemented by Range, which
+ * is a bounded, possibly descending, view.  The map itself delegates to
+ * an unbounded ascending Range, and subMap() and friends return
+ * narrower ones.
+ */
+public class OrderedMapProxy<K extends ManagedObject, V extends ManagedObject>
+  extends Proxy implements ManagedOrderedMap<K,V>
+{
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private static final int CHUNK_SIZE = 256;
+
+  /*
+   * The ordinals must match bound_from_java() in OrderedMapProxy.cpp
+   * and FieldIndex.cpp.
+   */
+  enum Bound { NONE, INCLUSIVE, EXCLUSIVE }
+
+  /*
+   * The ordinals must match relation in OrderedMapProxy.cpp.
+   */
+  private enum Relation { FIRST, LAST, LOWER, FLOOR, CEILING, HIGHER }
+
+  private static native void release(int keyKind, int valKind, long handle);
+  private static native long create(int keyKind, int valKind);
+  private static native boolean containsKey(int keyKind, int valKind, long handle, long key);
+  private static native boolean get(int keyKind, int valKind, long handle, long key, long[] out);
+  private static native boolean put(int keyKind, int valKind, long handle, long key, long val,
+                                    boolean onlyIfAbsent, long[] out);
+  private static native boolean remove(int keyKind, int valKind, long handle, long key, long[] out);
+  private static native boolean relative(int keyKind, int valKind, long handle, int rel, long key,
+                                         long[] entry);
+  private static native long count(int keyKind, int valKind, long handle,
+                                   int loBound, long lo, int hiBound, long hi);
+  private static native int rangeChunk(int keyKind, int valKind, long handle, boolean descending,
+                                       int loBound, long lo, int hiBound, long hi,
+                                       long[] keys, long[] vals);
+  private static native void clear(int keyKind, int valKind, long handle);
+
+  private final OrderedMapTypeProxy<K,V> type;
+  private final Carrier<K> keys;
+  private final Carrier<V> vals;
+  private final int kk;
+  private final int vk;
+  private final Range all;
+
+  @Override
+  void releaseHandleIndex(long index) {
+    release(kk, vk, index);
+  }
+
+  private OrderedMapProxy(long handle, OrderedMapTypeProxy<K,V> type) {
+    super(handle, null);
+    this.type = type;
+    this.keys = type.keys;
+    this.vals = type.vals;
+    this.kk = keys.kind;
+    this.vk = vals.kind;
+    this.all = new Range(Bound.NONE, null, Bound.NONE, null, false);
+  }
+
+  static <K extends ManagedObject, V extends ManagedObject>
+  OrderedMapProxy<K,V> create(OrderedMapTypeProxy<K,V> type) {
+    return new OrderedMapProxy<>(create(type.keys.kind, type.vals.kind), type);
+  }
+
+  static <K extends ManagedObject, V extends ManagedObject>
+  OrderedMapProxy<K,V> fromHandle(long handle, OrderedMapTypeProxy<K,V> type) {
+    return handle == 0 ? null : new OrderedMapProxy<>(handle, type);
+  }
+
+  static long handleOf(ManagedOrderedMap<?,?> map) {
+    OrderedMapProxy<?,?> p = (OrderedMapProxy<?,?>)map;
+    return p == null ? 0 : p.handleIndex();
+  }
+
+  private long keyBits(K k) {
+    Objects.requireNonNull(k);
+    return keys.toBits.applyAsLong(k);
+  }
+
+  private long valBits(V v) {
+    Objects.requireNonNull(v);
+    return vals.toBits.applyAsLong(v);
+  }
+
+  private int compare(K a, K b) {
+    return keys.order.compare(a, b);
+  }
+
+  @SuppressWarnings("unchecked")
+  private K asKey(Object o) {
+    return keys.accepts(o) ? (K)o : null;
+  }
+
+  private Map.Entry<K,V> entry(K k, V v) {
+    return new AbstractMap.SimpleEntry<K,V>(k, v) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      public V setValue(V value) {
+        super.setValue(value);
+        return put(k, value);
+      }
+    };
+  }
+
+  /*
+   * Native calls on the whole map.  Bounds are checked by the caller.
+   * These are also where the profiling hooks go, since the native
+   * calls already say whether the key was there.
+   */
+
+  private V nativeGet(K k) {
+    long[] out = new long[1];
+    if (!get(kk, vk, handleIndex_, keyBits(k), out)) {
+      UsageProfiler.note(this, ManagedMap.LOOKUP_MISSING);
+      return null;
+    }
+    return vals.fromBits.apply(out[0]);
+  }
+
+  private V nativePut(K k, V v, boolean onlyIfAbsent) {
+    long[] out = new long[1];
+    boolean had = put(kk, vk, handleIndex_, keyBits(k), valBits(v), onlyIfAbsent, out);
+    UsageProfiler.note(this, had ? ManagedMap.REPLACE_OLD : ManagedMap.ADD_NEW);
+    return had ? vals.fromBits.apply(out[0]) : null;
+  }
+
+  private V nativeRemove(K k) {
+    long[] out = new long[1];
+    UsageProfiler.note(this, ManagedMap.DELETE);
+    return remove(kk, vk, handleIndex_, keyBits(k), out) ? vals.fromBits.apply(out[0]) : null;
+  }
+
+  private Map.Entry<K,V> nativeRelative(Relation rel, K k) {
+    long[] e = new long[2];
+    long kb = k == null ? 0 : keyBits(k);
+    if (!relative(kk, vk, handleIndex_, rel.ordinal(), kb, e)) {
+      return null;
+    }
+    return entry(keys.fromBits.apply(e[0]), vals.fromBits.apply(e[1]));
+  }
+
+  /*
+   * A view of the keys between lo and hi, as modified by loB and hiB.
+   * Whether it's descending affects only the order it presents; lo is
+   * always the smaller bound.
+   */
+  private class Range extends AbstractMap<K,V> implements NavigableMap<K,V> {
+    private final Bound loB;
+    private final K lo;
+    private final Bound hiB;
+    private final K hi;
+    private final boolean descending;
+
+    Range(Bound loB, K lo, Bound hiB, K hi, boolean descending) {
+      this.loB = loB;
+      this.lo = lo;
+      this.hiB = hiB;
+      this.hi = hi;
+      this.descending = descending;
+    }
+
+    private boolean tooLow(K k) {
+      switch (loB) {
+      case NONE:
+        return false;
+      case INCLUSIVE:
+        return compare(k, lo) < 0;
+      default:
+        return compare(k, lo) <= 0;
+      }
+    }
+
+    private boolean tooHigh(K k) {
+      switch (hiB) {
+      case NONE:
+        return false;
+      case INCLUSIVE:
+        return compare(k, hi) > 0;
+      default:
+        return compare(k, hi) >= 0;
+      }
+    }
+
+    private boolean inRange(K k) {
+      return !tooLow(k) && !tooHigh(k);
+    }
+
+    private K checkedKey(K k) {
+      Objects.requireNonNull(k);
+      if (!inRange(k)) {
+        throw new IllegalArgumentException("key out of range");
+      }
+      return k;
+    }
+
+    private long loBits() {
+      return loB == Bound.NONE ? 0 : keyBits(lo);
+    }
+
+    private long hiBits() {
+      return hiB == Bound.NONE ? 0 : keyBits(hi);
+    }
+
+    /*
+     * Navigation in ascending key order, clipped to the range.
+     */
+
+    private Map.Entry<K,V> lowest() {
+      Map.Entry<K,V> e;
+      switch (loB) {
+      case NONE:
+        e = nativeRelative(Relation.FIRST, null);
+        break;
+      case INCLUSIVE:
+        e = nativeRelative(Relation.CEILING, lo);
+        break;
+      default:
+        e = nativeRelative(Relation.HIGHER, lo);
+        break;
+      }
+      return (e == null || tooHigh(e.getKey())) ? null : e;
+    }
+
+    private Map.Entry<K,V> highest() {
+      Map.Entry<K,V> e;
+      switch (hiB) {
+      case NONE:
+        e = nativeRelative(Relation.LAST, null);
+        break;
+      case INCLUSIVE:
+        e = nativeRelative(Relation.FLOOR, hi);
+        break;
+      default:
+        e = nativeRelative(Relation.LOWER, hi);
+        break;
+      }
+      return (e == null || tooLow(e.getKey())) ? null : e;
+    }
+
+    private Map.Entry<K,V> above(K k, boolean inclusive) {
+      Objects.requireNonNull(k);
+      if (tooLow(k)) {
+        return lowest();
+      }
+      Map.Entry<K,V> e = nativeRelative(inclusive ? Relation.CEILING : Relation.HIGHER, k);
+      return (e == null || tooHigh(e.getKey())) ? null : e;
+    }
+
+    private Map.Entry<K,V> below(K k, boolean inclusive) {
+      Objects.requireNonNull(k);
+      if (tooHigh(k)) {
+        return highest();
+      }
+      Map.Entry<K,V> e = nativeRelative(inclusive ? Relation.FLOOR : Relation.LOWER, k);
+      return (e == null || tooLow(e.getKey())) ? null : e;
+    }
+
+    private K keyOrNull(Map.Entry<K,V> e) {
+      return e == null ? null : e.getKey();
+    }
+
+    private K keyOrThrow(Map.Entry<K,V> e) {
+      if (e == null) {
+        throw new NoSuchElementException();
+      }
+      return e.getKey();
+    }
+
+    /*
+     * Walks the range CHUNK_SIZE entries at a time, resuming after the
+     * last key seen.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<K,V>> {
+      private final long[] keyBuf = new long[CHUNK_SIZE];
+      private final long[] valBuf = new long[CHUNK_SIZE];
+      private int n = 0;
+      private int pos = 0;
+      private boolean exhausted = false;
+      private K resumeAfter = null;
+      private K last = null;
+
+      EntryIterator() {
+        UsageProfiler.note(OrderedMapProxy.this, ManagedOrdered.ITERATE);
+      }
+
+      private void fill() {
+        while (pos == n && !exhausted) {
+          int loBound = loB.ordinal();
+          long loKey = loBits();
+          int hiBound = hiB.ordinal();
+          long hiKey = hiBits();
+          if (resumeAfter != null) {
+            if (descending) {
+              hiBound = Bound.EXCLUSIVE.ordinal();
+              hiKey = keyBits(resumeAfter);
+            } else {
+              loBound = Bound.EXCLUSIVE.ordinal();
+              loKey = keyBits(resumeAfter);
+            }
+          }
+          int r = rangeChunk(kk, vk, handleIndex_, descending,
+                             loBound, loKey, hiBound, hiKey, keyBuf, valBuf);
+          if (r < 0) {
+            exhausted = true;
+            r = -(r+1);
+          }
+          n = r;
+          pos = 0;
+          if (n > 0) {
+            /*
+             * Converting the key now keeps its handle alive for the
+             * next call.
+             */
+            resumeAfter = keys.fromBits.apply(keyBuf[n-1]);
+          }
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        fill();
+        return pos < n;
+      }
+
+      @Override
+      public Map.Entry<K,V> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        K k = keys.fromBits.apply(keyBuf[pos]);
+        V v = vals.fromBits.apply(valBuf[pos]);
+        pos++;
+        last = k;
+        return entry(k, v);
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        nativeRemove(last);
+        last = null;
+      }
+    }
+
+    private Iterator<K> keyIterator() {
+      Iterator<Map.Entry<K,V>> it = new EntryIterator();
+      return new Iterator<K>() {
+        @Override
+        public boolean hasNext() {
+          return it.hasNext();
+        }
+        @Override
+        public K next() {
+          return it.next().getKey();
+        }
+        @Override
+        public void remove() {
+          it.remove();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      long s = count(kk, vk, handleIndex_, loB.ordinal(), loBits(), hiB.ordinal(), hiBits());
+      return s > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)s;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return lowest() == null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      K k = asKey(key);
+      return k != null && inRange(k) && OrderedMapProxy.containsKey(kk, vk, handleIndex_, keyBits(k));
+    }
+
+    @Override
+    public V get(Object key) {
+      K k = asKey(key);
+      return (k == null || !inRange(k)) ? null : nativeGet(k);
+    }
+
+    @Override
+    public V put(K key, V value) {
+      return nativePut(checkedKey(key), value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+      return nativePut(checkedKey(key), value, true);
+    }
+
+    @Override
+    public V remove(Object key) {
+      K k = asKey(key);
+      return (k == null || !inRange(k)) ? null : nativeRemove(k);
+    }
+
+    @Override
+    public void clear() {
+      if (loB == Bound.NONE && hiB == Bound.NONE) {
+        UsageProfiler.note(OrderedMapProxy.this, ManagedContainer.CLEAR);
+        OrderedMapProxy.clear(kk, vk, handleIndex_);
+        return;
+      }
+      for (Iterator<Map.Entry<K,V>> it = new EntryIterator(); it.hasNext();) {
+        it.next();
+        it.remove();
+      }
+    }
+
+    @Override
+    public Set<Map.Entry<K,V>> entrySet() {
+      return new AbstractSet<Map.Entry<K,V>>() {
+        @Override
+        public Iterator<Map.Entry<K,V>> iterator() {
+          return new EntryIterator();
+        }
+        @Override
+        public int size() {
+          return Range.this.size();
+        }
+        @Override
+        public boolean isEmpty() {
+          return Range.this.isEmpty();
+        }
+        @Override
+        public void clear() {
+          Range.this.clear();
+        }
+      };
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+      return descending ? Collections.reverseOrder(keys.order) : keys.order;
+    }
+
+    @Override
+    public Map.Entry<K,V> lowerEntry(K key) {
+      return descending ? above(key, false) : below(key, false);
+    }
+
+    @Override
+    public K lowerKey(K key) {
+      return keyOrNull(lowerEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K,V> floorEntry(K key) {
+      return descending ? above(key, true) : below(key, true);
+    }
+
+    @Override
+    public K floorKey(K key) {
+      return keyOrNull(floorEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K,V> ceilingEntry(K key) {
+      return descending ? below(key, true) : above(key, true);
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+      return keyOrNull(ceilingEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K,V> higherEntry(K key) {
+      return descending ? below(key, false) : above(key, false);
+    }
+
+    @Override
+    public K higherKey(K key) {
+      return keyOrNull(higherEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K,V> firstEntry() {
+      return descending ? highest() : lowest();
+    }
+
+    @Override
+    public Map.Entry<K,V> lastEntry() {
+      return descending ? lowest() : highest();
+    }
+
+    @Override
+    public K firstKey() {
+      return keyOrThrow(firstEntry());
+    }
+
+    @Override
+    public K lastKey() {
+      return keyOrThrow(lastEntry());
+    }
+
+    @Override
+    public Map.Entry<K,V> pollFirstEntry() {
+      Map.Entry<K,V> e = firstEntry();
+      if (e != null) {
+        nativeRemove(e.getKey());
+      }
+      return e;
+    }
+
+    @Override
+    public Map.Entry<K,V> pollLastEntry() {
+      Map.Entry<K,V> e = lastEntry();
+      if (e != null) {
+        nativeRemove(e.getKey());
+      }
+      return e;
+    }
+
+    @Override
+    public NavigableMap<K,V> descendingMap() {
+      return new Range(loB, lo, hiB, hi, !descending);
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+      return new KeySet(this);
+    }
+
+    @Override
+    public Set<K> keySet() {
+      return navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+      return new KeySet((Range)descendingMap());
+    }
+
+    /*
+     * An exclusive bound may sit on an exclusive end of this range.
+     */
+    private boolean admitsBound(K k, boolean inclusive) {
+      if (inRange(k)) {
+        return true;
+      }
+      return !inclusive
+        && ((loB == Bound.EXCLUSIVE && compare(k, lo) == 0)
+            || (hiB == Bound.EXCLUSIVE && compare(k, hi) == 0));
+    }
+
+    /*
+     * Narrows the range, given bounds in ascending key order.  A null
+     * key means that end isn't changed.
+     */
+    private Range narrow(K from, boolean fromInclusive, K to, boolean toInclusive) {
+      Bound nLoB = loB;
+      K nLo = lo;
+      Bound nHiB = hiB;
+      K nHi = hi;
+      if (from != null) {
+        if (!admitsBound(from, fromInclusive)) {
+          throw new IllegalArgumentException("fromKey out of range");
+        }
+        nLoB = fromInclusive ? Bound.INCLUSIVE : Bound.EXCLUSIVE;
+        nLo = from;
+      }
+      if (to != null) {
+        if (!admitsBound(to, toInclusive)) {
+          throw new IllegalArgumentException("toKey out of range");
+        }
+        nHiB = toInclusive ? Bound.INCLUSIVE : Bound.EXCLUSIVE;
+        nHi = to;
+      }
+      if (nLoB != Bound.NONE && nHiB != Bound.NONE && compare(nLo, nHi) > 0) {
+        throw new IllegalArgumentException("fromKey > toKey");
+      }
+      return new Range(nLoB, nLo, nHiB, nHi, descending);
+    }
+
+    @Override
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+      Objects.requireNonNull(fromKey);
+      Objects.requireNonNull(toKey);
+      return descending
+        ? narrow(toKey, toInclusive, fromKey, fromInclusive)
+        : narrow(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    @Override
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+      Objects.requireNonNull(toKey);
+      return descending ? narrow(toKey, inclusive, null, false) : narrow(null, false, toKey, inclusive);
+    }
+
+    @Override
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+      Objects.requireNonNull(fromKey);
+      return descending ? narrow(null, false, fromKey, inclusive) : narrow(fromKey, inclusive, null, false);
+    }
+
+    @Override
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+      return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<K,V> headMap(K toKey) {
+      return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<K,V> tailMap(K fromKey) {
+      return tailMap(fromKey, true);
+    }
+  }
+
+  private class KeySet extends AbstractSet<K> implements NavigableSet<K> {
+    private final Range map;
+
+    KeySet(Range map) {
+      this.map = map;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+      return map.keyIterator();
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return map.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return map.containsKey(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      return map.remove(o) != null;
+    }
+
+    @Override
+    public void clear() {
+      map.clear();
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+      return map.comparator();
+    }
+
+    @Override
+    public K first() {
+      return map.firstKey();
+    }
+
+    @Override
+    public K last() {
+      return map.lastKey();
+    }
+
+    @Override
+    public K lower(K e) {
+      return map.lowerKey(e);
+    }
+
+    @Override
+    public K floor(K e) {
+      return map.floorKey(e);
+    }
+
+    @Override
+    public K ceiling(K e) {
+      return map.ceilingKey(e);
+    }
+
+    @Override
+    public K higher(K e) {
+      return map.higherKey(e);
+    }
+
+    @Override
+    public K pollFirst() {
+      Map.Entry<K,V> e = map.pollFirstEntry();
+      return e == null ? null : e.getKey();
+    }
+
+    @Override
+    public K pollLast() {
+      Map.Entry<K,V> e = map.pollLastEntry();
+      return e == null ? null : e.getKey();
+    }
+
+    @Override
+    public NavigableSet<K> descendingSet() {
+      return map.descendingKeySet();
+    }
+
+    @Override
+    public Iterator<K> descendingIterator() {
+      return descendingSet().iterator();
+    }
+
+    @Override
+    public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+      return map.subMap(fromElement, fromInclusive, toElement, toInclusive).navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+      return map.headMap(toElement, inclusive).navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+      return map.tailMap(fromElement, inclusive).navigableKeySet();
+    }
+
+    @Override
+    public SortedSet<K> subSet(K fromElement, K toElement) {
+      return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<K> headSet(K toElement) {
+      return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<K> tailSet(K fromElement) {
+      return tailSet(fromElement, true);
+    }
+  }
+
+  @Override
+  public OrderedMapTypeProxy<K,V> type() {
+    return type;
+  }
+
+  @Override
+  public long longSize() {
+    return count(kk, vk, handleIndex_, Bound.NONE.ordinal(), 0, Bound.NONE.ordinal(), 0);
+  }
+
+  @Override
+  public int size() {
+    return all.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return all.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return all.containsKey(key);
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    return all.containsValue(value);
+  }
+
+  @Override
+  public V get(Object key) {
+    return all.get(key);
+  }
+
+  @Override
+  public V put(K key, V value) {
+    return all.put(key, value);
+  }
+
+  @Override
+  public V putIfAbsent(K key, V value) {
+    return all.putIfAbsent(key, value);
+  }
+
+  @Override
+  public V remove(Object key) {
+    return all.remove(key);
+  }
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> m) {
+    all.putAll(m);
+  }
+
+  @Override
+  public void clear() {
+    all.clear();
+  }
+
+  @Override
+  public Set<K> keySet() {
+    return all.keySet();
+  }
+
+  @Override
+  public Collection<V> values() {
+    return all.values();
+  }
+
+  @Override
+  public Set<Map.Entry<K,V>> entrySet() {
+    return all.entrySet();
+  }
+
+  @Override
+  public Comparator<? super K> comparator() {
+    return all.comparator();
+  }
+
+  @Override
+  public K firstKey() {
+    return all.firstKey();
+  }
+
+  @Override
+  public K lastKey() {
+    return all.lastKey();
+  }
+
+  @Override
+  public Map.Entry<K,V> lowerEntry(K key) {
+    return all.lowerEntry(key);
+  }
+
+  @Override
+  public K lowerKey(K key) {
+    return all.lowerKey(key);
+  }
+
+  @Override
+  public Map.Entry<K,V> floorEntry(K key) {
+    return all.floorEntry(key);
+  }
+
+  @Override
+  public K floorKey(K key) {
+    return all.floorKey(key);
+  }
+
+  @Override
+  public Map.Entry<K,V> ceilingEntry(K key) {
+    return all.ceilingEntry(key);
+  }
+
+  @Override
+  public K ceilingKey(K key) {
+    return all.ceilingKey(key);
+  }
+
+  @Override
+  public Map.Entry<K,V> higherEntry(K key) {
+    return all.higherEntry(key);
+  }
+
+  @Override
+  public K higherKey(K key) {
+    return all.higherKey(key);
+  }
+
+  @Override
+  public Map.Entry<K,V> firstEntry() {
+    return all.firstEntry();
+  }
+
+  @Override
+  public Map.Entry<K,V> lastEntry() {
+    return all.lastEntry();
+  }
+
+  @Override
+  public Map.Entry<K,V> pollFirstEntry() {
+    return all.pollFirstEntry();
+  }
+
+  @Override
+  public Map.Entry<K,V> pollLastEntry() {
+    return all.pollLastEntry();
+  }
+
+  @Override
+  public NavigableMap<K,V> descendingMap() {
+    return all.descendingMap();
+  }
+
+  @Override
+  public NavigableSet<K> navigableKeySet() {
+    return all.navigableKeySet();
+  }
+
+  @Override
+  public NavigableSet<K> descendingKeySet() {
+    return all.descendingKeySet();
+  }
+
+  @Override
+  public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+    return all.subMap(fromKey, fromInclusive, toKey, toInclusive);
+  }
+
+  @Override
+  public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+    return all.headMap(toKey, inclusive);
+  }
+
+  @Override
+  public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+    return all.tailMap(fromKey, inclusive);
+  }
+
+  @Override
+  public SortedMap<K,V> subMap(K fromKey, K toKey) {
+    return all.subMap(fromKey, toKey);
+  }
+
+  @Override
+  public SortedMap<K,V> headMap(K toKey) {
+    return all.headMap(toKey);
+  }
+
+  @Override
+  public SortedMap<K,V> tailMap(K fromKey) {
+    return all.tailMap(fromKey);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (o instanceof ManagedComposite) {
+      return isSameViewOfSameObject((ManagedComposite)o);
+    }
+    return all.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(handleIndex_);
+  }
+
+  /*
+   * Handles are interned by object and view, so equal indices (in the
+   * same handle table) mean the same view of the same map.
+   */
+  @Override
+  public boolean isIdentical(ManagedComposite other) {
+    return isSameViewOfSameObject(other);
+  }
+
+  @Override
+  public boolean isSameObject(ManagedComposite other) {
+    return isSameViewOfSameObject(other);
+  }
+
+  @Override
+  public boolean isSameViewOfSameObject(ManagedComposite other) {
+    if (other == this) {
+      return true;
+    } else if (other == null || other.getClass() != getClass()) {
+      return false;
+    }
+    return handleIndex_ == ((OrderedMapProxy<?,?>)other).handleIndex_;
+  }
+
+  @Override
+  public OrderedMapProxy<K,V> bindName(Prior prior, Namespace ns, CharSequence name) {
+    type.bindIn(ns, name, this, prior);
+    return this;
+  }
+
+  /*
+   * A skip list has nothing for the hints to decide: it has no
+   * capacity to reserve and never rebalances.
+   */
+  @Override
+  public ManagedOrderedMap<K,V> using(ManagedOrdered.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedOrderedMap<K,V> inherentUsage(ManagedOrdered.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedOrderedMap<K,V> usageDuring(UsageScope scope, ManagedOrdered.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public UsagePlan usagePlan(ManagedOrdered.Usage hint) {
+    return UsageImpl.NO_PLAN;
+  }
+
+  @Override
+  public String toString() {
+    return all.toString();
+  }
+}
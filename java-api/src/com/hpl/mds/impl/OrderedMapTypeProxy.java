@@ -0,0 +1,159 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.Objects;
+
+import com.hpl.mds.*;
+
+/*
+ * Carries the key and value carriers and, as with
+ * MapFromStringTypeProxy, makes the native container type on first use.
+ */
+public class OrderedMapTypeProxy<K extends ManagedObject, V extends ManagedObject>
+  implements ManagedOrderedMap.Type<K,V>, ContainerTypeImpl<ManagedOrderedMap<K,V>>
+{
+  final Carrier<K> keys;
+  final Carrier<V> vals;
+  private ContainerTypeProxy<ManagedOrderedMap<K,V>> containerType_ = null;
+
+  private OrderedMapTypeProxy(Carrier<K> keys, Carrier<V> vals) {
+    this.keys = keys;
+    this.vals = vals;
+  }
+
+  public static <K extends ManagedObject, V extends ManagedObject>
+  OrderedMapTypeProxy<K,V> forTypes(ManagedType<K> keyType, ManagedType<V> valType) {
+    Carrier<K> keys = Carrier.forType(keyType);
+    if (keys.order == null) {
+      throw new IncompatibleTypeException();
+    }
+    return new OrderedMapTypeProxy<>(keys, Carrier.forType(valType));
+  }
+
+  @Override
+  public ManagedType<K> keyType() {
+    return keys.type;
+  }
+
+  @Override
+  public ManagedType<V> valueType() {
+    return vals.type;
+  }
+
+  @Override
+  public ContainerTypeProxy<ManagedOrderedMap<K,V>> containerType() {
+    if (containerType_ == null) {
+      containerType_ = ContainerTypeProxy.orderedMap(keys.type, vals.type, this, OrderedMapProxy::handleOf,
+                                                     h -> OrderedMapProxy.fromHandle(h, this));
+    }
+    return containerType_;
+  }
+
+  @Override
+  public ManagedOrderedMap<K,V> create() {
+    return OrderedMapProxy.create(this);
+  }
+
+  @Override
+  public ManagedOrderedMap<K,V> construct(Object... ctorParams) {
+    throw new UnsupportedOperationException("Ordered maps are created with create()");
+  }
+
+  @Override
+  public ManagedOrderedMap<K,V> lookupName(Namespace ns, CharSequence name) {
+    return containerType().lookupName(ns, name);
+  }
+
+  @Override
+  public ManagedOrderedMap<K,V> bindIn(Namespace ns, CharSequence name,
+                                       ManagedOrderedMap<K,V> val, Prior prior) {
+    return containerType().bindIn(ns, name, val, prior);
+  }
+
+  @Override
+  public <RT extends ManagedRecord> Field<RT, ManagedOrderedMap<K,V>> fieldIn(RecordType<RT> recType,
+                                                                               CharSequence name) {
+    return OrderedMapFieldProxy.in(recType, name, this, containerType(), true);
+  }
+
+  @Override
+  public <RT extends ManagedRecord> Field<RT, ManagedOrderedMap<K,V>> findFieldIn(RecordType<RT> recType,
+                                                                                   CharSequence name) {
+    return OrderedMapFieldProxy.in(recType, name, this, containerType(), false);
+  }
+
+  @Override
+  public ManagedArray.Type<ManagedOrderedMap<K,V>> inArray() {
+    return containerType().inArray();
+  }
+
+  /*
+   * Containers can't yet hold containers.
+   */
+  @Override
+  public ManagedList.Type<ManagedOrderedMap<K,V>> inList() {
+    throw new UnsupportedOperationException("Lists of maps are not supported");
+  }
+
+  @Override
+  public ManagedSet.Type<ManagedOrderedMap<K,V>> inSet() {
+    throw new UnsupportedOperationException("Sets of maps are not supported");
+  }
+
+  @Override
+  public <MK extends ManagedObject> ManagedMap.Type<MK, ManagedOrderedMap<K,V>> inMapFrom(ManagedType<MK> keyType) {
+    throw new UnsupportedOperationException("Maps to maps are not supported");
+  }
+
+  @Override
+  public ManagedMapFromString.Type<ManagedOrderedMap<K,V>> inMapFromString() {
+    throw new UnsupportedOperationException("Maps to maps are not supported");
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    OrderedMapTypeProxy<?,?> other = (OrderedMapTypeProxy<?,?>)obj;
+    return keys.type.equals(other.keys.type) && vals.type.equals(other.vals.type);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(keys.type, vals.type);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ManagedOrderedMap<%s,%s>", keys.type, vals.type);
+  }
+}
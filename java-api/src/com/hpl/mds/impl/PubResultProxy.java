@@ -53,6 +53,16 @@ public class PubResultProxy extends Proxy implements PubResult {
   private static native long nToRedo(long hindex);
   private static native long[] redoTasksByStartTime(long hindex);
   private static native boolean prepareForRedo(long hindex);
+  /*
+   * See ChangeFeedImpl.  Four longs per record field written.
+   */
+  static native long[] publishedFields(long hindex);
+  /*
+   * Read-only snapshots of the target just before and just after the
+   * publish, made alongside publishedFields().
+   */
+  static native long beforeIndex(long hindex);
+  static native long afterIndex(long hindex);
 
   private IsoContextProxy sourceContext;
   private IsoContextProxy targetContext;
@@ -154,7 +164,14 @@ public class PubResultProxy extends Proxy implements PubResult {
     reports.forEach(r -> r.beforeResolve(tasks));
     // System.out.format("Trying to resolve%n");
     // System.out.format("Tasks to resolve: %s%n", Arrays.toString(tasks));
-    
+
+    FlightEvents.Conflict event = FlightEvents.conflict();
+    boolean resolved = resolve(tasks);
+    event.finish(() -> sourceContext().getHandle(), tasks.length, resolved);
+    return resolved;
+  }
+
+  private boolean resolve(TaskProxy[] tasks) {
     IsoContextProxy ctxt = sourceContext();
     Map<TaskProxy, Runnable> taskMap = IsoContextProxy.redoableTasks.get(ctxt);
     if (taskMap == null) {
@@ -0,0 +1,421 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.hpl.mds.*;
+
+/*
+ * The native queue is a lock-free linked queue that lives outside of
+ * the isolation machinery, so none of these calls can conflict or be
+ * rolled back.  Every element crosses the JNI boundary as a long (see
+ * Carrier).  The element kind is passed with each call so the native
+ * side knows which queue type it has.
+ */
+public class QueueProxy<T extends ManagedObject> extends Proxy implements ManagedQueue<T> {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private static final int CHUNK_SIZE = 256;
+
+  /*
+   * Backoff bounds for the blocking operations.  Waiters can be on the
+   * other side of a process boundary, so there is nobody to notify
+   * them.
+   */
+  private static final long MIN_PARK_NANOS = 1_000;
+  private static final long MAX_PARK_NANOS = 1_000_000;
+
+  private static native void release(int kind, long handle);
+  private static native long create(int kind);
+  private static native long named(int kind, long nameHandle);
+  private static native void enqueue(int kind, long handle, long val);
+  private static native void enqueueAll(int kind, long handle, long[] vals);
+  private static native boolean dequeue(int kind, long handle, long[] out);
+  private static native boolean peek(int kind, long handle, long[] out);
+  private static native long size(int kind, long handle);
+  private static native boolean isEmpty(int kind, long handle);
+  private static native int drain(int kind, long handle, long[] out);
+  private static native int listChunk(int kind, long handle, long skip, long[] out);
+
+  private final Carrier<T> carrier;
+  private final int kind;
+
+  @Override
+  void releaseHandleIndex(long index) {
+    release(kind, index);
+  }
+
+  private QueueProxy(long handle, Carrier<T> carrier) {
+    super(handle, null);
+    this.carrier = carrier;
+    this.kind = carrier.kind;
+  }
+
+  public static <T extends ManagedObject> QueueProxy<T> create(ManagedType<T> eltType) {
+    Carrier<T> carrier = Carrier.forType(eltType);
+    return new QueueProxy<>(create(carrier.kind), carrier);
+  }
+
+  public static <T extends ManagedObject> QueueProxy<T> named(CharSequence name, ManagedType<T> eltType) {
+    Objects.requireNonNull(name);
+    Carrier<T> carrier = Carrier.forType(eltType);
+    return new QueueProxy<>(named(carrier.kind, ManagedStringProxy.handleOf(name)), carrier);
+  }
+
+  private long bits(T elt) {
+    Objects.requireNonNull(elt);
+    return carrier.toBits.applyAsLong(elt);
+  }
+
+  private T fromBits(long b) {
+    return carrier.fromBits.apply(b);
+  }
+
+  @Override
+  public ManagedType<T> eltType() {
+    return carrier.type;
+  }
+
+  @Override
+  public long longSize() {
+    return size(kind, handleIndex_);
+  }
+
+  @Override
+  public int size() {
+    long s = longSize();
+    return s > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)s;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return isEmpty(kind, handleIndex_);
+  }
+
+  @Override
+  public boolean offer(T e) {
+    enqueue(kind, handleIndex_, bits(e));
+    return true;
+  }
+
+  @Override
+  public boolean add(T e) {
+    return offer(e);
+  }
+
+  @Override
+  public void put(T e) {
+    offer(e);
+  }
+
+  @Override
+  public boolean offer(T e, long timeout, TimeUnit unit) {
+    return offer(e);
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends T> c) {
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    long[] vals = new long[c.size()];
+    int n = 0;
+    for (T e : c) {
+      if (n == vals.length) {
+        break;
+      }
+      vals[n++] = bits(e);
+    }
+    if (n == 0) {
+      return false;
+    }
+    if (n < vals.length) {
+      long[] trimmed = new long[n];
+      System.arraycopy(vals, 0, trimmed, 0, n);
+      vals = trimmed;
+    }
+    enqueueAll(kind, handleIndex_, vals);
+    return true;
+  }
+
+  @Override
+  public T poll() {
+    long[] out = new long[1];
+    return dequeue(kind, handleIndex_, out) ? fromBits(out[0]) : null;
+  }
+
+  @Override
+  public T peek() {
+    long[] out = new long[1];
+    return peek(kind, handleIndex_, out) ? fromBits(out[0]) : null;
+  }
+
+  @Override
+  public T remove() {
+    T e = poll();
+    if (e == null) {
+      throw new NoSuchElementException();
+    }
+    return e;
+  }
+
+  @Override
+  public T element() {
+    T e = peek();
+    if (e == null) {
+      throw new NoSuchElementException();
+    }
+    return e;
+  }
+
+  @Override
+  public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    long park = MIN_PARK_NANOS;
+    while (true) {
+      T e = poll();
+      if (e != null) {
+        return e;
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return null;
+      }
+      LockSupport.parkNanos(this, Math.min(park, remaining));
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      park = Math.min(park * 2, MAX_PARK_NANOS);
+    }
+  }
+
+  @Override
+  public T take() throws InterruptedException {
+    long park = MIN_PARK_NANOS;
+    while (true) {
+      T e = poll();
+      if (e != null) {
+        return e;
+      }
+      LockSupport.parkNanos(this, park);
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      park = Math.min(park * 2, MAX_PARK_NANOS);
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int drainTo(Collection<? super T> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  /*
+   * Takes up to CHUNK_SIZE elements per native call.
+   */
+  @Override
+  public int drainTo(Collection<? super T> c, int maxElements) {
+    Objects.requireNonNull(c);
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    long[] out = new long[Math.max(0, Math.min(maxElements, CHUNK_SIZE))];
+    int total = 0;
+    while (total < maxElements) {
+      int want = Math.min(maxElements - total, CHUNK_SIZE);
+      if (want != out.length) {
+        out = new long[want];
+      }
+      int n = drain(kind, handleIndex_, out);
+      for (int i = 0; i < n; i++) {
+        c.add(fromBits(out[i]));
+      }
+      total += n;
+      if (n < want) {
+        break;
+      }
+    }
+    return total;
+  }
+
+  /*
+   * Walks the queue CHUNK_SIZE at a time without removing anything.
+   * Since other threads may be dequeuing as we go, this is only a
+   * weakly consistent view.
+   */
+  private class EltIterator implements Iterator<T> {
+    private final long[] elts = new long[CHUNK_SIZE];
+    private int n = 0;
+    private int pos = 0;
+    private long skip = 0;
+    private boolean exhausted = false;
+
+    private void fill() {
+      while (pos == n && !exhausted) {
+        int r = listChunk(kind, handleIndex_, skip, elts);
+        if (r < 0) {
+          exhausted = true;
+          r = -(r+1);
+        }
+        n = r;
+        pos = 0;
+        skip += n;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      fill();
+      return pos < n;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return fromBits(elts[pos++]);
+    }
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new EltIterator();
+  }
+
+  /*
+   * Used for the read-only bulk operations.
+   */
+  private final AbstractQueue<T> asQueue = new AbstractQueue<T>() {
+    @Override
+    public Iterator<T> iterator() {
+      return QueueProxy.this.iterator();
+    }
+
+    @Override
+    public int size() {
+      return QueueProxy.this.size();
+    }
+
+    @Override
+    public boolean offer(T e) {
+      return QueueProxy.this.offer(e);
+    }
+
+    @Override
+    public T poll() {
+      return QueueProxy.this.poll();
+    }
+
+    @Override
+    public T peek() {
+      return QueueProxy.this.peek();
+    }
+  };
+
+  @Override
+  public void clear() {
+    long[] out = new long[CHUNK_SIZE];
+    while (drain(kind, handleIndex_, out) == CHUNK_SIZE) {
+      // keep going
+    }
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return asQueue.contains(o);
+  }
+
+  @Override
+  public boolean containsAll(Collection<?> c) {
+    return asQueue.containsAll(c);
+  }
+
+  /*
+   * The native queue can only be taken from at the head, so removing
+   * arbitrary elements isn't supported.
+   */
+  @Override
+  public boolean remove(Object o) {
+    throw new UnsupportedOperationException("Can't remove from the middle of a ManagedQueue");
+  }
+
+  @Override
+  public boolean removeAll(Collection<?> c) {
+    throw new UnsupportedOperationException("Can't remove from the middle of a ManagedQueue");
+  }
+
+  @Override
+  public boolean retainAll(Collection<?> c) {
+    throw new UnsupportedOperationException("Can't remove from the middle of a ManagedQueue");
+  }
+
+  @Override
+  public Object[] toArray() {
+    return asQueue.toArray();
+  }
+
+  @Override
+  public <A> A[] toArray(A[] a) {
+    return asQueue.toArray(a);
+  }
+
+  @Override
+  public String toString() {
+    return asQueue.toString();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    QueueProxy<?> other = (QueueProxy<?>)obj;
+    return kind == other.kind && handleIndex_ == other.handleIndex_;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(handleIndex_);
+  }
+}
@@ -140,19 +140,23 @@ public class RecordArrayProxy<R extends ManagedRecord> extends ArrayProxy<R> {
   
   @Override
   public R get(long index) {
+	  noteGet();
 	  return ManagedRecordProxy.fromHandle(getHandle(handleIndex(), index), eltType);
   }
   @Override
   public R peek(long index) {
+	  noteGet();
 	  return ManagedRecordProxy.fromHandle(peekHandle(handleIndex(), index), eltType);
   }
   @Override
   public R set(long index, R val) {
+	  noteSet();
 	  long old = setHandle(handleIndex(), index, ManagedRecordProxy.handleOf(val));
 	  return ManagedRecordProxy.fromHandle(old, eltType);
   }
   @Override
   public R getAndSet(long index, R val) {
+	  noteSet();
 	  long old = getAndSetHandle(handleIndex(), index, ManagedRecordProxy.handleOf(val));
 	  return ManagedRecordProxy.fromHandle(old, eltType);
   }
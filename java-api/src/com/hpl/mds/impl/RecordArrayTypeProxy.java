@@ -44,7 +44,7 @@ public class RecordArrayTypeProxy<R extends ManagedRecord> extends Proxy impleme
    */
   private static native boolean bindHandle(long namespaceHandle, long nameHandle, long valHandle);
   private static native boolean isSameAs(long aHandle, long bHandle);
-  private static native long createArray(long h, long size);
+  private static native long createArray(long h, long size, int layout);
   private static native void release(long index);
   private static native long forRecordType(long recHandle);
   private static native long elementTypeHandle(long handle);
@@ -99,10 +99,18 @@ public class RecordArrayTypeProxy<R extends ManagedRecord> extends Proxy impleme
 
   @Override
   public ManagedArray<R> create(long size) {
-    long aHndl = createArray(handleIndex_, size);
+    return create(size, ArrayProxy.Layout.VERSIONED);
+  }
+
+  private RecordArrayProxy<R> create(long size, ArrayProxy.Layout layout) {
+    long aHndl = createArray(handleIndex_, size, layout.ordinal());
     return RecordArrayProxy.fromHandle(aHndl, size, this);
   }
 
+  private RecordArrayProxy<R> createFor(Object hints) {
+    return create(ArrayProxy.sizeForHints(hints), ArrayProxy.Layout.forHints(hints));
+  }
+
 
   @Override
   public ManagedArray<R> create(R[] arr) {
@@ -115,11 +123,11 @@ public class RecordArrayTypeProxy<R extends ManagedRecord> extends Proxy impleme
 
   @Override
   public RecordArrayProxy<R> create(ManagedArray.Usage hints) {
-    return Stub.notImplemented();
+    return createFor(hints);
   }
   @Override
   public RecordArrayProxy<R> create(ManagedOrdered.Usage hints) {
-    return Stub.notImplemented();
+    return createFor(hints);
   }
 
 
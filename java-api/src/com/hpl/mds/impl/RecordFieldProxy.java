@@ -100,8 +100,12 @@ public class RecordFieldProxy<RT extends ManagedRecord, FT extends ManagedRecord
     {
 //        System.out.println("RecordField.in recType for: " + name);
         final RecordTypeProxy<RT> rtp = RecordTypeProxy.downcast(recType);
-        final ManagedStringProxy msn = ManagedStringProxy.valueOf(name);
         final RecordTypeProxy<FT> vtp = RecordTypeProxy.downcast(valType);
+        RecordTypeProxy.FieldSeed seed = rtp.takeSchemaField(name);
+        if (seed != null) {
+          return new RecordFieldProxy<>(seed.handle, rtp, seed.name, vtp);
+        }
+        final ManagedStringProxy msn = ManagedStringProxy.valueOf(name);
         long handle = createFieldIn(rtp.handleIndex(), msn.handleIndex(), vtp.handleIndex());
         RecordFieldProxy<RT, FT> rfp = new RecordFieldProxy<>(handle, rtp, msn, vtp);
         return rfp;
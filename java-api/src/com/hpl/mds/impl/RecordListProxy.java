@@ -0,0 +1,288 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import com.hpl.mds.*;
+import com.hpl.mds.usage.UsagePlan;
+import com.hpl.mds.usage.UsageScope;
+
+/*
+ * Records are held by identity, so they cross the JNI boundary as their
+ * handles.
+ */
+public class RecordListProxy<R extends ManagedRecord> extends ListProxy<R> {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private static native void release(long handle);
+  private static native long createList(int layout);
+  private static native int layout(long handle);
+  private static native long size(long handle);
+  private static native void clear(long handle);
+  private static native boolean getElt(long handle, long pos, long[] out);
+  private static native boolean setElt(long handle, long pos, long val, long[] out);
+  private static native void addEnd(long handle, boolean first, long val);
+  private static native boolean insertElt(long handle, long pos, long val);
+  private static native boolean removeElt(long handle, long pos, long[] out);
+  private static native boolean removeEnd(long handle, boolean first, long[] out);
+  private static native boolean peekEnd(long handle, boolean first, long[] out);
+  private static native void addAllElts(long handle, long[] vals);
+  private static native int listChunk(long handle, long[] cursor, long[] out);
+
+  private final RecordListTypeProxy<R> type;
+
+  @Override
+  void releaseHandleIndex(long index) {
+    release(index);
+  }
+
+  private RecordListProxy(long handle, Layout layout, RecordListTypeProxy<R> type) {
+    super(handle, layout);
+    this.type = type;
+  }
+
+  static <R extends ManagedRecord>
+  RecordListProxy<R> create(RecordListTypeProxy<R> type, Layout layout) {
+    return new RecordListProxy<>(createList(layout.ordinal()), layout, type);
+  }
+
+  static <R extends ManagedRecord>
+  RecordListProxy<R> fromHandle(long handle, RecordListTypeProxy<R> type) {
+    return handle == 0 ? null : new RecordListProxy<>(handle, Layout.values()[layout(handle)], type);
+  }
+
+  private static long eltHandle(Object o) {
+    return o instanceof ManagedRecordProxy ? ((ManagedRecordProxy)o).handleIndex() : 0;
+  }
+
+  private R fromHandle(long h) {
+    return h == 0 ? null : ManagedRecordProxy.fromHandle(h, type.eltType);
+  }
+
+  /*
+   * As in RecordSetProxy, the proxies for a chunk are made as soon as it
+   * arrives.
+   */
+  private class Cursor {
+    private final long[] at = { 0 };
+    private final long[] handles = new long[CHUNK_SIZE];
+    private final Object[] elts = new Object[CHUNK_SIZE];
+    private int n = 0;
+    private int pos = -1;
+    private boolean exhausted = false;
+
+    boolean advance() {
+      pos++;
+      while (pos >= n && !exhausted) {
+        int r = listChunk(handleIndex_, at, handles);
+        if (r < 0) {
+          exhausted = true;
+          r = -(r+1);
+        }
+        for (int i = 0; i < r; i++) {
+          elts[i] = fromHandle(handles[i]);
+        }
+        n = r;
+        pos = 0;
+      }
+      return pos < n;
+    }
+
+    R value() {
+      @SuppressWarnings("unchecked")
+      R r = (R)elts[pos];
+      return r;
+    }
+
+    /*
+     * See IntListProxy.Cursor.removed()
+     */
+    void removed() {
+      if (layout_ != Layout.BAG) {
+        at[0]--;
+      }
+    }
+  }
+
+  @Override
+  public Iterator<R> iterator() {
+    noteIterate();
+    return new Iterator<R>() {
+      private final Cursor cursor = new Cursor();
+      private boolean ready = false;
+      private boolean more = true;
+      private boolean canRemove = false;
+      private int index = -1;
+
+      @Override
+      public boolean hasNext() {
+        if (!ready && more) {
+          more = cursor.advance();
+          ready = true;
+        }
+        return more;
+      }
+
+      @Override
+      public R next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        ready = false;
+        index++;
+        canRemove = true;
+        return cursor.value();
+      }
+
+      @Override
+      public void remove() {
+        if (!canRemove) {
+          throw new IllegalStateException();
+        }
+        RecordListProxy.this.remove(index--);
+        cursor.removed();
+        canRemove = false;
+      }
+    };
+  }
+
+  @Override
+  public RecordListTypeProxy<R> type() {
+    return type;
+  }
+
+  @Override
+  public ManagedType<R> eltType() {
+    return type.eltType;
+  }
+
+  @Override
+  public long longSize() {
+    return size(handleIndex_);
+  }
+
+  @Override
+  public void clear() {
+    clear(handleIndex_);
+  }
+
+  @Override
+  public R get(int index) {
+    noteRead();
+    long[] out = new long[1];
+    checkFound(getElt(handleIndex_, index, out), index);
+    return fromHandle(out[0]);
+  }
+
+  @Override
+  public R set(int index, R r) {
+    noteWrite();
+    long[] out = new long[1];
+    checkFound(setElt(handleIndex_, index, eltHandle(r), out), index);
+    return fromHandle(out[0]);
+  }
+
+  @Override
+  public void add(int index, R r) {
+    noteAt(true, index);
+    checkFound(insertElt(handleIndex_, index, eltHandle(r)), index);
+  }
+
+  @Override
+  public R remove(int index) {
+    noteAt(false, index);
+    long[] out = new long[1];
+    checkFound(removeElt(handleIndex_, index, out), index);
+    return fromHandle(out[0]);
+  }
+
+  @Override
+  void addEnd(boolean first, R r) {
+    Objects.requireNonNull(r);
+    noteEnd(true, first);
+    addEnd(handleIndex_, first, eltHandle(r));
+  }
+
+  @Override
+  R removeEnd(boolean first) {
+    noteEnd(false, first);
+    long[] out = new long[1];
+    return removeEnd(handleIndex_, first, out) ? fromHandle(out[0]) : null;
+  }
+
+  @Override
+  R peekEnd(boolean first) {
+    long[] out = new long[1];
+    return peekEnd(handleIndex_, first, out) ? fromHandle(out[0]) : null;
+  }
+
+  /*
+   * The whole collection is appended in a single native call.
+   */
+  @Override
+  public boolean addAll(Collection<? extends R> c) {
+    long[] handles = c.stream().mapToLong(r -> eltHandle(Objects.requireNonNull(r))).toArray();
+    addAllElts(handleIndex_, handles);
+    return handles.length > 0;
+  }
+
+  @Override
+  public ManagedList<R> bindName(Prior prior, Namespace ns, CharSequence name) {
+    type().bindIn(ns, name, this, prior);
+    return this;
+  }
+
+  /*
+   * The layout is the only thing the hints decide, and it's fixed when
+   * the list is created.
+   */
+  @Override
+  public ManagedList<R> using(ManagedList.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedList<R> inherentUsage(ManagedList.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedList<R> usageDuring(UsageScope scope, ManagedList.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public UsagePlan usagePlan(ManagedList.Usage hint) {
+    return UsageImpl.NO_PLAN;
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import com.hpl.mds.*;
+
+/*
+ * Remembers the record type of the elements and, as with
+ * RecordSetTypeProxy, makes the native container type on first use.
+ */
+public class RecordListTypeProxy<R extends ManagedRecord> implements ManagedList.Type<R>, ContainerTypeImpl<ManagedList<R>> {
+
+  final RecordTypeProxy<R> eltType;
+  private ContainerTypeProxy<ManagedList<R>> containerType_ = null;
+
+  RecordListTypeProxy(RecordTypeProxy<R> eltType) {
+    this.eltType = eltType;
+  }
+
+  @Override
+  public RecordTypeProxy<R> eltType() {
+    return eltType;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof RecordListTypeProxy
+      && eltType.equals(((RecordListTypeProxy<?>)other).eltType);
+  }
+
+  @Override
+  public int hashCode() {
+    return eltType.hashCode() ^ RecordListTypeProxy.class.hashCode();
+  }
+
+  @Override
+  public ContainerTypeProxy<ManagedList<R>> containerType() {
+    if (containerType_ == null) {
+      containerType_ = ContainerTypeProxy.list(eltType, this, ListProxy::handleOf,
+                                               h -> RecordListProxy.fromHandle(h, this));
+    }
+    return containerType_;
+  }
+
+  @Override
+  public ManagedList<R> construct(Object... ctorParams) {
+    throw new UnsupportedOperationException("Lists are created with create()");
+  }
+
+  @Override
+  public ManagedList<R> create() {
+    return RecordListProxy.create(this, ListProxy.Layout.ARRAY);
+  }
+
+  @Override
+  public ManagedList<R> create(ManagedList.Usage hints) {
+    return RecordListProxy.create(this, ListProxy.Layout.forHints(hints));
+  }
+
+  @Override
+  public ManagedList<R> create(ManagedCollection.Usage hints) {
+    return RecordListProxy.create(this, ListProxy.Layout.forHints(hints));
+  }
+
+  @Override
+  public ManagedList<R> create(ManagedContainer.Usage hints) {
+    return RecordListProxy.create(this, ListProxy.Layout.forHints(hints));
+  }
+
+  @Override
+  public ManagedList<R> lookupName(Namespace ns, CharSequence name) {
+    return containerType().lookupName(ns, name);
+  }
+
+  @Override
+  public ManagedList<R> bindIn(Namespace ns, CharSequence name, ManagedList<R> val, Prior prior) {
+    return containerType().bindIn(ns, name, val, prior);
+  }
+
+  @Override
+  public <RT extends ManagedRecord> ListField<RT, R> fieldIn(RecordType<RT> recType, CharSequence name) {
+    return ListFieldProxy.in(recType, name, this, containerType(), true);
+  }
+
+  @Override
+  public <RT extends ManagedRecord> ListField<RT, R> findFieldIn(RecordType<RT> recType, CharSequence name) {
+    return ListFieldProxy.in(recType, name, this, containerType(), false);
+  }
+
+  @Override
+  public ManagedArray.Type<ManagedList<R>> inArray() {
+    return containerType().inArray();
+  }
+
+  /*
+   * Containers can't yet hold containers.
+   */
+  @Override
+  public ManagedList.Type<ManagedList<R>> inList() {
+    throw new UnsupportedOperationException("Lists of lists are not supported");
+  }
+
+  @Override
+  public ManagedSet.Type<ManagedList<R>> inSet() {
+    throw new UnsupportedOperationException("Sets of lists are not supported");
+  }
+
+  @Override
+  public <K extends ManagedObject> ManagedMap.Type<K, ManagedList<R>> inMapFrom(ManagedType<K> keyType) {
+    throw new UnsupportedOperationException("Maps to lists are not supported");
+  }
+
+  @Override
+  public ManagedMapFromString.Type<ManagedList<R>> inMapFromString() {
+    throw new UnsupportedOperationException("Maps to lists are not supported");
+  }
+
+}
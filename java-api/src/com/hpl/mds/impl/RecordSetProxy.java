@@ -0,0 +1,232 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import com.hpl.mds.*;
+import com.hpl.mds.usage.UsagePlan;
+import com.hpl.mds.usage.UsageScope;
+
+/*
+ * Records are members by identity, so membership tests go straight to
+ * the native set with the record's handle.
+ */
+public class RecordSetProxy<R extends ManagedRecord> extends SetProxy<R> {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private static native void release(long handle);
+  private static native long createSet(long expectedSize);
+  private static native boolean hasElt(long handle, long eltHandle);
+  private static native boolean addElt(long handle, long eltHandle);
+  private static native boolean removeElt(long handle, long eltHandle);
+  private static native long size(long handle);
+  private static native void clear(long handle);
+  private static native int listChunk(long handle, long afterHandle, long[] elts);
+
+  private final RecordSetTypeProxy<R> type;
+
+  @Override
+  void releaseHandleIndex(long index) {
+    release(index);
+  }
+
+  private RecordSetProxy(long handle, RecordSetTypeProxy<R> type) {
+    super(handle);
+    this.type = type;
+  }
+
+  static <R extends ManagedRecord>
+  RecordSetProxy<R> create(RecordSetTypeProxy<R> type, long expectedSize) {
+    return new RecordSetProxy<>(createSet(expectedSize), type);
+  }
+
+  static <R extends ManagedRecord>
+  RecordSetProxy<R> fromHandle(long handle, RecordSetTypeProxy<R> type) {
+    return handle == 0 ? null : new RecordSetProxy<>(handle, type);
+  }
+
+  static long handleOf(ManagedSet<?> set) {
+    RecordSetProxy<?> p = (RecordSetProxy<?>)set;
+    return p == null ? 0 : p.handleIndex();
+  }
+
+  private static long eltHandle(Object o) {
+    return o instanceof ManagedRecordProxy ? ((ManagedRecordProxy)o).handleIndex() : 0;
+  }
+
+  /*
+   * As in StringSetProxy, the proxies for a chunk are made as soon as it
+   * arrives, so that the last one keeps its handle alive.
+   */
+  private class Cursor {
+    private final long[] handles = new long[CHUNK_SIZE];
+    private final Object[] elts = new Object[CHUNK_SIZE];
+    private int n = 0;
+    private int pos = -1;
+    private boolean exhausted = false;
+
+    Cursor() {
+      noteIterate();
+    }
+
+    boolean advance() {
+      pos++;
+      while (pos >= n && !exhausted) {
+        long after = n == 0 ? 0 : eltHandle(elts[n-1]);
+        int r = listChunk(handleIndex_, after, handles);
+        if (r < 0) {
+          exhausted = true;
+          r = -(r+1);
+        }
+        for (int i = 0; i < r; i++) {
+          elts[i] = ManagedRecordProxy.fromHandle(handles[i], type.eltType);
+        }
+        n = r;
+        pos = 0;
+      }
+      return pos < n;
+    }
+
+    R value() {
+      @SuppressWarnings("unchecked")
+      R r = (R)elts[pos];
+      return r;
+    }
+  }
+
+  @Override
+  public Iterator<R> iterator() {
+    return new Iterator<R>() {
+      private final Cursor cursor = new Cursor();
+      private boolean ready = false;
+      private boolean more = true;
+      private R last = null;
+
+      @Override
+      public boolean hasNext() {
+        if (!ready && more) {
+          more = cursor.advance();
+          ready = true;
+        }
+        return more;
+      }
+
+      @Override
+      public R next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        ready = false;
+        last = cursor.value();
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        RecordSetProxy.this.remove(last);
+        last = null;
+      }
+    };
+  }
+
+  @Override
+  public RecordSetTypeProxy<R> type() {
+    return type;
+  }
+
+  @Override
+  public ManagedType<R> eltType() {
+    return type.eltType;
+  }
+
+  @Override
+  public long longSize() {
+    return size(handleIndex_);
+  }
+
+  @Override
+  public void clear() {
+    noteClear();
+    clear(handleIndex_);
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    long h = eltHandle(o);
+    return h != 0 && hasElt(handleIndex_, h);
+  }
+
+  @Override
+  public boolean add(R r) {
+    Objects.requireNonNull(r);
+    return addElt(handleIndex_, eltHandle(r));
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    long h = eltHandle(o);
+    return h != 0 && removeElt(handleIndex_, h);
+  }
+
+  @Override
+  public ManagedSet<R> bindName(Prior prior, Namespace ns, CharSequence name) {
+    type.bindIn(ns, name, this, prior);
+    return this;
+  }
+
+  /*
+   * The capacity is the only thing the hints decide, and it's fixed
+   * when the set is created.
+   */
+  @Override
+  public ManagedSet<R> using(ManagedSet.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedSet<R> inherentUsage(ManagedSet.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedSet<R> usageDuring(UsageScope scope, ManagedSet.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public UsagePlan usagePlan(ManagedSet.Usage hint) {
+    return UsageImpl.NO_PLAN;
+  }
+
+}
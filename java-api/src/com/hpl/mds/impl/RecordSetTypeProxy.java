@@ -0,0 +1,148 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import com.hpl.mds.*;
+
+/*
+ * Remembers the record type of the elements and, as with
+ * MapFromStringTypeProxy, makes the native container type on first use.
+ */
+public class RecordSetTypeProxy<R extends ManagedRecord> implements ManagedSet.Type<R>, ContainerTypeImpl<ManagedSet<R>> {
+
+  private static final long DEFAULT_EXPECTED_SIZE = 10;
+
+  final RecordTypeProxy<R> eltType;
+  private ContainerTypeProxy<ManagedSet<R>> containerType_ = null;
+
+  RecordSetTypeProxy(RecordTypeProxy<R> eltType) {
+    this.eltType = eltType;
+  }
+
+  @Override
+  public RecordTypeProxy<R> eltType() {
+    return eltType;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof RecordSetTypeProxy
+      && eltType.equals(((RecordSetTypeProxy<?>)other).eltType);
+  }
+
+  @Override
+  public int hashCode() {
+    return eltType.hashCode() ^ RecordSetTypeProxy.class.hashCode();
+  }
+
+  @Override
+  public ContainerTypeProxy<ManagedSet<R>> containerType() {
+    if (containerType_ == null) {
+      containerType_ = ContainerTypeProxy.hashSet(eltType, this, RecordSetProxy::handleOf,
+                                                  h -> RecordSetProxy.fromHandle(h, this));
+    }
+    return containerType_;
+  }
+
+  @Override
+  public ManagedSet<R> construct(Object... ctorParams) {
+    throw new UnsupportedOperationException("Sets are created with create()");
+  }
+
+  @Override
+  public ManagedSet<R> create() {
+    return create(DEFAULT_EXPECTED_SIZE);
+  }
+
+  public ManagedSet<R> create(long expectedSize) {
+    return RecordSetProxy.create(this, expectedSize);
+  }
+
+  @Override
+  public ManagedSet<R> create(ManagedSet.Usage hints) {
+    return create(UsageImpl.capacityHint(hints, DEFAULT_EXPECTED_SIZE));
+  }
+
+  @Override
+  public ManagedSet<R> create(ManagedCollection.Usage hints) {
+    return create(UsageImpl.capacityHint(hints, DEFAULT_EXPECTED_SIZE));
+  }
+
+  @Override
+  public ManagedSet<R> create(ManagedContainer.Usage hints) {
+    return create(UsageImpl.capacityHint(hints, DEFAULT_EXPECTED_SIZE));
+  }
+
+  @Override
+  public ManagedSet<R> lookupName(Namespace ns, CharSequence name) {
+    return containerType().lookupName(ns, name);
+  }
+
+  @Override
+  public ManagedSet<R> bindIn(Namespace ns, CharSequence name, ManagedSet<R> val, Prior prior) {
+    return containerType().bindIn(ns, name, val, prior);
+  }
+
+  @Override
+  public <RT extends ManagedRecord> SetField<RT, R> fieldIn(RecordType<RT> recType, CharSequence name) {
+    return SetFieldProxy.in(recType, name, this, containerType(), true);
+  }
+
+  @Override
+  public <RT extends ManagedRecord> SetField<RT, R> findFieldIn(RecordType<RT> recType, CharSequence name) {
+    return SetFieldProxy.in(recType, name, this, containerType(), false);
+  }
+
+  @Override
+  public ManagedArray.Type<ManagedSet<R>> inArray() {
+    return containerType().inArray();
+  }
+
+  /*
+   * Containers can't yet hold containers.
+   */
+  @Override
+  public ManagedList.Type<ManagedSet<R>> inList() {
+    throw new UnsupportedOperationException("Lists of sets are not supported");
+  }
+
+  @Override
+  public ManagedSet.Type<ManagedSet<R>> inSet() {
+    throw new UnsupportedOperationException("Sets of sets are not supported");
+  }
+
+  @Override
+  public <K extends ManagedObject> ManagedMap.Type<K, ManagedSet<R>> inMapFrom(ManagedType<K> keyType) {
+    throw new UnsupportedOperationException("Maps to sets are not supported");
+  }
+
+  @Override
+  public ManagedMapFromString.Type<ManagedSet<R>> inMapFromString() {
+    throw new UnsupportedOperationException("Maps to sets are not supported");
+  }
+
+}
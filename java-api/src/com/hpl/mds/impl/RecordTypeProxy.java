@@ -28,7 +28,12 @@ package com.hpl.mds.impl;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.LongFunction;
 
 import com.hpl.mds.*;
@@ -48,6 +53,57 @@ public class RecordTypeProxy <R extends ManagedRecord> extends Proxy implements
 
   private static final Proxy.Table<RecordTypeProxy<? extends ManagedRecord>> proxyTable = new Proxy.Table<>(RecordTypeProxy::release);
 
+  /*
+   * Created record types this process knows about, by name.  Only created
+   * types go in here, since a type that's merely been declared may still
+   * lose the race to be the one in the heap.
+   */
+  private static final ConcurrentHashMap<String, RecordTypeProxy<? extends ManagedRecord>> knownTypes = new ConcurrentHashMap<>();
+
+  /*
+   * The implementation class each record type name was declared with in
+   * this process, so that a type we find() can create records.
+   */
+  private static final ConcurrentHashMap<String, Class<? extends ManagedRecord>> implClasses = new ConcurrentHashMap<>();
+
+  /*
+   * The layout of the array returned by fieldDescriptors().
+   */
+  private static final int FIELD_DESC_SIZE = 6;
+  private static final int FD_NAME = 0;
+  private static final int FD_KIND = 1;
+  private static final int FD_SLOT = 2;
+  private static final int FD_ELT_KIND = 3;
+  private static final int FD_REC_TYPE = 4;
+  private static final int FD_FIELD = 5;
+
+  /*
+   * Indexed by the ordinal of the core's kind enum.  Unsigned kinds have no
+   * Java equivalent.
+   */
+  private static final ManagedType<?>[] KIND_TYPES = {
+    ManagedBoolean.TYPE,
+    ManagedByte.TYPE, null,
+    ManagedShort.TYPE, null,
+    ManagedInt.TYPE, null,
+    ManagedLong.TYPE, null,
+    ManagedFloat.TYPE, ManagedDouble.TYPE,
+    ManagedString.TYPE,
+  };
+  private static final int KIND_RECORD = 12;
+  private static final int KIND_ARRAY = 14;
+  private static final int KIND_CONTAINER = 16;
+
+  /*
+   * Field kind codes used in schema descriptors (see declareWithSchema()),
+   * indexed the same way as KIND_TYPES.  An array field's code is its
+   * element's code prefixed by '['.
+   */
+  private static final String SCHEMA_KIND_CODES = "ZB_S_I_J_FDT";
+  private static final char SCHEMA_ARRAY_CODE = '[';
+  private static final char SCHEMA_NAME_SEP = ':';
+  private static final char SCHEMA_FIELD_SEP = ';';
+
 
 
   private ManagedStringProxy name_;
@@ -57,6 +113,22 @@ public class RecordTypeProxy <R extends ManagedRecord> extends Proxy implements
   private RecordTypeProxy<? super R>[] supers_ = null;
   private RecordTypeProxy<? super R> super_ = null;
   private RecordArrayTypeProxy<R> arrayType_ = null;
+  private MapFromStringTypeProxy<R> mapFromStringType_ = null;
+  private RecordSetTypeProxy<R> setType_ = null;
+  private RecordListTypeProxy<R> listType_ = null;
+  private volatile Field<? super R, ? extends ManagedObject>[] fields_ = null;
+  private volatile int[] fieldSlots_ = null;
+  /*
+   * Field handles created by declareWithSchema() and not yet claimed by a
+   * field proxy, by field name.
+   */
+  private final ConcurrentHashMap<String, FieldSeed> schemaFields_ = new ConcurrentHashMap<>();
+  /*
+   * Field handles returned by fieldDescriptors() and about to be claimed
+   * by the field proxies loadFields() makes, by name handle.  Keying them
+   * by the name's handle means we never need the name as a Java string.
+   */
+  private final ConcurrentHashMap<Long, Long> describedFields_ = new ConcurrentHashMap<>();
 
   private static native void release(long h); 
   // declare RecordType by name in ManagedSpace
@@ -70,6 +142,12 @@ public class RecordTypeProxy <R extends ManagedRecord> extends Proxy implements
   private static native long ensureCreated(long h);
   private static native long nameHandle(long h);
   private static native long superHandle(long h);
+  private static native long findType(long nameHandle);
+  private static native boolean isCreated(long h);
+  private static native long[] fieldDescriptors(long h);
+  private static native long[] declareAllWithFields(long[] typeNames, long[] superHandles, int[] superIndices,
+                                                    int[] fieldCounts, long[] fieldNames,
+                                                    int[] fieldKinds, int[] eltKinds);
 
   private RecordTypeProxy(long handle, ManagedStringProxy name, Class<? extends R> implClass) {
     super(handle, proxyTable);
@@ -156,13 +234,235 @@ public class RecordTypeProxy <R extends ManagedRecord> extends Proxy implements
     } else {
       throw new IllegalStateException("Multiple inheritance of records not yet implemented");
     }
+    noteImplClass(name, implClass);
     return fromHandle(handle, msn, implClass);
   }
 
+  private static void noteImplClass(CharSequence name, Class<? extends ManagedRecord> implClass) {
+    if (implClass != null) {
+      implClasses.put(name.toString(), implClass);
+    }
+  }
+
+  /*
+   * The implementation class declared for the named type.  If nothing has
+   * been declared under that name yet, but it's the name of a record class
+   * (as it is when the name is the default one), we initialize the class,
+   * which declares its type.
+   */
+  private static Class<? extends ManagedRecord> implClassFor(String name) {
+    Class<? extends ManagedRecord> ic = implClasses.get(name);
+    if (ic == null) {
+      try {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        Class.forName(name, true, loader == null ? RecordTypeProxy.class.getClassLoader() : loader);
+      } catch (ClassNotFoundException | LinkageError e) {
+        return null;
+      }
+      ic = implClasses.get(name);
+    }
+    return ic;
+  }
+
+
+  /*
+   * Like declare(), but also creates all of the fields described by
+   * schema in the same native call, so that the field proxies created
+   * while the type is being defined can pick up their handles without
+   * going back to the heap one field at a time.  The schema is a
+   * sequence of "<code>:<name>;" entries, where the code is one of the
+   * letters in SCHEMA_KIND_CODES, optionally prefixed with '[' for an
+   * array.  Fields of other kinds are simply left out of the schema.
+   */
+  public static <R extends ManagedRecord> RecordTypeProxy<R> declareWithSchema(CharSequence name,
+                                                                               Class<? extends R> implClass,
+                                                                               String schema,
+                                                                               Collection<RecordType<? super R>> supers) {
+    if (supers.size() > 1) {
+      throw new IllegalStateException("Multiple inheritance of records not yet implemented");
+    }
+    RecordType<?> superType = supers.isEmpty() ? null : supers.iterator().next();
+    RecordType.Schema decl = new RecordType.Schema(name, implClass, schema, superType);
+    @SuppressWarnings("unchecked")
+    RecordTypeProxy<R> rtp = (RecordTypeProxy<R>)declareAllWithSchema(Collections.singletonList(decl))[0];
+    return rtp;
+  }
+
+  /*
+   * Declares a batch of types and all of their schema fields.  The type
+   * and field names for the whole batch are interned in one call and the
+   * types and fields are declared in another.
+   */
+  public static RecordTypeProxy<?>[] declareAllWithSchema(List<RecordType.Schema> decls) {
+    int nTypes = decls.size();
+    long[] superHandles = new long[nTypes];
+    int[] superIndices = new int[nTypes];
+    int[] fieldCounts = new int[nTypes];
+    List<String> toIntern = new ArrayList<>();
+    List<Integer> kinds = new ArrayList<>();
+    List<Integer> eltKinds = new ArrayList<>();
+    for (int t = 0; t < nTypes; t++) {
+      RecordType.Schema decl = decls.get(t);
+      superIndices[t] = -1;
+      if (decl.superSchema != null) {
+        for (int i = 0; i < t; i++) {
+          if (decls.get(i) == decl.superSchema) {
+            superIndices[t] = i;
+          }
+        }
+        if (superIndices[t] < 0) {
+          throw new IllegalArgumentException(String.format("The supertype of '%s' must come before it in the batch", decl.name));
+        }
+      } else if (decl.superType != null) {
+        superHandles[t] = RecordTypeProxy.downcast(decl.superType).handleIndex();
+      }
+      toIntern.add(decl.name.toString());
+      fieldCounts[t] = parseSchema(decl.schema, toIntern, kinds, eltKinds);
+    }
+    ManagedStringProxy[] names = ManagedStringProxy.valueOfAll(toIntern.toArray(new String[toIntern.size()]));
+    int nFields = kinds.size();
+    long[] typeNameHandles = new long[nTypes];
+    long[] fieldNameHandles = new long[nFields];
+    int[] fieldKinds = new int[nFields];
+    int[] fieldEltKinds = new int[nFields];
+    for (int t = 0, n = 0, f = 0; t < nTypes; t++) {
+      typeNameHandles[t] = names[n++].handleIndex();
+      for (int i = 0; i < fieldCounts[t]; i++, f++) {
+        fieldNameHandles[f] = names[n++].handleIndex();
+        fieldKinds[f] = kinds.get(f);
+        fieldEltKinds[f] = eltKinds.get(f);
+      }
+    }
+    long[] handles = declareAllWithFields(typeNameHandles, superHandles, superIndices, fieldCounts,
+                                          fieldNameHandles, fieldKinds, fieldEltKinds);
+    RecordTypeProxy<?>[] result = new RecordTypeProxy<?>[nTypes];
+    for (int t = 0, n = 0, h = 0; t < nTypes; t++) {
+      RecordType.Schema decl = decls.get(t);
+      ManagedStringProxy msn = names[n++];
+      noteImplClass(decl.name, decl.implClass);
+      RecordTypeProxy<?> rtp = fromHandle(handles[h++], msn, decl.implClass);
+      for (int i = 0; i < fieldCounts[t]; i++, n++, h++) {
+        if (handles[h] != 0) {
+          rtp.schemaFields_.put(toIntern.get(n), new FieldSeed(handles[h], names[n]));
+        }
+      }
+      result[t] = rtp;
+    }
+    return result;
+  }
+
+  /*
+   * Adds the names, kinds and element kinds of the fields in a schema
+   * descriptor and returns how many there were.
+   */
+  private static int parseSchema(String schema, List<String> names, List<Integer> kinds, List<Integer> eltKinds) {
+    int n = 0;
+    int pos = 0;
+    while (pos < schema.length()) {
+      int sep = schema.indexOf(SCHEMA_NAME_SEP, pos);
+      int end = schema.indexOf(SCHEMA_FIELD_SEP, sep);
+      if (sep < 0 || end < 0) {
+        throw new IllegalArgumentException(String.format("Malformed record schema '%s'", schema));
+      }
+      if (schema.charAt(pos) == SCHEMA_ARRAY_CODE) {
+        kinds.add(KIND_ARRAY);
+        eltKinds.add(schemaKind(schema.charAt(pos+1)));
+      } else {
+        kinds.add(schemaKind(schema.charAt(pos)));
+        eltKinds.add(-1);
+      }
+      names.add(schema.substring(sep+1, end));
+      pos = end+1;
+      n++;
+    }
+    return n;
+  }
+
+  private static int schemaKind(char code) {
+    int k = SCHEMA_KIND_CODES.indexOf(code);
+    if (k < 0 || code == '_') {
+      throw new IllegalArgumentException(String.format("Unknown field code '%c' in record schema", code));
+    }
+    return k;
+  }
+
+  /*
+   * The handle of a field that has already been created, and its
+   * already-interned name, for a field proxy to take over.
+   */
+  static final class FieldSeed {
+    final long handle;
+    final ManagedStringProxy name;
+
+    FieldSeed(long handle, ManagedStringProxy name) {
+      this.handle = handle;
+      this.name = name;
+    }
+  }
+
+  /*
+   * Returns (and forgets) the handle and interned name of a field
+   * created from this type's schema or described by loadFields(), or
+   * null if there isn't one.  Only if there isn't does the caller need
+   * to intern the name.
+   */
+  FieldSeed takeSchemaField(CharSequence name) {
+    if (!describedFields_.isEmpty() && name instanceof ManagedStringProxy) {
+      Long h = describedFields_.remove(((ManagedStringProxy)name).handleIndex());
+      if (h != null) {
+        return new FieldSeed(h, (ManagedStringProxy)name);
+      }
+    }
+    if (schemaFields_.isEmpty()) {
+      return null;
+    }
+    return schemaFields_.remove(name.toString());
+  }
+
+  public static <R extends ManagedRecord> RecordTypeProxy<R> find(CharSequence name) {
+    String key = name.toString();
+    RecordTypeProxy<? extends ManagedRecord> rtp = knownTypes.get(key);
+    if (rtp == null) {
+      ManagedStringProxy msn = ManagedStringProxy.valueOf(name);
+      long handle = findType(msn.handleIndex());
+      if (handle == 0) {
+        return null;
+      }
+      /*
+       * Initializing the record class may itself have declared, created
+       * and remembered the type.
+       */
+      Class<? extends ManagedRecord> ic = implClassFor(key);
+      RecordTypeProxy<? extends ManagedRecord> known = knownTypes.get(key);
+      if (known != null && known.implClass_ != null) {
+        @SuppressWarnings("unchecked")
+        RecordTypeProxy<R> downcast = (RecordTypeProxy<R>)known;
+        return downcast;
+      }
+      @SuppressWarnings("unchecked")
+      Class<? extends R> ric = (Class<? extends R>)ic;
+      rtp = fromHandle(handle, msn, ric);
+      RecordTypeProxy<? extends ManagedRecord> prior = knownTypes.putIfAbsent(key, rtp);
+      if (prior != null) {
+        rtp = prior;
+      }
+    }
+    @SuppressWarnings("unchecked")
+    RecordTypeProxy<R> downcast = (RecordTypeProxy<R>)rtp;
+    return downcast;
+  }
+
+  private void noteCreated() {
+    RecordTypeProxy<R> rtp = forward_ == null ? this : forward_;
+    knownTypes.put(name_.asString(), rtp);
+  }
 
   @Override
   public ManagedList.Type<R> inList() {
-    return Stub.notImplemented();
+    if (listType_ == null) {
+      listType_ = new RecordListTypeProxy<>(this);
+    }
+    return listType_;
   }
   
   @Override
@@ -179,7 +479,10 @@ public class RecordTypeProxy <R extends ManagedRecord> extends Proxy implements
   
   @Override
   public ManagedSet.Type<R> inSet() {
-    return Stub.notImplemented();
+    if (setType_ == null) {
+      setType_ = new RecordSetTypeProxy<>(this);
+    }
+    return setType_;
   }
 
   @Override
@@ -190,7 +493,10 @@ public class RecordTypeProxy <R extends ManagedRecord> extends Proxy implements
 
   @Override
   public ManagedMapFromString.Type<R> inMapFromString() {
-    return Stub.notImplemented();
+    if (mapFromStringType_ == null) {
+      mapFromStringType_ = MapFromStringTypeProxy.forType(this);
+    }
+    return mapFromStringType_;
   }
 
 
@@ -207,7 +513,7 @@ public class RecordTypeProxy <R extends ManagedRecord> extends Proxy implements
   }
   @Override
   public boolean isCreated() {
-    return Stub.notImplemented();
+    return isCreated(handleIndex_);
   }
 
   @Override
@@ -215,9 +521,83 @@ public class RecordTypeProxy <R extends ManagedRecord> extends Proxy implements
     return name_;
   }
 
+  /**
+   * The fields are fetched in one native call the first time they're asked
+   * for and cached with the type.  Only meaningful once the type is created,
+   * since until then more fields can be added.
+   */
   @Override
   public Field<? super R, ? extends ManagedObject>[] fields() {
-    return Stub.notImplemented();
+    Field<? super R, ? extends ManagedObject>[] fs = fields_;
+    if (fs == null) {
+      fs = loadFields();
+      if (isCreated()) {
+        fields_ = fs;
+      }
+    }
+    return fs.clone();
+  }
+
+  /**
+   * The slot each of the fields returned by fields() occupies in a record.
+   */
+  public int[] fieldSlots() {
+    if (fieldSlots_ == null) {
+      fields();
+    }
+    return fieldSlots_.clone();
+  }
+
+  private Field<? super R, ? extends ManagedObject>[] loadFields() {
+    long[] descs = fieldDescriptors(handleIndex_);
+    int n = descs.length/FIELD_DESC_SIZE;
+    @SuppressWarnings("unchecked")
+    Field<? super R, ? extends ManagedObject>[] fs = new Field[n];
+    int[] slots = new int[n];
+    for (int i = 0; i < n; i++) {
+      int base = i*FIELD_DESC_SIZE;
+      ManagedStringProxy name = ManagedStringProxy.fromHandle(descs[base+FD_NAME]);
+      int kind = (int)descs[base+FD_KIND];
+      ManagedType<?> type;
+      long fh = descs[base+FD_FIELD];
+      if (kind == KIND_RECORD) {
+        type = fromHandle(descs[base+FD_REC_TYPE]);
+      } else if (kind == KIND_CONTAINER) {
+        type = ContainerFieldProxy.typeOf(fh);
+      } else if (kind == KIND_ARRAY) {
+        int eltKind = (int)descs[base+FD_ELT_KIND];
+        ManagedType<?> eltType;
+        if (eltKind == KIND_RECORD) {
+          eltType = fromHandle(descs[base+FD_REC_TYPE]);
+        } else if (eltKind == KIND_CONTAINER) {
+          eltType = ContainerArrayFieldProxy.eltTypeOf(fh);
+        } else {
+          eltType = kindType(eltKind);
+        }
+        type = ManagedArray.typeContaining(eltType);
+      } else {
+        type = kindType(kind);
+      }
+      /*
+       * Hand the field's handle to the proxy we're about to make, so it
+       * doesn't have to go back across to find the field by name.
+       */
+      if (fh != 0) {
+        describedFields_.put(name.handleIndex(), fh);
+      }
+      fs[i] = type.fieldIn(this, name);
+      slots[i] = (int)descs[base+FD_SLOT];
+    }
+    fieldSlots_ = slots;
+    return fs;
+  }
+
+  private static ManagedType<?> kindType(int kind) {
+    ManagedType<?> t = kind < KIND_TYPES.length ? KIND_TYPES[kind] : null;
+    if (t == null) {
+      throw new UnsupportedOperationException(String.format("No Java type for field kind %d", kind));
+    }
+    return t;
   }
 
   protected RecordTypeProxy<? super R> supertype() {
@@ -230,6 +610,31 @@ public class RecordTypeProxy <R extends ManagedRecord> extends Proxy implements
     return super_;
   }
   
+  /*
+   * Whether records of type t are records of this type.
+   */
+  boolean isSuperOf(RecordTypeProxy<?> t) {
+    for (RecordTypeProxy<?> rt = t; rt != null; rt = rt.supertype()) {
+      if (rt == this || isSameAs(handleIndex_, rt.handleIndex_)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public <T extends ManagedObject> Set<R> findBy(Field<? super R, T> field, T value) {
+    return FieldIndex.find((FieldProxy<? super R, T>)field, this, value);
+  }
+
+  @Override
+  public <T extends ManagedObject> Set<R> findBy(Field<? super R, T> field,
+                                                 T from, boolean fromInclusive,
+                                                 T to, boolean toInclusive) {
+    return FieldIndex.find((FieldProxy<? super R, T>)field, this,
+                           from, fromInclusive, to, toInclusive);
+  }
+
   @Override
   public RecordType<? super R>[] supertypes() {
     if (supers_ == null) {
@@ -254,8 +659,10 @@ public class RecordTypeProxy <R extends ManagedRecord> extends Proxy implements
     	 * set our forward to it.
     	 */
     	forward_ = fromHandle(curr, name_, implClass_);
+    	noteCreated();
     	return false;
     }
+    noteCreated();
     return true;
   }
 
@@ -0,0 +1,120 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+
+package com.hpl.mds.impl;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+import com.hpl.mds.*;
+
+/*
+ * As with MapFieldProxy, a record whose field hasn't been set reads as
+ * having an empty set, and the first add through the field creates one.
+ */
+public class SetFieldProxy<RT extends ManagedRecord, E extends ManagedObject>
+  extends ContainerFieldProxy<RT, ManagedSet<E>> implements SetField<RT,E> {
+
+  private final ManagedSet.Type<E> valueType_;
+
+  private SetFieldProxy(long handleIndex, RecordTypeProxy<RT> recType, ManagedStringProxy name,
+                        ManagedSet.Type<E> valType, ContainerTypeProxy<ManagedSet<E>> type) {
+    super(handleIndex, recType, name, type);
+    this.valueType_ = valType;
+  }
+
+  static <RT extends ManagedRecord, E extends ManagedObject> SetFieldProxy<RT,E>
+  in(RecordType<RT> recType, CharSequence name, ManagedSet.Type<E> valType,
+     ContainerTypeProxy<ManagedSet<E>> type, boolean create)
+  {
+    return ContainerFieldProxy.<RT, SetFieldProxy<RT,E>>in(recType, name, type, create,
+                                                           (h, rtp, np) -> new SetFieldProxy<>(h, rtp, np, valType, type));
+  }
+
+  @Override
+  public ManagedSet.Type<E> valueType() {
+    return valueType_;
+  }
+
+  private ManagedSet<E> setFor(RT record) {
+    ManagedSet<E> s = get(record);
+    if (s == null) {
+      s = valueType_.create();
+      set(record, s);
+    }
+    return s;
+  }
+
+  @Override
+  public int size(RT record) {
+    ManagedSet<E> s = get(record);
+    return s == null ? 0 : s.size();
+  }
+
+  @Override
+  public long longSize(RT record) {
+    ManagedSet<E> s = get(record);
+    return s == null ? 0 : s.longSize();
+  }
+
+  @Override
+  public boolean contains(RT record, E o) {
+    ManagedSet<E> s = get(record);
+    return s != null && s.contains(o);
+  }
+
+  @Override
+  public Iterable<E> elements(RT record) {
+    ManagedSet<E> s = get(record);
+    return s == null ? Collections.emptySet() : s;
+  }
+
+  @Override
+  public Iterator<E> iterator(RT record) {
+    return elements(record).iterator();
+  }
+
+  @Override
+  public boolean add(RT record, E e) {
+    return setFor(record).add(e);
+  }
+
+  @Override
+  public boolean remove(RT record, E o) {
+    ManagedSet<E> s = get(record);
+    return s != null && s.remove(o);
+  }
+
+  @Override
+  public void clear(RT record) {
+    ManagedSet<E> s = get(record);
+    if (s != null) {
+      s.clear();
+    }
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+
+import com.hpl.mds.*;
+
+/*
+ * The parts of a managed set that can be written in terms of a handful
+ * of primitive operations.  As with StringKeyedMapProxy, equality is
+ * identity of the underlying set (in the same view), not equality of
+ * contents.
+ */
+public abstract class SetProxy<E extends ManagedObject> extends Proxy implements ManagedSet<E> {
+
+  protected static final int CHUNK_SIZE = 256;
+
+  protected SetProxy(long handle) {
+    super(handle, null);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (!(o instanceof ManagedComposite)) {
+      return false;
+    }
+    return isSameViewOfSameObject((ManagedComposite)o);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(handleIndex_);
+  }
+
+  @Override
+  public boolean isIdentical(ManagedComposite other) {
+    return isSameViewOfSameObject(other);
+  }
+
+  @Override
+  public boolean isSameObject(ManagedComposite other) {
+    return isSameViewOfSameObject(other);
+  }
+
+  /*
+   * Each element kind has its own handle table, so indices are only
+   * comparable between proxies of the same class.
+   */
+  @Override
+  public boolean isSameViewOfSameObject(ManagedComposite other) {
+    if (other == this) {
+      return true;
+    } else if (other == null || other.getClass() != getClass()) {
+      return false;
+    }
+    return handleIndex_ == ((SetProxy<?>)other).handleIndex_;
+  }
+
+  /*
+   * Profiling hooks.  Sets only have the container operations.
+   */
+  void noteIterate() {
+    UsageProfiler.note(this, ManagedCollection.ITERATE);
+  }
+
+  void noteClear() {
+    UsageProfiler.note(this, ManagedContainer.CLEAR);
+  }
+
+  @Override
+  public int size() {
+    long s = longSize();
+    return s > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)s;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return longSize() == 0;
+  }
+
+  /*
+   * Reuse AbstractCollection's array copying, which only needs
+   * iterator() and size().
+   */
+  private Collection<E> asCollection() {
+    return new AbstractCollection<E>() {
+      @Override
+      public Iterator<E> iterator() {
+        return SetProxy.this.iterator();
+      }
+      @Override
+      public int size() {
+        return SetProxy.this.size();
+      }
+    };
+  }
+
+  @Override
+  public Object[] toArray() {
+    return asCollection().toArray();
+  }
+
+  @Override
+  public <T> T[] toArray(T[] a) {
+    return asCollection().toArray(a);
+  }
+
+  @Override
+  public String toString() {
+    return asCollection().toString();
+  }
+
+}
@@ -0,0 +1,471 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.hpl.mds.*;
+
+/*
+ * The parts of a string-keyed map that can be written in terms of a
+ * handful of primitive operations.  Subclasses supply lookup, update
+ * and a chunked entry iterator over their own natives.
+ */
+public abstract class StringKeyedMapProxy<V extends ManagedObject> extends Proxy implements ManagedMapFromString<V> {
+
+  protected static final int CHUNK_SIZE = 256;
+
+  protected StringKeyedMapProxy(long handle) {
+    super(handle, null);
+  }
+
+  protected abstract Iterator<Map.Entry<ManagedString, V>> entryIterator();
+
+  /*
+   * Profiling hooks.  Whether a put adds or replaces is only checked
+   * for sampled calls, so noteUpdate() has to be called before the put.
+   * A lookup that finds nothing is the only kind worth recording.
+   */
+  void noteUpdate(Object key) {
+    if (UsageProfiler.sample()) {
+      UsageProfiler.record(this, containsKey(key) ? ManagedMap.REPLACE_OLD : ManagedMap.ADD_NEW);
+    }
+  }
+
+  void noteLookup(boolean found) {
+    if (!found) {
+      UsageProfiler.note(this, ManagedMap.LOOKUP_MISSING);
+    }
+  }
+
+  void noteDelete() {
+    UsageProfiler.note(this, ManagedMap.DELETE);
+  }
+
+  /**
+   * @return the handle of the key if it is already a managed string, or 0
+   */
+  protected static long managedKeyHandle(Object key) {
+    return key instanceof ManagedStringProxy ? ((ManagedStringProxy)key).handleIndex() : 0;
+  }
+
+  /**
+   * @return the key as a Java string if it isn't already a managed
+   * string, or null.  Passing this rather than interning on the Java
+   * side saves allocating a proxy for every lookup.
+   */
+  protected static String unmanagedKey(Object key) {
+    return key instanceof ManagedStringProxy ? null : key.toString();
+  }
+
+  protected Map.Entry<ManagedString, V> entry(ManagedString k, V v) {
+    return new AbstractMap.SimpleEntry<ManagedString, V>(k, v) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      public V setValue(V value) {
+        super.setValue(value);
+        return put(k, value);
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (!(o instanceof ManagedComposite)) {
+      return false;
+    }
+    return isSameViewOfSameObject((ManagedComposite)o);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(handleIndex_);
+  }
+
+  /*
+   * Handles are interned by object and view, so equal indices (in the
+   * same handle table) mean the same view of the same map.
+   */
+  @Override
+  public boolean isIdentical(ManagedComposite other) {
+    return isSameViewOfSameObject(other);
+  }
+
+  @Override
+  public boolean isSameObject(ManagedComposite other) {
+    return isSameViewOfSameObject(other);
+  }
+
+  @Override
+  public boolean isSameViewOfSameObject(ManagedComposite other) {
+    if (other == this) {
+      return true;
+    } else if (other == null || other.getClass() != getClass()) {
+      return false;
+    }
+    return handleIndex_ == ((StringKeyedMapProxy<?>)other).handleIndex_;
+  }
+
+  @Override
+  public int size() {
+    long s = longSize();
+    return s > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)s;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return longSize() == 0;
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    for (V v : values()) {
+      if (Objects.equals(v, value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public V put(ManagedString key, V value) {
+    return put((CharSequence)key, value);
+  }
+
+  @Override
+  public V putIfAbsent(ManagedString key, V value) {
+    return putIfAbsent((CharSequence)key, value);
+  }
+
+  @Override
+  public V putIfPresent(CharSequence k, V v) {
+    return containsKey(k) ? put(k, v) : null;
+  }
+
+  @Override
+  public boolean replace(CharSequence k, V oldV, V newV) {
+    if (!containsKey(k) || !Objects.equals(get(k), oldV)) {
+      return false;
+    }
+    put(k, newV);
+    return true;
+  }
+
+  @Override
+  public boolean replace(CharSequence k, V v) {
+    if (!containsKey(k)) {
+      return false;
+    }
+    put(k, v);
+    return true;
+  }
+
+  @Override
+  public void putAll(Map<? extends ManagedString, ? extends V> m) {
+    for (Map.Entry<? extends ManagedString, ? extends V> e : m.entrySet()) {
+      put((CharSequence)e.getKey(), e.getValue());
+    }
+  }
+
+  @Override
+  public void forEachStringKey(BiConsumer<? super String, ? super V> action) {
+    for (Map.Entry<ManagedString, V> e : entrySet()) {
+      action.accept(e.getKey().toString(), e.getValue());
+    }
+  }
+
+  @Override
+  public void replaceAllStringKeys(BiFunction<? super String, ? super V, ? extends V> function) {
+    for (Map.Entry<ManagedString, V> e : entrySet()) {
+      put(e.getKey(), function.apply(e.getKey().toString(), e.getValue()));
+    }
+  }
+
+  @Override
+  public void replaceAll(Function<? super ManagedString, ? extends V> function) {
+    for (Map.Entry<ManagedString, V> e : entrySet()) {
+      put(e.getKey(), function.apply(e.getKey()));
+    }
+  }
+
+  @Override
+  public void replaceAllStringKeys(Function<? super String, ? extends V> function) {
+    replaceAllStringKeys((k, v) -> function.apply(k));
+  }
+
+  @Override
+  public V computeIfAbsentStringKey(CharSequence key, Function<? super String, ? extends V> function) {
+    V v = get(key);
+    if (v == null) {
+      V newV = function.apply(key.toString());
+      if (newV != null) {
+        put(key, newV);
+        return newV;
+      }
+    }
+    return v;
+  }
+
+  @Override
+  public V computeIfPresentStringKey(CharSequence key, Function<? super String, ? extends V> function) {
+    V v = get(key);
+    if (v == null) {
+      return null;
+    }
+    V newV = function.apply(key.toString());
+    if (newV == null) {
+      remove(key);
+    } else {
+      put(key, newV);
+    }
+    return newV;
+  }
+
+  @Override
+  public V computeStringKey(CharSequence key, BiFunction<? super String, ? super V, ? extends V> function) {
+    V newV = function.apply(key.toString(), get(key));
+    if (newV == null) {
+      remove(key);
+    } else {
+      put(key, newV);
+    }
+    return newV;
+  }
+
+  @Override
+  public V mergeStringKey(CharSequence key, V v, BiFunction<? super String, ? super V, ? extends V> function) {
+    V old = get(key);
+    V newV = old == null ? v : function.apply(key.toString(), old);
+    if (newV == null) {
+      remove(key);
+    } else {
+      put(key, newV);
+    }
+    return newV;
+  }
+
+  @Override
+  public Set<Map.Entry<ManagedString, V>> entrySet() {
+    return new AbstractSet<Map.Entry<ManagedString, V>>() {
+      @Override
+      public Iterator<Map.Entry<ManagedString, V>> iterator() {
+        UsageProfiler.note(StringKeyedMapProxy.this, ManagedMap.ITERATE_KEYS);
+        UsageProfiler.note(StringKeyedMapProxy.this, ManagedMap.ITERATE_VALUES);
+        return entryIterator();
+      }
+      @Override
+      public int size() {
+        return StringKeyedMapProxy.this.size();
+      }
+    };
+  }
+
+  @Override
+  public Set<ManagedString> keySet() {
+    return new AbstractSet<ManagedString>() {
+      @Override
+      public Iterator<ManagedString> iterator() {
+        UsageProfiler.note(StringKeyedMapProxy.this, ManagedMap.ITERATE_KEYS);
+        Iterator<Map.Entry<ManagedString, V>> it = entryIterator();
+        return new Iterator<ManagedString>() {
+          @Override
+          public boolean hasNext() {
+            return it.hasNext();
+          }
+          @Override
+          public ManagedString next() {
+            return it.next().getKey();
+          }
+          @Override
+          public void remove() {
+            it.remove();
+          }
+        };
+      }
+      @Override
+      public boolean contains(Object o) {
+        return containsKey(o);
+      }
+      @Override
+      public int size() {
+        return StringKeyedMapProxy.this.size();
+      }
+    };
+  }
+
+  @Override
+  public Set<String> stringKeySet() {
+    return new AbstractSet<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        Iterator<ManagedString> it = keySet().iterator();
+        return new Iterator<String>() {
+          @Override
+          public boolean hasNext() {
+            return it.hasNext();
+          }
+          @Override
+          public String next() {
+            return it.next().toString();
+          }
+          @Override
+          public void remove() {
+            it.remove();
+          }
+        };
+      }
+      @Override
+      public boolean contains(Object o) {
+        return containsKey(o);
+      }
+      @Override
+      public int size() {
+        return StringKeyedMapProxy.this.size();
+      }
+    };
+  }
+
+  @Override
+  public Collection<V> values() {
+    return new AbstractCollection<V>() {
+      @Override
+      public Iterator<V> iterator() {
+        UsageProfiler.note(StringKeyedMapProxy.this, ManagedMap.ITERATE_VALUES);
+        Iterator<Map.Entry<ManagedString, V>> it = entryIterator();
+        return new Iterator<V>() {
+          @Override
+          public boolean hasNext() {
+            return it.hasNext();
+          }
+          @Override
+          public V next() {
+            return it.next().getValue();
+          }
+          @Override
+          public void remove() {
+            it.remove();
+          }
+        };
+      }
+      @Override
+      public int size() {
+        return StringKeyedMapProxy.this.size();
+      }
+    };
+  }
+
+  /*
+   * Keys come out as Strings, but lookups take any CharSequence, as
+   * they do on the map itself.
+   */
+  @Override
+  public UnmanagedMapView<V> asUnmanageKeyMap() {
+    class View extends AbstractMap<String, V> implements UnmanagedMapView<V> {
+      @Override
+      public ManagedMapFromString<V> asManagedMap() {
+        return StringKeyedMapProxy.this;
+      }
+      @Override
+      public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+          @Override
+          public Iterator<Map.Entry<String, V>> iterator() {
+            Iterator<Map.Entry<ManagedString, V>> it = entryIterator();
+            return new Iterator<Map.Entry<String, V>>() {
+              @Override
+              public boolean hasNext() {
+                return it.hasNext();
+              }
+              @Override
+              public Map.Entry<String, V> next() {
+                Map.Entry<ManagedString, V> e = it.next();
+                return new AbstractMap.SimpleImmutableEntry<>(e.getKey().toString(), e.getValue());
+              }
+              @Override
+              public void remove() {
+                it.remove();
+              }
+            };
+          }
+          @Override
+          public int size() {
+            return StringKeyedMapProxy.this.size();
+          }
+        };
+      }
+      @Override
+      public int size() {
+        return StringKeyedMapProxy.this.size();
+      }
+      @Override
+      public boolean containsKey(Object key) {
+        return StringKeyedMapProxy.this.containsKey(key);
+      }
+      @Override
+      public V get(Object key) {
+        return StringKeyedMapProxy.this.get(key);
+      }
+      @Override
+      public V put(String key, V value) {
+        return StringKeyedMapProxy.this.put(key, value);
+      }
+      @Override
+      public V remove(Object key) {
+        return StringKeyedMapProxy.this.remove(key);
+      }
+      @Override
+      public void clear() {
+        StringKeyedMapProxy.this.clear();
+      }
+    }
+    return new View();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    String sep = "{";
+    for (Map.Entry<ManagedString, V> e : entrySet()) {
+      sb.append(sep).append(e.getKey()).append('=').append(e.getValue());
+      sep = ", ";
+    }
+    return sb.append(sep.equals("{") ? "{}" : "}").toString();
+  }
+
+}
@@ -0,0 +1,784 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.hpl.mds.*;
+import com.hpl.mds.usage.UsagePlan;
+import com.hpl.mds.usage.UsageScope;
+
+/*
+ * The native list holds interned strings, which cross the JNI boundary
+ * as handles.  Elements are compared by content, so a list can be
+ * searched with a plain Java string.
+ */
+public class StringListProxy extends ListProxy<ManagedString> implements ManagedStringList {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private static native void release(long handle);
+  private static native long createList(int layout);
+  private static native int layout(long handle);
+  private static native long size(long handle);
+  private static native void clear(long handle);
+  private static native boolean getElt(long handle, long pos, long[] out);
+  private static native boolean setElt(long handle, long pos, long val, long[] out);
+  private static native void addEnd(long handle, boolean first, long val);
+  private static native boolean insertElt(long handle, long pos, long val);
+  private static native boolean removeElt(long handle, long pos, long[] out);
+  private static native boolean removeEnd(long handle, boolean first, long[] out);
+  private static native boolean peekEnd(long handle, boolean first, long[] out);
+  private static native void addAllElts(long handle, long[] vals);
+  private static native int listChunk(long handle, long[] cursor, long[] out);
+
+  @Override
+  void releaseHandleIndex(long index) {
+    release(index);
+  }
+
+  private StringListProxy(long handle, Layout layout) {
+    super(handle, layout);
+  }
+
+  static StringListProxy create(Layout layout) {
+    return new StringListProxy(createList(layout.ordinal()), layout);
+  }
+
+  static StringListProxy fromHandle(long handle) {
+    return handle == 0 ? null : new StringListProxy(handle, Layout.values()[layout(handle)]);
+  }
+
+  private static ManagedStringProxy eltFromHandle(long h) {
+    return h == 0 ? null : ManagedStringProxy.fromHandle(h);
+  }
+
+  private static long handleOf(CharSequence s) {
+    Objects.requireNonNull(s);
+    return ManagedStringProxy.handleOf(s);
+  }
+
+  private static boolean same(CharSequence a, CharSequence b) {
+    return a.toString().equals(b.toString());
+  }
+
+  /*
+   * As in StringSetProxy, the proxies for a chunk are made as soon as it
+   * arrives.
+   */
+  private class Cursor {
+    private final long[] at = { 0 };
+    private final long[] handles = new long[CHUNK_SIZE];
+    private final ManagedStringProxy[] elts = new ManagedStringProxy[CHUNK_SIZE];
+    private int n = 0;
+    private int pos = -1;
+    private boolean exhausted = false;
+
+    boolean advance() {
+      pos++;
+      while (pos >= n && !exhausted) {
+        int r = listChunk(handleIndex_, at, handles);
+        if (r < 0) {
+          exhausted = true;
+          r = -(r+1);
+        }
+        for (int i = 0; i < r; i++) {
+          elts[i] = eltFromHandle(handles[i]);
+        }
+        n = r;
+        pos = 0;
+      }
+      return pos < n;
+    }
+
+    ManagedString value() {
+      return elts[pos];
+    }
+
+    /*
+     * See IntListProxy.Cursor.removed()
+     */
+    void removed() {
+      if (layout_ != Layout.BAG) {
+        at[0]--;
+      }
+    }
+  }
+
+  private class EltIterator implements Iterator<ManagedString> {
+    private final Cursor cursor = new Cursor();
+    private boolean ready = false;
+    private boolean more = true;
+    private boolean canRemove = false;
+    private int index = -1;
+
+    @Override
+    public boolean hasNext() {
+      if (!ready && more) {
+        more = cursor.advance();
+        ready = true;
+      }
+      return more;
+    }
+
+    @Override
+    public ManagedString next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ready = false;
+      index++;
+      canRemove = true;
+      return cursor.value();
+    }
+
+    @Override
+    public void remove() {
+      if (!canRemove) {
+        throw new IllegalStateException();
+      }
+      StringListProxy.this.remove(index--);
+      cursor.removed();
+      canRemove = false;
+    }
+  }
+
+  @Override
+  public Iterator<ManagedString> iterator() {
+    noteIterate();
+    return new EltIterator();
+  }
+
+  private Iterator<String> stringIterator(Iterator<ManagedString> it) {
+    return new Iterator<String>() {
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+      @Override
+      public String next() {
+        return it.next().toString();
+      }
+      @Override
+      public void remove() {
+        it.remove();
+      }
+    };
+  }
+
+  @Override
+  public long longSize() {
+    return size(handleIndex_);
+  }
+
+  @Override
+  public void clear() {
+    clear(handleIndex_);
+  }
+
+  @Override
+  public ManagedString get(int index) {
+    noteRead();
+    long[] out = new long[1];
+    checkFound(getElt(handleIndex_, index, out), index);
+    return eltFromHandle(out[0]);
+  }
+
+  @Override
+  public String getString(int index) {
+    return get(index).toString();
+  }
+
+  @Override
+  public ManagedString set(int index, ManagedString val) {
+    noteWrite();
+    long[] out = new long[1];
+    checkFound(setElt(handleIndex_, index, handleOf(val), out), index);
+    return eltFromHandle(out[0]);
+  }
+
+  @Override
+  public String setString(int index, CharSequence val) {
+    return set(index, ManagedStringProxy.valueOf(val)).toString();
+  }
+
+  @Override
+  public void add(int index, ManagedString v) {
+    noteAt(true, index);
+    checkFound(insertElt(handleIndex_, index, handleOf(v)), index);
+  }
+
+  @Override
+  public boolean add(int index, CharSequence v) {
+    add(index, ManagedStringProxy.valueOf(v));
+    return true;
+  }
+
+  @Override
+  public ManagedString remove(int index) {
+    noteAt(false, index);
+    long[] out = new long[1];
+    checkFound(removeElt(handleIndex_, index, out), index);
+    return eltFromHandle(out[0]);
+  }
+
+  @Override
+  void addEnd(boolean first, ManagedString e) {
+    noteEnd(true, first);
+    addEnd(handleIndex_, first, handleOf(e));
+  }
+
+  @Override
+  ManagedString removeEnd(boolean first) {
+    noteEnd(false, first);
+    long[] out = new long[1];
+    return removeEnd(handleIndex_, first, out) ? eltFromHandle(out[0]) : null;
+  }
+
+  @Override
+  ManagedString peekEnd(boolean first) {
+    long[] out = new long[1];
+    return peekEnd(handleIndex_, first, out) ? eltFromHandle(out[0]) : null;
+  }
+
+  private static String string(ManagedString s) {
+    return s == null ? null : s.toString();
+  }
+
+  private static String presentString(ManagedString s) {
+    if (s == null) {
+      throw new NoSuchElementException();
+    }
+    return s.toString();
+  }
+
+  @Override
+  public boolean add(CharSequence v) {
+    noteEnd(true, false);
+    addEnd(handleIndex_, false, handleOf(v));
+    return true;
+  }
+
+  @Override
+  public boolean add(ManagedString v) {
+    return add((CharSequence)v);
+  }
+
+  /*
+   * The strings are interned with a single native call, and appended
+   * with another.
+   */
+  private boolean addAll(CharSequence[] strings) {
+    ManagedStringProxy[] elts = ManagedStringProxy.valueOfAll(strings);
+    long[] handles = new long[elts.length];
+    for (int i = 0; i < elts.length; i++) {
+      handles[i] = handleOf(elts[i]);
+    }
+    addAllElts(handleIndex_, handles);
+    return handles.length > 0;
+  }
+
+  @Override
+  public boolean addAllStrings(Collection<? extends CharSequence> coll) {
+    return addAll(coll.toArray(new CharSequence[coll.size()]));
+  }
+
+  @Override
+  public int indexOf(CharSequence v) {
+    if (v == null) {
+      return -1;
+    }
+    int i = 0;
+    for (ManagedString e : this) {
+      if (same(e, v)) {
+        return i;
+      }
+      i++;
+    }
+    return -1;
+  }
+
+  @Override
+  public int indexOf(Object o) {
+    return o instanceof CharSequence ? indexOf((CharSequence)o) : -1;
+  }
+
+  @Override
+  public int lastIndexOf(CharSequence v) {
+    if (v == null) {
+      return -1;
+    }
+    int i = 0;
+    int found = -1;
+    for (ManagedString e : this) {
+      if (same(e, v)) {
+        found = i;
+      }
+      i++;
+    }
+    return found;
+  }
+
+  @Override
+  public int lastIndexOf(Object o) {
+    return o instanceof CharSequence ? lastIndexOf((CharSequence)o) : -1;
+  }
+
+  @Override
+  public boolean contains(CharSequence v) {
+    return indexOf(v) >= 0;
+  }
+
+  @Override
+  public boolean contains(ManagedString v) {
+    return contains((CharSequence)v);
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof CharSequence && contains((CharSequence)o);
+  }
+
+  @Override
+  public boolean removeString(CharSequence v) {
+    int i = indexOf(v);
+    if (i < 0) {
+      return false;
+    }
+    remove(i);
+    return true;
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    return o instanceof CharSequence && removeString((CharSequence)o);
+  }
+
+  /**
+   * @return false if the list was empty
+   */
+  @Override
+  public boolean forEachString(Consumer<? super String> consumer) {
+    boolean any = false;
+    for (ManagedString e : this) {
+      consumer.accept(e.toString());
+      any = true;
+    }
+    return any;
+  }
+
+  /*
+   * As with the primitive lists, the list is refilled with the
+   * survivors rather than removing the others one at a time.
+   */
+  @Override
+  public boolean removeStringif(Predicate<? super String> pred) {
+    String[] elts = toStringArray();
+    String[] kept = new String[elts.length];
+    int n = 0;
+    for (String s : elts) {
+      if (!pred.test(s)) {
+        kept[n++] = s;
+      }
+    }
+    if (n == elts.length) {
+      return false;
+    }
+    clear();
+    addAll(Arrays.copyOf(kept, n));
+    return true;
+  }
+
+  /*
+   * Only the elements whose values change are written.
+   */
+  @Override
+  public void replaceAllStrings(Function<? super String, ? extends CharSequence> modifier) {
+    String[] elts = toStringArray();
+    for (int i = 0; i < elts.length; i++) {
+      CharSequence v = modifier.apply(elts[i]);
+      if (!same(v, elts[i])) {
+        setString(i, v);
+      }
+    }
+  }
+
+  @Override
+  public void sortStrings(Comparator<? super String> cptr) {
+    String[] elts = toStringArray();
+    Arrays.sort(elts, cptr);
+    clear();
+    addAll(elts);
+  }
+
+  @Override
+  public ListIterator<String> stringListIterator() {
+    return asUnmanagedList().listIterator();
+  }
+
+  @Override
+  public ListIterator<String> stringListIterator(int index) {
+    return asUnmanagedList().listIterator(index);
+  }
+
+  @Override
+  public Spliterator<String> stringSpliterator() {
+    return Spliterators.spliterator(stringIterator(iterator()), longSize(),
+                                    Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
+  @Override
+  public Stream<String> stringStream() {
+    return StreamSupport.stream(stringSpliterator(), false);
+  }
+
+  @Override
+  public String[] toStringArray() {
+    return toArray(new String[0]);
+  }
+
+  @Override
+  public String[] toArray(String[] array) {
+    String[] result = array;
+    int n = 0;
+    for (ManagedString e : this) {
+      if (n == result.length) {
+        result = Arrays.copyOf(result, Math.max(2*n, CHUNK_SIZE));
+      }
+      result[n++] = e.toString();
+    }
+    if (result == array) {
+      if (n < array.length) {
+        array[n] = null;
+      }
+      return array;
+    }
+    return Arrays.copyOf(result, n);
+  }
+
+  private class UnmanagedList extends AbstractList<String> implements ManagedStringList.UnmanagedListView {
+    @Override
+    public ManagedStringList asManagedList() {
+      return StringListProxy.this;
+    }
+    @Override
+    public ManagedStringList.DequeView asDeque() {
+      return StringListProxy.this.asDeque();
+    }
+    @Override
+    public ManagedStringList.UnmanagedDequeView asUnmanagedDeque() {
+      return StringListProxy.this.asUnmanagedDeque();
+    }
+    @Override
+    public String get(int index) {
+      return getString(index);
+    }
+    @Override
+    public String set(int index, String v) {
+      return setString(index, v);
+    }
+    @Override
+    public void add(int index, String v) {
+      StringListProxy.this.add(index, (CharSequence)v);
+    }
+    @Override
+    public boolean add(String v) {
+      return StringListProxy.this.add((CharSequence)v);
+    }
+    @Override
+    public String remove(int index) {
+      return StringListProxy.this.remove(index).toString();
+    }
+    @Override
+    public Iterator<String> iterator() {
+      return stringIterator(StringListProxy.this.iterator());
+    }
+    @Override
+    public int size() {
+      return StringListProxy.this.size();
+    }
+    @Override
+    public boolean contains(Object o) {
+      return StringListProxy.this.contains(o);
+    }
+    @Override
+    public int indexOf(Object o) {
+      return StringListProxy.this.indexOf(o);
+    }
+    @Override
+    public int lastIndexOf(Object o) {
+      return StringListProxy.this.lastIndexOf(o);
+    }
+    @Override
+    public void clear() {
+      StringListProxy.this.clear();
+    }
+  }
+
+  @Override
+  public ManagedStringList.UnmanagedListView asUnmanagedList() {
+    return new UnmanagedList();
+  }
+
+  private class UnmanagedDeque extends DequeAdapter<String> implements ManagedStringList.UnmanagedDequeView {
+    @Override
+    public ManagedStringList asManagedList() {
+      return StringListProxy.this;
+    }
+    @Override
+    public ManagedStringList.UnmanagedListView asUnmanagedList() {
+      return StringListProxy.this.asUnmanagedList();
+    }
+    @Override
+    public ManagedStringList.DequeView asManagedDeque() {
+      return StringListProxy.this.asDeque();
+    }
+    @Override
+    public void addFirst(String v) {
+      noteEnd(true, true);
+      addEnd(handleIndex_, true, handleOf(v));
+    }
+    @Override
+    public void addLast(String v) {
+      noteEnd(true, false);
+      addEnd(handleIndex_, false, handleOf(v));
+    }
+    @Override
+    public String pollFirst() {
+      return string(removeEnd(true));
+    }
+    @Override
+    public String pollLast() {
+      return string(removeEnd(false));
+    }
+    @Override
+    public String peekFirst() {
+      return string(peekEnd(true));
+    }
+    @Override
+    public String peekLast() {
+      return string(peekEnd(false));
+    }
+    @Override
+    public Iterator<String> iterator() {
+      return stringIterator(StringListProxy.this.iterator());
+    }
+    @Override
+    public Iterator<String> descendingIterator() {
+      return stringIterator(StringListProxy.this.descendingIterator());
+    }
+    @Override
+    public int size() {
+      return StringListProxy.this.size();
+    }
+    @Override
+    public boolean contains(Object o) {
+      return StringListProxy.this.contains(o);
+    }
+    @Override
+    public void clear() {
+      StringListProxy.this.clear();
+    }
+  }
+
+  @Override
+  public ManagedStringList.UnmanagedDequeView asUnmanagedDeque() {
+    return new UnmanagedDeque();
+  }
+
+  private class ManagedDeque extends ListDequeView<ManagedString> implements ManagedStringList.DequeView {
+    ManagedDeque() {
+      super(StringListProxy.this);
+    }
+    @Override
+    public ManagedStringList asManagedList() {
+      return StringListProxy.this;
+    }
+    @Override
+    public ManagedStringList.UnmanagedListView asUnmanagedList() {
+      return StringListProxy.this.asUnmanagedList();
+    }
+    @Override
+    public ManagedStringList.UnmanagedDequeView asUnmanagedDeque() {
+      return StringListProxy.this.asUnmanagedDeque();
+    }
+    @Override
+    public ManagedStringList.Type type() {
+      return StringListProxy.this.type();
+    }
+    @Override
+    public String stringElement() {
+      return getFirstString();
+    }
+    @Override
+    public boolean offer(CharSequence e) {
+      return offerLast(e);
+    }
+    @Override
+    public String peekString() {
+      return peekFirstString();
+    }
+    @Override
+    public String pollString() {
+      return pollFirstString();
+    }
+    @Override
+    public String removeString() {
+      return removeFirstString();
+    }
+    @Override
+    public void addFirst(CharSequence e) {
+      noteEnd(true, true);
+      addEnd(handleIndex_, true, handleOf(e));
+    }
+    @Override
+    public void addLast(CharSequence e) {
+      noteEnd(true, false);
+      addEnd(handleIndex_, false, handleOf(e));
+    }
+    @Override
+    public Iterator<String> descendingStringIterator() {
+      return stringIterator(descendingIterator());
+    }
+    @Override
+    public String getFirstString() {
+      return presentString(peekEnd(true));
+    }
+    @Override
+    public String getLastString() {
+      return presentString(peekEnd(false));
+    }
+    @Override
+    public boolean offerFirst(CharSequence e) {
+      addFirst(e);
+      return true;
+    }
+    @Override
+    public boolean offerLast(CharSequence e) {
+      addLast(e);
+      return true;
+    }
+    @Override
+    public String peekFirstString() {
+      return string(peekEnd(true));
+    }
+    @Override
+    public String peekLastString() {
+      return string(peekEnd(false));
+    }
+    @Override
+    public String pollFirstString() {
+      return string(removeEnd(true));
+    }
+    @Override
+    public String pollLastString() {
+      return string(removeEnd(false));
+    }
+    @Override
+    public String popString() {
+      return removeFirstString();
+    }
+    @Override
+    public void push(CharSequence e) {
+      addFirst(e);
+    }
+    @Override
+    public String removeFirstString() {
+      return presentString(removeEnd(true));
+    }
+    @Override
+    public String removeLastString() {
+      return presentString(removeEnd(false));
+    }
+    @Override
+    public boolean addAllStrings(Collection<? extends CharSequence> coll) {
+      return StringListProxy.this.addAllStrings(coll);
+    }
+    @Override
+    public boolean forEachString(Consumer<? super String> consumer) {
+      return StringListProxy.this.forEachString(consumer);
+    }
+    @Override
+    public boolean removeStringif(Predicate<? super String> pred) {
+      return StringListProxy.this.removeStringif(pred);
+    }
+    @Override
+    public String[] toArray(String[] array) {
+      return StringListProxy.this.toArray(array);
+    }
+  }
+
+  @Override
+  public ManagedStringList.DequeView asDeque() {
+    return new ManagedDeque();
+  }
+
+  @Override
+  public ManagedStringList bindName(Prior prior, Namespace ns, CharSequence name) {
+    type().bindIn(ns, name, this, prior);
+    return this;
+  }
+
+  /*
+   * The layout is the only thing the hints decide, and it's fixed when
+   * the list is created.
+   */
+  @Override
+  public ManagedStringList using(ManagedStringList.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedStringList inherentUsage(ManagedStringList.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedStringList usageDuring(UsageScope scope, ManagedStringList.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public UsagePlan usagePlan(ManagedStringList.Usage hint) {
+    return UsageImpl.NO_PLAN;
+  }
+
+}
@@ -0,0 +1,396 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.impl;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.hpl.mds.*;
+import com.hpl.mds.usage.UsagePlan;
+import com.hpl.mds.usage.UsageScope;
+
+/*
+ * Elements that are plain Java strings are interned on the native side,
+ * so membership tests don't allocate a ManagedString.  addAll(String[])
+ * and containsAll(String[]) handle the whole array in one native call.
+ */
+public class StringSetProxy extends SetProxy<ManagedString> implements ManagedStringSet {
+
+  private static final NativeLibraryLoader NATIVE_LIB_LOADER = NativeLibraryLoader.getInstance();
+
+  private static native void release(long handle);
+  private static native long createSet(long expectedSize);
+  private static native boolean hasElt(long handle, long eltHandle, String elt);
+  private static native boolean addElt(long handle, long eltHandle, String elt);
+  private static native boolean removeElt(long handle, long eltHandle, String elt);
+  private static native long size(long handle);
+  private static native void clear(long handle);
+  private static native boolean containsAllElts(long handle, String[] elts);
+  private static native boolean addAllElts(long handle, String[] elts);
+  private static native int listChunk(long handle, long afterHandle, long[] elts);
+
+  @Override
+  void releaseHandleIndex(long index) {
+    release(index);
+  }
+
+  private StringSetProxy(long handle) {
+    super(handle);
+  }
+
+  static StringSetProxy create(long expectedSize) {
+    return new StringSetProxy(createSet(expectedSize));
+  }
+
+  static StringSetProxy fromHandle(long handle) {
+    return handle == 0 ? null : new StringSetProxy(handle);
+  }
+
+  static long handleOf(ManagedSet<?> set) {
+    StringSetProxy p = (StringSetProxy)set;
+    return p == null ? 0 : p.handleIndex();
+  }
+
+  private static long managedHandle(CharSequence s) {
+    return s instanceof ManagedStringProxy ? ((ManagedStringProxy)s).handleIndex() : 0;
+  }
+
+  private static String unmanaged(CharSequence s) {
+    return s instanceof ManagedStringProxy ? null : s.toString();
+  }
+
+  private static String[] strings(Collection<? extends CharSequence> coll) {
+    return coll.stream().map(s -> s == null ? null : s.toString()).toArray(String[]::new);
+  }
+
+  /*
+   * Proxies for a whole chunk are made as soon as it arrives, so the
+   * last one keeps its handle alive to continue the walk from.
+   */
+  private class Cursor {
+    private final long[] handles = new long[CHUNK_SIZE];
+    private final ManagedStringProxy[] elts = new ManagedStringProxy[CHUNK_SIZE];
+    private int n = 0;
+    private int pos = -1;
+    private boolean exhausted = false;
+
+    Cursor() {
+      noteIterate();
+    }
+
+    boolean advance() {
+      pos++;
+      while (pos >= n && !exhausted) {
+        long after = n == 0 ? 0 : elts[n-1].handleIndex();
+        int r = listChunk(handleIndex_, after, handles);
+        if (r < 0) {
+          exhausted = true;
+          r = -(r+1);
+        }
+        for (int i = 0; i < r; i++) {
+          elts[i] = ManagedStringProxy.fromHandle(handles[i]);
+        }
+        n = r;
+        pos = 0;
+      }
+      return pos < n;
+    }
+
+    ManagedString value() {
+      return elts[pos];
+    }
+  }
+
+  private class EltIterator implements Iterator<ManagedString> {
+    private final Cursor cursor = new Cursor();
+    private boolean ready = false;
+    private boolean more = true;
+    private ManagedString last = null;
+
+    @Override
+    public boolean hasNext() {
+      if (!ready && more) {
+        more = cursor.advance();
+        ready = true;
+      }
+      return more;
+    }
+
+    @Override
+    public ManagedString next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ready = false;
+      last = cursor.value();
+      return last;
+    }
+
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException();
+      }
+      removeString(last);
+      last = null;
+    }
+  }
+
+  @Override
+  public Iterator<ManagedString> iterator() {
+    return new EltIterator();
+  }
+
+  private Iterator<String> stringIterator() {
+    Iterator<ManagedString> it = iterator();
+    return new Iterator<String>() {
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+      @Override
+      public String next() {
+        return it.next().toString();
+      }
+      @Override
+      public void remove() {
+        it.remove();
+      }
+    };
+  }
+
+  @Override
+  public long longSize() {
+    return size(handleIndex_);
+  }
+
+  @Override
+  public void clear() {
+    noteClear();
+    clear(handleIndex_);
+  }
+
+  @Override
+  public boolean contains(CharSequence v) {
+    return v != null && hasElt(handleIndex_, managedHandle(v), unmanaged(v));
+  }
+
+  @Override
+  public boolean contains(ManagedString v) {
+    return contains((CharSequence)v);
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof CharSequence && contains((CharSequence)o);
+  }
+
+  @Override
+  public boolean add(CharSequence v) {
+    Objects.requireNonNull(v);
+    return addElt(handleIndex_, managedHandle(v), unmanaged(v));
+  }
+
+  /*
+   * Sets aren't ordered, so there's nowhere to put the element.
+   */
+  @Override
+  public boolean add(int index, CharSequence v) {
+    throw new UnsupportedOperationException("Sets have no index");
+  }
+
+  @Override
+  public boolean add(ManagedString v) {
+    return add((CharSequence)v);
+  }
+
+  @Override
+  public boolean removeString(CharSequence v) {
+    return v != null && removeElt(handleIndex_, managedHandle(v), unmanaged(v));
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    return o instanceof CharSequence && removeString((CharSequence)o);
+  }
+
+  @Override
+  public boolean addAll(String[] array) {
+    return addAllElts(handleIndex_, array);
+  }
+
+  @Override
+  public boolean addAllStrings(Collection<? extends CharSequence> coll) {
+    return addAll(strings(coll));
+  }
+
+  @Override
+  public boolean containsAll(String[] array) {
+    return containsAllElts(handleIndex_, array);
+  }
+
+  @Override
+  public boolean containsAllStrings(Collection<? extends CharSequence> coll) {
+    return containsAll(strings(coll));
+  }
+
+  /**
+   * @return false if the set was empty
+   */
+  @Override
+  public boolean forEachString(Consumer<? super String> consumer) {
+    boolean any = false;
+    for (Iterator<String> it = stringIterator(); it.hasNext();) {
+      consumer.accept(it.next());
+      any = true;
+    }
+    return any;
+  }
+
+  @Override
+  public boolean removeStringif(Predicate<? super String> pred) {
+    boolean changed = false;
+    for (Iterator<String> it = stringIterator(); it.hasNext();) {
+      if (pred.test(it.next())) {
+        it.remove();
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  @Override
+  public Spliterator<String> stringSpliterator() {
+    return Spliterators.spliterator(stringIterator(), longSize(),
+                                    Spliterator.DISTINCT | Spliterator.NONNULL);
+  }
+
+  @Override
+  public Stream<String> stringStream() {
+    return StreamSupport.stream(stringSpliterator(), false);
+  }
+
+  @Override
+  public String[] toStringArray() {
+    return toArray(new String[0]);
+  }
+
+  @Override
+  public String[] toArray(String[] array) {
+    String[] result = array;
+    int n = 0;
+    for (Iterator<String> it = stringIterator(); it.hasNext();) {
+      if (n == result.length) {
+        result = Arrays.copyOf(result, Math.max(2*n, CHUNK_SIZE));
+      }
+      result[n++] = it.next();
+    }
+    if (result == array) {
+      if (n < array.length) {
+        array[n] = null;
+      }
+      return array;
+    }
+    return Arrays.copyOf(result, n);
+  }
+
+  @Override
+  public ManagedStringSet.UnmanagedSetView asUnmanagedSet() {
+    class View extends AbstractSet<String> implements ManagedStringSet.UnmanagedSetView {
+      @Override
+      public ManagedStringSet asManagedSet() {
+        return StringSetProxy.this;
+      }
+      @Override
+      public Iterator<String> iterator() {
+        return stringIterator();
+      }
+      @Override
+      public int size() {
+        return StringSetProxy.this.size();
+      }
+      @Override
+      public boolean contains(Object o) {
+        return StringSetProxy.this.contains(o);
+      }
+      @Override
+      public boolean add(String v) {
+        return StringSetProxy.this.add(v);
+      }
+      @Override
+      public boolean remove(Object o) {
+        return StringSetProxy.this.remove(o);
+      }
+      @Override
+      public void clear() {
+        StringSetProxy.this.clear();
+      }
+    }
+    return new View();
+  }
+
+  @Override
+  public ManagedStringSet bindName(Prior prior, Namespace ns, CharSequence name) {
+    type().bindIn(ns, name, this, prior);
+    return this;
+  }
+
+  /*
+   * The capacity is the only thing the hints decide, and it's fixed
+   * when the set is created.
+   */
+  @Override
+  public ManagedStringSet using(ManagedStringSet.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedStringSet inherentUsage(ManagedStringSet.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public ManagedStringSet usageDuring(UsageScope scope, ManagedStringSet.Usage hint) {
+    return this;
+  }
+
+  @Override
+  public UsagePlan usagePlan(ManagedStringSet.Usage hint) {
+    return UsageImpl.NO_PLAN;
+  }
+
+}
@@ -296,7 +296,9 @@ public class TaskProxy extends Proxy implements Task {
   
 
   void rerun(Runnable fn) {
+    FlightEvents.TaskRerun event = FlightEvents.taskRerun();
     establishAndRun(fn);
+    event.finish(handleIndex_, () -> getContext().getHandle());
   }    
 
   public static <T> TaskComputed<T>
@@ -0,0 +1,136 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+package com.hpl.mds.impl;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import com.hpl.mds.usage.GrowthBound;
+import com.hpl.mds.usage.GrowthRate;
+
+/*
+ * The values behind GrowthRate and GrowthBound.  A rate is a period
+ * and a bound is a horizon; UsageImpl divides the one by the other to
+ * get the number of increments a growth hint asks for.
+ */
+public final class UsageGrowth {
+
+  private UsageGrowth() {}
+
+  public static Duration duration(double n, TimeUnit unit) {
+    if (!(n > 0)) {
+      throw new IllegalArgumentException("Growth durations must be positive: " + n);
+    }
+    return Duration.ofNanos((long)Math.min(n * unit.toNanos(1), Long.MAX_VALUE));
+  }
+
+  public static GrowthRate rate(Duration period) {
+    return new Rate(checked(period));
+  }
+
+  public static GrowthBound bound(Duration horizon) {
+    return new Bound(checked(horizon));
+  }
+
+  public static GrowthBound until(LocalTime end) {
+    return new Until(end);
+  }
+
+  private static Duration checked(Duration d) {
+    if (d.isNegative() || d.isZero()) {
+      throw new IllegalArgumentException("Growth durations must be positive: " + d);
+    }
+    return d;
+  }
+
+  /*
+   * The number of increments of rate within bound, never less than
+   * one.  Either may be null, in which case there's one increment.
+   */
+  static double increments(GrowthRate rate, GrowthBound bound) {
+    if (rate == null || bound == null) {
+      return 1;
+    }
+    double n = (double)bound.horizon().toNanos() / rate.period().toNanos();
+    return Math.max(n, 1);
+  }
+
+  private static final class Rate implements GrowthRate {
+    private final Duration period;
+
+    Rate(Duration period) {
+      this.period = period;
+    }
+
+    @Override
+    public Duration period() {
+      return period;
+    }
+
+    @Override
+    public String toString() {
+      return "per " + period;
+    }
+  }
+
+  private static final class Bound implements GrowthBound {
+    private final Duration horizon;
+
+    Bound(Duration horizon) {
+      this.horizon = horizon;
+    }
+
+    @Override
+    public Duration horizon() {
+      return horizon;
+    }
+
+    @Override
+    public String toString() {
+      return "over " + horizon;
+    }
+  }
+
+  private static final class Until implements GrowthBound {
+    private final LocalTime end;
+
+    Until(LocalTime end) {
+      this.end = end;
+    }
+
+    @Override
+    public Duration horizon() {
+      Duration d = Duration.between(LocalTime.now(), end);
+      return d.isNegative() || d.isZero() ? d.plusDays(1) : d;
+    }
+
+    @Override
+    public String toString() {
+      return "until " + end;
+    }
+  }
+}
@@ -0,0 +1,335 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+package com.hpl.mds.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.hpl.mds.usage.GrowthBound;
+import com.hpl.mds.usage.GrowthRate;
+import com.hpl.mds.usage.Operation;
+import com.hpl.mds.usage.UsageBase;
+import com.hpl.mds.usage.UsageMode;
+import com.hpl.mds.usage.UsagePlan;
+import com.hpl.mds.usage.UsageScope;
+
+/*
+ * The state behind a set of usage hints.  Every managed type has its
+ * own Usage interface (so that only the modes and operations that make
+ * sense for it can be named), and hints are freely cast between them,
+ * so rather than a class per interface there is one record of what's
+ * been asked for, with a dynamic proxy presenting it as whichever
+ * Usage interface is wanted.  Casting shares the record; copying
+ * doesn't.
+ *
+ * Hints given during() a scope are ignored once the scope has closed.
+ * The size and growth hints are boiled down to capacityHint(), the
+ * number of elements it's worth making room for at creation.  Of the
+ * growth hints, only the last is kept.
+ */
+public final class UsageImpl implements InvocationHandler {
+
+  private final Set<UsageMode<?>> modes = new HashSet<>();
+  private final Set<Operation<?>> optimizedFor = new HashSet<>();
+  private final Set<Operation<?>> notExpected = new HashSet<>();
+  private long expectedSize = -1;
+  private long maxSize = -1;
+  private UsageScope scope = null;
+  private long growBy = 0;
+  private double growFactor = 1;
+  private GrowthRate growthRate = null;
+  private GrowthBound growthBound = null;
+
+  /*
+   * No hint gets more than this allocated up front.
+   */
+  static final long MAX_PREALLOCATION = 1L << 24;
+
+  private UsageImpl() {}
+
+  public static <U extends UsageBase<?, ?>> U create(Class<U> iface) {
+    return new UsageImpl().as(iface);
+  }
+
+  /**
+   * @return the record behind hints, or null if hints is null or
+   *         wasn't made by create()
+   */
+  public static UsageImpl of(Object hints) {
+    if (hints == null || !Proxy.isProxyClass(hints.getClass())) {
+      return null;
+    }
+    InvocationHandler h = Proxy.getInvocationHandler(hints);
+    return h instanceof UsageImpl ? (UsageImpl)h : null;
+  }
+
+  private <U> U as(Class<U> iface) {
+    return iface.cast(Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[] { iface }, this));
+  }
+
+  private UsageImpl copy() {
+    UsageImpl c = new UsageImpl();
+    c.merge(this);
+    return c;
+  }
+
+  private void merge(UsageImpl other) {
+    if (other == null || other == this) {
+      return;
+    }
+    modes.addAll(other.modes);
+    optimizedFor.addAll(other.optimizedFor);
+    notExpected.addAll(other.notExpected);
+    if (other.expectedSize >= 0) {
+      expectedSize = other.expectedSize;
+    }
+    if (other.maxSize >= 0) {
+      maxSize = other.maxSize;
+    }
+    if (other.scope != null) {
+      scope = other.scope;
+    }
+    if (other.growBy != 0 || other.growFactor != 1) {
+      growBy = other.growBy;
+      growFactor = other.growFactor;
+      growthRate = other.growthRate;
+      growthBound = other.growthBound;
+    }
+  }
+
+  private static <T> void addTo(Set<T> set, Object arg, Class<T> clss) {
+    if (arg instanceof Collection) {
+      for (Object o : (Collection<?>)arg) {
+        set.add(clss.cast(o));
+      }
+    } else {
+      set.add(clss.cast(arg));
+    }
+  }
+
+  public boolean inScope() {
+    return scope == null || scope.isOpen();
+  }
+
+  public boolean uses(UsageMode<?> mode) {
+    return inScope() && modes.contains(mode);
+  }
+
+  public boolean optimizesFor(Operation<?> op) {
+    return inScope() && optimizedFor.contains(op);
+  }
+
+  public boolean expects(Operation<?> op) {
+    return !inScope() || !notExpected.contains(op);
+  }
+
+  /**
+   * @return the expected size, or -1 if none was given
+   */
+  public long expectedSize() {
+    return inScope() ? expectedSize : -1;
+  }
+
+  /**
+   * @return the maximum size, or -1 if none was given
+   */
+  public long maxSize() {
+    return inScope() ? maxSize : -1;
+  }
+
+  /**
+   * @return the expected size after the growth hint has run its
+   *         course, no more than the maximum size or
+   *         MAX_PREALLOCATION, or -1 if there are no size or growth
+   *         hints
+   */
+  public long capacityHint() {
+    if (!inScope() || (expectedSize < 0 && growBy == 0 && growFactor == 1)) {
+      return -1;
+    }
+    double n = Math.max(expectedSize, 0);
+    double steps = UsageGrowth.increments(growthRate, growthBound);
+    if (growFactor != 1) {
+      n *= Math.pow(growFactor, steps);
+    }
+    n += growBy * steps;
+    long cap = maxSize >= 0 ? Math.min(maxSize, MAX_PREALLOCATION) : MAX_PREALLOCATION;
+    return (long)Math.max(Math.min(n, cap), 0);
+  }
+
+  /**
+   * @return the capacity hint for hints, or dflt if there isn't one
+   */
+  public static long capacityHint(Object hints, long dflt) {
+    UsageImpl usage = of(hints);
+    long n = usage == null ? -1 : usage.capacityHint();
+    return n < 0 ? dflt : n;
+  }
+
+  /*
+   * The plan for a container whose hints only matter when it's
+   * created, so once it exists there is nothing to set up or undo.
+   */
+  public static final UsagePlan NO_PLAN = () -> { };
+
+  public UsageScope scope() {
+    return scope;
+  }
+
+  private void grow(String how, Object[] args) {
+    GrowthRate rate = null;
+    GrowthBound bound = null;
+    for (int i = 1; i < args.length; i++) {
+      if (args[i] instanceof GrowthRate) {
+        rate = (GrowthRate)args[i];
+      } else if (args[i] instanceof GrowthBound) {
+        bound = (GrowthBound)args[i];
+      }
+    }
+    switch (how) {
+    case "growBy":
+      growBy = (Long)args[0];
+      growFactor = 1;
+      break;
+    case "growByMultiple":
+      growBy = 0;
+      growFactor = (Double)args[0];
+      break;
+    case "growByPercent":
+      growBy = 0;
+      growFactor = 1 + (Double)args[0] / 100;
+      break;
+    default:
+      throw new UnsupportedOperationException("Usage." + how);
+    }
+    growthRate = rate;
+    growthBound = bound;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+    case "concrete":
+      return proxy;
+    case "during":
+      scope = (UsageScope)args[0];
+      return proxy;
+    case "optimizeFor":
+      addTo(optimizedFor, args[0], (Class<Operation<?>>)(Class<?>)Operation.class);
+      return proxy;
+    case "doNotExpect":
+      addTo(notExpected, args[0], (Class<Operation<?>>)(Class<?>)Operation.class);
+      return proxy;
+    case "useAs":
+      addTo(modes, args[0], (Class<UsageMode<?>>)(Class<?>)UsageMode.class);
+      return proxy;
+    case "and":
+      if (args[0] instanceof Collection) {
+        for (Object o : (Collection<?>)args[0]) {
+          merge(of(o));
+        }
+      } else {
+        merge(of(args[0]));
+      }
+      return proxy;
+    case "map":
+      Function<Object, ?> fn = (Function<Object, ?>)args[0];
+      for (Object o : (Collection<?>)args[1]) {
+        fn.apply(o);
+      }
+      return proxy;
+    case "copy":
+      if (args == null || args.length == 0) {
+        return copy().as(proxy.getClass().getInterfaces()[0]);
+      }
+      return copy().as((Class<?>)args[0]);
+    case "cast":
+      return as((Class<?>)args[0]);
+    case "expectedSize":
+      expectedSize = (Long)args[0];
+      return proxy;
+    case "maxSize":
+      maxSize = (Long)args[0];
+      return proxy;
+    case "equals":
+      return proxy == args[0];
+    case "hashCode":
+      return System.identityHashCode(proxy);
+    case "toString":
+      return toString();
+    default:
+      if (method.getName().startsWith("grow")) {
+        grow(method.getName(), args);
+        return proxy;
+      }
+      throw new UnsupportedOperationException("Usage." + method.getName());
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("Usage[");
+    if (!modes.isEmpty()) {
+      sb.append("useAs=").append(modes).append(' ');
+    }
+    if (!optimizedFor.isEmpty()) {
+      sb.append("optimizeFor=").append(optimizedFor).append(' ');
+    }
+    if (!notExpected.isEmpty()) {
+      sb.append("doNotExpect=").append(notExpected).append(' ');
+    }
+    if (expectedSize >= 0) {
+      sb.append("expectedSize=").append(expectedSize).append(' ');
+    }
+    if (maxSize >= 0) {
+      sb.append("maxSize=").append(maxSize).append(' ');
+    }
+    if (growBy != 0 || growFactor != 1) {
+      sb.append("grow=").append(growBy != 0 ? "+" + growBy : "x" + growFactor);
+      if (growthRate != null) {
+        sb.append(' ').append(growthRate);
+      }
+      if (growthBound != null) {
+        sb.append(' ').append(growthBound);
+      }
+      sb.append(' ');
+    }
+    if (scope != null && !scope.isOpen()) {
+      sb.append("(scope closed) ");
+    }
+    int n = sb.length();
+    if (sb.charAt(n-1) == ' ') {
+      sb.setLength(n-1);
+    }
+    return sb.append(']').toString();
+  }
+}
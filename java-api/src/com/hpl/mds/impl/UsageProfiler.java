@@ -0,0 +1,369 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+package com.hpl.mds.impl;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.hpl.mds.usage.Operation;
+
+/*
+ * The recording side of UsageProfile.  Proxies call note() on each
+ * operation, or sample() and then record() when working out which
+ * operation it was costs a native call.  When profiling is off that's
+ * a single static read.  When it's on, each thread counts down to its
+ * next sample, so only one call in sampleEvery pays for the stack walk
+ * that finds the call site, and each sample is counted as sampleEvery
+ * calls.
+ *
+ * Arrays, lists, sets, string-keyed maps and ordered maps are
+ * instrumented.  Fields aren't: there are no field Operations for a
+ * profile to feed back.
+ *
+ * Structures are tracked by weak reference to their proxy (which is
+ * canonical for its handle), so a handle index that's reused after its
+ * proxy is collected starts a new entry rather than adding to an old
+ * one.  When a proxy is collected its counts are kept if it was
+ * labelled, but of the unlabelled ones only the busiest MAX_RETIRED
+ * are, so a program that churns through short-lived structures doesn't
+ * grow the profile without bound.  Unlabelled structures are named by
+ * proxy class and a serial number, so anything that's to be matched up
+ * across runs should be given a label.
+ */
+public final class UsageProfiler {
+
+  static final int MAX_RETIRED = 1024;
+
+  private static volatile boolean running = false;
+  private static volatile int sampleEvery = 1;
+
+  private static final ThreadLocal<int[]> countdown = ThreadLocal.withInitial(() -> new int[] { 1 });
+  private static final ReferenceQueue<Proxy> collected = new ReferenceQueue<>();
+  private static final ConcurrentMap<Key, Structure> live = new ConcurrentHashMap<>();
+  private static final Map<String, Structure> retired = new LinkedHashMap<>();
+  private static final AtomicLong serial = new AtomicLong();
+
+  private UsageProfiler() {}
+
+  /*
+   * Compares referents by identity.  A key whose referent has been
+   * collected is only equal to itself, which is all that's needed to
+   * remove it.
+   */
+  private static final class Key extends WeakReference<Proxy> {
+    private final int hash;
+
+    Key(Proxy p, ReferenceQueue<Proxy> q) {
+      super(p, q);
+      hash = System.identityHashCode(p);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Proxy p = get();
+      return p != null && p == ((Key)o).get();
+    }
+  }
+
+  public static void start(int every) {
+    if (every < 1) {
+      throw new IllegalArgumentException("Sampling interval must be positive: " + every);
+    }
+    sampleEvery = every;
+    running = true;
+  }
+
+  public static void stop() {
+    running = false;
+  }
+
+  public static boolean isRunning() {
+    return running;
+  }
+
+  /*
+   * Labels are kept.
+   */
+  public static void reset() {
+    expunge();
+    live.values().forEach(Structure::clear);
+    synchronized (retired) {
+      retired.clear();
+    }
+  }
+
+  public static void label(Object structure, String name) {
+    if (!(structure instanceof Proxy)) {
+      throw new IllegalArgumentException("Not a managed structure: " + structure);
+    }
+    Structure s = structureFor((Proxy)structure);
+    s.name = name;
+    s.labelled = true;
+  }
+
+  static boolean sample() {
+    if (!running) {
+      return false;
+    }
+    int[] c = countdown.get();
+    if (--c[0] > 0) {
+      return false;
+    }
+    c[0] = sampleEvery;
+    return true;
+  }
+
+  static void note(Proxy structure, Operation<?> op) {
+    if (sample()) {
+      record(structure, op);
+    }
+  }
+
+  static void record(Proxy structure, Operation<?> op) {
+    expunge();
+    structureFor(structure).sites
+      .computeIfAbsent(callSite(), k -> new ConcurrentHashMap<>())
+      .computeIfAbsent(op, k -> new LongAdder())
+      .add(sampleEvery);
+  }
+
+  private static Structure structureFor(Proxy p) {
+    Structure s = live.get(new Key(p, null));
+    if (s == null) {
+      s = live.computeIfAbsent(new Key(p, collected), k -> new Structure(p));
+    }
+    return s;
+  }
+
+  /*
+   * Moves the structures whose proxies have been collected out of the
+   * live map.
+   */
+  private static void expunge() {
+    for (Reference<? extends Proxy> r; (r = collected.poll()) != null;) {
+      Structure s = live.remove(r);
+      if (s != null) {
+        retire(s);
+      }
+    }
+  }
+
+  private static void retire(Structure s) {
+    if (s.sites.isEmpty()) {
+      return;
+    }
+    synchronized (retired) {
+      Structure prev = retired.get(s.name);
+      if (prev != null) {
+        prev.addAll(s);
+        return;
+      }
+      if (!s.labelled && retired.size() >= MAX_RETIRED) {
+        Structure quietest = null;
+        long least = Long.MAX_VALUE;
+        for (Structure r : retired.values()) {
+          long t;
+          if (!r.labelled && (t = r.total()) < least) {
+            quietest = r;
+            least = t;
+          }
+        }
+        if (quietest == null || least >= s.total()) {
+          return;
+        }
+        retired.remove(quietest.name);
+      }
+      retired.put(s.name, s);
+    }
+  }
+
+  private static String kindOf(Proxy p) {
+    if (p instanceof ArrayProxy) {
+      return "array";
+    } else if (p instanceof ListProxy) {
+      return "list";
+    } else if (p instanceof StringKeyedMapProxy) {
+      return "map";
+    } else if (p instanceof OrderedMapProxy) {
+      return "ordered map";
+    } else if (p instanceof SetProxy) {
+      return "set";
+    }
+    return "other";
+  }
+
+  /*
+   * The first frame outside MDS and the JDK.
+   */
+  private static String callSite() {
+    for (StackTraceElement f : new Throwable().getStackTrace()) {
+      String c = f.getClassName();
+      if (c.startsWith("com.hpl.mds.") || c.startsWith("java.")
+          || c.startsWith("sun.") || c.startsWith("jdk.")) {
+        continue;
+      }
+      String simple = c.substring(c.lastIndexOf('.') + 1);
+      return simple + "." + f.getMethodName() + ":" + f.getLineNumber();
+    }
+    return "?";
+  }
+
+  /**
+   * A structure that's been seen by the profiler.  The counts are live.
+   */
+  public static final class Structure {
+    private final String kind;
+    private final long size;
+    private volatile String name;
+    private volatile boolean labelled;
+    private final ConcurrentMap<String, ConcurrentMap<Operation<?>, LongAdder>> sites = new ConcurrentHashMap<>();
+
+    private Structure(Proxy p) {
+      this.kind = kindOf(p);
+      this.size = p instanceof ArrayProxy ? ((ArrayProxy<?>)p).size : -1;
+      this.name = p.getClass().getSimpleName() + "#" + serial.incrementAndGet();
+    }
+
+    private Structure(Structure s) {
+      this.kind = s.kind;
+      this.size = s.size;
+      this.name = s.name;
+      this.labelled = s.labelled;
+      addAll(s);
+    }
+
+    private void addAll(Structure s) {
+      s.sites.forEach((site, ops) -> {
+          ConcurrentMap<Operation<?>, LongAdder> mine
+            = sites.computeIfAbsent(site, k -> new ConcurrentHashMap<>());
+          ops.forEach((op, n) -> mine.computeIfAbsent(op, k -> new LongAdder()).add(n.sum()));
+        });
+    }
+
+    private void clear() {
+      sites.clear();
+    }
+
+    private long total() {
+      long t = 0;
+      for (Map<Operation<?>, LongAdder> ops : sites.values()) {
+        for (LongAdder n : ops.values()) {
+          t += n.sum();
+        }
+      }
+      return t;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public String kind() {
+      return kind;
+    }
+
+    /**
+     * @return the size of an array, or -1 for anything else
+     */
+    public long size() {
+      return size;
+    }
+
+    /**
+     * @return the estimated number of each operation, by call site
+     */
+    public Map<String, Map<Operation<?>, Long>> sites() {
+      Map<String, Map<Operation<?>, Long>> m = new HashMap<>();
+      sites.forEach((site, ops) -> {
+          Map<Operation<?>, Long> counts = new HashMap<>();
+          ops.forEach((op, n) -> counts.put(op, n.sum()));
+          m.put(site, counts);
+        });
+      return m;
+    }
+  }
+
+  /*
+   * Structures that share a label (live or retired) are merged.
+   */
+  public static List<Structure> snapshot() {
+    expunge();
+    Map<String, Structure> byName = new HashMap<>();
+    Set<Structure> copies = new HashSet<>();
+    List<Structure> all = new ArrayList<>(live.values());
+    synchronized (retired) {
+      all.addAll(retired.values());
+    }
+    for (Structure s : all) {
+      if (s.sites.isEmpty()) {
+        continue;
+      }
+      Structure prev = byName.get(s.name);
+      if (prev == null) {
+        byName.put(s.name, s);
+      } else {
+        if (!copies.contains(prev)) {
+          prev = new Structure(prev);
+          copies.add(prev);
+          byName.put(s.name, prev);
+        }
+        prev.addAll(s);
+      }
+    }
+    List<Structure> l = new ArrayList<>(byName.values());
+    l.sort(Comparator.comparing(Structure::name));
+    return Collections.unmodifiableList(l);
+  }
+
+  public static int sampleEvery() {
+    return sampleEvery;
+  }
+}
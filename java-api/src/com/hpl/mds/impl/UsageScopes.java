@@ -0,0 +1,95 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+package com.hpl.mds.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.hpl.mds.usage.UsageScope;
+
+/*
+ * The implementations behind UsageScope's static methods.  Closing a
+ * composite closes everything in it.
+ */
+public final class UsageScopes {
+
+  private UsageScopes() {}
+
+  public static UsageScope open() {
+    return new Simple();
+  }
+
+  public static UsageScope firstOf(Collection<? extends UsageScope> scopes) {
+    return new Composite(scopes, true);
+  }
+
+  public static UsageScope lastOf(Collection<? extends UsageScope> scopes) {
+    return new Composite(scopes, false);
+  }
+
+  private static final class Simple implements UsageScope {
+    private final AtomicBoolean open = new AtomicBoolean(true);
+
+    @Override
+    public boolean isOpen() {
+      return open.get();
+    }
+
+    @Override
+    public void close() {
+      open.set(false);
+    }
+  }
+
+  private static final class Composite implements UsageScope {
+    private final List<UsageScope> scopes;
+    private final boolean first;
+
+    Composite(Collection<? extends UsageScope> scopes, boolean first) {
+      this.scopes = new ArrayList<>(scopes);
+      this.first = first;
+    }
+
+    @Override
+    public boolean isOpen() {
+      for (UsageScope s : scopes) {
+        if (s.isOpen() != first) {
+          return !first;
+        }
+      }
+      return first;
+    }
+
+    @Override
+    public void close() {
+      for (UsageScope s : scopes) {
+        s.close();
+      }
+    }
+  }
+}
@@ -55,5 +55,10 @@ public interface ManagedKeyedSet<EK extends ManagedObject, V extends ManagedObje
   
   boolean addKeyed(V val, Function<? super V, ? extends EK> keyFn);
   
+  V get(EK key);
+  
+  boolean containsKey(EK key);
+  
+  V removeKey(EK key);
 
 }
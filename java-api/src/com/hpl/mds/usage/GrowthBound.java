@@ -30,8 +30,12 @@ import java.time.Duration;
 import java.time.LocalTime;
 import java.util.concurrent.TimeUnit;
 
-import com.hpl.mds.impl.Stub;
+import com.hpl.mds.impl.UsageGrowth;
 
+/**
+ * How long a growth hint is expected to hold, e.g. {@code growBy(100,
+ * PER_SECOND, FOR_A_MINUTE)}.
+ */
 public interface GrowthBound {
   static final GrowthBound FOR_A_NANOSECOND = over(TimeUnit.NANOSECONDS);
   static final GrowthBound FOR_A_MICROSECOND = over(TimeUnit.MICROSECONDS);
@@ -41,9 +45,13 @@ public interface GrowthBound {
   static final GrowthBound FOR_AN_HOUR = over(TimeUnit.HOURS);
   static final GrowthBound FOR_A_DAY = over(TimeUnit.DAYS);
 
+  /**
+   * @return how long, from now, the growth is expected to continue
+   */
+  Duration horizon();
+
   static GrowthBound over(double n, TimeUnit unit) {
-    // TODO
-    return Stub.notImplemented();
+    return over(UsageGrowth.duration(n, unit));
   }
   
   static GrowthBound over(TimeUnit unit) {
@@ -51,12 +59,15 @@ public interface GrowthBound {
   }
   
   static GrowthBound over(Duration duration) {
-    // TODO 
-    return Stub.notImplemented();
+    return UsageGrowth.bound(duration);
   }
   
+  /**
+   * The horizon is measured when the hint is acted on (typically when
+   * the container is created), and an end earlier than that is taken
+   * to be tomorrow.
+   */
   static GrowthBound until(LocalTime end) {
-    // TODO 
-    return Stub.notImplemented();
+    return UsageGrowth.until(end);
   }
 }
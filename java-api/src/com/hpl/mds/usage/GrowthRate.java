@@ -29,19 +29,26 @@ package com.hpl.mds.usage;
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
-import com.hpl.mds.impl.Stub;
+import com.hpl.mds.impl.UsageGrowth;
 
+/**
+ * How often a growth hint's increment applies, e.g. {@code
+ * growBy(100, PER_SECOND)}.
+ */
 public interface GrowthRate {
+  /**
+   * @return the time over which one increment of growth happens
+   */
+  Duration period();
+
   public static GrowthRate per(double n, TimeUnit unit) {
-    // TODO
-    return Stub.notImplemented();
+    return per(UsageGrowth.duration(n, unit));
   }
   public static GrowthRate per(TimeUnit unit) {
     return per(1, unit);
   }
   public static GrowthRate per(Duration duration) {
-    // TODO 
-    return Stub.notImplemented();
+    return UsageGrowth.rate(duration);
   }
   
   public static final GrowthRate PER_NANOSECOND = per(TimeUnit.NANOSECONDS);
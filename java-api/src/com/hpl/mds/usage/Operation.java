@@ -30,5 +30,19 @@ import com.hpl.mds.ManagedObject;
 
 
 public class Operation<UF extends ManagedObject.ForManagedObject> {
+  private final String name;
+
+  public Operation(String name) {
+    this.name = name;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
 
 }
@@ -30,5 +30,19 @@ import com.hpl.mds.ManagedObject;
 
 
 public class UsageMode<UF extends ManagedObject.ForManagedObject> {
+  private final String name;
+
+  public UsageMode(String name) {
+    this.name = name;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
 
 }
@@ -0,0 +1,466 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package com.hpl.mds.usage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.hpl.mds.ManagedArray;
+import com.hpl.mds.ManagedCollection;
+import com.hpl.mds.ManagedContainer;
+import com.hpl.mds.ManagedList;
+import com.hpl.mds.ManagedMap;
+import com.hpl.mds.ManagedObject;
+import com.hpl.mds.ManagedOrdered;
+import com.hpl.mds.ManagedSet;
+import com.hpl.mds.impl.UsageProfiler;
+
+/**
+ * An opt-in profile of how managed arrays, lists, sets and maps are
+ * used, for working out which usage hints to give them.  While
+ * profiling is running, every sampleEvery'th operation on each thread
+ * is recorded against the structure it was made on and the call site
+ * it came from, and counted as sampleEvery operations.
+ *
+ * <p>A snapshot can be printed as a report, which suggests a {@link
+ * UsageMode} for each structure, or dumped in a line-oriented form that
+ * {@link #read(Reader)} can load in a later run, where {@link
+ * #hintsFor(String, UsageBase)} turns it back into hints:
+ *
+ * <pre>
+ *   UsageProfile.start();
+ *   UsageProfile.label(orders, "orders");
+ *   ...
+ *   UsageProfile.snapshot().dump(out);
+ *
+ *   // next time
+ *   ManagedList.Usage u = UsageProfile.read(in).hintsFor("orders", ManagedList.usage());
+ * </pre>
+ *
+ * Structures that haven't been labeled are named by proxy class and a
+ * serial number, which doesn't carry over between runs.  Of those, only
+ * the busiest are kept once they've been collected.
+ */
+public final class UsageProfile {
+
+  public static final int DEFAULT_SAMPLE_EVERY = 64;
+
+  /*
+   * An operation has to be at least this share of a structure's total
+   * to be worth optimizing for.
+   */
+  private static final double HOT_SHARE = 0.1;
+
+  private final Map<String, Entry> entries;
+
+  private UsageProfile(Map<String, Entry> entries) {
+    this.entries = entries;
+  }
+
+  public static void start() {
+    start(DEFAULT_SAMPLE_EVERY);
+  }
+
+  public static void start(int sampleEvery) {
+    UsageProfiler.start(sampleEvery);
+  }
+
+  public static void stop() {
+    UsageProfiler.stop();
+  }
+
+  public static boolean isRunning() {
+    return UsageProfiler.isRunning();
+  }
+
+  /**
+   * Forgets everything recorded so far.  Labels are kept.
+   */
+  public static void reset() {
+    UsageProfiler.reset();
+  }
+
+  /**
+   * Names structure in reports and dumps.
+   */
+  public static <T extends ManagedObject> T label(T structure, String name) {
+    UsageProfiler.label(structure, name);
+    return structure;
+  }
+
+  public static UsageProfile snapshot() {
+    Map<String, Entry> m = new TreeMap<>();
+    for (UsageProfiler.Structure s : UsageProfiler.snapshot()) {
+      m.put(s.name(), new Entry(s.name(), s.kind(), s.size(), s.sites()));
+    }
+    return new UsageProfile(m);
+  }
+
+  public Collection<Entry> entries() {
+    return Collections.unmodifiableCollection(entries.values());
+  }
+
+  /**
+   * @return null if nothing was recorded for name
+   */
+  public Entry entry(String name) {
+    return entries.get(name);
+  }
+
+  /**
+   * Adds the hints for the named structure to usage.  If nothing was
+   * recorded for it, usage is returned unchanged.
+   */
+  public <U extends UsageBase<?, U>> U hintsFor(String name, U usage) {
+    Entry e = entry(name);
+    return e == null ? usage : e.applyTo(usage);
+  }
+
+  public static final class Entry {
+    private final String name;
+    private final String kind;
+    private final long size;
+    private final Map<String, Map<Operation<?>, Long>> sites;
+    private final Map<Operation<?>, Long> counts = new LinkedHashMap<>();
+
+    Entry(String name, String kind, long size, Map<String, Map<Operation<?>, Long>> sites) {
+      this.name = name;
+      this.kind = kind;
+      this.size = size;
+      this.sites = sites;
+      Map<Operation<?>, Long> totals = new HashMap<>();
+      sites.values().forEach(ops -> ops.forEach((op, n) -> totals.merge(op, n, Long::sum)));
+      totals.entrySet().stream()
+        .sorted(Map.Entry.<Operation<?>, Long>comparingByValue().reversed())
+        .forEach(e -> counts.put(e.getKey(), e.getValue()));
+    }
+
+    public String name() {
+      return name;
+    }
+
+    /**
+     * @return "array", "list", "map", "ordered map" or "set"
+     */
+    public String kind() {
+      return kind;
+    }
+
+    /**
+     * @return the estimated number of each operation, most frequent
+     *         first
+     */
+    public Map<Operation<?>, Long> counts() {
+      return Collections.unmodifiableMap(counts);
+    }
+
+    public long count(Operation<?> op) {
+      return counts.getOrDefault(op, 0L);
+    }
+
+    public long total() {
+      return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @return the estimated number of each operation, by call site
+     */
+    public Map<String, Map<Operation<?>, Long>> sites() {
+      return Collections.unmodifiableMap(sites);
+    }
+
+    /**
+     * @return the operations that make up a significant share of the
+     *         total, most frequent first
+     */
+    public List<Operation<?>> hotOperations() {
+      long total = total();
+      List<Operation<?>> hot = new ArrayList<>();
+      counts.forEach((op, n) -> {
+          if (n >= total * HOT_SHARE) {
+            hot.add(op);
+          }
+        });
+      return hot;
+    }
+
+    /**
+     * @return the usage mode that best fits the recorded operations,
+     *         or null if none stands out
+     */
+    public UsageMode<?> suggestedMode() {
+      switch (kind) {
+      case "array":
+        return suggestForArray();
+      case "list":
+        return suggestForList();
+      default:
+        return null;
+      }
+    }
+
+    /*
+     * Filled in once and read many times.  With sampling, the set
+     * count is only an estimate, so this errs towards not suggesting.
+     */
+    private UsageMode<?> suggestForArray() {
+      long sets = count(ManagedArray.SET);
+      long gets = count(ManagedArray.GET);
+      if (size > 0 && sets <= size && gets > 0 && gets >= 4 * sets) {
+        return ManagedArray.WRITE_ONCE;
+      }
+      return null;
+    }
+
+    private UsageMode<?> suggestForList() {
+      long addFirst = count(ManagedList.ADD_FIRST);
+      long addLast = count(ManagedList.ADD_LAST);
+      long delFirst = count(ManagedList.DELETE_FIRST);
+      long delLast = count(ManagedList.DELETE_LAST);
+      long middle = count(ManagedList.ADD_MIDDLE) + count(ManagedList.DELETE_MIDDLE);
+      long random = count(ManagedList.RANDOM_READ) + count(ManagedList.RANDOM_WRITE);
+      long ends = addFirst + addLast + delFirst + delLast;
+      long all = ends + middle + random;
+      if (all == 0) {
+        return null;
+      } else if (4 * (addLast + delFirst) >= 3 * all && delFirst > 0) {
+        return ManagedList.QUEUE;
+      } else if (4 * (addLast + delLast) >= 3 * all && delLast > 0) {
+        return ManagedList.STACK;
+      } else if (4 * ends >= 3 * all && addFirst + delFirst > 0) {
+        return ManagedList.DEQUE;
+      } else if (2 * random >= all) {
+        return ManagedList.ARRAY_LIST;
+      }
+      return null;
+    }
+
+    /**
+     * Asks usage to optimize for the hot operations and to use the
+     * suggested mode.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public <U extends UsageBase<?, U>> U applyTo(U usage) {
+      UsageBase raw = usage;
+      for (Operation<?> op : hotOperations()) {
+        raw = (UsageBase)raw.optimizeFor((Operation)op);
+      }
+      UsageMode<?> mode = suggestedMode();
+      if (mode != null) {
+        raw = (UsageBase)raw.useAs((UsageMode)mode);
+      }
+      return (U)raw;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s (%s, %,d ops)", name, kind, total());
+    }
+  }
+
+  /**
+   * One block per structure, busiest first: the suggested mode, the
+   * count and share of each operation, and the call sites.
+   */
+  public String report() {
+    StringBuilder sb = new StringBuilder();
+    List<Entry> es = new ArrayList<>(entries.values());
+    es.sort((a, b) -> Long.compare(b.total(), a.total()));
+    for (Entry e : es) {
+      sb.append(e);
+      UsageMode<?> mode = e.suggestedMode();
+      if (mode != null) {
+        sb.append("  suggest useAs(").append(qualifiedName(mode)).append(')');
+      }
+      sb.append('\n');
+      long total = e.total();
+      e.counts().forEach((op, n) -> sb.append(String.format("    %-28s %,14d %5.1f%%%n",
+                                                          qualifiedName(op), n, 100.0 * n / total)));
+      e.sites().forEach((site, ops) -> {
+          sb.append("    at ").append(site).append(':');
+          ops.forEach((op, n) -> sb.append(' ').append(op).append('=').append(n));
+          sb.append('\n');
+        });
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return report();
+  }
+
+  /*
+   * The dump format is tab-separated lines:
+   *
+   *   structure  <name>  <kind>  <size>
+   *   op         <name>  <site>  <operation>  <count>
+   *   mode       <name>  <mode>
+   *
+   * Operations and modes are qualified by the interface that declares
+   * them (e.g. ManagedList.ADD_FIRST).  Mode lines are for other tools;
+   * read() works the suggestion out again.  Lines starting with # are
+   * comments.
+   */
+  private static final String HEADER = "# mds usage profile 1";
+
+  public void dump(Appendable out) throws IOException {
+    out.append(HEADER).append('\n');
+    for (Entry e : entries.values()) {
+      String name = clean(e.name);
+      out.append("structure\t").append(name).append('\t').append(e.kind)
+        .append('\t').append(Long.toString(e.size)).append('\n');
+      for (Map.Entry<String, Map<Operation<?>, Long>> s : e.sites.entrySet()) {
+        for (Map.Entry<Operation<?>, Long> c : s.getValue().entrySet()) {
+          out.append("op\t").append(name).append('\t').append(clean(s.getKey()))
+            .append('\t').append(qualifiedName(c.getKey()))
+            .append('\t').append(Long.toString(c.getValue())).append('\n');
+        }
+      }
+      UsageMode<?> mode = e.suggestedMode();
+      if (mode != null) {
+        out.append("mode\t").append(name).append('\t').append(qualifiedName(mode)).append('\n');
+      }
+    }
+  }
+
+  public String dump() {
+    StringBuilder sb = new StringBuilder();
+    try {
+      dump(sb);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Reads a dump.  Operations this version doesn't know are skipped.
+   */
+  public static UsageProfile read(Reader in) throws IOException {
+    Map<String, String> kinds = new LinkedHashMap<>();
+    Map<String, Long> sizes = new HashMap<>();
+    Map<String, Map<String, Map<Operation<?>, Long>>> sites = new HashMap<>();
+    BufferedReader r = in instanceof BufferedReader ? (BufferedReader)in : new BufferedReader(in);
+    String line;
+    int lineNo = 0;
+    while ((line = r.readLine()) != null) {
+      lineNo++;
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] f = line.split("\t", -1);
+      try {
+        switch (f[0]) {
+        case "structure":
+          kinds.put(f[1], f[2]);
+          sizes.put(f[1], Long.parseLong(f[3]));
+          break;
+        case "op":
+          Operation<?> op = operationNamed(f[3]);
+          if (op != null) {
+            sites.computeIfAbsent(f[1], k -> new HashMap<>())
+              .computeIfAbsent(f[2], k -> new HashMap<>())
+              .merge(op, Long.parseLong(f[4]), Long::sum);
+          }
+          break;
+        default:
+          break;
+        }
+      } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+        throw new IOException("Malformed usage profile line " + lineNo + ": " + line, ex);
+      }
+    }
+    Map<String, Entry> m = new TreeMap<>();
+    kinds.forEach((name, kind) -> {
+        m.put(name, new Entry(name, kind, sizes.get(name),
+                              sites.getOrDefault(name, Collections.emptyMap())));
+      });
+    return new UsageProfile(m);
+  }
+
+  private static String clean(String s) {
+    return s.replace('\t', ' ').replace('\n', ' ');
+  }
+
+  /*
+   * Operation and UsageMode only know their simple names, so the
+   * qualified names come from the constants on the interfaces.
+   */
+  private static final class Names {
+    static final Map<Object, String> byValue = new IdentityHashMap<>();
+    static final Map<String, Operation<?>> operations = new HashMap<>();
+
+    static {
+      for (Class<?> c : new Class<?>[] { ManagedContainer.class, ManagedCollection.class,
+                                         ManagedOrdered.class, ManagedArray.class,
+                                         ManagedList.class, ManagedSet.class, ManagedMap.class }) {
+        for (Field f : c.getDeclaredFields()) {
+          int mods = f.getModifiers();
+          if (!Modifier.isStatic(mods)
+              || !(Operation.class.isAssignableFrom(f.getType())
+                   || UsageMode.class.isAssignableFrom(f.getType()))) {
+            continue;
+          }
+          try {
+            Object v = f.get(null);
+            if (v != null) {
+              String name = c.getSimpleName() + "." + f.getName();
+              byValue.put(v, name);
+              if (v instanceof Operation) {
+                operations.put(name, (Operation<?>)v);
+              }
+            }
+          } catch (IllegalAccessException ex) {
+            // Interface constants are public
+          }
+        }
+      }
+    }
+  }
+
+  static String qualifiedName(Object opOrMode) {
+    return Names.byValue.getOrDefault(opOrMode, String.valueOf(opOrMode));
+  }
+
+  static Operation<?> operationNamed(String name) {
+    return Names.operations.get(name);
+  }
+}
@@ -26,29 +26,49 @@
 
 package com.hpl.mds.usage;
 
+import java.util.Arrays;
 import java.util.Collection;
 
-import com.hpl.mds.impl.Stub;
+import com.hpl.mds.impl.UsageScopes;
 
+/**
+ * A period during which hints given with {@code during()} apply.  Once
+ * the scope is closed, those hints are ignored by anything that hasn't
+ * already acted on them.
+ */
 public interface UsageScope extends AutoCloseable {
+
+  boolean isOpen();
+
+  @Override
+  void close();
+
+  /**
+   * @return a scope that's open until closed
+   */
+  static UsageScope open() {
+    return UsageScopes.open();
+  }
   
+  /**
+   * @return a scope that closes when the first of scopes does
+   */
   static UsageScope firstOf(Collection<? extends UsageScope> scopes) {
-    // TODO
-    return Stub.notImplemented();
+    return UsageScopes.firstOf(scopes);
   }
   
   static UsageScope firstOf(UsageScope ...scopes) {
-    // TODO
-    return Stub.notImplemented();
+    return firstOf(Arrays.asList(scopes));
   }
 
+  /**
+   * @return a scope that closes when the last of scopes does
+   */
   static UsageScope lastOf(Collection<? extends UsageScope> scopes) {
-    // TODO
-    return Stub.notImplemented();
+    return UsageScopes.lastOf(scopes);
   }
   
   static UsageScope lastOf(UsageScope ...scopes) {
-    // TODO
-    return Stub.notImplemented();
+    return lastOf(Arrays.asList(scopes));
   }
 }
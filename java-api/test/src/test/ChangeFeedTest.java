@@ -0,0 +1,94 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+import com.hpl.mds.*;
+import com.hpl.mds.callbacks.ChangeFeed;
+import com.hpl.mds.callbacks.FieldChange;
+import static com.hpl.mds.MDS.*;
+
+/*
+ * Checks what a change feed reports as old and new values: the field's
+ * values in the context just before and just after each publish, so a
+ * write made directly in the context shows up as the next old value.
+ */
+public class ChangeFeedTest {
+  static final Logger log = Logger.getLogger(ChangeFeedTest.class);
+  static int failures = 0;
+
+  static void expect(BlockingQueue<List<FieldChange<?, ?>>> batches,
+                     String what, int oldValue, int newValue)
+    throws InterruptedException
+  {
+    List<FieldChange<?, ?>> batch = batches.poll(10, TimeUnit.SECONDS);
+    if (batch == null || batch.size() != 1) {
+      System.out.format("%s: expected one change, got %s%n", what, batch);
+      failures++;
+      return;
+    }
+    FieldChange<?, ?> c = batch.get(0);
+    int o = ManagedInt.asInt((ManagedInt)c.oldValue());
+    int n = ManagedInt.asInt((ManagedInt)c.newValue());
+    boolean ok = o == oldValue && n == newValue;
+    System.out.format("%s: %s %d -> %d%s%n", what, c.field().name(), o, n,
+                      ok ? "" : String.format(" (expected %d -> %d)", oldValue, newValue));
+    if (!ok) {
+      failures++;
+    }
+  }
+
+  public static void main(String[] args)
+    throws InterruptedException
+  {
+    Department dept = Department.create.record(1, "feed");
+    BlockingQueue<List<FieldChange<?, ?>>> batches = new LinkedBlockingQueue<>();
+    try (ChangeFeed feed = ChangeFeed.on(IsolationContext.current())) {
+      feed.subscribe(batches::add);
+
+      isolated(() -> dept.setRank(1));
+      expect(batches, "first publish", 0, 1);
+
+      isolated(() -> dept.setRank(2));
+      expect(batches, "second publish", 1, 2);
+
+      dept.setRank(10);
+      isolated(() -> dept.setRank(3));
+      expect(batches, "after a direct write", 10, 3);
+
+      if (feed.published() != 3) {
+        System.out.format("expected 3 publishes, saw %d%n", feed.published());
+        failures++;
+      }
+    }
+    System.out.format("%d failure(s)%n", failures);
+  }
+}
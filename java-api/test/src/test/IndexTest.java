@@ -0,0 +1,131 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.log4j.Logger;
+import com.hpl.mds.*;
+
+/*
+ * Checks that the indexes declared in SupplySchema follow writes to
+ * their fields: in the context that makes the write, in its parent
+ * only once it's published, and not at all if it never is.  Also
+ * checks the bounds of ordered lookups and that writes to the same
+ * indexed field of different records don't conflict.
+ */
+public class IndexTest {
+  static final Logger log = Logger.getLogger(IndexTest.class);
+  static int failures = 0;
+
+  static void check(String what, boolean ok) {
+    System.out.format("%s: %s%n", what, ok ? "ok" : "FAILED");
+    if (!ok) {
+      failures++;
+    }
+  }
+
+  static Set<String> skus(Set<Supply> found) {
+    Set<String> res = new HashSet<>();
+    for (Supply s : found) {
+      res.add(s.getSku());
+    }
+    return res;
+  }
+
+  static Set<String> set(String... skus) {
+    return new HashSet<>(Arrays.asList(skus));
+  }
+
+  static Set<String> inCategory(String category) {
+    return skus(Supply.TYPE.findBy(Supply.TypeDef.categoryField, ManagedString.valueOf(category)));
+  }
+
+  static List<String> inStock(Integer from, boolean fromInclusive, Integer to, boolean toInclusive) {
+    List<String> res = new ArrayList<>();
+    for (Supply s : Supply.TYPE.findBy(Supply.TypeDef.stockField,
+                                       from == null ? null : ManagedInt.valueOf(from), fromInclusive,
+                                       to == null ? null : ManagedInt.valueOf(to), toInclusive)) {
+      res.add(s.getSku());
+    }
+    return res;
+  }
+
+  public static void main(String[] args) {
+    Supply a = Supply.create.record("a", "fruit", 5);
+    Supply b = Supply.create.record("b", "fruit", 10);
+    Supply c = Supply.create.record("c", "veg", 7);
+
+    check("found by value", inCategory("fruit").equals(set("a", "b"))
+          && inCategory("veg").equals(set("c")) && inCategory("meat").isEmpty());
+    b.setCategory("veg");
+    check("moved by a write", inCategory("fruit").equals(set("a"))
+          && inCategory("veg").equals(set("b", "c")));
+
+    IsolationContext ctxt = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = ctxt.use()) {
+      a.setCategory("veg");
+      check("moved in the child", inCategory("fruit").isEmpty()
+            && inCategory("veg").equals(set("a", "b", "c")));
+    }
+    check("not moved in the parent", inCategory("fruit").equals(set("a")));
+    check("write publishes", ctxt.publish().succeeded());
+    check("moved after publish", inCategory("fruit").isEmpty()
+          && inCategory("veg").equals(set("a", "b", "c")));
+
+    ctxt = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = ctxt.use()) {
+      c.setCategory("fruit");
+    }
+    check("unpublished write not seen", inCategory("fruit").isEmpty()
+          && inCategory("veg").equals(set("a", "b", "c")));
+
+    check("ordered, inclusive", inStock(5, true, 10, true).equals(Arrays.asList("a", "c", "b")));
+    check("ordered, exclusive", inStock(5, false, 10, false).equals(Arrays.asList("c")));
+    check("ordered, open ends", inStock(null, true, 7, true).equals(Arrays.asList("a", "c"))
+          && inStock(7, false, null, true).equals(Arrays.asList("b")));
+    check("ordered, empty range", inStock(6, true, 6, true).isEmpty());
+    c.setStock(20);
+    check("ordered, moved by a write", inStock(null, true, null, true).equals(Arrays.asList("a", "b", "c")));
+
+    IsolationContext c1 = IsolationContext.current().createNested();
+    IsolationContext c2 = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c1.use()) {
+      a.setCategory("meat");
+    }
+    try (IsolationContext.Use use = c2.use()) {
+      b.setCategory("meat");
+    }
+    check("different records both publish", c1.publish().succeeded() && c2.publish().succeeded());
+    check("both moved", inCategory("meat").equals(set("a", "b")) && inCategory("veg").equals(set("c")));
+
+    System.out.format("%d failure(s)%n", failures);
+  }
+}
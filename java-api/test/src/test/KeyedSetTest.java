@@ -0,0 +1,129 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package test;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.log4j.Logger;
+import com.hpl.mds.*;
+import com.hpl.mds.keyed.*;
+
+/*
+ * Checks that a keyed set finds what was filed under each key, that
+ * what it finds by key and what it iterates over agree inside and
+ * outside an isolation context, and that contexts filing under
+ * different keys don't conflict while ones filing under the same key
+ * do.
+ */
+public class KeyedSetTest {
+  static final Logger log = Logger.getLogger(KeyedSetTest.class);
+  static int failures = 0;
+
+  static void check(String what, boolean ok) {
+    System.out.format("%s: %s%n", what, ok ? "ok" : "FAILED");
+    if (!ok) {
+      failures++;
+    }
+  }
+
+  static ManagedString key(Department d) {
+    return ManagedString.valueOf(d.getName());
+  }
+
+  /*
+   * True if iterating finds exactly the given names, each filed under
+   * itself and findable by key.
+   */
+  static boolean consistent(ManagedKeyedSet<ManagedString, Department> set, String... names) {
+    Set<String> seen = new HashSet<>();
+    for (Keyed<ManagedString, Department> k : set) {
+      String name = k.key().toString();
+      if (!name.equals(k.value().getName()) || !k.value().equals(set.get(k.key()))) {
+        return false;
+      }
+      seen.add(name);
+    }
+    Set<String> expected = new HashSet<>();
+    for (String n : names) {
+      expected.add(n);
+      if (!set.containsKey(ManagedString.valueOf(n))) {
+        return false;
+      }
+    }
+    return seen.equals(expected) && set.size() == expected.size();
+  }
+
+  static boolean bothPublish(ManagedKeyedSet<ManagedString, Department> set,
+                             Department d1, Department d2)
+  {
+    IsolationContext c1 = IsolationContext.current().createNested();
+    IsolationContext c2 = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c1.use()) {
+      set.addKeyed(d1, KeyedSetTest::key);
+    }
+    try (IsolationContext.Use use = c2.use()) {
+      set.addKeyed(d2, KeyedSetTest::key);
+    }
+    boolean first = c1.publish().succeeded();
+    boolean second = c2.publish().succeeded();
+    return first && second;
+  }
+
+  public static void main(String[] args) {
+    ManagedKeyedSet<ManagedString, Department> set
+      = Keyed.createSet(ManagedString.TYPE, Department.TYPE);
+    Department a = Department.create.record(1, "a");
+    Department b = Department.create.record(2, "b");
+    Department c = Department.create.record(3, "c");
+
+    check("add by key function", set.addKeyed(a, KeyedSetTest::key));
+    check("add by key", set.addKeyed(b, key(b)));
+    check("found by key", a.equals(set.get(key(a))) && b.equals(set.get(key(b))));
+    check("same key again isn't added", !set.addKeyed(c, key(a)) && a.equals(set.get(key(a))));
+    check("missing key", set.get(key(c)) == null && !set.containsKey(key(c)));
+    check("consistent", consistent(set, "a", "b"));
+
+    IsolationContext ctxt = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = ctxt.use()) {
+      set.addKeyed(c, KeyedSetTest::key);
+      set.removeKey(key(a));
+      check("consistent in the child", consistent(set, "b", "c"));
+    }
+    check("unchanged in the parent", consistent(set, "a", "b"));
+    check("child publishes", ctxt.publish().succeeded());
+    check("consistent after publish", consistent(set, "b", "c"));
+
+    Department d = Department.create.record(4, "d");
+    Department e = Department.create.record(5, "e");
+    check("different keys both publish", bothPublish(set, d, e));
+    check("same key conflicts", !bothPublish(set, Department.create.record(6, "f"),
+                                             Department.create.record(7, "f")));
+    check("consistent after the conflict", consistent(set, "b", "c", "d", "e", "f"));
+
+    System.out.format("%d failure(s)%n", failures);
+  }
+}
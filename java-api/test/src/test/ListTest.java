@@ -0,0 +1,149 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.log4j.Logger;
+import com.hpl.mds.*;
+
+/*
+ * Checks each list layout: positional access and iteration across
+ * chunk (and segment) boundaries, both ends of a deque, appends that
+ * are only seen once published, and appends to a bag from two contexts
+ * that both publish with each context's order kept.
+ */
+public class ListTest {
+  static final Logger log = Logger.getLogger(ListTest.class);
+  static final int CHUNK = 256;
+  static int failures = 0;
+
+  static void check(String what, boolean ok) {
+    System.out.format("%s: %s%n", what, ok ? "ok" : "FAILED");
+    if (!ok) {
+      failures++;
+    }
+  }
+
+  static List<Integer> elements(ManagedIntList list) {
+    List<Integer> elts = new ArrayList<>();
+    for (int i : list.intElements()) {
+      elts.add(i);
+    }
+    return elts;
+  }
+
+  static List<Integer> range(int from, int to) {
+    List<Integer> r = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      r.add(i);
+    }
+    return r;
+  }
+
+  static void array() {
+    ManagedIntList list = ManagedIntList.create(ManagedList.useAs(ManagedList.ARRAY_LIST));
+    int n = 2*CHUNK+10;
+    for (int i = 0; i < n; i++) {
+      list.add(i);
+    }
+    boolean ok = list.size() == n;
+    for (int i = 0; ok && i < n; i++) {
+      ok = list.getInt(i) == i;
+    }
+    check("array positional reads", ok);
+    check("array iteration", elements(list).equals(range(0, n)));
+    check("array toIntArray", list.toIntArray().length == n && list.toIntArray()[n-1] == n-1);
+    list.setInt(CHUNK, -1);
+    check("array write", list.getInt(CHUNK) == -1 && list.getInt(CHUNK+1) == CHUNK+1);
+
+    IsolationContext c = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c.use()) {
+      list.add(n);
+      check("append seen in the child", list.size() == n+1 && list.getInt(n) == n);
+    }
+    check("append not seen in the parent", list.size() == n);
+    check("append publishes", c.publish().succeeded());
+    check("append seen after publish", list.size() == n+1 && list.getInt(n) == n);
+  }
+
+  static void deque() {
+    ManagedIntList list = ManagedIntList.create(ManagedList.useAs(ManagedList.DEQUE));
+    ManagedIntList.DequeView deque = list.asDeque();
+    int n = CHUNK+10;
+    for (int i = 0; i < n; i++) {
+      deque.addLast(i);
+      deque.addFirst(-i-1);
+    }
+    List<Integer> expected = range(-n, n);
+    check("deque built from both ends", elements(list).equals(expected));
+    check("deque positional reads", list.getInt(0) == -n && list.getInt(n) == 0
+          && list.getInt(2*n-1) == n-1);
+    check("deque ends", deque.getFirstInt() == -n && deque.getLastInt() == n-1);
+    boolean ok = true;
+    for (int i = 0; ok && i < n; i++) {
+      ok = deque.pollFirstInt() == -n+i && deque.pollLastInt() == n-1-i;
+    }
+    check("deque drained from both ends", ok && list.isEmpty() && deque.pollFirstInt() == null);
+  }
+
+  static void bag() {
+    ManagedIntList list = ManagedIntList.create(ManagedList.useAs(ManagedList.BAG));
+    int n = CHUNK+10;
+    IsolationContext c1 = IsolationContext.current().createNested();
+    IsolationContext c2 = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c1.use()) {
+      for (int i = 0; i < n; i++) {
+        list.add(i);
+      }
+    }
+    try (IsolationContext.Use use = c2.use()) {
+      for (int i = 0; i < n; i++) {
+        list.add(n+i);
+      }
+    }
+    check("bag appends both publish", c1.publish().succeeded() && c2.publish().succeeded());
+    List<Integer> elts = elements(list);
+    List<Integer> first = new ArrayList<>();
+    List<Integer> second = new ArrayList<>();
+    for (int i : elts) {
+      (i < n ? first : second).add(i);
+    }
+    check("bag has every element", elts.size() == 2*n && list.size() == 2*n);
+    check("bag keeps each context's order", first.equals(range(0, n)) && second.equals(range(n, 2*n)));
+    Collections.sort(elts);
+    check("bag has nothing else", elts.equals(range(0, 2*n)));
+  }
+
+  public static void main(String[] args) {
+    array();
+    deque();
+    bag();
+    System.out.format("%d failure(s)%n", failures);
+  }
+}
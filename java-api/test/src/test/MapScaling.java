@@ -0,0 +1,98 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package test;
+
+import com.hpl.erk.config.*;
+import com.hpl.erk.config.ex.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.*;
+import org.apache.log4j.Logger;
+import com.hpl.mds.*;
+import static com.hpl.mds.MDS.*;
+
+/*
+ * Measures how ManagedMapFromString puts scale with thread count.  In
+ * the disjoint workload each thread writes its own keys, so no
+ * transaction should ever need to be redone.  In the hot-key workload
+ * every thread writes a small shared set of keys, so the redo count
+ * shows the cost of per-key conflicts.
+ */
+public class MapScaling {
+  static final Logger log = Logger.getLogger(MapScaling.class);
+  static final RunContext rc = RunContext.GLOBAL.subContext("mapScaling").activate();
+
+  static final ConfigParam<Integer> maxThreads = rc.param(Integer.class, "max_threads")
+    .defaultVal(8)
+    .help("Largest number of threads to run with (doubling from 1)");
+  static final ConfigParam<Integer> opsPerThread = rc.param(Integer.class, "ops")
+    .defaultVal(10_000)
+    .help("Number of puts each thread makes");
+  static final ConfigParam<Integer> hotKeys = rc.param(Integer.class, "hot_keys")
+    .defaultVal(4)
+    .help("Number of shared keys in the hot-key workload");
+
+  static void run(String workload, int nThreads, IntBinaryOperator keyFn) {
+    ManagedMapFromString<Department> map = Department.TYPE.createMapFromString();
+    Department dept = Department.create.record(1, "scaling");
+    int ops = opsPerThread.getVal();
+    AtomicLong attempts = new AtomicLong();
+    Thread[] threads = new Thread[nThreads];
+    for (int t=0; t<nThreads; t++) {
+      int tid = t;
+      threads[t] = new Thread(()->{
+          for (int i=0; i<ops; i++) {
+            String key = "k"+keyFn.applyAsInt(tid, i);
+            isolated(()->{
+                attempts.incrementAndGet();
+                map.put(key, dept);
+              });
+          }
+        });
+    }
+    long start = System.nanoTime();
+    Arrays.stream(threads).forEach(Thread::start);
+    Arrays.stream(threads).forEach(Pause::untilDone);
+    long nanos = System.nanoTime()-start;
+    long total = (long)ops*nThreads;
+    System.out.format("%-8s threads=%2d  %,12.0f puts/sec  %.3f attempts/put  size=%,d%n",
+                      workload, nThreads, total*1e9/nanos,
+                      (double)attempts.get()/total, map.longSize());
+  }
+
+  public static void main(String[] args)
+    throws ConfigErrorsSeen
+  {
+    args = RunConfig.process(MapScaling.class, args);
+    int ops = opsPerThread.getVal();
+    int nHot = hotKeys.getVal();
+    for (int n=1; n<=maxThreads.getVal(); n*=2) {
+      run("disjoint", n, (t, i) -> t*ops+i);
+      run("hot", n, (t, i) -> i % nHot);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package test;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import org.apache.log4j.Logger;
+import com.hpl.mds.*;
+
+/*
+ * Checks the behavior of ManagedMapFromString that MapScaling doesn't:
+ * that contexts writing different keys don't conflict (and ones
+ * writing the same key do), that iteration is right across chunk
+ * boundaries and after an iterator is abandoned part way, and that
+ * removals and clears are only seen once they're published.
+ */
+public class MapTest {
+  static final Logger log = Logger.getLogger(MapTest.class);
+  static final int CHUNK = 256;
+  static int failures = 0;
+
+  static void check(String what, boolean ok) {
+    System.out.format("%s: %s%n", what, ok ? "ok" : "FAILED");
+    if (!ok) {
+      failures++;
+    }
+  }
+
+  static Set<String> keys(ManagedMapFromString<Department> map) {
+    Set<String> keys = new HashSet<>();
+    for (Map.Entry<ManagedString, Department> e : map.entrySet()) {
+      keys.add(e.getKey().toString());
+    }
+    return keys;
+  }
+
+  static boolean bothPublish(ManagedMapFromString<Department> map, Department dept,
+                             String key1, String key2)
+  {
+    IsolationContext c1 = IsolationContext.current().createNested();
+    IsolationContext c2 = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c1.use()) {
+      map.put(key1, dept);
+    }
+    try (IsolationContext.Use use = c2.use()) {
+      map.put(key2, dept);
+    }
+    boolean first = c1.publish().succeeded();
+    boolean second = c2.publish().succeeded();
+    return first && second;
+  }
+
+  static void conflicts() {
+    ManagedMapFromString<Department> map = Department.TYPE.createMapFromString();
+    Department dept = Department.create.record(1, "map");
+    map.put("shared", dept);
+    check("disjoint keys both publish", bothPublish(map, dept, "a", "b"));
+    check("same key conflicts", !bothPublish(map, dept, "c", "c"));
+    check("existing key conflicts", !bothPublish(map, dept, "shared", "shared"));
+  }
+
+  static void iteration() {
+    ManagedMapFromString<Department> map = Department.TYPE.createMapFromString();
+    Department dept = Department.create.record(2, "map");
+    int n = 2*CHUNK+10;
+    Set<String> expected = new HashSet<>();
+    for (int i = 0; i < n; i++) {
+      map.put("k"+i, dept);
+      expected.add("k"+i);
+    }
+    check("iterate past two chunks", keys(map).equals(expected));
+
+    Iterator<Map.Entry<ManagedString, Department>> it = map.entrySet().iterator();
+    for (int i = 0; i < CHUNK+1; i++) {
+      it.next();
+    }
+    it = null;
+    check("iterate after abandoning an iterator", keys(map).equals(expected));
+
+    int removed = 0;
+    for (it = map.entrySet().iterator(); it.hasNext(); ) {
+      String k = it.next().getKey().toString();
+      if (removed < CHUNK+5) {
+        it.remove();
+        expected.remove(k);
+        removed++;
+      }
+    }
+    check("remove through an iterator across a chunk", keys(map).equals(expected)
+          && map.size() == expected.size());
+  }
+
+  static void visibility() {
+    ManagedMapFromString<Department> map = Department.TYPE.createMapFromString();
+    Department dept = Department.create.record(3, "map");
+    for (int i = 0; i < 10; i++) {
+      map.put("k"+i, dept);
+    }
+
+    IsolationContext c = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c.use()) {
+      map.remove("k0");
+      check("removed key gone in the child", !map.containsKey("k0") && map.size() == 9);
+    }
+    check("removed key still in the parent", map.containsKey("k0") && map.size() == 10);
+    check("remove publishes", c.publish().succeeded());
+    check("removed key gone after publish", !map.containsKey("k0") && map.get("k0") == null
+          && map.size() == 9 && !keys(map).contains("k0"));
+
+    c = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c.use()) {
+      map.clear();
+      check("cleared in the child", map.isEmpty() && keys(map).isEmpty());
+    }
+    check("not cleared in the parent", map.size() == 9);
+    check("clear publishes", c.publish().succeeded());
+    check("cleared after publish", map.isEmpty() && keys(map).isEmpty()
+          && !map.containsKey("k1"));
+
+    map.put("k1", dept);
+    check("re-added after clear", map.size() == 1 && map.get("k1") != null);
+  }
+
+  public static void main(String[] args) {
+    conflicts();
+    iteration();
+    visibility();
+    System.out.format("%d failure(s)%n", failures);
+  }
+}
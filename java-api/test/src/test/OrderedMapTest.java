@@ -0,0 +1,166 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import org.apache.log4j.Logger;
+import com.hpl.mds.*;
+
+/*
+ * Checks the bounds of ManagedOrderedMap's range operations (inclusive
+ * and exclusive, between keys, off either end, and across chunk
+ * boundaries), the neighbor lookups, and that a scan of one range only
+ * conflicts with writes into it.
+ */
+public class OrderedMapTest {
+  static final Logger log = Logger.getLogger(OrderedMapTest.class);
+  static final int CHUNK = 256;
+  static final int N = 2*CHUNK+10;
+  static int failures = 0;
+
+  static void check(String what, boolean ok) {
+    System.out.format("%s: %s%n", what, ok ? "ok" : "FAILED");
+    if (!ok) {
+      failures++;
+    }
+  }
+
+  static ManagedLong k(long key) {
+    return ManagedLong.valueOf(key);
+  }
+
+  static Long key(ManagedLong k) {
+    return k == null ? null : ManagedLong.asLong(k);
+  }
+
+  static List<Long> keys(SortedMap<ManagedLong, ManagedInt> map) {
+    List<Long> res = new ArrayList<>();
+    for (ManagedLong k : map.keySet()) {
+      res.add(ManagedLong.asLong(k));
+    }
+    return res;
+  }
+
+  /*
+   * The keys from..to (inclusive) that are multiples of 10, in order.
+   */
+  static List<Long> tens(long from, long to) {
+    List<Long> res = new ArrayList<>();
+    for (long i = from; i <= to; i += 10) {
+      res.add(i);
+    }
+    return res;
+  }
+
+  static ManagedOrderedMap<ManagedLong, ManagedInt> filled() {
+    ManagedOrderedMap<ManagedLong, ManagedInt> map
+      = ManagedOrderedMap.create(ManagedLong.TYPE, ManagedInt.TYPE);
+    for (int i = 0; i < N; i++) {
+      map.put(k(10*i), ManagedInt.valueOf(i));
+    }
+    return map;
+  }
+
+  static void bounds() {
+    ManagedOrderedMap<ManagedLong, ManagedInt> map = filled();
+    long last = 10*(N-1);
+    check("whole map in order", keys(map).equals(tens(0, last)) && map.size() == N);
+    check("first and last", key(map.firstKey()) == 0 && key(map.lastKey()) == last);
+
+    check("subMap between keys", keys(map.subMap(k(15), k(55))).equals(tens(20, 50)));
+    check("subMap from a key, to a key", keys(map.subMap(k(10), k(50))).equals(tens(10, 40)));
+    check("subMap inclusive both ends",
+          keys(map.subMap(k(10), true, k(50), true)).equals(tens(10, 50)));
+    check("subMap exclusive both ends",
+          keys(map.subMap(k(10), false, k(50), false)).equals(tens(20, 40)));
+    check("empty subMap between keys", map.subMap(k(11), k(19)).isEmpty());
+    check("empty subMap at one key", map.subMap(k(20), k(20)).isEmpty()
+          && keys(map.subMap(k(20), true, k(20), true)).equals(tens(20, 20)));
+    check("subMap across chunks", keys(map.subMap(k(5), k(10*(CHUNK+3)+1)))
+          .equals(tens(10, 10*(CHUNK+3))));
+
+    check("headMap exclusive", keys(map.headMap(k(30))).equals(tens(0, 20)));
+    check("headMap inclusive", keys(map.headMap(k(30), true)).equals(tens(0, 30)));
+    check("headMap below the first key", map.headMap(k(0)).isEmpty()
+          && map.headMap(k(-5), true).isEmpty());
+    check("tailMap inclusive", keys(map.tailMap(k(last-10))).equals(tens(last-10, last)));
+    check("tailMap exclusive", keys(map.tailMap(k(last-10), false)).equals(tens(last, last)));
+    check("tailMap past the last key", map.tailMap(k(last), false).isEmpty()
+          && map.tailMap(k(last+5)).isEmpty());
+
+    List<Long> down = tens(20, 50);
+    Collections.reverse(down);
+    check("descending subMap", keys(map.subMap(k(15), true, k(55), false).descendingMap()).equals(down));
+  }
+
+  static void neighbors() {
+    ManagedOrderedMap<ManagedLong, ManagedInt> map = filled();
+    long last = 10*(N-1);
+    check("ceiling", key(map.ceilingKey(k(15))) == 20 && key(map.ceilingKey(k(20))) == 20
+          && map.ceilingKey(k(last+1)) == null);
+    check("floor", key(map.floorKey(k(15))) == 10 && key(map.floorKey(k(20))) == 20
+          && map.floorKey(k(-1)) == null);
+    check("higher", key(map.higherKey(k(20))) == 30 && map.higherKey(k(last)) == null);
+    check("lower", key(map.lowerKey(k(20))) == 10 && map.lowerKey(k(0)) == null);
+    check("entry values", ManagedInt.asInt(map.ceilingEntry(k(15)).getValue()) == 2
+          && ManagedInt.asInt(map.floorEntry(k(last+100)).getValue()) == N-1);
+  }
+
+  /*
+   * One context scans [0,100) and another puts key; the writer
+   * publishes first.  Returns whether the scanner can still publish.
+   */
+  static boolean scanSurvivesPut(ManagedOrderedMap<ManagedLong, ManagedInt> map, long key) {
+    IsolationContext reader = IsolationContext.current().createNested();
+    IsolationContext writer = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = reader.use()) {
+      keys(map.subMap(k(0), k(100)));
+    }
+    try (IsolationContext.Use use = writer.use()) {
+      map.put(k(key), ManagedInt.valueOf(-1));
+    }
+    boolean wrote = writer.publish().succeeded();
+    return wrote && reader.publish().succeeded();
+  }
+
+  static void conflicts() {
+    ManagedOrderedMap<ManagedLong, ManagedInt> map = filled();
+    check("append past the end doesn't conflict with an earlier scan",
+          scanSurvivesPut(map, 10*N+5));
+    check("insert into a scanned range conflicts", !scanSurvivesPut(map, 55));
+  }
+
+  public static void main(String[] args) {
+    bounds();
+    neighbors();
+    conflicts();
+    System.out.format("%d failure(s)%n", failures);
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.apache.log4j.Logger;
+import com.hpl.mds.*;
+
+/*
+ * Checks ManagedQueue: poll() with and without a timeout, a poll that
+ * is satisfied by another thread while it waits, drainTo() with and
+ * without a limit across chunk boundaries, that enqueues aren't
+ * isolated, and that with several producers and consumers every
+ * element is taken exactly once.
+ */
+public class QueueTest {
+  static final Logger log = Logger.getLogger(QueueTest.class);
+  static final int CHUNK = 256;
+  static int failures = 0;
+
+  static void check(String what, boolean ok) {
+    System.out.format("%s: %s%n", what, ok ? "ok" : "FAILED");
+    if (!ok) {
+      failures++;
+    }
+  }
+
+  static List<Integer> ints(List<ManagedInt> elts) {
+    List<Integer> res = new ArrayList<>();
+    for (ManagedInt i : elts) {
+      res.add(ManagedInt.asInt(i));
+    }
+    return res;
+  }
+
+  static List<Integer> range(int from, int to) {
+    List<Integer> r = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      r.add(i);
+    }
+    return r;
+  }
+
+  static void polling() throws InterruptedException {
+    ManagedQueue<ManagedInt> q = ManagedQueue.create(ManagedInt.TYPE);
+    check("poll of an empty queue", q.poll() == null);
+
+    long start = System.nanoTime();
+    ManagedInt v = q.poll(200, TimeUnit.MILLISECONDS);
+    long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start);
+    check("timed poll of an empty queue times out", v == null && waited >= 200);
+
+    Thread producer = new Thread(() -> {
+        Pause.forTime(Duration.ofMillis(200));
+        q.offer(ManagedInt.valueOf(42));
+      });
+    producer.start();
+    start = System.nanoTime();
+    v = q.poll(10, TimeUnit.SECONDS);
+    waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start);
+    Pause.untilDone(producer);
+    check("timed poll gets a later offer", v != null && ManagedInt.asInt(v) == 42
+          && waited < 10_000);
+
+    producer = new Thread(() -> {
+        Pause.forTime(Duration.ofMillis(200));
+        q.offer(ManagedInt.valueOf(43));
+      });
+    producer.start();
+    v = q.take();
+    Pause.untilDone(producer);
+    check("take gets a later offer", ManagedInt.asInt(v) == 43 && q.isEmpty());
+  }
+
+  static void draining() {
+    ManagedQueue<ManagedInt> q = ManagedQueue.create(ManagedInt.TYPE);
+    int n = 2*CHUNK+10;
+    for (int i = 0; i < n; i++) {
+      q.offer(ManagedInt.valueOf(i));
+    }
+    check("size", q.size() == n && q.longSize() == n);
+
+    List<ManagedInt> drained = new ArrayList<>();
+    int limit = CHUNK+5;
+    check("drainTo with a limit", q.drainTo(drained, limit) == limit
+          && ints(drained).equals(range(0, limit)) && q.size() == n-limit);
+
+    drained.clear();
+    check("drainTo the rest", q.drainTo(drained) == n-limit
+          && ints(drained).equals(range(limit, n)) && q.isEmpty());
+    check("drainTo of an empty queue", q.drainTo(drained, 10) == 0);
+  }
+
+  static void notIsolated() {
+    ManagedQueue<ManagedInt> q = ManagedQueue.create(ManagedInt.TYPE);
+    IsolationContext c = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c.use()) {
+      q.offer(ManagedInt.valueOf(1));
+    }
+    check("offer seen without a publish", q.size() == 1);
+    c = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c.use()) {
+      q.poll();
+    }
+    check("poll takes effect without a publish", q.isEmpty());
+  }
+
+  static void concurrent() {
+    ManagedQueue<ManagedInt> q = ManagedQueue.create(ManagedInt.TYPE);
+    int nThreads = 4;
+    int perProducer = 2_000;
+    int total = nThreads*perProducer;
+    AtomicIntegerArray seen = new AtomicIntegerArray(total);
+    Thread[] threads = new Thread[2*nThreads];
+    for (int t = 0; t < nThreads; t++) {
+      int base = t*perProducer;
+      threads[t] = new Thread(() -> {
+          for (int i = 0; i < perProducer; i++) {
+            q.offer(ManagedInt.valueOf(base+i));
+          }
+        });
+      threads[nThreads+t] = new Thread(() -> {
+          try {
+            ManagedInt v;
+            while ((v = q.poll(1, TimeUnit.SECONDS)) != null) {
+              seen.incrementAndGet(ManagedInt.asInt(v));
+            }
+          } catch (InterruptedException ex) {
+            log.error("Consumer interrupted", ex);
+          }
+        });
+    }
+    Arrays.stream(threads).forEach(Thread::start);
+    Arrays.stream(threads).forEach(Pause::untilDone);
+    boolean once = true;
+    for (int i = 0; once && i < total; i++) {
+      once = seen.get(i) == 1;
+    }
+    check("every element taken exactly once", once && q.isEmpty());
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    polling();
+    draining();
+    notIsolated();
+    concurrent();
+    System.out.format("%d failure(s)%n", failures);
+  }
+}
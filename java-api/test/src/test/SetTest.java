@@ -0,0 +1,175 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package test;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import org.apache.log4j.Logger;
+import com.hpl.mds.*;
+
+/*
+ * Checks managed sets: that contexts adding different elements don't
+ * conflict (and ones adding the same element do), that the bulk array
+ * operations agree with the element-at-a-time ones, that iteration is
+ * right across chunk boundaries and after an iterator is abandoned part
+ * way, and that removals and clears are only seen once they're
+ * published.
+ */
+public class SetTest {
+  static final Logger log = Logger.getLogger(SetTest.class);
+  static final int CHUNK = 256;
+  static int failures = 0;
+
+  static void check(String what, boolean ok) {
+    System.out.format("%s: %s%n", what, ok ? "ok" : "FAILED");
+    if (!ok) {
+      failures++;
+    }
+  }
+
+  static Set<Integer> elements(ManagedIntSet set) {
+    Set<Integer> elts = new HashSet<>();
+    for (int i : set.intElements()) {
+      elts.add(i);
+    }
+    return elts;
+  }
+
+  static int[] range(int from, int to) {
+    int[] a = new int[to-from];
+    for (int i = from; i < to; i++) {
+      a[i-from] = i;
+    }
+    return a;
+  }
+
+  static boolean bothPublish(ManagedIntSet set, int elt1, int elt2) {
+    IsolationContext c1 = IsolationContext.current().createNested();
+    IsolationContext c2 = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c1.use()) {
+      set.add(elt1);
+    }
+    try (IsolationContext.Use use = c2.use()) {
+      set.add(elt2);
+    }
+    boolean first = c1.publish().succeeded();
+    boolean second = c2.publish().succeeded();
+    return first && second;
+  }
+
+  static void conflicts() {
+    ManagedIntSet set = ManagedIntSet.create();
+    check("disjoint elements both publish", bothPublish(set, 1, 2));
+    check("same element conflicts", !bothPublish(set, 3, 3));
+  }
+
+  static void bulk() {
+    ManagedIntSet set = ManagedIntSet.create();
+    int n = 2*CHUNK+10;
+    check("addAll adds", set.addAll(range(0, n)) && set.size() == n);
+    check("addAll again adds nothing", !set.addAll(range(0, n)));
+    check("containsAll of members", set.containsAll(range(0, n)));
+    check("containsAll with a non-member", !set.containsAll(range(n-1, n+1)));
+    check("removeAll removes", set.removeAll(range(0, 10)) && set.size() == n-10
+          && !set.contains(0) && set.contains(10));
+    set.retainAll(range(10, 20));
+    check("retainAll keeps only those", set.size() == 10
+          && set.containsAll(range(10, 20)));
+
+    ManagedStringSet strings = ManagedStringSet.create();
+    strings.addAll(new String[] {"apple", "pear"});
+    check("string containsAll of members", strings.containsAll(new String[] {"pear", "apple"}));
+    check("string containsAll with a new string",
+          !strings.containsAll(new String[] {"apple", "never seen "+System.nanoTime()}));
+  }
+
+  static void iteration() {
+    ManagedIntSet set = ManagedIntSet.create();
+    int n = 2*CHUNK+10;
+    set.addAll(range(0, n));
+    Set<Integer> expected = new HashSet<>();
+    for (int i = 0; i < n; i++) {
+      expected.add(i);
+    }
+    check("iterate past two chunks", elements(set).equals(expected));
+
+    Iterator<ManagedInt> it = set.iterator();
+    for (int i = 0; i < CHUNK+1; i++) {
+      it.next();
+    }
+    it = null;
+    check("iterate after abandoning an iterator", elements(set).equals(expected));
+
+    int removed = 0;
+    for (it = set.iterator(); it.hasNext(); ) {
+      int v = ManagedInt.asInt(it.next());
+      if (removed < CHUNK+5) {
+        it.remove();
+        expected.remove(v);
+        removed++;
+      }
+    }
+    check("remove through an iterator across a chunk", elements(set).equals(expected)
+          && set.size() == expected.size());
+  }
+
+  static void visibility() {
+    ManagedIntSet set = ManagedIntSet.create();
+    set.addAll(range(0, 10));
+
+    IsolationContext c = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c.use()) {
+      set.removeInt(0);
+      check("removed element gone in the child", !set.contains(0) && set.size() == 9);
+    }
+    check("removed element still in the parent", set.contains(0) && set.size() == 10);
+    check("remove publishes", c.publish().succeeded());
+    check("removed element gone after publish", !set.contains(0) && set.size() == 9
+          && !elements(set).contains(0));
+
+    c = IsolationContext.current().createNested();
+    try (IsolationContext.Use use = c.use()) {
+      set.clear();
+      check("cleared in the child", set.isEmpty() && elements(set).isEmpty());
+    }
+    check("not cleared in the parent", set.size() == 9);
+    check("clear publishes", c.publish().succeeded());
+    check("cleared after publish", set.isEmpty() && elements(set).isEmpty() && !set.contains(1));
+
+    set.add(1);
+    check("re-added after clear", set.size() == 1 && set.contains(1));
+  }
+
+  public static void main(String[] args) {
+    conflicts();
+    bulk();
+    iteration();
+    visibility();
+    System.out.format("%d failure(s)%n", failures);
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+package test;
+
+import com.hpl.erk.config.*;
+import com.hpl.erk.config.ex.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.*;
+import org.apache.log4j.Logger;
+import com.hpl.mds.*;
+import com.hpl.mds.usage.*;
+
+/*
+ * Measures each usage hint that changes how a container is
+ * represented by running the same workload on a container created
+ * with and without it:
+ *
+ *   presize   - expectedSize plus a growth hint, so a set is allocated
+ *               at its eventual size instead of resizing as it fills
+ *   writeOnce - WRITE_ONCE, so an array that's filled once and then
+ *               read has its elements allocated up front
+ *   readMostly - doNotExpect(SET), so an array that's read far more
+ *               than it's written gets the READ_MOSTLY layout rather
+ *               than VERSIONED and its reads never have to create an
+ *               element
+ *   deque     - useAs(DEQUE), so a list used from both ends doesn't
+ *               shift its elements on every addFirst
+ */
+public class UsageHints {
+  static final Logger log = Logger.getLogger(UsageHints.class);
+  static final RunContext rc = RunContext.GLOBAL.subContext("usageHints").activate();
+
+  static final ConfigParam<Integer> nElements = rc.param(Integer.class, "elements")
+    .defaultVal(100_000)
+    .help("Number of elements each workload adds");
+  static final ConfigParam<Integer> nReads = rc.param(Integer.class, "reads")
+    .defaultVal(10)
+    .help("Number of passes the read workloads make");
+  static final ConfigParam<Integer> nReps = rc.param(Integer.class, "reps")
+    .defaultVal(3)
+    .help("Number of times each measurement is repeated");
+
+  static void time(String hint, String variant, long ops, Runnable body) {
+    for (int r=0; r<nReps.getVal(); r++) {
+      long start = System.nanoTime();
+      body.run();
+      long nanos = System.nanoTime()-start;
+      System.out.format("%-10s %-8s  %,14.0f ops/sec%n", hint, variant, ops*1e9/nanos);
+    }
+  }
+
+  static void presize(String variant, Supplier<ManagedIntSet> creator) {
+    int n = nElements.getVal();
+    time("presize", variant, n, ()->{
+        ManagedIntSet set = creator.get();
+        for (int i=0; i<n; i++) {
+          set.add(i);
+        }
+      });
+  }
+
+  static void writeOnce(String variant, IntFunction<ManagedIntArray> creator) {
+    int n = nElements.getVal();
+    int passes = nReads.getVal();
+    time("writeOnce", variant, (long)n*(passes+1), ()->{
+        ManagedIntArray arr = creator.apply(n);
+        for (int i=0; i<n; i++) {
+          arr.set(i, i);
+        }
+        long sum = 0;
+        for (int p=0; p<passes; p++) {
+          for (int i=0; i<n; i++) {
+            sum += arr.getInt(i);
+          }
+        }
+        log.debug("sum = "+sum);
+      });
+  }
+
+  /*
+   * Unlike writeOnce, only some of the elements are filled in before
+   * the reads start, and each pass rewrites a few of them, so the reads
+   * keep finding elements that were never written.
+   */
+  static void readMostly(String variant, IntFunction<ManagedIntArray> creator) {
+    int n = nElements.getVal();
+    int passes = nReads.getVal();
+    int stride = 10;
+    long writes = n/stride + (long)passes*(n/1000);
+    time("readMostly", variant, (long)n*passes+writes, ()->{
+        ManagedIntArray arr = creator.apply(n);
+        for (int i=0; i<n; i+=stride) {
+          arr.set(i, i);
+        }
+        long sum = 0;
+        for (int p=0; p<passes; p++) {
+          for (int i=0; i<n; i++) {
+            sum += arr.getInt(i);
+          }
+          for (int i=p; i<n; i+=1000) {
+            arr.set(i, p);
+          }
+        }
+        log.debug("sum = "+sum);
+      });
+  }
+
+  static void deque(String variant, Supplier<ManagedIntList> creator) {
+    int n = nElements.getVal();
+    time("deque", variant, 2L*n, ()->{
+        ManagedIntList.DequeView q = creator.get().asDeque();
+        for (int i=0; i<n; i++) {
+          q.addFirst(i);
+        }
+        for (int i=0; i<n; i++) {
+          q.removeLastInt();
+        }
+      });
+  }
+
+  public static void main(String[] args)
+    throws ConfigErrorsSeen
+  {
+    args = RunConfig.process(UsageHints.class, args);
+    int n = nElements.getVal();
+
+    presize("none", ()->ManagedInt.TYPE.createSet());
+    presize("hinted", ()->ManagedInt.TYPE.createSet(ManagedSet.expectedSize(n/10)
+                                                    .growBy(n/100, GrowthRate.PER_SECOND,
+                                                            GrowthBound.over(90, TimeUnit.SECONDS))));
+
+    writeOnce("none", size->ManagedInt.TYPE.createArray(size));
+    writeOnce("hinted", size->ManagedInt.TYPE.createArray(ManagedArray.usage()
+                                                           .expectedSize(size)
+                                                           .useAs(ManagedArray.WRITE_ONCE)));
+
+    readMostly("none", size->ManagedInt.TYPE.createArray(ManagedArray.usage()
+                                                         .expectedSize(size)));
+    readMostly("hinted", size->ManagedInt.TYPE.createArray(ManagedArray.usage()
+                                                           .expectedSize(size)
+                                                           .doNotExpect(ManagedArray.SET)));
+
+    deque("none", ()->ManagedInt.TYPE.createList());
+    deque("hinted", ()->ManagedInt.TYPE.createList(ManagedList.useAs(ManagedList.DEQUE)));
+  }
+}
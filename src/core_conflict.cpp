@@ -31,12 +31,300 @@
  *      Author: evank
  */
 
+#include <algorithm>
+#include <iomanip>
+#include <mutex>
+#include <sstream>
+#include <unordered_map>
+
 #include "core/core_conflict.h"
 #include "core/core_context.h" // include core_conflict.h
+#include "core/core_msv.h"
+#include "core/core_record.h"
+#include "core/core_array.h"
+#include "core/core_strings.h"
+#include "mpgc/external_gc_ptr.h"
+#include "ruts/weak_key.h"
 
 namespace mds {
   namespace core {
+    namespace msv_sites {
+      namespace detail {
+        std::atomic<std::uint32_t> holders{0};
+      }
+
+      namespace {
+        struct entry {
+          msv_site_kind kind;
+          external_weak_gc_ptr<const gc_allocated> owner;
+          std::size_t index;
+          bool referenced = true;
+          bool is_dead() const {
+            return owner.lock() == nullptr;
+          }
+        };
+        using entry_map = std::unordered_map<ruts::weak_key<external_weak_gc_ptr<msv>>, entry>;
+
+        constexpr std::size_t n_shards = 16;
+        constexpr std::size_t max_per_shard = max_entries / n_shards;
+
+        struct shard {
+          std::mutex mutex;
+          entry_map entries;
+        };
+
+        shard *shards() {
+          static shard s[n_shards];
+          return s;
+        }
+
+        shard &shard_for(const gc_ptr<msv> &m) {
+          return shards()[std::hash<gc_ptr<msv>>{}(m) % n_shards];
+        }
+
+        /*
+         * A retain() racing with this may lose a site or two noted
+         * before it returns, which only costs an unknown site.
+         */
+        void clear_all() {
+          for (std::size_t i = 0; i < n_shards; i++) {
+            shard &sh = shards()[i];
+            std::lock_guard<std::mutex> lock(sh.mutex);
+            sh.entries.clear();
+          }
+        }
+
+        /*
+         * As in shadow_cache: dead entries go first, then second
+         * chance, down to three quarters of the limit.
+         */
+        void evict(entry_map &m) {
+          std::size_t target = max_per_shard - max_per_shard/4;
+          for (auto p = m.begin(); p != m.end(); ) {
+            if (p->second.is_dead()) {
+              p = m.erase(p);
+            } else {
+              ++p;
+            }
+          }
+          while (m.size() > target) {
+            for (auto p = m.begin(); p != m.end() && m.size() > target; ) {
+              if (p->second.referenced) {
+                p->second.referenced = false;
+                ++p;
+              } else {
+                p = m.erase(p);
+              }
+            }
+          }
+        }
+      }
+
+      void detail::record(const gc_ptr<msv> &m, msv_site_kind k,
+                          const gc_ptr<const gc_allocated> &owner, std::size_t index)
+      {
+        shard &sh = shard_for(m);
+        std::lock_guard<std::mutex> lock(sh.mutex);
+        auto p = sh.entries.find(m);
+        if (p != sh.entries.end()) {
+          p->second.referenced = true;
+          return;
+        }
+        if (sh.entries.size() >= max_per_shard) {
+          evict(sh.entries);
+        }
+        sh.entries.emplace(m, entry{k, owner, index});
+      }
+
+      site lookup(const gc_ptr<msv> &m) {
+        site s;
+        if (m == nullptr || !wanted()) {
+          return s;
+        }
+        shard &sh = shard_for(m);
+        std::lock_guard<std::mutex> lock(sh.mutex);
+        auto p = sh.entries.find(m);
+        if (p == sh.entries.end()) {
+          return s;
+        }
+        gc_ptr<const gc_allocated> owner = p->second.owner.lock();
+        if (owner != nullptr) {
+          p->second.referenced = true;
+          s.kind = p->second.kind;
+          s.owner = owner;
+          s.index = p->second.index;
+        }
+        return s;
+      }
+
+      void retain() {
+        detail::holders++;
+      }
+
+      void release() {
+        if (--detail::holders == 0) {
+          clear_all();
+        }
+      }
+    }
+
+    namespace conflict_trace {
+      namespace {
+        std::atomic<std::uint32_t> interval{1};
+        std::atomic<std::uint64_t> sampled{0};
+
+        struct table {
+          std::mutex mutex;
+          std::unordered_map<std::u16string, hot_spot> spots;
+        };
+
+        table &the_table() {
+          static table t;
+          return t;
+        }
+
+        bool sample() {
+          static thread_local std::uint32_t n = 0;
+          return ++n % interval.load(std::memory_order_relaxed) == 0;
+        }
+
+        std::u16string widen(const std::string &s) {
+          return std::u16string{s.begin(), s.end()};
+        }
+
+        std::u16string str(const gc_ptr<interned_string> &s) {
+          return s == nullptr ? std::u16string{} : std::u16string{s->cbegin(), s->cend()};
+        }
+
+        /*
+         * Record fields are named by type and field, so the same field
+         * of every record of that type lands in the same row.  Array
+         * slots and bound names are specific to the array or name.
+         */
+        hot_spot describe(const gc_ptr<msv> &m) {
+          msv_sites::site site = msv_sites::lookup(m);
+          gc_ptr<const gc_allocated> owner = site.owner;
+          switch (site.kind) {
+          case msv_site_kind::record_field: {
+            auto r = std::static_pointer_cast<const managed_record>(owner);
+            gc_ptr<record_field_base> f = r->r_type->fields()[site.index];
+            return {msv_site_kind::record_field,
+                    str(f->r_type->name())+u"."+str(f->name), 0};
+          }
+          case msv_site_kind::array_slot: {
+            auto a = std::static_pointer_cast<const managed_array_base>(owner);
+            std::ostringstream ss;
+            ss << "array@" << std::hex << std::setfill('0')
+               << std::setw(16) << a->uuid().high
+               << std::setw(16) << a->uuid().low
+               << std::dec << "[" << site.index << "]";
+            return {msv_site_kind::array_slot, widen(ss.str()), 0};
+          }
+          case msv_site_kind::binding: {
+            auto name = std::static_pointer_cast<const interned_string>(owner);
+            return {msv_site_kind::binding,
+                    std::u16string{name->cbegin(), name->cend()}, 0};
+          }
+          default:
+            return {msv_site_kind::unknown, u"?", 0};
+          }
+        }
+      }
+
+      namespace detail {
+        std::atomic<bool> on{false};
+
+        /*
+         * Only set while the MSV is being published, when the caller
+         * holds it, so it doesn't need to be a GC root.
+         */
+        gc_ptr<msv> &current_source() {
+          static thread_local gc_ptr<msv> source;
+          return source;
+        }
+      }
+
+      void enable(std::uint32_t sample_interval) {
+        interval = std::max<std::uint32_t>(sample_interval, 1);
+        if (!detail::on.exchange(true)) {
+          msv_sites::retain();
+        }
+      }
+
+      void disable() {
+        if (detail::on.exchange(false)) {
+          msv_sites::release();
+        }
+      }
+
+      bool enabled() {
+        return detail::on;
+      }
+
+      void reset() {
+        table &t = the_table();
+        std::lock_guard<std::mutex> lock(t.mutex);
+        t.spots.clear();
+        sampled = 0;
+      }
+
+      std::uint64_t n_sampled() {
+        return sampled;
+      }
+
+      void note_failure(const conflict_list &conflicts) {
+        if (!detail::on.load(std::memory_order_relaxed) || !sample()) {
+          return;
+        }
+        sampled++;
+        std::vector<hot_spot> seen;
+        conflicts.for_each([&](const gc_ptr<const conflict> &c) {
+            seen.push_back(describe(c->source()));
+          });
+        table &t = the_table();
+        std::lock_guard<std::mutex> lock(t.mutex);
+        for (hot_spot &hs : seen) {
+          auto p = t.spots.find(hs.where);
+          if (p != t.spots.end()) {
+            p->second.count++;
+            continue;
+          }
+          std::uint64_t base = 0;
+          if (t.spots.size() >= max_spots) {
+            auto least = std::min_element(t.spots.begin(), t.spots.end(),
+                                          [](const auto &a, const auto &b) {
+                                            return a.second.count < b.second.count;
+                                          });
+            base = least->second.count;
+            t.spots.erase(least);
+          }
+          hs.count = base + 1;
+          t.spots.emplace(hs.where, hs);
+        }
+      }
 
+      std::vector<hot_spot> top(std::size_t n) {
+        std::vector<hot_spot> res;
+        {
+          table &t = the_table();
+          std::lock_guard<std::mutex> lock(t.mutex);
+          res.reserve(t.spots.size());
+          for (const auto &e : t.spots) {
+            res.push_back(e.second);
+          }
+        }
+        auto by_count = [](const hot_spot &a, const hot_spot &b) {
+          return a.count > b.count;
+        };
+        if (n < res.size()) {
+          std::partial_sort(res.begin(), res.begin()+n, res.end(), by_count);
+          res.resize(n);
+        } else {
+          std::sort(res.begin(), res.end(), by_count);
+        }
+        return res;
+      }
+    }
   }
 }
 
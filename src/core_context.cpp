@@ -36,6 +36,7 @@
 #include <queue>
 #include "core/core_context.h"
 #include "core/core_msv.h"
+#include "core/core_stats.h"
 #include "mpgc/gc_vector.h"
 
 namespace mds {
@@ -163,6 +164,9 @@ namespace mds {
         conflict_list conflicts(const state_t *self) const override {
           return self->call_non_virtual(&impl::conflicts_impl);
         }
+        modified_vc_list modified(const state_t *self) const override {
+          return self->call_non_virtual(&impl::modified_impl);
+        }
         gc_ptr<const state_t>
         add_conflict(const state_t *self,
                      const gc_ptr<const conflict> &c) const override
@@ -209,6 +213,9 @@ namespace mds {
       conflict_list conflicts_impl() const {
         return _conflicts;
       }
+      modified_vc_list modified_impl() const {
+        return _modified_vcs;
+      }
       gc_ptr<const state_t>
       add_conflict_impl(const gc_ptr<const conflict> &c) const 
       {
@@ -507,18 +514,48 @@ namespace mds {
         });
     }
 
+    std::vector<gc_ptr<msv>>
+    publication_attempt::published_msvs() const
+    {
+      std::vector<gc_ptr<msv>> msvs;
+      std::unordered_set<gc_ptr<msv>> seen;
+      _published.for_each([&](const gc_ptr<modified_value_chain> &mvc) {
+          if (!mvc->cleared()) {
+            gc_ptr<msv> m = mvc->in_msv.lock();
+            if (m != nullptr && seen.insert(m).second) {
+              msvs.push_back(m);
+            }
+          }
+        });
+      return msvs;
+    }
+
     gc_ptr<publication_attempt>
     iso_context::publish()
     {
       if (!is_publishable()) {
         throw unpublishable_context_ex{};
       }
+      stats::count(stats::event::publish_attempt);
       struct already_published{};
       gc_ptr<published_state> new_state = make_gc<published_state>();
       gc_ptr<const unpublished_state> last;
       timestamp_t start_time = current_value_timestamp();
       timestamp_t publish_time;
       gc_ptr<iso_context> ss = is_snapshot() ? GC_THIS : gc_ptr<iso_context>{};
+      /*
+       * Change feeds want to see the parent just before and just after
+       * this publish.  These take the timestamps either side of ours,
+       * so that the parent's values at those times stay around for as
+       * long as the snapshots do.  (If we're a snapshot, we hold the
+       * "after" one, which sees what we see.)
+       */
+      gc_ptr<iso_context> before;
+      gc_ptr<iso_context> after;
+      if (msv_sites::wanted()) {
+        before = _parent->as_of(0, view_type::snapshot, mod_type::read_only);
+        after = _parent->as_of(0, view_type::snapshot, mod_type::read_only);
+      }
       try {
         /*
          * We want to hold off calling prepare() as long as possible,
@@ -546,7 +583,15 @@ namespace mds {
               publish_time = new_prior->timestamp();
               throw already_published{};
             }
-            publish_time = new_value_timestamp(ss);
+            if (before == nullptr) {
+              publish_time = new_value_timestamp(ss);
+            } else {
+              timestamp_t before_time;
+              do {
+                before_time = new_value_timestamp(before);
+                publish_time = new_value_timestamp(ss != nullptr ? ss : after);
+              } while (publish_time != before_time+1);
+            }
             new_state->set_ts_and_prior(publish_time, new_prior);
             /*
              * If it's already changed, we don't bother creating the
@@ -561,12 +606,47 @@ namespace mds {
         new_state->mark_published();
       } catch (already_published) {
         /*
-         * Nothing to do.
+         * Nothing to do.  Whoever published our state will report
+         * what it wrote.
          */
+        last = nullptr;
       } catch (const conflict_list &conflicts) {
+        stats::count(stats::event::publish_failure);
+        conflict_trace::note_failure(conflicts);
         return make_gc<publication_attempt>(GC_THIS, conflicts, start_time);
       }
-      return make_gc<publication_attempt>(GC_THIS, conflict_list{}, publish_time);
+      stats::count(stats::event::publish_success);
+      std::uint8_t nw = _naming_writes.load();
+      if (nw != 0) {
+        /*
+         * Our bindings are now visible in our parent, so anything cached
+         * from a lookup there may be stale.
+         */
+        _parent->_naming_writes.fetch_or(nw);
+        binding_epoch->fetch_add(1);
+        if (nw & rebound_namespace) {
+          namespace_epoch->fetch_add(1);
+        }
+      }
+      /*
+       * Change feeds want to know what we wrote, but only once we've
+       * succeeded, so we hang on to it for them.
+       */
+      modified_vc_list published;
+      if (last != nullptr && before != nullptr) {
+        published = last->modified();
+        /*
+         * Our values went into the parent at publish_time-1, and a
+         * snapshot stable at ts reads its parent as of ts-1.
+         */
+        before->_state = make_gc<published_state>(publish_time-1);
+        after->_state = make_gc<published_state>(publish_time);
+      } else {
+        before = nullptr;
+        after = nullptr;
+      }
+      return make_gc<publication_attempt>(GC_THIS, conflict_list{}, publish_time, published,
+                                          before, after);
     }
 
     struct publication_attempt::redo_graph : public gc_allocated {
@@ -919,6 +999,7 @@ namespace mds {
         assert(g->_nodes[0]->_task->is_top_level());
         return false;
       }
+      stats::count(stats::event::redo_task, g->_nodes.size());
       g->prepare_for_redo();
       _conflicts.for_each([](auto &c) {
           c->mark_resolved();
@@ -43,8 +43,11 @@ namespace mds {
     external_gc_ptr<iso_context> global_context;
     external_gc_ptr<string_table_t> string_table;
     external_gc_ptr<record_type_table_t> record_type_table;
+    external_gc_ptr<queue_table_t> queue_table;
     external_gc_ptr<name_space> global_namespace;
     std::size_t *next_task_number;
+    std::atomic<std::uint64_t> *namespace_epoch;
+    std::atomic<std::uint64_t> *binding_epoch;
     
     external_gc_ptr<const managed_type<kind::BOOL>> managed_bool_type;
     external_gc_ptr<const managed_type<kind::BYTE>> managed_byte_type;
@@ -66,10 +69,13 @@ namespace mds {
       std::atomic<gc_ptr<timestamp_record>> _current_timestamp;
       gc_ptr<iso_context> _global_context = make_gc<iso_context>(iso_context::private_ctor{}, iso_context::global);
       gc_ptr<view> _top_level_view = make_gc<view>(_global_context, nullptr);
-      gc_ptr<string_table_t> _string_table = make_gc<string_table_t>(initial_string_table_capacity);
+      gc_ptr<string_table_t> _string_table = make_gc<string_table_t>(initial_string_table_capacity,
+                                                                       n_string_table_shards);
       gc_ptr<record_type_table_t> _record_type_table = make_gc<record_type_table_t>(initial_record_type_table_capacity);
       gc_ptr<name_space> _global_namespace = make_gc<name_space>();
       std::size_t _next_task_number;
+      std::atomic<std::uint64_t> _namespace_epoch{0};
+      std::atomic<std::uint64_t> _binding_epoch{0};
 
       gc_ptr<const managed_type<kind::BOOL>> _mtype_bool = make_gc<managed_type<kind::BOOL>>();
       gc_ptr<const managed_type<kind::BYTE>> _mtype_byte = make_gc<managed_type<kind::BYTE>>();
@@ -83,6 +89,11 @@ namespace mds {
       gc_ptr<const managed_type<kind::FLOAT>> _mtype_float = make_gc<managed_type<kind::FLOAT>>();
       gc_ptr<const managed_type<kind::DOUBLE>> _mtype_double = make_gc<managed_type<kind::DOUBLE>>();
       gc_ptr<const managed_type<kind::STRING>> _mtype_string = make_gc<managed_type<kind::STRING>>();
+      /*
+       * Named MPMC queues (see core_queue.h).  These aren't isolated,
+       * so they're kept out of the namespaces.
+       */
+      gc_ptr<queue_table_t> _queue_table = make_gc<queue_table_t>(initial_queue_table_capacity);
 
     public:
 
@@ -99,6 +110,8 @@ namespace mds {
 	  .WITH_FIELD(&control::_record_type_table)
 	  .WITH_FIELD(&control::_global_namespace)
 	  .WITH_FIELD(&control::_next_task_number)
+	  .WITH_FIELD(&control::_namespace_epoch)
+	  .WITH_FIELD(&control::_binding_epoch)
 	  .WITH_FIELD(&control::_mtype_bool)
 	  .WITH_FIELD(&control::_mtype_byte)
 	  .WITH_FIELD(&control::_mtype_ubyte)
@@ -111,6 +124,7 @@ namespace mds {
 	  .WITH_FIELD(&control::_mtype_double)
 	  .WITH_FIELD(&control::_mtype_float)
 	  .WITH_FIELD(&control::_mtype_string)
+	  .WITH_FIELD(&control::_queue_table)
           ;
         return d;
       }
@@ -142,6 +156,8 @@ namespace mds {
         global_namespace = cb._global_namespace;
 	assert(global_namespace.value().is_valid());
         next_task_number = &cb._next_task_number;
+        namespace_epoch = &cb._namespace_epoch;
+        binding_epoch = &cb._binding_epoch;
         managed_bool_type = cb._mtype_bool;
 	assert(managed_bool_type.value().is_valid());
         managed_byte_type = cb._mtype_byte;
@@ -166,6 +182,8 @@ namespace mds {
 	assert(managed_double_type.value().is_valid());
         managed_string_type = cb._mtype_string;
 	assert(managed_string_type.value().is_valid());
+        queue_table = cb._queue_table;
+	assert(queue_table.value().is_valid());
 
         already_registered = false;
         process_registered = true;
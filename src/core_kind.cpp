@@ -35,6 +35,7 @@
 #include "core/core_type.h"
 #include "core/core_record.h"
 #include "core/core_array.h"
+#include "core/core_container.h"
 
 namespace mds {
   namespace core {
@@ -63,6 +64,10 @@ namespace mds {
 
     };
 
+    struct kd_container : kd_default<kind::CONTAINER> {
+
+    };
+
     const std::array<std::unique_ptr<const kind_dispatch>,n_kinds> &
     kind_dispatch::table() {
       static std::array<std::unique_ptr<const kind_dispatch>,n_kinds> array;
@@ -82,6 +87,7 @@ namespace mds {
         array[static_cast<std::size_t>(kind::STRING)].reset(new kd_default<kind::STRING>);
         array[static_cast<std::size_t>(kind::RECORD)].reset(new kd_record);
         array[static_cast<std::size_t>(kind::ARRAY)].reset(new kd_array);
+        array[static_cast<std::size_t>(kind::CONTAINER)].reset(new kd_container);
       });
       return array;
     }
@@ -32,8 +32,11 @@
  */
 
 #include "core/core_msv.h"
+#include "core/core_stats.h"
 #include <vector>
 #include <list>
+#include <deque>
+#include <mutex>
 #include <algorithm>
 #include "mpgc/gc_vector.h"
 
@@ -263,6 +266,7 @@ namespace mds {
       if (vc != nullptr) {
         // assert(vc->get_context()->is_publishable());
         vc->do_rollup(publish_time());
+        stats::count(stats::event::rollup);
       }
       mark_processed();
     }
@@ -275,5 +279,168 @@ namespace mds {
       pstate.process(prs, msv_rollups);
       pstate.clear();
     }
+
+    namespace rollup_compaction {
+      namespace {
+        constexpr std::size_t n_shards = 16;
+        constexpr std::size_t max_queued_per_shard = (1 << 16) / n_shards;
+
+        struct shard {
+          std::mutex mutex;
+          std::deque<external_weak_gc_ptr<msv>> queue;
+        };
+        std::array<shard, n_shards> shards;
+
+        /*
+         * Threads are handed shards round robin the first time they
+         * queue something.
+         */
+        shard &my_shard() {
+          static std::atomic<std::size_t> next{0};
+          static thread_local std::size_t mine = next.fetch_add(1) % n_shards;
+          return shards[mine];
+        }
+
+        /*
+         * Counted per thread, since queued and dropped are bumped on
+         * the publish path.  max_before is only ever set by run().
+         */
+        using counters = stats::per_thread_counters<stat>;
+        std::atomic<std::uint64_t> max_before{0};
+
+        void add(stat s, std::uint64_t n = 1) {
+          counters::add(s, n);
+        }
+
+        void note_max(std::uint64_t n) {
+          std::uint64_t cur = max_before.load(std::memory_order_relaxed);
+          while (n > cur && !max_before.compare_exchange_weak(cur, n)) {
+          }
+        }
+
+        /*
+         * The caller has already marked m as queued.
+         */
+        void push(shard &sh, const gc_ptr<msv> &m) {
+          {
+            std::lock_guard<std::mutex> lock(sh.mutex);
+            if (sh.queue.size() < max_queued_per_shard) {
+              sh.queue.emplace_back(m);
+              add(stat::queued);
+              return;
+            }
+          }
+          m->clear_queued();
+          add(stat::dropped);
+        }
+
+        external_gc_ptr<msv> pop(shard &sh, bool &empty) {
+          std::lock_guard<std::mutex> lock(sh.mutex);
+          empty = sh.queue.empty();
+          if (empty) {
+            return nullptr;
+          }
+          external_gc_ptr<msv> m = sh.queue.front().lock();
+          sh.queue.pop_front();
+          return m;
+        }
+      }
+
+      namespace detail {
+        std::atomic<bool> on{false};
+
+        void enqueue(const gc_ptr<msv> &m) {
+          push(my_shard(), m);
+        }
+      }
+
+      void enable() {
+        detail::on = true;
+      }
+
+      void disable() {
+        detail::on = false;
+        for (shard &sh : shards) {
+          std::lock_guard<std::mutex> lock(sh.mutex);
+          for (const auto &w : sh.queue) {
+            external_gc_ptr<msv> m = w.lock();
+            if (m != nullptr) {
+              m->clear_queued();
+            }
+          }
+          sh.queue.clear();
+        }
+      }
+
+      bool enabled() {
+        return detail::on;
+      }
+
+      std::size_t queue_length() {
+        std::size_t n = 0;
+        for (shard &sh : shards) {
+          std::lock_guard<std::mutex> lock(sh.mutex);
+          n += sh.queue.size();
+        }
+        return n;
+      }
+
+      std::size_t run(std::chrono::nanoseconds budget) {
+        using clock = std::chrono::steady_clock;
+        auto deadline = clock::now() + budget;
+        add(stat::runs);
+        /*
+         * MSVs that still have pending rollups (because the publishes
+         * they're waiting on haven't resolved) go back in the queue
+         * once we're done, so we don't spin on them.
+         */
+        std::vector<external_gc_ptr<msv>> still_pending;
+        std::size_t n = 0;
+        std::size_t empties = 0;
+        static std::atomic<std::size_t> next_shard{0};
+        /*
+         * Take one from each shard in turn until they've all come up
+         * empty in a row.
+         */
+        do {
+          bool empty;
+          external_gc_ptr<msv> m = pop(shards[next_shard.fetch_add(1) % n_shards], empty);
+          if (empty) {
+            empties++;
+            continue;
+          }
+          empties = 0;
+          if (m == nullptr) {
+            continue;
+          }
+          m->clear_queued();
+          std::uint64_t before = m->n_pending_rollups();
+          m->process_rollups();
+          std::uint64_t after = m->n_pending_rollups();
+          add(stat::compacted);
+          add(stat::rollups_before, before);
+          add(stat::rollups_after, after);
+          note_max(before);
+          n++;
+          if (after > 0) {
+            still_pending.push_back(m);
+          }
+        } while (empties < n_shards && clock::now() < deadline);
+        if (detail::on) {
+          for (const auto &m : still_pending) {
+            if (m->mark_queued()) {
+              push(my_shard(), m);
+            }
+          }
+        }
+        return n;
+      }
+
+      totals_type totals() {
+        totals_type t = counters::totals();
+        t[static_cast<std::size_t>(stat::max_before)] = max_before.load(std::memory_order_relaxed);
+        return t;
+      }
+    }
   }
 }
@@ -0,0 +1,1013 @@
+/*
+ *
+ *  Managed Data Structures
+ *  Copyright © 2016 Hewlett Packard Enterprise Development Company LP.
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU Lesser General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *  As an exception, the copyright holders of this Library grant you permission
+ *  to (i) compile an Application with the Library, and (ii) distribute the 
+ *  Application containing code generated by the Library and added to the 
+ *  Application during this compilation process under terms of your choice, 
+ *  provided you also meet the terms and conditions of the Application license.
+ *
+ */
+
+/*
+ * core_transfer.cpp
+ *
+ * See core_transfer.h for the format.
+ */
+
+#include <algorithm>
+#include <cstring>
+#include <deque>
+#include <string>
+#include <type_traits>
+#include <unordered_map>
+#include <vector>
+
+#include "core/core_transfer.h"
+#include "core/core_context.h"
+#include "core/core_naming.h"
+#include "core/core_record.h"
+#include "core/core_array.h"
+#include "core/core_strings.h"
+#include "core/core_globals.h"
+
+namespace mds {
+  namespace core {
+    namespace transfer {
+      namespace {
+        enum class tag : std::uint8_t {
+          end, types, bind, record, array
+        };
+
+        const std::uint8_t magic[] = { 'M', 'D', 'S', 'X' };
+
+        /*
+         * Elements of larger arrays are written this many at a time.
+         */
+        constexpr std::size_t array_chunk = 1024;
+        constexpr std::size_t no_type = static_cast<std::size_t>(-1);
+
+        /*
+         * The kinds whose values are written in place.
+         */
+        bool is_scalar(kind k) {
+          return k <= kind::STRING;
+        }
+
+        bool is_element_kind(kind k) {
+          return is_scalar(k) || k == kind::RECORD;
+        }
+
+        template <typename Fn>
+        auto with_scalar_kind(kind k, Fn &&fn) {
+          switch (k) {
+          case kind::BOOL:
+            return fn(std::integral_constant<kind, kind::BOOL>{});
+          case kind::BYTE:
+            return fn(std::integral_constant<kind, kind::BYTE>{});
+          case kind::UBYTE:
+            return fn(std::integral_constant<kind, kind::UBYTE>{});
+          case kind::SHORT:
+            return fn(std::integral_constant<kind, kind::SHORT>{});
+          case kind::USHORT:
+            return fn(std::integral_constant<kind, kind::USHORT>{});
+          case kind::INT:
+            return fn(std::integral_constant<kind, kind::INT>{});
+          case kind::UINT:
+            return fn(std::integral_constant<kind, kind::UINT>{});
+          case kind::LONG:
+            return fn(std::integral_constant<kind, kind::LONG>{});
+          case kind::ULONG:
+            return fn(std::integral_constant<kind, kind::ULONG>{});
+          case kind::FLOAT:
+            return fn(std::integral_constant<kind, kind::FLOAT>{});
+          case kind::DOUBLE:
+            return fn(std::integral_constant<kind, kind::DOUBLE>{});
+          case kind::STRING:
+            return fn(std::integral_constant<kind, kind::STRING>{});
+          default:
+            throw transfer_format_ex{"unexpected value kind"};
+          }
+        }
+
+        gc_ptr<const record_type> canonical(const gc_ptr<const record_type> &rt) {
+          if (rt == nullptr) {
+            return rt;
+          }
+          gc_ptr<const record_type> fwd = rt->ensure_created();
+          return fwd == nullptr ? rt : fwd;
+        }
+
+        class writer {
+          const sink &_out;
+          const std::size_t _limit;
+          std::vector<std::uint8_t> _buf;
+        public:
+          writer(const sink &out, std::size_t limit)
+            : _out{out}, _limit{limit == 0 ? 1 : limit}
+          {
+            _buf.reserve(_limit);
+          }
+
+          void flush() {
+            if (!_buf.empty()) {
+              _out(_buf.data(), _buf.size());
+              _buf.clear();
+            }
+          }
+
+          void byte(std::uint8_t b) {
+            _buf.push_back(b);
+            if (_buf.size() >= _limit) {
+              flush();
+            }
+          }
+
+          void put(tag t) {
+            byte(static_cast<std::uint8_t>(t));
+          }
+
+          void varint(std::uint64_t v) {
+            while (v >= 0x80) {
+              byte(static_cast<std::uint8_t>(v | 0x80));
+              v >>= 7;
+            }
+            byte(static_cast<std::uint8_t>(v));
+          }
+
+          void svarint(std::int64_t v) {
+            varint((static_cast<std::uint64_t>(v) << 1) ^ static_cast<std::uint64_t>(v >> 63));
+          }
+
+          void fixed(std::uint64_t v, unsigned n) {
+            for (unsigned i = 0; i < n; i++) {
+              byte(static_cast<std::uint8_t>(v));
+              v >>= 8;
+            }
+          }
+
+          /*
+           * Strings are their length plus one (zero for null) and then
+           * their UTF-16 code units as varints.
+           */
+          void str(const gc_ptr<interned_string> &s) {
+            if (s == nullptr) {
+              varint(0);
+              return;
+            }
+            varint(s->size()+1);
+            for (char16_t c : *s) {
+              varint(c);
+            }
+          }
+        };
+
+        class reader {
+          const source &_in;
+          std::vector<std::uint8_t> _buf;
+          std::size_t _pos = 0;
+          std::size_t _end = 0;
+        public:
+          reader(const source &in, std::size_t size)
+            : _in{in}, _buf(size == 0 ? 1 : size)
+          {}
+
+          std::uint8_t byte() {
+            if (_pos == _end) {
+              _end = _in(_buf.data(), _buf.size());
+              _pos = 0;
+              if (_end == 0) {
+                throw transfer_format_ex{"unexpected end of stream"};
+              }
+            }
+            return _buf[_pos++];
+          }
+
+          tag get_tag() {
+            std::uint8_t t = byte();
+            if (t > static_cast<std::uint8_t>(tag::array)) {
+              throw transfer_format_ex{"unknown entry tag"};
+            }
+            return static_cast<tag>(t);
+          }
+
+          kind get_kind() {
+            std::uint8_t k = byte();
+            if (k >= static_cast<std::uint8_t>(kind::n_kinds)) {
+              throw transfer_format_ex{"unknown kind"};
+            }
+            return static_cast<kind>(k);
+          }
+
+          std::uint64_t varint() {
+            std::uint64_t v = 0;
+            for (unsigned shift = 0; shift < 64; shift += 7) {
+              std::uint8_t b = byte();
+              v |= static_cast<std::uint64_t>(b & 0x7f) << shift;
+              if ((b & 0x80) == 0) {
+                return v;
+              }
+            }
+            throw transfer_format_ex{"varint too long"};
+          }
+
+          std::int64_t svarint() {
+            std::uint64_t u = varint();
+            return static_cast<std::int64_t>(u >> 1) ^ -static_cast<std::int64_t>(u & 1);
+          }
+
+          std::uint64_t fixed(unsigned n) {
+            std::uint64_t v = 0;
+            for (unsigned i = 0; i < n; i++) {
+              v |= static_cast<std::uint64_t>(byte()) << (8*i);
+            }
+            return v;
+          }
+
+          gc_ptr<interned_string> str() {
+            std::uint64_t n = varint();
+            if (n == 0) {
+              return nullptr;
+            }
+            std::u16string s;
+            s.reserve(n-1);
+            for (std::uint64_t i = 1; i < n; i++) {
+              s.push_back(static_cast<char16_t>(varint()));
+            }
+            return intern(s.begin(), s.end());
+          }
+
+          std::size_t id_below(std::size_t limit) {
+            std::uint64_t id = varint();
+            if (id >= limit) {
+              throw transfer_format_ex{"id out of range"};
+            }
+            return static_cast<std::size_t>(id);
+          }
+        };
+
+        /*
+         * The encodings of the scalar kinds.
+         */
+        inline void put(writer &w, bool v) {
+          w.byte(v ? 1 : 0);
+        }
+        template <typename T>
+        inline std::enable_if_t<std::is_integral<T>::value && std::is_signed<T>::value>
+        put(writer &w, T v) {
+          w.svarint(v);
+        }
+        template <typename T>
+        inline std::enable_if_t<std::is_integral<T>::value && std::is_unsigned<T>::value
+                                && !std::is_same<T, bool>::value>
+        put(writer &w, T v) {
+          w.varint(v);
+        }
+        inline void put(writer &w, float v) {
+          std::uint32_t bits;
+          std::memcpy(&bits, &v, sizeof(bits));
+          w.fixed(bits, sizeof(bits));
+        }
+        inline void put(writer &w, double v) {
+          std::uint64_t bits;
+          std::memcpy(&bits, &v, sizeof(bits));
+          w.fixed(bits, sizeof(bits));
+        }
+        inline void put(writer &w, const gc_ptr<interned_string> &s) {
+          w.str(s);
+        }
+
+        inline void get(reader &r, bool &v) {
+          v = r.byte() != 0;
+        }
+        template <typename T>
+        inline std::enable_if_t<std::is_integral<T>::value && std::is_signed<T>::value>
+        get(reader &r, T &v) {
+          v = static_cast<T>(r.svarint());
+        }
+        template <typename T>
+        inline std::enable_if_t<std::is_integral<T>::value && std::is_unsigned<T>::value
+                                && !std::is_same<T, bool>::value>
+        get(reader &r, T &v) {
+          v = static_cast<T>(r.varint());
+        }
+        inline void get(reader &r, float &v) {
+          std::uint32_t bits = static_cast<std::uint32_t>(r.fixed(sizeof(bits)));
+          std::memcpy(&v, &bits, sizeof(bits));
+        }
+        inline void get(reader &r, double &v) {
+          std::uint64_t bits = r.fixed(sizeof(bits));
+          std::memcpy(&v, &bits, sizeof(bits));
+        }
+        inline void get(reader &r, gc_ptr<interned_string> &s) {
+          s = r.str();
+        }
+
+        using record_val = kind_mv<kind::RECORD>;
+        using array_val = kind_mv<kind::ARRAY>;
+
+        /*
+         * A field as it's written: the kind, the element kind for
+         * arrays, and the record type for records and arrays of
+         * records.
+         */
+        struct field_desc {
+          gc_ptr<record_field_base> field;
+          kind k;
+          kind elt;
+          gc_ptr<const record_type> rt;
+        };
+
+        class exporter {
+          writer _w;
+          counts _counts;
+
+          std::unordered_map<gc_ptr<const record_type>, std::size_t> _type_ids;
+          /*
+           * A deque, since note_type() can add to it while a record's
+           * fields are being walked.
+           */
+          std::deque<std::vector<field_desc>> _type_fields;
+
+          std::unordered_map<gc_ptr<managed_record>, std::size_t> _record_ids;
+          std::unordered_map<gc_ptr<managed_array_base>, std::size_t> _array_ids;
+          /*
+           * Mentioned, but not yet written.
+           */
+          std::vector<std::pair<record_val, std::size_t>> _records;
+          std::vector<std::pair<array_val, std::size_t>> _arrays;
+
+          std::vector<gc_ptr<interned_string>> _path;
+
+          static std::vector<field_desc> describe(const gc_ptr<const record_type> &rt) {
+            std::vector<field_desc> fields;
+            for (const gc_ptr<record_field_base> &f : rt->fields()) {
+              field_desc d{f, f->type_kind, kind::n_kinds, nullptr};
+              if (d.k == kind::RECORD) {
+                d.rt = canonical(std::static_pointer_cast<const record_type>(f->f_type_base));
+              } else if (d.k == kind::ARRAY) {
+                auto at = std::static_pointer_cast<const array_type_base>(f->f_type_base);
+                d.elt = at->elmt_kind;
+                if (!is_element_kind(d.elt)) {
+                  continue;
+                }
+                if (d.elt == kind::RECORD) {
+                  d.rt = canonical(at->downcast<kind::RECORD>()->element_type());
+                }
+              } else if (!is_scalar(d.k)) {
+                continue;
+              }
+              fields.push_back(d);
+            }
+            return fields;
+          }
+
+          /*
+           * Gives ids to rt and to anything it needs that doesn't have
+           * one yet, supertypes first.
+           */
+          void collect(const gc_ptr<const record_type> &rt,
+                       std::vector<gc_ptr<const record_type>> &group)
+          {
+            gc_ptr<const record_type> super = canonical(rt->super_type());
+            if (super != nullptr && _type_ids.count(super) == 0) {
+              collect(super, group);
+            }
+            std::size_t id = _type_fields.size();
+            _type_ids.emplace(rt, id);
+            _type_fields.push_back(describe(rt));
+            group.push_back(rt);
+            std::vector<gc_ptr<const record_type>> needed;
+            for (const field_desc &f : _type_fields[id]) {
+              if (f.rt != nullptr) {
+                needed.push_back(f.rt);
+              }
+            }
+            for (const auto &n : needed) {
+              if (_type_ids.count(n) == 0) {
+                collect(n, group);
+              }
+            }
+          }
+
+          /*
+           * Makes sure the importer will know about rt before it's
+           * mentioned.  Only called between entries.
+           */
+          void note_type(const gc_ptr<const record_type> &type) {
+            gc_ptr<const record_type> rt = canonical(type);
+            if (rt == nullptr || _type_ids.count(rt) != 0) {
+              return;
+            }
+            std::vector<gc_ptr<const record_type>> group;
+            collect(rt, group);
+            _w.put(tag::types);
+            _w.varint(group.size());
+            for (const auto &t : group) {
+              _w.str(t->name());
+              gc_ptr<const record_type> super = canonical(t->super_type());
+              _w.varint(super == nullptr ? 0 : _type_ids.at(super)+1);
+            }
+            for (const auto &t : group) {
+              const std::vector<field_desc> &fields = _type_fields[_type_ids.at(t)];
+              _w.varint(fields.size());
+              for (const field_desc &f : fields) {
+                _w.str(f.field->name);
+                _w.byte(static_cast<std::uint8_t>(f.k));
+                if (f.k == kind::ARRAY) {
+                  _w.byte(static_cast<std::uint8_t>(f.elt));
+                }
+                if (f.rt != nullptr) {
+                  _w.varint(_type_ids.at(f.rt));
+                }
+              }
+            }
+            _counts.types += group.size();
+          }
+
+          static gc_ptr<const record_type> element_type(const array_val &a) {
+            return a.value->elmt_kind == kind::RECORD
+              ? a.value->downcast<kind::RECORD>()->a_type->element_type()
+              : nullptr;
+          }
+
+          /*
+           * Called for each record or array about to be mentioned in an
+           * entry, before the entry is started.
+           */
+          void prepare(const record_val &r) {
+            if (r.value != nullptr && _record_ids.count(r.value) == 0) {
+              note_type(r.value->r_type);
+            }
+          }
+          void prepare(const array_val &a) {
+            if (a.value != nullptr && _array_ids.count(a.value) == 0) {
+              note_type(element_type(a));
+            }
+          }
+
+          void write_ref(const record_val &r) {
+            if (r.value == nullptr) {
+              _w.varint(0);
+              return;
+            }
+            auto p = _record_ids.find(r.value);
+            if (p != _record_ids.end()) {
+              _w.varint(p->second+1);
+              return;
+            }
+            std::size_t id = _record_ids.size();
+            _record_ids.emplace(r.value, id);
+            _records.emplace_back(r, id);
+            _w.varint(id+1);
+            _w.varint(_type_ids.at(canonical(r.value->r_type)));
+            _counts.records++;
+          }
+
+          void write_ref(const array_val &a) {
+            if (a.value == nullptr || !is_element_kind(a.value->elmt_kind)) {
+              _w.varint(0);
+              return;
+            }
+            auto p = _array_ids.find(a.value);
+            if (p != _array_ids.end()) {
+              _w.varint(p->second+1);
+              return;
+            }
+            std::size_t id = _array_ids.size();
+            _array_ids.emplace(a.value, id);
+            _arrays.emplace_back(a, id);
+            _w.varint(id+1);
+            kind elt = a.value->elmt_kind;
+            _w.byte(static_cast<std::uint8_t>(elt));
+            if (elt == kind::RECORD) {
+              _w.varint(_type_ids.at(canonical(element_type(a))));
+            }
+            with_element_kind(a, [&](const auto &ma) {
+                _w.varint(ma->size);
+              });
+            _counts.arrays++;
+          }
+
+          template <typename Fn>
+          static void with_element_kind(const array_val &a, Fn &&fn) {
+            kind elt = a.value->elmt_kind;
+            if (elt == kind::RECORD) {
+              fn(a.value->downcast<kind::RECORD>());
+            } else {
+              with_scalar_kind(elt, [&](auto kc) {
+                  constexpr kind K = decltype(kc)::value;
+                  fn(a.value->downcast<K>());
+                });
+            }
+          }
+
+          template <kind K>
+          static kind_mv<K> read_field(const field_desc &f, const record_val &r) {
+            return std::static_pointer_cast<record_field<K>>(f.field)->frozen_read(r.value, r.in_view);
+          }
+
+          void write_record(const record_val &r, std::size_t id) {
+            const std::vector<field_desc> &fields = _type_fields[_type_ids.at(canonical(r.value->r_type))];
+            /*
+             * Reads in a read-only snapshot are stable, so the fields
+             * that refer to things are simply read twice.
+             */
+            for (const field_desc &f : fields) {
+              if (f.k == kind::RECORD) {
+                prepare(read_field<kind::RECORD>(f, r));
+              } else if (f.k == kind::ARRAY) {
+                prepare(read_field<kind::ARRAY>(f, r));
+              }
+            }
+            _w.put(tag::record);
+            _w.varint(id);
+            for (const field_desc &f : fields) {
+              if (f.k == kind::RECORD) {
+                write_ref(read_field<kind::RECORD>(f, r));
+              } else if (f.k == kind::ARRAY) {
+                write_ref(read_field<kind::ARRAY>(f, r));
+              } else {
+                with_scalar_kind(f.k, [&](auto kc) {
+                    constexpr kind K = decltype(kc)::value;
+                    put(_w, read_field<K>(f, r));
+                  });
+              }
+            }
+          }
+
+          void write_array(const array_val &a, std::size_t id) {
+            with_element_kind(a, [&](const auto &ma) {
+                this->write_elements(ma, a.in_view, id);
+              });
+          }
+
+          template <kind K>
+          void write_elements(const gc_ptr<managed_array<K>> &ma, const gc_ptr<view> &v,
+                              std::size_t id)
+          {
+            using size_type = typename managed_array<K>::size_type;
+            for (size_type start = 0; start < ma->size; start += array_chunk) {
+              size_type end = std::min<size_type>(start+array_chunk, ma->size);
+              write_chunk(ma, v, id, start, end);
+            }
+          }
+
+          void write_chunk(const gc_ptr<managed_array<kind::RECORD>> &ma, const gc_ptr<view> &v,
+                           std::size_t id, std::size_t start, std::size_t end)
+          {
+            for (std::size_t i = start; i < end; i++) {
+              prepare(ma->frozen_read(i, v));
+            }
+            start_chunk(id, start, end-start);
+            for (std::size_t i = start; i < end; i++) {
+              write_ref(ma->frozen_read(i, v));
+            }
+          }
+
+          template <kind K>
+          void write_chunk(const gc_ptr<managed_array<K>> &ma, const gc_ptr<view> &v,
+                           std::size_t id, std::size_t start, std::size_t end)
+          {
+            start_chunk(id, start, end-start);
+            for (std::size_t i = start; i < end; i++) {
+              put(_w, ma->frozen_read(i, v));
+            }
+          }
+
+          void start_chunk(std::size_t id, std::uint64_t start, std::uint64_t count) {
+            _w.put(tag::array);
+            _w.varint(id);
+            _w.varint(start);
+            _w.varint(count);
+          }
+
+          void drain() {
+            while (!_records.empty() || !_arrays.empty()) {
+              if (!_arrays.empty()) {
+                auto a = _arrays.back();
+                _arrays.pop_back();
+                write_array(a.first, a.second);
+              } else {
+                auto r = _records.back();
+                _records.pop_back();
+                write_record(r.first, r.second);
+              }
+            }
+          }
+
+          void start_bind(kind k) {
+            _w.put(tag::bind);
+            _w.varint(_path.size());
+            for (const auto &n : _path) {
+              _w.str(n);
+            }
+            _w.byte(static_cast<std::uint8_t>(k));
+            _counts.bindings++;
+          }
+
+          void write_binding(const binding &b) {
+            kind k = b.value_kind();
+            if (k == kind::RECORD) {
+              record_val r = b.value<kind::RECORD>();
+              prepare(r);
+              start_bind(k);
+              write_ref(r);
+            } else if (k == kind::ARRAY) {
+              array_val a = b.value<kind::ARRAY>();
+              if (!is_element_kind(a.value == nullptr ? kind::BOOL : a.value->elmt_kind)) {
+                return;
+              }
+              prepare(a);
+              start_bind(k);
+              write_ref(a);
+            } else if (is_scalar(k)) {
+              start_bind(k);
+              with_scalar_kind(k, [&](auto kc) {
+                  constexpr kind K = decltype(kc)::value;
+                  put(_w, b.value<K>());
+                });
+            } else {
+              return;
+            }
+            drain();
+          }
+
+          void walk(const gc_ptr<name_space> &ns, const gc_ptr<view> &v) {
+            std::vector<gc_ptr<interned_string>> subs;
+            ns->for_each_binding(v, nullptr, nullptr, static_cast<std::size_t>(-1),
+                                 [&](const gc_ptr<interned_string> &name, const binding &b) {
+                                   if (b.is_namespace()) {
+                                     subs.push_back(name);
+                                   } else {
+                                     _path.push_back(name);
+                                     write_binding(b);
+                                     _path.pop_back();
+                                   }
+                                 });
+            for (const auto &name : subs) {
+              managed_value<name_space> child = ns->child_namespace(name, v, false);
+              if (child.value != nullptr) {
+                _path.push_back(name);
+                walk(child.value, child.in_view);
+                _path.pop_back();
+              }
+            }
+          }
+
+        public:
+          exporter(const sink &out, std::size_t buffer_size)
+            : _w{out, buffer_size}
+          {}
+
+          counts run(const gc_ptr<name_space> &ns, const gc_ptr<view> &v) {
+            for (std::uint8_t b : magic) {
+              _w.byte(b);
+            }
+            _w.varint(format_version);
+            walk(ns, v);
+            _w.put(tag::end);
+            _w.flush();
+            return _counts;
+          }
+        };
+
+        class importer {
+          reader _r;
+          counts _counts;
+          const gc_ptr<name_space> _root;
+          const gc_ptr<view> _root_view;
+
+          struct field_entry {
+            gc_ptr<interned_string> name;
+            kind k;
+            kind elt;
+            std::size_t type;
+          };
+
+          struct type_entry {
+            gc_ptr<interned_string> name;
+            std::size_t super = no_type;
+            std::vector<field_entry> fields;
+            gc_ptr<const record_type> rt;
+            gc_ptr<record_type> declared;
+            /*
+             * Where each field's value goes, or null if the type has no
+             * such field.
+             */
+            std::vector<gc_ptr<record_field_base>> targets;
+          };
+          std::vector<type_entry> _types;
+
+          std::vector<record_val> _records;
+          std::vector<std::size_t> _record_types;
+          std::vector<array_val> _arrays;
+
+          /*
+           * Uses an existing type of the same name if there is one.
+           * Otherwise declares it, along with its supertype and the
+           * types its fields need.  The type is marked before its
+           * fields are added, so that types that refer to each other
+           * work.
+           */
+          gc_ptr<const record_type> declare(std::size_t id) {
+            type_entry &e = _types[id];
+            if (e.rt != nullptr) {
+              return e.rt;
+            }
+            gc_ptr<const record_type> found = record_type::find(e.name);
+            if (found != nullptr) {
+              e.rt = found;
+              return e.rt;
+            }
+            gc_ptr<const record_type> super = e.super == no_type ? nullptr : declare(e.super);
+            e.declared = record_type::declare(e.name, super);
+            e.rt = e.declared;
+            for (const field_entry &f : e.fields) {
+              add_field(e.declared, f);
+            }
+            return e.rt;
+          }
+
+          void add_field(const gc_ptr<record_type> &rt, const field_entry &f) {
+            if (f.k == kind::RECORD) {
+              declare(f.type)->field_in(rt, f.name, true);
+            } else if (f.k == kind::ARRAY && f.elt == kind::RECORD) {
+              declare(f.type)->in_array()->field_in(rt, f.name, true);
+            } else if (f.k == kind::ARRAY) {
+              with_scalar_kind(f.elt, [&](auto kc) {
+                  constexpr kind K = decltype(kc)::value;
+                  global_managed_type<K>()->in_array()->field_in(rt, f.name, true);
+                });
+            } else {
+              with_scalar_kind(f.k, [&](auto kc) {
+                  constexpr kind K = decltype(kc)::value;
+                  global_managed_type<K>()->field_in(rt, f.name, true);
+                });
+            }
+          }
+
+          static bool same_shape(const gc_ptr<record_field_base> &t, const field_entry &f) {
+            if (t->type_kind != f.k) {
+              return false;
+            }
+            return f.k != kind::ARRAY
+              || std::static_pointer_cast<const array_type_base>(t->f_type_base)->elmt_kind == f.elt;
+          }
+
+          void read_types() {
+            std::size_t n = static_cast<std::size_t>(_r.varint());
+            std::size_t start = _types.size();
+            _types.resize(start+n);
+            for (std::size_t i = start; i < start+n; i++) {
+              _types[i].name = _r.str();
+              std::size_t super = _r.id_below(i+1);
+              _types[i].super = super == 0 ? no_type : super-1;
+            }
+            for (std::size_t i = start; i < start+n; i++) {
+              std::size_t n_fields = static_cast<std::size_t>(_r.varint());
+              for (std::size_t j = 0; j < n_fields; j++) {
+                field_entry f{_r.str(), _r.get_kind(), kind::n_kinds, no_type};
+                if (f.k == kind::ARRAY) {
+                  f.elt = _r.get_kind();
+                  if (!is_element_kind(f.elt)) {
+                    throw transfer_format_ex{"unsupported array field"};
+                  }
+                } else if (!is_element_kind(f.k)) {
+                  throw transfer_format_ex{"unsupported field"};
+                }
+                if (f.k == kind::RECORD || f.elt == kind::RECORD) {
+                  f.type = _r.id_below(start+n);
+                }
+                _types[i].fields.push_back(f);
+              }
+            }
+            for (std::size_t i = start; i < start+n; i++) {
+              declare(i);
+            }
+            for (std::size_t i = start; i < start+n; i++) {
+              type_entry &e = _types[i];
+              if (e.declared != nullptr) {
+                e.rt = canonical(e.declared);
+              }
+              for (const field_entry &f : e.fields) {
+                gc_ptr<record_field_base> t = e.rt->lookup_field(f.name);
+                if (t != nullptr && !same_shape(t, f)) {
+                  throw incompatible_type_ex{};
+                }
+                e.targets.push_back(t);
+              }
+            }
+            _counts.types += n;
+          }
+
+          record_val read_record_ref() {
+            std::size_t n = _r.id_below(_records.size()+2);
+            if (n == 0) {
+              return record_val{};
+            }
+            if (n <= _records.size()) {
+              return _records[n-1];
+            }
+            std::size_t type = _r.id_below(_types.size());
+            record_val r = _types[type].rt->create_record();
+            _records.push_back(r);
+            _record_types.push_back(type);
+            _counts.records++;
+            return r;
+          }
+
+          array_val read_array_ref() {
+            std::size_t n = _r.id_below(_arrays.size()+2);
+            if (n == 0) {
+              return array_val{};
+            }
+            if (n <= _arrays.size()) {
+              return _arrays[n-1];
+            }
+            kind elt = _r.get_kind();
+            array_val a;
+            if (elt == kind::RECORD) {
+              gc_ptr<const record_type> rt = _types[_r.id_below(_types.size())].rt;
+              auto ma = rt->in_array()->create_array(_r.varint());
+              a = array_val{ma.value, ma.in_view};
+            } else {
+              with_scalar_kind(elt, [&](auto kc) {
+                  constexpr kind K = decltype(kc)::value;
+                  auto ma = global_managed_type<K>()->in_array()->create_array(_r.varint());
+                  a = array_val{ma.value, ma.in_view};
+                });
+            }
+            _arrays.push_back(a);
+            _counts.arrays++;
+            return a;
+          }
+
+          template <kind K>
+          static void write_field(const gc_ptr<record_field_base> &t, const record_val &r,
+                                  const kind_mv<K> &val)
+          {
+            if (t != nullptr) {
+              std::static_pointer_cast<record_field<K>>(t)->write(r.value, r.in_view, val);
+            }
+          }
+
+          void read_record() {
+            std::size_t id = _r.id_below(_records.size());
+            record_val r = _records[id];
+            const type_entry &e = _types[_record_types[id]];
+            for (std::size_t i = 0; i < e.fields.size(); i++) {
+              const field_entry &f = e.fields[i];
+              const gc_ptr<record_field_base> &t = e.targets[i];
+              if (f.k == kind::RECORD) {
+                record_val v = read_record_ref();
+                write_field<kind::RECORD>(t, r, v);
+              } else if (f.k == kind::ARRAY) {
+                array_val v = read_array_ref();
+                write_field<kind::ARRAY>(t, r, v);
+              } else {
+                with_scalar_kind(f.k, [&](auto kc) {
+                    constexpr kind K = decltype(kc)::value;
+                    kind_mv<K> v;
+                    get(_r, v);
+                    write_field<K>(t, r, v);
+                  });
+              }
+            }
+          }
+
+          void read_array() {
+            array_val a = _arrays[_r.id_below(_arrays.size())];
+            std::uint64_t start = _r.varint();
+            std::uint64_t count = _r.varint();
+            kind elt = a.value->elmt_kind;
+            if (elt == kind::RECORD) {
+              auto ma = a.value->downcast<kind::RECORD>();
+              check_range(start, count, ma->size);
+              for (std::uint64_t i = start; i < start+count; i++) {
+                record_val v = read_record_ref();
+                ma->write(i, a.in_view, v);
+              }
+            } else {
+              with_scalar_kind(elt, [&](auto kc) {
+                  constexpr kind K = decltype(kc)::value;
+                  auto ma = a.value->downcast<K>();
+                  check_range(start, count, ma->size);
+                  for (std::uint64_t i = start; i < start+count; i++) {
+                    kind_mv<K> v;
+                    get(_r, v);
+                    ma->write(i, a.in_view, v);
+                  }
+                });
+            }
+          }
+
+          static void check_range(std::uint64_t start, std::uint64_t count, std::uint64_t size) {
+            if (start > size || count > size - start) {
+              throw transfer_format_ex{"array chunk out of bounds"};
+            }
+          }
+
+          void read_bind() {
+            std::size_t depth = static_cast<std::size_t>(_r.varint());
+            if (depth == 0) {
+              throw transfer_format_ex{"empty binding path"};
+            }
+            gc_ptr<name_space> ns = _root;
+            gc_ptr<view> v = _root_view;
+            for (std::size_t i = 1; i < depth; i++) {
+              managed_value<name_space> child = ns->child_namespace(_r.str(), v, true);
+              ns = child.value;
+              v = child.in_view;
+            }
+            gc_ptr<interned_string> name = _r.str();
+            kind k = _r.get_kind();
+            bool bound;
+            if (k == kind::RECORD) {
+              bound = ns->bind<kind::RECORD>(name, v, read_record_ref(), false);
+            } else if (k == kind::ARRAY) {
+              bound = ns->bind<kind::ARRAY>(name, v, read_array_ref(), false);
+            } else {
+              bound = with_scalar_kind(k, [&](auto kc) {
+                  constexpr kind K = decltype(kc)::value;
+                  kind_mv<K> val;
+                  get(_r, val);
+                  return ns->bind<K>(name, v, val, false);
+                });
+            }
+            if (!bound) {
+              /*
+               * The name is already a namespace here.
+               */
+              throw incompatible_type_ex{};
+            }
+            _counts.bindings++;
+          }
+
+        public:
+          importer(const gc_ptr<name_space> &ns, const gc_ptr<view> &v,
+                   const source &in, std::size_t buffer_size)
+            : _r{in, buffer_size}, _root{ns}, _root_view{v}
+          {}
+
+          counts run() {
+            for (std::uint8_t b : magic) {
+              if (_r.byte() != b) {
+                throw transfer_format_ex{"not an MDS export stream"};
+              }
+            }
+            std::uint64_t version = _r.varint();
+            if (version != format_version) {
+              throw transfer_format_ex{"unsupported format version " + std::to_string(version)};
+            }
+            while (true) {
+              switch (_r.get_tag()) {
+              case tag::end:
+                return _counts;
+              case tag::types:
+                read_types();
+                break;
+              case tag::bind:
+                read_bind();
+                break;
+              case tag::record:
+                read_record();
+                break;
+              case tag::array:
+                read_array();
+                break;
+              }
+            }
+          }
+        };
+      }
+
+      counts export_namespace(const gc_ptr<name_space> &ns, const gc_ptr<view> &v,
+                              const sink &out, std::size_t buffer_size)
+      {
+        return exporter{out, buffer_size}.run(ns, v);
+      }
+
+      counts import_namespace(const gc_ptr<name_space> &ns, const gc_ptr<view> &v,
+                              const source &in, std::size_t buffer_size)
+      {
+        return importer{ns, v, in, buffer_size}.run();
+      }
+    }
+  }
+}
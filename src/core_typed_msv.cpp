@@ -1239,7 +1239,10 @@ namespace mds {
          */
         gc_ptr<value_chain> p = get_parent();
         // std::cout << "Adding conflicts below parent " << p << std::endl;
-        p->add_conflicts_below(nullptr, GC_THIS);
+        {
+          conflict_trace::source_scope source{in_msv};
+          p->add_conflicts_below(nullptr, GC_THIS);
+        }
         in_msv->add_rollup(GC_THIS, get_context(), new_state);
       }
 
@@ -1534,7 +1537,8 @@ namespace mds {
       void add_conflict() {
         gc_ptr<redo_task_set> rts = _redo_task_set;
         if (rts != nullptr) {
-          rts->set_conflict(make_gc<conflict>(rts->redo_task()),
+          rts->set_conflict(make_gc<conflict>(rts->redo_task(),
+                                              conflict_trace::current_source()),
                             get_context());
           _redo_task_set.set_flag(has_conflict_flag);
         }
@@ -2539,6 +2543,11 @@ namespace mds {
     typed_msv<kind::ARRAY>::value_chain::for_view(const gc_ptr<view> &,
                                                   const gc_ptr<value_chain> &,
                                                   const gc_ptr<msv> &);
+    template
+    gc_ptr<typed_msv<kind::CONTAINER>::value_chain>
+    typed_msv<kind::CONTAINER>::value_chain::for_view(const gc_ptr<view> &,
+                                                      const gc_ptr<value_chain> &,
+                                                      const gc_ptr<msv> &);
     template <kind K>
     using ross_vc = typename typed_msv<K>::ross_vc;
     template <kind K>
@@ -2608,6 +2617,7 @@ namespace mds {
     template void mod_condition<kind::BINDING>::init_vf_table(vf_table &);
     template void mod_condition<kind::ARRAY>::init_vf_table(vf_table &);
     template void mod_condition<kind::NAMESPACE>::init_vf_table(vf_table &);
+    template void mod_condition<kind::CONTAINER>::init_vf_table(vf_table &);
     
     // template <>
     // void mod_condition<kind::INT>::init_vf_table(vf_table &t) {